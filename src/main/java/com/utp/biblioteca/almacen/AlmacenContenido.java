@@ -0,0 +1,571 @@
+package com.utp.biblioteca.almacen;
+
+import com.utp.biblioteca.model.recurso.Recurso;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AlmacenContenido - ARCHIVOS DE LOS RECURSOS DIRECCIONADOS POR CONTENIDO
+ * Los archivos de EBook y AudioLibro se guardan troceados en bloques de tamaño fijo; cada
+ * bloque se nombra por su SHA-256 y se guarda una sola vez, aunque lo usen varios
+ * recursos (el mismo PDF subido por dos departamentos con títulos distintos).
+ *
+ * - bloques/xx/<sha256>: contenido de cada bloque (xx = dos primeros dígitos del hash)
+ * - manifiestos/<recursoId>: tamaño y lista de bloques de cada recurso (ManifiestoContenido)
+ * Los contadores de referencias de los bloques se reconstruyen al abrir, desde los
+ * manifiestos, que son la única fuente de verdad.
+ *
+ * El archivo se lee en secuencia y los bloques se calculan y escriben en paralelo en un
+ * grupo de hilos; el número de bloques en vuelo está acotado por un grupo de buffers.
+ * Guardar es concurrente; eliminar (que borra los bloques sin referencias) es exclusivo,
+ * para que nadie reutilice un bloque mientras se borra.
+ */
+public class AlmacenContenido implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlmacenContenido.class);
+
+    public static final int TAMANO_BLOQUE_DEFAULT = 1024 * 1024;
+
+    private static final String BLOQUES = "bloques";
+    private static final String MANIFIESTOS = "manifiestos";
+    private static final String CONFIGURACION = "tamano-bloque";
+    private static final String TEMPORAL = ".tmp-";
+    private static final Pattern ID_VALIDO = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,127}");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    private final Path directorioBloques;
+    private final Path directorioManifiestos;
+    private final int tamanoBloque;
+    private final ExecutorService trabajadores;
+    private final BlockingQueue<byte[]> buffers;
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final ConcurrentMap<String, ManifiestoContenido> manifiestos = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> referencias = new ConcurrentHashMap<>();
+    private final AtomicLong temporales = new AtomicLong();
+
+    // Métricas
+    private final AtomicLong bytesLogicos = new AtomicLong();
+    private final AtomicLong bytesFisicos = new AtomicLong();
+    private final AtomicLong bloquesEscritos = new AtomicLong();
+    private final AtomicLong bloquesReutilizados = new AtomicLong();
+
+    private AlmacenContenido(Path raiz, int tamanoBloque, int hilos) throws IOException {
+        this.directorioBloques = raiz.resolve(BLOQUES);
+        this.directorioManifiestos = raiz.resolve(MANIFIESTOS);
+        this.tamanoBloque = tamanoBloque;
+        Files.createDirectories(directorioManifiestos);
+        for (int i = 0; i < 256; i++) {
+            Files.createDirectories(directorioBloques.resolve(new String(new char[] {HEX[i >> 4], HEX[i & 15]})));
+        }
+        AtomicInteger numero = new AtomicInteger();
+        this.trabajadores = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "contenido-hash-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.buffers = new ArrayBlockingQueue<>(hilos * 2);
+        for (int i = 0; i < hilos * 2; i++) {
+            buffers.add(new byte[tamanoBloque]);
+        }
+    }
+
+    public static AlmacenContenido abrir(Path raiz) {
+        return abrir(raiz, TAMANO_BLOQUE_DEFAULT, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Abre (o crea) el almacén y carga sus manifiestos
+     * @param tamanoBloque debe ser el mismo con el que se creó: de él dependen las huellas
+     * @param hilos        hilos que calculan y escriben bloques
+     */
+    public static AlmacenContenido abrir(Path raiz, int tamanoBloque, int hilos) {
+        if (tamanoBloque < 4096 || hilos <= 0) {
+            throw new IllegalArgumentException("Tamaño de bloque (mínimo 4 KB) o hilos inválidos");
+        }
+        try {
+            Files.createDirectories(raiz);
+            Path configuracion = raiz.resolve(CONFIGURACION);
+            if (Files.exists(configuracion)) {
+                int guardado = Integer.parseInt(Files.readString(configuracion).strip());
+                if (guardado != tamanoBloque) {
+                    throw new IllegalArgumentException("El almacén usa bloques de " + guardado + " bytes");
+                }
+            } else {
+                Files.writeString(configuracion, String.valueOf(tamanoBloque));
+            }
+            AlmacenContenido almacen = new AlmacenContenido(raiz, tamanoBloque, hilos);
+            almacen.cargarManifiestos();
+            return almacen;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el almacén de contenido " + raiz, e);
+        }
+    }
+
+    private void cargarManifiestos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorioManifiestos)) {
+            for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                String recursoId = archivo.getFileName().toString();
+                if (recursoId.contains(TEMPORAL)) {
+                    Files.deleteIfExists(archivo); // guardado interrumpido
+                    continue;
+                }
+                try {
+                    ManifiestoContenido manifiesto = ManifiestoContenido.leer(recursoId, archivo);
+                    sumar(manifiesto);
+                    manifiestos.put(recursoId, manifiesto);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Se ignora el manifiesto {}: {}", archivo, e.getMessage());
+                }
+            }
+        }
+        logger.info("Almacén de contenido abierto: {} archivos, {} bloques", manifiestos.size(), referencias.size());
+    }
+
+    // ===============================================================
+    // GUARDAR Y ELIMINAR
+    // ===============================================================
+
+    public ManifiestoContenido guardar(Recurso recurso, Path archivo) {
+        return guardar(recurso.getId(), archivo);
+    }
+
+    /**
+     * Guarda el archivo del recurso (si ya tenía uno, lo reemplaza)
+     * Solo se escriben los bloques que el almacén no tenía.
+     */
+    public ManifiestoContenido guardar(String recursoId, Path archivo) {
+        validarId(recursoId);
+        ManifiestoContenido manifiesto;
+        ManifiestoContenido anterior;
+        cerrojo.readLock().lock();
+        try {
+            manifiesto = trocear(recursoId, archivo);
+            Path temporal = directorioManifiestos.resolve(recursoId + TEMPORAL + temporales.incrementAndGet());
+            manifiesto.escribir(temporal);
+            synchronized (this) {
+                // Mismo orden en disco y en memoria si dos hilos guardan el mismo recurso
+                Files.move(temporal, directorioManifiestos.resolve(recursoId), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                sumar(manifiesto);
+                anterior = manifiestos.put(recursoId, manifiesto);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar " + archivo, e);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        if (anterior != null) {
+            cerrojo.writeLock().lock();
+            try {
+                restar(anterior);
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        }
+        return manifiesto;
+    }
+
+    /**
+     * Quita el archivo del recurso y borra los bloques que ya nadie usa
+     * @return false si el recurso no tenía archivo
+     */
+    public boolean eliminar(String recursoId) {
+        cerrojo.writeLock().lock();
+        try {
+            ManifiestoContenido manifiesto = manifiestos.remove(recursoId);
+            if (manifiesto == null) {
+                return false;
+            }
+            Files.deleteIfExists(directorioManifiestos.resolve(recursoId));
+            restar(manifiesto);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo eliminar el contenido de " + recursoId, e);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lee el archivo en bloques y los calcula y escribe en paralelo
+     */
+    private ManifiestoContenido trocear(String recursoId, Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long cantidad = (tamano + tamanoBloque - 1) / tamanoBloque;
+            if (cantidad > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Archivo demasiado grande: " + archivo);
+            }
+            List<Future<String>> tareas = new ArrayList<>((int) cantidad);
+            try {
+                for (long i = 0; i < cantidad; i++) {
+                    byte[] buffer = buffers.take(); // espera si hay demasiados bloques en vuelo
+                    int longitud = (int) Math.min(tamanoBloque, tamano - i * tamanoBloque);
+                    try {
+                        leer(canal, buffer, i * tamanoBloque, longitud);
+                    } catch (IOException | RuntimeException e) {
+                        buffers.add(buffer);
+                        throw e;
+                    }
+                    tareas.add(trabajadores.submit(() -> {
+                        try {
+                            return guardarBloque(buffer, longitud);
+                        } finally {
+                            buffers.add(buffer);
+                        }
+                    }));
+                }
+                List<String> bloques = new ArrayList<>(tareas.size());
+                for (Future<String> tarea : tareas) {
+                    bloques.add(tarea.get());
+                }
+                return new ManifiestoContenido(recursoId, tamano, tamanoBloque, huella(tamano, bloques), bloques);
+            } catch (InterruptedException e) {
+                tareas.forEach(tarea -> tarea.cancel(false));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Guardado interrumpido", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IllegalStateException("Error al guardar un bloque de " + archivo, e.getCause());
+            }
+        }
+    }
+
+    private static void leer(FileChannel canal, byte[] buffer, long posicion, int longitud) throws IOException {
+        ByteBuffer destino = ByteBuffer.wrap(buffer, 0, longitud);
+        while (destino.hasRemaining()) {
+            if (canal.read(destino, posicion + destino.position()) < 0) {
+                throw new IOException("El archivo cambió de tamaño durante la lectura");
+            }
+        }
+    }
+
+    /**
+     * Calcula el hash del bloque y lo escribe si el almacén no lo tiene
+     */
+    private String guardarBloque(byte[] buffer, int longitud) {
+        MessageDigest sha = SHA256.get();
+        sha.update(buffer, 0, longitud);
+        String hash = hex(sha.digest());
+        Path ruta = rutaBloque(hash);
+        if (referencias.containsKey(hash) || Files.exists(ruta)) {
+            bloquesReutilizados.incrementAndGet();
+            return hash;
+        }
+        Path temporal = ruta.resolveSibling(hash + TEMPORAL + temporales.incrementAndGet());
+        try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer origen = ByteBuffer.wrap(buffer, 0, longitud);
+            while (origen.hasRemaining()) {
+                salida.write(origen);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el bloque " + hash, e);
+        }
+        try {
+            // Si otro hilo escribió el mismo bloque a la vez, el contenido es idéntico
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el bloque " + hash, e);
+        }
+        bloquesEscritos.incrementAndGet();
+        return hash;
+    }
+
+    /**
+     * Huella del contenido completo: SHA-256 del tamaño y de los hashes de sus bloques
+     */
+    private static String huella(long tamano, List<String> bloques) {
+        MessageDigest sha = SHA256.get();
+        sha.reset();
+        sha.update(ByteBuffer.allocate(Long.BYTES).putLong(tamano).array());
+        for (String bloque : bloques) {
+            sha.update(bloque.getBytes(StandardCharsets.US_ASCII));
+        }
+        return hex(sha.digest());
+    }
+
+    // ===============================================================
+    // REFERENCIAS
+    // ===============================================================
+
+    private void sumar(ManifiestoContenido manifiesto) {
+        bytesLogicos.addAndGet(manifiesto.getTamano());
+        List<String> bloques = manifiesto.getBloques();
+        for (int i = 0; i < bloques.size(); i++) {
+            if (referencias.merge(bloques.get(i), 1, Integer::sum) == 1) {
+                bytesFisicos.addAndGet(manifiesto.longitudBloque(i));
+            }
+        }
+    }
+
+    /**
+     * Resta las referencias del manifiesto y borra los bloques que quedan sin ninguna
+     * Solo con el cerrojo de escritura.
+     */
+    private void restar(ManifiestoContenido manifiesto) {
+        bytesLogicos.addAndGet(-manifiesto.getTamano());
+        List<String> bloques = manifiesto.getBloques();
+        for (int i = 0; i < bloques.size(); i++) {
+            String hash = bloques.get(i);
+            if (referencias.computeIfPresent(hash, (clave, cuenta) -> cuenta == 1 ? null : cuenta - 1) == null) {
+                bytesFisicos.addAndGet(-manifiesto.longitudBloque(i));
+                try {
+                    Files.deleteIfExists(rutaBloque(hash));
+                } catch (IOException e) {
+                    logger.warn("No se pudo borrar el bloque {}: {}", hash, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Borra los bloques sin referencias (de guardados interrumpidos o borrados fallidos)
+     * @return bloques borrados
+     */
+    public int recolectarHuerfanos() {
+        cerrojo.writeLock().lock();
+        try (Stream<Path> archivos = Files.walk(directorioBloques, 2)) {
+            int borrados = 0;
+            for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                if (Files.isRegularFile(archivo) && !referencias.containsKey(archivo.getFileName().toString())) {
+                    Files.delete(archivo);
+                    borrados++;
+                }
+            }
+            return borrados;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron recolectar los bloques huérfanos", e);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // ===============================================================
+    // LECTURA
+    // ===============================================================
+
+    /**
+     * Manifiesto del recurso, o null si no tiene archivo
+     */
+    public ManifiestoContenido getManifiesto(String recursoId) {
+        return manifiestos.get(recursoId);
+    }
+
+    public boolean contiene(String recursoId) {
+        return manifiestos.containsKey(recursoId);
+    }
+
+    /**
+     * Flujo con el contenido del recurso; los bloques se abren a medida que se leen
+     * Si el recurso se elimina mientras tanto, la lectura puede fallar con IOException.
+     */
+    public InputStream abrirContenido(String recursoId) {
+        ManifiestoContenido manifiesto = manifiesto(recursoId);
+        List<String> bloques = manifiesto.getBloques();
+        Enumeration<InputStream> flujos = new Enumeration<>() {
+            private int siguiente;
+
+            @Override
+            public boolean hasMoreElements() {
+                return siguiente < bloques.size();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return Files.newInputStream(rutaBloque(bloques.get(siguiente++)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falta un bloque de " + recursoId, e);
+                }
+            }
+        };
+        return new SequenceInputStream(flujos);
+    }
+
+    /**
+     * Reconstruye el archivo del recurso en la ruta indicada
+     * @return bytes escritos
+     */
+    public long restaurar(String recursoId, Path destino) {
+        cerrojo.readLock().lock();
+        try (FileChannel salida = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ManifiestoContenido manifiesto = manifiesto(recursoId);
+            long escritos = 0;
+            for (String bloque : manifiesto.getBloques()) {
+                try (FileChannel entrada = FileChannel.open(rutaBloque(bloque), StandardOpenOption.READ)) {
+                    long tamano = entrada.size();
+                    long copiados = 0;
+                    while (copiados < tamano) {
+                        copiados += entrada.transferTo(copiados, tamano - copiados, salida);
+                    }
+                    escritos += tamano;
+                }
+            }
+            return escritos;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo restaurar el contenido de " + recursoId, e);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Vuelve a calcular el hash de cada bloque del recurso
+     * @return false si algún bloque falta o no coincide con su nombre
+     */
+    public boolean verificar(String recursoId) {
+        cerrojo.readLock().lock();
+        try {
+            ManifiestoContenido manifiesto = manifiesto(recursoId);
+            List<String> bloques = manifiesto.getBloques();
+            MessageDigest sha = SHA256.get();
+            for (int i = 0; i < bloques.size(); i++) {
+                Path ruta = rutaBloque(bloques.get(i));
+                if (!Files.exists(ruta)) {
+                    return false;
+                }
+                byte[] contenido = Files.readAllBytes(ruta);
+                sha.reset();
+                if (contenido.length != manifiesto.longitudBloque(i) || !hex(sha.digest(contenido)).equals(bloques.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo verificar el contenido de " + recursoId, e);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private ManifiestoContenido manifiesto(String recursoId) {
+        ManifiestoContenido manifiesto = manifiestos.get(recursoId);
+        if (manifiesto == null) {
+            throw new IllegalArgumentException("El recurso no tiene contenido guardado: " + recursoId);
+        }
+        return manifiesto;
+    }
+
+    // ===============================================================
+    // INFORME DE DUPLICADOS
+    // ===============================================================
+
+    /**
+     * Recursos con el mismo contenido, agrupados por huella (los grupos más grandes primero)
+     */
+    public InformeDuplicados informeDuplicados() {
+        Map<String, List<String>> porHuella = new TreeMap<>();
+        long logicos;
+        long fisicos;
+        cerrojo.readLock().lock();
+        try {
+            for (ManifiestoContenido manifiesto : manifiestos.values()) {
+                porHuella.computeIfAbsent(manifiesto.getHuella(), h -> new ArrayList<>()).add(manifiesto.getRecursoId());
+            }
+            logicos = bytesLogicos.get();
+            fisicos = bytesFisicos.get();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        Map<String, List<String>> grupos = new LinkedHashMap<>();
+        porHuella.entrySet().stream()
+                .filter(grupo -> grupo.getValue().size() > 1)
+                .sorted(Comparator.comparingInt((Map.Entry<String, List<String>> grupo) -> grupo.getValue().size())
+                        .reversed())
+                .forEach(grupo -> {
+                    grupo.getValue().sort(null);
+                    grupos.put(grupo.getKey(), grupo.getValue());
+                });
+        return new InformeDuplicados(grupos, porHuella.values().stream().mapToLong(List::size).sum(), logicos, fisicos);
+    }
+
+    // ===============================================================
+    // UTILIDADES
+    // ===============================================================
+
+    private Path rutaBloque(String hash) {
+        return directorioBloques.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static void validarId(String recursoId) {
+        if (recursoId == null || !ID_VALIDO.matcher(recursoId).matches() || recursoId.contains(TEMPORAL)) {
+            throw new IllegalArgumentException("Id de recurso no válido como nombre de archivo: " + recursoId);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] caracteres = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            caracteres[2 * i] = HEX[(bytes[i] >> 4) & 15];
+            caracteres[2 * i + 1] = HEX[bytes[i] & 15];
+        }
+        return new String(caracteres);
+    }
+
+    @Override
+    public void close() {
+        trabajadores.shutdown();
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    public int getArchivos() { return manifiestos.size(); }
+    public int getBloques() { return referencias.size(); }
+    public int getTamanoBloque() { return tamanoBloque; }
+    public long getBytesLogicos() { return bytesLogicos.get(); }
+    public long getBytesFisicos() { return bytesFisicos.get(); }
+    public long getBloquesEscritos() { return bloquesEscritos.get(); }
+    public long getBloquesReutilizados() { return bloquesReutilizados.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("AlmacenContenido{archivos=%d, bloques=%d, lógico=%d MB, físico=%d MB}",
+                getArchivos(), getBloques(), getBytesLogicos() / (1024 * 1024), getBytesFisicos() / (1024 * 1024));
+    }
+}
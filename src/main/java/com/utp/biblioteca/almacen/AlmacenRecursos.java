@@ -0,0 +1,500 @@
+package com.utp.biblioteca.almacen;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.CadenasCatalogo;
+import com.utp.biblioteca.model.recurso.Dispositivo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.util.DiccionarioCadenas;
+import com.utp.biblioteca.util.Identificadores;
+import com.utp.biblioteca.util.IndiceIdentificadores;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * AlmacenRecursos - CATÁLOGO FUERA DEL HEAP
+ * Para catálogos de decenas de millones de registros: cada recurso ocupa una ranura de
+ * tamaño fijo en memoria directa (o en un archivo mapeado) y sus textos van a un área de
+ * cadenas aparte. El heap solo guarda un índice de ids de arreglos primitivos, así que el
+ * recolector no tiene que recorrer el catálogo en cada pausa.
+ *
+ * Las consultas usan vistas (VistaRecurso): un único objeto que se mueve de ranura en ranura
+ * y lee los campos a demanda. Los recursos que se usan de verdad (un préstamo, un resultado
+ * en pantalla) se materializan como LibroFisico, EBook o AudioLibro.
+ *
+ * Categoría, editorial, formato, calidad y estado se guardan como códigos de CadenasCatalogo
+ * y el autor como código de un diccionario propio del almacén (se libera con él), todos
+ * válidos solo durante la vida del proceso: el modo archivo sirve para sacar el catálogo
+ * de la RAM, no para reabrirlo en otra ejecución.
+ * La memoria directa está limitada por -XX:MaxDirectMemorySize (por defecto, el -Xmx).
+ *
+ * Las lecturas son seguras desde varios hilos y las escrituras se serializan; una lectura
+ * simultánea a una modificación puede ver la ranura a medio actualizar, igual que al leer
+ * sin sincronizar los campos de un objeto.
+ */
+public class AlmacenRecursos implements AutoCloseable {
+
+    /** Valor devuelto por buscarNumero cuando el id no está en el almacén */
+    public static final int NO_ENCONTRADO = IndiceIdentificadores.NO_ENCONTRADO;
+
+    // ===============================================================
+    // DISPOSICIÓN DE LA RANURA (96 bytes, orden nativo)
+    // ===============================================================
+
+    static final int TAMANO_RANURA = 96;
+
+    static final int TIPO = 0;                  // byte
+    static final int BANDERAS = 1;              // byte
+    static final int DISPOSITIVOS = 2;          // byte: máscara de Dispositivo
+    static final int AUTOR = 4;                 // código del diccionario de autores del almacén
+    static final int CATEGORIA = 8;
+    static final int FECHA_PUBLICACION = 12;    // epoch-day (SIN_FECHA = null)
+    static final int VECES_PRESTADO = 16;
+    static final int FECHA_ULTIMO_PRESTAMO = 20;
+    static final int ID_ALTO = 24;              // UUID en dos long (o referencia si ID_TEXTO)
+    static final int ID_BAJO = 32;
+    static final int TITULO = 40;               // referencias al área de cadenas (SIN_CADENA = null)
+    static final int DESCRIPCION = 48;
+    static final int PALABRAS_CLAVE = 56;
+    // Campos propios de cada tipo:
+    //   LibroFisico: isbn, ubicación, páginas, editorial, estado
+    //   EBook:       urlDescarga, tamanoMB (double), formato, límite de descargas, descargas
+    //   AudioLibro:  narrador, urlStreaming, duración, formato, calidad
+    static final int CADENA_1 = 64;
+    static final int CADENA_2 = 72;
+    static final int ENTERO_1 = 80;
+    static final int ENTERO_2 = 84;
+    static final int ENTERO_3 = 88;
+
+    static final byte LIBRO_FISICO = 0;
+    static final byte EBOOK = 1;
+    static final byte AUDIOLIBRO = 2;
+
+    static final int DISPONIBLE = 1;
+    static final int REQUIERE_DRM = 2;
+    static final int PERMITE_DESCARGA = 4;
+    static final int ID_TEXTO = 8;              // id que no es UUID: se guarda como cadena
+
+    static final int SIN_FECHA = Integer.MIN_VALUE;
+    static final long SIN_CADENA = 0L;
+    static final char SEPARADOR_PALABRAS = '\n';
+
+    static final int RANURAS_POR_SEGMENTO_DEFAULT = 1 << 16;          // 6 MB por segmento
+    static final int TAMANO_SEGMENTO_CADENAS_DEFAULT = 16 << 20;      // 16 MB
+
+    // Con el idioma por defecto, ¿toLowerCase de un texto ASCII es el mismo que en ASCII?
+    // (no lo es en turco: "I" -> "ı"); si no, la búsqueda por bytes no se usa
+    private static final boolean MINUSCULAS_ASCII = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase()
+            .equals("ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase(Locale.ROOT));
+
+    private final SegmentosMemoria ranuras;
+    private final SegmentosMemoria cadenas;
+    private final int bitsRanuras;
+    private final IndiceIdentificadores numeroPorId = new IndiceIdentificadores();
+    private final DiccionarioCadenas autores = new DiccionarioCadenas();
+    // Un mapa de bits por Dispositivo con las ranuras compatibles (se modifican con el monitor)
+    private final BitSet[] porDispositivo = new BitSet[Dispositivo.values().length];
+    private volatile int tamano;
+    private long finCadenas;
+    private long bytesDescartados;
+    private volatile boolean cerrado;
+
+    AlmacenRecursos(SegmentosMemoria ranuras, SegmentosMemoria cadenas) {
+        int ranurasPorSegmento = ranuras.getTamanoSegmento() / TAMANO_RANURA;
+        if (Integer.bitCount(ranurasPorSegmento) != 1 || ranurasPorSegmento * TAMANO_RANURA != ranuras.getTamanoSegmento()) {
+            throw new IllegalArgumentException("Los segmentos de ranuras deben contener una potencia de dos de ranuras");
+        }
+        this.ranuras = ranuras;
+        this.cadenas = cadenas;
+        this.bitsRanuras = Integer.numberOfTrailingZeros(ranurasPorSegmento);
+        for (int i = 0; i < porDispositivo.length; i++) {
+            porDispositivo[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Almacén en memoria directa
+     */
+    public static AlmacenRecursos enMemoria() {
+        return enMemoria(RANURAS_POR_SEGMENTO_DEFAULT, TAMANO_SEGMENTO_CADENAS_DEFAULT);
+    }
+
+    static AlmacenRecursos enMemoria(int ranurasPorSegmento, int tamanoSegmentoCadenas) {
+        return new AlmacenRecursos(SegmentosMemoria.directos(ranurasPorSegmento * TAMANO_RANURA),
+                SegmentosMemoria.directos(tamanoSegmentoCadenas));
+    }
+
+    /**
+     * Almacén mapeado sobre dos archivos del directorio (ranuras.dat y cadenas.dat):
+     * el sistema operativo decide qué páginas quedan en RAM
+     */
+    public static AlmacenRecursos enArchivo(Path directorio) {
+        try {
+            Files.createDirectories(directorio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el directorio del almacén " + directorio, e);
+        }
+        SegmentosMemoria ranuras = SegmentosMemoria.mapeados(directorio.resolve("ranuras.dat"),
+                RANURAS_POR_SEGMENTO_DEFAULT * TAMANO_RANURA);
+        return new AlmacenRecursos(ranuras, SegmentosMemoria.mapeados(directorio.resolve("cadenas.dat"),
+                TAMANO_SEGMENTO_CADENAS_DEFAULT));
+    }
+
+    // ===============================================================
+    // ESCRITURA
+    // ===============================================================
+
+    /**
+     * Copia el recurso a una ranura nueva
+     * @return número de ranura
+     * @throws IllegalArgumentException si el id ya está en el almacén
+     */
+    public synchronized int agregar(Recurso recurso) {
+        comprobarAbierto();
+        if (numeroPorId.contiene(recurso.getId())) {
+            throw new IllegalArgumentException("El recurso ya está en el almacén: " + recurso.getId());
+        }
+        int numero = tamano;
+        ranuras.asegurar(numero >>> bitsRanuras);
+        escribir(ranuras.segmento(numero >>> bitsRanuras), desplazamientoRanura(numero), numero, recurso);
+        numeroPorId.poner(recurso.getId(), numero);
+        // Publicación: quien lea el tamaño ve la ranura y sus cadenas completas
+        tamano = numero + 1;
+        return numero;
+    }
+
+    /**
+     * Reescribe la ranura con el estado actual del recurso. Los textos anteriores quedan
+     * como espacio descartado del área de cadenas (solo se añade al final).
+     */
+    public synchronized void actualizar(int numero, Recurso recurso) {
+        VistaRecurso actual = vista(numero);
+        if (!actual.getId().equals(recurso.getId())) {
+            throw new IllegalArgumentException("La ranura " + numero + " pertenece a otro recurso: " + actual.getId());
+        }
+        ByteBuffer segmento = segmentoRanura(numero);
+        int base = desplazamientoRanura(numero);
+        bytesDescartados += bytesCadena(segmento.getLong(base + TITULO))
+                + bytesCadena(segmento.getLong(base + DESCRIPCION))
+                + bytesCadena(segmento.getLong(base + PALABRAS_CLAVE))
+                + bytesCadena(segmento.getLong(base + CADENA_1));
+        if (segmento.get(base + TIPO) != EBOOK) {
+            bytesDescartados += bytesCadena(segmento.getLong(base + CADENA_2));
+        }
+        if ((segmento.get(base + BANDERAS) & ID_TEXTO) != 0) {
+            bytesDescartados += bytesCadena(segmento.getLong(base + ID_ALTO));
+        }
+        escribir(segmento, base, numero, recurso);
+    }
+
+    public synchronized void registrarPrestamo(int numero) {
+        ByteBuffer segmento = segmentoRanura(numero);
+        int base = desplazamientoRanura(numero);
+        segmento.put(base + BANDERAS, (byte) (segmento.get(base + BANDERAS) & ~DISPONIBLE));
+        segmento.putInt(base + VECES_PRESTADO, segmento.getInt(base + VECES_PRESTADO) + 1);
+        segmento.putInt(base + FECHA_ULTIMO_PRESTAMO, (int) LocalDate.now().toEpochDay());
+    }
+
+    public synchronized void registrarDevolucion(int numero) {
+        ByteBuffer segmento = segmentoRanura(numero);
+        int base = desplazamientoRanura(numero);
+        segmento.put(base + BANDERAS, (byte) (segmento.get(base + BANDERAS) | DISPONIBLE));
+    }
+
+    private void escribir(ByteBuffer s, int base, int numero, Recurso recurso) {
+        int banderas = recurso.isDisponible() ? DISPONIBLE : 0;
+
+        String id = recurso.getId();
+        if (Identificadores.esValido(id)) {
+            s.putLong(base + ID_ALTO, Identificadores.alto(id));
+            s.putLong(base + ID_BAJO, Identificadores.bajo(id));
+        } else {
+            banderas |= ID_TEXTO;
+            s.putLong(base + ID_ALTO, escribirCadena(id));
+            s.putLong(base + ID_BAJO, SIN_CADENA);
+        }
+        s.putInt(base + AUTOR, autores.codificar(recurso.getAutor()));
+        s.putInt(base + CATEGORIA, CadenasCatalogo.CATEGORIAS.codificar(recurso.getCategoria()));
+        s.putInt(base + FECHA_PUBLICACION, fecha(recurso.getFechaPublicacion()));
+        s.putInt(base + VECES_PRESTADO, recurso.getNumeroVecesPrestado());
+        s.putInt(base + FECHA_ULTIMO_PRESTAMO, fecha(recurso.getFechaUltimoPrestamo()));
+        s.putLong(base + TITULO, escribirCadena(recurso.getTitulo()));
+        s.putLong(base + DESCRIPCION, escribirCadena(recurso.getDescripcion()));
+        List<String> palabras = recurso.getPalabrasClave();
+        s.putLong(base + PALABRAS_CLAVE, palabras.isEmpty() ? SIN_CADENA
+                : escribirCadena(String.join(String.valueOf(SEPARADOR_PALABRAS), palabras)));
+
+        if (recurso instanceof LibroFisico) {
+            LibroFisico libro = (LibroFisico) recurso;
+            s.put(base + TIPO, LIBRO_FISICO);
+            s.putLong(base + CADENA_1, escribirCadena(libro.getIsbn()));
+            s.putLong(base + CADENA_2, escribirCadena(libro.getUbicacion()));
+            s.putInt(base + ENTERO_1, libro.getNumeroPaginas());
+            s.putInt(base + ENTERO_2, CadenasCatalogo.EDITORIALES.codificar(libro.getEditorial()));
+            s.putInt(base + ENTERO_3, CadenasCatalogo.ESTADOS.codificar(libro.getEstado()));
+        } else if (recurso instanceof EBook) {
+            EBook ebook = (EBook) recurso;
+            s.put(base + TIPO, EBOOK);
+            banderas |= ebook.isRequiereDRM() ? REQUIERE_DRM : 0;
+            s.putLong(base + CADENA_1, escribirCadena(ebook.getUrlDescarga()));
+            s.putDouble(base + CADENA_2, ebook.getTamanoMB());
+            s.putInt(base + ENTERO_1, CadenasCatalogo.FORMATOS.codificar(ebook.getFormato()));
+            s.putInt(base + ENTERO_2, ebook.getLimiteDescargas());
+            s.putInt(base + ENTERO_3, ebook.getDescargasRealizadas());
+        } else if (recurso instanceof AudioLibro) {
+            AudioLibro audio = (AudioLibro) recurso;
+            s.put(base + TIPO, AUDIOLIBRO);
+            banderas |= audio.isPermiteDescarga() ? PERMITE_DESCARGA : 0;
+            s.putLong(base + CADENA_1, escribirCadena(audio.getNarrador()));
+            s.putLong(base + CADENA_2, escribirCadena(audio.getUrlStreaming()));
+            s.putInt(base + ENTERO_1, audio.getDuracionMinutos());
+            s.putInt(base + ENTERO_2, CadenasCatalogo.FORMATOS.codificar(audio.getFormatoAudio()));
+            s.putInt(base + ENTERO_3, CadenasCatalogo.CALIDADES.codificar(audio.getCalidad()));
+        } else {
+            throw new IllegalArgumentException("Tipo de recurso no soportado: " + recurso.getClass().getSimpleName());
+        }
+        s.put(base + BANDERAS, (byte) banderas);
+        int dispositivos = recurso.getDispositivosCompatibles();
+        s.put(base + DISPOSITIVOS, (byte) dispositivos);
+        for (Dispositivo dispositivo : Dispositivo.values()) {
+            porDispositivo[dispositivo.ordinal()].set(numero, dispositivo.en(dispositivos));
+        }
+    }
+
+    private static int fecha(LocalDate fecha) {
+        return fecha == null ? SIN_FECHA : Math.toIntExact(fecha.toEpochDay());
+    }
+
+    /**
+     * Añade la cadena al final del área: longitud (int) + UTF-8, sin cruzar segmentos
+     * @return referencia (posición + 1; SIN_CADENA para null)
+     */
+    private long escribirCadena(String valor) {
+        if (valor == null) {
+            return SIN_CADENA;
+        }
+        byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+        int tamanoSegmento = cadenas.getTamanoSegmento();
+        int necesario = 4 + utf8.length;
+        if (necesario > tamanoSegmento) {
+            throw new IllegalArgumentException("Cadena demasiado larga para el almacén: " + utf8.length + " bytes");
+        }
+        int segmento = (int) (finCadenas / tamanoSegmento);
+        int desplazamiento = (int) (finCadenas % tamanoSegmento);
+        if (desplazamiento + necesario > tamanoSegmento) {
+            segmento++;
+            desplazamiento = 0;
+        }
+        cadenas.asegurar(segmento);
+        ByteBuffer buffer = cadenas.segmento(segmento);
+        buffer.putInt(desplazamiento, utf8.length);
+        buffer.put(desplazamiento + 4, utf8);
+        long posicion = (long) segmento * tamanoSegmento + desplazamiento;
+        finCadenas = posicion + necesario;
+        return posicion + 1;
+    }
+
+    // ===============================================================
+    // LECTURA
+    // ===============================================================
+
+    /**
+     * @return número de ranura del recurso o NO_ENCONTRADO
+     */
+    public synchronized int buscarNumero(String id) {
+        return numeroPorId.obtener(id);
+    }
+
+    /**
+     * Vista posicionada en la ranura indicada
+     */
+    public VistaRecurso vista(int numero) {
+        VistaRecurso vista = new VistaRecurso(this);
+        vista.mover(numero);
+        return vista;
+    }
+
+    /**
+     * Construye el objeto del modelo a partir de la ranura
+     */
+    public Recurso materializar(int numero) {
+        return vista(numero).materializar();
+    }
+
+    public Recurso buscarRecurso(String id) {
+        int numero = buscarNumero(id);
+        return numero != NO_ENCONTRADO ? materializar(numero) : null;
+    }
+
+    /**
+     * Recorre todas las ranuras con una sola vista y materializa solo las que cumplen el criterio
+     */
+    public List<Recurso> buscar(Predicate<VistaRecurso> criterio) {
+        List<Recurso> encontrados = new ArrayList<>();
+        VistaRecurso vista = new VistaRecurso(this);
+        int total = tamano;
+        for (int i = 0; i < total; i++) {
+            vista.mover(i);
+            if (criterio.test(vista)) {
+                encontrados.add(vista.materializar());
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Cuenta las ranuras que cumplen el criterio sin materializar ninguna
+     */
+    public int contar(Predicate<VistaRecurso> criterio) {
+        VistaRecurso vista = new VistaRecurso(this);
+        int total = tamano;
+        int coincidencias = 0;
+        for (int i = 0; i < total; i++) {
+            if (criterio.test(vista.mover(i))) {
+                coincidencias++;
+            }
+        }
+        return coincidencias;
+    }
+
+    /**
+     * Ranuras compatibles con TODOS los dispositivos indicados: intersección de sus mapas de bits
+     * @return copia, que se puede seguir intersectando con otros criterios
+     */
+    public synchronized BitSet compatiblesCon(Dispositivo... dispositivos) {
+        BitSet resultado = new BitSet(tamano);
+        resultado.set(0, tamano);
+        for (Dispositivo dispositivo : dispositivos) {
+            resultado.and(porDispositivo[dispositivo.ordinal()]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Como buscar, pero el criterio solo se evalúa en las ranuras compatibles con el dispositivo
+     * (filtro "dispositivo" de aplicarFiltros resuelto con el mapa de bits)
+     */
+    public List<Recurso> buscarCompatibles(Dispositivo dispositivo, Predicate<VistaRecurso> criterio) {
+        BitSet compatibles = compatiblesCon(dispositivo);
+        List<Recurso> encontrados = new ArrayList<>();
+        VistaRecurso vista = new VistaRecurso(this);
+        for (int i = compatibles.nextSetBit(0); i >= 0; i = compatibles.nextSetBit(i + 1)) {
+            if (criterio.test(vista.mover(i))) {
+                encontrados.add(vista.materializar());
+            }
+        }
+        return encontrados;
+    }
+
+    public int contarCompatibles(Dispositivo... dispositivos) {
+        return compatiblesCon(dispositivos).cardinality();
+    }
+
+    /**
+     * Recursos cuyo título contiene el texto (misma regla que Recurso.buscarPorTitulo).
+     * Con texto ASCII compara los bytes UTF-8 de cada título sin crear cadenas; los títulos
+     * con otros caracteres se decodifican.
+     */
+    public List<Recurso> buscarPorTitulo(String titulo) {
+        String buscado = titulo.toLowerCase();
+        if (!MINUSCULAS_ASCII || !esAscii(buscado)) {
+            return buscar(vista -> vista.buscarPorTitulo(titulo));
+        }
+        byte[] bytesBuscados = buscado.getBytes(StandardCharsets.US_ASCII);
+        return buscar(vista -> vista.tituloContieneAscii(bytesBuscados, buscado));
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String autor(int codigo) {
+        return autores.decodificar(codigo);
+    }
+
+    String leerCadena(long referencia) {
+        if (referencia == SIN_CADENA) {
+            return null;
+        }
+        ByteBuffer buffer = segmentoCadena(referencia);
+        int desplazamiento = desplazamientoCadena(referencia);
+        byte[] utf8 = new byte[buffer.getInt(desplazamiento)];
+        buffer.get(desplazamiento + 4, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private int bytesCadena(long referencia) {
+        return referencia == SIN_CADENA ? 0 : 4 + segmentoCadena(referencia).getInt(desplazamientoCadena(referencia));
+    }
+
+    ByteBuffer segmentoCadena(long referencia) {
+        return cadenas.segmento((int) ((referencia - 1) / cadenas.getTamanoSegmento()));
+    }
+
+    int desplazamientoCadena(long referencia) {
+        return (int) ((referencia - 1) % cadenas.getTamanoSegmento());
+    }
+
+    ByteBuffer segmentoRanura(int numero) {
+        comprobarAbierto();
+        if (numero < 0 || numero >= tamano) {
+            throw new IndexOutOfBoundsException("Ranura " + numero + " fuera de rango (recursos: " + tamano + ")");
+        }
+        return ranuras.segmento(numero >>> bitsRanuras);
+    }
+
+    int desplazamientoRanura(int numero) {
+        return (numero & ((1 << bitsRanuras) - 1)) * TAMANO_RANURA;
+    }
+
+    private void comprobarAbierto() {
+        if (cerrado) {
+            throw new IllegalStateException("El almacén de recursos está cerrado");
+        }
+    }
+
+    // ===============================================================
+    // ESTADO
+    // ===============================================================
+
+    public int getTamano() { return tamano; }
+
+    /** Memoria reservada fuera del heap (ranuras + cadenas) */
+    public long getBytesReservados() { return ranuras.getCapacidad() + cadenas.getCapacidad(); }
+
+    public synchronized long getBytesCadenas() { return finCadenas; }
+
+    /** Textos reemplazados por actualizar que siguen ocupando el área de cadenas */
+    public synchronized long getBytesDescartados() { return bytesDescartados; }
+
+    public boolean isMapeado() { return ranuras.isMapeado(); }
+
+    @Override
+    public synchronized void close() {
+        cerrado = true;
+        ranuras.close();
+        cadenas.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AlmacenRecursos{recursos=%d, reservado=%d MB, mapeado=%s}",
+                getTamano(), getBytesReservados() >> 20, isMapeado());
+    }
+}
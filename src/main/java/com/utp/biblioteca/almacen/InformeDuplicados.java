@@ -0,0 +1,75 @@
+package com.utp.biblioteca.almacen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Informe de AlmacenContenido: recursos con el mismo contenido y espacio ahorrado
+ * Los grupos están indexados por la huella del contenido; cada uno tiene dos o más recursos.
+ * El ahorro cuenta también los bloques compartidos entre archivos distintos.
+ */
+public final class InformeDuplicados {
+
+    private final Map<String, List<String>> grupos;
+    private final long archivos;
+    private final long bytesLogicos;
+    private final long bytesFisicos;
+
+    InformeDuplicados(Map<String, List<String>> grupos, long archivos, long bytesLogicos, long bytesFisicos) {
+        Map<String, List<String>> copia = new LinkedHashMap<>();
+        grupos.forEach((huella, ids) -> copia.put(huella, Collections.unmodifiableList(new ArrayList<>(ids))));
+        this.grupos = Collections.unmodifiableMap(copia);
+        this.archivos = archivos;
+        this.bytesLogicos = bytesLogicos;
+        this.bytesFisicos = bytesFisicos;
+    }
+
+    /**
+     * Ids de recurso por huella de contenido (solo contenidos repetidos)
+     */
+    public Map<String, List<String>> getGrupos() { return grupos; }
+
+    /**
+     * Recursos que sobran: en cada grupo, todos menos uno
+     */
+    public long getRecursosDuplicados() {
+        return grupos.values().stream().mapToLong(ids -> ids.size() - 1).sum();
+    }
+
+    public long getArchivos() { return archivos; }
+    public long getBytesLogicos() { return bytesLogicos; }
+    public long getBytesFisicos() { return bytesFisicos; }
+    public long getBytesAhorrados() { return bytesLogicos - bytesFisicos; }
+
+    public double getPorcentajeAhorro() {
+        return bytesLogicos > 0 ? 100.0 * getBytesAhorrados() / bytesLogicos : 0.0;
+    }
+
+    /**
+     * Una línea por grupo con los nombres de sus recursos
+     * @param nombre p. ej. id -> almacen.buscarRecurso(id).getTitulo()
+     */
+    public List<String> describir(Function<String, String> nombre) {
+        List<String> lineas = new ArrayList<>(grupos.size());
+        grupos.forEach((huella, ids) -> {
+            List<String> nombres = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                String descripcion = nombre.apply(id);
+                nombres.add(descripcion != null ? descripcion : id);
+            }
+            lineas.add(huella.substring(0, 12) + ": " + String.join(" | ", nombres));
+        });
+        return lineas;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InformeDuplicados{archivos=%d, grupos=%d, duplicados=%d, lógico=%d MB, físico=%d MB, "
+                        + "ahorro=%.1f%%}", archivos, grupos.size(), getRecursosDuplicados(),
+                bytesLogicos / (1024 * 1024), bytesFisicos / (1024 * 1024), getPorcentajeAhorro());
+    }
+}
@@ -0,0 +1,98 @@
+package com.utp.biblioteca.almacen;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Manifiesto de un archivo en AlmacenContenido: tamaño, bloques (SHA-256 de cada uno, en
+ * orden) y la huella del contenido completo, que identifica archivos idénticos
+ * Formato en disco (texto): "tamano N", "bloque N", "huella H" y un hash de bloque por línea.
+ */
+public final class ManifiestoContenido {
+
+    private final String recursoId;
+    private final long tamano;
+    private final int tamanoBloque;
+    private final String huella;
+    private final List<String> bloques;
+
+    ManifiestoContenido(String recursoId, long tamano, int tamanoBloque, String huella, List<String> bloques) {
+        this.recursoId = recursoId;
+        this.tamano = tamano;
+        this.tamanoBloque = tamanoBloque;
+        this.huella = huella;
+        this.bloques = Collections.unmodifiableList(bloques);
+    }
+
+    /**
+     * Bytes del bloque indicado (el último puede ser más corto)
+     */
+    int longitudBloque(int indice) {
+        return (int) Math.min(tamanoBloque, tamano - (long) indice * tamanoBloque);
+    }
+
+    void escribir(Path archivo) throws IOException {
+        try (BufferedWriter salida = Files.newBufferedWriter(archivo, StandardCharsets.US_ASCII)) {
+            salida.write("tamano " + tamano + "\nbloque " + tamanoBloque + "\nhuella " + huella + "\n");
+            for (String bloque : bloques) {
+                salida.write(bloque);
+                salida.write('\n');
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException si el archivo no es un manifiesto
+     */
+    static ManifiestoContenido leer(String recursoId, Path archivo) throws IOException {
+        try (BufferedReader entrada = Files.newBufferedReader(archivo, StandardCharsets.US_ASCII)) {
+            long tamano = Long.parseLong(valor(entrada.readLine(), "tamano"));
+            int tamanoBloque = Integer.parseInt(valor(entrada.readLine(), "bloque"));
+            String huella = valor(entrada.readLine(), "huella");
+            List<String> bloques = new ArrayList<>();
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                if (!linea.isEmpty()) {
+                    bloques.add(linea);
+                }
+            }
+            long esperados = (tamano + tamanoBloque - 1) / tamanoBloque;
+            if (bloques.size() != esperados) {
+                throw new IllegalArgumentException("Manifiesto incompleto: " + archivo);
+            }
+            return new ManifiestoContenido(recursoId, tamano, tamanoBloque, huella, bloques);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Manifiesto inválido: " + archivo, e);
+        }
+    }
+
+    private static String valor(String linea, String clave) {
+        if (linea == null || !linea.startsWith(clave + " ")) {
+            throw new IllegalArgumentException("Falta '" + clave + "' en el manifiesto");
+        }
+        return linea.substring(clave.length() + 1);
+    }
+
+    // ===============================================================
+    // GETTERS
+    // ===============================================================
+
+    public String getRecursoId() { return recursoId; }
+    public long getTamano() { return tamano; }
+    public int getTamanoBloque() { return tamanoBloque; }
+    public String getHuella() { return huella; }
+    public List<String> getBloques() { return bloques; }
+
+    @Override
+    public String toString() {
+        return String.format("ManifiestoContenido{recurso=%s, tamaño=%d, bloques=%d, huella=%s}",
+                recursoId, tamano, bloques.size(), huella.substring(0, Math.min(12, huella.length())));
+    }
+}
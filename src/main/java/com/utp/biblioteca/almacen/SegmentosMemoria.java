@@ -0,0 +1,99 @@
+package com.utp.biblioteca.almacen;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Área de memoria fuera del heap formada por segmentos del mismo tamaño
+ * Cada segmento es un ByteBuffer directo o una región mapeada de un archivo. Un ByteBuffer
+ * no pasa de 2 GB, así que las posiciones globales (long) se reparten entre segmentos.
+ * Las lecturas absolutas son seguras desde varios hilos; crecer lo serializa el dueño.
+ */
+final class SegmentosMemoria implements AutoCloseable {
+
+    private final int tamanoSegmento;
+    private final FileChannel canal; // null = memoria directa
+    private volatile ByteBuffer[] segmentos = new ByteBuffer[0];
+
+    private SegmentosMemoria(int tamanoSegmento, FileChannel canal) {
+        if (tamanoSegmento <= 0) {
+            throw new IllegalArgumentException("Tamaño de segmento inválido: " + tamanoSegmento);
+        }
+        this.tamanoSegmento = tamanoSegmento;
+        this.canal = canal;
+    }
+
+    static SegmentosMemoria directos(int tamanoSegmento) {
+        return new SegmentosMemoria(tamanoSegmento, null);
+    }
+
+    /**
+     * Segmentos mapeados sobre un archivo nuevo (se trunca si ya existía)
+     */
+    static SegmentosMemoria mapeados(Path archivo, int tamanoSegmento) {
+        try {
+            return new SegmentosMemoria(tamanoSegmento, FileChannel.open(archivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el archivo del almacén " + archivo, e);
+        }
+    }
+
+    ByteBuffer segmento(int numero) {
+        return segmentos[numero];
+    }
+
+    /**
+     * Crea los segmentos que falten hasta el indicado (incluido)
+     */
+    void asegurar(int numero) {
+        ByteBuffer[] actuales = segmentos;
+        if (numero < actuales.length) {
+            return;
+        }
+        ByteBuffer[] nuevos = Arrays.copyOf(actuales, numero + 1);
+        for (int i = actuales.length; i <= numero; i++) {
+            nuevos[i] = reservar(i);
+        }
+        segmentos = nuevos;
+    }
+
+    private ByteBuffer reservar(int numero) {
+        if (canal == null) {
+            return ByteBuffer.allocateDirect(tamanoSegmento).order(ByteOrder.nativeOrder());
+        }
+        try {
+            return canal.map(FileChannel.MapMode.READ_WRITE, (long) numero * tamanoSegmento, tamanoSegmento)
+                    .order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo mapear el segmento " + numero + " del almacén", e);
+        }
+    }
+
+    int getTamanoSegmento() { return tamanoSegmento; }
+    int getNumeroSegmentos() { return segmentos.length; }
+    long getCapacidad() { return (long) segmentos.length * tamanoSegmento; }
+    boolean isMapeado() { return canal != null; }
+
+    /**
+     * Suelta los segmentos: la memoria directa y los mapeos se liberan cuando el
+     * recolector descarta los buffers
+     */
+    @Override
+    public void close() {
+        segmentos = new ByteBuffer[0];
+        if (canal != null) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo cerrar el archivo del almacén", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.utp.biblioteca.almacen;
+
+import com.utp.biblioteca.model.interfaces.Buscable;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.CadenasCatalogo;
+import com.utp.biblioteca.model.recurso.Dispositivo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.util.DiccionarioCadenas;
+import com.utp.biblioteca.util.Identificadores;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * VistaRecurso - PESO LIGERO (FLYWEIGHT) SOBRE UNA RANURA DEL ALMACÉN
+ * Un solo objeto recorre miles de ranuras: mover() solo cambia la posición y cada getter
+ * lee su campo de la memoria fuera del heap en el momento. Implementa Buscable con las
+ * mismas reglas que Recurso, así que las búsquedas del catálogo funcionan sin materializar.
+ *
+ * La vista no es segura para hilos (cada hilo usa la suya) y los valores que devuelve son
+ * los de la ranura en el momento de leerlos.
+ */
+public final class VistaRecurso implements Buscable {
+
+    private static final String[] NOMBRES_TIPO = { "LibroFisico", "EBook", "AudioLibro" };
+
+    private final AlmacenRecursos almacen;
+    private ByteBuffer segmento;
+    private int base;
+    private int numero = -1;
+
+    VistaRecurso(AlmacenRecursos almacen) {
+        this.almacen = almacen;
+    }
+
+    /**
+     * Posiciona la vista en otra ranura
+     * @return la misma vista
+     */
+    public VistaRecurso mover(int numero) {
+        this.segmento = almacen.segmentoRanura(numero);
+        this.base = almacen.desplazamientoRanura(numero);
+        this.numero = numero;
+        return this;
+    }
+
+    // ===============================================================
+    // CAMPOS (lectura a demanda)
+    // ===============================================================
+
+    public int getNumero() { return numero; }
+
+    public String getId() {
+        if ((banderas() & AlmacenRecursos.ID_TEXTO) != 0) {
+            return almacen.leerCadena(segmento.getLong(base + AlmacenRecursos.ID_ALTO));
+        }
+        return Identificadores.aTexto(segmento.getLong(base + AlmacenRecursos.ID_ALTO),
+                segmento.getLong(base + AlmacenRecursos.ID_BAJO));
+    }
+
+    /**
+     * Nombre simple de la clase del recurso (LibroFisico, EBook, AudioLibro)
+     */
+    public String getTipo() { return NOMBRES_TIPO[segmento.get(base + AlmacenRecursos.TIPO)]; }
+
+    public String getTitulo() { return cadena(AlmacenRecursos.TITULO); }
+    public String getAutor() { return almacen.autor(entero(AlmacenRecursos.AUTOR)); }
+    public String getCategoria() { return CadenasCatalogo.CATEGORIAS.decodificar(entero(AlmacenRecursos.CATEGORIA)); }
+    public LocalDate getFechaPublicacion() { return fecha(AlmacenRecursos.FECHA_PUBLICACION); }
+    public boolean isDisponible() { return (banderas() & AlmacenRecursos.DISPONIBLE) != 0; }
+    public String getDescripcion() { return cadena(AlmacenRecursos.DESCRIPCION); }
+    public int getNumeroVecesPrestado() { return entero(AlmacenRecursos.VECES_PRESTADO); }
+    public LocalDate getFechaUltimoPrestamo() { return fecha(AlmacenRecursos.FECHA_ULTIMO_PRESTAMO); }
+    public int getDispositivosCompatibles() { return segmento.get(base + AlmacenRecursos.DISPOSITIVOS); }
+
+    public List<String> getPalabrasClave() {
+        String unidas = cadena(AlmacenRecursos.PALABRAS_CLAVE);
+        return unidas == null ? new ArrayList<>()
+                : new ArrayList<>(Arrays.asList(unidas.split(String.valueOf(AlmacenRecursos.SEPARADOR_PALABRAS))));
+    }
+
+    public double calcularPopularidad() {
+        return Math.min(getNumeroVecesPrestado() / 10.0, 1.0);
+    }
+
+    /**
+     * Texto en minúsculas sobre el que se buscan las palabras clave (igual que Recurso)
+     */
+    public String construirTextoBusqueda() {
+        return (getTitulo() + " " + getAutor() + " " + getDescripcion() + " "
+                + String.join(" ", getPalabrasClave())).toLowerCase();
+    }
+
+    // ===============================================================
+    // MATERIALIZACIÓN
+    // ===============================================================
+
+    /**
+     * Construye un objeto del modelo independiente de la ranura
+     */
+    public Recurso materializar() {
+        String titulo = getTitulo();
+        String autor = getAutor();
+        String categoria = getCategoria();
+        LocalDate fechaPublicacion = getFechaPublicacion();
+        int banderas = banderas();
+
+        Recurso recurso;
+        switch (segmento.get(base + AlmacenRecursos.TIPO)) {
+            case AlmacenRecursos.LIBRO_FISICO:
+                LibroFisico libro = new LibroFisico(titulo, autor, categoria, fechaPublicacion,
+                        cadena(AlmacenRecursos.CADENA_1), entero(AlmacenRecursos.ENTERO_1),
+                        CadenasCatalogo.EDITORIALES.decodificar(entero(AlmacenRecursos.ENTERO_2)),
+                        cadena(AlmacenRecursos.CADENA_2));
+                libro.setEstado(CadenasCatalogo.ESTADOS.decodificar(entero(AlmacenRecursos.ENTERO_3)));
+                recurso = libro;
+                break;
+            case AlmacenRecursos.EBOOK:
+                EBook ebook = new EBook(titulo, autor, categoria, fechaPublicacion,
+                        CadenasCatalogo.FORMATOS.decodificar(entero(AlmacenRecursos.ENTERO_1)),
+                        segmento.getDouble(base + AlmacenRecursos.CADENA_2), cadena(AlmacenRecursos.CADENA_1));
+                ebook.setRequiereDRM((banderas & AlmacenRecursos.REQUIERE_DRM) != 0);
+                ebook.setLimiteDescargas(entero(AlmacenRecursos.ENTERO_2));
+                ebook.restaurarDescargas(entero(AlmacenRecursos.ENTERO_3));
+                recurso = ebook;
+                break;
+            case AlmacenRecursos.AUDIOLIBRO:
+                AudioLibro audio = new AudioLibro(titulo, autor, categoria, fechaPublicacion,
+                        entero(AlmacenRecursos.ENTERO_1),
+                        CadenasCatalogo.FORMATOS.decodificar(entero(AlmacenRecursos.ENTERO_2)),
+                        cadena(AlmacenRecursos.CADENA_1),
+                        CadenasCatalogo.CALIDADES.decodificar(entero(AlmacenRecursos.ENTERO_3)));
+                audio.setUrlStreaming(cadena(AlmacenRecursos.CADENA_2));
+                audio.setPermiteDescarga((banderas & AlmacenRecursos.PERMITE_DESCARGA) != 0);
+                recurso = audio;
+                break;
+            default:
+                throw new IllegalStateException("Tipo de recurso desconocido en la ranura " + numero);
+        }
+        recurso.setDescripcion(getDescripcion());
+        getPalabrasClave().forEach(recurso::agregarPalabraClave);
+        recurso.restaurarEstado(getId(), isDisponible(), getNumeroVecesPrestado(), getFechaUltimoPrestamo());
+        return recurso;
+    }
+
+    // ===============================================================
+    // IMPLEMENTACIÓN DE INTERFACE BUSCABLE (mismas reglas que Recurso)
+    // ===============================================================
+
+    @Override
+    public boolean buscarPorTitulo(String titulo) {
+        return getTitulo().toLowerCase().contains(titulo.toLowerCase());
+    }
+
+    @Override
+    public boolean buscarPorAutor(String autor) {
+        return getAutor().toLowerCase().contains(autor.toLowerCase());
+    }
+
+    @Override
+    public boolean buscarPorCategoria(String categoria) {
+        return getCategoria().toLowerCase().equals(categoria.toLowerCase());
+    }
+
+    @Override
+    public boolean buscarPorPalabrasClave(List<String> palabrasClave) {
+        String textoBusqueda = construirTextoBusqueda();
+        return palabrasClave.stream()
+                .anyMatch(palabra -> textoBusqueda.contains(palabra.toLowerCase()));
+    }
+
+    @Override
+    public boolean aplicarFiltros(Map<String, Object> filtros) {
+        for (Map.Entry<String, Object> filtro : filtros.entrySet()) {
+            switch (filtro.getKey()) {
+                case "disponible":
+                    if (isDisponible() != (Boolean) filtro.getValue()) return false;
+                    break;
+                case "categoria":
+                    if (!(filtro.getValue() instanceof String)) return false;
+                    int codigo = CadenasCatalogo.CATEGORIAS.buscarCodigo((String) filtro.getValue());
+                    if (codigo == DiccionarioCadenas.CODIGO_NULO || entero(AlmacenRecursos.CATEGORIA) != codigo) return false;
+                    break;
+                case "tipo":
+                    if (!getTipo().equals(filtro.getValue())) return false;
+                    break;
+                case "añoPublicacion":
+                    if (getFechaPublicacion().getYear() != (Integer) filtro.getValue()) return false;
+                    break;
+                case "dispositivo":
+                    if (!Dispositivo.desdeFiltro(filtro.getValue()).en(getDispositivosCompatibles())) return false;
+                    break;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public double calcularRelevancia(List<String> terminosBusqueda) {
+        double relevancia = 0.0;
+        String titulo = getTitulo();
+        String autor = getAutor();
+        String descripcion = getDescripcion();
+
+        for (String termino : terminosBusqueda) {
+            String terminoLower = termino.toLowerCase();
+            if (titulo.toLowerCase().contains(terminoLower)) {
+                relevancia += 0.5;
+            }
+            if (autor.toLowerCase().contains(terminoLower)) {
+                relevancia += 0.3;
+            }
+            if (descripcion != null && descripcion.toLowerCase().contains(terminoLower)) {
+                relevancia += 0.2;
+            }
+        }
+
+        relevancia += calcularPopularidad() * 0.1;
+
+        return Math.min(relevancia, 1.0);
+    }
+
+    @Override
+    public String getResumenParaBusqueda() {
+        return String.format("%s por %s (%s) - %s [%s]",
+                getTitulo(), getAutor(), getFechaPublicacion().getYear(),
+                getCategoria(), isDisponible() ? "Disponible" : "No disponible");
+    }
+
+    @Override
+    public List<String> getPalabrasClaveIndexables() {
+        List<String> palabras = new ArrayList<>();
+        palabras.add(getTitulo().toLowerCase());
+        palabras.add(getAutor().toLowerCase());
+        palabras.add(getCategoria().toLowerCase());
+        palabras.addAll(getPalabrasClave());
+        return palabras;
+    }
+
+    // ===============================================================
+    // BÚSQUEDA SOBRE LOS BYTES
+    // ===============================================================
+
+    /**
+     * Equivale a buscarPorTitulo para un texto ASCII ya en minúsculas: compara los bytes
+     * UTF-8 del título pasando sus letras ASCII a minúsculas, sin crear objetos. Un título
+     * con caracteres no ASCII se decodifica y se compara como String.
+     */
+    boolean tituloContieneAscii(byte[] buscado, String buscadoTexto) {
+        long referencia = segmento.getLong(base + AlmacenRecursos.TITULO);
+        if (referencia == AlmacenRecursos.SIN_CADENA) {
+            return false;
+        }
+        ByteBuffer buffer = almacen.segmentoCadena(referencia);
+        int inicio = almacen.desplazamientoCadena(referencia) + 4;
+        int longitud = buffer.getInt(inicio - 4);
+        for (int i = 0; i < longitud; i++) {
+            if (buffer.get(inicio + i) < 0) {
+                return getTitulo().toLowerCase().contains(buscadoTexto);
+            }
+        }
+        int ultimo = longitud - buscado.length;
+        for (int i = 0; i <= ultimo; i++) {
+            int j = 0;
+            while (j < buscado.length && minuscula(buffer.get(inicio + i + j)) == buscado[j]) {
+                j++;
+            }
+            if (j == buscado.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte minuscula(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    // ===============================================================
+    // ACCESO A LA RANURA
+    // ===============================================================
+
+    private int banderas() {
+        return segmento.get(base + AlmacenRecursos.BANDERAS);
+    }
+
+    private int entero(int campo) {
+        return segmento.getInt(base + campo);
+    }
+
+    private String cadena(int campo) {
+        return almacen.leerCadena(segmento.getLong(base + campo));
+    }
+
+    private LocalDate fecha(int campo) {
+        int dia = segmento.getInt(base + campo);
+        return dia == AlmacenRecursos.SIN_FECHA ? null : LocalDate.ofEpochDay(dia);
+    }
+
+    @Override
+    public String toString() {
+        return numero < 0 ? "VistaRecurso{sin posicionar}"
+                : String.format("VistaRecurso{ranura=%d, tipo=%s, titulo='%s', disponible=%s}",
+                        numero, getTipo(), getTitulo(), isDisponible());
+    }
+}
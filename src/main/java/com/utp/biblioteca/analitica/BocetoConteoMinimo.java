@@ -0,0 +1,116 @@
+package com.utp.biblioteca.analitica;
+
+import java.util.Arrays;
+
+/**
+ * BocetoConteoMinimo - COUNT-MIN SKETCH
+ * Estima la frecuencia de cualquier elemento con memoria fija (ancho x profundidad contadores).
+ * Nunca subestima; el error es como máximo total/ancho con probabilidad 1 - e^-profundidad.
+ * Dos bocetos con las mismas dimensiones se combinan sumando sus contadores.
+ */
+public class BocetoConteoMinimo {
+
+    private final int ancho;
+    private final int profundidad;
+    private final long[][] contadores;
+    private long total;
+
+    public BocetoConteoMinimo(int ancho, int profundidad) {
+        if (ancho <= 0 || profundidad <= 0) {
+            throw new IllegalArgumentException("Dimensiones inválidas: " + ancho + "x" + profundidad);
+        }
+        this.ancho = ancho;
+        this.profundidad = profundidad;
+        this.contadores = new long[profundidad][ancho];
+        this.total = 0;
+    }
+
+    /**
+     * Registra una ocurrencia del elemento
+     */
+    public void incrementar(String elemento) {
+        incrementar(elemento, 1);
+    }
+
+    /**
+     * Registra varias ocurrencias del elemento
+     */
+    public void incrementar(String elemento, long cantidad) {
+        long hash = Hash64.hash(elemento);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int fila = 0; fila < profundidad; fila++) {
+            contadores[fila][indice(h1, h2, fila)] += cantidad;
+        }
+        total += cantidad;
+    }
+
+    /**
+     * Estima cuántas veces se registró el elemento (cota superior)
+     */
+    public long estimar(String elemento) {
+        long hash = Hash64.hash(elemento);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < profundidad; fila++) {
+            minimo = Math.min(minimo, contadores[fila][indice(h1, h2, fila)]);
+        }
+        return minimo;
+    }
+
+    // Doble hashing (Kirsch-Mitzenmacher): una función hash por fila a partir de dos
+    private int indice(int h1, int h2, int fila) {
+        int combinado = h1 + fila * h2;
+        return (combinado & Integer.MAX_VALUE) % ancho;
+    }
+
+    /**
+     * Suma en este boceto los contadores de otro con las mismas dimensiones
+     * @throws IllegalArgumentException si otro es este mismo boceto (contaría todo dos veces)
+     */
+    public void combinar(BocetoConteoMinimo otro) {
+        if (otro == this) {
+            throw new IllegalArgumentException("No se puede combinar un boceto consigo mismo");
+        }
+        if (otro.ancho != ancho || otro.profundidad != profundidad) {
+            throw new IllegalArgumentException("No se pueden combinar bocetos de dimensiones distintas");
+        }
+        for (int fila = 0; fila < profundidad; fila++) {
+            long[] destino = contadores[fila];
+            long[] origen = otro.contadores[fila];
+            for (int i = 0; i < ancho; i++) {
+                destino[i] += origen[i];
+            }
+        }
+        total += otro.total;
+    }
+
+    /**
+     * Crea una copia independiente del boceto
+     */
+    public BocetoConteoMinimo copia() {
+        BocetoConteoMinimo copia = new BocetoConteoMinimo(ancho, profundidad);
+        copia.combinar(this);
+        return copia;
+    }
+
+    /**
+     * Reinicia todos los contadores
+     */
+    public void limpiar() {
+        for (long[] fila : contadores) {
+            Arrays.fill(fila, 0L);
+        }
+        total = 0;
+    }
+
+    public int getAncho() { return ancho; }
+    public int getProfundidad() { return profundidad; }
+    public long getTotal() { return total; }
+
+    @Override
+    public String toString() {
+        return String.format("BocetoConteoMinimo{%dx%d, total=%d}", ancho, profundidad, total);
+    }
+}
@@ -0,0 +1,90 @@
+package com.utp.biblioteca.analitica;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Clase utilitaria de estadísticas sobre el historial columnar
+ * Equivalente a EstadisticasGestion, pero calculada con escaneos primitivos
+ * en lugar de recorrer objetos Prestamo con STREAM API.
+ */
+public class EstadisticasColumnares {
+
+    /**
+     * Genera estadísticas de préstamos por estado (mismo formato que EstadisticasGestion)
+     */
+    public static Map<String, Object> generarEstadisticasPrestamos(HistorialPrestamosColumnar historial) {
+        return generarEstadisticasPrestamos(historial, FiltroHistorial.todos());
+    }
+
+    /**
+     * Genera estadísticas de préstamos por estado dentro de un filtro
+     */
+    public static Map<String, Object> generarEstadisticasPrestamos(HistorialPrestamosColumnar historial,
+                                                                  FiltroHistorial filtro) {
+        long[] conteo = historial.contarPorEstado(filtro);
+        EstadoPrestamo[] estados = EstadoPrestamo.values();
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        for (int i = 0; i < conteo.length; i++) {
+            if (conteo[i] > 0) {
+                estadisticas.put(estados[i].name(), conteo[i]);
+            }
+        }
+        return estadisticas;
+    }
+
+    /**
+     * Calcula multas totales pendientes en soles
+     */
+    public static double calcularMultasTotales(HistorialPrestamosColumnar historial) {
+        return calcularMultasTotales(historial, FiltroHistorial.todos());
+    }
+
+    /**
+     * Calcula multas pendientes en soles dentro de un filtro
+     */
+    public static double calcularMultasTotales(HistorialPrestamosColumnar historial, FiltroHistorial filtro) {
+        return historial.sumarMultaCentimos(filtro.copia().soloMultasPendientes()) / 100.0;
+    }
+
+    /**
+     * Cuenta los préstamos devueltos con retraso
+     */
+    public static long contarDevolucionesConRetraso(HistorialPrestamosColumnar historial, FiltroHistorial filtro) {
+        return historial.contarDevueltosConRetraso(filtro);
+    }
+
+    /**
+     * Promedio de renovaciones por préstamo
+     */
+    public static double calcularPromedioRenovaciones(HistorialPrestamosColumnar historial, FiltroHistorial filtro) {
+        long filas = historial.contar(filtro);
+        return filas == 0 ? 0.0 : (double) historial.sumarRenovaciones(filtro) / filas;
+    }
+
+    /**
+     * Cuenta préstamos por categoría de recurso
+     */
+    public static Map<String, Long> contarPorCategoria(HistorialPrestamosColumnar historial, FiltroHistorial filtro) {
+        return aMapa(historial.contarPorCategoria(filtro), historial.getCategorias()::decodificar);
+    }
+
+    /**
+     * Cuenta préstamos por tipo de usuario (Estudiante, Profesor, Bibliotecario)
+     */
+    public static Map<String, Long> contarPorTipoUsuario(HistorialPrestamosColumnar historial, FiltroHistorial filtro) {
+        return aMapa(historial.contarPorTipoUsuario(filtro), historial.getTiposUsuario()::decodificar);
+    }
+
+    private static Map<String, Long> aMapa(long[] conteo, IntFunction<String> decodificador) {
+        Map<String, Long> mapa = new LinkedHashMap<>();
+        for (int codigo = 0; codigo < conteo.length; codigo++) {
+            if (conteo[codigo] > 0) {
+                mapa.put(decodificador.apply(codigo), conteo[codigo]);
+            }
+        }
+        return mapa;
+    }
+}
@@ -0,0 +1,101 @@
+package com.utp.biblioteca.analitica;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import java.time.LocalDate;
+
+/**
+ * Criterios de filtrado para los escaneos del historial columnar
+ * Todos los criterios son opcionales; los nulos no filtran.
+ * El rango de fechas se aplica sobre la fecha de préstamo (ambos extremos inclusive).
+ */
+public class FiltroHistorial {
+
+    private LocalDate desde;
+    private LocalDate hasta;
+    private String tipoUsuario;
+    private String tipoRecurso;
+    private String categoria;
+    private EstadoPrestamo estado;
+    private boolean soloMultasPendientes;
+
+    /**
+     * Filtro vacío: selecciona todas las filas
+     */
+    public static FiltroHistorial todos() {
+        return new FiltroHistorial();
+    }
+
+    /**
+     * Crea una copia independiente del filtro
+     */
+    public FiltroHistorial copia() {
+        FiltroHistorial copia = new FiltroHistorial();
+        copia.desde = desde;
+        copia.hasta = hasta;
+        copia.tipoUsuario = tipoUsuario;
+        copia.tipoRecurso = tipoRecurso;
+        copia.categoria = categoria;
+        copia.estado = estado;
+        copia.soloMultasPendientes = soloMultasPendientes;
+        return copia;
+    }
+
+    public FiltroHistorial desde(LocalDate desde) {
+        this.desde = desde;
+        return this;
+    }
+
+    public FiltroHistorial hasta(LocalDate hasta) {
+        this.hasta = hasta;
+        return this;
+    }
+
+    public FiltroHistorial entre(LocalDate desde, LocalDate hasta) {
+        this.desde = desde;
+        this.hasta = hasta;
+        return this;
+    }
+
+    public FiltroHistorial tipoUsuario(String tipoUsuario) {
+        this.tipoUsuario = tipoUsuario;
+        return this;
+    }
+
+    public FiltroHistorial tipoRecurso(String tipoRecurso) {
+        this.tipoRecurso = tipoRecurso;
+        return this;
+    }
+
+    public FiltroHistorial categoria(String categoria) {
+        this.categoria = categoria;
+        return this;
+    }
+
+    public FiltroHistorial estado(EstadoPrestamo estado) {
+        this.estado = estado;
+        return this;
+    }
+
+    public FiltroHistorial soloMultasPendientes() {
+        this.soloMultasPendientes = true;
+        return this;
+    }
+
+    // ===============================================================
+    // GETTERS
+    // ===============================================================
+
+    public LocalDate getDesde() { return desde; }
+    public LocalDate getHasta() { return hasta; }
+    public String getTipoUsuario() { return tipoUsuario; }
+    public String getTipoRecurso() { return tipoRecurso; }
+    public String getCategoria() { return categoria; }
+    public EstadoPrestamo getEstado() { return estado; }
+    public boolean isSoloMultasPendientes() { return soloMultasPendientes; }
+
+    @Override
+    public String toString() {
+        return String.format("FiltroHistorial{desde=%s, hasta=%s, tipoUsuario=%s, tipoRecurso=%s, categoria=%s, estado=%s, multasPendientes=%s}",
+                desde, hasta, tipoUsuario, tipoRecurso, categoria, estado, soloMultasPendientes);
+    }
+}
@@ -0,0 +1,38 @@
+package com.utp.biblioteca.analitica;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Funciones hash de 64 bits para los bocetos probabilísticos
+ * (variante de FNV-1a con mezcla final de MurmurHash3)
+ */
+final class Hash64 {
+
+    private Hash64() {
+    }
+
+    /**
+     * Hash de 64 bits de una cadena (estable entre ejecuciones e instancias)
+     */
+    static long hash(String valor) {
+        long h = 0xcbf29ce484222325L;
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mezclar(h);
+    }
+
+    /**
+     * Mezcla final (fmix64 de MurmurHash3) para dispersar todos los bits
+     */
+    static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
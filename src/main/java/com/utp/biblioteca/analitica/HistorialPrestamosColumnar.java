@@ -0,0 +1,616 @@
+package com.utp.biblioteca.analitica;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.util.DiccionarioCadenas;
+import com.utp.biblioteca.util.LiberadorMapeos;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HistorialPrestamosColumnar - ALMACÉN COLUMNAR EN MEMORIA
+ * Guarda los préstamos cerrados como columnas primitivas en bloques de tamaño fijo:
+ * fechas como epoch-day, tipos y categorías codificados por diccionario,
+ * renovaciones como int y multas en céntimos.
+ * Los escaneos recorren columna por columna usando un vector de selección por bloque,
+ * lo que evita crear objetos y permite al JIT vectorizar los bucles.
+ */
+public class HistorialPrestamosColumnar {
+
+    /** Filas por bloque (potencia de dos para ubicar filas con desplazamientos) */
+    public static final int FILAS_POR_BLOQUE = 1 << 16;
+    private static final int BITS_BLOQUE = 16;
+
+    /** Marca de fecha ausente (p. ej. préstamo cancelado sin devolución) */
+    public static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    // Cabecera de cada archivo de columna: magia (int), versión (int), filas (long)
+    private static final int MAGIA_COLUMNA = 0x48504331; // "HPC1"
+    private static final int VERSION_FORMATO = 1;
+    private static final int BYTES_CABECERA = 16;
+    private static final int BYTES_VENTANA = 1 << 30; // tamaño máximo de cada mapeo al cargar
+    private static final int MAGIA_DICCIONARIO = 0x48504431; // "HPD1"
+
+    // Códigos de filtro resueltos: sin restricción / valor inexistente en el diccionario
+    private static final int CODIGO_CUALQUIERA = Integer.MIN_VALUE;
+    private static final int CODIGO_IMPOSIBLE = Integer.MIN_VALUE + 1;
+
+    private static final EstadoPrestamo[] ESTADOS = EstadoPrestamo.values();
+
+    // Diccionarios de columnas codificadas
+    private final DiccionarioCadenas tiposUsuario;
+    private final DiccionarioCadenas tiposRecurso;
+    private final DiccionarioCadenas categorias;
+
+    private volatile Bloque[] bloques;
+    private volatile long filas;
+
+    /**
+     * Bloque de filas: un arreglo primitivo por columna
+     */
+    static final class Bloque {
+        final int[] fechaPrestamo = new int[FILAS_POR_BLOQUE];
+        final int[] fechaVencimiento = new int[FILAS_POR_BLOQUE];
+        final int[] fechaDevolucion = new int[FILAS_POR_BLOQUE];
+        final byte[] tipoUsuario = new byte[FILAS_POR_BLOQUE];
+        final byte[] tipoRecurso = new byte[FILAS_POR_BLOQUE];
+        final short[] categoria = new short[FILAS_POR_BLOQUE];
+        final byte[] estado = new byte[FILAS_POR_BLOQUE];
+        final int[] renovaciones = new int[FILAS_POR_BLOQUE];
+        final long[] multaCentimos = new long[FILAS_POR_BLOQUE];
+        final byte[] multaPagada = new byte[FILAS_POR_BLOQUE];
+    }
+
+    /**
+     * Recibe cada bloque con las filas que pasaron el filtro
+     */
+    interface ConsumidorBloque {
+        void procesar(Bloque bloque, int[] seleccion, int seleccionadas);
+    }
+
+    public HistorialPrestamosColumnar() {
+        this(new DiccionarioCadenas(), new DiccionarioCadenas(), new DiccionarioCadenas());
+    }
+
+    private HistorialPrestamosColumnar(DiccionarioCadenas tiposUsuario, DiccionarioCadenas tiposRecurso,
+                                      DiccionarioCadenas categorias) {
+        this.tiposUsuario = tiposUsuario;
+        this.tiposRecurso = tiposRecurso;
+        this.categorias = categorias;
+        this.bloques = new Bloque[0];
+        this.filas = 0;
+    }
+
+    // ===============================================================
+    // INSERCIÓN
+    // ===============================================================
+
+    /**
+     * Agrega un préstamo cerrado (DEVUELTO o CANCELADO) al historial
+     * @return false si el préstamo sigue abierto
+     */
+    public boolean agregar(Prestamo prestamo) {
+        EstadoPrestamo estado = prestamo.getEstado();
+        if (estado != EstadoPrestamo.DEVUELTO && estado != EstadoPrestamo.CANCELADO) {
+            return false;
+        }
+
+        Multa multa = prestamo.getMulta();
+        long multaCentimos = multa != null ? Math.round(multa.getMonto() * 100) : 0L;
+        boolean multaPagada = multa == null || multa.isPagada();
+
+        agregar(prestamo.getFechaPrestamo(), prestamo.getFechaVencimiento(), prestamo.getFechaDevolucion(),
+                prestamo.getUsuario().getClass().getSimpleName(),
+                prestamo.getRecurso().getClass().getSimpleName(),
+                prestamo.getRecurso().getCategoria(),
+                estado, prestamo.getNumeroRenovaciones(), multaCentimos, multaPagada);
+        return true;
+    }
+
+    /**
+     * Agrega una fila a partir de sus valores ya extraídos
+     */
+    public synchronized void agregar(LocalDate fechaPrestamo, LocalDate fechaVencimiento, LocalDate fechaDevolucion,
+                                     String tipoUsuario, String tipoRecurso, String categoria,
+                                     EstadoPrestamo estado, int renovaciones,
+                                     long multaCentimos, boolean multaPagada) {
+        long fila = filas;
+        Bloque bloque = bloqueParaEscritura(fila);
+        int i = (int) (fila & (FILAS_POR_BLOQUE - 1));
+
+        bloque.fechaPrestamo[i] = aEpochDay(fechaPrestamo);
+        bloque.fechaVencimiento[i] = aEpochDay(fechaVencimiento);
+        bloque.fechaDevolucion[i] = aEpochDay(fechaDevolucion);
+        bloque.tipoUsuario[i] = codigoByte(tiposUsuario, tipoUsuario);
+        bloque.tipoRecurso[i] = codigoByte(tiposRecurso, tipoRecurso);
+        bloque.categoria[i] = codigoShort(categorias, categoria);
+        bloque.estado[i] = (byte) estado.ordinal();
+        bloque.renovaciones[i] = renovaciones;
+        bloque.multaCentimos[i] = multaCentimos;
+        bloque.multaPagada[i] = (byte) (multaPagada ? 1 : 0);
+
+        // Publicar la fila al final para que los escaneos no vean filas a medio escribir
+        filas = fila + 1;
+    }
+
+    private Bloque bloqueParaEscritura(long fila) {
+        int indice = (int) (fila >>> BITS_BLOQUE);
+        Bloque[] actuales = bloques;
+        if (indice == actuales.length) {
+            Bloque[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+            nuevos[indice] = new Bloque();
+            bloques = nuevos;
+            return nuevos[indice];
+        }
+        return actuales[indice];
+    }
+
+    private static int aEpochDay(LocalDate fecha) {
+        return fecha != null ? (int) fecha.toEpochDay() : SIN_FECHA;
+    }
+
+    private static byte codigoByte(DiccionarioCadenas diccionario, String valor) {
+        int codigo = diccionario.codificar(valor);
+        if (codigo > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Demasiados valores distintos para una columna de tipo byte: " + valor);
+        }
+        return (byte) codigo;
+    }
+
+    private static short codigoShort(DiccionarioCadenas diccionario, String valor) {
+        int codigo = diccionario.codificar(valor);
+        if (codigo > Short.MAX_VALUE) {
+            throw new IllegalStateException("Demasiadas categorías distintas: " + valor);
+        }
+        return (short) codigo;
+    }
+
+    // ===============================================================
+    // ESCANEOS VECTORIZADOS (FILTRO + AGREGACIÓN)
+    // ===============================================================
+
+    /**
+     * Recorre los bloques aplicando el filtro columna por columna
+     * y entrega a cada bloque su vector de selección
+     */
+    void escanear(FiltroHistorial filtro, ConsumidorBloque consumidor) {
+        long totalFilas = filas;
+        Bloque[] actuales = bloques;
+
+        int desde = filtro.getDesde() != null ? (int) filtro.getDesde().toEpochDay() : Integer.MIN_VALUE;
+        int hasta = filtro.getHasta() != null ? (int) filtro.getHasta().toEpochDay() : Integer.MAX_VALUE;
+        boolean filtraFecha = filtro.getDesde() != null || filtro.getHasta() != null;
+
+        // Resolver criterios de texto a códigos; un valor desconocido no puede coincidir
+        int tipoUsuario = resolver(tiposUsuario, filtro.getTipoUsuario());
+        int tipoRecurso = resolver(tiposRecurso, filtro.getTipoRecurso());
+        int categoria = resolver(categorias, filtro.getCategoria());
+        if (tipoUsuario == CODIGO_IMPOSIBLE || tipoRecurso == CODIGO_IMPOSIBLE || categoria == CODIGO_IMPOSIBLE) {
+            return;
+        }
+        int estado = filtro.getEstado() != null ? filtro.getEstado().ordinal() : CODIGO_CUALQUIERA;
+
+        int[] seleccion = new int[FILAS_POR_BLOQUE];
+        for (int b = 0; b < actuales.length && (long) b * FILAS_POR_BLOQUE < totalFilas; b++) {
+            Bloque bloque = actuales[b];
+            int n = (int) Math.min(FILAS_POR_BLOQUE, totalFilas - (long) b * FILAS_POR_BLOQUE);
+
+            int k = 0;
+            if (filtraFecha) {
+                int[] fechas = bloque.fechaPrestamo;
+                for (int i = 0; i < n; i++) {
+                    int f = fechas[i];
+                    seleccion[k] = i;
+                    k += (f >= desde & f <= hasta) ? 1 : 0;
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    seleccion[i] = i;
+                }
+                k = n;
+            }
+
+            if (tipoUsuario != CODIGO_CUALQUIERA) {
+                k = refinar(bloque.tipoUsuario, (byte) tipoUsuario, seleccion, k);
+            }
+            if (tipoRecurso != CODIGO_CUALQUIERA) {
+                k = refinar(bloque.tipoRecurso, (byte) tipoRecurso, seleccion, k);
+            }
+            if (estado != CODIGO_CUALQUIERA) {
+                k = refinar(bloque.estado, (byte) estado, seleccion, k);
+            }
+            if (categoria != CODIGO_CUALQUIERA) {
+                short[] columna = bloque.categoria;
+                int k2 = 0;
+                for (int j = 0; j < k; j++) {
+                    int i = seleccion[j];
+                    seleccion[k2] = i;
+                    k2 += columna[i] == categoria ? 1 : 0;
+                }
+                k = k2;
+            }
+            if (filtro.isSoloMultasPendientes()) {
+                long[] montos = bloque.multaCentimos;
+                byte[] pagadas = bloque.multaPagada;
+                int k2 = 0;
+                for (int j = 0; j < k; j++) {
+                    int i = seleccion[j];
+                    seleccion[k2] = i;
+                    k2 += (montos[i] > 0 & pagadas[i] == 0) ? 1 : 0;
+                }
+                k = k2;
+            }
+
+            if (k > 0) {
+                consumidor.procesar(bloque, seleccion, k);
+            }
+        }
+    }
+
+    private static int resolver(DiccionarioCadenas diccionario, String valor) {
+        if (valor == null) {
+            return CODIGO_CUALQUIERA;
+        }
+        int codigo = diccionario.buscarCodigo(valor);
+        return codigo == DiccionarioCadenas.CODIGO_NULO ? CODIGO_IMPOSIBLE : codigo;
+    }
+
+    private static int refinar(byte[] columna, byte valor, int[] seleccion, int k) {
+        int k2 = 0;
+        for (int j = 0; j < k; j++) {
+            int i = seleccion[j];
+            seleccion[k2] = i;
+            k2 += columna[i] == valor ? 1 : 0;
+        }
+        return k2;
+    }
+
+    /**
+     * Cuenta las filas que cumplen el filtro
+     */
+    public long contar(FiltroHistorial filtro) {
+        long[] total = new long[1];
+        escanear(filtro, (bloque, seleccion, k) -> total[0] += k);
+        return total[0];
+    }
+
+    /**
+     * Suma el monto de multas (en céntimos) de las filas que cumplen el filtro
+     */
+    public long sumarMultaCentimos(FiltroHistorial filtro) {
+        long[] total = new long[1];
+        escanear(filtro, (bloque, seleccion, k) -> {
+            long[] montos = bloque.multaCentimos;
+            long suma = 0;
+            for (int j = 0; j < k; j++) {
+                suma += montos[seleccion[j]];
+            }
+            total[0] += suma;
+        });
+        return total[0];
+    }
+
+    /**
+     * Suma las renovaciones de las filas que cumplen el filtro
+     */
+    public long sumarRenovaciones(FiltroHistorial filtro) {
+        long[] total = new long[1];
+        escanear(filtro, (bloque, seleccion, k) -> {
+            int[] renovaciones = bloque.renovaciones;
+            long suma = 0;
+            for (int j = 0; j < k; j++) {
+                suma += renovaciones[seleccion[j]];
+            }
+            total[0] += suma;
+        });
+        return total[0];
+    }
+
+    /**
+     * Cuenta las filas devueltas después de su fecha de vencimiento
+     */
+    public long contarDevueltosConRetraso(FiltroHistorial filtro) {
+        long[] total = new long[1];
+        escanear(filtro, (bloque, seleccion, k) -> {
+            int[] devolucion = bloque.fechaDevolucion;
+            int[] vencimiento = bloque.fechaVencimiento;
+            long cuenta = 0;
+            for (int j = 0; j < k; j++) {
+                int i = seleccion[j];
+                cuenta += devolucion[i] > vencimiento[i] ? 1 : 0;
+            }
+            total[0] += cuenta;
+        });
+        return total[0];
+    }
+
+    /**
+     * Cuenta filas por estado (índice = ordinal de EstadoPrestamo)
+     */
+    public long[] contarPorEstado(FiltroHistorial filtro) {
+        long[] conteo = new long[ESTADOS.length];
+        escanear(filtro, (bloque, seleccion, k) -> {
+            byte[] estados = bloque.estado;
+            for (int j = 0; j < k; j++) {
+                conteo[estados[seleccion[j]]]++;
+            }
+        });
+        return conteo;
+    }
+
+    /**
+     * Cuenta filas por categoría (índice = código de categoría)
+     */
+    public long[] contarPorCategoria(FiltroHistorial filtro) {
+        long[] conteo = new long[Math.max(categorias.getTamano(), 1)];
+        escanear(filtro, (bloque, seleccion, k) -> {
+            short[] columna = bloque.categoria;
+            for (int j = 0; j < k; j++) {
+                int codigo = columna[seleccion[j]];
+                if (codigo >= 0 && codigo < conteo.length) {
+                    conteo[codigo]++;
+                }
+            }
+        });
+        return conteo;
+    }
+
+    /**
+     * Cuenta filas por tipo de usuario (índice = código de tipo de usuario)
+     */
+    public long[] contarPorTipoUsuario(FiltroHistorial filtro) {
+        long[] conteo = new long[Math.max(tiposUsuario.getTamano(), 1)];
+        escanear(filtro, (bloque, seleccion, k) -> {
+            byte[] columna = bloque.tipoUsuario;
+            for (int j = 0; j < k; j++) {
+                int codigo = columna[seleccion[j]];
+                if (codigo >= 0 && codigo < conteo.length) {
+                    conteo[codigo]++;
+                }
+            }
+        });
+        return conteo;
+    }
+
+    // ===============================================================
+    // PERSISTENCIA EN ARCHIVOS DE COLUMNA MAPEADOS EN MEMORIA
+    // ===============================================================
+
+    /**
+     * Guarda cada columna en su propio archivo dentro del directorio indicado
+     */
+    public synchronized void guardar(Path directorio) throws IOException {
+        Files.createDirectories(directorio);
+        long total = filas;
+        Bloque[] actuales = bloques;
+
+        escribirColumna(directorio, "fecha_prestamo", 4, total, actuales, (b, i, buf) -> buf.putInt(b.fechaPrestamo[i]));
+        escribirColumna(directorio, "fecha_vencimiento", 4, total, actuales, (b, i, buf) -> buf.putInt(b.fechaVencimiento[i]));
+        escribirColumna(directorio, "fecha_devolucion", 4, total, actuales, (b, i, buf) -> buf.putInt(b.fechaDevolucion[i]));
+        escribirColumna(directorio, "tipo_usuario", 1, total, actuales, (b, i, buf) -> buf.put(b.tipoUsuario[i]));
+        escribirColumna(directorio, "tipo_recurso", 1, total, actuales, (b, i, buf) -> buf.put(b.tipoRecurso[i]));
+        escribirColumna(directorio, "categoria", 2, total, actuales, (b, i, buf) -> buf.putShort(b.categoria[i]));
+        escribirColumna(directorio, "estado", 1, total, actuales, (b, i, buf) -> buf.put(b.estado[i]));
+        escribirColumna(directorio, "renovaciones", 4, total, actuales, (b, i, buf) -> buf.putInt(b.renovaciones[i]));
+        escribirColumna(directorio, "multa_centimos", 8, total, actuales, (b, i, buf) -> buf.putLong(b.multaCentimos[i]));
+        escribirColumna(directorio, "multa_pagada", 1, total, actuales, (b, i, buf) -> buf.put(b.multaPagada[i]));
+
+        escribirDiccionario(directorio.resolve("tipo_usuario.dic"), tiposUsuario);
+        escribirDiccionario(directorio.resolve("tipo_recurso.dic"), tiposRecurso);
+        escribirDiccionario(directorio.resolve("categoria.dic"), categorias);
+    }
+
+    /**
+     * Carga un historial previamente guardado mapeando sus archivos de columna
+     * Cada columna se mapea de solo lectura y cada bloque copia su vista de la caché de páginas
+     * directamente a sus arreglos (sin lecturas al kernel ni buffer intermedio): los bloques
+     * cargados admiten nuevas filas igual que los creados en memoria. Los mapeos se liberan al
+     * terminar (LiberadorMapeos), así que en Windows el directorio se puede volver a guardar.
+     */
+    public static HistorialPrestamosColumnar cargar(Path directorio) throws IOException {
+        HistorialPrestamosColumnar historial = new HistorialPrestamosColumnar(
+                leerDiccionario(directorio.resolve("tipo_usuario.dic")),
+                leerDiccionario(directorio.resolve("tipo_recurso.dic")),
+                leerDiccionario(directorio.resolve("categoria.dic")));
+
+        long total;
+        try (FileChannel canal = FileChannel.open(columna(directorio, "fecha_prestamo"), StandardOpenOption.READ)) {
+            total = leerCabecera(canal);
+        }
+        int numeroBloques = (int) ((total + FILAS_POR_BLOQUE - 1) / FILAS_POR_BLOQUE);
+        Bloque[] bloques = new Bloque[numeroBloques];
+        for (int b = 0; b < numeroBloques; b++) {
+            bloques[b] = new Bloque();
+        }
+
+        leerColumna(directorio, "fecha_prestamo", 4, total, bloques, (b, off, n, buf) -> buf.asIntBuffer().get(b.fechaPrestamo, 0, n));
+        leerColumna(directorio, "fecha_vencimiento", 4, total, bloques, (b, off, n, buf) -> buf.asIntBuffer().get(b.fechaVencimiento, 0, n));
+        leerColumna(directorio, "fecha_devolucion", 4, total, bloques, (b, off, n, buf) -> buf.asIntBuffer().get(b.fechaDevolucion, 0, n));
+        leerColumna(directorio, "tipo_usuario", 1, total, bloques, (b, off, n, buf) -> buf.get(b.tipoUsuario, 0, n));
+        leerColumna(directorio, "tipo_recurso", 1, total, bloques, (b, off, n, buf) -> buf.get(b.tipoRecurso, 0, n));
+        leerColumna(directorio, "categoria", 2, total, bloques, (b, off, n, buf) -> buf.asShortBuffer().get(b.categoria, 0, n));
+        leerColumna(directorio, "estado", 1, total, bloques, (b, off, n, buf) -> buf.get(b.estado, 0, n));
+        leerColumna(directorio, "renovaciones", 4, total, bloques, (b, off, n, buf) -> buf.asIntBuffer().get(b.renovaciones, 0, n));
+        leerColumna(directorio, "multa_centimos", 8, total, bloques, (b, off, n, buf) -> buf.asLongBuffer().get(b.multaCentimos, 0, n));
+        leerColumna(directorio, "multa_pagada", 1, total, bloques, (b, off, n, buf) -> buf.get(b.multaPagada, 0, n));
+
+        historial.bloques = bloques;
+        historial.filas = total;
+        return historial;
+    }
+
+    private interface EscritorCelda {
+        void escribir(Bloque bloque, int fila, ByteBuffer destino);
+    }
+
+    private interface LectorBloque {
+        void leer(Bloque bloque, long desplazamiento, int filas, ByteBuffer origen);
+    }
+
+    private static Path columna(Path directorio, String nombre) {
+        return directorio.resolve(nombre + ".col");
+    }
+
+    private static void escribirColumna(Path directorio, String nombre, int ancho, long total,
+                                        Bloque[] bloques, EscritorCelda escritor) throws IOException {
+        try (FileChannel canal = FileChannel.open(columna(directorio, nombre),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(BYTES_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+            cabecera.putInt(MAGIA_COLUMNA).putInt(VERSION_FORMATO).putLong(0L);
+            cabecera.flip();
+            escribirCompleto(canal, cabecera);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(FILAS_POR_BLOQUE * ancho).order(ByteOrder.LITTLE_ENDIAN);
+            for (int b = 0; (long) b * FILAS_POR_BLOQUE < total; b++) {
+                int n = (int) Math.min(FILAS_POR_BLOQUE, total - (long) b * FILAS_POR_BLOQUE);
+                buffer.clear();
+                for (int i = 0; i < n; i++) {
+                    escritor.escribir(bloques[b], i, buffer);
+                }
+                buffer.flip();
+                escribirCompleto(canal, buffer);
+            }
+
+            // El número de filas se escribe al final para que un archivo truncado sea detectable
+            ByteBuffer filasBuffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(total);
+            filasBuffer.flip();
+            canal.write(filasBuffer, 8);
+            canal.force(true);
+        }
+    }
+
+    private static void escribirCompleto(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private static long leerCabecera(FileChannel canal) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(BYTES_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+        leerCompleto(canal, cabecera, 0);
+        if (cabecera.getInt(0) != MAGIA_COLUMNA) {
+            throw new IOException("Archivo de columna inválido");
+        }
+        if (cabecera.getInt(4) != VERSION_FORMATO) {
+            throw new IOException("Versión de columna no soportada: " + cabecera.getInt(4));
+        }
+        return cabecera.getLong(8);
+    }
+
+    private static void leerColumna(Path directorio, String nombre, int ancho, long total,
+                                    Bloque[] bloques, LectorBloque lector) throws IOException {
+        try (FileChannel canal = FileChannel.open(columna(directorio, nombre), StandardOpenOption.READ)) {
+            long esperado = BYTES_CABECERA + total * ancho;
+            if (canal.size() < esperado) {
+                throw new IOException("Columna truncada: " + nombre);
+            }
+            if (leerCabecera(canal) != total) {
+                throw new IOException("Columna con número de filas distinto: " + nombre);
+            }
+            // Ventanas de hasta BYTES_VENTANA alineadas a bloques: una sola en casi todos los historiales
+            int bloquesPorVentana = Math.max(1, BYTES_VENTANA / (FILAS_POR_BLOQUE * ancho));
+            for (int primero = 0; primero < bloques.length; primero += bloquesPorVentana) {
+                int ultimo = Math.min(bloques.length, primero + bloquesPorVentana);
+                long inicio = (long) primero * FILAS_POR_BLOQUE;
+                long filasVentana = Math.min(total, (long) ultimo * FILAS_POR_BLOQUE) - inicio;
+                MappedByteBuffer ventana = canal.map(FileChannel.MapMode.READ_ONLY,
+                        BYTES_CABECERA + inicio * ancho, filasVentana * ancho);
+                try {
+                    for (int b = primero; b < ultimo; b++) {
+                        long desplazamiento = (long) b * FILAS_POR_BLOQUE;
+                        int n = (int) Math.min(FILAS_POR_BLOQUE, total - desplazamiento);
+                        ByteBuffer region = ventana.slice((int) ((desplazamiento - inicio) * ancho), n * ancho)
+                                .order(ByteOrder.LITTLE_ENDIAN);
+                        lector.leer(bloques[b], desplazamiento, n, region);
+                    }
+                } finally {
+                    // Las vistas del bloque ya se copiaron: nada las usa después del desmapeo
+                    LiberadorMapeos.liberar(ventana);
+                }
+            }
+        }
+    }
+
+    private static void leerCompleto(FileChannel canal, ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            int leidos = canal.read(destino, posicion);
+            if (leidos < 0) {
+                throw new IOException("Fin de archivo inesperado");
+            }
+            posicion += leidos;
+        }
+        destino.flip();
+    }
+
+    /**
+     * Diccionario como entradas con prefijo de longitud: cantidad (int) y, por valor, bytes UTF-8 (int) y bytes
+     * Así un valor con saltos de línea u otros separadores no corrompe el archivo.
+     */
+    private static void escribirDiccionario(Path archivo, DiccionarioCadenas diccionario) throws IOException {
+        List<String> valores = diccionario.getValores();
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo)))) {
+            salida.writeInt(MAGIA_DICCIONARIO);
+            salida.writeInt(valores.size());
+            for (String valor : valores) {
+                byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+                salida.writeInt(bytes.length);
+                salida.write(bytes);
+            }
+        }
+    }
+
+    private static DiccionarioCadenas leerDiccionario(Path archivo) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            if (entrada.readInt() != MAGIA_DICCIONARIO) {
+                throw new IOException("Diccionario inválido: " + archivo.getFileName());
+            }
+            int cantidad = entrada.readInt();
+            List<String> valores = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                byte[] bytes = new byte[entrada.readInt()];
+                entrada.readFully(bytes);
+                valores.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return new DiccionarioCadenas(valores);
+        } catch (EOFException e) {
+            throw new IOException("Diccionario truncado: " + archivo.getFileName(), e);
+        }
+    }
+
+    // ===============================================================
+    // GETTERS
+    // ===============================================================
+
+    public long getFilas() { return filas; }
+
+    public int getNumeroBloques() { return bloques.length; }
+
+    public DiccionarioCadenas getTiposUsuario() { return tiposUsuario; }
+
+    public DiccionarioCadenas getTiposRecurso() { return tiposRecurso; }
+
+    public DiccionarioCadenas getCategorias() { return categorias; }
+
+    @Override
+    public String toString() {
+        return String.format("HistorialPrestamosColumnar{filas=%d, bloques=%d, categorias=%d}",
+                filas, bloques.length, categorias.getTamano());
+    }
+}
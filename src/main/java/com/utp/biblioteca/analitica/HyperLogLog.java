@@ -0,0 +1,106 @@
+package com.utp.biblioteca.analitica;
+
+/**
+ * HyperLogLog - CONTEO APROXIMADO DE ELEMENTOS DISTINTOS
+ * Usa 2^precision registros de un byte; el error relativo típico es 1.04/sqrt(2^precision)
+ * (precisión 10: ~3% con 1 KB). Dos estructuras de igual precisión se combinan
+ * tomando el máximo de cada registro.
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registros;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("La precisión debe estar entre 4 y 16: " + precision);
+        }
+        this.precision = precision;
+        this.registros = new byte[1 << precision];
+    }
+
+    /**
+     * Registra un elemento
+     */
+    public void agregar(String elemento) {
+        agregarHash(Hash64.hash(elemento));
+    }
+
+    void agregarHash(long hash) {
+        int indice = (int) (hash >>> (64 - precision));
+        // Posición del primer bit en 1 dentro de los bits restantes (1-indexado)
+        long resto = (hash << precision) | (1L << (precision - 1));
+        byte rango = (byte) (Long.numberOfLeadingZeros(resto) + 1);
+        if (rango > registros[indice]) {
+            registros[indice] = rango;
+        }
+    }
+
+    /**
+     * Estima el número de elementos distintos registrados
+     */
+    public long estimar() {
+        int m = registros.length;
+        double suma = 0.0;
+        int ceros = 0;
+        for (byte registro : registros) {
+            suma += 1.0 / (1L << registro);
+            if (registro == 0) {
+                ceros++;
+            }
+        }
+        double estimacion = alfa(m) * m * m / suma;
+
+        // Corrección para cardinalidades pequeñas: conteo lineal
+        if (estimacion <= 2.5 * m && ceros > 0) {
+            estimacion = m * Math.log((double) m / ceros);
+        }
+        return Math.round(estimacion);
+    }
+
+    private static double alfa(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * Combina otra estructura de igual precisión en esta
+     */
+    public void combinar(HyperLogLog otro) {
+        if (otro.precision != precision) {
+            throw new IllegalArgumentException("No se pueden combinar precisiones distintas");
+        }
+        for (int i = 0; i < registros.length; i++) {
+            if (otro.registros[i] > registros[i]) {
+                registros[i] = otro.registros[i];
+            }
+        }
+    }
+
+    /**
+     * Crea una copia independiente
+     */
+    public HyperLogLog copia() {
+        HyperLogLog copia = new HyperLogLog(precision);
+        System.arraycopy(registros, 0, copia.registros, 0, registros.length);
+        return copia;
+    }
+
+    public int getPrecision() { return precision; }
+
+    /** Memoria ocupada por los registros en bytes */
+    public int getTamanoBytes() { return registros.length; }
+
+    @Override
+    public String toString() {
+        return String.format("HyperLogLog{precision=%d, estimacion=%d}", precision, estimar());
+    }
+}
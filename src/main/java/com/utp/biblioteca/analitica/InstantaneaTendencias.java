@@ -0,0 +1,90 @@
+package com.utp.biblioteca.analitica;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instantánea combinable de las tendencias de préstamo en una ventana de días
+ * Es una copia independiente: puede consultarse o combinarse con instantáneas
+ * de otras instancias sin bloquear el registro de nuevos préstamos.
+ */
+public class InstantaneaTendencias {
+
+    private final LocalDate desde;
+    private final LocalDate hasta;
+    private final BocetoConteoMinimo conteo;
+    private final TopKEspacioAhorro top;
+    private final Map<String, TopKEspacioAhorro> topPorCategoria;
+
+    InstantaneaTendencias(LocalDate desde, LocalDate hasta, BocetoConteoMinimo conteo,
+                          TopKEspacioAhorro top, Map<String, TopKEspacioAhorro> topPorCategoria) {
+        this.desde = desde;
+        this.hasta = hasta;
+        this.conteo = conteo;
+        this.top = top;
+        this.topPorCategoria = topPorCategoria;
+    }
+
+    /**
+     * Recursos más prestados en la ventana
+     */
+    public List<TopKEspacioAhorro.ElementoFrecuente> getTop(int k) {
+        return top.getTop(k);
+    }
+
+    /**
+     * Recursos más prestados de una categoría en la ventana
+     */
+    public List<TopKEspacioAhorro.ElementoFrecuente> getTopPorCategoria(String categoria, int k) {
+        TopKEspacioAhorro resumen = topPorCategoria.get(categoria);
+        return resumen != null ? resumen.getTop(k) : Collections.emptyList();
+    }
+
+    /**
+     * Estimación (cota superior) de préstamos de un recurso en la ventana
+     */
+    public long estimarPrestamos(String recursoId) {
+        return conteo.estimar(recursoId);
+    }
+
+    /**
+     * Señal de tendencia normalizada (0.0 a 1.0) respecto al recurso más prestado
+     */
+    public double calcularPuntuacionTendencia(String recursoId) {
+        List<TopKEspacioAhorro.ElementoFrecuente> primero = top.getTop(1);
+        if (primero.isEmpty()) {
+            return 0.0;
+        }
+        return Math.min((double) conteo.estimar(recursoId) / primero.get(0).getConteo(), 1.0);
+    }
+
+    /**
+     * Combina otra instantánea (por ejemplo, de otra instancia de la aplicación) en esta
+     */
+    public void combinar(InstantaneaTendencias otra) {
+        conteo.combinar(otra.conteo);
+        top.combinar(otra.top);
+        for (Map.Entry<String, TopKEspacioAhorro> entrada : otra.topPorCategoria.entrySet()) {
+            topPorCategoria.computeIfAbsent(entrada.getKey(),
+                    c -> new TopKEspacioAhorro(entrada.getValue().getCapacidad()))
+                    .combinar(entrada.getValue());
+        }
+    }
+
+    public LocalDate getDesde() { return desde; }
+    public LocalDate getHasta() { return hasta; }
+    public long getTotalPrestamos() { return conteo.getTotal(); }
+
+    public Set<String> getCategorias() {
+        return Set.copyOf(topPorCategoria.keySet());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InstantaneaTendencias{%s..%s, préstamos=%d, top=%s}",
+                desde, hasta, conteo.getTotal(), top.getTop(5));
+    }
+}
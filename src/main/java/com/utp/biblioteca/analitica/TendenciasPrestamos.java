@@ -0,0 +1,234 @@
+package com.utp.biblioteca.analitica;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.servicio.EscuchaCirculacion;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TendenciasPrestamos - SEÑALES DE TENDENCIA CON MEMORIA ACOTADA
+ * Se alimenta de cada préstamo (como escucha de ServicioCirculacion) y mantiene por día:
+ * un Count-Min para estimar préstamos de cualquier recurso y resúmenes Space-Saving
+ * para el top-K global y por categoría. Las consultas combinan los días de la ventana.
+ * Los lectores distintos por recurso se estiman con HyperLogLog, limitando
+ * el número de recursos monitoreados (se descartan los menos recientes).
+ */
+public class TendenciasPrestamos implements EscuchaCirculacion {
+
+    // Configuración por defecto
+    public static final int DIAS_RETENIDOS_DEFAULT = 28;
+    public static final int CAPACIDAD_TOP_DEFAULT = 100;
+    public static final int MAX_RECURSOS_CON_LECTORES_DEFAULT = 50_000;
+
+    private static final int ANCHO_CONTEO = 2048;
+    private static final int PROFUNDIDAD_CONTEO = 4;
+    private static final int PRECISION_LECTORES_RECURSO = 8;
+    private static final int PRECISION_LECTORES_TOTALES = 14;
+
+    private final int diasRetenidos;
+    private final int capacidadTop;
+    private final VentanaDiaria[] ventanas;
+    private final LinkedHashMap<String, HyperLogLog> lectoresPorRecurso;
+    private final HyperLogLog lectoresTotales;
+
+    /**
+     * Resúmenes de un día (casilla de un buffer circular indexado por epoch-day)
+     */
+    private final class VentanaDiaria {
+        long dia = Long.MIN_VALUE;
+        final BocetoConteoMinimo conteo = new BocetoConteoMinimo(ANCHO_CONTEO, PROFUNDIDAD_CONTEO);
+        final TopKEspacioAhorro top = new TopKEspacioAhorro(capacidadTop);
+        final Map<String, TopKEspacioAhorro> topPorCategoria = new HashMap<>();
+
+        void reiniciar(long nuevoDia) {
+            dia = nuevoDia;
+            conteo.limpiar();
+            top.limpiar();
+            topPorCategoria.clear();
+        }
+    }
+
+    public TendenciasPrestamos() {
+        this(DIAS_RETENIDOS_DEFAULT, CAPACIDAD_TOP_DEFAULT, MAX_RECURSOS_CON_LECTORES_DEFAULT);
+    }
+
+    public TendenciasPrestamos(int diasRetenidos, int capacidadTop, int maxRecursosConLectores) {
+        this.diasRetenidos = diasRetenidos;
+        this.capacidadTop = capacidadTop;
+        this.ventanas = new VentanaDiaria[diasRetenidos];
+        for (int i = 0; i < diasRetenidos; i++) {
+            ventanas[i] = new VentanaDiaria();
+        }
+        // LinkedHashMap en orden de acceso: desaloja el recurso consultado hace más tiempo
+        this.lectoresPorRecurso = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HyperLogLog> mayor) {
+                return size() > maxRecursosConLectores;
+            }
+        };
+        this.lectoresTotales = new HyperLogLog(PRECISION_LECTORES_TOTALES);
+    }
+
+    // ===============================================================
+    // REGISTRO (ESCUCHA DE CIRCULACIÓN)
+    // ===============================================================
+
+    @Override
+    public void alPrestar(Prestamo prestamo) {
+        registrarPrestamo(prestamo.getRecursoId(), prestamo.getRecurso().getCategoria(),
+                prestamo.getUsuarioId(), prestamo.getFechaPrestamo());
+    }
+
+    /**
+     * Registra un préstamo en los bocetos del día correspondiente
+     * Los préstamos más antiguos que la ventana retenida solo cuentan para lectores distintos.
+     */
+    public synchronized void registrarPrestamo(String recursoId, String categoria, String usuarioId, LocalDate fecha) {
+        VentanaDiaria ventana = ventanaPara(fecha.toEpochDay());
+        if (ventana != null) {
+            ventana.conteo.incrementar(recursoId);
+            ventana.top.ofrecer(recursoId);
+            if (categoria != null) {
+                ventana.topPorCategoria
+                        .computeIfAbsent(categoria, c -> new TopKEspacioAhorro(capacidadTop))
+                        .ofrecer(recursoId);
+            }
+        }
+
+        lectoresPorRecurso.computeIfAbsent(recursoId, r -> new HyperLogLog(PRECISION_LECTORES_RECURSO))
+                .agregar(usuarioId);
+        lectoresTotales.agregar(usuarioId);
+    }
+
+    private VentanaDiaria ventanaPara(long dia) {
+        VentanaDiaria ventana = ventanas[(int) Math.floorMod(dia, (long) diasRetenidos)];
+        if (ventana.dia == dia) {
+            return ventana;
+        }
+        if (ventana.dia < dia) {
+            ventana.reiniciar(dia); // La casilla pertenecía a un día ya fuera de la ventana
+            return ventana;
+        }
+        return null; // Día más antiguo que los retenidos
+    }
+
+    // ===============================================================
+    // CONSULTAS
+    // ===============================================================
+
+    /**
+     * Combina los días [hasta - dias + 1, hasta] en una instantánea independiente
+     */
+    public synchronized InstantaneaTendencias instantanea(LocalDate hasta, int dias) {
+        if (dias <= 0 || dias > diasRetenidos) {
+            throw new IllegalArgumentException("La ventana debe estar entre 1 y " + diasRetenidos + " días");
+        }
+        long ultimo = hasta.toEpochDay();
+        long primero = ultimo - dias + 1;
+
+        BocetoConteoMinimo conteo = new BocetoConteoMinimo(ANCHO_CONTEO, PROFUNDIDAD_CONTEO);
+        TopKEspacioAhorro top = new TopKEspacioAhorro(capacidadTop);
+        Map<String, TopKEspacioAhorro> porCategoria = new HashMap<>();
+        for (VentanaDiaria ventana : ventanas) {
+            if (ventana.dia < primero || ventana.dia > ultimo) {
+                continue;
+            }
+            conteo.combinar(ventana.conteo);
+            top.combinar(ventana.top);
+            for (Map.Entry<String, TopKEspacioAhorro> entrada : ventana.topPorCategoria.entrySet()) {
+                porCategoria.computeIfAbsent(entrada.getKey(), c -> new TopKEspacioAhorro(capacidadTop))
+                        .combinar(entrada.getValue());
+            }
+        }
+        return new InstantaneaTendencias(LocalDate.ofEpochDay(primero), hasta, conteo, top, porCategoria);
+    }
+
+    /**
+     * Tendencias de los últimos 7 días (incluido hoy)
+     */
+    public InstantaneaTendencias ultimaSemana() {
+        return instantanea(LocalDate.now(), 7);
+    }
+
+    /**
+     * Recursos más prestados en la última semana
+     */
+    public List<TopKEspacioAhorro.ElementoFrecuente> getTopSemana(int k) {
+        return ultimaSemana().getTop(k);
+    }
+
+    /**
+     * Estimación de usuarios distintos que han prestado el recurso
+     * (0 si el recurso no está monitoreado)
+     */
+    public synchronized long estimarLectoresDistintos(String recursoId) {
+        HyperLogLog lectores = lectoresPorRecurso.get(recursoId);
+        return lectores != null ? lectores.estimar() : 0L;
+    }
+
+    /**
+     * Estimación de usuarios distintos con al menos un préstamo
+     */
+    public synchronized long estimarLectoresDistintosTotales() {
+        return lectoresTotales.estimar();
+    }
+
+    /**
+     * Combina el estado de otra instancia (mismas dimensiones) en esta
+     */
+    public void combinar(TendenciasPrestamos otra) {
+        if (otra == this) {
+            throw new IllegalArgumentException("No se puede combinar una instancia consigo misma");
+        }
+        if (otra.diasRetenidos != diasRetenidos || otra.capacidadTop != capacidadTop) {
+            throw new IllegalArgumentException("Configuraciones de tendencias incompatibles");
+        }
+        // Copiar el estado de la otra instancia fuera de su bloqueo para evitar interbloqueos
+        Map<Long, VentanaDiaria> copiaVentanas = new HashMap<>();
+        Map<String, HyperLogLog> copiaLectores = new HashMap<>();
+        HyperLogLog copiaTotales;
+        synchronized (otra) {
+            for (VentanaDiaria ventana : otra.ventanas) {
+                if (ventana.dia != Long.MIN_VALUE) {
+                    VentanaDiaria copia = new VentanaDiaria();
+                    copia.dia = ventana.dia;
+                    copia.conteo.combinar(ventana.conteo);
+                    copia.top.combinar(ventana.top);
+                    ventana.topPorCategoria.forEach((c, t) -> copia.topPorCategoria.put(c, t.copia()));
+                    copiaVentanas.put(ventana.dia, copia);
+                }
+            }
+            otra.lectoresPorRecurso.forEach((r, h) -> copiaLectores.put(r, h.copia()));
+            copiaTotales = otra.lectoresTotales.copia();
+        }
+
+        synchronized (this) {
+            for (VentanaDiaria origen : copiaVentanas.values()) {
+                VentanaDiaria destino = ventanaPara(origen.dia);
+                if (destino == null) {
+                    continue;
+                }
+                destino.conteo.combinar(origen.conteo);
+                destino.top.combinar(origen.top);
+                origen.topPorCategoria.forEach((c, t) -> destino.topPorCategoria
+                        .computeIfAbsent(c, k -> new TopKEspacioAhorro(capacidadTop)).combinar(t));
+            }
+            copiaLectores.forEach((r, h) -> lectoresPorRecurso
+                    .computeIfAbsent(r, k -> new HyperLogLog(PRECISION_LECTORES_RECURSO)).combinar(h));
+            lectoresTotales.combinar(copiaTotales);
+        }
+    }
+
+    public int getDiasRetenidos() { return diasRetenidos; }
+
+    public synchronized int getRecursosConLectores() { return lectoresPorRecurso.size(); }
+
+    @Override
+    public String toString() {
+        return String.format("TendenciasPrestamos{días=%d, topK=%d, recursosMonitoreados=%d}",
+                diasRetenidos, capacidadTop, getRecursosConLectores());
+    }
+}
@@ -0,0 +1,235 @@
+package com.utp.biblioteca.analitica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TopKEspacioAhorro - ALGORITMO SPACE-SAVING
+ * Mantiene como máximo k contadores y garantiza encontrar todos los elementos
+ * con frecuencia mayor a total/k. Cada contador guarda su error máximo
+ * (el conteo heredado del elemento desalojado).
+ * Los contadores forman además un montículo mínimo indexado, de modo que desalojar
+ * el mínimo o incrementar un contador cuesta O(log k) en lugar de recorrer los k contadores.
+ */
+public class TopKEspacioAhorro {
+
+    private final int capacidad;
+    private final Map<String, ElementoFrecuente> contadores;
+    // Montículo mínimo por conteo; cada elemento conoce su posición
+    private final ElementoFrecuente[] monticulo;
+    private long total;
+
+    /**
+     * Elemento monitoreado con su conteo estimado y error máximo
+     */
+    public static final class ElementoFrecuente {
+        private final String elemento;
+        private long conteo;
+        private long error;
+        private int posicion;
+
+        ElementoFrecuente(String elemento, long conteo, long error) {
+            this.elemento = elemento;
+            this.conteo = conteo;
+            this.error = error;
+        }
+
+        public String getElemento() { return elemento; }
+
+        /** Conteo estimado (cota superior) */
+        public long getConteo() { return conteo; }
+
+        /** Sobreestimación máxima del conteo */
+        public long getError() { return error; }
+
+        /** Conteo garantizado (cota inferior) */
+        public long getConteoGarantizado() { return conteo - error; }
+
+        @Override
+        public String toString() {
+            return String.format("%s=%d(±%d)", elemento, conteo, error);
+        }
+    }
+
+    public TopKEspacioAhorro(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva");
+        }
+        this.capacidad = capacidad;
+        this.contadores = new HashMap<>(capacidad * 2);
+        this.monticulo = new ElementoFrecuente[capacidad];
+        this.total = 0;
+    }
+
+    /**
+     * Registra una ocurrencia del elemento
+     */
+    public void ofrecer(String elemento) {
+        ofrecer(elemento, 1);
+    }
+
+    /**
+     * Registra varias ocurrencias del elemento
+     */
+    public void ofrecer(String elemento, long cantidad) {
+        total += cantidad;
+        ElementoFrecuente existente = contadores.get(elemento);
+        if (existente != null) {
+            existente.conteo += cantidad;
+            hundir(existente.posicion);
+            return;
+        }
+        if (contadores.size() < capacidad) {
+            insertar(new ElementoFrecuente(elemento, cantidad, 0));
+            return;
+        }
+        // Reemplazar el contador mínimo (la raíz): el nuevo hereda su conteo como error
+        ElementoFrecuente minimo = monticulo[0];
+        contadores.remove(minimo.elemento);
+        ElementoFrecuente nuevo = new ElementoFrecuente(elemento, minimo.conteo + cantidad, minimo.conteo);
+        contadores.put(elemento, nuevo);
+        colocar(nuevo, 0);
+        hundir(0);
+    }
+
+    // ===============================================================
+    // MONTÍCULO MÍNIMO INDEXADO
+    // ===============================================================
+
+    private void insertar(ElementoFrecuente elemento) {
+        int posicion = contadores.size();
+        contadores.put(elemento.elemento, elemento);
+        colocar(elemento, posicion);
+        flotar(posicion);
+    }
+
+    private void colocar(ElementoFrecuente elemento, int posicion) {
+        monticulo[posicion] = elemento;
+        elemento.posicion = posicion;
+    }
+
+    private void flotar(int posicion) {
+        ElementoFrecuente elemento = monticulo[posicion];
+        while (posicion > 0) {
+            int padre = (posicion - 1) >>> 1;
+            if (monticulo[padre].conteo <= elemento.conteo) {
+                break;
+            }
+            colocar(monticulo[padre], posicion);
+            posicion = padre;
+        }
+        colocar(elemento, posicion);
+    }
+
+    private void hundir(int posicion) {
+        int tamano = contadores.size();
+        ElementoFrecuente elemento = monticulo[posicion];
+        while (true) {
+            int hijo = 2 * posicion + 1;
+            if (hijo >= tamano) {
+                break;
+            }
+            if (hijo + 1 < tamano && monticulo[hijo + 1].conteo < monticulo[hijo].conteo) {
+                hijo++;
+            }
+            if (elemento.conteo <= monticulo[hijo].conteo) {
+                break;
+            }
+            colocar(monticulo[hijo], posicion);
+            posicion = hijo;
+        }
+        colocar(elemento, posicion);
+    }
+
+    private long minimo() {
+        return contadores.size() < capacidad ? 0 : monticulo[0].conteo;
+    }
+
+    /**
+     * Obtiene los n elementos más frecuentes, de mayor a menor conteo
+     */
+    public List<ElementoFrecuente> getTop(int n) {
+        List<ElementoFrecuente> lista = new ArrayList<>(contadores.size());
+        for (ElementoFrecuente elemento : contadores.values()) {
+            lista.add(new ElementoFrecuente(elemento.elemento, elemento.conteo, elemento.error));
+        }
+        lista.sort(Comparator.comparingLong(ElementoFrecuente::getConteo).reversed()
+                .thenComparing(ElementoFrecuente::getElemento));
+        return lista.size() > n ? new ArrayList<>(lista.subList(0, n)) : lista;
+    }
+
+    /**
+     * Combina otro resumen en este (suma de conteos y recorte a la capacidad)
+     * Los elementos ausentes en un resumen heredan su mínimo como error.
+     * @throws IllegalArgumentException si otro es este mismo resumen (contaría todo dos veces)
+     */
+    public void combinar(TopKEspacioAhorro otro) {
+        if (otro == this) {
+            throw new IllegalArgumentException("No se puede combinar un resumen consigo mismo");
+        }
+        long minimoPropio = minimo();
+        long minimoOtro = otro.minimo();
+
+        Map<String, ElementoFrecuente> combinados = new HashMap<>();
+        for (ElementoFrecuente e : contadores.values()) {
+            ElementoFrecuente enOtro = otro.contadores.get(e.elemento);
+            long conteo = e.conteo + (enOtro != null ? enOtro.conteo : minimoOtro);
+            long error = e.error + (enOtro != null ? enOtro.error : minimoOtro);
+            combinados.put(e.elemento, new ElementoFrecuente(e.elemento, conteo, error));
+        }
+        for (ElementoFrecuente e : otro.contadores.values()) {
+            if (!combinados.containsKey(e.elemento)) {
+                combinados.put(e.elemento, new ElementoFrecuente(e.elemento,
+                        e.conteo + minimoPropio, e.error + minimoPropio));
+            }
+        }
+
+        List<ElementoFrecuente> ordenados = new ArrayList<>(combinados.values());
+        ordenados.sort(Comparator.comparingLong(ElementoFrecuente::getConteo).reversed());
+        limpiarContadores();
+        for (int i = 0; i < ordenados.size() && i < capacidad; i++) {
+            insertar(ordenados.get(i));
+        }
+        total += otro.total;
+    }
+
+    /**
+     * Crea una copia independiente del resumen
+     */
+    public TopKEspacioAhorro copia() {
+        TopKEspacioAhorro copia = new TopKEspacioAhorro(capacidad);
+        // Mismas posiciones: la copia ya es un montículo válido
+        for (int i = 0; i < contadores.size(); i++) {
+            ElementoFrecuente e = monticulo[i];
+            ElementoFrecuente duplicado = new ElementoFrecuente(e.elemento, e.conteo, e.error);
+            copia.contadores.put(e.elemento, duplicado);
+            copia.colocar(duplicado, i);
+        }
+        copia.total = total;
+        return copia;
+    }
+
+    public void limpiar() {
+        limpiarContadores();
+        total = 0;
+    }
+
+    private void limpiarContadores() {
+        Arrays.fill(monticulo, 0, contadores.size(), null);
+        contadores.clear();
+    }
+
+    public int getCapacidad() { return capacidad; }
+    public int getMonitoreados() { return contadores.size(); }
+    public long getTotal() { return total; }
+
+    @Override
+    public String toString() {
+        return String.format("TopKEspacioAhorro{k=%d, monitoreados=%d, total=%d}",
+                capacidad, contadores.size(), total);
+    }
+}
@@ -0,0 +1,79 @@
+package com.utp.biblioteca.cuotas;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cupos de una clave arrendados a esta instancia y todavía sin usar
+ * Tomar uno es un compareAndSet sobre el contador local; solo cuando se agota se pide
+ * otro lote al proveedor (un hilo por vez, los demás esperan ese lote). Nunca se entrega
+ * un cupo que no se haya arrendado, así que el techo del proveedor es exacto.
+ */
+final class ContadorCupos {
+
+    private final String clave;
+    private final AtomicInteger locales = new AtomicInteger();
+
+    ContadorCupos(String clave) {
+        this.clave = clave;
+    }
+
+    /**
+     * Lote que se arrienda: hasta un octavo del límite, para que con límites pequeños una
+     * instancia no acapare cupos que otra necesita
+     */
+    static int loteEfectivo(int lote, int limite) {
+        return Math.max(1, Math.min(lote, limite / 8));
+    }
+
+    boolean tomar(ProveedorCupos proveedor, int limite, int usadosIniciales, int lote) {
+        while (true) {
+            int disponibles = locales.get();
+            if (disponibles > 0) {
+                if (locales.compareAndSet(disponibles, disponibles - 1)) {
+                    return true;
+                }
+                continue;
+            }
+            synchronized (this) {
+                if (locales.get() > 0) {
+                    continue; // otro hilo ya trajo un lote
+                }
+                int concedidos = proveedor.arrendar(clave, limite, usadosIniciales, loteEfectivo(lote, limite));
+                if (concedidos == 0) {
+                    return false;
+                }
+                locales.addAndGet(concedidos);
+            }
+        }
+    }
+
+    /**
+     * Vuelve un cupo al contador local; si sobran más de dos lotes, el exceso vuelve al proveedor
+     */
+    void devolverUno(ProveedorCupos proveedor, int lote) {
+        if (locales.incrementAndGet() <= 2 * lote) {
+            return;
+        }
+        synchronized (this) {
+            int disponibles = locales.get();
+            int sobrantes = disponibles - lote;
+            if (sobrantes > lote && locales.compareAndSet(disponibles, lote)) {
+                proveedor.devolver(clave, sobrantes);
+            }
+        }
+    }
+
+    /**
+     * Devuelve al proveedor todos los cupos locales sin usar
+     */
+    synchronized int devolverTodo(ProveedorCupos proveedor) {
+        int sobrantes = locales.getAndSet(0);
+        if (sobrantes > 0) {
+            proveedor.devolver(clave, sobrantes);
+        }
+        return sobrantes;
+    }
+
+    String getClave() { return clave; }
+    int getLocales() { return locales.get(); }
+}
@@ -0,0 +1,130 @@
+package com.utp.biblioteca.cuotas;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CuboFichas - CUBO DE FICHAS SIN CERROJOS
+ * Un único long con el instante teórico en que el cubo vuelve a estar lleno (GCRA):
+ * tomar fichas adelanta ese instante y el paso del tiempo las repone, sin un hilo que
+ * rellene. Se actualiza con compareAndSet, así que no hay cerrojos ni estado compartido
+ * aparte de ese número.
+ *
+ * Un coste mayor que la ráfaga se admite con el cubo lleno y lo deja en deuda: una
+ * descarga grande pasa, pero hasta que se repone no pasa nada más.
+ */
+final class CuboFichas {
+
+    /** Resultados de tomar */
+    static final int TOMADO = 0;
+    static final int AGOTADO = 1;
+    static final int RETIRADO = 2;
+
+    // Marca de un cubo que el barrido sacó del mapa: quien lo tenga debe buscar otro
+    private static final long MARCA_RETIRADO = Long.MIN_VALUE;
+
+    private final double nanosPorFicha;
+    private final long rafaga;
+    private final AtomicLong lleno = new AtomicLong(); // nanos en que el cubo estará lleno
+
+    /**
+     * @param fichasPorSegundo ritmo de reposición
+     * @param rafaga           fichas que caben en el cubo
+     */
+    CuboFichas(double fichasPorSegundo, long rafaga) {
+        if (fichasPorSegundo <= 0 || rafaga < 1) {
+            throw new IllegalArgumentException("Ritmo y ráfaga deben ser positivos");
+        }
+        this.nanosPorFicha = 1e9 / fichasPorSegundo;
+        this.rafaga = rafaga;
+    }
+
+    /**
+     * Toma fichas si las hay
+     * @param ahora nanos del reloj del limitador
+     * @return TOMADO, AGOTADO o RETIRADO
+     */
+    int tomar(long costo, long ahora) {
+        long tolerancia = nanos(Math.max(costo, rafaga));
+        long incremento = nanos(costo);
+        while (true) {
+            long actual = lleno.get();
+            if (actual == MARCA_RETIRADO) {
+                return RETIRADO;
+            }
+            long nuevo = Math.max(actual, ahora) + incremento;
+            if (nuevo - ahora > tolerancia) {
+                return AGOTADO;
+            }
+            if (lleno.compareAndSet(actual, nuevo)) {
+                return TOMADO;
+            }
+        }
+    }
+
+    /**
+     * Toma fichas aunque no alcancen y deja el cubo en deuda (bytes ya enviados)
+     * @return nanos que faltan para que la deuda vuelva a caber en la ráfaga (0 = ninguno),
+     *         o -1 si el cubo está retirado
+     */
+    long cobrar(long costo, long ahora) {
+        long incremento = nanos(costo);
+        long tolerancia = nanos(rafaga);
+        while (true) {
+            long actual = lleno.get();
+            if (actual == MARCA_RETIRADO) {
+                return -1;
+            }
+            long nuevo = Math.max(actual, ahora) + incremento;
+            if (lleno.compareAndSet(actual, nuevo)) {
+                return Math.max(0, nuevo - ahora - tolerancia);
+            }
+        }
+    }
+
+    /**
+     * Devuelve fichas tomadas (cuando otro límite rechazó la misma solicitud)
+     */
+    void devolver(long costo) {
+        long incremento = nanos(costo);
+        while (true) {
+            long actual = lleno.get();
+            if (actual == MARCA_RETIRADO || lleno.compareAndSet(actual, actual - incremento)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Un cubo lleno es igual a uno nuevo: se puede retirar sin perder nada
+     * @return true si estaba lleno y queda marcado como retirado
+     */
+    boolean retirarSiLleno(long ahora) {
+        long actual = lleno.get();
+        return actual != MARCA_RETIRADO && actual <= ahora && lleno.compareAndSet(actual, MARCA_RETIRADO);
+    }
+
+    boolean estaRetirado() {
+        return lleno.get() == MARCA_RETIRADO;
+    }
+
+    boolean estaLleno(long ahora) {
+        long actual = lleno.get();
+        return actual == MARCA_RETIRADO || actual <= ahora;
+    }
+
+    /**
+     * Nanos que faltan para poder tomar el costo (0 si ya se puede)
+     */
+    long espera(long costo, long ahora) {
+        long actual = lleno.get();
+        if (actual == MARCA_RETIRADO) {
+            return 0;
+        }
+        long exceso = Math.max(actual, ahora) + nanos(costo) - ahora - nanos(Math.max(costo, rafaga));
+        return Math.max(0, exceso);
+    }
+
+    private long nanos(long fichas) {
+        return (long) (fichas * nanosPorFicha);
+    }
+}
@@ -0,0 +1,344 @@
+package com.utp.biblioteca.cuotas;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CuotaDescargas - CUPOS DE LICENCIA DE LOS RECURSOS DIGITALES
+ * Reserva atómica de cupos por recurso con un techo exacto aunque haya muchos hilos y
+ * varias instancias. Hasta tres cupos por reserva, todos o ninguno:
+ * - TOTAL: el límite de descargas de la licencia (EBook.limiteDescargas); se consume
+ * - SIMULTÁNEO (opcional): préstamos vigentes a la vez; vuelve al devolver o al vencer
+ * - POR PERIODO (opcional): descargas por periodo (p. ej. 30 días); se reinicia cada periodo
+ *
+ * Los cupos se arriendan al ProveedorCupos por lotes y se reparten localmente con
+ * compareAndSet (ContadorCupos), así que el proveedor compartido (la base de datos con
+ * varias instancias) se consulta una vez por lote.
+ *
+ * Al empezar un periodo (también el primero tras arrancar) se eliminan del proveedor los cupos
+ * de periodos terminados; se conserva el anterior para las instancias cuyo reloj aún no cambió.
+ *
+ * Se inyecta en ServicioCirculacion (una por aplicación, compartida por sus mostradores).
+ * Es el único punto de reserva: el servidor de descargas se configura con
+ * RepositorioPrestamos::tieneVigenteConCupo, así que solo entrega archivos a préstamos vigentes
+ * que tomaron su cupo aquí.
+ * La reserva ocurre dentro de la transacción del préstamo: si esta no se confirma, quien la
+ * ejecuta devuelve los cupos con anular, así que los reintentos no gastan la licencia.
+ */
+public class CuotaDescargas implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CuotaDescargas.class);
+
+    public static final int LOTE_DEFAULT = 16;
+
+    private static final String TOTAL = "|total";
+    private static final String SIMULTANEO = "|simultaneo";
+    private static final String PERIODO = "|periodo-";
+
+    private final ProveedorCupos proveedor;
+    private final int lote;
+    private final int licenciasSimultaneas; // 0 = sin límite
+    private final int limitePorPeriodo;     // 0 = sin límite
+    private final Duration periodo;
+    private final Clock reloj;
+    private final ConcurrentMap<String, ContadorCupos> contadores = new ConcurrentHashMap<>();
+    // Vencimientos de los préstamos que ocupan cupo simultáneo, por recurso
+    private final ConcurrentMap<String, PriorityQueue<Instant>> vencimientos = new ConcurrentHashMap<>();
+    private volatile long periodoActual = -1;
+
+    // Métricas
+    private final AtomicLong reservas = new AtomicLong();
+    private final AtomicLong rechazos = new AtomicLong();
+    private final AtomicLong anuladas = new AtomicLong();
+    private final AtomicLong vencidas = new AtomicLong();
+    private final AtomicLong periodosPurgados = new AtomicLong();
+
+    /**
+     * Solo el límite total de cada licencia
+     */
+    public CuotaDescargas(ProveedorCupos proveedor) {
+        this(proveedor, LOTE_DEFAULT, 0, 0, null, Clock.systemUTC());
+    }
+
+    /**
+     * @param lote                 cupos que se arriendan al proveedor de una vez
+     * @param licenciasSimultaneas préstamos vigentes a la vez por recurso (0 = sin límite)
+     * @param limitePorPeriodo     descargas por recurso y periodo (0 = sin límite)
+     * @param periodo              duración del periodo (obligatoria si hay límite por periodo)
+     */
+    public CuotaDescargas(ProveedorCupos proveedor, int lote, int licenciasSimultaneas,
+                          int limitePorPeriodo, Duration periodo, Clock reloj) {
+        if (lote < 1 || licenciasSimultaneas < 0 || limitePorPeriodo < 0) {
+            throw new IllegalArgumentException("Configuración de cuotas inválida");
+        }
+        if (limitePorPeriodo > 0 && (periodo == null || periodo.isNegative() || periodo.isZero())) {
+            throw new IllegalArgumentException("El límite por periodo requiere un periodo positivo");
+        }
+        this.proveedor = proveedor;
+        this.lote = lote;
+        this.licenciasSimultaneas = licenciasSimultaneas;
+        this.limitePorPeriodo = limitePorPeriodo;
+        this.periodo = periodo;
+        this.reloj = reloj;
+    }
+
+    // ===============================================================
+    // RESERVA Y LIBERACIÓN
+    // ===============================================================
+
+    /**
+     * Reserva los cupos de una descarga: todos o ninguno
+     * @return true si la descarga puede hacerse
+     * @see #reservarCupo(String, int, int, Instant)
+     */
+    public boolean reservar(String recursoId, int limiteTotal, int usadosTotal, Instant vencimiento) {
+        return reservarCupo(recursoId, limiteTotal, usadosTotal, vencimiento) != null;
+    }
+
+    /**
+     * Reserva los cupos de una descarga: todos o ninguno
+     * @param limiteTotal    límite de la licencia del recurso (solo cuenta la primera vez;
+     *                       después manda el guardado, ver actualizarLimite)
+     * @param usadosTotal    descargas ya registradas en el recurso (solo cuenta la primera vez)
+     * @param vencimiento    fin del préstamo: libera el cupo simultáneo si no se devuelve antes
+     * @return los cupos tomados, para anularlos si el préstamo no se confirma; null si no quedan
+     */
+    public CupoReservado reservarCupo(String recursoId, int limiteTotal, int usadosTotal, Instant vencimiento) {
+        if (licenciasSimultaneas > 0) {
+            liberarVencidas(recursoId);
+            if (!contador(recursoId + SIMULTANEO).tomar(proveedor, licenciasSimultaneas, 0, lote)) {
+                return rechazar();
+            }
+        }
+        if (!contador(recursoId + TOTAL).tomar(proveedor, limiteTotal, usadosTotal, lote)) {
+            deshacerSimultaneo(recursoId);
+            return rechazar();
+        }
+        String clavePeriodo = limitePorPeriodo > 0 ? clavePeriodo(recursoId) : null;
+        if (clavePeriodo != null && !contador(clavePeriodo).tomar(proveedor, limitePorPeriodo, 0, lote)) {
+            contador(recursoId + TOTAL).devolverUno(proveedor, lote);
+            deshacerSimultaneo(recursoId);
+            return rechazar();
+        }
+        if (licenciasSimultaneas > 0) {
+            PriorityQueue<Instant> cola = vencimientos.computeIfAbsent(recursoId, r -> new PriorityQueue<>());
+            synchronized (cola) {
+                cola.add(vencimiento);
+            }
+        }
+        reservas.incrementAndGet();
+        return new CupoReservado(recursoId, vencimiento, clavePeriodo);
+    }
+
+    /**
+     * Deshace una reserva cuyo préstamo no se confirmó (conflicto, error): sus cupos vuelven
+     * al contador local como si no se hubiera pedido. El cupo del periodo solo vuelve si ese
+     * periodo sigue en curso, y el simultáneo solo si no venció entretanto.
+     */
+    public void anular(CupoReservado cupo) {
+        String recursoId = cupo.getRecursoId();
+        contador(recursoId + TOTAL).devolverUno(proveedor, lote);
+        if (cupo.getClavePeriodo() != null) {
+            ContadorCupos periodoReservado = contadores.get(cupo.getClavePeriodo());
+            if (periodoReservado != null) {
+                periodoReservado.devolverUno(proveedor, lote);
+            }
+        }
+        PriorityQueue<Instant> cola = vencimientos.get(recursoId);
+        if (cola != null) {
+            boolean ocupaba;
+            synchronized (cola) {
+                ocupaba = cola.remove(cupo.getVencimiento());
+            }
+            if (ocupaba) {
+                contador(recursoId + SIMULTANEO).devolverUno(proveedor, lote);
+            }
+        }
+        reservas.decrementAndGet();
+        anuladas.incrementAndGet();
+    }
+
+    /**
+     * Cambia el límite total de la licencia de un recurso para todas las instancias
+     * (el límite que llega en cada reserva solo se usa al crear el cupo)
+     */
+    public void actualizarLimite(String recursoId, int limiteTotal) {
+        proveedor.actualizarLimite(recursoId + TOTAL, limiteTotal);
+    }
+
+    /**
+     * Devuelve el cupo simultáneo de un préstamo del recurso (el que vence antes: son
+     * intercambiables). Los cupos total y por periodo ya se consumieron.
+     * @return false si el recurso no tenía préstamos ocupando cupo
+     */
+    public boolean liberar(String recursoId) {
+        if (licenciasSimultaneas == 0) {
+            return false;
+        }
+        PriorityQueue<Instant> cola = vencimientos.get(recursoId);
+        if (cola == null) {
+            return false;
+        }
+        synchronized (cola) {
+            if (cola.poll() == null) {
+                return false;
+            }
+        }
+        contador(recursoId + SIMULTANEO).devolverUno(proveedor, lote);
+        return true;
+    }
+
+    /**
+     * Libera los cupos simultáneos de todos los préstamos vencidos
+     * @return cupos liberados
+     */
+    public int liberarVencidas() {
+        int liberados = 0;
+        for (String recursoId : vencimientos.keySet()) {
+            liberados += liberarVencidas(recursoId);
+        }
+        return liberados;
+    }
+
+    private int liberarVencidas(String recursoId) {
+        PriorityQueue<Instant> cola = vencimientos.get(recursoId);
+        if (cola == null) {
+            return 0;
+        }
+        Instant ahora = reloj.instant();
+        int liberados = 0;
+        synchronized (cola) {
+            while (!cola.isEmpty() && !cola.peek().isAfter(ahora)) {
+                cola.poll();
+                liberados++;
+            }
+        }
+        for (int i = 0; i < liberados; i++) {
+            contador(recursoId + SIMULTANEO).devolverUno(proveedor, lote);
+        }
+        vencidas.addAndGet(liberados);
+        return liberados;
+    }
+
+    private void deshacerSimultaneo(String recursoId) {
+        if (licenciasSimultaneas > 0) {
+            contador(recursoId + SIMULTANEO).devolverUno(proveedor, lote);
+        }
+    }
+
+    private CupoReservado rechazar() {
+        rechazos.incrementAndGet();
+        return null;
+    }
+
+    // ===============================================================
+    // CONTADORES
+    // ===============================================================
+
+    private ContadorCupos contador(String clave) {
+        return contadores.computeIfAbsent(clave, ContadorCupos::new);
+    }
+
+    /**
+     * Clave del periodo en curso; al empezar uno nuevo se descartan los contadores del anterior
+     * y se purgan del proveedor los periodos terminados
+     */
+    private String clavePeriodo(String recursoId) {
+        long indice = indicePeriodo();
+        if (indice != periodoActual) {
+            boolean nuevo = false;
+            synchronized (this) {
+                if (indice != periodoActual) {
+                    String sufijoActual = PERIODO + indice;
+                    contadores.keySet().removeIf(clave -> clave.contains(PERIODO) && !clave.endsWith(sufijoActual));
+                    periodoActual = indice;
+                    nuevo = true;
+                }
+            }
+            if (nuevo) {
+                try {
+                    purgarPeriodosTerminados();
+                } catch (RuntimeException e) {
+                    // Solo es limpieza: la reserva sigue y el próximo periodo lo vuelve a intentar
+                    logger.warn("No se pudieron purgar los cupos de periodos terminados", e);
+                }
+            }
+        }
+        return recursoId + PERIODO + indice;
+    }
+
+    private long indicePeriodo() {
+        return reloj.millis() / periodo.toMillis();
+    }
+
+    /**
+     * Elimina del proveedor los cupos de los periodos terminados, salvo el inmediatamente
+     * anterior (otra instancia con el reloj algo atrasado aún puede estar usándolo).
+     * Se llama sola al empezar cada periodo; también sirve como tarea de mantenimiento.
+     * @return claves eliminadas
+     */
+    public int purgarPeriodosTerminados() {
+        if (limitePorPeriodo == 0) {
+            return 0;
+        }
+        int eliminadas = proveedor.purgarPeriodos(PERIODO, indicePeriodo() - 1);
+        periodosPurgados.addAndGet(eliminadas);
+        return eliminadas;
+    }
+
+    /**
+     * Devuelve al proveedor los cupos arrendados y sin usar de esta instancia
+     * @return cupos devueltos
+     */
+    public int devolverSobrantes() {
+        int devueltos = 0;
+        for (ContadorCupos contador : contadores.values()) {
+            devueltos += contador.devolverTodo(proveedor);
+        }
+        return devueltos;
+    }
+
+    @Override
+    public void close() {
+        int devueltos = devolverSobrantes();
+        logger.info("Cuotas cerradas: {} reservas, {} rechazos, {} anuladas, {} cupos devueltos", reservas.get(),
+                rechazos.get(), anuladas.get(), devueltos);
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    public long getReservas() { return reservas.get(); }
+    public long getRechazos() { return rechazos.get(); }
+    public long getVencidas() { return vencidas.get(); }
+    public long getAnuladas() { return anuladas.get(); }
+    public long getPeriodosPurgados() { return periodosPurgados.get(); }
+    public ProveedorCupos getProveedor() { return proveedor; }
+
+    /**
+     * Préstamos del recurso que ocupan cupo simultáneo en esta instancia
+     */
+    public int getPrestamosVigentes(String recursoId) {
+        PriorityQueue<Instant> cola = vencimientos.get(recursoId);
+        if (cola == null) {
+            return 0;
+        }
+        synchronized (cola) {
+            return cola.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CuotaDescargas{lote=%d, simultaneas=%d, porPeriodo=%d/%s, reservas=%d, rechazos=%d}",
+                lote, licenciasSimultaneas, limitePorPeriodo, periodo, reservas.get(), rechazos.get());
+    }
+}
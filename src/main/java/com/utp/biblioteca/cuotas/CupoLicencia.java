@@ -0,0 +1,64 @@
+package com.utp.biblioteca.cuotas;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Clase CupoLicencia - CUPOS ARRENDADOS DE UNA LICENCIA (compartidos entre instancias)
+ * Una fila por clave de cupo: cuántos hay arrendados en total y el límite vigente.
+ * Se modifica siempre con la fila bloqueada (ProveedorCuposBaseDatos).
+ */
+@Entity
+@Table(name = "cupo_licencia")
+public class CupoLicencia {
+
+    // recurso + tipo de cupo (+ periodo)
+    @Id
+    @Column(length = 160)
+    private String clave;
+    private int limite;
+    private int arrendados;
+
+    /**
+     * Constructor requerido por JPA
+     */
+    protected CupoLicencia() {
+    }
+
+    CupoLicencia(String clave, int limite, int arrendados) {
+        this.clave = clave;
+        this.limite = limite;
+        this.arrendados = arrendados;
+    }
+
+    /**
+     * @return cupos concedidos, sin pasar del límite guardado
+     */
+    int arrendar(int cantidad) {
+        int concedidos = Math.max(0, Math.min(cantidad, limite - arrendados));
+        arrendados += concedidos;
+        return concedidos;
+    }
+
+    void actualizarLimite(int limite) {
+        this.limite = limite;
+    }
+
+    void devolver(int cantidad) {
+        if (cantidad > arrendados) {
+            throw new IllegalStateException("Se devolvieron más cupos de los arrendados: " + clave);
+        }
+        arrendados -= cantidad;
+    }
+
+    public String getClave() { return clave; }
+    public int getLimite() { return limite; }
+    public int getArrendados() { return arrendados; }
+
+    @Override
+    public String toString() {
+        return String.format("CupoLicencia{clave='%s', arrendados=%d/%d}", clave, arrendados, limite);
+    }
+}
@@ -0,0 +1,30 @@
+package com.utp.biblioteca.cuotas;
+
+import java.time.Instant;
+
+/**
+ * Cupos tomados por una reserva de CuotaDescargas
+ * Se guarda hasta que la transacción del préstamo se confirma: si no se confirma
+ * (conflicto de versión, error) se entrega a CuotaDescargas.anular y los cupos vuelven.
+ */
+public final class CupoReservado {
+
+    private final String recursoId;
+    private final Instant vencimiento;
+    private final String clavePeriodo; // null si no hay límite por periodo
+
+    CupoReservado(String recursoId, Instant vencimiento, String clavePeriodo) {
+        this.recursoId = recursoId;
+        this.vencimiento = vencimiento;
+        this.clavePeriodo = clavePeriodo;
+    }
+
+    public String getRecursoId() { return recursoId; }
+    public Instant getVencimiento() { return vencimiento; }
+    String getClavePeriodo() { return clavePeriodo; }
+
+    @Override
+    public String toString() {
+        return String.format("CupoReservado{recurso='%s', vence=%s}", recursoId, vencimiento);
+    }
+}
@@ -0,0 +1,271 @@
+package com.utp.biblioteca.cuotas;
+
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LimitadorDescargas - LÍMITE DE RITMO POR USUARIO
+ * Se consulta antes de emitir un enlace de descarga (EBook.generarEnlaceDescarga) o una
+ * URL de streaming (AudioLibro.generarUrlStreaming), y mientras se entregan los bytes
+ * (ServidorDescargas, ServidorStreaming), para que unos pocos usuarios con descargas
+ * masivas no saturen el enlace ni agoten el límite de las licencias.
+ *
+ * Cada usuario tiene dos cubos de fichas (CuboFichas) según el perfil de su tipo:
+ * - solicitudes por minuto: cada enlace o URL emitido toma una ficha.
+ * - bytes por segundo: los servidores cobran lo que envían (cobrarEnviados) y esperan lo que
+ *   les devuelve antes de seguir, así que la transferencia va al ritmo del perfil pasada la
+ *   ráfaga. Al emitir solo se comprueba que el usuario no esté ya en deuda.
+ * Un cubo lleno es igual a uno recién creado, así que el barrido saca del mapa los de los
+ * usuarios inactivos sin cambiar lo que verán cuando vuelvan.
+ */
+public class LimitadorDescargas implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LimitadorDescargas.class);
+
+    public static final Duration BARRIDO_DEFAULT = Duration.ofMinutes(1);
+
+    private static volatile LimitadorDescargas compartido;
+
+    /**
+     * Los dos cubos de un usuario
+     */
+    private static final class CubosUsuario {
+        private final CuboFichas solicitudes;
+        private final CuboFichas bytes;
+
+        CubosUsuario(PerfilLimites perfil) {
+            this.solicitudes = perfil.cuboSolicitudes();
+            this.bytes = perfil.cuboBytes();
+        }
+    }
+
+    private final Map<String, PerfilLimites> perfiles;
+    private final PerfilLimites perfilDefault;
+    private final Clock reloj;
+    private final ConcurrentMap<String, CubosUsuario> cubos = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService barredor;
+
+    // Métricas (LongAdder: se actualizan en cada solicitud desde muchos hilos)
+    private final LongAdder permitidas = new LongAdder();
+    private final LongAdder rechazadasSolicitudes = new LongAdder();
+    private final LongAdder rechazadasBytes = new LongAdder();
+    private final LongAdder bytesCobrados = new LongAdder();
+    private final LongAdder esperasEntrega = new LongAdder();
+    private final LongAdder retirados = new LongAdder();
+
+    /**
+     * Perfiles por tipo de usuario por defecto; los usuarios sin tipo, como estudiantes
+     */
+    public LimitadorDescargas() {
+        this(PerfilLimites.porTipo(), PerfilLimites.ESTUDIANTE, BARRIDO_DEFAULT, Clock.systemUTC());
+    }
+
+    /**
+     * @param perfiles        perfil por tipo de usuario (nombre de la clase: Estudiante, Profesor...)
+     * @param perfilDefault   perfil de los tipos sin entrada y de las solicitudes sin tipo
+     * @param intervaloBarrido cada cuánto se retiran los cubos inactivos (null = solo con barrer())
+     */
+    public LimitadorDescargas(Map<String, PerfilLimites> perfiles, PerfilLimites perfilDefault,
+                              Duration intervaloBarrido, Clock reloj) {
+        if (perfilDefault == null) {
+            throw new IllegalArgumentException("Falta el perfil por defecto");
+        }
+        this.perfiles = new HashMap<>(perfiles);
+        this.perfilDefault = perfilDefault;
+        this.reloj = reloj;
+        if (intervaloBarrido == null) {
+            this.barredor = null;
+        } else {
+            this.barredor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "limitador-barrido");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            long periodo = intervaloBarrido.toMillis();
+            barredor.scheduleWithFixedDelay(this::barrer, periodo, periodo, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Limitador usado por EBook y AudioLibro
+     */
+    public static LimitadorDescargas compartido() {
+        LimitadorDescargas limitador = compartido;
+        if (limitador == null) {
+            synchronized (LimitadorDescargas.class) {
+                if (compartido == null) {
+                    compartido = new LimitadorDescargas();
+                }
+                limitador = compartido;
+            }
+        }
+        return limitador;
+    }
+
+    public static void configurarCompartido(LimitadorDescargas limitador) {
+        compartido = limitador;
+    }
+
+    /**
+     * Tipo de usuario con el que se eligen los perfiles
+     */
+    public static String tipoDe(Usuario usuario) {
+        return usuario.getClass().getSimpleName();
+    }
+
+    // ===============================================================
+    // ADMISIÓN
+    // ===============================================================
+
+    public boolean permitir(Usuario usuario, long bytes) {
+        return permitir(usuario.getId(), tipoDe(usuario), bytes);
+    }
+
+    /**
+     * Cuenta una solicitud del usuario
+     * @param tipoUsuario tipo con el que se crea su cubo (null = perfil por defecto); un
+     *                    cubo ya creado conserva su perfil hasta que se retira
+     * @param bytes       tamaño de lo que se va a entregar (0 si no se conoce, como en el
+     *                    streaming): no se cobra aquí, solo se rechaza si el usuario ya debe
+     *                    tantos bytes que no podría empezar a recibirlo
+     * @return false si el usuario superó alguno de sus límites (no se descuenta nada)
+     */
+    public boolean permitir(String usuarioId, String tipoUsuario, long bytes) {
+        long ahora = ahora();
+        while (true) {
+            CubosUsuario cubo = cubosDe(usuarioId, tipoUsuario);
+            int resultado = cubo.solicitudes.tomar(1, ahora);
+            if (resultado == CuboFichas.RETIRADO) {
+                // El barrido lo acaba de retirar: se crea otro
+                cubos.remove(usuarioId, cubo);
+                continue;
+            }
+            if (resultado == CuboFichas.AGOTADO) {
+                rechazadasSolicitudes.increment();
+                return false;
+            }
+            if (bytes > 0 && cubo.bytes.espera(bytes, ahora) > 0) {
+                cubo.solicitudes.devolver(1);
+                rechazadasBytes.increment();
+                return false;
+            }
+            permitidas.increment();
+            return true;
+        }
+    }
+
+    /**
+     * Cobra bytes que un servidor de entrega acaba de enviar al usuario
+     * Se cobran siempre, aunque dejen el cubo en deuda: el servidor ya los envió.
+     * @param tipoUsuario tipo firmado en el token (null = perfil por defecto si no tiene cubo)
+     * @return nanos que el servidor debe esperar antes de enviarle más (0 = puede seguir)
+     */
+    public long cobrarEnviados(String usuarioId, String tipoUsuario, long bytes) {
+        long ahora = ahora();
+        while (true) {
+            CubosUsuario cubo = cubosDe(usuarioId, tipoUsuario);
+            long espera = cubo.bytes.cobrar(bytes, ahora);
+            // Como en permitir, la marca del barrido va en el cubo de solicitudes
+            if (espera < 0 || cubo.solicitudes.estaRetirado()) {
+                cubos.remove(usuarioId, cubo);
+                continue;
+            }
+            bytesCobrados.add(bytes);
+            if (espera > 0) {
+                esperasEntrega.increment();
+            }
+            return espera;
+        }
+    }
+
+    /**
+     * Tiempo hasta que una solicitud de ese tamaño pasaría (para Retry-After)
+     */
+    public Duration esperaPara(String usuarioId, long bytes) {
+        CubosUsuario cubo = cubos.get(usuarioId);
+        if (cubo == null) {
+            return Duration.ZERO;
+        }
+        long ahora = ahora();
+        long espera = cubo.solicitudes.espera(1, ahora);
+        if (bytes > 0) {
+            espera = Math.max(espera, cubo.bytes.espera(bytes, ahora));
+        }
+        return Duration.ofNanos(espera);
+    }
+
+    private CubosUsuario cubosDe(String usuarioId, String tipoUsuario) {
+        CubosUsuario cubo = cubos.get(usuarioId);
+        if (cubo != null) {
+            return cubo;
+        }
+        PerfilLimites perfil = tipoUsuario == null ? perfilDefault : perfiles.getOrDefault(tipoUsuario, perfilDefault);
+        return cubos.computeIfAbsent(usuarioId, id -> new CubosUsuario(perfil));
+    }
+
+    private long ahora() {
+        return reloj.millis() * 1_000_000L;
+    }
+
+    // ===============================================================
+    // BARRIDO DE CUBOS INACTIVOS
+    // ===============================================================
+
+    /**
+     * Retira los cubos llenos (usuarios que no pidieron nada desde que se repusieron)
+     * @return cubos retirados
+     */
+    public int barrer() {
+        long ahora = ahora();
+        int cuenta = 0;
+        for (Map.Entry<String, CubosUsuario> entrada : cubos.entrySet()) {
+            CubosUsuario cubo = entrada.getValue();
+            // La marca va en el cubo de solicitudes: cualquier uso lo toca antes que al de bytes
+            if (cubo.bytes.estaLleno(ahora) && cubo.solicitudes.retirarSiLleno(ahora)) {
+                cubos.remove(entrada.getKey(), cubo);
+                cuenta++;
+            }
+        }
+        retirados.add(cuenta);
+        return cuenta;
+    }
+
+    @Override
+    public void close() {
+        if (barredor != null) {
+            barredor.shutdown();
+        }
+        logger.info("Limitador cerrado: {} permitidas, {} rechazadas por solicitudes, {} por bytes, {} bytes cobrados",
+                permitidas.sum(), rechazadasSolicitudes.sum(), rechazadasBytes.sum(), bytesCobrados.sum());
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    public long getPermitidas() { return permitidas.sum(); }
+    public long getRechazadasPorSolicitudes() { return rechazadasSolicitudes.sum(); }
+    public long getRechazadasPorBytes() { return rechazadasBytes.sum(); }
+    public long getBytesCobrados() { return bytesCobrados.sum(); }
+    public long getEsperasEntrega() { return esperasEntrega.sum(); }
+    public long getCubosRetirados() { return retirados.sum(); }
+    public int getCubosActivos() { return cubos.size(); }
+
+    @Override
+    public String toString() {
+        return String.format("LimitadorDescargas{cubos=%d, permitidas=%d, rechazadas=%d/%d, retirados=%d}",
+                cubos.size(), getPermitidas(), getRechazadasPorSolicitudes(), getRechazadasPorBytes(),
+                getCubosRetirados());
+    }
+}
@@ -0,0 +1,62 @@
+package com.utp.biblioteca.cuotas;
+
+import java.util.Map;
+
+/**
+ * PerfilLimites - LÍMITES DE RITMO DE UN TIPO DE USUARIO
+ * Solicitudes por minuto (enlaces de descarga y URLs de streaming) y bytes por segundo
+ * (lo que los servidores de entrega envían), cada uno con su ráfaga. Inmutable.
+ */
+public final class PerfilLimites {
+
+    private static final long MB = 1024L * 1024;
+
+    public static final PerfilLimites ESTUDIANTE = new PerfilLimites(10, 5, 2 * MB, 64 * MB);
+    public static final PerfilLimites PROFESOR = new PerfilLimites(30, 10, 5 * MB, 256 * MB);
+    public static final PerfilLimites BIBLIOTECARIO = new PerfilLimites(120, 30, 20 * MB, 1024 * MB);
+
+    private final int solicitudesPorMinuto;
+    private final int rafagaSolicitudes;
+    private final long bytesPorSegundo;
+    private final long rafagaBytes;
+
+    public PerfilLimites(int solicitudesPorMinuto, int rafagaSolicitudes, long bytesPorSegundo, long rafagaBytes) {
+        if (solicitudesPorMinuto < 1 || rafagaSolicitudes < 1 || bytesPorSegundo < 1 || rafagaBytes < 1) {
+            throw new IllegalArgumentException("Los límites deben ser positivos");
+        }
+        this.solicitudesPorMinuto = solicitudesPorMinuto;
+        this.rafagaSolicitudes = rafagaSolicitudes;
+        this.bytesPorSegundo = bytesPorSegundo;
+        this.rafagaBytes = rafagaBytes;
+    }
+
+    /**
+     * Perfiles por defecto, por tipo de usuario (el nombre de la clase, como en los filtros)
+     */
+    public static Map<String, PerfilLimites> porTipo() {
+        return Map.of("Estudiante", ESTUDIANTE, "Profesor", PROFESOR, "Bibliotecario", BIBLIOTECARIO);
+    }
+
+    CuboFichas cuboSolicitudes() {
+        return new CuboFichas(solicitudesPorMinuto / 60.0, rafagaSolicitudes);
+    }
+
+    CuboFichas cuboBytes() {
+        return new CuboFichas(bytesPorSegundo, rafagaBytes);
+    }
+
+    // ===============================================================
+    // GETTERS
+    // ===============================================================
+
+    public int getSolicitudesPorMinuto() { return solicitudesPorMinuto; }
+    public int getRafagaSolicitudes() { return rafagaSolicitudes; }
+    public long getBytesPorSegundo() { return bytesPorSegundo; }
+    public long getRafagaBytes() { return rafagaBytes; }
+
+    @Override
+    public String toString() {
+        return String.format("PerfilLimites{solicitudes=%d/min (ráfaga %d), bytes=%d/s (ráfaga %d)}",
+                solicitudesPorMinuto, rafagaSolicitudes, bytesPorSegundo, rafagaBytes);
+    }
+}
@@ -0,0 +1,59 @@
+package com.utp.biblioteca.cuotas;
+
+/**
+ * Origen compartido de los cupos de licencia
+ * Cada instancia de la aplicación arrienda cupos por lotes y los reparte localmente sin
+ * volver a consultar; el proveedor garantiza que la suma de lo arrendado a todas las
+ * instancias nunca pasa del límite. Implementaciones: en memoria (una sola instancia) y
+ * en la base de datos (varias instancias).
+ */
+public interface ProveedorCupos {
+
+    /**
+     * Arrienda hasta 'cantidad' cupos sin que el total arrendado pase del límite de la clave
+     * @param limite          límite con el que se crea la clave si todavía no existe; después
+     *                        manda el guardado, que solo cambia con actualizarLimite
+     * @param usadosIniciales cupos ya consumidos si la clave todavía no existe (p. ej. las
+     *                        descargas registradas en el eBook antes de usar cuotas)
+     * @return cupos concedidos (0 si no queda ninguno)
+     */
+    int arrendar(String clave, int limite, int usadosIniciales, int cantidad);
+
+    /**
+     * Cambia el límite de una clave existente (sin efecto si todavía no existe)
+     * Bajarlo por debajo de lo arrendado no revoca cupos: solo deja de conceder nuevos.
+     */
+    void actualizarLimite(String clave, int limite);
+
+    /**
+     * Devuelve cupos arrendados que no se usaron o que se liberaron
+     */
+    void devolver(String clave, int cantidad);
+
+    /**
+     * Cupos arrendados en total (todas las instancias), 0 si la clave no existe
+     */
+    int getArrendados(String clave);
+
+    /**
+     * Elimina las claves de periodos terminados: las que acaban en marcador + índice de
+     * periodo, con un índice menor que 'desde'. Las demás claves no se tocan.
+     * @return claves eliminadas
+     */
+    int purgarPeriodos(String marcador, long desde);
+
+    /**
+     * ¿La clave es de un periodo anterior a 'desde'? (clave = recurso + marcador + índice)
+     */
+    static boolean esPeriodoAnterior(String clave, String marcador, long desde) {
+        int posicion = clave.lastIndexOf(marcador);
+        if (posicion < 0) {
+            return false;
+        }
+        try {
+            return Long.parseLong(clave.substring(posicion + marcador.length())) < desde;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
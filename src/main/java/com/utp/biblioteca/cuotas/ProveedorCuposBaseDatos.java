@@ -0,0 +1,132 @@
+package com.utp.biblioteca.cuotas;
+
+import com.utp.biblioteca.persistencia.GestorPersistencia;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cupos en la base de datos: cada arriendo es una transacción corta con la fila del cupo
+ * bloqueada (SELECT ... FOR UPDATE), así que varias instancias nunca pasan del límite.
+ * Como se arrienda por lotes, la base se consulta una vez por lote y no por descarga.
+ *
+ * Si una instancia cae con cupos arrendados sin usar, esos cupos quedan contados como
+ * usados: se pierde capacidad, nunca se supera la licencia.
+ *
+ * Las filas de los cupos por periodo se eliminan cuando el periodo termina (purgarPeriodos);
+ * si no, la tabla crecería en una fila por recurso y periodo.
+ */
+public class ProveedorCuposBaseDatos implements ProveedorCupos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProveedorCuposBaseDatos.class);
+
+    private static final String INSERTAR =
+            "INSERT INTO cupo_licencia (clave, limite, arrendados) VALUES (?, ?, ?)";
+
+    private final GestorPersistencia gestor;
+
+    public ProveedorCuposBaseDatos(GestorPersistencia gestor) {
+        this.gestor = gestor;
+    }
+
+    @Override
+    public int arrendar(String clave, int limite, int usadosIniciales, int cantidad) {
+        Integer concedidos = gestor.enTransaccion(em -> {
+            CupoLicencia cupo = em.find(CupoLicencia.class, clave, LockModeType.PESSIMISTIC_WRITE);
+            return cupo == null ? null : cupo.arrendar(cantidad);
+        });
+        if (concedidos != null) {
+            return concedidos;
+        }
+        crear(clave, limite, Math.min(usadosIniciales, limite));
+        return gestor.enTransaccion(em -> bloquear(em, clave).arrendar(cantidad));
+    }
+
+    /**
+     * Crea la fila del cupo con JDBC: si otra instancia la creó a la vez, la clave duplicada
+     * es el camino normal y no debe pasar por el registro de errores de Hibernate
+     */
+    private void crear(String clave, int limite, int arrendados) {
+        gestor.ejecutar(em -> em.unwrap(Session.class).doWork(conexion -> {
+            try (PreparedStatement insertar = conexion.prepareStatement(INSERTAR)) {
+                insertar.setString(1, clave);
+                insertar.setInt(2, limite);
+                insertar.setInt(3, arrendados);
+                insertar.executeUpdate();
+            } catch (SQLException e) {
+                if (!esClaveDuplicada(e)) {
+                    throw e;
+                }
+                logger.debug("El cupo {} ya lo creó otra instancia", clave);
+            }
+        }));
+    }
+
+    // SQLSTATE clase 23: violación de integridad (clave primaria duplicada)
+    private static boolean esClaveDuplicada(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("23"));
+    }
+
+    @Override
+    public void actualizarLimite(String clave, int limite) {
+        gestor.ejecutar(em -> {
+            CupoLicencia cupo = em.find(CupoLicencia.class, clave, LockModeType.PESSIMISTIC_WRITE);
+            if (cupo != null) {
+                cupo.actualizarLimite(limite);
+            }
+        });
+    }
+
+    @Override
+    public void devolver(String clave, int cantidad) {
+        gestor.ejecutar(em -> bloquear(em, clave).devolver(cantidad));
+    }
+
+    @Override
+    public int getArrendados(String clave) {
+        return gestor.enTransaccion(em -> {
+            CupoLicencia cupo = em.find(CupoLicencia.class, clave);
+            return cupo == null ? 0 : cupo.getArrendados();
+        });
+    }
+
+    /**
+     * Lee las claves con el marcador y elimina por lotes las de periodos terminados
+     * (el índice del periodo se compara como número, así que no se filtra en SQL)
+     */
+    @Override
+    public int purgarPeriodos(String marcador, long desde) {
+        List<String> terminadas = gestor.enTransaccion(em -> em
+                .createQuery("select c.clave from CupoLicencia c where c.clave like :patron", String.class)
+                .setParameter("patron", "%" + marcador + "%")
+                .getResultStream()
+                .filter(clave -> ProveedorCupos.esPeriodoAnterior(clave, marcador, desde))
+                .toList());
+        int lote = gestor.getTamanoLote();
+        for (int desdeIndice = 0; desdeIndice < terminadas.size(); desdeIndice += lote) {
+            List<String> claves = terminadas.subList(desdeIndice, Math.min(desdeIndice + lote, terminadas.size()));
+            gestor.ejecutar(em -> em.createQuery("delete from CupoLicencia c where c.clave in :claves")
+                    .setParameter("claves", claves)
+                    .executeUpdate());
+        }
+        if (!terminadas.isEmpty()) {
+            logger.debug("Eliminados {} cupos de periodos terminados", terminadas.size());
+        }
+        return terminadas.size();
+    }
+
+    private static CupoLicencia bloquear(EntityManager em, String clave) {
+        CupoLicencia cupo = em.find(CupoLicencia.class, clave, LockModeType.PESSIMISTIC_WRITE);
+        if (cupo == null) {
+            throw new IllegalStateException("No existe el cupo " + clave);
+        }
+        return cupo;
+    }
+}
@@ -0,0 +1,67 @@
+package com.utp.biblioteca.cuotas;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cupos en memoria: un contador atómico por clave (una sola instancia de la aplicación)
+ */
+public class ProveedorCuposMemoria implements ProveedorCupos {
+
+    private final ConcurrentMap<String, AtomicInteger> arrendados = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> limites = new ConcurrentHashMap<>();
+
+    @Override
+    public int arrendar(String clave, int limite, int usadosIniciales, int cantidad) {
+        limites.putIfAbsent(clave, limite);
+        AtomicInteger contador = arrendados.computeIfAbsent(clave, c -> new AtomicInteger(usadosIniciales));
+        while (true) {
+            int actuales = contador.get();
+            int concedidos = Math.min(cantidad, limites.get(clave) - actuales);
+            if (concedidos <= 0) {
+                return 0;
+            }
+            if (contador.compareAndSet(actuales, actuales + concedidos)) {
+                return concedidos;
+            }
+        }
+    }
+
+    @Override
+    public void devolver(String clave, int cantidad) {
+        AtomicInteger contador = arrendados.get(clave);
+        if (contador == null || contador.addAndGet(-cantidad) < 0) {
+            throw new IllegalStateException("Se devolvieron más cupos de los arrendados: " + clave);
+        }
+    }
+
+    @Override
+    public void actualizarLimite(String clave, int limite) {
+        limites.computeIfPresent(clave, (c, anterior) -> limite);
+    }
+
+    @Override
+    public int getArrendados(String clave) {
+        AtomicInteger contador = arrendados.get(clave);
+        return contador == null ? 0 : contador.get();
+    }
+
+    @Override
+    public int purgarPeriodos(String marcador, long desde) {
+        int eliminadas = 0;
+        for (String clave : arrendados.keySet()) {
+            if (ProveedorCupos.esPeriodoAnterior(clave, marcador, desde)) {
+                arrendados.remove(clave);
+                limites.remove(clave);
+                eliminadas++;
+            }
+        }
+        return eliminadas;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ProveedorCuposMemoria{claves=%d}", arrendados.size());
+    }
+}
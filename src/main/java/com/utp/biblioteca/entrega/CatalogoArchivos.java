@@ -0,0 +1,99 @@
+package com.utp.biblioteca.entrega;
+
+import com.utp.biblioteca.model.recurso.EBook;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Archivos locales de los eBooks: id del recurso -> ruta y tipo de contenido
+ * El ETag sale del tamaño y la fecha de modificación del archivo, así que reemplazar el
+ * archivo invalida las copias en caché y las descargas a medias (If-Range).
+ */
+public class CatalogoArchivos {
+
+    /**
+     * Archivo listo para servir: datos tomados al abrir la solicitud
+     */
+    static final class Archivo {
+        final Path ruta;
+        final String tipoContenido;
+        final long tamano;
+        final String etag;
+
+        Archivo(Path ruta, String tipoContenido, long tamano, String etag) {
+            this.ruta = ruta;
+            this.tipoContenido = tipoContenido;
+            this.tamano = tamano;
+            this.etag = etag;
+        }
+    }
+
+    private static final class Entrada {
+        final Path ruta;
+        final String tipoContenido;
+
+        Entrada(Path ruta, String tipoContenido) {
+            this.ruta = ruta;
+            this.tipoContenido = tipoContenido;
+        }
+    }
+
+    private final ConcurrentMap<String, Entrada> archivos = new ConcurrentHashMap<>();
+
+    /**
+     * Asocia el eBook con su archivo local
+     */
+    public void registrar(EBook ebook, Path ruta) {
+        registrar(ebook.getId(), ruta, ebook.getFormato());
+    }
+
+    public void registrar(String recursoId, Path ruta, String formato) {
+        if (!Files.isRegularFile(ruta)) {
+            throw new IllegalArgumentException("No es un archivo: " + ruta);
+        }
+        archivos.put(recursoId, new Entrada(ruta, tipoContenido(formato)));
+    }
+
+    public boolean quitar(String recursoId) {
+        return archivos.remove(recursoId) != null;
+    }
+
+    /**
+     * @return el archivo con su tamaño y ETag actuales, o null si no hay archivo para el id
+     */
+    Archivo buscar(String recursoId) throws IOException {
+        Entrada entrada = archivos.get(recursoId);
+        if (entrada == null) {
+            return null;
+        }
+        BasicFileAttributes atributos = Files.readAttributes(entrada.ruta, BasicFileAttributes.class);
+        String etag = String.format("\"%x-%x\"", atributos.size(), atributos.lastModifiedTime().toMillis());
+        return new Archivo(entrada.ruta, entrada.tipoContenido, atributos.size(), etag);
+    }
+
+    static String tipoContenido(String formato) {
+        switch (formato == null ? "" : formato.toUpperCase(Locale.ROOT)) {
+            case "PDF":
+                return "application/pdf";
+            case "EPUB":
+                return "application/epub+zip";
+            case "MOBI":
+            case "AZW":
+                return "application/x-mobipocket-ebook";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    public int getNumeroArchivos() { return archivos.size(); }
+
+    @Override
+    public String toString() {
+        return String.format("CatalogoArchivos{archivos=%d}", archivos.size());
+    }
+}
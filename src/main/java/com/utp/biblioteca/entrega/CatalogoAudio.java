@@ -0,0 +1,131 @@
+package com.utp.biblioteca.entrega;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Archivos de audio de los audiolibros, una variante por calidad (alta, media, baja)
+ * Cada archivo se mapea en memoria al registrarlo: servir un segmento es entregar una vista
+ * del mapa, sin leer ni copiar en el heap; las páginas las trae el sistema operativo.
+ * Los mapas se liberan cuando el recolector descarta la variante (Java 17 no permite
+ * desmapear a mano).
+ */
+public class CatalogoAudio {
+
+    public static final int SEGUNDOS_SEGMENTO_DEFAULT = 10;
+
+    /**
+     * Archivo de una calidad: mapa de solo lectura más su índice de segmentos
+     */
+    static final class Variante {
+        final String calidad;
+        final String tipoContenido;
+        final IndiceSegmentos indice;
+        private final MappedByteBuffer mapa;
+
+        Variante(String calidad, String tipoContenido, IndiceSegmentos indice, MappedByteBuffer mapa) {
+            this.calidad = calidad;
+            this.tipoContenido = tipoContenido;
+            this.indice = indice;
+            this.mapa = mapa;
+        }
+
+        /** Vista de solo lectura del segmento (independiente: se puede usar desde cualquier hilo) */
+        ByteBuffer segmento(int numero) {
+            return mapa.slice((int) indice.inicio(numero), (int) indice.longitud(numero)).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Variantes de un audiolibro; la primera registrada es la calidad por defecto
+     */
+    static final class Audio {
+        final Map<String, Variante> variantes = new ConcurrentHashMap<>();
+        volatile String calidadDefault;
+
+        Variante variante(String calidad) {
+            return variantes.get(calidad == null ? calidadDefault : calidad.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private final ConcurrentMap<String, Audio> audios = new ConcurrentHashMap<>();
+
+    /**
+     * Registra una calidad del audiolibro con segmentos de SEGUNDOS_SEGMENTO_DEFAULT
+     * (audio de tasa constante: el índice se calcula con la duración del audiolibro)
+     */
+    public void registrar(AudioLibro audio, String calidad, Path ruta) {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            IndiceSegmentos indice = IndiceSegmentos.constante(canal.size(), audio.getDuracionMinutos() * 60,
+                    SEGUNDOS_SEGMENTO_DEFAULT);
+            registrar(audio.getId(), calidad, ruta, indice, tipoContenido(audio.getFormatoAudio()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el audio " + ruta, e);
+        }
+    }
+
+    /**
+     * Registra una calidad con un índice propio; todas las calidades deben usar la misma
+     * duración de segmento
+     */
+    public void registrar(String recursoId, String calidad, Path ruta, IndiceSegmentos indice, String tipoContenido) {
+        String clave = calidad.toLowerCase(Locale.ROOT);
+        Audio audio = audios.computeIfAbsent(recursoId, id -> new Audio());
+        for (Variante otra : audio.variantes.values()) {
+            if (otra.indice.getSegundosPorSegmento() != indice.getSegundosPorSegmento()) {
+                throw new IllegalArgumentException("Las calidades deben tener segmentos de la misma duración");
+            }
+        }
+        MappedByteBuffer mapa;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            if (canal.size() != indice.getTamano()) {
+                throw new IllegalArgumentException("El índice no corresponde al archivo " + ruta);
+            }
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Audio de más de 2 GB: " + ruta);
+            }
+            mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo mapear el audio " + ruta, e);
+        }
+        audio.variantes.put(clave, new Variante(clave, tipoContenido, indice, mapa));
+        if (audio.calidadDefault == null) {
+            audio.calidadDefault = clave;
+        }
+    }
+
+    Audio buscar(String recursoId) {
+        return audios.get(recursoId);
+    }
+
+    static String tipoContenido(String formato) {
+        switch (formato == null ? "" : formato.toUpperCase(Locale.ROOT)) {
+            case "MP3":
+                return "audio/mpeg";
+            case "M4A":
+            case "AAC":
+                return "audio/mp4";
+            case "WAV":
+                return "audio/wav";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    public int getNumeroAudios() { return audios.size(); }
+
+    @Override
+    public String toString() {
+        return String.format("CatalogoAudio{audios=%d}", audios.size());
+    }
+}
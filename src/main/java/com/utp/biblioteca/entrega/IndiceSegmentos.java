@@ -0,0 +1,76 @@
+package com.utp.biblioteca.entrega;
+
+/**
+ * Índice de segmentos de un archivo de audio: desplazamiento en bytes del inicio de cada
+ * segmento de duración fija. Se calcula una vez al registrar el archivo; buscar un minuto es
+ * una división y servir un segmento, dos lecturas del arreglo.
+ *
+ * Todas las calidades de un audiolibro usan la misma duración de segmento, así que el segmento
+ * n empieza en el mismo instante en todas: cambiar de calidad es pedir el siguiente segmento
+ * en la otra variante.
+ */
+public final class IndiceSegmentos {
+
+    private final long[] desplazamientos; // n + 1 valores: el último es el tamaño del archivo
+    private final int segundosPorSegmento;
+
+    private IndiceSegmentos(long[] desplazamientos, int segundosPorSegmento) {
+        this.desplazamientos = desplazamientos;
+        this.segundosPorSegmento = segundosPorSegmento;
+    }
+
+    /**
+     * Índice de un audio de tasa de bits constante (MP3 CBR): bytes proporcionales al tiempo
+     */
+    public static IndiceSegmentos constante(long tamano, int duracionSegundos, int segundosPorSegmento) {
+        if (tamano <= 0 || duracionSegundos <= 0 || segundosPorSegmento <= 0) {
+            throw new IllegalArgumentException("Audio sin tamaño o duración");
+        }
+        int segmentos = (duracionSegundos + segundosPorSegmento - 1) / segundosPorSegmento;
+        long[] desplazamientos = new long[segmentos + 1];
+        for (int i = 1; i < segmentos; i++) {
+            desplazamientos[i] = Math.round((double) i * segundosPorSegmento * tamano / duracionSegundos);
+        }
+        desplazamientos[segmentos] = tamano;
+        return new IndiceSegmentos(desplazamientos, segundosPorSegmento);
+    }
+
+    /**
+     * Índice ya calculado (tasa variable: los límites vienen de los marcos del archivo)
+     * @param desplazamientos inicio de cada segmento y, al final, el tamaño del archivo
+     */
+    public static IndiceSegmentos desde(long[] desplazamientos, int segundosPorSegmento) {
+        if (desplazamientos.length < 2 || desplazamientos[0] != 0 || segundosPorSegmento <= 0) {
+            throw new IllegalArgumentException("Índice de segmentos inválido");
+        }
+        for (int i = 1; i < desplazamientos.length; i++) {
+            if (desplazamientos[i] <= desplazamientos[i - 1]) {
+                throw new IllegalArgumentException("Desplazamientos no crecientes en el segmento " + i);
+            }
+        }
+        return new IndiceSegmentos(desplazamientos.clone(), segundosPorSegmento);
+    }
+
+    /**
+     * Segmento que contiene el minuto dado (el último si el minuto pasa del final)
+     */
+    public int segmentoDelMinuto(int minuto) {
+        if (minuto < 0) {
+            throw new IllegalArgumentException("Minuto negativo: " + minuto);
+        }
+        long segmento = minuto * 60L / segundosPorSegmento;
+        return (int) Math.min(segmento, getNumeroSegmentos() - 1);
+    }
+
+    public long inicio(int segmento) { return desplazamientos[segmento]; }
+    public long longitud(int segmento) { return desplazamientos[segmento + 1] - desplazamientos[segmento]; }
+    public int getNumeroSegmentos() { return desplazamientos.length - 1; }
+    public int getSegundosPorSegmento() { return segundosPorSegmento; }
+    public long getTamano() { return desplazamientos[desplazamientos.length - 1]; }
+
+    @Override
+    public String toString() {
+        return String.format("IndiceSegmentos{segmentos=%d, %d s, %d bytes}",
+                getNumeroSegmentos(), segundosPorSegmento, getTamano());
+    }
+}
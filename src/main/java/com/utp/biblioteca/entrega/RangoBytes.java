@@ -0,0 +1,62 @@
+package com.utp.biblioteca.entrega;
+
+/**
+ * Rango de una cabecera Range ("bytes=inicio-fin", "bytes=inicio-" o "bytes=-sufijo")
+ * Solo se atiende un rango; con varios se responde el archivo completo, como permite RFC 9110.
+ */
+final class RangoBytes {
+
+    /** Rango fuera del archivo: se responde 416 */
+    static final RangoBytes NO_SATISFACIBLE = new RangoBytes(-1, -1);
+
+    final long inicio;
+    final long fin; // inclusivo
+
+    private RangoBytes(long inicio, long fin) {
+        this.inicio = inicio;
+        this.fin = fin;
+    }
+
+    long getLongitud() { return fin - inicio + 1; }
+
+    /**
+     * @return el rango, NO_SATISFACIBLE, o null si la cabecera no se entiende o pide varios
+     *         rangos (se ignora y va el archivo completo)
+     */
+    static RangoBytes interpretar(String cabecera, long tamano) {
+        if (cabecera == null || !cabecera.startsWith("bytes=") || cabecera.indexOf(',') >= 0) {
+            return null;
+        }
+        String especificacion = cabecera.substring(6).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) {
+            return null;
+        }
+        try {
+            if (guion == 0) {
+                long sufijo = Long.parseLong(especificacion.substring(1));
+                if (sufijo <= 0 || tamano == 0) {
+                    return NO_SATISFACIBLE;
+                }
+                return new RangoBytes(Math.max(0, tamano - sufijo), tamano - 1);
+            }
+            long inicio = Long.parseLong(especificacion.substring(0, guion));
+            String textoFin = especificacion.substring(guion + 1);
+            long fin = textoFin.isEmpty() ? tamano - 1 : Math.min(Long.parseLong(textoFin), tamano - 1);
+            if (!textoFin.isEmpty() && Long.parseLong(textoFin) < inicio) {
+                return null; // sintácticamente inválido
+            }
+            if (inicio >= tamano) {
+                return NO_SATISFACIBLE;
+            }
+            return new RangoBytes(inicio, fin);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RangoBytes{%d-%d}", inicio, fin);
+    }
+}
@@ -0,0 +1,483 @@
+package com.utp.biblioteca.entrega;
+
+import com.utp.biblioteca.cuotas.LimitadorDescargas;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import com.utp.biblioteca.seguridad.TokenAcceso;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ServidorDescargas - ENTREGA DE EBOOKS SIN COPIAS
+ * Servidor HTTP/1.1 embebido para los archivos de CatalogoArchivos:
+ *   GET|HEAD /ebooks/{id}?token=...   (el enlace de EBook.generarEnlaceDescarga)
+ *
+ * - El cuerpo sale con FileChannel.transferTo hacia el socket: el sistema operativo copia
+ *   del caché de páginas a la red (sendfile) sin pasar los bytes por el heap.
+ * - Range de un solo rango (206/416) para reanudar descargas; If-Range con el ETag.
+ * - ETag / If-None-Match (304) para no volver a enviar un archivo que el lector ya tiene.
+ * - El token se valida con ServicioTokens.validarPara para ese eBook, sin ir a la base. Como
+ *   EBook.generarEnlaceDescarga no exige un préstamo, cada entrega además pregunta al
+ *   VerificadorPrestamos si el usuario del token tiene vigente el préstamo del eBook: sin él
+ *   responde 403. El cupo de la licencia (CuotaDescargas) se reservó al prestar, así que
+ *   reanudar o repetir la descarga del mismo préstamo no gasta otro cupo.
+ * - Ritmo: el cuerpo sale en tramos y cada tramo enviado se cobra del cubo de bytes del
+ *   usuario del token (LimitadorDescargas.cobrarEnviados). Pasada la ráfaga el hilo espera
+ *   lo que indique el limitador, así que la descarga va a los bytes por segundo de su perfil.
+ *
+ * Sockets bloqueantes con un grupo fijo de hilos: una conexión ocupa un hilo mientras está
+ * abierta, así que las conexiones inactivas se cierran a los ESPERA_INACTIVA_MS.
+ */
+public class ServidorDescargas implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServidorDescargas.class);
+
+    public static final String PREFIJO = "/ebooks/";
+
+    private static final int MAXIMO_CABECERAS = 8 * 1024;
+    private static final int ESPERA_INACTIVA_MS = 15_000;
+    private static final int BUFFER_COPIA = 64 * 1024;
+    private static final int TRAMO_RITMO = 256 * 1024; // por llamada a transferTo cuando se marca el ritmo
+
+    /**
+     * Solicitud ya leída: línea inicial y cabeceras (nombres en minúsculas)
+     */
+    private static final class Solicitud {
+        String metodo;
+        String ruta;
+        String consulta;
+        boolean http11;
+        final Map<String, String> cabeceras = new HashMap<>();
+
+        String cabecera(String nombre) { return cabeceras.get(nombre); }
+    }
+
+    private final CatalogoArchivos catalogo;
+    private final ServicioTokens tokens;
+    private final VerificadorPrestamos prestamos;
+    private final LimitadorDescargas limitador;
+    private final ExecutorService trabajadores;
+    private final Set<SocketChannel> conexiones = ConcurrentHashMap.newKeySet();
+    private volatile boolean ceroCopia = true;
+    private ServerSocketChannel servidor;
+    private Thread aceptador;
+
+    // Métricas
+    private final AtomicLong solicitudes = new AtomicLong();
+    private final AtomicLong completas = new AtomicLong();
+    private final AtomicLong parciales = new AtomicLong();
+    private final AtomicLong noModificadas = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+    private final AtomicLong bytesEnviados = new AtomicLong();
+    private final AtomicLong esperasRitmo = new AtomicLong();
+
+    /**
+     * Marca el ritmo con el limitador compartido (el mismo que consultan EBook y AudioLibro)
+     */
+    public ServidorDescargas(CatalogoArchivos catalogo, ServicioTokens tokens, VerificadorPrestamos prestamos,
+                             int hilos) {
+        this(catalogo, tokens, prestamos, LimitadorDescargas.compartido(), hilos);
+    }
+
+    /**
+     * @param limitador cubos de bytes con los que se marca el ritmo (null = sin límite, para medir)
+     */
+    public ServidorDescargas(CatalogoArchivos catalogo, ServicioTokens tokens, VerificadorPrestamos prestamos,
+                             LimitadorDescargas limitador, int hilos) {
+        if (hilos < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo: " + hilos);
+        }
+        this.catalogo = catalogo;
+        this.tokens = tokens;
+        this.prestamos = prestamos;
+        this.limitador = limitador;
+        AtomicInteger numero = new AtomicInteger();
+        this.trabajadores = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "descargas-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Abre el puerto y empieza a aceptar conexiones
+     * @param puerto puerto local, o 0 para uno libre (ver getPuerto)
+     */
+    public synchronized ServidorDescargas iniciar(int puerto) {
+        if (servidor != null) {
+            throw new IllegalStateException("El servidor ya está iniciado");
+        }
+        try {
+            servidor = ServerSocketChannel.open();
+            servidor.bind(new InetSocketAddress(puerto), 256);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el puerto " + puerto, e);
+        }
+        aceptador = new Thread(this::aceptar, "descargas-aceptador");
+        aceptador.setDaemon(true);
+        aceptador.start();
+        logger.info("Servidor de descargas en el puerto {} (cero copia: {})", getPuerto(), ceroCopia);
+        return this;
+    }
+
+    private void aceptar() {
+        while (servidor.isOpen()) {
+            try {
+                SocketChannel canal = servidor.accept();
+                try {
+                    trabajadores.execute(() -> atender(canal));
+                } catch (RejectedExecutionException e) {
+                    canal.close(); // cerrando
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                logger.warn("Error al aceptar una conexión: {}", e.getMessage());
+            }
+        }
+    }
+
+    // ===============================================================
+    // CONEXIÓN
+    // ===============================================================
+
+    private void atender(SocketChannel canal) {
+        conexiones.add(canal);
+        try (canal) {
+            Socket socket = canal.socket();
+            socket.setSoTimeout(ESPERA_INACTIVA_MS); // rige para el flujo de lectura del socket
+            socket.setTcpNoDelay(true);
+            InputStream entrada = new BufferedInputStream(socket.getInputStream());
+            while (true) {
+                Solicitud solicitud = leerSolicitud(entrada);
+                if (solicitud == null) {
+                    return;
+                }
+                solicitudes.incrementAndGet();
+                if (!responder(canal, solicitud)) {
+                    return;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            // conexión inactiva
+        } catch (IOException e) {
+            logger.debug("Conexión de descarga cerrada: {}", e.getMessage());
+        } finally {
+            conexiones.remove(canal);
+        }
+    }
+
+    /**
+     * @return la solicitud, o null si el cliente cerró la conexión antes de enviar otra
+     */
+    private static Solicitud leerSolicitud(InputStream entrada) throws IOException {
+        StringBuilder linea = new StringBuilder();
+        int leidos = 0;
+        Solicitud solicitud = null;
+        while (true) {
+            int b = entrada.read();
+            if (b < 0) {
+                if (solicitud == null && leidos == 0) {
+                    return null;
+                }
+                throw new IOException("Solicitud incompleta");
+            }
+            if (++leidos > MAXIMO_CABECERAS) {
+                throw new IOException("Cabeceras demasiado largas");
+            }
+            if (b != '\n') {
+                if (b != '\r') {
+                    linea.append((char) b); // ISO-8859-1
+                }
+                continue;
+            }
+            if (solicitud == null) {
+                solicitud = lineaInicial(linea.toString());
+            } else if (linea.length() == 0) {
+                return solicitud;
+            } else {
+                int dosPuntos = linea.indexOf(":");
+                if (dosPuntos > 0) {
+                    solicitud.cabeceras.put(linea.substring(0, dosPuntos).trim().toLowerCase(Locale.ROOT),
+                            linea.substring(dosPuntos + 1).trim());
+                }
+            }
+            linea.setLength(0);
+        }
+    }
+
+    private static Solicitud lineaInicial(String linea) throws IOException {
+        String[] partes = linea.split(" ");
+        if (partes.length != 3 || !partes[2].startsWith("HTTP/1.")) {
+            throw new IOException("Línea de solicitud inválida: " + linea);
+        }
+        Solicitud solicitud = new Solicitud();
+        solicitud.metodo = partes[0];
+        int interrogacion = partes[1].indexOf('?');
+        solicitud.ruta = interrogacion < 0 ? partes[1] : partes[1].substring(0, interrogacion);
+        solicitud.consulta = interrogacion < 0 ? "" : partes[1].substring(interrogacion + 1);
+        solicitud.http11 = partes[2].equals("HTTP/1.1");
+        return solicitud;
+    }
+
+    // ===============================================================
+    // RESPUESTA
+    // ===============================================================
+
+    /**
+     * @return true si la conexión sigue abierta para otra solicitud
+     */
+    private boolean responder(SocketChannel canal, Solicitud solicitud) throws IOException {
+        boolean mantener = solicitud.http11 && !"close".equalsIgnoreCase(solicitud.cabecera("connection"));
+        boolean cabeza = solicitud.metodo.equals("HEAD");
+        if (!cabeza && !solicitud.metodo.equals("GET")) {
+            return error(canal, 405, "Method Not Allowed", "Allow: GET, HEAD\r\n", mantener);
+        }
+        if (!solicitud.ruta.startsWith(PREFIJO)) {
+            return error(canal, 404, "Not Found", "", mantener);
+        }
+        String recursoId;
+        String token;
+        try {
+            recursoId = URLDecoder.decode(solicitud.ruta.substring(PREFIJO.length()), StandardCharsets.UTF_8);
+            token = parametro(solicitud.consulta, "token");
+        } catch (IllegalArgumentException e) {
+            return error(canal, 400, "Bad Request", "", mantener);
+        }
+        // Primero el token y el préstamo: sin ellos no se revela si el eBook está en el catálogo
+        TokenAcceso acceso = token == null ? null : tokens.validarPara(token, recursoId).orElse(null);
+        if (acceso == null || !prestamos.tieneVigente(acceso.getUsuarioId(), recursoId)) {
+            rechazadas.incrementAndGet();
+            return error(canal, 403, "Forbidden", "", mantener);
+        }
+        CatalogoArchivos.Archivo archivo = catalogo.buscar(recursoId);
+        if (archivo == null) {
+            return error(canal, 404, "Not Found", "", mantener);
+        }
+        String comunes = "ETag: " + archivo.etag + "\r\nAccept-Ranges: bytes\r\nCache-Control: private\r\n";
+        if (coincideEtag(solicitud.cabecera("if-none-match"), archivo.etag)) {
+            noModificadas.incrementAndGet();
+            escribir(canal, "HTTP/1.1 304 Not Modified\r\n" + comunes + conexion(mantener) + "\r\n");
+            return mantener;
+        }
+
+        RangoBytes rango = null;
+        String siRango = solicitud.cabecera("if-range");
+        if (siRango == null || siRango.equals(archivo.etag)) {
+            rango = RangoBytes.interpretar(solicitud.cabecera("range"), archivo.tamano);
+        }
+        if (rango == RangoBytes.NO_SATISFACIBLE) {
+            return error(canal, 416, "Range Not Satisfiable", "Content-Range: bytes */" + archivo.tamano + "\r\n",
+                    mantener);
+        }
+        long inicio = rango == null ? 0 : rango.inicio;
+        long longitud = rango == null ? archivo.tamano : rango.getLongitud();
+        StringBuilder cabeceras = new StringBuilder(256);
+        if (rango == null) {
+            cabeceras.append("HTTP/1.1 200 OK\r\n");
+        } else {
+            cabeceras.append("HTTP/1.1 206 Partial Content\r\nContent-Range: bytes ")
+                    .append(rango.inicio).append('-').append(rango.fin).append('/').append(archivo.tamano)
+                    .append("\r\n");
+        }
+        cabeceras.append("Content-Type: ").append(archivo.tipoContenido).append("\r\n")
+                .append("Content-Length: ").append(longitud).append("\r\n")
+                .append(comunes).append(conexion(mantener)).append("\r\n");
+        escribir(canal, cabeceras.toString());
+        if (!cabeza) {
+            enviarCuerpo(canal, acceso, archivo, inicio, longitud);
+            bytesEnviados.addAndGet(longitud);
+        }
+        (rango == null ? completas : parciales).incrementAndGet();
+        return mantener;
+    }
+
+    private void enviarCuerpo(SocketChannel canal, TokenAcceso acceso, CatalogoArchivos.Archivo archivo,
+                              long inicio, long longitud) throws IOException {
+        try (FileChannel origen = FileChannel.open(archivo.ruta, StandardOpenOption.READ)) {
+            if (ceroCopia) {
+                long tramo = limitador == null ? Long.MAX_VALUE : TRAMO_RITMO;
+                long enviados = 0;
+                while (enviados < longitud) {
+                    long n = origen.transferTo(inicio + enviados, Math.min(tramo, longitud - enviados), canal);
+                    if (n <= 0) {
+                        throw new IOException("El archivo cambió durante la descarga: " + archivo.ruta);
+                    }
+                    enviados += n;
+                    marcarRitmo(acceso, n);
+                }
+                return;
+            }
+            // Copia con buffer en el heap: archivo -> heap -> buffer directo temporal -> socket
+            InputStream entrada = Channels.newInputStream(origen.position(inicio));
+            byte[] buffer = new byte[BUFFER_COPIA];
+            long restantes = longitud;
+            while (restantes > 0) {
+                int n = entrada.read(buffer, 0, (int) Math.min(buffer.length, restantes));
+                if (n < 0) {
+                    throw new IOException("El archivo cambió durante la descarga: " + archivo.ruta);
+                }
+                ByteBuffer bloque = ByteBuffer.wrap(buffer, 0, n);
+                while (bloque.hasRemaining()) {
+                    canal.write(bloque);
+                }
+                restantes -= n;
+                marcarRitmo(acceso, n);
+            }
+        }
+    }
+
+    /**
+     * Cobra un tramo ya enviado y espera si el usuario pasó su ráfaga de bytes
+     */
+    private void marcarRitmo(TokenAcceso acceso, long enviados) throws IOException {
+        if (limitador == null) {
+            return;
+        }
+        long espera = limitador.cobrarEnviados(acceso.getUsuarioId(), acceso.getTipoUsuario(), enviados);
+        if (espera <= 0) {
+            return;
+        }
+        esperasRitmo.incrementAndGet();
+        try {
+            TimeUnit.NANOSECONDS.sleep(espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Descarga interrumpida mientras esperaba su ritmo");
+        }
+    }
+
+    private boolean error(SocketChannel canal, int estado, String razon, String extra, boolean mantener)
+            throws IOException {
+        String cuerpo = estado + " " + razon + "\n";
+        escribir(canal, "HTTP/1.1 " + estado + " " + razon + "\r\n" + extra
+                + "Content-Type: text/plain; charset=utf-8\r\nContent-Length: " + cuerpo.length() + "\r\n"
+                + conexion(mantener) + "\r\n" + cuerpo);
+        return mantener;
+    }
+
+    private static void escribir(SocketChannel canal, String texto) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(texto.getBytes(StandardCharsets.ISO_8859_1));
+        while (bytes.hasRemaining()) {
+            canal.write(bytes);
+        }
+    }
+
+    private static String conexion(boolean mantener) {
+        return mantener ? "" : "Connection: close\r\n";
+    }
+
+    private static boolean coincideEtag(String siNoCoincide, String etag) {
+        if (siNoCoincide == null) {
+            return false;
+        }
+        for (String candidato : siNoCoincide.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2); // comparación débil, como pide If-None-Match
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String parametro(String consulta, String nombre) {
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0 && par.substring(0, igual).equals(nombre)) {
+                return URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    // ===============================================================
+    // CONFIGURACIÓN Y MÉTRICAS
+    // ===============================================================
+
+    /**
+     * false: copia con buffer en el heap en lugar de transferTo (referencia para medir)
+     */
+    public void setCeroCopia(boolean ceroCopia) { this.ceroCopia = ceroCopia; }
+    public boolean isCeroCopia() { return ceroCopia; }
+
+    public int getPuerto() {
+        try {
+            return ((InetSocketAddress) servidor.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getSolicitudes() { return solicitudes.get(); }
+    public long getDescargasCompletas() { return completas.get(); }
+    public long getDescargasParciales() { return parciales.get(); }
+    public long getNoModificadas() { return noModificadas.get(); }
+    public long getRechazadas() { return rechazadas.get(); }
+    public long getBytesEnviados() { return bytesEnviados.get(); }
+    public long getEsperasRitmo() { return esperasRitmo.get(); }
+
+    /**
+     * Deja de aceptar conexiones y cierra las abiertas
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (servidor != null) {
+                servidor.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Error al cerrar el servidor de descargas: {}", e.getMessage());
+        }
+        trabajadores.shutdown();
+        for (SocketChannel canal : conexiones) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // ya cerrada
+            }
+        }
+        try {
+            trabajadores.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Servidor de descargas cerrado: {}", this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ServidorDescargas{solicitudes=%d, completas=%d, parciales=%d, 304=%d, rechazadas=%d, "
+                        + "bytes=%d, esperas=%d}", solicitudes.get(), completas.get(), parciales.get(),
+                noModificadas.get(), rechazadas.get(), bytesEnviados.get(), esperasRitmo.get());
+    }
+}
@@ -0,0 +1,546 @@
+package com.utp.biblioteca.entrega;
+
+import com.utp.biblioteca.cuotas.LimitadorDescargas;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import com.utp.biblioteca.seguridad.TokenAcceso;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ServidorStreaming - AUDIO POR SEGMENTOS
+ * Servidor HTTP/1.1 para las variantes de CatalogoAudio, con la URL de
+ * AudioLibro.generarUrlStreaming más el segmento pedido:
+ *   GET|HEAD /audio/{id}?token=...&quality=alta&segmento=12
+ *   GET|HEAD /audio/{id}?token=...&quality=alta&minuto=42     (búsqueda por minuto)
+ * La respuesta lleva X-Segmento, X-Segmentos y X-Inicio-Segundos para que el reproductor
+ * siga con el segmento siguiente, en la misma calidad o en otra.
+ *
+ * El token se comprueba antes que el catálogo (403 sin revelar si el audiolibro existe). Lleva
+ * firmadas las calidades que autoriza (AudioLibro.calidadesStreaming): cambiar entre ellas
+ * no pide otro token, otra quality= es 403 y sin quality= se usa la primera firmada. Un token
+ * sin calidad autoriza todas las variantes.
+ *
+ * Un solo hilo atiende todas las conexiones con un Selector (sin hilos virtuales en Java 17):
+ * miles de oyentes conectados cuestan un objeto Conexion cada uno, no un hilo. Los segmentos
+ * salen como vistas del archivo mapeado, con escrituras no bloqueantes; un segmento que no
+ * está en el caché de páginas detiene el bucle mientras el sistema operativo lo lee.
+ *
+ * Cada conexión anota su última lectura o escritura con avance; en cada pasada del bucle
+ * (como mucho una vez por INTERVALO_BARRIDO_MS) se cierran las que llevan más de la espera
+ * inactiva sin avanzar: clientes colgados o que dejaron de leer no retienen su Conexion.
+ *
+ * Ritmo: lo que se escribe se cobra del cubo de bytes del usuario del token
+ * (LimitadorDescargas.cobrarEnviados). Si el limitador pide esperar, la conexión deja de
+ * escuchar eventos y entra en una cola por hora de reanudación; el bucle la retoma a esa hora
+ * sin bloquear a los demás oyentes. Una conexión en pausa no cuenta como inactiva.
+ */
+public class ServidorStreaming implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServidorStreaming.class);
+
+    public static final String PREFIJO = "/audio/";
+
+    public static final long ESPERA_INACTIVA_DEFAULT_MS = 15_000;
+
+    private static final int MAXIMO_CABECERAS = 8 * 1024;
+    private static final long INTERVALO_BARRIDO_MS = 1_000;
+
+    /**
+     * Estado de una conexión: lo leído de la solicitud en curso y la respuesta pendiente
+     */
+    private static final class Conexion {
+        final ByteBuffer entrada = ByteBuffer.allocate(MAXIMO_CABECERAS);
+        ByteBuffer[] salida;
+        boolean cerrarAlTerminar;
+        String ultimaCalidad;
+        long ultimaActividad = System.nanoTime();
+        // Usuario del token de la respuesta en curso, a quien se cobran los bytes (null = error)
+        String usuarioId;
+        String tipoUsuario;
+        boolean pausada;
+        long reanudarEn;
+    }
+
+    private final CatalogoAudio catalogo;
+    private final ServicioTokens tokens;
+    private final LimitadorDescargas limitador;
+    private final PriorityQueue<SelectionKey> pausadas = new PriorityQueue<>(
+            Comparator.comparingLong(clave -> ((Conexion) clave.attachment()).reanudarEn));
+    private final long esperaInactivaNanos;
+    private final long intervaloBarridoMs;
+    private Selector selector;
+    private ServerSocketChannel servidor;
+    private Thread bucle;
+    private volatile boolean activo;
+
+    // Métricas
+    private final AtomicInteger conexionesAbiertas = new AtomicInteger();
+    private final AtomicLong segmentos = new AtomicLong();
+    private final AtomicLong busquedas = new AtomicLong();
+    private final AtomicLong cambiosCalidad = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+    private final AtomicLong bytesEnviados = new AtomicLong();
+    private final AtomicLong inactivasCerradas = new AtomicLong();
+    private final AtomicLong pausasRitmo = new AtomicLong();
+
+    public ServidorStreaming(CatalogoAudio catalogo, ServicioTokens tokens) {
+        this(catalogo, tokens, ESPERA_INACTIVA_DEFAULT_MS);
+    }
+
+    /**
+     * Marca el ritmo con el limitador compartido (el mismo que consulta AudioLibro)
+     * @param esperaInactivaMs tiempo sin leer ni escribir nada tras el que se cierra una conexión
+     */
+    public ServidorStreaming(CatalogoAudio catalogo, ServicioTokens tokens, long esperaInactivaMs) {
+        this(catalogo, tokens, LimitadorDescargas.compartido(), esperaInactivaMs);
+    }
+
+    /**
+     * @param limitador cubos de bytes con los que se marca el ritmo (null = sin límite, para medir)
+     */
+    public ServidorStreaming(CatalogoAudio catalogo, ServicioTokens tokens, LimitadorDescargas limitador,
+                             long esperaInactivaMs) {
+        if (esperaInactivaMs <= 0) {
+            throw new IllegalArgumentException("La espera inactiva debe ser positiva");
+        }
+        this.catalogo = catalogo;
+        this.tokens = tokens;
+        this.limitador = limitador;
+        this.esperaInactivaNanos = esperaInactivaMs * 1_000_000;
+        this.intervaloBarridoMs = Math.min(INTERVALO_BARRIDO_MS, esperaInactivaMs);
+    }
+
+    /**
+     * Abre el puerto y arranca el bucle de eventos
+     * @param puerto puerto local, o 0 para uno libre (ver getPuerto)
+     */
+    public synchronized ServidorStreaming iniciar(int puerto) {
+        if (servidor != null) {
+            throw new IllegalStateException("El servidor ya está iniciado");
+        }
+        try {
+            selector = Selector.open();
+            servidor = ServerSocketChannel.open();
+            servidor.bind(new InetSocketAddress(puerto), 4096);
+            servidor.configureBlocking(false);
+            servidor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el puerto " + puerto, e);
+        }
+        activo = true;
+        bucle = new Thread(this::ejecutar, "streaming-bucle");
+        bucle.setDaemon(true);
+        bucle.start();
+        logger.info("Servidor de streaming en el puerto {}", getPuerto());
+        return this;
+    }
+
+    private void ejecutar() {
+        long proximoBarrido = System.nanoTime() + intervaloBarridoMs * 1_000_000;
+        try {
+            while (activo) {
+                // Despierta aunque no haya eventos, para el barrido y para reanudar las pausadas
+                long espera = esperaSeleccion();
+                if (espera > 0) {
+                    selector.select(espera);
+                } else {
+                    selector.selectNow();
+                }
+                Iterator<SelectionKey> listas = selector.selectedKeys().iterator();
+                while (listas.hasNext()) {
+                    SelectionKey clave = listas.next();
+                    listas.remove();
+                    try {
+                        if (clave.isAcceptable()) {
+                            aceptar();
+                        } else if (clave.isReadable()) {
+                            leer(clave);
+                        } else if (clave.isWritable()) {
+                            escribir(clave);
+                        }
+                    } catch (IOException e) {
+                        logger.debug("Conexión de streaming cerrada: {}", e.getMessage());
+                        cerrar(clave);
+                    } catch (RuntimeException e) {
+                        // Un fallo al atender una conexión no debe detener el bucle de todas las demás
+                        logger.error("Error inesperado en una conexión de streaming", e);
+                        if (clave.isValid() && clave.channel() != servidor) {
+                            cerrar(clave);
+                        }
+                    }
+                }
+                long ahora = System.nanoTime();
+                reanudarPausadas(ahora);
+                if (ahora - proximoBarrido >= 0) {
+                    cerrarInactivas(ahora);
+                    proximoBarrido = ahora + intervaloBarridoMs * 1_000_000;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Bucle de streaming detenido", e);
+        } finally {
+            for (SelectionKey clave : selector.keys()) {
+                try {
+                    clave.channel().close();
+                } catch (IOException e) {
+                    // ya cerrada
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.warn("Error al cerrar el selector de streaming: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void aceptar() throws IOException {
+        SocketChannel canal;
+        while ((canal = servidor.accept()) != null) {
+            canal.configureBlocking(false);
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            canal.register(selector, SelectionKey.OP_READ, new Conexion());
+            conexionesAbiertas.incrementAndGet();
+        }
+    }
+
+    /**
+     * Milisegundos que puede esperar select: hasta el barrido o la próxima reanudación (0 = ya)
+     */
+    private long esperaSeleccion() {
+        SelectionKey siguiente = pausadas.peek();
+        if (siguiente == null) {
+            return intervaloBarridoMs;
+        }
+        long faltan = ((Conexion) siguiente.attachment()).reanudarEn - System.nanoTime();
+        if (faltan <= 0) {
+            return 0;
+        }
+        return Math.min(intervaloBarridoMs, TimeUnit.NANOSECONDS.toMillis(faltan + 999_999)); // redondeo arriba
+    }
+
+    /**
+     * Retoma las conexiones pausadas por ritmo cuya hora ya llegó
+     */
+    private void reanudarPausadas(long ahora) {
+        while (!pausadas.isEmpty()) {
+            SelectionKey clave = pausadas.peek();
+            Conexion conexion = (Conexion) clave.attachment();
+            if (conexion.reanudarEn - ahora > 0) {
+                return;
+            }
+            pausadas.poll();
+            conexion.pausada = false;
+            conexion.ultimaActividad = ahora; // la pausa no cuenta para la espera inactiva
+            if (!clave.isValid()) {
+                continue;
+            }
+            try {
+                if (conexion.salida != null) {
+                    escribir(clave);
+                } else {
+                    clave.interestOps(SelectionKey.OP_READ);
+                    procesar(clave, conexion); // solicitudes encadenadas que llegaron durante la pausa
+                }
+            } catch (IOException e) {
+                logger.debug("Conexión de streaming cerrada: {}", e.getMessage());
+                cerrar(clave);
+            } catch (RuntimeException e) {
+                logger.error("Error inesperado al reanudar una conexión de streaming", e);
+                if (clave.isValid()) {
+                    cerrar(clave);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cierra las conexiones sin lecturas ni escrituras con avance durante la espera inactiva
+     */
+    private void cerrarInactivas(long ahora) {
+        for (SelectionKey clave : selector.keys()) {
+            Object adjunto = clave.attachment();
+            if (clave.isValid() && adjunto instanceof Conexion && !((Conexion) adjunto).pausada
+                    && ahora - ((Conexion) adjunto).ultimaActividad > esperaInactivaNanos) {
+                inactivasCerradas.incrementAndGet();
+                cerrar(clave);
+            }
+        }
+    }
+
+    private void cerrar(SelectionKey clave) {
+        clave.cancel();
+        conexionesAbiertas.decrementAndGet(); // antes del cierre, que es lo que ve el cliente
+        try {
+            clave.channel().close();
+        } catch (IOException e) {
+            // ya cerrada
+        }
+    }
+
+    // ===============================================================
+    // LECTURA Y ESCRITURA NO BLOQUEANTES
+    // ===============================================================
+
+    private void leer(SelectionKey clave) throws IOException {
+        Conexion conexion = (Conexion) clave.attachment();
+        int leidos = ((SocketChannel) clave.channel()).read(conexion.entrada);
+        if (leidos < 0) {
+            cerrar(clave);
+            return;
+        }
+        if (leidos > 0) {
+            conexion.ultimaActividad = System.nanoTime();
+        }
+        procesar(clave, conexion);
+    }
+
+    /**
+     * Responde las solicitudes completas que haya en la entrada, una tras otra, hasta que una
+     * respuesta no entre entera en el socket
+     */
+    private void procesar(SelectionKey clave, Conexion conexion) throws IOException {
+        while (conexion.salida == null) {
+            ByteBuffer entrada = conexion.entrada;
+            int fin = finCabeceras(entrada);
+            if (fin < 0) {
+                if (!entrada.hasRemaining()) {
+                    throw new IOException("Cabeceras demasiado largas");
+                }
+                return;
+            }
+            String texto = new String(entrada.array(), 0, fin, StandardCharsets.ISO_8859_1);
+            entrada.flip().position(fin);
+            entrada.compact();
+            conexion.salida = responder(conexion, texto);
+            if (!enviar(clave, conexion)) {
+                return;
+            }
+        }
+    }
+
+    private void escribir(SelectionKey clave) throws IOException {
+        Conexion conexion = (Conexion) clave.attachment();
+        if (enviar(clave, conexion)) {
+            procesar(clave, conexion); // solicitudes encadenadas que esperaban
+        }
+    }
+
+    /**
+     * @return true si la respuesta salió entera y la conexión sigue lista para leer
+     */
+    private boolean enviar(SelectionKey clave, Conexion conexion) throws IOException {
+        SocketChannel canal = (SocketChannel) clave.channel();
+        ByteBuffer[] salida = conexion.salida;
+        long escritos = canal.write(salida);
+        long espera = 0;
+        if (escritos > 0) {
+            conexion.ultimaActividad = System.nanoTime();
+            bytesEnviados.addAndGet(escritos);
+            if (limitador != null && conexion.usuarioId != null) {
+                espera = limitador.cobrarEnviados(conexion.usuarioId, conexion.tipoUsuario, escritos);
+            }
+        }
+        boolean pendiente = salida[salida.length - 1].hasRemaining();
+        if (!pendiente) {
+            conexion.salida = null;
+            if (conexion.cerrarAlTerminar) {
+                cerrar(clave);
+                return false;
+            }
+        }
+        if (espera > 0) {
+            // Ni escribir el resto ni leer la siguiente solicitud hasta la hora de reanudar
+            clave.interestOps(0);
+            conexion.pausada = true;
+            conexion.reanudarEn = conexion.ultimaActividad + espera;
+            pausadas.add(clave);
+            pausasRitmo.incrementAndGet();
+            return false;
+        }
+        clave.interestOps(pendiente ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        return !pendiente;
+    }
+
+    private static int finCabeceras(ByteBuffer entrada) {
+        byte[] bytes = entrada.array();
+        for (int i = 3; i < entrada.position(); i++) {
+            if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // ===============================================================
+    // RESPUESTA
+    // ===============================================================
+
+    private ByteBuffer[] responder(Conexion conexion, String texto) {
+        conexion.usuarioId = null;
+        conexion.tipoUsuario = null;
+        int finLinea = texto.indexOf("\r\n");
+        String[] partes = texto.substring(0, finLinea).split(" ");
+        if (partes.length != 3 || !partes[2].startsWith("HTTP/1.")) {
+            conexion.cerrarAlTerminar = true;
+            return error(conexion, 400, "Bad Request");
+        }
+        conexion.cerrarAlTerminar = !partes[2].equals("HTTP/1.1")
+                || texto.toLowerCase(Locale.ROOT).contains("\r\nconnection: close");
+        boolean cabeza = partes[0].equals("HEAD");
+        if (!cabeza && !partes[0].equals("GET")) {
+            return error(conexion, 405, "Method Not Allowed");
+        }
+        int interrogacion = partes[1].indexOf('?');
+        String ruta = interrogacion < 0 ? partes[1] : partes[1].substring(0, interrogacion);
+        if (!ruta.startsWith(PREFIJO)) {
+            return error(conexion, 404, "Not Found");
+        }
+        Map<String, String> parametros;
+        String recursoId;
+        try {
+            parametros = parametros(interrogacion < 0 ? "" : partes[1].substring(interrogacion + 1));
+            recursoId = URLDecoder.decode(ruta.substring(PREFIJO.length()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return error(conexion, 400, "Bad Request");
+        }
+        String token = parametros.get("token");
+        TokenAcceso acceso = token == null ? null : tokens.validarPara(token, recursoId).orElse(null);
+        String calidad = parametros.get("quality");
+        if (acceso == null || (calidad != null && !acceso.permiteCalidad(calidad))) {
+            rechazadas.incrementAndGet();
+            return error(conexion, 403, "Forbidden");
+        }
+        conexion.usuarioId = acceso.getUsuarioId();
+        conexion.tipoUsuario = acceso.getTipoUsuario();
+        CatalogoAudio.Audio audio = catalogo.buscar(recursoId);
+        if (audio == null) {
+            return error(conexion, 404, "Not Found");
+        }
+        CatalogoAudio.Variante variante = audio.variante(calidad != null ? calidad : acceso.getCalidad());
+        if (variante == null) {
+            return error(conexion, 404, "Not Found");
+        }
+        int numero;
+        try {
+            String minuto = parametros.get("minuto");
+            if (minuto != null) {
+                numero = variante.indice.segmentoDelMinuto(Integer.parseInt(minuto));
+                busquedas.incrementAndGet();
+            } else {
+                numero = Integer.parseInt(parametros.getOrDefault("segmento", "0"));
+            }
+        } catch (IllegalArgumentException e) {
+            return error(conexion, 400, "Bad Request");
+        }
+        if (numero < 0 || numero >= variante.indice.getNumeroSegmentos()) {
+            return error(conexion, 404, "Not Found");
+        }
+        if (conexion.ultimaCalidad != null && !conexion.ultimaCalidad.equals(variante.calidad)) {
+            cambiosCalidad.incrementAndGet();
+        }
+        conexion.ultimaCalidad = variante.calidad;
+
+        ByteBuffer cuerpo = variante.segmento(numero);
+        String cabeceras = "HTTP/1.1 200 OK\r\nContent-Type: " + variante.tipoContenido
+                + "\r\nContent-Length: " + cuerpo.remaining()
+                + "\r\nX-Segmento: " + numero
+                + "\r\nX-Segmentos: " + variante.indice.getNumeroSegmentos()
+                + "\r\nX-Inicio-Segundos: " + (long) numero * variante.indice.getSegundosPorSegmento()
+                + "\r\nCache-Control: private\r\n" + conexion(conexion) + "\r\n";
+        segmentos.incrementAndGet();
+        ByteBuffer inicio = ByteBuffer.wrap(cabeceras.getBytes(StandardCharsets.ISO_8859_1));
+        return cabeza ? new ByteBuffer[] {inicio} : new ByteBuffer[] {inicio, cuerpo};
+    }
+
+    private static ByteBuffer[] error(Conexion conexion, int estado, String razon) {
+        String cuerpo = estado + " " + razon + "\n";
+        String respuesta = "HTTP/1.1 " + estado + " " + razon
+                + "\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: " + cuerpo.length() + "\r\n"
+                + conexion(conexion) + "\r\n" + cuerpo;
+        return new ByteBuffer[] {ByteBuffer.wrap(respuesta.getBytes(StandardCharsets.ISO_8859_1))};
+    }
+
+    private static String conexion(Conexion conexion) {
+        return conexion.cerrarAlTerminar ? "Connection: close\r\n" : "";
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0) {
+                parametros.put(par.substring(0, igual), URLDecoder.decode(par.substring(igual + 1),
+                        StandardCharsets.UTF_8));
+            }
+        }
+        return parametros;
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    public int getPuerto() {
+        try {
+            return ((InetSocketAddress) servidor.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getConexionesAbiertas() { return conexionesAbiertas.get(); }
+    public long getSegmentos() { return segmentos.get(); }
+    public long getBusquedas() { return busquedas.get(); }
+    public long getCambiosCalidad() { return cambiosCalidad.get(); }
+    public long getRechazadas() { return rechazadas.get(); }
+    public long getBytesEnviados() { return bytesEnviados.get(); }
+    public long getInactivasCerradas() { return inactivasCerradas.get(); }
+    public long getPausasRitmo() { return pausasRitmo.get(); }
+
+    /**
+     * Detiene el bucle, que cierra el puerto y todas las conexiones
+     */
+    @Override
+    public synchronized void close() {
+        if (!activo) {
+            return;
+        }
+        activo = false;
+        selector.wakeup();
+        try {
+            bucle.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Servidor de streaming cerrado: {}", this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ServidorStreaming{conexiones=%d, segmentos=%d, busquedas=%d, cambiosCalidad=%d, "
+                        + "rechazadas=%d, inactivas=%d, pausas=%d, bytes=%d}", conexionesAbiertas.get(),
+                segmentos.get(), busquedas.get(), cambiosCalidad.get(), rechazadas.get(), inactivasCerradas.get(),
+                pausasRitmo.get(), bytesEnviados.get());
+    }
+}
@@ -0,0 +1,15 @@
+package com.utp.biblioteca.entrega;
+
+/**
+ * Interface VerificadorPrestamos
+ * Consulta si un usuario tiene vigente el préstamo de un recurso. ServidorDescargas la usa al
+ * entregar cada archivo: el token prueba a quién se emitió el enlace, el préstamo prueba que
+ * la descarga pasó por la circulación (y por su cupo de licencia, si hay CuotaDescargas).
+ * Con base de datos: RepositorioPrestamos::tieneVigenteConCupo si hay CuotaDescargas
+ * (solo préstamos que reservaron su cupo), o RepositorioPrestamos::tieneVigente si no.
+ */
+@FunctionalInterface
+public interface VerificadorPrestamos {
+
+    boolean tieneVigente(String usuarioId, String recursoId);
+}
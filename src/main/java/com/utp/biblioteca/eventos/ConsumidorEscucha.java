@@ -0,0 +1,55 @@
+package com.utp.biblioteca.eventos;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.servicio.EscuchaCirculacion;
+import jakarta.persistence.EntityManager;
+
+/**
+ * ConsumidorEscucha - ADAPTADOR
+ * Permite conectar una EscuchaCirculacion existente (estadísticas, cachés, escritura diferida)
+ * al relevo: carga el préstamo o la reserva del evento y llama al método correspondiente.
+ */
+public class ConsumidorEscucha implements ConsumidorEventos {
+
+    private final String nombre;
+    private final EscuchaCirculacion escucha;
+
+    public ConsumidorEscucha(String nombre, EscuchaCirculacion escucha) {
+        this.nombre = nombre;
+        this.escucha = escucha;
+    }
+
+    @Override
+    public String getNombre() { return nombre; }
+
+    @Override
+    public void procesar(EventoCirculacion evento, EntityManager em) {
+        if (evento.getTipo() == TipoEvento.RESERVA) {
+            Reserva reserva = em.find(Reserva.class, evento.getAgregadoId());
+            if (reserva != null) {
+                escucha.alReservar(reserva);
+            }
+            return;
+        }
+        Prestamo prestamo = em.find(Prestamo.class, evento.getAgregadoId());
+        if (prestamo == null) {
+            return;
+        }
+        switch (evento.getTipo()) {
+            case PRESTAMO:
+                escucha.alPrestar(prestamo);
+                break;
+            case DEVOLUCION:
+                escucha.alDevolver(prestamo);
+                break;
+            case MULTA:
+                if (prestamo.getMulta() != null) {
+                    escucha.alGenerarMulta(prestamo, prestamo.getMulta());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.utp.biblioteca.eventos;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Interface ConsumidorEventos
+ * Destino de los eventos que publica RelevoEventos. La entrega es AL MENOS UNA VEZ:
+ * los cambios hechos con el EntityManager recibido se confirman junto con la marca de
+ * consumo (efecto exactamente una vez); los efectos externos (avisos, índices en memoria)
+ * pueden repetirse tras una caída y deben tolerarlo.
+ */
+public interface ConsumidorEventos {
+
+    /**
+     * Nombre estable: identifica al consumidor en el registro de idempotencia
+     */
+    String getNombre();
+
+    /**
+     * Procesa un evento aún no consumido por este consumidor.
+     * Lanzar una excepción revierte la entrega; el evento se reintenta más tarde con espera
+     * creciente y, agotados los intentos, queda descartado (ver RelevoEventos).
+     */
+    void procesar(EventoCirculacion evento, EntityManager em);
+}
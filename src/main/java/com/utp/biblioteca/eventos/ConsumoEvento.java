@@ -0,0 +1,41 @@
+package com.utp.biblioteca.eventos;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Clase ConsumoEvento - REGISTRO DE IDEMPOTENCIA
+ * Marca que un consumidor ya procesó un evento. Se guarda en la misma transacción que los
+ * cambios del consumidor, así que una entrega repetida se reconoce y se omite.
+ */
+@Entity
+@Table(name = "evento_consumido")
+public class ConsumoEvento {
+
+    // consumidor + "|" + clave del evento
+    @Id
+    @Column(length = 160)
+    private String id;
+    private Instant fechaConsumo;
+
+    /**
+     * Constructor requerido por JPA
+     */
+    protected ConsumoEvento() {
+    }
+
+    ConsumoEvento(String consumidor, String claveEvento) {
+        this.id = clave(consumidor, claveEvento);
+        this.fechaConsumo = Instant.now();
+    }
+
+    static String clave(String consumidor, String claveEvento) {
+        return consumidor + "|" + claveEvento;
+    }
+
+    public String getId() { return id; }
+    public Instant getFechaConsumo() { return fechaConsumo; }
+}
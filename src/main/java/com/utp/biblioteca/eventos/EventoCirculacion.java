@@ -0,0 +1,131 @@
+package com.utp.biblioteca.eventos;
+
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Clase EventoCirculacion - BANDEJA DE SALIDA (OUTBOX)
+ * Fila que se inserta en la MISMA transacción que el Prestamo, la Reserva o la Multa que describe:
+ * o se confirman los dos o ninguno. RelevoEventos la publica después a los consumidores.
+ *
+ * La clave de idempotencia se deriva del hecho (tipo + id de la entidad), así que un mismo
+ * préstamo nunca produce dos eventos PRESTAMO y los consumidores pueden descartar repeticiones.
+ *
+ * Un evento cuya entrega falla se reintenta con espera creciente (intentos, proximoIntento);
+ * agotados los intentos queda descartado (carta muerta) hasta que se reactive a mano.
+ */
+@Entity
+@Table(name = "evento_circulacion", indexes = {
+        @Index(name = "idx_evento_pendiente", columnList = "publicado, id")
+})
+public class EventoCirculacion {
+
+    // Orden de publicación (secuencia de la base, asignada en bloques para no perder los lotes JDBC)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "evento_circulacion_seq")
+    @SequenceGenerator(name = "evento_circulacion_seq", sequenceName = "evento_circulacion_seq", allocationSize = 50)
+    private Long id;
+    @Column(length = 64, nullable = false, unique = true)
+    private String clave;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private TipoEvento tipo;
+
+    // Préstamo o reserva al que se refiere el evento (para MULTA, el préstamo que la generó)
+    @Column(length = 36)
+    private String agregadoId;
+    @Column(length = 36)
+    private String usuarioId;
+    @Column(length = 36)
+    private String recursoId;
+    private Double monto;
+
+    private Instant fechaCreacion;
+    private boolean publicado;
+    private Instant fechaPublicacion;
+
+    // Entregas fallidas: el relevo no vuelve a leerlo antes de proximoIntento
+    private int intentos;
+    private Instant proximoIntento;
+    private boolean descartado;
+    @Column(length = 500)
+    private String ultimoError;
+
+    /**
+     * Constructor requerido por JPA
+     */
+    protected EventoCirculacion() {
+    }
+
+    private EventoCirculacion(TipoEvento tipo, String entidadId, String agregadoId,
+                              String usuarioId, String recursoId, Double monto) {
+        this.clave = tipo.name() + ":" + entidadId;
+        this.tipo = tipo;
+        this.agregadoId = agregadoId;
+        this.usuarioId = usuarioId;
+        this.recursoId = recursoId;
+        this.monto = monto;
+        this.fechaCreacion = Instant.now();
+    }
+
+    // ===============================================================
+    // FÁBRICAS
+    // ===============================================================
+
+    public static EventoCirculacion prestamo(Prestamo prestamo) {
+        return new EventoCirculacion(TipoEvento.PRESTAMO, prestamo.getId(), prestamo.getId(),
+                prestamo.getUsuarioId(), prestamo.getRecursoId(), null);
+    }
+
+    public static EventoCirculacion devolucion(Prestamo prestamo) {
+        return new EventoCirculacion(TipoEvento.DEVOLUCION, prestamo.getId(), prestamo.getId(),
+                prestamo.getUsuarioId(), prestamo.getRecursoId(), null);
+    }
+
+    public static EventoCirculacion multa(Prestamo prestamo, Multa multa) {
+        return new EventoCirculacion(TipoEvento.MULTA, multa.getId(), prestamo.getId(),
+                prestamo.getUsuarioId(), prestamo.getRecursoId(), multa.getMonto());
+    }
+
+    public static EventoCirculacion reserva(Reserva reserva) {
+        return new EventoCirculacion(TipoEvento.RESERVA, reserva.getId(), reserva.getId(),
+                reserva.getUsuarioId(), reserva.getRecursoId(), null);
+    }
+
+    // ===============================================================
+    // GETTERS
+    // ===============================================================
+
+    public Long getId() { return id; }
+    public String getClave() { return clave; }
+    public TipoEvento getTipo() { return tipo; }
+    public String getAgregadoId() { return agregadoId; }
+    public String getUsuarioId() { return usuarioId; }
+    public String getRecursoId() { return recursoId; }
+    public Double getMonto() { return monto; }
+    public Instant getFechaCreacion() { return fechaCreacion; }
+    public boolean isPublicado() { return publicado; }
+    public Instant getFechaPublicacion() { return fechaPublicacion; }
+    public int getIntentos() { return intentos; }
+    public Instant getProximoIntento() { return proximoIntento; }
+    public boolean isDescartado() { return descartado; }
+    public String getUltimoError() { return ultimoError; }
+
+    @Override
+    public String toString() {
+        return String.format("EventoCirculacion{id=%d, clave='%s', usuario='%s', recurso='%s', publicado=%s}",
+                id, clave, usuarioId, recursoId, publicado);
+    }
+}
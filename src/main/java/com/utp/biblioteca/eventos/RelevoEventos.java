@@ -0,0 +1,411 @@
+package com.utp.biblioteca.eventos;
+
+import com.utp.biblioteca.persistencia.GestorPersistencia;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * RelevoEventos - PUBLICACIÓN DE LA BANDEJA DE SALIDA
+ * Sondea periódicamente los EventoCirculacion no publicados (en orden de id y por lotes)
+ * y los entrega a cada consumidor. Solo cuando TODOS los consumidores confirmaron el lote
+ * se marca como publicado, así que una caída en cualquier punto provoca una nueva entrega,
+ * nunca una pérdida (AL MENOS UNA VEZ).
+ *
+ * Cada consumidor procesa el lote en su propia transacción junto con sus marcas de
+ * ConsumoEvento: las entregas repetidas se omiten y un consumidor que falla no obliga a
+ * los demás a repetir su trabajo. Si dos relevos sondean la misma base, el segundo en
+ * confirmar choca con la clave primaria de la marca, revierte y omite el lote en el
+ * siguiente sondeo.
+ *
+ * Eventos envenenados: si un consumidor falla con el lote, se le entrega evento por evento
+ * para aislar los que fallan. El resto del lote se publica; los que fallaron se apartan con
+ * espera exponencial (esperaInicial, 2x, 4x... hasta ESPERA_MAXIMA) y, tras intentosMaximos,
+ * quedan descartados (carta muerta) sin frenar a los siguientes. reactivarDescartados()
+ * los devuelve a la bandeja una vez corregido el consumidor.
+ *
+ * El orden es el de la secuencia: exacto dentro de una instancia, aproximado entre
+ * instancias que insertan a la vez. Un evento apartado por fallos pierde su turno.
+ */
+public class RelevoEventos implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelevoEventos.class);
+
+    public static final int TAMANO_LOTE_DEFAULT = 200;
+    public static final Duration INTERVALO_DEFAULT = Duration.ofMillis(100);
+    public static final int INTENTOS_MAXIMOS_DEFAULT = 10;
+    public static final Duration ESPERA_INICIAL_DEFAULT = Duration.ofSeconds(1);
+    public static final Duration ESPERA_MAXIMA = Duration.ofMinutes(10);
+    private static final int LARGO_ERROR = 500;
+
+    private final GestorPersistencia gestor;
+    private final List<ConsumidorEventos> consumidores;
+    private final int tamanoLote;
+    private final int intentosMaximos;
+    private final Duration esperaInicial;
+    private final ScheduledExecutorService programador;
+    private final Object cerrojoSondeo = new Object();
+
+    // Métricas
+    private final AtomicLong eventosPublicados = new AtomicLong();
+    private final AtomicLong entregas = new AtomicLong();
+    private final AtomicLong entregasOmitidas = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong lotesFallidos = new AtomicLong();
+    private final AtomicLong entregasFallidas = new AtomicLong();
+    private final AtomicLong eventosDescartados = new AtomicLong();
+    private final AtomicLong retrasoTotalMillis = new AtomicLong();
+    private final AtomicLong retrasoMaximoMillis = new AtomicLong();
+    private volatile long ultimoRetrasoMillis;
+
+    public RelevoEventos(GestorPersistencia gestor, List<ConsumidorEventos> consumidores) {
+        this(gestor, consumidores, TAMANO_LOTE_DEFAULT, INTERVALO_DEFAULT);
+    }
+
+    /**
+     * Los consumidores son fijos: uno añadido más tarde no recibiría los eventos ya publicados
+     * @param tamanoLote eventos leídos y entregados por transacción
+     * @param intervalo espera entre sondeos cuando no quedan pendientes
+     */
+    public RelevoEventos(GestorPersistencia gestor, List<ConsumidorEventos> consumidores,
+                         int tamanoLote, Duration intervalo) {
+        this(gestor, consumidores, tamanoLote, intervalo, INTENTOS_MAXIMOS_DEFAULT, ESPERA_INICIAL_DEFAULT);
+    }
+
+    /**
+     * @param intentosMaximos entregas fallidas tras las que un evento queda descartado
+     * @param esperaInicial espera antes del primer reintento; se duplica en cada fallo
+     */
+    public RelevoEventos(GestorPersistencia gestor, List<ConsumidorEventos> consumidores,
+                         int tamanoLote, Duration intervalo, int intentosMaximos, Duration esperaInicial) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+        }
+        if (intentosMaximos < 1) {
+            throw new IllegalArgumentException("Debe permitirse al menos un intento");
+        }
+        Set<String> nombres = new HashSet<>();
+        for (ConsumidorEventos consumidor : consumidores) {
+            if (!nombres.add(consumidor.getNombre())) {
+                throw new IllegalArgumentException("Consumidor duplicado: " + consumidor.getNombre());
+            }
+        }
+        this.gestor = gestor;
+        this.consumidores = List.copyOf(consumidores);
+        this.tamanoLote = tamanoLote;
+        this.intentosMaximos = intentosMaximos;
+        this.esperaInicial = esperaInicial;
+        this.programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "relevo-eventos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long periodo = intervalo.toMillis();
+        programador.scheduleWithFixedDelay(this::sondear, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    // ===============================================================
+    // PUBLICACIÓN
+    // ===============================================================
+
+    /**
+     * Publica lotes hasta vaciar la bandeja (bloquea hasta terminar)
+     * Los eventos que fallan se apartan para más tarde y no cuentan como publicados.
+     * @return eventos publicados
+     * @throws RuntimeException si la base falla; el lote sigue pendiente
+     */
+    public int publicarPendientes() {
+        int total = 0;
+        int[] leidos = new int[1];
+        do {
+            total += publicar(leidos);
+        } while (leidos[0] == tamanoLote);
+        return total;
+    }
+
+    /**
+     * Publica como mucho un lote de eventos pendientes
+     * @return eventos publicados
+     */
+    public int publicarLote() {
+        return publicar(new int[1]);
+    }
+
+    private int publicar(int[] leidos) {
+        synchronized (cerrojoSondeo) {
+            Instant inicio = Instant.now();
+            List<EventoCirculacion> lote = gestor.enTransaccion(em -> em.createQuery(
+                            "select e from EventoCirculacion e where e.publicado = false and e.descartado = false"
+                                    + " and (e.proximoIntento is null or e.proximoIntento <= :ahora) order by e.id",
+                            EventoCirculacion.class)
+                    .setParameter("ahora", inicio)
+                    .setMaxResults(tamanoLote)
+                    .getResultList());
+            leidos[0] = lote.size();
+            if (lote.isEmpty()) {
+                return 0;
+            }
+
+            List<EventoCirculacion> publicables;
+            try {
+                Map<EventoCirculacion, RuntimeException> fallidos = new LinkedHashMap<>();
+                for (ConsumidorEventos consumidor : consumidores) {
+                    List<EventoCirculacion> restantes = new ArrayList<>(lote);
+                    restantes.removeAll(fallidos.keySet());
+                    entregarAislando(consumidor, restantes, fallidos);
+                }
+                publicables = new ArrayList<>(lote);
+                publicables.removeAll(fallidos.keySet());
+                if (!publicables.isEmpty()) {
+                    Instant ahora = marcarPublicados(publicables);
+                    registrarRetraso(publicables, ahora);
+                }
+                if (!fallidos.isEmpty()) {
+                    apartar(fallidos);
+                }
+            } catch (RuntimeException e) {
+                lotesFallidos.incrementAndGet();
+                throw e;
+            }
+            lotes.incrementAndGet();
+            eventosPublicados.addAndGet(publicables.size());
+            return publicables.size();
+        }
+    }
+
+    /**
+     * Entrega el lote en una transacción; si falla, evento por evento para aislar los que fallan
+     */
+    private void entregarAislando(ConsumidorEventos consumidor, List<EventoCirculacion> lote,
+                                  Map<EventoCirculacion, RuntimeException> fallidos) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            entregar(consumidor, lote);
+            return;
+        } catch (RuntimeException e) {
+            if (lote.size() == 1) {
+                fallidos.put(lote.get(0), e);
+                return;
+            }
+            logger.debug("El consumidor {} falló con un lote de {}; se entrega evento por evento",
+                    consumidor.getNombre(), lote.size(), e);
+        }
+        for (EventoCirculacion evento : lote) {
+            try {
+                entregar(consumidor, List.of(evento));
+            } catch (RuntimeException e) {
+                fallidos.put(evento, e);
+            }
+        }
+    }
+
+    private void entregar(ConsumidorEventos consumidor, List<EventoCirculacion> lote) {
+        int omitidos = gestor.enTransaccion(em -> {
+            List<String> marcas = new ArrayList<>(lote.size());
+            for (EventoCirculacion evento : lote) {
+                marcas.add(ConsumoEvento.clave(consumidor.getNombre(), evento.getClave()));
+            }
+            Set<String> consumidos = new HashSet<>(em.createQuery(
+                            "select c.id from ConsumoEvento c where c.id in :ids", String.class)
+                    .setParameter("ids", marcas)
+                    .getResultList());
+
+            int repetidos = 0;
+            for (EventoCirculacion evento : lote) {
+                if (consumidos.contains(ConsumoEvento.clave(consumidor.getNombre(), evento.getClave()))) {
+                    repetidos++;
+                    continue;
+                }
+                consumidor.procesar(evento, em);
+                em.persist(new ConsumoEvento(consumidor.getNombre(), evento.getClave()));
+            }
+            return repetidos;
+        });
+        entregas.addAndGet(lote.size() - omitidos);
+        entregasOmitidas.addAndGet(omitidos);
+    }
+
+    private Instant marcarPublicados(List<EventoCirculacion> lote) {
+        List<Long> ids = new ArrayList<>(lote.size());
+        for (EventoCirculacion evento : lote) {
+            ids.add(evento.getId());
+        }
+        Instant ahora = Instant.now();
+        gestor.ejecutar(em -> em.createQuery(
+                        "update EventoCirculacion e set e.publicado = true, e.fechaPublicacion = :ahora"
+                                + " where e.id in :ids")
+                .setParameter("ahora", ahora)
+                .setParameter("ids", ids)
+                .executeUpdate());
+        return ahora;
+    }
+
+    /**
+     * Anota el fallo de cada evento y lo aparta hasta su próximo intento, o lo descarta
+     */
+    private void apartar(Map<EventoCirculacion, RuntimeException> fallidos) {
+        Instant ahora = Instant.now();
+        gestor.ejecutar(em -> fallidos.forEach((evento, error) -> {
+            int intentos = evento.getIntentos() + 1;
+            boolean descartar = intentos >= intentosMaximos;
+            em.createQuery("update EventoCirculacion e set e.intentos = :intentos, e.proximoIntento = :proximo,"
+                            + " e.descartado = :descartado, e.ultimoError = :error where e.id = :id")
+                    .setParameter("intentos", intentos)
+                    .setParameter("proximo", ahora.plus(espera(intentos)))
+                    .setParameter("descartado", descartar)
+                    .setParameter("error", resumen(error))
+                    .setParameter("id", evento.getId())
+                    .executeUpdate();
+        }));
+        fallidos.forEach((evento, error) -> {
+            entregasFallidas.incrementAndGet();
+            int intentos = evento.getIntentos() + 1;
+            if (intentos >= intentosMaximos) {
+                eventosDescartados.incrementAndGet();
+                logger.error("Evento {} descartado tras {} intentos", evento.getClave(), intentos, error);
+            } else {
+                logger.warn("Falló la entrega del evento {} (intento {} de {}), se reintentará en {} ms: {}",
+                        evento.getClave(), intentos, intentosMaximos, espera(intentos).toMillis(), error.toString());
+            }
+        });
+    }
+
+    /**
+     * Espera antes del intento siguiente: se duplica con cada fallo hasta ESPERA_MAXIMA
+     */
+    private Duration espera(int intentos) {
+        Duration espera = esperaInicial.multipliedBy(1L << Math.min(intentos - 1, 30));
+        return espera.compareTo(ESPERA_MAXIMA) > 0 ? ESPERA_MAXIMA : espera;
+    }
+
+    private static String resumen(RuntimeException error) {
+        String texto = error.toString();
+        return texto.length() > LARGO_ERROR ? texto.substring(0, LARGO_ERROR) : texto;
+    }
+
+    /**
+     * Retraso de extremo a extremo: desde la confirmación del cambio hasta la publicación
+     */
+    private void registrarRetraso(List<EventoCirculacion> lote, Instant ahora) {
+        long maximo = 0;
+        for (EventoCirculacion evento : lote) {
+            long retraso = Math.max(0, Duration.between(evento.getFechaCreacion(), ahora).toMillis());
+            retrasoTotalMillis.addAndGet(retraso);
+            maximo = Math.max(maximo, retraso);
+        }
+        ultimoRetrasoMillis = maximo;
+        retrasoMaximoMillis.accumulateAndGet(maximo, Math::max);
+    }
+
+    private void sondear() {
+        try {
+            publicarPendientes();
+        } catch (RuntimeException e) {
+            logger.error("Error al publicar eventos de circulación; se reintentará", e);
+        }
+    }
+
+    // ===============================================================
+    // MANTENIMIENTO
+    // ===============================================================
+
+    /**
+     * Elimina los eventos publicados y las marcas de consumo más antiguos que la retención.
+     * Una entrega repetida de un evento más antiguo ya no se reconocería: la retención
+     * debe superar con margen el tiempo máximo que un lote puede quedar sin publicar.
+     * @return filas eliminadas
+     */
+    public int purgar(Duration retencion) {
+        Instant limite = Instant.now().minus(retencion);
+        return gestor.enTransaccion(em -> em.createQuery(
+                                "delete from EventoCirculacion e where e.publicado = true and e.fechaPublicacion < :limite")
+                        .setParameter("limite", limite)
+                        .executeUpdate()
+                + em.createQuery("delete from ConsumoEvento c where c.fechaConsumo < :limite")
+                        .setParameter("limite", limite)
+                        .executeUpdate());
+    }
+
+    /**
+     * Devuelve a la bandeja los eventos descartados (p. ej. tras corregir el consumidor)
+     * @return eventos reactivados
+     */
+    public int reactivarDescartados() {
+        return gestor.enTransaccion(em -> em.createQuery(
+                        "update EventoCirculacion e set e.descartado = false, e.intentos = 0, e.proximoIntento = null"
+                                + " where e.descartado = true")
+                .executeUpdate());
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    /**
+     * Eventos confirmados que aún no se publicaron, sin contar los descartados
+     */
+    public long getPendientes() {
+        return gestor.enTransaccion(em -> em.createQuery(
+                        "select count(e) from EventoCirculacion e where e.publicado = false and e.descartado = false",
+                        Long.class)
+                .getSingleResult());
+    }
+
+    /**
+     * Eventos descartados tras agotar sus intentos (carta muerta)
+     */
+    public long getDescartados() {
+        return gestor.enTransaccion(em -> em.createQuery(
+                        "select count(e) from EventoCirculacion e where e.descartado = true", Long.class)
+                .getSingleResult());
+    }
+
+    public Duration getRetrasoMedio() {
+        long publicados = eventosPublicados.get();
+        return Duration.ofMillis(publicados == 0 ? 0 : retrasoTotalMillis.get() / publicados);
+    }
+
+    public Duration getUltimoRetraso() { return Duration.ofMillis(ultimoRetrasoMillis); }
+    public Duration getRetrasoMaximo() { return Duration.ofMillis(retrasoMaximoMillis.get()); }
+    public long getEventosPublicados() { return eventosPublicados.get(); }
+    public long getEntregas() { return entregas.get(); }
+    public long getEntregasOmitidas() { return entregasOmitidas.get(); }
+    public long getLotes() { return lotes.get(); }
+    public long getLotesFallidos() { return lotesFallidos.get(); }
+    public long getEntregasFallidas() { return entregasFallidas.get(); }
+    public long getEventosDescartados() { return eventosDescartados.get(); }
+
+    /**
+     * Detiene el sondeo y publica lo que quede pendiente
+     */
+    @Override
+    public void close() {
+        programador.shutdown();
+        try {
+            programador.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sondear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RelevoEventos{publicados=%d, lotes=%d, fallidos=%d, entregasFallidas=%d, descartados=%d, omitidos=%d, retrasoMedio=%d ms}",
+                getEventosPublicados(), getLotes(), getLotesFallidos(), getEntregasFallidas(),
+                getEventosDescartados(), getEntregasOmitidas(), getRetrasoMedio().toMillis());
+    }
+}
@@ -0,0 +1,12 @@
+package com.utp.biblioteca.eventos;
+
+/**
+ * Enumeración TipoEvento
+ * Hechos de circulación que se publican a través de la bandeja de salida
+ */
+public enum TipoEvento {
+    PRESTAMO,
+    DEVOLUCION,
+    RESERVA,
+    MULTA
+}
@@ -0,0 +1,448 @@
+package com.utp.biblioteca.ingesta;
+
+import com.utp.biblioteca.model.recurso.EBook;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * IngestaEBooks - ALTA MASIVA DE EBOOKS DESDE UN DIRECTORIO
+ * Recorre el directorio y crea un EBook por archivo, con título, autor, materias
+ * (palabras clave), año, formato y tamaño sacados del propio archivo.
+ *
+ * Tres etapas unidas por colas acotadas, como en ImportadorJson:
+ * - RECORRIDO (el hilo que llama): encola las rutas de los archivos regulares; un
+ *   subdirectorio ilegible se cuenta como error y se salta
+ * - LECTURA (hilosLectura): tamaño, formato por los primeros bytes y los bytes con
+ *   metadatos (el paquete OPF de un EPUB, los extremos de un PDF)
+ * - ANÁLISIS (hilosAnalisis): XML del OPF o diccionario /Info del PDF, y el EBook
+ * Si una etapa se atrasa, la anterior espera; la memoria queda limitada a las colas.
+ * Un archivo ilegible o corrupto se cuenta como error y la ingesta sigue.
+ */
+public class IngestaEBooks {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestaEBooks.class);
+
+    public static final String URL_BASE_DEFAULT = "https://biblioteca.utp.edu.pe/ebooks/";
+    public static final String AUTOR_DESCONOCIDO = "Desconocido";
+    public static final String CATEGORIA_DEFAULT = "General";
+    public static final int CAPACIDAD_COLA_DEFAULT = 256;
+
+    private static final int BYTES_CABECERA = 1024;
+    private static final byte[] MIMETYPE_EPUB = "mimetypeapplication/epub+zip".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FIRMA_MOBI = "BOOKMOBI".getBytes(StandardCharsets.US_ASCII);
+    private static final int POSICION_FIRMA_MOBI = 60;
+    private static final int LONGITUD_NOMBRE_PDB = 32;
+
+    // Marcas de fin de cada cola (se comparan por identidad)
+    private static final Path FIN_RUTAS = Path.of("fin-de-ingesta");
+    private static final ArchivoLeido FIN_LEIDOS = new ArchivoLeido(FIN_RUTAS, 0, null, null);
+
+    private final int hilosLectura;
+    private final int hilosAnalisis;
+    private final int capacidadCola;
+    private final String urlBase;
+
+    public IngestaEBooks() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()), Runtime.getRuntime().availableProcessors(),
+                CAPACIDAD_COLA_DEFAULT, URL_BASE_DEFAULT);
+    }
+
+    /**
+     * @param urlBase prefijo del enlace de descarga: se le agrega el id del EBook (ServidorDescargas)
+     */
+    public IngestaEBooks(int hilosLectura, int hilosAnalisis, int capacidadCola, String urlBase) {
+        if (hilosLectura <= 0 || hilosAnalisis <= 0 || capacidadCola <= 0) {
+            throw new IllegalArgumentException("Hilos y capacidad de las colas deben ser positivos");
+        }
+        this.hilosLectura = hilosLectura;
+        this.hilosAnalisis = hilosAnalisis;
+        this.capacidadCola = capacidadCola;
+        this.urlBase = urlBase;
+    }
+
+    /**
+     * Ingiere todos los archivos del directorio y sus subdirectorios
+     * @param destino recibe cada EBook con la ruta de su archivo (p. ej. para
+     *                CatalogoArchivos.registrar); se invoca desde varios hilos a la vez
+     * @throws IllegalStateException si el destino falla con algún EBook
+     */
+    public ResumenIngesta ingerir(Path directorio, BiConsumer<EBook, Path> destino) {
+        if (!Files.isDirectory(directorio)) {
+            throw new IllegalArgumentException("No es un directorio: " + directorio);
+        }
+        long inicio = System.nanoTime();
+        Ingesta ingesta = new Ingesta(destino);
+        ingesta.iniciar();
+        try {
+            Files.walkFileTree(directorio, new Recorrido(directorio, ingesta));
+        } catch (IOException e) {
+            ingesta.detener();
+            throw new UncheckedIOException("No se pudo recorrer " + directorio, e);
+        } catch (RuntimeException e) {
+            ingesta.detener();
+            throw e;
+        }
+        ingesta.terminar();
+
+        RuntimeException error = ingesta.errorDestino.get();
+        if (error != null) {
+            throw new IllegalStateException("El destino falló al recibir un eBook", error);
+        }
+        ResumenIngesta resumen = new ResumenIngesta(ingesta.archivos.sum(), ingesta.ebooks.sum(),
+                ingesta.descartados.sum(), ingesta.errores.sum(), ingesta.bytes.sum(), System.nanoTime() - inicio);
+        logger.info("Ingesta de {} con {}+{} hilos: {}", directorio, hilosLectura, hilosAnalisis, resumen);
+        return resumen;
+    }
+
+    /**
+     * Etapa de recorrido: encola los archivos regulares
+     * Un subdirectorio o archivo que no se puede visitar se cuenta como error y se salta;
+     * solo un fallo en el directorio raíz detiene la ingesta.
+     */
+    private static final class Recorrido extends SimpleFileVisitor<Path> {
+        private final Path raiz;
+        private final Ingesta ingesta;
+
+        Recorrido(Path raiz, Ingesta ingesta) {
+            this.raiz = raiz;
+            this.ingesta = ingesta;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path ruta, BasicFileAttributes atributos) {
+            if (atributos.isRegularFile()) {
+                ingesta.encolar(ruta);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path ruta, IOException e) throws IOException {
+            if (ruta.equals(raiz)) {
+                throw e;
+            }
+            ingesta.errores.increment();
+            logger.warn("No se pudo recorrer {}: {}", ruta, e.toString());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path directorio, IOException e) throws IOException {
+            if (e != null) {
+                if (directorio.equals(raiz)) {
+                    throw e;
+                }
+                ingesta.errores.increment();
+                logger.warn("No se pudo terminar de recorrer {}: {}", directorio, e.toString());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+    }
+
+    /**
+     * Archivo leído, a la espera de análisis
+     */
+    private static final class ArchivoLeido {
+        final Path ruta;
+        final long tamano;
+        final String formato;
+        final LocalDate modificado;
+        byte[] datos;
+        byte[] cola;
+
+        ArchivoLeido(Path ruta, long tamano, String formato, LocalDate modificado) {
+            this.ruta = ruta;
+            this.tamano = tamano;
+            this.formato = formato;
+            this.modificado = modificado;
+        }
+    }
+
+    /**
+     * Estado de una ingesta en curso
+     */
+    private final class Ingesta {
+
+        final BiConsumer<EBook, Path> destino;
+        final BlockingQueue<Path> rutas = new ArrayBlockingQueue<>(capacidadCola);
+        final BlockingQueue<ArchivoLeido> leidos = new ArrayBlockingQueue<>(capacidadCola);
+        final List<Thread> hilos = new ArrayList<>();
+        final AtomicInteger lectoresActivos = new AtomicInteger(hilosLectura);
+        final AtomicReference<RuntimeException> errorDestino = new AtomicReference<>();
+        final LongAdder archivos = new LongAdder();
+        final LongAdder ebooks = new LongAdder();
+        final LongAdder descartados = new LongAdder();
+        final LongAdder errores = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        Ingesta(BiConsumer<EBook, Path> destino) {
+            this.destino = destino;
+        }
+
+        void iniciar() {
+            for (int i = 0; i < hilosLectura; i++) {
+                arrancar(this::leer, "ingesta-lectura-" + i);
+            }
+            for (int i = 0; i < hilosAnalisis; i++) {
+                arrancar(this::analizar, "ingesta-analisis-" + i);
+            }
+        }
+
+        private void arrancar(Runnable etapa, String nombre) {
+            Thread hilo = new Thread(etapa, nombre);
+            hilo.setDaemon(true);
+            hilo.start();
+            hilos.add(hilo);
+        }
+
+        void encolar(Path ruta) {
+            archivos.increment();
+            poner(rutas, ruta);
+        }
+
+        /**
+         * Cierra la cola de rutas y espera a que las etapas la vacíen
+         */
+        void terminar() {
+            for (int i = 0; i < hilosLectura; i++) {
+                poner(rutas, FIN_RUTAS);
+            }
+            try {
+                for (Thread hilo : hilos) {
+                    hilo.join();
+                }
+            } catch (InterruptedException e) {
+                detener();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ingesta interrumpida", e);
+            }
+        }
+
+        void detener() {
+            hilos.forEach(Thread::interrupt);
+        }
+
+        private <T> void poner(BlockingQueue<T> cola, T elemento) {
+            try {
+                cola.put(elemento);
+            } catch (InterruptedException e) {
+                detener();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ingesta interrumpida", e);
+            }
+        }
+
+        // Etapa de lectura
+        private void leer() {
+            try {
+                Path ruta;
+                while ((ruta = rutas.take()) != FIN_RUTAS) {
+                    try {
+                        ArchivoLeido leido = leerArchivo(ruta);
+                        if (leido == null) {
+                            descartados.increment();
+                        } else {
+                            bytes.add(leido.tamano);
+                            leidos.put(leido);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        errores.increment();
+                        logger.debug("No se pudo leer {}: {}", ruta, e.toString());
+                    }
+                }
+                if (lectoresActivos.decrementAndGet() == 0) {
+                    for (int i = 0; i < hilosAnalisis; i++) {
+                        leidos.put(FIN_LEIDOS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Etapa de análisis
+        private void analizar() {
+            try {
+                ArchivoLeido leido;
+                while ((leido = leidos.take()) != FIN_LEIDOS) {
+                    EBook ebook;
+                    try {
+                        ebook = crearEBook(leido);
+                    } catch (RuntimeException e) {
+                        errores.increment();
+                        logger.debug("No se pudo analizar {}: {}", leido.ruta, e.toString());
+                        continue;
+                    }
+                    if (errorDestino.get() != null) {
+                        continue; // se sigue vaciando la cola para que las otras etapas terminen
+                    }
+                    try {
+                        destino.accept(ebook, leido.ruta);
+                        ebooks.increment();
+                    } catch (RuntimeException e) {
+                        errorDestino.compareAndSet(null, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ===============================================================
+    // LECTURA
+    // ===============================================================
+
+    /**
+     * Lee lo que el análisis necesita del archivo
+     * @return null si el archivo no es de un formato de eBook
+     */
+    private static ArchivoLeido leerArchivo(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            ByteBuffer cabecera = ByteBuffer.allocate((int) Math.min(BYTES_CABECERA, tamano));
+            while (cabecera.hasRemaining()) {
+                if (canal.read(cabecera, cabecera.position()) < 0) {
+                    break;
+                }
+            }
+            String formato = detectarFormato(cabecera.array(), cabecera.position(), ruta.getFileName().toString());
+            if (formato == null) {
+                return null;
+            }
+            LocalDate modificado = LocalDate.ofInstant(Files.getLastModifiedTime(ruta).toInstant(), ZoneOffset.UTC);
+            ArchivoLeido leido = new ArchivoLeido(ruta, tamano, formato, modificado);
+            switch (formato) {
+                case "PDF":
+                    byte[][] extremos = LectorPdf.extraerExtremos(canal, tamano);
+                    leido.datos = extremos[0];
+                    leido.cola = extremos[1];
+                    break;
+                case "EPUB":
+                    leido.datos = LectorEpub.extraerOpf(ruta);
+                    break;
+                default: // MOBI y AZW: el nombre de la base PDB está en la cabecera
+                    leido.datos = Arrays.copyOf(cabecera.array(), LONGITUD_NOMBRE_PDB);
+                    break;
+            }
+            return leido;
+        }
+    }
+
+    /**
+     * Formato de eBook según los primeros bytes del archivo (la extensión solo distingue AZW de MOBI)
+     * @return "PDF", "EPUB", "MOBI", "AZW" o null si no es un eBook
+     */
+    static String detectarFormato(byte[] cabecera, int longitud, String nombre) {
+        String minusculas = nombre.toLowerCase(Locale.ROOT);
+        // "%PDF-" puede ir precedido de basura dentro del primer kilobyte
+        for (int i = 0; i + 5 <= longitud; i++) {
+            if (cabecera[i] == '%' && cabecera[i + 1] == 'P' && cabecera[i + 2] == 'D' && cabecera[i + 3] == 'F'
+                    && cabecera[i + 4] == '-') {
+                return "PDF";
+            }
+        }
+        if (longitud >= 4 && cabecera[0] == 'P' && cabecera[1] == 'K' && cabecera[2] == 3 && cabecera[3] == 4) {
+            // El EPUB empieza por la entrada "mimetype" sin comprimir; si no, basta la extensión
+            if (contiene(cabecera, longitud, 30, MIMETYPE_EPUB) || minusculas.endsWith(".epub")) {
+                return "EPUB";
+            }
+            return null;
+        }
+        if (contiene(cabecera, longitud, POSICION_FIRMA_MOBI, FIRMA_MOBI)) {
+            return minusculas.endsWith(".azw") || minusculas.endsWith(".azw3") ? "AZW" : "MOBI";
+        }
+        return null;
+    }
+
+    private static boolean contiene(byte[] cabecera, int longitud, int posicion, byte[] firma) {
+        if (longitud < posicion + firma.length) {
+            return false;
+        }
+        for (int i = 0; i < firma.length; i++) {
+            if (cabecera[posicion + i] != firma[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ===============================================================
+    // ANÁLISIS
+    // ===============================================================
+
+    private EBook crearEBook(ArchivoLeido leido) {
+        MetadatosEBook metadatos;
+        switch (leido.formato) {
+            case "PDF":
+                metadatos = LectorPdf.leer(leido.datos, leido.cola);
+                break;
+            case "EPUB":
+                metadatos = LectorEpub.leer(leido.datos);
+                break;
+            default:
+                metadatos = new MetadatosEBook();
+                metadatos.titulo = nombrePdb(leido.datos);
+                break;
+        }
+
+        String titulo = metadatos.titulo != null ? metadatos.titulo : nombreSinExtension(leido.ruta);
+        String autor = metadatos.autor != null ? metadatos.autor : AUTOR_DESCONOCIDO;
+        String categoria = metadatos.materias.isEmpty() ? CATEGORIA_DEFAULT : metadatos.materias.get(0);
+        LocalDate fecha = metadatos.anio != null ? LocalDate.of(metadatos.anio, 1, 1) : leido.modificado;
+        EBook ebook = new EBook(titulo, autor, categoria, fecha, leido.formato,
+                leido.tamano / (1024.0 * 1024.0), null);
+        ebook.setUrlDescarga(urlBase + ebook.getId());
+        if (metadatos.descripcion != null) {
+            ebook.setDescripcion(metadatos.descripcion);
+        }
+        for (String materia : metadatos.materias) {
+            ebook.agregarPalabraClave(materia);
+        }
+        return ebook;
+    }
+
+    /**
+     * Nombre de la base PDB de un MOBI (terminado en NUL, con "_" en lugar de espacios)
+     */
+    private static String nombrePdb(byte[] cabecera) {
+        int fin = 0;
+        while (fin < cabecera.length && cabecera[fin] != 0) {
+            fin++;
+        }
+        return MetadatosEBook.limpiar(new String(cabecera, 0, fin, StandardCharsets.ISO_8859_1).replace('_', ' '));
+    }
+
+    private static String nombreSinExtension(Path ruta) {
+        String nombre = ruta.getFileName().toString();
+        int punto = nombre.lastIndexOf('.');
+        return punto > 0 ? nombre.substring(0, punto) : nombre;
+    }
+
+    public int getHilosLectura() { return hilosLectura; }
+    public int getHilosAnalisis() { return hilosAnalisis; }
+    public int getCapacidadCola() { return capacidadCola; }
+}
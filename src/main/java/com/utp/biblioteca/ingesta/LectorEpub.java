@@ -0,0 +1,125 @@
+package com.utp.biblioteca.ingesta;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Metadatos de un EPUB: META-INF/container.xml indica el paquete OPF, y su bloque
+ * <metadata> trae los elementos Dublin Core (título, autor, materias, fecha, descripción).
+ * La lectura del zip (extraerOpf) y el análisis del XML (leer) van en etapas distintas.
+ */
+final class LectorEpub {
+
+    private static final String CONTENEDOR = "META-INF/container.xml";
+    private static final String DUBLIN_CORE = "http://purl.org/dc/elements/1.1/";
+    private static final int MAXIMO_OPF = 4 * 1024 * 1024;
+    private static final Pattern RUTA_OPF = Pattern.compile("full-path\\s*=\\s*[\"']([^\"']+)[\"']");
+
+    // Una fábrica por hilo: sin DTD ni entidades externas
+    private static final ThreadLocal<XMLInputFactory> FABRICA = ThreadLocal.withInitial(() -> {
+        XMLInputFactory fabrica = XMLInputFactory.newFactory();
+        fabrica.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        fabrica.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        fabrica.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return fabrica;
+    });
+
+    private LectorEpub() {
+    }
+
+    /**
+     * Bytes del paquete OPF del EPUB
+     * @throws IllegalArgumentException si el zip no tiene la estructura de un EPUB
+     */
+    static byte[] extraerOpf(Path ruta) throws IOException {
+        try (ZipFile zip = new ZipFile(ruta.toFile())) {
+            ZipEntry contenedor = zip.getEntry(CONTENEDOR);
+            if (contenedor == null) {
+                throw new IllegalArgumentException("EPUB sin " + CONTENEDOR);
+            }
+            Matcher rutaOpf = RUTA_OPF.matcher(new String(leer(zip, contenedor), StandardCharsets.UTF_8));
+            if (!rutaOpf.find()) {
+                throw new IllegalArgumentException("container.xml sin rootfile");
+            }
+            ZipEntry opf = zip.getEntry(rutaOpf.group(1));
+            if (opf == null) {
+                throw new IllegalArgumentException("No existe el paquete " + rutaOpf.group(1));
+            }
+            return leer(zip, opf);
+        }
+    }
+
+    private static byte[] leer(ZipFile zip, ZipEntry entrada) throws IOException {
+        try (InputStream flujo = zip.getInputStream(entrada)) {
+            byte[] bytes = flujo.readNBytes(MAXIMO_OPF + 1);
+            if (bytes.length > MAXIMO_OPF) {
+                throw new IllegalArgumentException(entrada.getName() + " supera " + MAXIMO_OPF + " bytes");
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Analiza el bloque <metadata> del OPF
+     * @throws IllegalArgumentException si el XML está mal formado
+     */
+    static MetadatosEBook leer(byte[] opf) {
+        MetadatosEBook metadatos = new MetadatosEBook();
+        try {
+            XMLStreamReader lector = FABRICA.get().createXMLStreamReader(new ByteArrayInputStream(opf));
+            try {
+                while (lector.hasNext()) {
+                    int evento = lector.next();
+                    if (evento == XMLStreamConstants.END_ELEMENT && "metadata".equals(lector.getLocalName())) {
+                        break; // el resto del paquete (manifiesto, índice) no interesa
+                    }
+                    if (evento == XMLStreamConstants.START_ELEMENT && DUBLIN_CORE.equals(lector.getNamespaceURI())) {
+                        agregar(metadatos, lector.getLocalName(), lector.getElementText());
+                    }
+                }
+            } finally {
+                lector.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Paquete OPF inválido: " + e.getMessage(), e);
+        }
+        return metadatos;
+    }
+
+    private static void agregar(MetadatosEBook metadatos, String elemento, String texto) {
+        String valor = MetadatosEBook.limpiar(texto);
+        if (valor == null) {
+            return;
+        }
+        switch (elemento) {
+            case "title":
+                if (metadatos.titulo == null) metadatos.titulo = valor;
+                break;
+            case "creator":
+                if (metadatos.autor == null) metadatos.autor = valor;
+                break;
+            case "subject":
+                metadatos.materias.add(valor);
+                break;
+            case "date":
+                if (metadatos.anio == null) metadatos.anio = MetadatosEBook.anioDe(valor);
+                break;
+            case "description":
+                if (metadatos.descripcion == null) metadatos.descripcion = valor;
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.utp.biblioteca.ingesta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Información básica de un PDF: el diccionario /Info del trailer (Title, Author,
+ * Subject, Keywords, CreationDate). Solo se leen el principio y el final del archivo,
+ * donde lo dejan casi todos los generadores (trailer al final, o al principio en los
+ * PDF linealizados); si el diccionario está en otra parte o dentro de un flujo de
+ * objetos comprimido, el archivo se ingiere sin metadatos.
+ */
+final class LectorPdf {
+
+    static final int CABEZA = 16 * 1024;
+    static final int COLA = 64 * 1024;
+
+    private static final Pattern REFERENCIA_INFO = Pattern.compile("/Info\\s+(\\d+)\\s+(\\d+)\\s+R");
+
+    private LectorPdf() {
+    }
+
+    /**
+     * Principio y final del archivo (el final vacío si todo cabe en el principio)
+     */
+    static byte[][] extraerExtremos(FileChannel canal, long tamano) throws IOException {
+        if (tamano <= CABEZA + COLA) {
+            return new byte[][] {leer(canal, 0, (int) tamano), new byte[0]};
+        }
+        return new byte[][] {leer(canal, 0, CABEZA), leer(canal, tamano - COLA, COLA)};
+    }
+
+    private static byte[] leer(FileChannel canal, long posicion, int longitud) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(longitud);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.position() == longitud ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Analiza el diccionario /Info que aparezca en los extremos leídos
+     */
+    static MetadatosEBook leer(byte[] cabeza, byte[] cola) {
+        // ISO-8859-1: un carácter por byte, así que las posiciones coinciden con los bytes
+        String textoCola = new String(cola, StandardCharsets.ISO_8859_1);
+        String textoCabeza = new String(cabeza, StandardCharsets.ISO_8859_1);
+        MetadatosEBook metadatos = new MetadatosEBook();
+        String referencia = ultimaReferencia(textoCola);
+        if (referencia == null) {
+            referencia = ultimaReferencia(textoCabeza);
+        }
+        if (referencia == null) {
+            return metadatos;
+        }
+        String diccionario = objeto(textoCola, referencia);
+        if (diccionario == null) {
+            diccionario = objeto(textoCabeza, referencia);
+        }
+        if (diccionario == null) {
+            return metadatos;
+        }
+        metadatos.titulo = MetadatosEBook.limpiar(cadena(diccionario, "/Title"));
+        metadatos.autor = MetadatosEBook.limpiar(cadena(diccionario, "/Author"));
+        metadatos.descripcion = MetadatosEBook.limpiar(cadena(diccionario, "/Subject"));
+        metadatos.anio = MetadatosEBook.anioDe(cadena(diccionario, "/CreationDate"));
+        String claves = cadena(diccionario, "/Keywords");
+        if (claves != null) {
+            for (String clave : claves.split("[,;]")) {
+                String limpia = MetadatosEBook.limpiar(clave);
+                if (limpia != null) {
+                    metadatos.materias.add(limpia);
+                }
+            }
+        }
+        return metadatos;
+    }
+
+    /**
+     * "N G" de la última referencia /Info (la del trailer más reciente)
+     * Se busca hacia atrás con indexOf: recorrer 64 KB con una expresión regular costaba
+     * más que todo el resto del análisis.
+     */
+    private static String ultimaReferencia(String texto) {
+        Matcher matcher = REFERENCIA_INFO.matcher(texto);
+        int posicion = texto.lastIndexOf("/Info");
+        while (posicion >= 0) {
+            matcher.region(posicion, texto.length());
+            if (matcher.lookingAt()) {
+                return matcher.group(1) + " " + matcher.group(2);
+            }
+            posicion = texto.lastIndexOf("/Info", posicion - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Contenido del objeto indirecto "N G obj ... endobj", o null si no está completo en el texto
+     */
+    private static String objeto(String texto, String referencia) {
+        int inicio = ultimaDefinicion(texto, referencia + " obj");
+        if (inicio < 0) {
+            // Separadores distintos de un espacio: se recurre a la expresión regular
+            String[] partes = referencia.split(" ");
+            Matcher matcher = Pattern.compile("(?<!\\d)" + partes[0] + "\\s+" + partes[1] + "\\s+obj").matcher(texto);
+            while (matcher.find()) {
+                inicio = matcher.end(); // la última definición es la vigente
+            }
+        }
+        if (inicio < 0) {
+            return null;
+        }
+        int fin = texto.indexOf("endobj", inicio);
+        return fin < 0 ? null : texto.substring(inicio, fin);
+    }
+
+    /**
+     * Posición tras la última aparición de la definición que no sea parte de otro número
+     */
+    private static int ultimaDefinicion(String texto, String definicion) {
+        int posicion = texto.lastIndexOf(definicion);
+        while (posicion >= 0) {
+            if (posicion == 0 || !Character.isDigit(texto.charAt(posicion - 1))) {
+                return posicion + definicion.length();
+            }
+            posicion = texto.lastIndexOf(definicion, posicion - 1);
+        }
+        return -1;
+    }
+
+    // ===============================================================
+    // CADENAS PDF
+    // ===============================================================
+
+    /**
+     * Valor de cadena de una clave del diccionario (literal o hexadecimal), o null
+     */
+    static String cadena(String diccionario, String clave) {
+        int posicion = diccionario.indexOf(clave);
+        while (posicion >= 0) {
+            int siguiente = posicion + clave.length();
+            // "/Title" no debe casar con "/TitleX"
+            if (siguiente < diccionario.length() && Character.isLetterOrDigit(diccionario.charAt(siguiente))) {
+                posicion = diccionario.indexOf(clave, siguiente);
+                continue;
+            }
+            while (siguiente < diccionario.length() && Character.isWhitespace(diccionario.charAt(siguiente))) {
+                siguiente++;
+            }
+            if (siguiente >= diccionario.length()) {
+                return null;
+            }
+            char apertura = diccionario.charAt(siguiente);
+            if (apertura == '(') {
+                return decodificar(literal(diccionario, siguiente + 1));
+            }
+            if (apertura == '<') {
+                return decodificar(hexadecimal(diccionario, siguiente + 1));
+            }
+            return null; // referencia indirecta u otro tipo: no se resuelve
+        }
+        return null;
+    }
+
+    private static byte[] literal(String texto, int inicio) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int profundidad = 1;
+        for (int i = inicio; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '\\' && i + 1 < texto.length()) {
+                char escapado = texto.charAt(++i);
+                switch (escapado) {
+                    case 'n': bytes.write('\n'); break;
+                    case 'r': bytes.write('\r'); break;
+                    case 't': bytes.write('\t'); break;
+                    case 'b': bytes.write('\b'); break;
+                    case 'f': bytes.write('\f'); break;
+                    case '\r':
+                        if (i + 1 < texto.length() && texto.charAt(i + 1) == '\n') i++;
+                        break;
+                    case '\n':
+                        break; // continuación de línea
+                    default:
+                        if (escapado >= '0' && escapado <= '7') {
+                            int valor = escapado - '0';
+                            for (int d = 0; d < 2 && i + 1 < texto.length()
+                                    && texto.charAt(i + 1) >= '0' && texto.charAt(i + 1) <= '7'; d++) {
+                                valor = valor * 8 + (texto.charAt(++i) - '0');
+                            }
+                            bytes.write(valor);
+                        } else {
+                            bytes.write(escapado); // \( \) \\ y escapes desconocidos
+                        }
+                }
+                continue;
+            }
+            if (c == '(') {
+                profundidad++;
+            } else if (c == ')' && --profundidad == 0) {
+                break;
+            }
+            bytes.write(c);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] hexadecimal(String texto, int inicio) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int alto = -1;
+        for (int i = inicio; i < texto.length() && texto.charAt(i) != '>'; i++) {
+            int digito = Character.digit(texto.charAt(i), 16);
+            if (digito < 0) {
+                continue; // espacios entre dígitos
+            }
+            if (alto < 0) {
+                alto = digito;
+            } else {
+                bytes.write(alto * 16 + digito);
+                alto = -1;
+            }
+        }
+        if (alto >= 0) {
+            bytes.write(alto * 16); // dígito impar: se completa con 0
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * UTF-16BE con BOM, UTF-8 con BOM (PDF 2.0) o PDFDocEncoding (aprox. Latin-1)
+     */
+    private static String decodificar(byte[] bytes) {
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0xFE && (bytes[1] & 0xFF) == 0xFF) {
+            return new String(bytes, 2, bytes.length - 2, StandardCharsets.UTF_16BE);
+        }
+        if (bytes.length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) {
+            return new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
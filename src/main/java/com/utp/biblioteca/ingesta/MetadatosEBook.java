@@ -0,0 +1,53 @@
+package com.utp.biblioteca.ingesta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Metadatos extraídos de un archivo (null o vacío si el archivo no los declara)
+ */
+final class MetadatosEBook {
+
+    String titulo;
+    String autor;
+    String descripcion;
+    Integer anio;
+    final List<String> materias = new ArrayList<>();
+
+    /**
+     * Año de una fecha de metadatos ("2008", "2008-08-01", "D:20080801...")
+     */
+    static Integer anioDe(String fecha) {
+        if (fecha == null) {
+            return null;
+        }
+        int inicio = fecha.startsWith("D:") ? 2 : 0;
+        if (fecha.length() < inicio + 4) {
+            return null;
+        }
+        for (int i = inicio; i < inicio + 4; i++) {
+            if (!Character.isDigit(fecha.charAt(i))) {
+                return null;
+            }
+        }
+        int anio = Integer.parseInt(fecha.substring(inicio, inicio + 4));
+        return anio > 0 ? anio : null;
+    }
+
+    /**
+     * Texto recortado, o null si queda vacío
+     */
+    static String limpiar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        String limpio = texto.strip().replaceAll("\\s+", " ");
+        return limpio.isEmpty() ? null : limpio;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MetadatosEBook{titulo='%s', autor='%s', año=%s, materias=%s}",
+                titulo, autor, anio, materias);
+    }
+}
@@ -0,0 +1,46 @@
+package com.utp.biblioteca.ingesta;
+
+import java.time.Duration;
+
+/**
+ * Resultado de una ingesta: archivos recorridos, eBooks creados y rendimiento
+ */
+public final class ResumenIngesta {
+
+    private final long archivos;
+    private final long ebooks;
+    private final long descartados;
+    private final long errores;
+    private final long bytes;
+    private final long nanos;
+
+    ResumenIngesta(long archivos, long ebooks, long descartados, long errores, long bytes, long nanos) {
+        this.archivos = archivos;
+        this.ebooks = ebooks;
+        this.descartados = descartados;
+        this.errores = errores;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    public long getArchivos() { return archivos; }
+    public long getEBooks() { return ebooks; }
+    /** Archivos cuyo formato no es de eBook */
+    public long getDescartados() { return descartados; }
+    /** Archivos que no se pudieron leer o analizar y directorios que no se pudieron recorrer */
+    public long getErrores() { return errores; }
+    public long getBytes() { return bytes; }
+    public Duration getDuracion() { return Duration.ofNanos(nanos); }
+
+    public double getArchivosPorSegundo() {
+        return nanos > 0 ? archivos * 1e9 / nanos : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResumenIngesta{archivos=%d, ebooks=%d, descartados=%d, errores=%d, %d MB, "
+                        + "duración=%d ms, %.0f archivos/s}",
+                archivos, ebooks, descartados, errores, bytes / (1024 * 1024), nanos / 1_000_000,
+                getArchivosPorSegundo());
+    }
+}
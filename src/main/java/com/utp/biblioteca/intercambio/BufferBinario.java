@@ -0,0 +1,82 @@
+package com.utp.biblioteca.intercambio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Buffer de bytes creciente para codificar una sección de la instantánea binaria
+ * Enteros en varint (LEB128, 1 byte para valores menores que 128) y zigzag para los
+ * que pueden ser negativos; decimales en 8 bytes big-endian.
+ */
+final class BufferBinario {
+
+    private byte[] datos;
+    private int tamano;
+
+    BufferBinario(int capacidadInicial) {
+        this.datos = new byte[Math.max(capacidadInicial, 16)];
+    }
+
+    void byteSimple(int valor) {
+        asegurar(1);
+        datos[tamano++] = (byte) valor;
+    }
+
+    void logico(boolean valor) {
+        byteSimple(valor ? 1 : 0);
+    }
+
+    /**
+     * Entero no negativo en varint
+     */
+    void varint(long valor) {
+        asegurar(10);
+        while ((valor & ~0x7FL) != 0) {
+            datos[tamano++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        datos[tamano++] = (byte) valor;
+    }
+
+    /**
+     * Entero con signo en zigzag + varint
+     */
+    void zigzag(long valor) {
+        varint((valor << 1) ^ (valor >> 63));
+    }
+
+    void decimal(double valor) {
+        long bits = Double.doubleToRawLongBits(valor);
+        asegurar(8);
+        for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8) {
+            datos[tamano++] = (byte) (bits >>> desplazamiento);
+        }
+    }
+
+    void bytes(byte[] valor) {
+        asegurar(valor.length);
+        System.arraycopy(valor, 0, datos, tamano, valor.length);
+        tamano += valor.length;
+    }
+
+    int getTamano() { return tamano; }
+
+    void escribirEn(WritableByteChannel canal) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(datos, 0, tamano);
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private void asegurar(int adicional) {
+        if (tamano + adicional > datos.length) {
+            long nuevaCapacidad = Math.max((long) datos.length * 2, (long) tamano + adicional);
+            if (nuevaCapacidad > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("La sección supera el tamaño máximo de la instantánea (2 GB)");
+            }
+            datos = Arrays.copyOf(datos, (int) nuevaCapacidad);
+        }
+    }
+}
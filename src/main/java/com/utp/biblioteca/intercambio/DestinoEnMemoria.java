@@ -0,0 +1,44 @@
+package com.utp.biblioteca.intercambio;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Destino de importación que conserva todos los objetos en memoria, indexados por id
+ * (útil para catálogos pequeños y pruebas; para volcados grandes usar un destino
+ * que escriba directamente en la base de datos)
+ */
+public class DestinoEnMemoria implements DestinoImportacion {
+
+    private final Map<String, Recurso> recursos = new ConcurrentHashMap<>();
+    private final Map<String, Usuario> usuarios = new ConcurrentHashMap<>();
+    private final Map<String, Prestamo> prestamos = new ConcurrentHashMap<>();
+    private final Map<String, Reserva> reservas = new ConcurrentHashMap<>();
+
+    @Override
+    public void alRecurso(Recurso recurso) { recursos.put(recurso.getId(), recurso); }
+
+    @Override
+    public void alUsuario(Usuario usuario) { usuarios.put(usuario.getId(), usuario); }
+
+    @Override
+    public void alPrestamo(Prestamo prestamo) { prestamos.put(prestamo.getId(), prestamo); }
+
+    @Override
+    public void alReserva(Reserva reserva) { reservas.put(reserva.getId(), reserva); }
+
+    @Override
+    public Usuario buscarUsuario(String id) { return usuarios.get(id); }
+
+    @Override
+    public Recurso buscarRecurso(String id) { return recursos.get(id); }
+
+    public Map<String, Recurso> getRecursos() { return recursos; }
+    public Map<String, Usuario> getUsuarios() { return usuarios; }
+    public Map<String, Prestamo> getPrestamos() { return prestamos; }
+    public Map<String, Reserva> getReservas() { return reservas; }
+}
@@ -0,0 +1,34 @@
+package com.utp.biblioteca.intercambio;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Usuario;
+
+/**
+ * Interface DestinoImportacion
+ * Recibe los objetos reconstruidos por ImportadorJson (repositorio, catálogo en memoria...).
+ * Los métodos se invocan desde varios hilos a la vez: las implementaciones deben ser seguras.
+ * Las secciones se procesan en orden, así que al llegar los préstamos y reservas
+ * los usuarios y recursos del mismo archivo ya fueron entregados.
+ */
+public interface DestinoImportacion {
+
+    void alRecurso(Recurso recurso);
+
+    void alUsuario(Usuario usuario);
+
+    void alPrestamo(Prestamo prestamo);
+
+    void alReserva(Reserva reserva);
+
+    /**
+     * Resuelve el usuario de un préstamo o reserva (null si no existe)
+     */
+    Usuario buscarUsuario(String id);
+
+    /**
+     * Resuelve el recurso de un préstamo o reserva (null si no existe)
+     */
+    Recurso buscarRecurso(String id);
+}
@@ -0,0 +1,349 @@
+package com.utp.biblioteca.intercambio;
+
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.util.IndiceIdentificadores;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * EscritorInstantanea - INSTANTÁNEA BINARIA DEL ESTADO COMPLETO
+ * Codifica recursos, usuarios, préstamos (con su multa) y reservas en el formato compacto
+ * de FormatoInstantanea. Las secciones se arman en memoria (deduplicando cadenas) y se
+ * escriben con FileChannel en un archivo temporal que reemplaza al destino al terminar,
+ * de modo que nunca queda una instantánea a medio escribir.
+ */
+public class EscritorInstantanea {
+
+    private static final Logger logger = LoggerFactory.getLogger(EscritorInstantanea.class);
+
+    /**
+     * Sección en construcción: registros codificados y posición relativa de cada uno
+     */
+    private static final class Seccion {
+        final BufferBinario datos = new BufferBinario(64 * 1024);
+        int[] posiciones = new int[1024];
+        int cantidad;
+
+        BufferBinario nuevoRegistro() {
+            if (cantidad == posiciones.length) {
+                posiciones = Arrays.copyOf(posiciones, cantidad * 2);
+            }
+            posiciones[cantidad++] = datos.getTamano();
+            return datos;
+        }
+    }
+
+    private final Map<String, Integer> indiceCadenas = new HashMap<>();
+    private final List<String> cadenas = new ArrayList<>();
+
+    /**
+     * Escribe la instantánea; los préstamos y reservas deben referirse
+     * a usuarios y recursos incluidos en la misma instantánea
+     */
+    public ResumenIntercambio escribir(Path destino, Iterable<? extends Recurso> recursos,
+                                       Iterable<? extends Usuario> usuarios,
+                                       Iterable<Prestamo> prestamos, Iterable<Reserva> reservas) {
+        long inicio = System.nanoTime();
+        indiceCadenas.clear();
+        cadenas.clear();
+        Seccion[] secciones = new Seccion[FormatoInstantanea.NUM_SECCIONES];
+        for (int i = 0; i < secciones.length; i++) {
+            secciones[i] = new Seccion();
+        }
+
+        IndiceIdentificadores numeroRecurso = new IndiceIdentificadores();
+        for (Recurso recurso : recursos) {
+            numeroRecurso.poner(recurso.getId(), secciones[FormatoInstantanea.RECURSOS].cantidad);
+            codificarRecurso(secciones[FormatoInstantanea.RECURSOS].nuevoRegistro(), recurso);
+        }
+        IndiceIdentificadores numeroUsuario = new IndiceIdentificadores();
+        for (Usuario usuario : usuarios) {
+            numeroUsuario.poner(usuario.getId(), secciones[FormatoInstantanea.USUARIOS].cantidad);
+            codificarUsuario(secciones[FormatoInstantanea.USUARIOS].nuevoRegistro(), usuario);
+        }
+        for (Prestamo prestamo : prestamos) {
+            BufferBinario b = secciones[FormatoInstantanea.PRESTAMOS].nuevoRegistro();
+            cadena(b, prestamo.getId());
+            b.varint(referencia(numeroUsuario, prestamo.getUsuarioId(), "Usuario"));
+            b.varint(referencia(numeroRecurso, prestamo.getRecursoId(), "Recurso"));
+            codificarPrestamo(b, prestamo);
+        }
+        for (Reserva reserva : reservas) {
+            BufferBinario b = secciones[FormatoInstantanea.RESERVAS].nuevoRegistro();
+            cadena(b, reserva.getId());
+            b.varint(referencia(numeroUsuario, reserva.getUsuarioId(), "Usuario"));
+            b.varint(referencia(numeroRecurso, reserva.getRecursoId(), "Recurso"));
+            fechaHora(b, reserva.getFechaReserva());
+            fechaHora(b, reserva.getFechaExpiracion());
+            b.byteSimple(reserva.getEstado().ordinal());
+            b.zigzag(reserva.getPrioridad());
+            b.zigzag(reserva.getPosicionCola());
+        }
+
+        // La tabla de cadenas se codifica al final, cuando ya se conocen todas
+        Seccion tablaCadenas = secciones[FormatoInstantanea.CADENAS];
+        for (String cadena : cadenas) {
+            byte[] utf8 = cadena.getBytes(StandardCharsets.UTF_8);
+            BufferBinario b = tablaCadenas.nuevoRegistro();
+            b.varint(utf8.length);
+            b.bytes(utf8);
+        }
+
+        long bytes = guardar(destino, secciones);
+        Map<String, Long> registros = new LinkedHashMap<>();
+        for (int s = FormatoInstantanea.RECURSOS; s < FormatoInstantanea.NUM_SECCIONES; s++) {
+            registros.put(FormatoInstantanea.NOMBRES_SECCION[s], (long) secciones[s].cantidad);
+        }
+        ResumenIntercambio resumen = new ResumenIntercambio(registros, System.nanoTime() - inicio);
+        logger.info("Instantánea escrita en {} ({} cadenas, {} bytes): {}", destino, cadenas.size(), bytes, resumen);
+        return resumen;
+    }
+
+    // ===============================================================
+    // CODIFICACIÓN POR TIPO
+    // ===============================================================
+
+    private void codificarRecurso(BufferBinario b, Recurso recurso) {
+        // Tipo y título primero: la búsqueda por título los lee sin decodificar el resto
+        if (recurso instanceof LibroFisico) {
+            b.byteSimple(FormatoInstantanea.LIBRO_FISICO);
+        } else if (recurso instanceof EBook) {
+            b.byteSimple(FormatoInstantanea.EBOOK);
+        } else if (recurso instanceof AudioLibro) {
+            b.byteSimple(FormatoInstantanea.AUDIOLIBRO);
+        } else {
+            throw new IllegalArgumentException("Tipo de recurso no soportado: " + recurso.getClass().getSimpleName());
+        }
+        cadena(b, recurso.getTitulo());
+        cadena(b, recurso.getId());
+        cadena(b, recurso.getAutor());
+        cadena(b, recurso.getCategoria());
+        fecha(b, recurso.getFechaPublicacion());
+        b.logico(recurso.isDisponible());
+        cadena(b, recurso.getDescripcion());
+        lista(b, recurso.getPalabrasClave());
+        b.varint(recurso.getNumeroVecesPrestado());
+        fecha(b, recurso.getFechaUltimoPrestamo());
+
+        if (recurso instanceof LibroFisico) {
+            LibroFisico libro = (LibroFisico) recurso;
+            cadena(b, libro.getIsbn());
+            b.zigzag(libro.getNumeroPaginas());
+            cadena(b, libro.getEditorial());
+            cadena(b, libro.getUbicacion());
+            cadena(b, libro.getEstado());
+        } else if (recurso instanceof EBook) {
+            EBook ebook = (EBook) recurso;
+            cadena(b, ebook.getFormato());
+            b.decimal(ebook.getTamanoMB());
+            cadena(b, ebook.getUrlDescarga());
+            b.logico(ebook.isRequiereDRM());
+            b.zigzag(ebook.getLimiteDescargas());
+            b.zigzag(ebook.getDescargasRealizadas());
+        } else {
+            AudioLibro audio = (AudioLibro) recurso;
+            b.zigzag(audio.getDuracionMinutos());
+            cadena(b, audio.getFormatoAudio());
+            cadena(b, audio.getNarrador());
+            cadena(b, audio.getCalidad());
+            cadena(b, audio.getUrlStreaming());
+            b.logico(audio.isPermiteDescarga());
+        }
+    }
+
+    private void codificarUsuario(BufferBinario b, Usuario usuario) {
+        if (usuario instanceof Estudiante) {
+            b.byteSimple(FormatoInstantanea.ESTUDIANTE);
+        } else if (usuario instanceof Profesor) {
+            b.byteSimple(FormatoInstantanea.PROFESOR);
+        } else if (usuario instanceof Bibliotecario) {
+            b.byteSimple(FormatoInstantanea.BIBLIOTECARIO);
+        } else {
+            throw new IllegalArgumentException("Tipo de usuario no soportado: " + usuario.getClass().getSimpleName());
+        }
+        cadena(b, usuario.getId());
+        cadena(b, usuario.getNombre());
+        cadena(b, usuario.getEmail());
+        fecha(b, usuario.getFechaRegistro());
+        b.logico(usuario.isActivo());
+        lista(b, usuario.getPrestamosActivos());
+        lista(b, usuario.getHistorialPrestamos());
+        b.decimal(usuario.getMultasPendientes());
+
+        if (usuario instanceof Estudiante) {
+            Estudiante estudiante = (Estudiante) usuario;
+            cadena(b, estudiante.getCarrera());
+            b.zigzag(estudiante.getSemestre());
+            cadena(b, estudiante.getCodigoEstudiante());
+        } else if (usuario instanceof Profesor) {
+            Profesor profesor = (Profesor) usuario;
+            cadena(b, profesor.getDepartamento());
+            cadena(b, profesor.getGrado());
+            cadena(b, profesor.getAreaEspecializacion());
+            b.logico(profesor.isCoordinador());
+        } else {
+            Bibliotecario bibliotecario = (Bibliotecario) usuario;
+            cadena(b, bibliotecario.getArea());
+            cadena(b, bibliotecario.getTurno());
+            b.logico(bibliotecario.isEsAdministrador());
+            lista(b, bibliotecario.getEspecialidades());
+        }
+    }
+
+    private void codificarPrestamo(BufferBinario b, Prestamo prestamo) {
+        fecha(b, prestamo.getFechaPrestamo());
+        fecha(b, prestamo.getFechaVencimiento());
+        fecha(b, prestamo.getFechaDevolucion());
+        b.byteSimple(prestamo.getEstado().ordinal());
+        b.zigzag(prestamo.getNumeroRenovaciones());
+        b.zigzag(prestamo.getMaxRenovaciones());
+
+        Multa multa = prestamo.getMulta();
+        b.logico(multa != null);
+        if (multa != null) {
+            cadena(b, multa.getId());
+            b.decimal(multa.getMonto());
+            cadena(b, multa.getConcepto());
+            fecha(b, multa.getFechaGeneracion());
+            fecha(b, multa.getFechaPago());
+            b.logico(multa.isPagada());
+            cadena(b, multa.getMetodoPago());
+            cadena(b, multa.getNumeroTransaccion());
+        }
+    }
+
+    // ===============================================================
+    // VALORES
+    // ===============================================================
+
+    private void cadena(BufferBinario b, String valor) {
+        if (valor == null) {
+            b.varint(0);
+            return;
+        }
+        Integer numero = indiceCadenas.get(valor);
+        if (numero == null) {
+            numero = cadenas.size();
+            indiceCadenas.put(valor, numero);
+            cadenas.add(valor);
+        }
+        b.varint(numero + 1L);
+    }
+
+    private void lista(BufferBinario b, List<String> valores) {
+        b.varint(valores.size());
+        for (String valor : valores) {
+            cadena(b, valor);
+        }
+    }
+
+    private static void fecha(BufferBinario b, LocalDate fecha) {
+        b.varint(fecha == null ? 0 : zigzag(fecha.toEpochDay()) + 1);
+    }
+
+    private static void fechaHora(BufferBinario b, LocalDateTime fechaHora) {
+        if (fechaHora == null) {
+            b.varint(0);
+            return;
+        }
+        b.varint(zigzag(fechaHora.toEpochSecond(ZoneOffset.UTC)) + 1);
+        b.varint(fechaHora.getNano());
+    }
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static int referencia(IndiceIdentificadores numeros, String id, String entidad) {
+        int numero = numeros.obtener(id);
+        if (numero == IndiceIdentificadores.NO_ENCONTRADO) {
+            throw new IllegalArgumentException(entidad + " no incluido en la instantánea: " + id);
+        }
+        return numero;
+    }
+
+    // ===============================================================
+    // ESCRITURA DEL ARCHIVO
+    // ===============================================================
+
+    private static long guardar(Path destino, Seccion[] secciones) {
+        ByteBuffer cabecera = ByteBuffer.allocate(FormatoInstantanea.TAMANO_CABECERA);
+        long posicion = FormatoInstantanea.TAMANO_CABECERA;
+        int[] inicioIndice = new int[secciones.length];
+        int[] inicioDatos = new int[secciones.length];
+        for (int s = 0; s < secciones.length; s++) {
+            inicioIndice[s] = (int) posicion;
+            posicion += 4L * secciones[s].cantidad;
+            inicioDatos[s] = (int) posicion;
+            posicion += secciones[s].datos.getTamano();
+            if (posicion > Integer.MAX_VALUE) {
+                throw new IllegalStateException("La instantánea supera el tamaño máximo (2 GB)");
+            }
+        }
+        cabecera.putInt(FormatoInstantanea.MAGIC).putInt(FormatoInstantanea.VERSION)
+                .putInt(FormatoInstantanea.NUM_SECCIONES).putInt((int) posicion);
+        for (int s = 0; s < secciones.length; s++) {
+            cabecera.putInt(inicioIndice[s]).putInt(secciones[s].cantidad);
+        }
+        cabecera.flip();
+
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".parcial");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            escribirCompleto(canal, cabecera);
+            for (int s = 0; s < secciones.length; s++) {
+                Seccion seccion = secciones[s];
+                ByteBuffer indice = ByteBuffer.allocate(4 * seccion.cantidad);
+                for (int i = 0; i < seccion.cantidad; i++) {
+                    indice.putInt(inicioDatos[s] + seccion.posiciones[i]);
+                }
+                indice.flip();
+                escribirCompleto(canal, indice);
+                seccion.datos.escribirEn(canal);
+            }
+            canal.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir la instantánea " + destino, e);
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo publicar la instantánea " + destino, e);
+        }
+        return posicion;
+    }
+
+    private static void escribirCompleto(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.utp.biblioteca.intercambio;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.temporal.Temporal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ExportadorJson - VOLCADO DEL CATÁLOGO Y LA CIRCULACIÓN EN STREAMING
+ * Escribe token a token con JsonGenerator: cada objeto se serializa y se descarta,
+ * así que la memoria usada no depende del tamaño del volcado (basta con que las
+ * colecciones de entrada también se recorran en streaming, p. ej. desde la base de datos).
+ * El campo "tipo" identifica la subclase de cada recurso y usuario (POLIMORFISMO).
+ */
+public class ExportadorJson {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportadorJson.class);
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final JsonFactory fabrica;
+
+    public ExportadorJson() {
+        this.fabrica = new JsonFactory();
+    }
+
+    /**
+     * Exporta a un archivo (se sobrescribe si existe)
+     */
+    public ResumenIntercambio exportar(Path destino, Iterable<? extends Recurso> recursos,
+                                       Iterable<? extends Usuario> usuarios,
+                                       Iterable<Prestamo> prestamos, Iterable<Reserva> reservas) {
+        try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(destino), TAMANO_BUFFER)) {
+            return exportar(salida, recursos, usuarios, prestamos, reservas);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo exportar a " + destino, e);
+        }
+    }
+
+    /**
+     * Exporta al flujo indicado (no se cierra)
+     */
+    public ResumenIntercambio exportar(OutputStream salida, Iterable<? extends Recurso> recursos,
+                                       Iterable<? extends Usuario> usuarios,
+                                       Iterable<Prestamo> prestamos, Iterable<Reserva> reservas) {
+        long inicio = System.nanoTime();
+        Map<String, Long> registros = new LinkedHashMap<>();
+        try (JsonGenerator json = fabrica.createGenerator(salida, JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeNumberField(FormatoIntercambio.CAMPO_VERSION, FormatoIntercambio.VERSION);
+
+            json.writeArrayFieldStart(FormatoIntercambio.RECURSOS);
+            long total = 0;
+            for (Recurso recurso : recursos) {
+                escribirRecurso(json, recurso);
+                total++;
+            }
+            json.writeEndArray();
+            registros.put(FormatoIntercambio.RECURSOS, total);
+
+            json.writeArrayFieldStart(FormatoIntercambio.USUARIOS);
+            total = 0;
+            for (Usuario usuario : usuarios) {
+                escribirUsuario(json, usuario);
+                total++;
+            }
+            json.writeEndArray();
+            registros.put(FormatoIntercambio.USUARIOS, total);
+
+            json.writeArrayFieldStart(FormatoIntercambio.PRESTAMOS);
+            total = 0;
+            for (Prestamo prestamo : prestamos) {
+                escribirPrestamo(json, prestamo);
+                total++;
+            }
+            json.writeEndArray();
+            registros.put(FormatoIntercambio.PRESTAMOS, total);
+
+            json.writeArrayFieldStart(FormatoIntercambio.RESERVAS);
+            total = 0;
+            for (Reserva reserva : reservas) {
+                escribirReserva(json, reserva);
+                total++;
+            }
+            json.writeEndArray();
+            registros.put(FormatoIntercambio.RESERVAS, total);
+
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al escribir el volcado JSON", e);
+        }
+        ResumenIntercambio resumen = new ResumenIntercambio(registros, System.nanoTime() - inicio);
+        logger.info("Exportación completada: {}", resumen);
+        return resumen;
+    }
+
+    // ===============================================================
+    // ESCRITURA POR TIPO
+    // ===============================================================
+
+    private void escribirRecurso(JsonGenerator json, Recurso recurso) throws IOException {
+        json.writeStartObject();
+        json.writeStringField(FormatoIntercambio.CAMPO_TIPO, recurso.getClass().getSimpleName());
+        json.writeStringField("id", recurso.getId());
+        json.writeStringField("titulo", recurso.getTitulo());
+        json.writeStringField("autor", recurso.getAutor());
+        json.writeStringField("categoria", recurso.getCategoria());
+        escribirFecha(json, "fechaPublicacion", recurso.getFechaPublicacion());
+        json.writeBooleanField("disponible", recurso.isDisponible());
+        json.writeStringField("descripcion", recurso.getDescripcion());
+        escribirLista(json, "palabrasClave", recurso.getPalabrasClave());
+        json.writeNumberField("numeroVecesPrestado", recurso.getNumeroVecesPrestado());
+        escribirFecha(json, "fechaUltimoPrestamo", recurso.getFechaUltimoPrestamo());
+
+        if (recurso instanceof LibroFisico) {
+            LibroFisico libro = (LibroFisico) recurso;
+            json.writeStringField("isbn", libro.getIsbn());
+            json.writeNumberField("numeroPaginas", libro.getNumeroPaginas());
+            json.writeStringField("editorial", libro.getEditorial());
+            json.writeStringField("ubicacion", libro.getUbicacion());
+            json.writeStringField("estado", libro.getEstado());
+        } else if (recurso instanceof EBook) {
+            EBook ebook = (EBook) recurso;
+            json.writeStringField("formato", ebook.getFormato());
+            json.writeNumberField("tamanoMB", ebook.getTamanoMB());
+            json.writeStringField("urlDescarga", ebook.getUrlDescarga());
+            json.writeBooleanField("requiereDRM", ebook.isRequiereDRM());
+            json.writeNumberField("limiteDescargas", ebook.getLimiteDescargas());
+            json.writeNumberField("descargasRealizadas", ebook.getDescargasRealizadas());
+        } else if (recurso instanceof AudioLibro) {
+            AudioLibro audio = (AudioLibro) recurso;
+            json.writeNumberField("duracionMinutos", audio.getDuracionMinutos());
+            json.writeStringField("formatoAudio", audio.getFormatoAudio());
+            json.writeStringField("narrador", audio.getNarrador());
+            json.writeStringField("calidad", audio.getCalidad());
+            json.writeStringField("urlStreaming", audio.getUrlStreaming());
+            json.writeBooleanField("permiteDescarga", audio.isPermiteDescarga());
+        }
+        json.writeEndObject();
+    }
+
+    private void escribirUsuario(JsonGenerator json, Usuario usuario) throws IOException {
+        json.writeStartObject();
+        json.writeStringField(FormatoIntercambio.CAMPO_TIPO, usuario.getClass().getSimpleName());
+        json.writeStringField("id", usuario.getId());
+        json.writeStringField("nombre", usuario.getNombre());
+        json.writeStringField("email", usuario.getEmail());
+        escribirFecha(json, "fechaRegistro", usuario.getFechaRegistro());
+        json.writeBooleanField("activo", usuario.isActivo());
+        escribirLista(json, "prestamosActivos", usuario.getPrestamosActivos());
+        escribirLista(json, "historialPrestamos", usuario.getHistorialPrestamos());
+        json.writeNumberField("multasPendientes", usuario.getMultasPendientes());
+
+        if (usuario instanceof Estudiante) {
+            Estudiante estudiante = (Estudiante) usuario;
+            json.writeStringField("carrera", estudiante.getCarrera());
+            json.writeNumberField("semestre", estudiante.getSemestre());
+            json.writeStringField("codigoEstudiante", estudiante.getCodigoEstudiante());
+        } else if (usuario instanceof Profesor) {
+            Profesor profesor = (Profesor) usuario;
+            json.writeStringField("departamento", profesor.getDepartamento());
+            json.writeStringField("grado", profesor.getGrado());
+            json.writeStringField("areaEspecializacion", profesor.getAreaEspecializacion());
+            json.writeBooleanField("coordinador", profesor.isCoordinador());
+        } else if (usuario instanceof Bibliotecario) {
+            Bibliotecario bibliotecario = (Bibliotecario) usuario;
+            json.writeStringField("area", bibliotecario.getArea());
+            json.writeStringField("turno", bibliotecario.getTurno());
+            json.writeBooleanField("esAdministrador", bibliotecario.isEsAdministrador());
+            escribirLista(json, "especialidades", bibliotecario.getEspecialidades());
+        }
+        json.writeEndObject();
+    }
+
+    private void escribirPrestamo(JsonGenerator json, Prestamo prestamo) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", prestamo.getId());
+        json.writeStringField("usuarioId", prestamo.getUsuarioId());
+        json.writeStringField("recursoId", prestamo.getRecursoId());
+        escribirFecha(json, "fechaPrestamo", prestamo.getFechaPrestamo());
+        escribirFecha(json, "fechaVencimiento", prestamo.getFechaVencimiento());
+        escribirFecha(json, "fechaDevolucion", prestamo.getFechaDevolucion());
+        json.writeStringField("estado", prestamo.getEstado().name());
+        json.writeNumberField("numeroRenovaciones", prestamo.getNumeroRenovaciones());
+        json.writeNumberField("maxRenovaciones", prestamo.getMaxRenovaciones());
+
+        Multa multa = prestamo.getMulta();
+        if (multa == null) {
+            json.writeNullField("multa");
+        } else {
+            json.writeObjectFieldStart("multa");
+            json.writeStringField("id", multa.getId());
+            json.writeNumberField("monto", multa.getMonto());
+            json.writeStringField("concepto", multa.getConcepto());
+            escribirFecha(json, "fechaGeneracion", multa.getFechaGeneracion());
+            escribirFecha(json, "fechaPago", multa.getFechaPago());
+            json.writeBooleanField("pagada", multa.isPagada());
+            json.writeStringField("metodoPago", multa.getMetodoPago());
+            json.writeStringField("numeroTransaccion", multa.getNumeroTransaccion());
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+    }
+
+    private void escribirReserva(JsonGenerator json, Reserva reserva) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", reserva.getId());
+        json.writeStringField("usuarioId", reserva.getUsuarioId());
+        json.writeStringField("recursoId", reserva.getRecursoId());
+        escribirFecha(json, "fechaReserva", reserva.getFechaReserva());
+        escribirFecha(json, "fechaExpiracion", reserva.getFechaExpiracion());
+        json.writeStringField("estado", reserva.getEstado().name());
+        json.writeNumberField("prioridad", reserva.getPrioridad());
+        json.writeNumberField("posicionCola", reserva.getPosicionCola());
+        json.writeEndObject();
+    }
+
+    /**
+     * Fechas en ISO-8601 (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss)
+     */
+    private static void escribirFecha(JsonGenerator json, String campo, Temporal fecha) throws IOException {
+        if (fecha == null) {
+            json.writeNullField(campo);
+        } else {
+            json.writeStringField(campo, fecha.toString());
+        }
+    }
+
+    private static void escribirLista(JsonGenerator json, String campo, List<String> valores) throws IOException {
+        json.writeArrayFieldStart(campo);
+        for (String valor : valores) {
+            json.writeString(valor);
+        }
+        json.writeEndArray();
+    }
+}
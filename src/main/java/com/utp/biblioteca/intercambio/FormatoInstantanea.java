@@ -0,0 +1,44 @@
+package com.utp.biblioteca.intercambio;
+
+/**
+ * Disposición del archivo de instantánea binaria (versión 1)
+ * 
+ * Cabecera: magic, versión, número de secciones, tamaño total (4 int) y, por sección,
+ * la posición de su índice y su número de registros (2 int).
+ * Sección: índice con la posición absoluta (int) de cada registro, seguido de los registros.
+ * Secciones: cadenas, recursos, usuarios, préstamos (con su multa) y reservas.
+ * 
+ * Codificación: las cadenas se guardan una sola vez en la tabla de cadenas y los registros
+ * las referencian por número (varint, 0 = null); fechas como epoch-day en zigzag (0 = null);
+ * préstamos y reservas apuntan al número de registro de su usuario y su recurso.
+ */
+final class FormatoInstantanea {
+
+    static final int MAGIC = 0x42494253; // "BIBS"
+    static final int VERSION = 1;
+
+    static final int CADENAS = 0;
+    static final int RECURSOS = 1;
+    static final int USUARIOS = 2;
+    static final int PRESTAMOS = 3;
+    static final int RESERVAS = 4;
+    static final int NUM_SECCIONES = 5;
+
+    static final int TAMANO_CABECERA = 16 + NUM_SECCIONES * 8;
+
+    // Tipos de recurso y de usuario (primer byte de cada registro)
+    static final int LIBRO_FISICO = 0;
+    static final int EBOOK = 1;
+    static final int AUDIOLIBRO = 2;
+    static final int ESTUDIANTE = 0;
+    static final int PROFESOR = 1;
+    static final int BIBLIOTECARIO = 2;
+
+    static final String[] NOMBRES_SECCION = {
+        "cadenas", FormatoIntercambio.RECURSOS, FormatoIntercambio.USUARIOS,
+        FormatoIntercambio.PRESTAMOS, FormatoIntercambio.RESERVAS
+    };
+
+    private FormatoInstantanea() {
+    }
+}
@@ -0,0 +1,26 @@
+package com.utp.biblioteca.intercambio;
+
+/**
+ * Nombres del formato de intercambio JSON compartidos por exportador e importador
+ * 
+ * { "version": 1,
+ *   "recursos":  [ {"tipo": "EBook", "id": ..., ...}, ... ],
+ *   "usuarios":  [ {"tipo": "Profesor", ...}, ... ],
+ *   "prestamos": [ {..., "multa": {...} | null}, ... ],
+ *   "reservas":  [ ... ] }
+ */
+final class FormatoIntercambio {
+
+    static final int VERSION = 1;
+
+    static final String CAMPO_VERSION = "version";
+    static final String CAMPO_TIPO = "tipo";
+
+    static final String RECURSOS = "recursos";
+    static final String USUARIOS = "usuarios";
+    static final String PRESTAMOS = "prestamos";
+    static final String RESERVAS = "reservas";
+
+    private FormatoIntercambio() {
+    }
+}
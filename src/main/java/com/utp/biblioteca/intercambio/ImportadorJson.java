@@ -0,0 +1,255 @@
+package com.utp.biblioteca.intercambio;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ImportadorJson - CARGA DE VOLCADOS EN STREAMING Y EN PARALELO
+ * El hilo que llama lee tokens con JsonParser y agrupa los objetos en lotes;
+ * un grupo de hilos trabajadores convierte cada lote en objetos del modelo y los
+ * entrega al DestinoImportacion. La cola entre ambos es acotada: si los trabajadores
+ * se atrasan, el parser espera, y la memoria queda limitada a unos pocos lotes.
+ * Al terminar cada sección se espera a que se procese completa, para que préstamos
+ * y reservas encuentren ya cargados sus usuarios y recursos.
+ */
+public class ImportadorJson {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportadorJson.class);
+
+    public static final int TAMANO_LOTE_DEFAULT = 500;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final JsonFactory fabrica;
+    private final int hilos;
+    private final int tamanoLote;
+
+    public ImportadorJson() {
+        this(Runtime.getRuntime().availableProcessors(), TAMANO_LOTE_DEFAULT);
+    }
+
+    public ImportadorJson(int hilos, int tamanoLote) {
+        if (hilos <= 0 || tamanoLote <= 0) {
+            throw new IllegalArgumentException("Hilos y tamaño de lote deben ser positivos");
+        }
+        this.fabrica = new JsonFactory();
+        this.hilos = hilos;
+        this.tamanoLote = tamanoLote;
+    }
+
+    public ResumenIntercambio importar(Path origen, DestinoImportacion destino) {
+        try (InputStream entrada = new BufferedInputStream(Files.newInputStream(origen), TAMANO_BUFFER)) {
+            return importar(entrada, destino);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo importar " + origen, e);
+        }
+    }
+
+    /**
+     * Importa desde el flujo indicado (no se cierra)
+     * @throws IllegalArgumentException si el volcado tiene un formato o un registro inválido
+     */
+    public ResumenIntercambio importar(InputStream entrada, DestinoImportacion destino) {
+        long inicio = System.nanoTime();
+        Importacion importacion = new Importacion(destino);
+        try (JsonParser parser = fabrica.createParser(entrada)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            importacion.leerDocumento(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer el volcado JSON", e);
+        } finally {
+            importacion.trabajadores.shutdownNow();
+        }
+        ResumenIntercambio resumen = new ResumenIntercambio(importacion.contadores(), System.nanoTime() - inicio);
+        logger.info("Importación completada con {} hilos: {}", hilos, resumen);
+        return resumen;
+    }
+
+    /**
+     * Estado de una importación en curso
+     */
+    private final class Importacion {
+
+        final DestinoImportacion destino;
+        final ThreadPoolExecutor trabajadores;
+        final Phaser pendientes = new Phaser(1);
+        final AtomicReference<RuntimeException> error = new AtomicReference<>();
+        final Map<String, AtomicLong> registros = new LinkedHashMap<>();
+
+        Importacion(DestinoImportacion destino) {
+            this.destino = destino;
+            this.trabajadores = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(hilos * 2), (tarea, ejecutor) -> {
+                        // Contrapresión: el parser espera a que haya sitio en la cola
+                        try {
+                            ejecutor.getQueue().put(tarea);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Importación interrumpida", e);
+                        }
+                    });
+            for (String seccion : List.of(FormatoIntercambio.RECURSOS, FormatoIntercambio.USUARIOS,
+                    FormatoIntercambio.PRESTAMOS, FormatoIntercambio.RESERVAS)) {
+                registros.put(seccion, new AtomicLong());
+            }
+        }
+
+        void leerDocumento(JsonParser parser) throws IOException {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("El volcado debe ser un objeto JSON");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.getCurrentName();
+                parser.nextToken();
+                if (FormatoIntercambio.CAMPO_VERSION.equals(campo)) {
+                    if (parser.getIntValue() != FormatoIntercambio.VERSION) {
+                        throw new IllegalArgumentException("Versión de volcado no soportada: " + parser.getText());
+                    }
+                } else if (registros.containsKey(campo)) {
+                    leerSeccion(parser, campo);
+                } else {
+                    parser.skipChildren(); // Campos desconocidos: compatibilidad hacia adelante
+                }
+            }
+        }
+
+        private void leerSeccion(JsonParser parser, String seccion) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("La sección '" + seccion + "' debe ser un arreglo");
+            }
+            List<RegistroJson> lote = new ArrayList<>(tamanoLote);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                lote.add(leerObjeto(parser));
+                if (lote.size() == tamanoLote) {
+                    enviar(seccion, lote);
+                    lote = new ArrayList<>(tamanoLote);
+                }
+            }
+            if (!lote.isEmpty()) {
+                enviar(seccion, lote);
+            }
+            // Barrera: la sección siguiente puede depender de esta
+            pendientes.arriveAndAwaitAdvance();
+            verificarError();
+        }
+
+        private void enviar(String seccion, List<RegistroJson> lote) {
+            verificarError();
+            pendientes.register();
+            trabajadores.execute(() -> {
+                try {
+                    if (error.get() == null) {
+                        procesar(seccion, lote);
+                    }
+                } catch (RuntimeException e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    pendientes.arriveAndDeregister();
+                }
+            });
+        }
+
+        private void procesar(String seccion, List<RegistroJson> lote) {
+            for (RegistroJson registro : lote) {
+                switch (seccion) {
+                    case FormatoIntercambio.RECURSOS:
+                        destino.alRecurso(ReconstructorObjetos.recurso(registro));
+                        break;
+                    case FormatoIntercambio.USUARIOS:
+                        destino.alUsuario(ReconstructorObjetos.usuario(registro));
+                        break;
+                    case FormatoIntercambio.PRESTAMOS:
+                        destino.alPrestamo(ReconstructorObjetos.prestamo(registro, destino));
+                        break;
+                    case FormatoIntercambio.RESERVAS:
+                        destino.alReserva(ReconstructorObjetos.reserva(registro, destino));
+                        break;
+                }
+            }
+            registros.get(seccion).addAndGet(lote.size());
+        }
+
+        private void verificarError() {
+            RuntimeException e = error.get();
+            if (e != null) {
+                throw e instanceof IllegalArgumentException ? e
+                        : new IllegalStateException("Error al reconstruir un registro", e);
+            }
+        }
+
+        Map<String, Long> contadores() {
+            Map<String, Long> totales = new LinkedHashMap<>();
+            registros.forEach((seccion, total) -> totales.put(seccion, total.get()));
+            return totales;
+        }
+    }
+
+    // ===============================================================
+    // LECTURA DE TOKENS
+    // ===============================================================
+
+    /**
+     * Lee un objeto completo; el parser está en START_OBJECT y queda en su END_OBJECT
+     */
+    private static RegistroJson leerObjeto(JsonParser parser) throws IOException {
+        RegistroJson registro = new RegistroJson();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = parser.getCurrentName();
+            registro.poner(campo, leerValor(parser, parser.nextToken()));
+        }
+        return registro;
+    }
+
+    private static Object leerValor(JsonParser parser, JsonToken token) throws IOException {
+        if (token == null) {
+            throw new IllegalArgumentException("Fin inesperado del volcado JSON");
+        }
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            case START_OBJECT:
+                return leerObjeto(parser);
+            case START_ARRAY:
+                List<Object> valores = new ArrayList<>();
+                JsonToken siguiente;
+                while ((siguiente = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    valores.add(leerValor(parser, siguiente));
+                }
+                return valores;
+            default:
+                throw new IllegalArgumentException("Token JSON inesperado: " + token);
+        }
+    }
+
+    public int getHilos() { return hilos; }
+    public int getTamanoLote() { return tamanoLote; }
+}
@@ -0,0 +1,451 @@
+package com.utp.biblioteca.intercambio;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.EstadoReserva;
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.util.IndiceIdentificadores;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * InstantaneaCatalogo - ARRANQUE RÁPIDO DESDE UNA INSTANTÁNEA MAPEADA EN MEMORIA
+ * Abrir solo mapea el archivo (MappedByteBuffer) y valida la cabecera: ningún objeto se
+ * construye hasta que se pide. Cada registro se decodifica al primer acceso y se conserva,
+ * así que un mismo recurso devuelve siempre la misma instancia y los préstamos comparten
+ * las instancias de su usuario y su recurso.
+ * La búsqueda por título lee solo el título de cada registro y materializa los que coinciden,
+ * por lo que la aplicación puede atender búsquedas antes de cargar el catálogo completo.
+ * Es seguro usarla desde varios hilos.
+ */
+public class InstantaneaCatalogo implements AutoCloseable {
+
+    private static final EstadoPrestamo[] ESTADOS_PRESTAMO = EstadoPrestamo.values();
+    private static final EstadoReserva[] ESTADOS_RESERVA = EstadoReserva.values();
+
+    private final Path archivo;
+    private final ByteBuffer mapa;
+    private final int[] inicioIndice = new int[FormatoInstantanea.NUM_SECCIONES];
+    private final int[] cantidad = new int[FormatoInstantanea.NUM_SECCIONES];
+
+    // Objetos ya decodificados (null = aún no se ha pedido)
+    private final String[] cadenas;
+    private final AtomicReferenceArray<Recurso> recursos;
+    private final AtomicReferenceArray<Usuario> usuarios;
+    private final AtomicReferenceArray<Prestamo> prestamos;
+    private final AtomicReferenceArray<Reserva> reservas;
+    private final AtomicInteger materializados = new AtomicInteger();
+
+    // Índices por id, construidos en la primera búsqueda por id
+    private volatile IndiceIdentificadores numeroRecursoPorId;
+    private volatile IndiceIdentificadores numeroUsuarioPorId;
+    private volatile boolean cerrada;
+
+    private InstantaneaCatalogo(Path archivo, ByteBuffer mapa) {
+        this.archivo = archivo;
+        this.mapa = mapa;
+        if (mapa.limit() < FormatoInstantanea.TAMANO_CABECERA || mapa.getInt(0) != FormatoInstantanea.MAGIC) {
+            throw new IllegalArgumentException("No es una instantánea de la biblioteca: " + archivo);
+        }
+        int version = mapa.getInt(4);
+        if (version != FormatoInstantanea.VERSION) {
+            throw new IllegalArgumentException("Versión de instantánea no soportada: " + version);
+        }
+        if (mapa.getInt(8) != FormatoInstantanea.NUM_SECCIONES || mapa.getInt(12) != mapa.limit()) {
+            throw new IllegalArgumentException("Instantánea truncada o dañada: " + archivo);
+        }
+        for (int s = 0; s < FormatoInstantanea.NUM_SECCIONES; s++) {
+            inicioIndice[s] = mapa.getInt(16 + s * 8);
+            cantidad[s] = mapa.getInt(20 + s * 8);
+        }
+        this.cadenas = new String[cantidad[FormatoInstantanea.CADENAS]];
+        this.recursos = new AtomicReferenceArray<>(cantidad[FormatoInstantanea.RECURSOS]);
+        this.usuarios = new AtomicReferenceArray<>(cantidad[FormatoInstantanea.USUARIOS]);
+        this.prestamos = new AtomicReferenceArray<>(cantidad[FormatoInstantanea.PRESTAMOS]);
+        this.reservas = new AtomicReferenceArray<>(cantidad[FormatoInstantanea.RESERVAS]);
+    }
+
+    /**
+     * Mapea la instantánea en memoria (solo lectura)
+     * @throws IllegalArgumentException si el archivo no es una instantánea válida
+     */
+    public static InstantaneaCatalogo abrir(Path archivo) {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("La instantánea supera el tamaño máximo (2 GB): " + archivo);
+            }
+            // El mapeo sigue siendo válido después de cerrar el canal
+            return new InstantaneaCatalogo(archivo, canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir la instantánea " + archivo, e);
+        }
+    }
+
+    // ===============================================================
+    // ACCESO POR NÚMERO DE REGISTRO
+    // ===============================================================
+
+    public Recurso getRecurso(int numero) {
+        Recurso recurso = recursos.get(numero);
+        if (recurso == null) {
+            recurso = publicar(recursos, numero, decodificarRecurso(posicion(FormatoInstantanea.RECURSOS, numero)));
+        }
+        return recurso;
+    }
+
+    public Usuario getUsuario(int numero) {
+        Usuario usuario = usuarios.get(numero);
+        if (usuario == null) {
+            usuario = publicar(usuarios, numero, decodificarUsuario(posicion(FormatoInstantanea.USUARIOS, numero)));
+        }
+        return usuario;
+    }
+
+    public Prestamo getPrestamo(int numero) {
+        Prestamo prestamo = prestamos.get(numero);
+        if (prestamo == null) {
+            prestamo = publicar(prestamos, numero, decodificarPrestamo(posicion(FormatoInstantanea.PRESTAMOS, numero)));
+        }
+        return prestamo;
+    }
+
+    public Reserva getReserva(int numero) {
+        Reserva reserva = reservas.get(numero);
+        if (reserva == null) {
+            reserva = publicar(reservas, numero, decodificarReserva(posicion(FormatoInstantanea.RESERVAS, numero)));
+        }
+        return reserva;
+    }
+
+    /**
+     * Si dos hilos decodifican el mismo registro a la vez, gana el primero
+     */
+    private <T> T publicar(AtomicReferenceArray<T> cache, int numero, T decodificado) {
+        if (cache.compareAndSet(numero, null, decodificado)) {
+            materializados.incrementAndGet();
+            return decodificado;
+        }
+        return cache.get(numero);
+    }
+
+    public int getNumeroRecursos() { return cantidad[FormatoInstantanea.RECURSOS]; }
+    public int getNumeroUsuarios() { return cantidad[FormatoInstantanea.USUARIOS]; }
+    public int getNumeroPrestamos() { return cantidad[FormatoInstantanea.PRESTAMOS]; }
+    public int getNumeroReservas() { return cantidad[FormatoInstantanea.RESERVAS]; }
+
+    /**
+     * Objetos del modelo construidos hasta ahora
+     */
+    public int getMaterializados() { return materializados.get(); }
+
+    // ===============================================================
+    // BÚSQUEDAS
+    // ===============================================================
+
+    /**
+     * Recursos cuyo título contiene el texto (misma regla que Recurso.buscarPorTitulo)
+     * Solo se materializan los recursos que coinciden.
+     */
+    public List<Recurso> buscarPorTitulo(String titulo) {
+        String buscado = titulo.toLowerCase();
+        List<Recurso> encontrados = new ArrayList<>();
+        for (int i = 0; i < getNumeroRecursos(); i++) {
+            LectorBinario lector = new LectorBinario(mapa, posicion(FormatoInstantanea.RECURSOS, i));
+            lector.saltar(1); // tipo
+            String tituloRegistro = cadena(lector);
+            if (tituloRegistro != null && tituloRegistro.toLowerCase().contains(buscado)) {
+                encontrados.add(getRecurso(i));
+            }
+        }
+        return encontrados;
+    }
+
+    public Recurso buscarRecurso(String id) {
+        IndiceIdentificadores indice = numeroRecursoPorId;
+        if (indice == null) {
+            indice = construirIndiceRecursos();
+        }
+        int numero = indice.obtener(id);
+        return numero != IndiceIdentificadores.NO_ENCONTRADO ? getRecurso(numero) : null;
+    }
+
+    public Usuario buscarUsuario(String id) {
+        IndiceIdentificadores indice = numeroUsuarioPorId;
+        if (indice == null) {
+            indice = construirIndiceUsuarios();
+        }
+        int numero = indice.obtener(id);
+        return numero != IndiceIdentificadores.NO_ENCONTRADO ? getUsuario(numero) : null;
+    }
+
+    private synchronized IndiceIdentificadores construirIndiceRecursos() {
+        if (numeroRecursoPorId == null) {
+            IndiceIdentificadores indice = new IndiceIdentificadores(getNumeroRecursos());
+            for (int i = 0; i < getNumeroRecursos(); i++) {
+                LectorBinario lector = new LectorBinario(mapa, posicion(FormatoInstantanea.RECURSOS, i));
+                lector.saltar(1);
+                lector.varint(); // título
+                indice.poner(cadena(lector), i);
+            }
+            numeroRecursoPorId = indice;
+        }
+        return numeroRecursoPorId;
+    }
+
+    private synchronized IndiceIdentificadores construirIndiceUsuarios() {
+        if (numeroUsuarioPorId == null) {
+            IndiceIdentificadores indice = new IndiceIdentificadores(getNumeroUsuarios());
+            for (int i = 0; i < getNumeroUsuarios(); i++) {
+                LectorBinario lector = new LectorBinario(mapa, posicion(FormatoInstantanea.USUARIOS, i));
+                lector.saltar(1);
+                indice.poner(cadena(lector), i);
+            }
+            numeroUsuarioPorId = indice;
+        }
+        return numeroUsuarioPorId;
+    }
+
+    /**
+     * Recorre los recursos materializándolos a medida que se consumen
+     */
+    public Stream<Recurso> recursos() {
+        return IntStream.range(0, getNumeroRecursos()).mapToObj(this::getRecurso);
+    }
+
+    /**
+     * Materializa todo el contenido (en paralelo) y lo entrega al destino
+     */
+    public ResumenIntercambio cargarEn(DestinoImportacion destino) {
+        long inicio = System.nanoTime();
+        IntStream.range(0, getNumeroRecursos()).parallel().forEach(i -> destino.alRecurso(getRecurso(i)));
+        IntStream.range(0, getNumeroUsuarios()).parallel().forEach(i -> destino.alUsuario(getUsuario(i)));
+        IntStream.range(0, getNumeroPrestamos()).parallel().forEach(i -> destino.alPrestamo(getPrestamo(i)));
+        IntStream.range(0, getNumeroReservas()).parallel().forEach(i -> destino.alReserva(getReserva(i)));
+
+        Map<String, Long> registros = new LinkedHashMap<>();
+        for (int s = FormatoInstantanea.RECURSOS; s < FormatoInstantanea.NUM_SECCIONES; s++) {
+            registros.put(FormatoInstantanea.NOMBRES_SECCION[s], (long) cantidad[s]);
+        }
+        return new ResumenIntercambio(registros, System.nanoTime() - inicio);
+    }
+
+    // ===============================================================
+    // DECODIFICACIÓN
+    // ===============================================================
+
+    private Recurso decodificarRecurso(int posicion) {
+        LectorBinario l = new LectorBinario(mapa, posicion);
+        int tipo = l.byteSimple();
+        String titulo = cadena(l);
+        String id = cadena(l);
+        String autor = cadena(l);
+        String categoria = cadena(l);
+        LocalDate fechaPublicacion = fecha(l);
+        boolean disponible = l.logico();
+        String descripcion = cadena(l);
+        List<String> palabrasClave = lista(l);
+        int numeroVecesPrestado = l.varintEntero();
+        LocalDate fechaUltimoPrestamo = fecha(l);
+
+        Recurso recurso;
+        switch (tipo) {
+            case FormatoInstantanea.LIBRO_FISICO:
+                LibroFisico libro = new LibroFisico(titulo, autor, categoria, fechaPublicacion,
+                        cadena(l), (int) l.zigzag(), cadena(l), cadena(l));
+                libro.setEstado(cadena(l));
+                recurso = libro;
+                break;
+            case FormatoInstantanea.EBOOK:
+                EBook ebook = new EBook(titulo, autor, categoria, fechaPublicacion, cadena(l), l.decimal(), cadena(l));
+                ebook.setRequiereDRM(l.logico());
+                ebook.setLimiteDescargas((int) l.zigzag());
+                ebook.restaurarDescargas((int) l.zigzag());
+                recurso = ebook;
+                break;
+            case FormatoInstantanea.AUDIOLIBRO:
+                AudioLibro audio = new AudioLibro(titulo, autor, categoria, fechaPublicacion,
+                        (int) l.zigzag(), cadena(l), cadena(l), cadena(l));
+                audio.setUrlStreaming(cadena(l));
+                audio.setPermiteDescarga(l.logico());
+                recurso = audio;
+                break;
+            default:
+                throw new IllegalStateException("Tipo de recurso desconocido en la instantánea: " + tipo);
+        }
+        recurso.setDescripcion(descripcion);
+        palabrasClave.forEach(recurso::agregarPalabraClave);
+        recurso.restaurarEstado(id, disponible, numeroVecesPrestado, fechaUltimoPrestamo);
+        return recurso;
+    }
+
+    private Usuario decodificarUsuario(int posicion) {
+        LectorBinario l = new LectorBinario(mapa, posicion);
+        int tipo = l.byteSimple();
+        String id = cadena(l);
+        String nombre = cadena(l);
+        String email = cadena(l);
+        LocalDate fechaRegistro = fecha(l);
+        boolean activo = l.logico();
+        List<String> prestamosActivos = lista(l);
+        List<String> historial = lista(l);
+        double multasPendientes = l.decimal();
+
+        Usuario usuario;
+        switch (tipo) {
+            case FormatoInstantanea.ESTUDIANTE:
+                usuario = new Estudiante(nombre, email, null, cadena(l), (int) l.zigzag(), cadena(l));
+                break;
+            case FormatoInstantanea.PROFESOR:
+                Profesor profesor = new Profesor(nombre, email, null, cadena(l), cadena(l), cadena(l));
+                profesor.setCoordinador(l.logico());
+                usuario = profesor;
+                break;
+            case FormatoInstantanea.BIBLIOTECARIO:
+                Bibliotecario bibliotecario = new Bibliotecario(nombre, email, null, cadena(l), cadena(l));
+                bibliotecario.setEsAdministrador(l.logico());
+                lista(l).forEach(bibliotecario::agregarEspecialidad);
+                usuario = bibliotecario;
+                break;
+            default:
+                throw new IllegalStateException("Tipo de usuario desconocido en la instantánea: " + tipo);
+        }
+        usuario.restaurarEstado(id, fechaRegistro, activo, prestamosActivos, historial, multasPendientes);
+        return usuario;
+    }
+
+    private Prestamo decodificarPrestamo(int posicion) {
+        LectorBinario l = new LectorBinario(mapa, posicion);
+        String id = cadena(l);
+        Usuario usuario = getUsuario(l.varintEntero());
+        Recurso recurso = getRecurso(l.varintEntero());
+        LocalDate fechaPrestamo = fecha(l);
+        LocalDate fechaVencimiento = fecha(l);
+        LocalDate fechaDevolucion = fecha(l);
+        EstadoPrestamo estado = ESTADOS_PRESTAMO[l.byteSimple()];
+        int renovaciones = (int) l.zigzag();
+        int maxRenovaciones = (int) l.zigzag();
+        Multa multa = null;
+        if (l.logico()) {
+            multa = Multa.restaurar(cadena(l), id, l.decimal(), cadena(l), fecha(l), fecha(l),
+                    l.logico(), cadena(l), cadena(l));
+        }
+        return Prestamo.restaurar(id, usuario, recurso, fechaPrestamo, fechaVencimiento, fechaDevolucion,
+                estado, renovaciones, maxRenovaciones, multa);
+    }
+
+    private Reserva decodificarReserva(int posicion) {
+        LectorBinario l = new LectorBinario(mapa, posicion);
+        String id = cadena(l);
+        Usuario usuario = getUsuario(l.varintEntero());
+        Recurso recurso = getRecurso(l.varintEntero());
+        LocalDateTime fechaReserva = fechaHora(l);
+        LocalDateTime fechaExpiracion = fechaHora(l);
+        EstadoReserva estado = ESTADOS_RESERVA[l.byteSimple()];
+        return Reserva.restaurar(id, usuario, recurso, fechaReserva, fechaExpiracion, estado,
+                (int) l.zigzag(), (int) l.zigzag());
+    }
+
+    // ===============================================================
+    // VALORES
+    // ===============================================================
+
+    private String cadena(LectorBinario lector) {
+        int referencia = lector.varintEntero();
+        if (referencia == 0) {
+            return null;
+        }
+        int numero = referencia - 1;
+        String cadena = cadenas[numero];
+        if (cadena == null) {
+            // Carrera benigna: dos hilos pueden decodificar la misma cadena inmutable
+            LectorBinario texto = new LectorBinario(mapa, posicion(FormatoInstantanea.CADENAS, numero));
+            int longitud = texto.varintEntero();
+            byte[] utf8 = new byte[longitud];
+            mapa.get(texto.getPosicion(), utf8);
+            cadena = new String(utf8, StandardCharsets.UTF_8);
+            cadenas[numero] = cadena;
+        }
+        return cadena;
+    }
+
+    private List<String> lista(LectorBinario lector) {
+        int tamano = lector.varintEntero();
+        List<String> valores = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            valores.add(cadena(lector));
+        }
+        return valores;
+    }
+
+    private static LocalDate fecha(LectorBinario lector) {
+        long valor = lector.varint();
+        return valor == 0 ? null : LocalDate.ofEpochDay(deshacerZigzag(valor - 1));
+    }
+
+    private static LocalDateTime fechaHora(LectorBinario lector) {
+        long valor = lector.varint();
+        if (valor == 0) {
+            return null;
+        }
+        long segundos = deshacerZigzag(valor - 1);
+        return LocalDateTime.ofEpochSecond(segundos, lector.varintEntero(), ZoneOffset.UTC);
+    }
+
+    private static long deshacerZigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private int posicion(int seccion, int numero) {
+        if (cerrada) {
+            throw new IllegalStateException("La instantánea está cerrada");
+        }
+        if (numero < 0 || numero >= cantidad[seccion]) {
+            throw new IndexOutOfBoundsException("Registro " + numero + " fuera de rango en " 
+                    + FormatoInstantanea.NOMBRES_SECCION[seccion]);
+        }
+        return mapa.getInt(inicioIndice[seccion] + 4 * numero);
+    }
+
+    public Path getArchivo() { return archivo; }
+
+    /**
+     * Impide nuevos accesos; el mapeo se libera cuando el recolector descarta el buffer
+     */
+    @Override
+    public void close() {
+        cerrada = true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InstantaneaCatalogo{archivo=%s, recursos=%d, usuarios=%d, préstamos=%d, reservas=%d, materializados=%d}",
+                archivo.getFileName(), getNumeroRecursos(), getNumeroUsuarios(), getNumeroPrestamos(),
+                getNumeroReservas(), getMaterializados());
+    }
+}
@@ -0,0 +1,60 @@
+package com.utp.biblioteca.intercambio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor de lectura sobre el buffer mapeado de la instantánea
+ * Usa lecturas absolutas, así varios hilos pueden decodificar a la vez
+ * sobre el mismo MappedByteBuffer (cada uno con su propio cursor).
+ */
+final class LectorBinario {
+
+    private final ByteBuffer buffer;
+    private int posicion;
+
+    LectorBinario(ByteBuffer buffer, int posicion) {
+        this.buffer = buffer;
+        this.posicion = posicion;
+    }
+
+    int byteSimple() {
+        return buffer.get(posicion++) & 0xFF;
+    }
+
+    boolean logico() {
+        return byteSimple() != 0;
+    }
+
+    long varint() {
+        long resultado = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = buffer.get(posicion++);
+            resultado |= (long) (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while (b < 0);
+        return resultado;
+    }
+
+    int varintEntero() {
+        return (int) varint();
+    }
+
+    long zigzag() {
+        long valor = varint();
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    double decimal() {
+        double valor = buffer.getDouble(posicion);
+        posicion += 8;
+        return valor;
+    }
+
+    void saltar(int bytes) {
+        posicion += bytes;
+    }
+
+    int getPosicion() { return posicion; }
+}
@@ -0,0 +1,142 @@
+package com.utp.biblioteca.intercambio;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.EstadoReserva;
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.model.usuario.Usuario;
+
+/**
+ * Convierte registros JSON en objetos del modelo según su "tipo" (POLIMORFISMO)
+ * Sin estado: se usa a la vez desde todos los hilos trabajadores.
+ */
+final class ReconstructorObjetos {
+
+    private ReconstructorObjetos() {
+    }
+
+    static Recurso recurso(RegistroJson registro) {
+        String tipo = registro.textoObligatorio(FormatoIntercambio.CAMPO_TIPO);
+        String titulo = registro.texto("titulo");
+        String autor = registro.texto("autor");
+        String categoria = registro.texto("categoria");
+        Recurso recurso;
+        switch (tipo) {
+            case "LibroFisico":
+                LibroFisico libro = new LibroFisico(titulo, autor, categoria, registro.fecha("fechaPublicacion"),
+                        registro.texto("isbn"), registro.entero("numeroPaginas"),
+                        registro.texto("editorial"), registro.texto("ubicacion"));
+                libro.setEstado(registro.texto("estado"));
+                recurso = libro;
+                break;
+            case "EBook":
+                EBook ebook = new EBook(titulo, autor, categoria, registro.fecha("fechaPublicacion"),
+                        registro.texto("formato"), registro.decimal("tamanoMB"), registro.texto("urlDescarga"));
+                ebook.setRequiereDRM(registro.logico("requiereDRM"));
+                ebook.setLimiteDescargas(registro.entero("limiteDescargas"));
+                ebook.restaurarDescargas(registro.entero("descargasRealizadas"));
+                recurso = ebook;
+                break;
+            case "AudioLibro":
+                AudioLibro audio = new AudioLibro(titulo, autor, categoria, registro.fecha("fechaPublicacion"),
+                        registro.entero("duracionMinutos"), registro.texto("formatoAudio"),
+                        registro.texto("narrador"), registro.texto("calidad"));
+                audio.setUrlStreaming(registro.texto("urlStreaming"));
+                audio.setPermiteDescarga(registro.logico("permiteDescarga"));
+                recurso = audio;
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de recurso desconocido: " + tipo);
+        }
+        recurso.setDescripcion(registro.texto("descripcion"));
+        for (String palabra : registro.lista("palabrasClave")) {
+            recurso.agregarPalabraClave(palabra);
+        }
+        recurso.restaurarEstado(registro.textoObligatorio("id"), registro.logico("disponible"),
+                registro.entero("numeroVecesPrestado"), registro.fecha("fechaUltimoPrestamo"));
+        return recurso;
+    }
+
+    static Usuario usuario(RegistroJson registro) {
+        String tipo = registro.textoObligatorio(FormatoIntercambio.CAMPO_TIPO);
+        String nombre = registro.texto("nombre");
+        String email = registro.texto("email");
+        Usuario usuario;
+        // La contraseña no viaja en el volcado
+        switch (tipo) {
+            case "Estudiante":
+                usuario = new Estudiante(nombre, email, null, registro.texto("carrera"),
+                        registro.entero("semestre"), registro.texto("codigoEstudiante"));
+                break;
+            case "Profesor":
+                Profesor profesor = new Profesor(nombre, email, null, registro.texto("departamento"),
+                        registro.texto("grado"), registro.texto("areaEspecializacion"));
+                profesor.setCoordinador(registro.logico("coordinador"));
+                usuario = profesor;
+                break;
+            case "Bibliotecario":
+                Bibliotecario bibliotecario = new Bibliotecario(nombre, email, null,
+                        registro.texto("area"), registro.texto("turno"));
+                bibliotecario.setEsAdministrador(registro.logico("esAdministrador"));
+                registro.lista("especialidades").forEach(bibliotecario::agregarEspecialidad);
+                usuario = bibliotecario;
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de usuario desconocido: " + tipo);
+        }
+        usuario.restaurarEstado(registro.textoObligatorio("id"), registro.fecha("fechaRegistro"),
+                registro.logico("activo"), registro.lista("prestamosActivos"),
+                registro.lista("historialPrestamos"), registro.decimal("multasPendientes"));
+        return usuario;
+    }
+
+    static Prestamo prestamo(RegistroJson registro, DestinoImportacion destino) {
+        String id = registro.textoObligatorio("id");
+        Multa multa = null;
+        RegistroJson datosMulta = registro.anidado("multa");
+        if (datosMulta != null) {
+            multa = Multa.restaurar(datosMulta.textoObligatorio("id"), id, datosMulta.decimal("monto"),
+                    datosMulta.texto("concepto"), datosMulta.fecha("fechaGeneracion"),
+                    datosMulta.fecha("fechaPago"), datosMulta.logico("pagada"),
+                    datosMulta.texto("metodoPago"), datosMulta.texto("numeroTransaccion"));
+        }
+        return Prestamo.restaurar(id, resolverUsuario(registro, destino), resolverRecurso(registro, destino),
+                registro.fecha("fechaPrestamo"), registro.fecha("fechaVencimiento"),
+                registro.fecha("fechaDevolucion"), EstadoPrestamo.valueOf(registro.textoObligatorio("estado")),
+                registro.entero("numeroRenovaciones"), registro.entero("maxRenovaciones"), multa);
+    }
+
+    static Reserva reserva(RegistroJson registro, DestinoImportacion destino) {
+        return Reserva.restaurar(registro.textoObligatorio("id"),
+                resolverUsuario(registro, destino), resolverRecurso(registro, destino),
+                registro.fechaHora("fechaReserva"), registro.fechaHora("fechaExpiracion"),
+                EstadoReserva.valueOf(registro.textoObligatorio("estado")),
+                registro.entero("prioridad"), registro.entero("posicionCola"));
+    }
+
+    private static Usuario resolverUsuario(RegistroJson registro, DestinoImportacion destino) {
+        String usuarioId = registro.textoObligatorio("usuarioId");
+        Usuario usuario = destino.buscarUsuario(usuarioId);
+        if (usuario == null) {
+            throw new IllegalArgumentException("Usuario no encontrado: " + usuarioId);
+        }
+        return usuario;
+    }
+
+    private static Recurso resolverRecurso(RegistroJson registro, DestinoImportacion destino) {
+        String recursoId = registro.textoObligatorio("recursoId");
+        Recurso recurso = destino.buscarRecurso(recursoId);
+        if (recurso == null) {
+            throw new IllegalArgumentException("Recurso no encontrado: " + recursoId);
+        }
+        return recurso;
+    }
+}
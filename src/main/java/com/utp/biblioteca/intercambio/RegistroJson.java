@@ -0,0 +1,69 @@
+package com.utp.biblioteca.intercambio;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Objeto JSON ya leído por el parser (campo -> valor), pendiente de convertirse
+ * en un objeto del modelo en un hilo trabajador
+ * Los valores son String, Long, Double, Boolean, null, List o RegistroJson anidado.
+ */
+final class RegistroJson {
+
+    private final Map<String, Object> campos = new HashMap<>(32);
+
+    void poner(String campo, Object valor) {
+        campos.put(campo, valor);
+    }
+
+    String texto(String campo) {
+        Object valor = campos.get(campo);
+        return valor != null ? valor.toString() : null;
+    }
+
+    String textoObligatorio(String campo) {
+        String valor = texto(campo);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta el campo obligatorio '" + campo + "'");
+        }
+        return valor;
+    }
+
+    int entero(String campo) {
+        Object valor = campos.get(campo);
+        return valor instanceof Number ? ((Number) valor).intValue() : 0;
+    }
+
+    double decimal(String campo) {
+        Object valor = campos.get(campo);
+        return valor instanceof Number ? ((Number) valor).doubleValue() : 0.0;
+    }
+
+    boolean logico(String campo) {
+        return Boolean.TRUE.equals(campos.get(campo));
+    }
+
+    LocalDate fecha(String campo) {
+        String valor = texto(campo);
+        return valor != null ? LocalDate.parse(valor) : null;
+    }
+
+    LocalDateTime fechaHora(String campo) {
+        String valor = texto(campo);
+        return valor != null ? LocalDateTime.parse(valor) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<String> lista(String campo) {
+        Object valor = campos.get(campo);
+        return valor instanceof List ? (List<String>) valor : List.of();
+    }
+
+    RegistroJson anidado(String campo) {
+        Object valor = campos.get(campo);
+        return valor instanceof RegistroJson ? (RegistroJson) valor : null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.utp.biblioteca.intercambio;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resultado de una exportación o importación: registros por sección y rendimiento
+ */
+public final class ResumenIntercambio {
+
+    private final Map<String, Long> registrosPorSeccion;
+    private final long nanos;
+
+    ResumenIntercambio(Map<String, Long> registrosPorSeccion, long nanos) {
+        this.registrosPorSeccion = Collections.unmodifiableMap(new LinkedHashMap<>(registrosPorSeccion));
+        this.nanos = nanos;
+    }
+
+    /**
+     * Registros de una sección ("recursos", "usuarios", "prestamos", "reservas")
+     */
+    public long getRegistros(String seccion) {
+        return registrosPorSeccion.getOrDefault(seccion, 0L);
+    }
+
+    public long getTotalRegistros() {
+        return registrosPorSeccion.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public Map<String, Long> getRegistrosPorSeccion() { return registrosPorSeccion; }
+
+    public Duration getDuracion() { return Duration.ofNanos(nanos); }
+
+    public double getRegistrosPorSegundo() {
+        return nanos > 0 ? getTotalRegistros() * 1e9 / nanos : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResumenIntercambio{registros=%s, duración=%d ms, %.0f registros/s}",
+                registrosPorSeccion, nanos / 1_000_000, getRegistrosPorSegundo());
+    }
+}
@@ -1,5 +1,9 @@
 package com.utp.biblioteca.model.gestion;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
 import java.time.LocalDate;
 import java.util.UUID;
 
@@ -8,10 +12,15 @@ import java.util.UUID;
  * Representa una multa generada por un préstamo
  * Aplicación de COMPOSICIÓN: una multa no puede existir sin un préstamo
  */
+@Entity
+@Table(name = "multa")
 public class Multa {
     
     // COMPOSICIÓN: Multa pertenece a un Préstamo específico
+    @Id
+    @Column(length = 36)
     private String id;
+    @Column(length = 36)
     private String prestamoId;
     
     // Información de la multa
@@ -25,6 +34,12 @@ public class Multa {
     private String metodoPago;
     private String numeroTransaccion;
     
+    /**
+     * Constructor requerido por JPA
+     */
+    protected Multa() {
+    }
+    
     /**
      * Constructor para crear una nueva multa
      * COMPOSICIÓN: requiere un préstamo para existir
@@ -38,6 +53,25 @@ public class Multa {
         this.pagada = false;
     }
     
+    /**
+     * Reconstruye una multa existente (importación, copia de seguridad)
+     */
+    public static Multa restaurar(String id, String prestamoId, double monto, String concepto,
+                                  LocalDate fechaGeneracion, LocalDate fechaPago, boolean pagada,
+                                  String metodoPago, String numeroTransaccion) {
+        Multa multa = new Multa();
+        multa.id = id;
+        multa.prestamoId = prestamoId;
+        multa.monto = monto;
+        multa.concepto = concepto;
+        multa.fechaGeneracion = fechaGeneracion;
+        multa.fechaPago = fechaPago;
+        multa.pagada = pagada;
+        multa.metodoPago = metodoPago;
+        multa.numeroTransaccion = numeroTransaccion;
+        return multa;
+    }
+    
     // ===============================================================
     // LÓGICA DE NEGOCIO DE MULTAS
     // ===============================================================
@@ -162,9 +196,17 @@ public class Multa {
      * Obtiene el estado textual de la multa
      */
     public String getEstadoTexto() {
+        return estadoTexto(pagada, fechaGeneracion, LocalDate.now());
+    }
+    
+    /**
+     * Estado textual a partir de los campos persistidos (lecturas por proyección, sin la entidad)
+     * Las multas se consideran vencidas después de 30 días sin pago.
+     */
+    public static String estadoTexto(boolean pagada, LocalDate fechaGeneracion, LocalDate hoy) {
         if (pagada) {
             return "PAGADA";
-        } else if (estaVencidaParaPago()) {
+        } else if (java.time.temporal.ChronoUnit.DAYS.between(fechaGeneracion, hoy) > 30) {
             return "VENCIDA";
         } else {
             return "PENDIENTE";
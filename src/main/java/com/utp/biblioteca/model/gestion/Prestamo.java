@@ -3,6 +3,22 @@ package com.utp.biblioteca.model.gestion;
 import com.utp.biblioteca.model.usuario.Usuario;
 import com.utp.biblioteca.model.recurso.Recurso;
 import com.utp.biblioteca.model.interfaces.Prestable;
+import com.utp.biblioteca.util.Identificadores;
+import jakarta.persistence.Access;
+import jakarta.persistence.AccessType;
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.UUID;
@@ -12,38 +28,82 @@ import java.util.UUID;
  * Representa la relación entre un Usuario y un Recurso durante un préstamo
  * Aplica COMPOSICIÓN con Multa (un préstamo puede generar una multa)
  */
+@Entity
+@Table(name = "prestamo", indexes = {
+        @Index(name = "idx_prestamo_usuario", columnList = "usuario_id"),
+        @Index(name = "idx_prestamo_recurso", columnList = "recurso_id"),
+        @Index(name = "idx_prestamo_fecha", columnList = "fecha_prestamo, id")
+})
 public class Prestamo {
     
     // ASOCIACIÓN: Préstamo está asociado con Usuario y Recurso
+    @Id
+    @Column(length = 36)
     private String id;
-    private String usuarioId;
-    private String recursoId;
+    // Ids de usuario y recurso como dos long (ver Identificadores): el texto de las columnas
+    // usuario_id y recurso_id se arma en getUsuarioId/getRecursoId, la frontera con la base.
+    // Los ids que no son UUID (datos importados) se guardan tal cual en *IdTexto.
+    @Transient
+    private long usuarioAlto;
+    @Transient
+    private long usuarioBajo;
+    @Transient
+    private String usuarioIdTexto;
+    @Transient
+    private long recursoAlto;
+    @Transient
+    private long recursoBajo;
+    @Transient
+    private String recursoIdTexto;
     
     // Datos temporales del préstamo
     private LocalDate fechaPrestamo;
     private LocalDate fechaVencimiento;
     private LocalDate fechaDevolucion;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
     private EstadoPrestamo estado;
     
     // Control de renovaciones
     private int numeroRenovaciones;
     private int maxRenovaciones;
     
-    // COMPOSICIÓN: Un préstamo puede tener una multa
+    // El préstamo tomó su cupo de licencia de CuotaDescargas (ver ServicioCirculacion)
+    private boolean cupoLicencia;
+    
+    // Control de concurrencia optimista
+    @Version
+    private long version;
+    
+    // COMPOSICIÓN: Un préstamo puede tener una multa (se guarda junto con él)
+    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "multa_id")
     private Multa multa;
     
     // Referencias para polimorfismo
+    // Carga inmediata: un proxy perezoso no pasaría los instanceof Prestable;
+    // el recurso suele resolverse desde la caché de segundo nivel
+    @ManyToOne
+    @JoinColumn(name = "usuario_id", insertable = false, updatable = false)
     private Usuario usuario;
+    @ManyToOne
+    @JoinColumn(name = "recurso_id", insertable = false, updatable = false)
     private Recurso recurso;
     
+    /**
+     * Constructor requerido por JPA
+     */
+    protected Prestamo() {
+    }
+    
     /**
      * Constructor para crear un nuevo préstamo
      * Aplica POLIMORFISMO al calcular días según el tipo de usuario y recurso
      */
     public Prestamo(Usuario usuario, Recurso recurso) {
         this.id = UUID.randomUUID().toString();
-        this.usuarioId = usuario.getId();
-        this.recursoId = recurso.getId();
+        setUsuarioId(usuario.getId());
+        setRecursoId(recurso.getId());
         this.usuario = usuario;
         this.recurso = recurso;
         
@@ -56,6 +116,30 @@ public class Prestamo {
         calcularFechaVencimiento();
     }
     
+    /**
+     * Reconstruye un préstamo existente sin volver a aplicar las reglas de creación
+     * (importación, copia de seguridad)
+     */
+    public static Prestamo restaurar(String id, Usuario usuario, Recurso recurso,
+                                     LocalDate fechaPrestamo, LocalDate fechaVencimiento,
+                                     LocalDate fechaDevolucion, EstadoPrestamo estado,
+                                     int numeroRenovaciones, int maxRenovaciones, Multa multa) {
+        Prestamo prestamo = new Prestamo();
+        prestamo.id = id;
+        prestamo.usuario = usuario;
+        prestamo.recurso = recurso;
+        prestamo.setUsuarioId(usuario.getId());
+        prestamo.setRecursoId(recurso.getId());
+        prestamo.fechaPrestamo = fechaPrestamo;
+        prestamo.fechaVencimiento = fechaVencimiento;
+        prestamo.fechaDevolucion = fechaDevolucion;
+        prestamo.estado = estado;
+        prestamo.numeroRenovaciones = numeroRenovaciones;
+        prestamo.maxRenovaciones = maxRenovaciones;
+        prestamo.multa = multa;
+        return prestamo;
+    }
+    
     // ===============================================================
     // LÓGICA DE NEGOCIO PRINCIPAL
     // ===============================================================
@@ -203,10 +287,37 @@ public class Prestamo {
     // ===============================================================
     
     public String getId() { return id; }
+    public long getVersion() { return version; }
+    
+    @Access(AccessType.PROPERTY)
+    @Column(name = "usuario_id", length = 36)
+    public String getUsuarioId() { return aTexto(usuarioAlto, usuarioBajo, usuarioIdTexto); }
+    protected void setUsuarioId(String usuarioId) {
+        boolean compacto = esCompactable(usuarioId);
+        this.usuarioAlto = compacto ? Identificadores.alto(usuarioId) : Identificadores.SIN_ID;
+        this.usuarioBajo = compacto ? Identificadores.bajo(usuarioId) : Identificadores.SIN_ID;
+        this.usuarioIdTexto = compacto ? null : usuarioId;
+    }
+    
+    @Access(AccessType.PROPERTY)
+    @Column(name = "recurso_id", length = 36)
+    public String getRecursoId() { return aTexto(recursoAlto, recursoBajo, recursoIdTexto); }
+    protected void setRecursoId(String recursoId) {
+        boolean compacto = esCompactable(recursoId);
+        this.recursoAlto = compacto ? Identificadores.alto(recursoId) : Identificadores.SIN_ID;
+        this.recursoBajo = compacto ? Identificadores.bajo(recursoId) : Identificadores.SIN_ID;
+        this.recursoIdTexto = compacto ? null : recursoId;
+    }
     
-    public String getUsuarioId() { return usuarioId; }
+    // El UUID nulo coincide con la marca SIN_ID: se guarda como texto para no confundirlo con null
+    private static boolean esCompactable(String id) {
+        return Identificadores.esValido(id)
+                && !Identificadores.esAusente(Identificadores.alto(id), Identificadores.bajo(id));
+    }
     
-    public String getRecursoId() { return recursoId; }
+    private static String aTexto(long alto, long bajo, String texto) {
+        return Identificadores.esAusente(alto, bajo) ? texto : Identificadores.aTexto(alto, bajo);
+    }
     
     public LocalDate getFechaPrestamo() { return fechaPrestamo; }
     
@@ -221,6 +332,9 @@ public class Prestamo {
     public int getMaxRenovaciones() { return maxRenovaciones; }
     public void setMaxRenovaciones(int maxRenovaciones) { this.maxRenovaciones = maxRenovaciones; }
     
+    public boolean tieneCupoLicencia() { return cupoLicencia; }
+    public void marcarCupoLicencia() { this.cupoLicencia = true; }
+    
     public Multa getMulta() { return multa; }
     
     public Usuario getUsuario() { return usuario; }
@@ -230,6 +344,6 @@ public class Prestamo {
     @Override
     public String toString() {
         return String.format("Préstamo{id='%s', usuario='%s', recurso='%s', estado=%s, vencimiento=%s, renovaciones=%d}",
-                id, usuarioId, recursoId, estado, fechaVencimiento, numeroRenovaciones);
+                id, getUsuarioId(), getRecursoId(), estado, fechaVencimiento, numeroRenovaciones);
     }
 }
\ No newline at end of file
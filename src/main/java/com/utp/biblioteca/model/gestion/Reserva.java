@@ -3,6 +3,16 @@ package com.utp.biblioteca.model.gestion;
 import com.utp.biblioteca.model.usuario.Usuario;
 import com.utp.biblioteca.model.recurso.Recurso;
 import com.utp.biblioteca.model.interfaces.Reservable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.UUID;
@@ -12,30 +22,56 @@ import java.util.UUID;
  * Gestiona las reservas de recursos no disponibles
  * Aplica POLIMORFISMO para prioridades según tipo de usuario
  */
+@Entity
+@Table(name = "reserva", indexes = {
+        @Index(name = "idx_reserva_usuario", columnList = "usuario_id"),
+        @Index(name = "idx_reserva_recurso", columnList = "recurso_id"),
+        @Index(name = "idx_reserva_fecha", columnList = "fecha_reserva, id")
+})
 public class Reserva {
     
     // ASOCIACIÓN: Reserva conecta Usuario con Recurso
+    @Id
+    @Column(length = 36)
     private String id;
+    @Column(name = "usuario_id", length = 36)
     private String usuarioId;
+    @Column(name = "recurso_id", length = 36)
     private String recursoId;
     
     // Control temporal
     private LocalDateTime fechaReserva;
     private LocalDateTime fechaExpiracion;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
     private EstadoReserva estado;
     
     // Control de prioridad y posición
     private int prioridad;
     private int posicionCola;
     
-    // Referencias para polimorfismo
+    // Control de concurrencia optimista
+    @Version
+    private long version;
+    
+    // Referencias para polimorfismo (carga inmediata, ver Prestamo)
+    @ManyToOne
+    @JoinColumn(name = "usuario_id", insertable = false, updatable = false)
     private Usuario usuario;
+    @ManyToOne
+    @JoinColumn(name = "recurso_id", insertable = false, updatable = false)
     private Recurso recurso;
     
     // Configuración del sistema
     private static final int HORAS_EXPIRACION_DEFAULT = 48;
     private static final int HORAS_CONFIRMACION = 24;
     
+    /**
+     * Constructor requerido por JPA
+     */
+    protected Reserva() {
+    }
+    
     /**
      * Constructor para crear una nueva reserva
      * Aplica POLIMORFISMO para asignar prioridad según tipo de usuario
@@ -58,6 +94,27 @@ public class Reserva {
         crearReservaEnRecurso();
     }
     
+    /**
+     * Reconstruye una reserva existente sin registrarla de nuevo en el recurso
+     * (importación, copia de seguridad)
+     */
+    public static Reserva restaurar(String id, Usuario usuario, Recurso recurso,
+                                    LocalDateTime fechaReserva, LocalDateTime fechaExpiracion,
+                                    EstadoReserva estado, int prioridad, int posicionCola) {
+        Reserva reserva = new Reserva();
+        reserva.id = id;
+        reserva.usuario = usuario;
+        reserva.recurso = recurso;
+        reserva.usuarioId = usuario.getId();
+        reserva.recursoId = recurso.getId();
+        reserva.fechaReserva = fechaReserva;
+        reserva.fechaExpiracion = fechaExpiracion;
+        reserva.estado = estado;
+        reserva.prioridad = prioridad;
+        reserva.posicionCola = posicionCola;
+        return reserva;
+    }
+    
     // ===============================================================
     // LÓGICA DE NEGOCIO PRINCIPAL
     // ===============================================================
@@ -194,6 +251,7 @@ public class Reserva {
     // ===============================================================
     
     public String getId() { return id; }
+    public long getVersion() { return version; }
     
     public String getUsuarioId() { return usuarioId; }
     
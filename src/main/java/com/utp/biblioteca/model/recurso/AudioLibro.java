@@ -1,30 +1,54 @@
 package com.utp.biblioteca.model.recurso;
 
+import com.utp.biblioteca.cuotas.LimitadorDescargas;
 import com.utp.biblioteca.model.interfaces.Prestable;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import jakarta.persistence.Convert;
+import jakarta.persistence.DiscriminatorValue;
+import jakarta.persistence.Entity;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * AudioLibro - HERENCIA + IMPLEMENTACIÓN SELECTIVA
  * Implementa: Prestable, Buscable (heredada)
  * NO implementa Reservable - Los AudioLibros son recursos digitales ilimitados
  */
+@Entity
+@DiscriminatorValue("AudioLibro")
 public class AudioLibro extends Recurso implements Prestable {
     
+    // Margen sobre la duración del audio para el token de streaming (pausas, reanudar)
+    private static final Duration MARGEN_STREAMING = Duration.ofHours(1);
+    
+    // Variantes de streaming de mayor a menor calidad
+    private static final List<String> CALIDADES_STREAMING = List.of("alta", "media", "baja");
+    
     private int duracionMinutos;
-    private String formatoAudio; // MP3, M4A, WAV, etc.
+    @Convert(converter = CadenasCatalogo.Formato.class)
+    private int formatoAudio; // MP3, M4A, WAV, etc. (código de CadenasCatalogo)
     private String narrador;
-    private String calidad; // Alta, Media, Baja
+    @Convert(converter = CadenasCatalogo.Calidad.class)
+    private int calidad; // Alta, Media, Baja (código de CadenasCatalogo)
     private double tamanoMB;
     private String urlStreaming;
     private boolean permiteDescarga;
     
+    /**
+     * Constructor requerido por JPA
+     */
+    protected AudioLibro() {
+    }
+    
     public AudioLibro(String titulo, String autor, String categoria, LocalDate fechaPublicacion,
                      int duracionMinutos, String formatoAudio, String narrador, String calidad) {
         super(titulo, autor, categoria, fechaPublicacion);
         this.duracionMinutos = duracionMinutos;
-        this.formatoAudio = formatoAudio;
+        this.formatoAudio = CadenasCatalogo.FORMATOS.codificar(formatoAudio);
         this.narrador = narrador;
-        this.calidad = calidad;
+        this.calidad = CadenasCatalogo.CALIDADES.codificar(calidad);
         this.permiteDescarga = false; // Por defecto solo streaming
         calcularTamanoEstimado();
     }
@@ -52,7 +76,7 @@ public class AudioLibro extends Recurso implements Prestable {
     @Override
     public String getInformacionEspecifica() {
         return String.format("Duración: %s | Formato: %s | Narrador: %s | Calidad: %s | Tamaño: %.2f MB",
-                formatearDuracion(), formatoAudio, narrador, calidad, tamanoMB);
+                formatearDuracion(), getFormatoAudio(), narrador, getCalidad(), tamanoMB);
     }
     
     @Override
@@ -94,10 +118,58 @@ public class AudioLibro extends Recurso implements Prestable {
     
     /**
      * Genera URL de streaming temporal para el usuario
+     * Los límites de ritmo son los del tipo del usuario.
      */
+    public String generarUrlStreaming(Usuario usuario) {
+        return generarUrlStreaming(usuario, ServicioTokens.compartido());
+    }
+    
+    /**
+     * Genera la URL solo con el id del usuario (límites del perfil por defecto)
+     * @deprecated usar {@link #generarUrlStreaming(Usuario)}, que aplica los límites del tipo del usuario
+     */
+    @Deprecated
     public String generarUrlStreaming(String usuarioId) {
-        String token = usuarioId + "_" + System.currentTimeMillis();
-        return urlStreaming + "?token=" + token + "&quality=" + calidad.toLowerCase();
+        return generarUrlStreaming(usuarioId, null, ServicioTokens.compartido(), LimitadorDescargas.compartido());
+    }
+    
+    public String generarUrlStreaming(Usuario usuario, ServicioTokens tokens) {
+        return generarUrlStreaming(usuario.getId(), LimitadorDescargas.tipoDe(usuario), tokens,
+                LimitadorDescargas.compartido());
+    }
+    
+    /**
+     * Genera URL de streaming con un token firmado (usuario, tipo, audiolibro, calidades y vencimiento)
+     * El token autoriza la calidad del audiolibro y las menores (calidadesStreaming), así que el
+     * reproductor puede cambiar de variante a mitad de la escucha con la misma URL.
+     * Vale lo que dura el audio más un margen, sin pasar la vigencia máxima del servicio.
+     * Cuenta la solicitud; los segmentos se cobran de los bytes del usuario al enviarlos y el
+     * servidor de streaming pausa la conexión cuando el tipo del token agota su ráfaga.
+     * @return null si el usuario superó su ritmo de solicitudes o arrastra deuda de bytes
+     */
+    public String generarUrlStreaming(String usuarioId, String tipoUsuario, ServicioTokens tokens,
+                                      LimitadorDescargas limitador) {
+        if (!limitador.permitir(usuarioId, tipoUsuario, 0)) {
+            return null;
+        }
+        String calidad = getCalidad().toLowerCase();
+        Duration vigencia = Duration.ofMinutes(duracionMinutos).plus(MARGEN_STREAMING);
+        if (vigencia.compareTo(tokens.getVigenciaMaxima()) > 0) {
+            vigencia = tokens.getVigenciaMaxima();
+        }
+        String token = tokens.emitir(usuarioId, getId(), vigencia, String.join(",", calidadesStreaming()),
+                tipoUsuario);
+        return urlStreaming + "?token=" + token + "&quality=" + calidad;
+    }
+    
+    /**
+     * Variantes que puede escuchar quien tiene el audiolibro: su calidad y las menores
+     * Una calidad fuera de alta/media/baja solo se autoriza a sí misma.
+     */
+    public List<String> calidadesStreaming() {
+        String propia = getCalidad().toLowerCase();
+        int posicion = CALIDADES_STREAMING.indexOf(propia);
+        return posicion < 0 ? List.of(propia) : CALIDADES_STREAMING.subList(posicion, CALIDADES_STREAMING.size());
     }
     
     /**
@@ -105,7 +177,7 @@ public class AudioLibro extends Recurso implements Prestable {
      */
     private void calcularTamanoEstimado() {
         double factorCalidad;
-        switch (calidad.toLowerCase()) {
+        switch (getCalidad().toLowerCase()) {
             case "alta":
                 factorCalidad = 1.5; // 1.5 MB por minuto aprox
                 break;
@@ -134,18 +206,44 @@ public class AudioLibro extends Recurso implements Prestable {
      * Verifica si el formato es compatible con un dispositivo
      */
     public boolean esCompatibleCon(String dispositivo) {
-        switch (dispositivo.toLowerCase()) {
-            case "ios":
+        return esCompatibleCon(Dispositivo.desde(dispositivo));
+    }
+    
+    /**
+     * Dispositivos que reproducen el formato (máscara de Dispositivo.bit)
+     * iOS: M4A/MP3 | Android: todo menos M4A | web y resto: MP3
+     */
+    public static int dispositivosPara(String formatoAudio) {
+        int mascara = 0;
+        if (formatoAudio == null) {
+            return mascara; // sin formato no hay dispositivo que lo abra
+        }
+        for (Dispositivo dispositivo : Dispositivo.values()) {
+            if (admite(dispositivo, formatoAudio)) {
+                mascara |= dispositivo.bit();
+            }
+        }
+        return mascara;
+    }
+    
+    private static boolean admite(Dispositivo dispositivo, String formatoAudio) {
+        switch (dispositivo) {
+            case IOS:
                 return formatoAudio.equals("M4A") || formatoAudio.equals("MP3");
-            case "android":
+            case ANDROID:
                 return !formatoAudio.equals("M4A"); // Android no maneja bien M4A
-            case "web":
+            case WEB:
                 return formatoAudio.equals("MP3"); // MP3 es más universal en web
             default:
                 return formatoAudio.equals("MP3");
         }
     }
     
+    @Override
+    protected int calcularDispositivos() {
+        return dispositivosPara(getFormatoAudio());
+    }
+    
     // ===============================================================
     // GETTERS Y SETTERS ESPECÍFICOS
     // ===============================================================
@@ -156,15 +254,18 @@ public class AudioLibro extends Recurso implements Prestable {
         calcularTamanoEstimado(); // Recalcular tamaño
     }
     
-    public String getFormatoAudio() { return formatoAudio; }
-    public void setFormatoAudio(String formatoAudio) { this.formatoAudio = formatoAudio; }
+    public String getFormatoAudio() { return CadenasCatalogo.FORMATOS.decodificar(formatoAudio); }
+    public void setFormatoAudio(String formatoAudio) {
+        this.formatoAudio = CadenasCatalogo.FORMATOS.codificar(formatoAudio);
+        recalcularDispositivos();
+    }
     
     public String getNarrador() { return narrador; }
     public void setNarrador(String narrador) { this.narrador = narrador; }
     
-    public String getCalidad() { return calidad; }
+    public String getCalidad() { return CadenasCatalogo.CALIDADES.decodificar(calidad); }
     public void setCalidad(String calidad) { 
-        this.calidad = calidad;
+        this.calidad = CadenasCatalogo.CALIDADES.codificar(calidad);
         calcularTamanoEstimado(); // Recalcular tamaño
     }
     
@@ -181,6 +282,6 @@ public class AudioLibro extends Recurso implements Prestable {
     @Override
     public String toString() {
         return super.toString() + String.format(" [Duración: %s, Formato: %s, Narrador: %s, %.2f MB]",
-                formatearDuracion(), formatoAudio, narrador, tamanoMB);
+                formatearDuracion(), getFormatoAudio(), narrador, tamanoMB);
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.utp.biblioteca.model.recurso;
+
+import com.utp.biblioteca.util.DiccionarioCadenas;
+import jakarta.persistence.AttributeConverter;
+
+/**
+ * CadenasCatalogo - DICCIONARIOS COMPARTIDOS DEL CATÁLOGO
+ * Categorías, editoriales, formatos, calidades y estados se repiten en miles de
+ * recursos. Cada recurso guarda solo el código entero (4 bytes, lo mismo que una referencia
+ * comprimida) y todas las instancias comparten UNA cadena por valor distinto, en lugar de
+ * la copia que crea cada fila leída de la base, del JSON o de la instantánea binaria.
+ *
+ * Los códigos son estables durante la vida del proceso y nunca se escriben: en la base de
+ * datos las columnas siguen siendo texto gracias a los convertidores JPA de esta clase.
+ * Los diccionarios solo crecen, así que solo se codifican campos de vocabulario acotado.
+ * El autor es texto libre (cada ingesta o importación trae nombres nuevos) y se guarda
+ * como cadena en cada recurso: un diccionario global de autores no dejaría de crecer.
+ */
+public final class CadenasCatalogo {
+
+    public static final DiccionarioCadenas CATEGORIAS = new DiccionarioCadenas();
+    public static final DiccionarioCadenas EDITORIALES = new DiccionarioCadenas();
+    public static final DiccionarioCadenas FORMATOS = new DiccionarioCadenas();
+    public static final DiccionarioCadenas CALIDADES = new DiccionarioCadenas();
+    public static final DiccionarioCadenas ESTADOS = new DiccionarioCadenas();
+
+    private CadenasCatalogo() {
+    }
+
+    // ===============================================================
+    // CONVERTIDORES JPA (código en memoria <-> texto en la base)
+    // ===============================================================
+
+    private abstract static class ConvertidorDiccionario implements AttributeConverter<Integer, String> {
+
+        private final DiccionarioCadenas diccionario;
+
+        ConvertidorDiccionario(DiccionarioCadenas diccionario) {
+            this.diccionario = diccionario;
+        }
+
+        @Override
+        public String convertToDatabaseColumn(Integer codigo) {
+            return codigo == null ? null : diccionario.decodificar(codigo);
+        }
+
+        @Override
+        public Integer convertToEntityAttribute(String valor) {
+            return diccionario.codificar(valor);
+        }
+    }
+
+    public static class Categoria extends ConvertidorDiccionario {
+        public Categoria() { super(CATEGORIAS); }
+    }
+
+    public static class Editorial extends ConvertidorDiccionario {
+        public Editorial() { super(EDITORIALES); }
+    }
+
+    public static class Formato extends ConvertidorDiccionario {
+        public Formato() { super(FORMATOS); }
+    }
+
+    public static class Calidad extends ConvertidorDiccionario {
+        public Calidad() { super(CALIDADES); }
+    }
+
+    public static class Estado extends ConvertidorDiccionario {
+        public Estado() { super(ESTADOS); }
+    }
+}
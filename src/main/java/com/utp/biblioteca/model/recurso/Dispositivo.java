@@ -0,0 +1,59 @@
+package com.utp.biblioteca.model.recurso;
+
+import java.util.Locale;
+
+/**
+ * Enumeración Dispositivo
+ * Dispositivos de lectura y escucha que distinguen las reglas de compatibilidad de EBook y
+ * AudioLibro. Cada uno ocupa un bit: la compatibilidad de un recurso es una máscara que se
+ * calcula una vez por formato, y filtrar el catálogo es intersectar máscaras.
+ */
+public enum Dispositivo {
+    KINDLE("kindle"),
+    IPAD("ipad"),
+    IPHONE("iphone"),
+    IOS("ios"),
+    ANDROID("android"),
+    WEB("web"),
+    OTRO("otro"); // cualquier otro nombre: la regla por defecto de cada tipo
+
+    /** Máscara con todos los dispositivos */
+    public static final int TODOS = (1 << values().length) - 1;
+
+    private final String nombre;
+
+    Dispositivo(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() { return nombre; }
+
+    public int bit() { return 1 << ordinal(); }
+
+    /**
+     * @return true si la máscara incluye este dispositivo
+     */
+    public boolean en(int mascara) { return (mascara & bit()) != 0; }
+
+    /**
+     * Dispositivo por nombre, sin distinguir mayúsculas; un nombre desconocido es OTRO
+     */
+    public static Dispositivo desde(String nombre) {
+        if (nombre != null) {
+            String buscado = nombre.toLowerCase(Locale.ROOT);
+            for (Dispositivo dispositivo : values()) {
+                if (dispositivo.nombre.equals(buscado)) {
+                    return dispositivo;
+                }
+            }
+        }
+        return OTRO;
+    }
+
+    /**
+     * Valor de un filtro "dispositivo": el enum o su nombre
+     */
+    public static Dispositivo desdeFiltro(Object valor) {
+        return valor instanceof Dispositivo ? (Dispositivo) valor : desde((String) valor);
+    }
+}
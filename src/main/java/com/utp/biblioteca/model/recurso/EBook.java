@@ -1,6 +1,13 @@
 package com.utp.biblioteca.model.recurso;
 
+import com.utp.biblioteca.cuotas.LimitadorDescargas;
 import com.utp.biblioteca.model.interfaces.Prestable;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import jakarta.persistence.Convert;
+import jakarta.persistence.DiscriminatorValue;
+import jakarta.persistence.Entity;
+import java.time.Duration;
 import java.time.LocalDate;
 
 /**
@@ -8,19 +15,31 @@ import java.time.LocalDate;
  * Implementa: Prestable, Buscable (heredada)
  * NO implementa Reservable - Los eBooks son recursos digitales ilimitados
  */
+@Entity
+@DiscriminatorValue("EBook")
 public class EBook extends Recurso implements Prestable {
     
-    private String formato; // PDF, EPUB, MOBI, etc.
+    // Vigencia del enlace de descarga firmado
+    private static final Duration VIGENCIA_ENLACE = Duration.ofHours(1);
+    
+    @Convert(converter = CadenasCatalogo.Formato.class)
+    private int formato; // PDF, EPUB, MOBI, etc. (código de CadenasCatalogo)
     private double tamanoMB;
     private String urlDescarga;
     private boolean requiereDRM; // Digital Rights Management
     private int limiteDescargas;
     private int descargasRealizadas;
     
+    /**
+     * Constructor requerido por JPA
+     */
+    protected EBook() {
+    }
+    
     public EBook(String titulo, String autor, String categoria, LocalDate fechaPublicacion,
                 String formato, double tamanoMB, String urlDescarga) {
         super(titulo, autor, categoria, fechaPublicacion);
-        this.formato = formato;
+        this.formato = CadenasCatalogo.FORMATOS.codificar(formato);
         this.tamanoMB = tamanoMB;
         this.urlDescarga = urlDescarga;
         this.requiereDRM = true;
@@ -51,7 +70,7 @@ public class EBook extends Recurso implements Prestable {
     @Override
     public String getInformacionEspecifica() {
         return String.format("Formato: %s | Tamaño: %.2f MB | DRM: %s | Descargas: %d/%d",
-                formato, tamanoMB, requiereDRM ? "Sí" : "No", descargasRealizadas, limiteDescargas);
+                getFormato(), tamanoMB, requiereDRM ? "Sí" : "No", descargasRealizadas, limiteDescargas);
     }
     
     @Override
@@ -68,19 +87,23 @@ public class EBook extends Recurso implements Prestable {
         if (!validarCondicionPrestamo()) {
             return false;
         }
+        // El cupo atómico de la licencia (entre hilos e instancias) lo reserva antes
+        // ServicioCirculacion en su CuotaDescargas; aquí solo se registra la descarga
         
         // Los eBooks no se marcan como "no disponibles"
         // Solo incrementamos el contador de descargas
-        descargasRealizadas++;
-        numeroVecesPrestado++;
-        fechaUltimoPrestamo = LocalDate.now();
+        synchronized (this) {
+            descargasRealizadas++;
+            numeroVecesPrestado++;
+            fechaUltimoPrestamo = LocalDate.now();
+        }
         
         return true;
     }
     
     @Override
     public boolean devolver() {
-        // Los eBooks se "devuelven" automáticamente (no hay acción real)
+        // Los eBooks se "devuelven" automáticamente; ServicioCirculacion libera el cupo simultáneo
         // En un sistema real, se revocaría el acceso DRM
         return true;
     }
@@ -101,14 +124,44 @@ public class EBook extends Recurso implements Prestable {
     
     /**
      * Genera un enlace temporal de descarga con token de seguridad
+     * Los límites de ritmo son los del tipo del usuario.
      */
+    public String generarEnlaceDescarga(Usuario usuario) {
+        return generarEnlaceDescarga(usuario, ServicioTokens.compartido());
+    }
+    
+    /**
+     * Genera el enlace solo con el id del usuario (límites del perfil por defecto)
+     * @deprecated usar {@link #generarEnlaceDescarga(Usuario)}, que aplica los límites del tipo del usuario
+     */
+    @Deprecated
     public String generarEnlaceDescarga(String usuarioId) {
+        return generarEnlaceDescarga(usuarioId, null, ServicioTokens.compartido(), LimitadorDescargas.compartido());
+    }
+    
+    public String generarEnlaceDescarga(Usuario usuario, ServicioTokens tokens) {
+        return generarEnlaceDescarga(usuario.getId(), LimitadorDescargas.tipoDe(usuario), tokens,
+                LimitadorDescargas.compartido());
+    }
+    
+    /**
+     * Genera el enlace con un token firmado (usuario, tipo, eBook y vencimiento)
+     * No exige un préstamo: el servidor de descargas valida el token y además que el usuario
+     * tenga vigente el préstamo del eBook (VerificadorPrestamos) antes de entregar el archivo.
+     * Cuenta la solicitud y rechaza si el usuario arrastra deuda de bytes; los bytes se cobran
+     * al enviarlos, y el servidor marca el ritmo de la transferencia con el tipo del token.
+     * @return null si el eBook no se puede descargar o el usuario superó su ritmo
+     */
+    public String generarEnlaceDescarga(String usuarioId, String tipoUsuario, ServicioTokens tokens,
+                                        LimitadorDescargas limitador) {
         if (!validarCondicionPrestamo()) {
             return null;
         }
+        if (!limitador.permitir(usuarioId, tipoUsuario, (long) (tamanoMB * 1024 * 1024))) {
+            return null;
+        }
         
-        // En un sistema real, esto generaría un token temporal
-        String token = usuarioId + "_" + System.currentTimeMillis();
+        String token = tokens.emitir(usuarioId, getId(), VIGENCIA_ENLACE, null, tipoUsuario);
         return urlDescarga + "?token=" + token + "&user=" + usuarioId;
     }
     
@@ -116,25 +169,54 @@ public class EBook extends Recurso implements Prestable {
      * Verifica la compatibilidad del formato con un dispositivo
      */
     public boolean esCompatibleCon(String dispositivo) {
-        switch (dispositivo.toLowerCase()) {
-            case "kindle":
+        return esCompatibleCon(Dispositivo.desde(dispositivo));
+    }
+    
+    /**
+     * Dispositivos que leen el formato (máscara de Dispositivo.bit)
+     * Kindle: MOBI/AZW | iPad e iPhone: EPUB/PDF | Android: todo menos AZW | resto: PDF
+     */
+    public static int dispositivosPara(String formato) {
+        int mascara = 0;
+        if (formato == null) {
+            return mascara; // sin formato no hay dispositivo que lo abra
+        }
+        for (Dispositivo dispositivo : Dispositivo.values()) {
+            if (admite(dispositivo, formato)) {
+                mascara |= dispositivo.bit();
+            }
+        }
+        return mascara;
+    }
+    
+    private static boolean admite(Dispositivo dispositivo, String formato) {
+        switch (dispositivo) {
+            case KINDLE:
                 return formato.equals("MOBI") || formato.equals("AZW");
-            case "ipad":
-            case "iphone":
+            case IPAD:
+            case IPHONE:
                 return formato.equals("EPUB") || formato.equals("PDF");
-            case "android":
+            case ANDROID:
                 return !formato.equals("AZW"); // Android lee casi todo excepto AZW
             default:
                 return formato.equals("PDF"); // PDF es universal
         }
     }
     
+    @Override
+    protected int calcularDispositivos() {
+        return dispositivosPara(getFormato());
+    }
+    
     // ===============================================================
     // GETTERS Y SETTERS ESPECÍFICOS
     // ===============================================================
     
-    public String getFormato() { return formato; }
-    public void setFormato(String formato) { this.formato = formato; }
+    public String getFormato() { return CadenasCatalogo.FORMATOS.decodificar(formato); }
+    public void setFormato(String formato) {
+        this.formato = CadenasCatalogo.FORMATOS.codificar(formato);
+        recalcularDispositivos();
+    }
     
     public double getTamanoMB() { return tamanoMB; }
     public void setTamanoMB(double tamanoMB) { this.tamanoMB = tamanoMB; }
@@ -149,10 +231,11 @@ public class EBook extends Recurso implements Prestable {
     public void setLimiteDescargas(int limiteDescargas) { this.limiteDescargas = limiteDescargas; }
     
     public int getDescargasRealizadas() { return descargasRealizadas; }
+    public void restaurarDescargas(int descargasRealizadas) { this.descargasRealizadas = descargasRealizadas; }
     
     @Override
     public String toString() {
         return super.toString() + String.format(" [Formato: %s, %.2f MB, Descargas: %d/%d]",
-                formato, tamanoMB, descargasRealizadas, limiteDescargas);
+                getFormato(), tamanoMB, descargasRealizadas, limiteDescargas);
     }
 }
\ No newline at end of file
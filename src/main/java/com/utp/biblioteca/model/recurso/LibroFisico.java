@@ -2,6 +2,10 @@ package com.utp.biblioteca.model.recurso;
 
 import com.utp.biblioteca.model.interfaces.Prestable;
 import com.utp.biblioteca.model.interfaces.Reservable;
+import jakarta.persistence.Convert;
+import jakarta.persistence.DiscriminatorValue;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Transient;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -13,16 +17,21 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * Implementa: Prestable, Reservable, Buscable (heredada)
  * Representa recursos físicos con limitaciones de disponibilidad
  */
+@Entity
+@DiscriminatorValue("LibroFisico")
 public class LibroFisico extends Recurso implements Prestable, Reservable {
     
     // Atributos específicos del libro físico
     private String isbn;
     private int numeroPaginas;
-    private String editorial;
+    @Convert(converter = CadenasCatalogo.Editorial.class)
+    private int editorial;
     private String ubicacion; // Estantería, sala, etc.
-    private String estado; // Excelente, Bueno, Regular, Dañado
+    @Convert(converter = CadenasCatalogo.Estado.class)
+    private int estado; // Excelente, Bueno, Regular, Dañado (código de CadenasCatalogo)
     
-    // Gestión de reservas (solo para libros físicos)
+    // Gestión de reservas (solo para libros físicos, no se persiste)
+    @Transient
     private ConcurrentLinkedQueue<Reserva> colaReservas;
     private int maxReservas;
     
@@ -43,14 +52,22 @@ public class LibroFisico extends Recurso implements Prestable, Reservable {
         }
     }
     
+    /**
+     * Constructor requerido por JPA
+     */
+    protected LibroFisico() {
+        this.colaReservas = new ConcurrentLinkedQueue<>();
+        this.maxReservas = 10;
+    }
+    
     public LibroFisico(String titulo, String autor, String categoria, LocalDate fechaPublicacion,
                       String isbn, int numeroPaginas, String editorial, String ubicacion) {
         super(titulo, autor, categoria, fechaPublicacion);
         this.isbn = isbn;
         this.numeroPaginas = numeroPaginas;
-        this.editorial = editorial;
+        this.editorial = CadenasCatalogo.EDITORIALES.codificar(editorial);
         this.ubicacion = ubicacion;
-        this.estado = "Excelente";
+        this.estado = CadenasCatalogo.ESTADOS.codificar("Excelente");
         this.colaReservas = new ConcurrentLinkedQueue<>();
         this.maxReservas = 10;
     }
@@ -65,7 +82,7 @@ public class LibroFisico extends Recurso implements Prestable, Reservable {
         double multaBase = diasRetraso * 1.0;
         
         // Multa adicional si el libro está en mal estado
-        if ("Dañado".equals(estado)) {
+        if ("Dañado".equals(getEstado())) {
             multaBase += 5.0; // Multa adicional por daño
         }
         
@@ -80,18 +97,18 @@ public class LibroFisico extends Recurso implements Prestable, Reservable {
     @Override
     public boolean puedeSerRenovado() {
         // No se puede renovar si hay reservas pendientes o está dañado
-        return colaReservas.isEmpty() && !"Dañado".equals(estado);
+        return colaReservas.isEmpty() && !"Dañado".equals(getEstado());
     }
     
     @Override
     public String getInformacionEspecifica() {
         return String.format("ISBN: %s | Páginas: %d | Editorial: %s | Ubicación: %s | Estado: %s",
-                isbn, numeroPaginas, editorial, ubicacion, estado);
+                isbn, numeroPaginas, getEditorial(), ubicacion, getEstado());
     }
     
     @Override
     public boolean validarCondicionPrestamo() {
-        return disponible && !"Dañado".equals(estado);
+        return disponible && !"Dañado".equals(getEstado());
     }
     
     // ===============================================================
@@ -223,6 +240,13 @@ public class LibroFisico extends Recurso implements Prestable, Reservable {
     // MÉTODOS AUXILIARES
     // ===============================================================
     
+    @Override
+    public LibroFisico copia() {
+        LibroFisico copia = (LibroFisico) super.copia();
+        copia.colaReservas = new ConcurrentLinkedQueue<>(colaReservas);
+        return copia;
+    }
+    
     /**
      * Reordena la cola de reservas por prioridad (Profesor > Estudiante)
      */
@@ -251,14 +275,14 @@ public class LibroFisico extends Recurso implements Prestable, Reservable {
     public int getNumeroPaginas() { return numeroPaginas; }
     public void setNumeroPaginas(int numeroPaginas) { this.numeroPaginas = numeroPaginas; }
     
-    public String getEditorial() { return editorial; }
-    public void setEditorial(String editorial) { this.editorial = editorial; }
+    public String getEditorial() { return CadenasCatalogo.EDITORIALES.decodificar(editorial); }
+    public void setEditorial(String editorial) { this.editorial = CadenasCatalogo.EDITORIALES.codificar(editorial); }
     
     public String getUbicacion() { return ubicacion; }
     public void setUbicacion(String ubicacion) { this.ubicacion = ubicacion; }
     
-    public String getEstado() { return estado; }
-    public void setEstado(String estado) { this.estado = estado; }
+    public String getEstado() { return CadenasCatalogo.ESTADOS.decodificar(estado); }
+    public void setEstado(String estado) { this.estado = CadenasCatalogo.ESTADOS.codificar(estado); }
     
     public int getNumeroReservas() { 
         procesarReservasExpiradas(48);
@@ -268,6 +292,6 @@ public class LibroFisico extends Recurso implements Prestable, Reservable {
     @Override
     public String toString() {
         return super.toString() + String.format(" [ISBN: %s, Páginas: %d, Editorial: %s, Ubicación: %s, Reservas: %d]",
-                isbn, numeroPaginas, editorial, ubicacion, getNumeroReservas());
+                isbn, numeroPaginas, getEditorial(), ubicacion, getNumeroReservas());
     }
 }
\ No newline at end of file
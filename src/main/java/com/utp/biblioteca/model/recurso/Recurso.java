@@ -1,33 +1,102 @@
 package com.utp.biblioteca.model.recurso;
 
 import com.utp.biblioteca.model.interfaces.Buscable;
+import com.utp.biblioteca.util.DiccionarioCadenas;
+import com.utp.biblioteca.util.Instantaneas;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.DiscriminatorColumn;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Inheritance;
+import jakarta.persistence.InheritanceType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Clase abstracta Recurso
  * Aplica ABSTRACCIÓN y define el contrato base para todos los recursos bibliográficos
  * Base para la jerarquía: LibroFisico, EBook, AudioLibro
+ * 
+ * Persistencia: tabla única para toda la jerarquía (sin JOINs al buscar en el catálogo)
+ * y caché de segundo nivel, ya que el catálogo se lee mucho más de lo que se modifica.
  */
-public abstract class Recurso implements Buscable {
+@Entity
+@Table(name = "recurso", indexes = {
+        @Index(name = "idx_recurso_categoria", columnList = "categoria, disponible"),
+        @Index(name = "idx_recurso_tipo", columnList = "tipo, disponible"),
+        @Index(name = "idx_recurso_fecha_publicacion", columnList = "fecha_publicacion")
+})
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "tipo", length = 20)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "recurso")
+public abstract class Recurso implements Buscable, Cloneable {
     
     // ENCAPSULAMIENTO: atributos protegidos (accesibles por subclases)
+    @Id
+    @Column(length = 36)
     protected String id;
     protected String titulo;
     protected String autor;
-    protected String categoria;
+    // Código de CadenasCatalogo: una sola cadena compartida por categoría
+    @Convert(converter = CadenasCatalogo.Categoria.class)
+    protected int categoria;
     protected LocalDate fechaPublicacion;
     protected boolean disponible;
+    @Column(length = 2000)
     protected String descripcion;
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "recurso_palabra_clave", joinColumns = @JoinColumn(name = "recurso_id"))
+    @Column(name = "palabra", length = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "recurso.palabrasClave")
     protected List<String> palabrasClave;
     
+    // Texto normalizado para búsquedas en base de datos (mismo texto que buscarPorPalabrasClave)
+    @Column(length = 4000)
+    private String textoBusqueda;
+    
+    // Instantáneas inmutables que devuelven los getters (ver Instantaneas), no se persisten
+    @Transient
+    private List<String> vistaPalabrasClave;
+    @Transient
+    private List<String> vistaIndexables;
+    // Máscara de Dispositivo derivada del formato (-1 = sin calcular); se recalcula en cada cambio
+    @Transient
+    private int dispositivosCompatibles = -1;
+    
     // Estadísticas de uso
     protected int numeroVecesPrestado;
     protected LocalDate fechaUltimoPrestamo;
     
+    // Control de concurrencia optimista: dos instancias no pueden prestar la misma copia
+    @Version
+    private long version;
+    
+    /**
+     * Constructor requerido por JPA
+     */
+    protected Recurso() {
+        this.palabrasClave = new ArrayList<>();
+    }
+    
     /**
      * Constructor protegido (solo subclases pueden instanciar)
      * Aplica principio de ABSTRACCIÓN
@@ -36,7 +105,7 @@ public abstract class Recurso implements Buscable {
         this.id = UUID.randomUUID().toString();
         this.titulo = titulo;
         this.autor = autor;
-        this.categoria = categoria;
+        this.categoria = CadenasCatalogo.CATEGORIAS.codificar(categoria);
         this.fechaPublicacion = fechaPublicacion;
         this.disponible = true;
         this.palabrasClave = new ArrayList<>();
@@ -104,6 +173,57 @@ public abstract class Recurso implements Buscable {
     public void agregarPalabraClave(String palabra) {
         if (!palabrasClave.contains(palabra.toLowerCase())) {
             palabrasClave.add(palabra.toLowerCase());
+            vistaPalabrasClave = null;
+            vistaIndexables = null;
+            if (textoBusqueda != null) {
+                // Ya persistido: cambiar la colección sola no dispara @PreUpdate
+                actualizarTextoBusqueda();
+            }
+        }
+    }
+    
+    /**
+     * Dispositivos en los que se puede usar el recurso (máscara de Dispositivo.bit)
+     * Se recalcula en el setter del formato, al cargar o refrescar y antes de guardar
+     * (un merge copia el formato por campo, sin pasar por el setter).
+     */
+    public int getDispositivosCompatibles() {
+        int mascara = dispositivosCompatibles;
+        if (mascara < 0) {
+            mascara = calcularDispositivos();
+            dispositivosCompatibles = mascara;
+        }
+        return mascara;
+    }
+    
+    public boolean esCompatibleCon(Dispositivo dispositivo) {
+        return dispositivo.en(getDispositivosCompatibles());
+    }
+    
+    /**
+     * Los recursos físicos no dependen de un dispositivo: ninguno
+     */
+    protected int calcularDispositivos() {
+        return 0;
+    }
+    
+    protected void recalcularDispositivos() {
+        dispositivosCompatibles = calcularDispositivos();
+    }
+    
+    /**
+     * Copia independiente (p. ej. para que una caché no comparta la instancia que guarda)
+     * Las colecciones se copian; identificador, versión y estado de circulación se conservan.
+     */
+    public Recurso copia() {
+        try {
+            Recurso copia = (Recurso) super.clone();
+            copia.palabrasClave = new ArrayList<>(palabrasClave);
+            copia.vistaPalabrasClave = null;
+            copia.vistaIndexables = null;
+            return copia;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
         }
     }
     
@@ -126,22 +246,53 @@ public abstract class Recurso implements Buscable {
     
     @Override
     public boolean buscarPorAutor(String autor) {
-        return this.autor.toLowerCase().contains(autor.toLowerCase());
+        return getAutor().toLowerCase().contains(autor.toLowerCase());
     }
     
     @Override
     public boolean buscarPorCategoria(String categoria) {
-        return this.categoria.toLowerCase().equals(categoria.toLowerCase());
+        return getCategoria().toLowerCase().equals(categoria.toLowerCase());
     }
     
     @Override
     public boolean buscarPorPalabrasClave(List<String> palabrasClave) {
-        String textoBusqueda = (titulo + " " + autor + " " + descripcion + " " + 
-                               String.join(" ", this.palabrasClave)).toLowerCase();
+        String textoBusqueda = construirTextoBusqueda();
         return palabrasClave.stream()
                 .anyMatch(palabra -> textoBusqueda.contains(palabra.toLowerCase()));
     }
     
+    /**
+     * Texto en minúsculas sobre el que se buscan las palabras clave
+     */
+    public String construirTextoBusqueda() {
+        return (titulo + " " + getAutor() + " " + descripcion + " " + 
+                String.join(" ", this.palabrasClave)).toLowerCase();
+    }
+    
+    /**
+     * Mantiene la columna texto_busqueda sincronizada antes de cada INSERT/UPDATE
+     */
+    @PrePersist
+    @PreUpdate
+    protected void actualizarTextoBusqueda() {
+        this.textoBusqueda = construirTextoBusqueda();
+        // Un merge pudo cambiar los campos y la colección sin pasar por los setters
+        this.vistaPalabrasClave = null;
+        this.vistaIndexables = null;
+        recalcularDispositivos();
+    }
+    
+    /**
+     * Hibernate reemplaza las colecciones y los campos al cargar o refrescar: las instantáneas
+     * ya no valen y la máscara de dispositivos se vuelve a calcular con el formato cargado
+     */
+    @PostLoad
+    protected void refrescarDerivados() {
+        this.vistaPalabrasClave = null;
+        this.vistaIndexables = null;
+        recalcularDispositivos();
+    }
+    
     @Override
     public boolean aplicarFiltros(Map<String, Object> filtros) {
         for (Map.Entry<String, Object> filtro : filtros.entrySet()) {
@@ -150,7 +301,10 @@ public abstract class Recurso implements Buscable {
                     if (disponible != (Boolean) filtro.getValue()) return false;
                     break;
                 case "categoria":
-                    if (!categoria.equals(filtro.getValue())) return false;
+                    // Comparación de códigos: una categoría que no está en el diccionario no coincide
+                    if (!(filtro.getValue() instanceof String)) return false;
+                    int codigo = CadenasCatalogo.CATEGORIAS.buscarCodigo((String) filtro.getValue());
+                    if (codigo == DiccionarioCadenas.CODIGO_NULO || categoria != codigo) return false;
                     break;
                 case "tipo":
                     if (!getClass().getSimpleName().equals(filtro.getValue())) return false;
@@ -158,6 +312,9 @@ public abstract class Recurso implements Buscable {
                 case "añoPublicacion":
                     if (fechaPublicacion.getYear() != (Integer) filtro.getValue()) return false;
                     break;
+                case "dispositivo":
+                    if (!esCompatibleCon(Dispositivo.desdeFiltro(filtro.getValue()))) return false;
+                    break;
             }
         }
         return true;
@@ -166,7 +323,7 @@ public abstract class Recurso implements Buscable {
     @Override
     public double calcularRelevancia(List<String> terminosBusqueda) {
         double relevancia = 0.0;
-        String textoCompleto = (titulo + " " + autor + " " + descripcion).toLowerCase();
+        String autor = getAutor();
         
         for (String termino : terminosBusqueda) {
             String terminoLower = termino.toLowerCase();
@@ -193,17 +350,25 @@ public abstract class Recurso implements Buscable {
     @Override
     public String getResumenParaBusqueda() {
         return String.format("%s por %s (%s) - %s [%s]", 
-                titulo, autor, fechaPublicacion.getYear(), 
-                categoria, disponible ? "Disponible" : "No disponible");
+                titulo, getAutor(), fechaPublicacion.getYear(), 
+                getCategoria(), disponible ? "Disponible" : "No disponible");
     }
     
+    /**
+     * Lista inmutable compartida: se construye una vez y se rehace al cambiar título,
+     * autor, categoría o palabras clave
+     */
     @Override
     public List<String> getPalabrasClaveIndexables() {
-        List<String> palabras = new ArrayList<>();
-        palabras.add(titulo.toLowerCase());
-        palabras.add(autor.toLowerCase());
-        palabras.add(categoria.toLowerCase());
-        palabras.addAll(this.palabrasClave);
+        List<String> palabras = vistaIndexables;
+        if (palabras == null) {
+            List<String> nuevas = new ArrayList<>(3 + palabrasClave.size());
+            nuevas.add(titulo.toLowerCase());
+            nuevas.add(getAutor().toLowerCase());
+            nuevas.add(getCategoria().toLowerCase());
+            nuevas.addAll(this.palabrasClave);
+            palabras = vistaIndexables = Instantaneas.de(nuevas);
+        }
         return palabras;
     }
     
@@ -212,15 +377,37 @@ public abstract class Recurso implements Buscable {
     // ===============================================================
     
     public String getId() { return id; }
+    public long getVersion() { return version; }
+    
+    /**
+     * Restaura la identidad y el estado de uso de un recurso cargado
+     * desde un almacenamiento externo (importación, copia de seguridad)
+     */
+    public void restaurarEstado(String id, boolean disponible, int numeroVecesPrestado,
+                                LocalDate fechaUltimoPrestamo) {
+        this.id = id;
+        this.disponible = disponible;
+        this.numeroVecesPrestado = numeroVecesPrestado;
+        this.fechaUltimoPrestamo = fechaUltimoPrestamo;
+    }
     
     public String getTitulo() { return titulo; }
-    public void setTitulo(String titulo) { this.titulo = titulo; }
+    public void setTitulo(String titulo) { 
+        this.titulo = titulo; 
+        this.vistaIndexables = null;
+    }
     
     public String getAutor() { return autor; }
-    public void setAutor(String autor) { this.autor = autor; }
+    public void setAutor(String autor) { 
+        this.autor = autor; 
+        this.vistaIndexables = null;
+    }
     
-    public String getCategoria() { return categoria; }
-    public void setCategoria(String categoria) { this.categoria = categoria; }
+    public String getCategoria() { return CadenasCatalogo.CATEGORIAS.decodificar(categoria); }
+    public void setCategoria(String categoria) { 
+        this.categoria = CadenasCatalogo.CATEGORIAS.codificar(categoria); 
+        this.vistaIndexables = null;
+    }
     
     public LocalDate getFechaPublicacion() { return fechaPublicacion; }
     public void setFechaPublicacion(LocalDate fechaPublicacion) { 
@@ -234,7 +421,7 @@ public abstract class Recurso implements Buscable {
     public void setDescripcion(String descripcion) { this.descripcion = descripcion; }
     
     public List<String> getPalabrasClave() { 
-        return new ArrayList<>(palabrasClave); // Copia defensiva
+        return vistaPalabrasClave = Instantaneas.vigente(vistaPalabrasClave, palabrasClave); // Inmutable y compartida
     }
     
     public int getNumeroVecesPrestado() { return numeroVecesPrestado; }
@@ -243,6 +430,6 @@ public abstract class Recurso implements Buscable {
     @Override
     public String toString() {
         return String.format("%s{id='%s', titulo='%s', autor='%s', categoria='%s', disponible=%s, préstamos=%d}",
-                getClass().getSimpleName(), id, titulo, autor, categoria, disponible, numeroVecesPrestado);
+                getClass().getSimpleName(), id, titulo, getAutor(), getCategoria(), disponible, numeroVecesPrestado);
     }
 }
\ No newline at end of file
@@ -1,5 +1,21 @@
 package com.utp.biblioteca.model.usuario;
 
+import com.utp.biblioteca.reporte.FormatoReporte;
+import com.utp.biblioteca.reporte.MotorReportes;
+import com.utp.biblioteca.reporte.ResumenReporte;
+import com.utp.biblioteca.reporte.TareaReporte;
+import com.utp.biblioteca.reporte.TipoReporte;
+import com.utp.biblioteca.util.Instantaneas;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.DiscriminatorValue;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.Transient;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.ArrayList;
@@ -8,13 +24,35 @@ import java.util.ArrayList;
  * Clase Bibliotecario - HERENCIA
  * Especialización de Usuario con privilegios administrativos completos
  */
+@Entity
+@DiscriminatorValue("Bibliotecario")
 public class Bibliotecario extends Usuario {
     
+    // Permisos precalculados (ver Operacion): todos, sea o no administrador
+    private static final long PERMISOS = Operacion.TODAS;
+    
     private String area; // Catalogación, Servicios, Sistemas, etc.
     private String turno; // Mañana, Tarde, Noche
     private boolean esAdministrador;
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "bibliotecario_especialidad", joinColumns = @JoinColumn(name = "usuario_id"))
+    @Column(name = "especialidad")
     private List<String> especialidades;
     
+    @Transient
+    private List<String> vistaEspecialidades; // instantánea inmutable (ver Instantaneas)
+    
+    // Motor usado para generar reportes reales (opcional, no se persiste)
+    @Transient
+    private MotorReportes motorReportes;
+    
+    /**
+     * Constructor requerido por JPA
+     */
+    protected Bibliotecario() {
+        this.especialidades = new ArrayList<>();
+    }
+    
     public Bibliotecario(String nombre, String email, String password,
                         String area, String turno) {
         super(nombre, email, password);
@@ -38,10 +76,18 @@ public class Bibliotecario extends Usuario {
         return 30; // 30 días para bibliotecarios
     }
     
+    @Override
+    public long getPermisos() {
+        return PERMISOS;
+    }
+    
+    /**
+     * Bibliotecarios tienen acceso completo: también a operaciones que no están en Operacion
+     */
     @Override
     public boolean tienePermiso(String operacion) {
-        // Bibliotecarios tienen acceso completo
-        return true;
+        Operacion conocida = Operacion.desde(operacion);
+        return conocida == null || tienePermiso(conocida);
     }
     
     @Override
@@ -57,26 +103,45 @@ public class Bibliotecario extends Usuario {
      * Procesar préstamo manual (función administrativa)
      */
     public boolean procesarPrestamoManual(String usuarioId, String recursoId) {
-        return tienePermiso("ADMINISTRAR_PRESTAMOS");
+        return tienePermiso(Operacion.ADMINISTRAR_PRESTAMOS);
     }
     
     /**
      * Generar reporte del sistema
+     * Si hay un motor de reportes configurado, genera el archivo CSV del periodo
+     * y devuelve una descripción con el número de registros y la ruta.
      */
     public String generarReporte(String tipoReporte, LocalDate fechaInicio, LocalDate fechaFin) {
-        if (!tienePermiso("GENERAR_REPORTES")) {
+        if (!tienePermiso(Operacion.GENERAR_REPORTES)) {
+            return null;
+        }
+        TipoReporte tipo = TipoReporte.desdeNombre(tipoReporte);
+        if (motorReportes == null || tipo == null) {
+            return String.format("Reporte %s generado del %s al %s", 
+                                tipoReporte, fechaInicio, fechaFin);
+        }
+        ResumenReporte resumen = motorReportes.generarSincrono(tipo, fechaInicio, fechaFin, FormatoReporte.CSV);
+        return String.format("Reporte %s generado del %s al %s: %d registros en %s",
+                            tipo, fechaInicio, fechaFin, resumen.getRegistros(), resumen.getArchivo());
+    }
+    
+    /**
+     * Generar reporte en segundo plano (cancelable y con progreso)
+     * @return la tarea en curso, null si no tiene permiso o no hay motor configurado
+     */
+    public TareaReporte generarReporte(TipoReporte tipo, LocalDate fechaInicio, LocalDate fechaFin,
+                                       FormatoReporte formato, TareaReporte.EscuchaProgreso escucha) {
+        if (!tienePermiso(Operacion.GENERAR_REPORTES) || motorReportes == null) {
             return null;
         }
-        // Lógica de generación de reportes
-        return String.format("Reporte %s generado del %s al %s", 
-                            tipoReporte, fechaInicio, fechaFin);
+        return motorReportes.generar(tipo, fechaInicio, fechaFin, formato, escucha);
     }
     
     /**
      * Administrar usuario del sistema
      */
     public boolean administrarUsuario(String usuarioId, String accion) {
-        return tienePermiso("ADMINISTRAR_USUARIOS");
+        return tienePermiso(Operacion.ADMINISTRAR_USUARIOS);
     }
     
     /**
@@ -85,9 +150,26 @@ public class Bibliotecario extends Usuario {
     public void agregarEspecialidad(String especialidad) {
         if (!especialidades.contains(especialidad)) {
             especialidades.add(especialidad);
+            vistaEspecialidades = null;
         }
     }
     
+    @Override
+    @PostLoad
+    @PostUpdate
+    protected void descartarVistas() {
+        super.descartarVistas();
+        this.vistaEspecialidades = null;
+    }
+    
+    @Override
+    public Bibliotecario copia() {
+        Bibliotecario copia = (Bibliotecario) super.copia();
+        copia.especialidades = new ArrayList<>(especialidades);
+        copia.vistaEspecialidades = null;
+        return copia;
+    }
+    
     // ===============================================================
     // GETTERS Y SETTERS ESPECÍFICOS
     // ===============================================================
@@ -103,8 +185,13 @@ public class Bibliotecario extends Usuario {
         this.esAdministrador = esAdministrador; 
     }
     
+    public MotorReportes getMotorReportes() { return motorReportes; }
+    public void setMotorReportes(MotorReportes motorReportes) { 
+        this.motorReportes = motorReportes; 
+    }
+    
     public List<String> getEspecialidades() { 
-        return new ArrayList<>(especialidades); // Copia defensiva
+        return vistaEspecialidades = Instantaneas.vigente(vistaEspecialidades, especialidades); // Inmutable y compartida
     }
     
     @Override
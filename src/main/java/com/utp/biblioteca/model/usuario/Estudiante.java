@@ -1,16 +1,32 @@
 package com.utp.biblioteca.model.usuario;
 
+import jakarta.persistence.DiscriminatorValue;
+import jakarta.persistence.Entity;
+
 /**
  * Clase Estudiante - HERENCIA
  * Especialización de Usuario con reglas específicas para estudiantes
  */
+@Entity
+@DiscriminatorValue("Estudiante")
 public class Estudiante extends Usuario {
     
+    // Permisos precalculados (ver Operacion)
+    private static final long PERMISOS = Operacion.mascara(
+            Operacion.PRESTAR_LIBRO, Operacion.RENOVAR_PRESTAMO, Operacion.RESERVAR_LIBRO,
+            Operacion.VER_CATALOGO, Operacion.BUSCAR_RECURSOS);
+    
     // Atributos específicos del estudiante
     private String carrera;
     private int semestre;
     private String codigoEstudiante;
     
+    /**
+     * Constructor requerido por JPA
+     */
+    protected Estudiante() {
+    }
+    
     /**
      * Constructor específico para Estudiante
      */
@@ -37,21 +53,8 @@ public class Estudiante extends Usuario {
     }
     
     @Override
-    public boolean tienePermiso(String operacion) {
-        switch (operacion) {
-            case "PRESTAR_LIBRO":
-            case "RENOVAR_PRESTAMO":
-            case "RESERVAR_LIBRO":
-            case "VER_CATALOGO":
-            case "BUSCAR_RECURSOS":
-                return true;
-            case "ADMINISTRAR_USUARIOS":
-            case "ADMINISTRAR_CATALOGO":
-            case "GENERAR_REPORTES":
-                return false;
-            default:
-                return false;
-        }
+    public long getPermisos() {
+        return PERMISOS;
     }
     
     @Override
@@ -0,0 +1,741 @@
+package com.utp.biblioteca.model.usuario;
+
+import com.utp.biblioteca.util.Identificadores;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.annotations.Mutability;
+import org.hibernate.type.descriptor.java.MutabilityPlan;
+
+/**
+ * HistorialPrestamos - HISTORIAL PAGINADO Y COMPACTO DE UN USUARIO
+ * Los préstamos recientes se guardan tal cual (cola caliente); cada TAMANO_PAGINA préstamos
+ * la cola se sella en una página de bytes inmutable:
+ * - ids UUID canónicos: 16 bytes (dos long) en lugar de un String de ~80 bytes
+ * - otros ids (importados): codificación por prefijo compartido con el id anterior, que
+ *   reduce los ids secuenciales ("P-000123", "P-000124") a uno o dos bytes de diferencia
+ * Las páginas se guardan de la más reciente a la más antigua, así que el recorrido del
+ * más nuevo al más viejo decodifica hacia adelante y paginar no copia el historial.
+ *
+ * Un filtro de Bloom (unos 10 bits por préstamo, ~1 % de falsos positivos) responde al
+ * instante "este préstamo no está en el historial"; los positivos se confirman recorriendo.
+ * Otro filtro, sobre los recursos prestados, responde "¿este usuario ya prestó X?" (haPrestado).
+ * El historial no guarda los recursos, así que ese filtro no se puede reconstruir al crecer:
+ * cuando se llena se encadena uno nuevo del doble de capacidad (filtro de Bloom escalable),
+ * con más bits por entrada para que el error total siga por debajo del 1 %.
+ *
+ * Solo Usuario modifica el historial: para los demás es de solo lectura.
+ * En la base de datos es una sola columna binaria (ver Convertidor).
+ */
+public class HistorialPrestamos implements Iterable<String> {
+
+    static final int TAMANO_PAGINA = 64;
+
+    private static final byte UUID_BINARIO = 0;
+    private static final byte TEXTO = 1;
+    private static final int VERSION_FORMATO = 2;
+    private static final int VERSION_SIN_RECURSOS = 1;
+
+    private static final int BITS_POR_ENTRADA = 10;
+    // Los errores de los filtros encadenados se suman: cada eslabón usa más bits (~0,07 %)
+    private static final int BITS_POR_RECURSO = 16;
+    private static final int FUNCIONES_HASH = 7;
+    private static final int CAPACIDAD_FILTRO_MINIMA = 64;
+
+    private final List<byte[]> paginas;       // selladas e inmutables, de la más antigua a la más reciente
+    private final List<String> recientes;     // cola caliente, del más antiguo al más reciente
+    private int capacidadFiltro;
+    private long[] filtro;
+    // Filtros de recursos encadenados, cada uno del doble de capacidad que el anterior
+    private final List<long[]> filtrosRecursos;
+    private int recursosEnUltimoFiltro;
+    private int tamano;
+    private int modificaciones;
+
+    public HistorialPrestamos() {
+        this(new ArrayList<>(), new ArrayList<>(), CAPACIDAD_FILTRO_MINIMA);
+    }
+
+    private HistorialPrestamos(List<byte[]> paginas, List<String> recientes, int capacidadFiltro) {
+        this.paginas = paginas;
+        this.recientes = recientes;
+        this.capacidadFiltro = capacidadFiltro;
+        this.filtro = new long[bitsFiltro(capacidadFiltro) / 64];
+        this.filtrosRecursos = new ArrayList<>();
+    }
+
+    /**
+     * Construye el historial a partir de los ids ordenados del más antiguo al más reciente
+     * Los recursos de esos préstamos no se conocen: haPrestado() no los reconoce.
+     */
+    static HistorialPrestamos desde(List<String> ids) {
+        int capacidad = CAPACIDAD_FILTRO_MINIMA;
+        while (capacidad < ids.size()) {
+            capacidad <<= 1;
+        }
+        HistorialPrestamos historial = new HistorialPrestamos(new ArrayList<>(), new ArrayList<>(), capacidad);
+        ids.forEach(historial::agregar);
+        return historial;
+    }
+
+    // ===============================================================
+    // MODIFICACIÓN (solo Usuario)
+    // ===============================================================
+
+    /**
+     * @param recursoId recurso prestado, para haPrestado(); null si no se conoce
+     */
+    void agregar(String prestamoId, String recursoId) {
+        agregar(prestamoId);
+        if (recursoId != null) {
+            marcarRecurso(recursoId);
+        }
+    }
+
+    void agregar(String prestamoId) {
+        recientes.add(prestamoId);
+        tamano++;
+        modificaciones++;
+        if (tamano > capacidadFiltro) {
+            // Más entradas de las previstas: filtro del doble de tamaño, reconstruido
+            capacidadFiltro <<= 1;
+            filtro = new long[bitsFiltro(capacidadFiltro) / 64];
+            for (String id : this) {
+                marcar(filtro, id);
+            }
+        } else {
+            marcar(filtro, prestamoId);
+        }
+        if (recientes.size() == TAMANO_PAGINA) {
+            paginas.add(codificarPagina(recientes));
+            recientes.clear();
+        }
+    }
+
+    // ===============================================================
+    // CONSULTAS
+    // ===============================================================
+
+    public int getTamano() { return tamano; }
+
+    public boolean isEmpty() { return tamano == 0; }
+
+    /**
+     * Recorre los préstamos del más reciente al más antiguo, decodificando página a página
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterador();
+    }
+
+    /**
+     * Una página de resultados, del más reciente al más antiguo
+     * Solo decodifica las entradas de la página pedida (y salta las anteriores sin crear objetos).
+     * @param numero página empezando en 0
+     */
+    public List<String> pagina(int numero, int tamanoPagina) {
+        if (numero < 0 || tamanoPagina <= 0) {
+            throw new IllegalArgumentException("Página inválida: " + numero + " de tamaño " + tamanoPagina);
+        }
+        long desde = (long) numero * tamanoPagina;
+        if (desde >= tamano) {
+            return Collections.emptyList();
+        }
+        int posicion = (int) desde;
+        List<String> resultado = new ArrayList<>((int) Math.min(tamanoPagina, tamano - desde));
+        int enCola = recientes.size();
+        while (posicion < enCola && resultado.size() < tamanoPagina) {
+            resultado.add(recientes.get(enCola - 1 - posicion++));
+        }
+        int indicePagina = paginas.size() - 1 - (posicion - enCola) / TAMANO_PAGINA;
+        int saltar = (posicion - enCola) % TAMANO_PAGINA;
+        while (resultado.size() < tamanoPagina && indicePagina >= 0) {
+            LectorPagina lector = new LectorPagina(paginas.get(indicePagina--));
+            for (int i = 0; i < saltar; i++) {
+                lector.saltar();
+            }
+            saltar = 0;
+            while (lector.hayMas() && resultado.size() < tamanoPagina) {
+                resultado.add(lector.siguiente());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * ¿El préstamo está en el historial? Si el filtro lo descarta, no recorre nada.
+     */
+    public boolean contiene(String prestamoId) {
+        if (prestamoId == null || !puedeContener(filtro, prestamoId)) {
+            return false;
+        }
+        if (recientes.contains(prestamoId)) {
+            return true;
+        }
+        boolean esUuid = esUuidCanonico(prestamoId);
+        long alto = esUuid ? Identificadores.alto(prestamoId) : 0;
+        long bajo = esUuid ? Identificadores.bajo(prestamoId) : 0;
+        byte[] texto = esUuid ? null : prestamoId.getBytes(StandardCharsets.UTF_8);
+        for (int p = paginas.size() - 1; p >= 0; p--) {
+            LectorPagina lector = new LectorPagina(paginas.get(p));
+            while (lector.hayMas()) {
+                if (lector.coincide(alto, bajo, texto)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ¿El usuario prestó alguna vez este recurso? Respuesta del filtro de Bloom, sin recorrer:
+     * un false es seguro; un true puede ser un falso positivo (menos del 1 %), porque el historial
+     * no guarda los recursos con los que confirmarlo.
+     */
+    public boolean haPrestado(String recursoId) {
+        if (recursoId == null) {
+            return false;
+        }
+        for (long[] filtroRecursos : filtrosRecursos) {
+            if (puedeContener(filtroRecursos, recursoId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copia completa, del más antiguo al más reciente (exportación, compatibilidad)
+     */
+    public List<String> aLista() {
+        String[] ids = new String[tamano];
+        int i = tamano;
+        for (String id : this) {
+            ids[--i] = id;
+        }
+        return new ArrayList<>(Arrays.asList(ids));
+    }
+
+    /**
+     * Vista de solo lectura del más antiguo al más reciente, fijada en el tamaño actual
+     * El historial solo crece, así que la vista no cambia aunque luego se agreguen préstamos.
+     * No copia nada: los ids se decodifican al leerlos, una página por vez al recorrerla.
+     */
+    public List<String> comoLista() {
+        return new VistaLista(tamano);
+    }
+
+    /**
+     * Memoria aproximada en el heap (páginas, cola caliente y filtro)
+     */
+    public long getBytesEstimados() {
+        long bytes = 64 + 8L * filtro.length;
+        for (long[] filtroRecursos : filtrosRecursos) {
+            bytes += 16 + 8L * filtroRecursos.length;
+        }
+        for (byte[] pagina : paginas) {
+            bytes += 16 + pagina.length + 4;
+        }
+        for (String id : recientes) {
+            bytes += 4 + 40 + id.length();
+        }
+        return bytes;
+    }
+
+    // ===============================================================
+    // FILTRO DE BLOOM
+    // ===============================================================
+
+    private static int bitsFiltro(int capacidad) {
+        return bitsFiltro(capacidad, BITS_POR_ENTRADA);
+    }
+
+    private static int bitsFiltro(int capacidad, int bitsPorEntrada) {
+        return (capacidad * bitsPorEntrada + 63) & ~63;
+    }
+
+    /**
+     * Un recurso ya marcado no ocupa capacidad: prestar el mismo libro muchas veces no llena el filtro
+     */
+    private void marcarRecurso(String recursoId) {
+        if (haPrestado(recursoId)) {
+            return;
+        }
+        int capacidad = CAPACIDAD_FILTRO_MINIMA << Math.max(0, filtrosRecursos.size() - 1);
+        if (filtrosRecursos.isEmpty() || recursosEnUltimoFiltro >= capacidad) {
+            capacidad = CAPACIDAD_FILTRO_MINIMA << filtrosRecursos.size();
+            filtrosRecursos.add(new long[bitsFiltro(capacidad, BITS_POR_RECURSO) / 64]);
+            recursosEnUltimoFiltro = 0;
+        }
+        marcar(filtrosRecursos.get(filtrosRecursos.size() - 1), recursoId);
+        recursosEnUltimoFiltro++;
+    }
+
+    private static void marcar(long[] filtro, String id) {
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int bits = filtro.length * 64;
+        for (int i = 0; i < FUNCIONES_HASH; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            filtro[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static boolean puedeContener(long[] filtro, String id) {
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int bits = filtro.length * 64;
+        for (int i = 0; i < FUNCIONES_HASH; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            if ((filtro[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a de 64 bits con mezcla final (los dos hash del filtro salen de sus dos mitades)
+     */
+    private static long hash(String id) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h = (h ^ id.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // ===============================================================
+    // CODIFICACIÓN DE PÁGINAS
+    // ===============================================================
+
+    /**
+     * Solo los UUID en minúsculas se guardan en binario: así el texto se recupera idéntico
+     */
+    private static boolean esUuidCanonico(String id) {
+        if (!Identificadores.esValido(id)) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) >= 'A' && id.charAt(i) <= 'F') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Entradas del más reciente al más antiguo: UUID en 16 bytes, texto por prefijo compartido
+     */
+    private static byte[] codificarPagina(List<String> idsMasAntiguoPrimero) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(idsMasAntiguoPrimero.size() * 17);
+        byte[] anterior = new byte[0];
+        for (int i = idsMasAntiguoPrimero.size() - 1; i >= 0; i--) {
+            String id = idsMasAntiguoPrimero.get(i);
+            if (esUuidCanonico(id)) {
+                salida.write(UUID_BINARIO);
+                escribirLong(salida, Identificadores.alto(id));
+                escribirLong(salida, Identificadores.bajo(id));
+            } else {
+                byte[] texto = id.getBytes(StandardCharsets.UTF_8);
+                int compartidos = Arrays.mismatch(anterior, texto);
+                if (compartidos < 0) {
+                    compartidos = texto.length;
+                }
+                compartidos = Math.min(compartidos, Math.min(anterior.length, texto.length));
+                salida.write(TEXTO);
+                escribirVarint(salida, compartidos);
+                escribirVarint(salida, texto.length - compartidos);
+                salida.write(texto, compartidos, texto.length - compartidos);
+                anterior = texto;
+            }
+        }
+        return salida.toByteArray();
+    }
+
+    private static void escribirLong(ByteArrayOutputStream salida, long valor) {
+        for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8) {
+            salida.write((int) (valor >>> desplazamiento));
+        }
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream salida, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            salida.write((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        salida.write(valor);
+    }
+
+    private static int leerVarint(ByteBuffer entrada) {
+        int valor = 0;
+        for (int desplazamiento = 0; ; desplazamiento += 7) {
+            byte b = entrada.get();
+            valor |= (b & 0x7F) << desplazamiento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+    }
+
+    /**
+     * Lectura secuencial de una página; reconstruye los textos en un buffer reutilizado
+     */
+    private static final class LectorPagina {
+        private final ByteBuffer datos;
+        private byte[] texto = new byte[64];
+        private int longitudTexto;
+        private long alto;
+        private long bajo;
+
+        LectorPagina(byte[] pagina) {
+            this.datos = ByteBuffer.wrap(pagina);
+        }
+
+        boolean hayMas() {
+            return datos.hasRemaining();
+        }
+
+        /**
+         * Avanza una entrada
+         * @return true si era un UUID (queda en alto/bajo), false si era texto
+         */
+        boolean saltar() {
+            if (datos.get() == UUID_BINARIO) {
+                alto = datos.getLong();
+                bajo = datos.getLong();
+                return true;
+            }
+            int compartidos = leerVarint(datos);
+            int nuevos = leerVarint(datos);
+            longitudTexto = compartidos + nuevos;
+            if (longitudTexto > texto.length) {
+                texto = Arrays.copyOf(texto, Math.max(longitudTexto, texto.length * 2));
+            }
+            datos.get(texto, compartidos, nuevos);
+            return false;
+        }
+
+        String siguiente() {
+            return saltar() ? Identificadores.aTexto(alto, bajo)
+                    : new String(texto, 0, longitudTexto, StandardCharsets.UTF_8);
+        }
+
+        boolean coincide(long altoBuscado, long bajoBuscado, byte[] textoBuscado) {
+            if (saltar()) {
+                return textoBuscado == null && alto == altoBuscado && bajo == bajoBuscado;
+            }
+            return textoBuscado != null
+                    && Arrays.equals(texto, 0, longitudTexto, textoBuscado, 0, textoBuscado.length);
+        }
+    }
+
+    /**
+     * Posiciones del más antiguo al más reciente: primero las páginas (cada una guardada al
+     * revés), luego la cola caliente
+     */
+    private final class VistaLista extends AbstractList<String> {
+        private final int tamanoVista;
+
+        VistaLista(int tamanoVista) {
+            this.tamanoVista = tamanoVista;
+        }
+
+        @Override
+        public int size() {
+            return tamanoVista;
+        }
+
+        @Override
+        public String get(int indice) {
+            Objects.checkIndex(indice, tamanoVista);
+            int enPaginas = paginas.size() * TAMANO_PAGINA;
+            if (indice >= enPaginas) {
+                return recientes.get(indice - enPaginas);
+            }
+            LectorPagina lector = new LectorPagina(paginas.get(indice / TAMANO_PAGINA));
+            for (int i = TAMANO_PAGINA - 1 - indice % TAMANO_PAGINA; i > 0; i--) {
+                lector.saltar();
+            }
+            return lector.siguiente();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int siguiente;
+                private int paginaBloque = -1;
+                private String[] bloque;
+
+                @Override
+                public boolean hasNext() {
+                    return siguiente < tamanoVista;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int indice = siguiente++;
+                    int enPaginas = paginas.size() * TAMANO_PAGINA;
+                    if (indice >= enPaginas) {
+                        return recientes.get(indice - enPaginas);
+                    }
+                    int pagina = indice / TAMANO_PAGINA;
+                    if (pagina != paginaBloque) {
+                        if (bloque == null) {
+                            bloque = new String[TAMANO_PAGINA];
+                        }
+                        LectorPagina lector = new LectorPagina(paginas.get(pagina));
+                        for (int i = TAMANO_PAGINA - 1; i >= 0; i--) {
+                            bloque[i] = lector.siguiente();
+                        }
+                        paginaBloque = pagina;
+                    }
+                    return bloque[indice % TAMANO_PAGINA];
+                }
+            };
+        }
+    }
+
+    /**
+     * Del más reciente al más antiguo: primero la cola caliente, luego las páginas
+     */
+    private final class Iterador implements Iterator<String> {
+        private final int modificacionesEsperadas = modificaciones;
+        private int enCola = recientes.size();
+        private int pagina = paginas.size();
+        private LectorPagina lector;
+
+        @Override
+        public boolean hasNext() {
+            return enCola > 0 || (lector != null && lector.hayMas()) || pagina > 0;
+        }
+
+        @Override
+        public String next() {
+            if (modificaciones != modificacionesEsperadas) {
+                throw new ConcurrentModificationException();
+            }
+            if (enCola > 0) {
+                return recientes.get(--enCola);
+            }
+            if (lector == null || !lector.hayMas()) {
+                if (pagina == 0) {
+                    throw new NoSuchElementException();
+                }
+                lector = new LectorPagina(paginas.get(--pagina));
+            }
+            return lector.siguiente();
+        }
+    }
+
+    // ===============================================================
+    // PERSISTENCIA (una columna binaria)
+    // ===============================================================
+
+    /**
+     * versión, tamaño, capacidad del filtro, bits del filtro, filtros de recursos (cantidad,
+     * ocupación del último y bits), páginas (longitud + bytes) y la cola caliente codificada
+     * como una página más. La versión 1 no tenía filtros de recursos y se sigue leyendo.
+     */
+    byte[] codificar() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(64 + 8 * filtro.length + paginas.size() * TAMANO_PAGINA * 17);
+        salida.write(VERSION_FORMATO);
+        escribirVarint(salida, tamano);
+        escribirVarint(salida, capacidadFiltro);
+        for (long bits : filtro) {
+            escribirLong(salida, bits);
+        }
+        escribirVarint(salida, filtrosRecursos.size());
+        escribirVarint(salida, recursosEnUltimoFiltro);
+        for (long[] filtroRecursos : filtrosRecursos) {
+            for (long bits : filtroRecursos) {
+                escribirLong(salida, bits);
+            }
+        }
+        escribirVarint(salida, paginas.size());
+        for (byte[] pagina : paginas) {
+            escribirVarint(salida, pagina.length);
+            salida.write(pagina, 0, pagina.length);
+        }
+        byte[] cola = codificarPagina(recientes);
+        escribirVarint(salida, cola.length);
+        salida.write(cola, 0, cola.length);
+        return salida.toByteArray();
+    }
+
+    static HistorialPrestamos decodificar(byte[] bytes) {
+        ByteBuffer entrada = ByteBuffer.wrap(bytes);
+        int version = entrada.get();
+        if (version != VERSION_FORMATO && version != VERSION_SIN_RECURSOS) {
+            throw new IllegalArgumentException("Versión de historial no soportada: " + version);
+        }
+        int tamano = leerVarint(entrada);
+        HistorialPrestamos historial = new HistorialPrestamos(new ArrayList<>(), new ArrayList<>(), leerVarint(entrada));
+        for (int i = 0; i < historial.filtro.length; i++) {
+            historial.filtro[i] = entrada.getLong();
+        }
+        if (version == VERSION_FORMATO) {
+            int numeroFiltros = leerVarint(entrada);
+            historial.recursosEnUltimoFiltro = leerVarint(entrada);
+            for (int f = 0; f < numeroFiltros; f++) {
+                long[] filtroRecursos = new long[bitsFiltro(CAPACIDAD_FILTRO_MINIMA << f, BITS_POR_RECURSO) / 64];
+                for (int i = 0; i < filtroRecursos.length; i++) {
+                    filtroRecursos[i] = entrada.getLong();
+                }
+                historial.filtrosRecursos.add(filtroRecursos);
+            }
+        }
+        int numeroPaginas = leerVarint(entrada);
+        for (int i = 0; i < numeroPaginas; i++) {
+            byte[] pagina = new byte[leerVarint(entrada)];
+            entrada.get(pagina);
+            historial.paginas.add(pagina);
+        }
+        byte[] cola = new byte[leerVarint(entrada)];
+        entrada.get(cola);
+        LectorPagina lector = new LectorPagina(cola);
+        while (lector.hayMas()) {
+            historial.recientes.add(0, lector.siguiente());
+        }
+        historial.tamano = tamano;
+        if (tamano != numeroPaginas * TAMANO_PAGINA + historial.recientes.size()) {
+            throw new IllegalArgumentException("Historial dañado: " + tamano + " préstamos declarados");
+        }
+        return historial;
+    }
+
+    /**
+     * Copia independiente: las páginas selladas son inmutables y se comparten
+     */
+    HistorialPrestamos copia() {
+        HistorialPrestamos copia = new HistorialPrestamos(new ArrayList<>(paginas), new ArrayList<>(recientes), capacidadFiltro);
+        copia.filtro = filtro.clone();
+        for (long[] filtroRecursos : filtrosRecursos) {
+            copia.filtrosRecursos.add(filtroRecursos.clone());
+        }
+        copia.recursosEnUltimoFiltro = recursosEnUltimoFiltro;
+        copia.tamano = tamano;
+        return copia;
+    }
+
+    /**
+     * Columna binaria: null en la base equivale a un historial vacío
+     */
+    @Converter
+    @Mutability(Mutabilidad.class)
+    public static class Convertidor implements AttributeConverter<HistorialPrestamos, byte[]> {
+
+        @Override
+        public byte[] convertToDatabaseColumn(HistorialPrestamos historial) {
+            return historial == null ? null : historial.codificar();
+        }
+
+        @Override
+        public HistorialPrestamos convertToEntityAttribute(byte[] bytes) {
+            return bytes == null ? new HistorialPrestamos() : decodificar(bytes);
+        }
+    }
+
+    /**
+     * Hibernate compara el historial con una copia tomada al cargar la entidad para
+     * detectar cambios; la copia comparte las páginas, así que solo copia la cola y los filtros
+     */
+    public static class Mutabilidad implements MutabilityPlan<HistorialPrestamos> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public boolean isMutable() {
+            return true;
+        }
+
+        @Override
+        public HistorialPrestamos deepCopy(HistorialPrestamos historial) {
+            return historial == null ? null : historial.copia();
+        }
+
+        @Override
+        public Serializable disassemble(HistorialPrestamos historial, SharedSessionContract sesion) {
+            return historial == null ? null : historial.codificar();
+        }
+
+        @Override
+        public HistorialPrestamos assemble(Serializable guardado, SharedSessionContract sesion) {
+            return guardado == null ? null : decodificar((byte[]) guardado);
+        }
+    }
+
+    // ===============================================================
+    // IGUALDAD (detección de cambios)
+    // ===============================================================
+
+    /**
+     * Mismos préstamos y mismos filtros de recursos: los filtros no se pueden reconstruir desde
+     * los préstamos, así que un recurso marcado es un cambio que Hibernate debe escribir. El
+     * filtro de préstamos sí se deriva de ellos y no se compara. hashCode usa solo los préstamos,
+     * lo que sigue siendo coherente con equals.
+     */
+    @Override
+    public boolean equals(Object otro) {
+        if (this == otro) {
+            return true;
+        }
+        if (!(otro instanceof HistorialPrestamos)) {
+            return false;
+        }
+        HistorialPrestamos historial = (HistorialPrestamos) otro;
+        if (tamano != historial.tamano || paginas.size() != historial.paginas.size()
+                || !recientes.equals(historial.recientes)) {
+            return false;
+        }
+        for (int i = 0; i < paginas.size(); i++) {
+            byte[] pagina = paginas.get(i);
+            byte[] otra = historial.paginas.get(i);
+            if (pagina != otra && !Arrays.equals(pagina, otra)) {
+                return false;
+            }
+        }
+        if (recursosEnUltimoFiltro != historial.recursosEnUltimoFiltro
+                || filtrosRecursos.size() != historial.filtrosRecursos.size()) {
+            return false;
+        }
+        for (int i = 0; i < filtrosRecursos.size(); i++) {
+            if (!Arrays.equals(filtrosRecursos.get(i), historial.filtrosRecursos.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * tamano + recientes.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HistorialPrestamos{préstamos=%d, páginas=%d, recientes=%d}",
+                tamano, paginas.size(), recientes.size());
+    }
+}
@@ -0,0 +1,86 @@
+package com.utp.biblioteca.model.usuario;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Enumeración Operacion
+ * Operaciones sujetas a permiso. Cada una ocupa un bit: los permisos de un tipo de usuario
+ * (y de cada variante, p. ej. Profesor coordinador) son una máscara precalculada, y
+ * comprobar uno o varios permisos es intersectar máscaras.
+ */
+public enum Operacion {
+    PRESTAR_LIBRO,
+    RENOVAR_PRESTAMO,
+    RESERVAR_LIBRO,
+    VER_CATALOGO,
+    BUSCAR_RECURSOS,
+    ACCESO_RECURSOS_ESPECIALIZADOS,
+    SOLICITAR_ADQUISICIONES,
+    GENERAR_BIBLIOGRAFIA,
+    GENERAR_REPORTES,
+    ADMINISTRAR_PRESTAMOS,
+    ADMINISTRAR_USUARIOS,
+    ADMINISTRAR_CATALOGO,
+    ADMINISTRAR_SISTEMA;
+
+    /** Máscara con todas las operaciones */
+    public static final long TODAS = (1L << values().length) - 1;
+
+    private static final Map<String, Operacion> POR_NOMBRE = new HashMap<>();
+
+    static {
+        for (Operacion operacion : values()) {
+            POR_NOMBRE.put(operacion.name(), operacion);
+        }
+    }
+
+    public long bit() { return 1L << ordinal(); }
+
+    /**
+     * @return true si la máscara incluye esta operación
+     */
+    public boolean en(long mascara) { return (mascara & bit()) != 0; }
+
+    /**
+     * Operación por nombre exacto (p. ej. "PRESTAR_LIBRO")
+     * @return null si el nombre no corresponde a ninguna operación
+     */
+    public static Operacion desde(String nombre) {
+        return nombre != null ? POR_NOMBRE.get(nombre) : null;
+    }
+
+    /**
+     * Máscara de varias operaciones, para autorizar una operación masiva con una sola comparación
+     */
+    public static long mascara(Operacion... operaciones) {
+        long mascara = 0L;
+        for (Operacion operacion : operaciones) {
+            mascara |= operacion.bit();
+        }
+        return mascara;
+    }
+
+    public static long mascara(Collection<Operacion> operaciones) {
+        long mascara = 0L;
+        for (Operacion operacion : operaciones) {
+            mascara |= operacion.bit();
+        }
+        return mascara;
+    }
+
+    /**
+     * Operaciones incluidas en una máscara
+     */
+    public static EnumSet<Operacion> de(long mascara) {
+        EnumSet<Operacion> operaciones = EnumSet.noneOf(Operacion.class);
+        for (Operacion operacion : values()) {
+            if (operacion.en(mascara)) {
+                operaciones.add(operacion);
+            }
+        }
+        return operaciones;
+    }
+}
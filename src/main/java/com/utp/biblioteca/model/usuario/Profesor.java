@@ -1,5 +1,7 @@
 package com.utp.biblioteca.model.usuario;
 
+import jakarta.persistence.DiscriminatorValue;
+import jakarta.persistence.Entity;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -7,13 +9,30 @@ import java.util.ArrayList;
  * Clase Profesor - HERENCIA
  * Especialización de Usuario con privilegios académicos
  */
+@Entity
+@DiscriminatorValue("Profesor")
 public class Profesor extends Usuario {
     
+    // Permisos precalculados (ver Operacion); GENERAR_REPORTES: reportes académicos
+    private static final long PERMISOS = Operacion.mascara(
+            Operacion.PRESTAR_LIBRO, Operacion.RENOVAR_PRESTAMO, Operacion.RESERVAR_LIBRO,
+            Operacion.VER_CATALOGO, Operacion.BUSCAR_RECURSOS, Operacion.ACCESO_RECURSOS_ESPECIALIZADOS,
+            Operacion.SOLICITAR_ADQUISICIONES, Operacion.GENERAR_BIBLIOGRAFIA, Operacion.GENERAR_REPORTES);
+    // Solo coordinadores administran usuarios y catálogo
+    private static final long PERMISOS_COORDINADOR = PERMISOS
+            | Operacion.mascara(Operacion.ADMINISTRAR_USUARIOS, Operacion.ADMINISTRAR_CATALOGO);
+    
     private String departamento;
     private String grado; // Dr., Mg., Lic., etc.
     private String areEspecializacion;
     private boolean coordinador;
     
+    /**
+     * Constructor requerido por JPA
+     */
+    protected Profesor() {
+    }
+    
     public Profesor(String nombre, String email, String password,
                    String departamento, String grado, String areaEspecializacion) {
         super(nombre, email, password);
@@ -38,25 +57,8 @@ public class Profesor extends Usuario {
     }
     
     @Override
-    public boolean tienePermiso(String operacion) {
-        switch (operacion) {
-            case "PRESTAR_LIBRO":
-            case "RENOVAR_PRESTAMO":
-            case "RESERVAR_LIBRO":
-            case "VER_CATALOGO":
-            case "BUSCAR_RECURSOS":
-            case "ACCESO_RECURSOS_ESPECIALIZADOS":
-            case "SOLICITAR_ADQUISICIONES":
-            case "GENERAR_BIBLIOGRAFIA":
-                return true;
-            case "ADMINISTRAR_USUARIOS":
-            case "ADMINISTRAR_CATALOGO":
-                return coordinador; // Solo coordinadores
-            case "GENERAR_REPORTES":
-                return true; // Pueden ver reportes académicos
-            default:
-                return false;
-        }
+    public long getPermisos() {
+        return coordinador ? PERMISOS_COORDINADOR : PERMISOS;
     }
     
     @Override
@@ -83,7 +85,7 @@ public class Profesor extends Usuario {
      */
     public boolean solicitarAdquisicion(String tituloRecurso, String justificacion) {
         // Lógica para solicitudes de adquisición
-        return tienePermiso("SOLICITAR_ADQUISICIONES");
+        return tienePermiso(Operacion.SOLICITAR_ADQUISICIONES);
     }
     
     // ===============================================================
@@ -1,8 +1,29 @@
 package com.utp.biblioteca.model.usuario;
 
 import com.utp.biblioteca.model.interfaces.Buscable;
+import com.utp.biblioteca.util.IdCompacto;
+import com.utp.biblioteca.util.Instantaneas;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.DiscriminatorColumn;
+import jakarta.persistence.Convert;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Inheritance;
+import jakarta.persistence.InheritanceType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Lob;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -11,22 +32,58 @@ import java.util.UUID;
  * Clase abstracta Usuario
  * Aplica ABSTRACCIÓN y ENCAPSULAMIENTO
  * Base para la jerarquía de usuarios del sistema bibliotecario
+ * 
+ * Persistencia: tabla única para toda la jerarquía, discriminada por tipo de usuario
  */
-public abstract class Usuario implements Buscable {
+@Entity
+@Table(name = "usuario")
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "tipo", length = 20)
+public abstract class Usuario implements Buscable, Cloneable {
     
     // ENCAPSULAMIENTO: atributos privados
+    @Id
+    @Column(length = 36)
     private String id;
     private String nombre;
+    @Column(unique = true)
     private String email;
     private String password;
     private LocalDate fechaRegistro;
     private boolean activo;
     
     // Agregación: Usuario TIENE-UNA lista de préstamos
-    private List<String> prestamosActivos;
-    private List<String> historialPrestamos;
+    // Ids como dos long (ver IdCompacto); la columna prestamo_id sigue siendo texto
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "usuario_prestamo_activo", joinColumns = @JoinColumn(name = "usuario_id"))
+    @Column(name = "prestamo_id", length = 36)
+    @Convert(converter = IdCompacto.Convertidor.class)
+    private List<IdCompacto> prestamosActivos;
+    // Historial paginado y compacto: una sola columna binaria en lugar de una fila por préstamo
+    @Lob
+    @Convert(converter = HistorialPrestamos.Convertidor.class)
+    private HistorialPrestamos historialPrestamos;
     private double multasPendientes;
     
+    // Control de concurrencia optimista: préstamos activos, historial y multas cambian a la vez
+    // desde varios mostradores; la versión sube con cualquiera de ellos (colecciones incluidas)
+    @Version
+    private long version;
+    
+    // Instantáneas inmutables que devuelven los getters (ver Instantaneas), no se persisten
+    @Transient
+    private List<String> vistaPrestamosActivos;
+    @Transient
+    private List<String> vistaIndexables;
+    
+    /**
+     * Constructor requerido por JPA
+     */
+    protected Usuario() {
+        this.prestamosActivos = new ArrayList<>();
+        this.historialPrestamos = new HistorialPrestamos();
+    }
+    
     /**
      * Constructor protegido (solo subclases pueden instanciar)
      * Aplica principio de ABSTRACCIÓN
@@ -39,7 +96,7 @@ public abstract class Usuario implements Buscable {
         this.fechaRegistro = LocalDate.now();
         this.activo = true;
         this.prestamosActivos = new ArrayList<>();
-        this.historialPrestamos = new ArrayList<>();
+        this.historialPrestamos = new HistorialPrestamos();
         this.multasPendientes = 0.0;
     }
     
@@ -61,11 +118,11 @@ public abstract class Usuario implements Buscable {
     public abstract int getDiasPrestamo();
     
     /**
-     * Verifica si el usuario puede realizar un tipo específico de operación
-     * POLIMORFISMO: cada tipo tiene permisos diferentes
+     * Máscara de operaciones permitidas (ver Operacion)
+     * POLIMORFISMO: cada tipo, y cada variante del tipo, devuelve una máscara precalculada
      */
-    public abstract boolean tienePermiso(String operacion);
-    
+    public abstract long getPermisos();
+
     /**
      * Obtiene la prioridad del usuario para reservas
      * POLIMORFISMO: Profesor > Estudiante > Bibliotecario
@@ -76,6 +133,40 @@ public abstract class Usuario implements Buscable {
     // MÉTODOS CONCRETOS (COMPORTAMIENTO COMÚN)
     // ===============================================================
     
+    /**
+     * Verifica si el usuario puede realizar una operación
+     */
+    public boolean tienePermiso(Operacion operacion) {
+        return operacion != null && (getPermisos() & operacion.bit()) != 0;
+    }
+
+    /**
+     * Verifica si el usuario puede realizar una operación indicada por su nombre
+     * Compatibilidad con el API por cadenas: un nombre desconocido no tiene permiso.
+     */
+    public boolean tienePermiso(String operacion) {
+        return tienePermiso(Operacion.desde(operacion));
+    }
+
+    /**
+     * Autorización masiva: true si el usuario puede realizar todas las operaciones de la máscara
+     * @param mascara p. ej. Operacion.mascara(PRESTAR_LIBRO, RENOVAR_PRESTAMO), calculada una vez
+     */
+    public boolean tieneTodos(long mascara) {
+        return (getPermisos() & mascara) == mascara;
+    }
+
+    public boolean tieneTodos(Operacion... operaciones) {
+        return tieneTodos(Operacion.mascara(operaciones));
+    }
+
+    /**
+     * Operaciones de la lista que el usuario no puede realizar (vacío si puede todas)
+     */
+    public EnumSet<Operacion> sinPermiso(Collection<Operacion> operaciones) {
+        return Operacion.de(Operacion.mascara(operaciones) & ~getPermisos());
+    }
+
     /**
      * Verifica si el usuario puede tomar un préstamo
      * Lógica común para todos los tipos de usuario
@@ -90,19 +181,36 @@ public abstract class Usuario implements Buscable {
      * Agrega un préstamo a la lista de préstamos activos
      */
     public boolean agregarPrestamo(String prestamoId) {
+        return agregarPrestamo(prestamoId, null);
+    }
+    
+    /**
+     * Agrega un préstamo a la lista de préstamos activos y marca el recurso en el historial
+     * @param recursoId recurso prestado (ver haPrestado); null si no se conoce
+     */
+    public boolean agregarPrestamo(String prestamoId, String recursoId) {
         if (puedeTomarPrestamo()) {
-            prestamosActivos.add(prestamoId);
-            historialPrestamos.add(prestamoId);
+            prestamosActivos.add(IdCompacto.de(prestamoId));
+            vistaPrestamosActivos = null;
+            historialPrestamos.agregar(prestamoId, recursoId);
             return true;
         }
         return false;
     }
     
+    /**
+     * ¿El usuario prestó este recurso alguna vez? (filtro de Bloom: menos del 1 % de falsos positivos)
+     */
+    public boolean haPrestado(String recursoId) {
+        return historialPrestamos.haPrestado(recursoId);
+    }
+    
     /**
      * Remueve un préstamo de la lista activa al devolverlo
      */
     public boolean removerPrestamo(String prestamoId) {
-        return prestamosActivos.remove(prestamoId);
+        vistaPrestamosActivos = null;
+        return prestamosActivos.remove(IdCompacto.de(prestamoId));
     }
     
     /**
@@ -124,6 +232,23 @@ public abstract class Usuario implements Buscable {
         return false;
     }
     
+    /**
+     * Copia independiente (p. ej. para que una caché no comparta la instancia que guarda)
+     * Préstamos activos e historial se copian; identificador y contraseña se conservan.
+     */
+    public Usuario copia() {
+        try {
+            Usuario copia = (Usuario) super.clone();
+            copia.prestamosActivos = new ArrayList<>(prestamosActivos);
+            copia.historialPrestamos = historialPrestamos.copia();
+            copia.vistaPrestamosActivos = null;
+            copia.vistaIndexables = null;
+            return copia;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
     // ===============================================================
     // IMPLEMENTACIÓN DE INTERFACE BUSCABLE
     // ===============================================================
@@ -192,12 +317,16 @@ public abstract class Usuario implements Buscable {
                 prestamosActivos.size(), getLimitePrestamos());
     }
     
+    /**
+     * Lista inmutable compartida: se rehace al cambiar nombre o email
+     */
     @Override
     public List<String> getPalabrasClaveIndexables() {
-        List<String> palabras = new ArrayList<>();
-        palabras.add(nombre.toLowerCase());
-        palabras.add(email.toLowerCase());
-        palabras.add(getClass().getSimpleName().toLowerCase());
+        List<String> palabras = vistaIndexables;
+        if (palabras == null) {
+            palabras = vistaIndexables = List.of(nombre.toLowerCase(), email.toLowerCase(),
+                    getClass().getSimpleName().toLowerCase());
+        }
         return palabras;
     }
     
@@ -207,33 +336,85 @@ public abstract class Usuario implements Buscable {
     
     public String getId() { return id; }
     
+    /**
+     * Restaura la identidad y el estado de un usuario cargado desde un almacenamiento externo
+     * La contraseña no se exporta: el usuario restaurado debe definir una nueva.
+     */
+    public void restaurarEstado(String id, LocalDate fechaRegistro, boolean activo,
+                                List<String> prestamosActivos, List<String> historialPrestamos,
+                                double multasPendientes) {
+        this.id = id;
+        this.fechaRegistro = fechaRegistro;
+        this.activo = activo;
+        this.prestamosActivos = new ArrayList<>(prestamosActivos.size());
+        prestamosActivos.forEach(prestamoId -> this.prestamosActivos.add(IdCompacto.de(prestamoId)));
+        this.vistaPrestamosActivos = null;
+        this.historialPrestamos = HistorialPrestamos.desde(historialPrestamos);
+        this.multasPendientes = multasPendientes;
+    }
+    
     public String getNombre() { return nombre; }
-    public void setNombre(String nombre) { this.nombre = nombre; }
+    public void setNombre(String nombre) { 
+        this.nombre = nombre; 
+        this.vistaIndexables = null;
+    }
     
     public String getEmail() { return email; }
-    public void setEmail(String email) { this.email = email; }
+    public void setEmail(String email) { 
+        this.email = email; 
+        this.vistaIndexables = null;
+    }
     
     // Password encapsulado - no getter directo
     public boolean verificarPassword(String password) {
-        return this.password.equals(password);
+        return this.password != null && this.password.equals(password);
     }
     public void setPassword(String password) { this.password = password; }
     
+    /**
+     * Hibernate reemplaza las colecciones al cargar o refrescar, y un merge las rellena en su
+     * sitio (quizá con el mismo tamaño) antes de escribirlas: las instantáneas ya no valen
+     */
+    @PostLoad
+    @PostUpdate
+    protected void descartarVistas() {
+        this.vistaPrestamosActivos = null;
+        this.vistaIndexables = null;
+    }
+    
     public LocalDate getFechaRegistro() { return fechaRegistro; }
     
     public boolean isActivo() { return activo; }
     public void setActivo(boolean activo) { this.activo = activo; }
     
+    /**
+     * Ids en texto, como lista inmutable y compartida: el texto se arma solo cuando la lista cambia
+     */
     public List<String> getPrestamosActivos() { 
-        return new ArrayList<>(prestamosActivos); // Copia defensiva
+        List<String> vista = vistaPrestamosActivos;
+        if (vista == null || vista.size() != prestamosActivos.size()) {
+            vista = vistaPrestamosActivos = Instantaneas.de(IdCompacto.aTextos(prestamosActivos));
+        }
+        return vista;
     }
     
+    /**
+     * Historial del más antiguo al más reciente, como vista de solo lectura (no copia)
+     * Para paginar del más reciente al más antiguo o consultar usar getHistorial().
+     */
     public List<String> getHistorialPrestamos() { 
-        return new ArrayList<>(historialPrestamos); // Copia defensiva
+        return historialPrestamos.comoLista();
     }
     
+    /**
+     * Historial de solo lectura: paginación del más reciente al más antiguo y contiene()
+     */
+    public HistorialPrestamos getHistorial() { return historialPrestamos; }
+    
     public double getMultasPendientes() { return multasPendientes; }
     
+    public long getVersion() { return version; }
+    
     @Override
     public String toString() {
         return String.format("%s{id='%s', nombre='%s', email='%s', activo=%s, préstamos=%d/%d, multas=%.2f}",
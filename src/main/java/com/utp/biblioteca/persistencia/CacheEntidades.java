@@ -0,0 +1,89 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.servicio.EscuchaCirculacion;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * CacheEntidades - BÚSQUEDAS POR ID DE RECURSOS Y USUARIOS
+ * Cachés read-through delante de los repositorios, con capacidad propia por tipo de entidad
+ * (peso estimado en bytes). Los recursos se refrescan en segundo plano tras un tiempo para que
+ * la disponibilidad no quede desactualizada; los usuarios solo cambian por la circulación.
+ * Como escucha de ServicioCirculacion guarda las versiones recién prestadas o devueltas.
+ * Cada búsqueda devuelve una copia: modificarla no altera lo que ven los demás.
+ */
+public class CacheEntidades implements EscuchaCirculacion {
+
+    public static final long PESO_MAXIMO_RECURSOS_DEFAULT = 64L * 1024 * 1024;
+    public static final long PESO_MAXIMO_USUARIOS_DEFAULT = 16L * 1024 * 1024;
+    public static final Duration REFRESCO_DISPONIBILIDAD_DEFAULT = Duration.ofSeconds(30);
+
+    private final CacheLectura<Recurso> recursos;
+    private final CacheLectura<Usuario> usuarios;
+
+    public CacheEntidades(RepositorioRecursos repositorioRecursos, RepositorioUsuarios repositorioUsuarios) {
+        this(repositorioRecursos, repositorioUsuarios, PESO_MAXIMO_RECURSOS_DEFAULT,
+                PESO_MAXIMO_USUARIOS_DEFAULT, REFRESCO_DISPONIBILIDAD_DEFAULT);
+    }
+
+    public CacheEntidades(RepositorioRecursos repositorioRecursos, RepositorioUsuarios repositorioUsuarios,
+                          long pesoMaximoRecursos, long pesoMaximoUsuarios, Duration refrescoDisponibilidad) {
+        this.recursos = new CacheLectura<>("recursos", id -> repositorioRecursos.buscarPorId(id).orElse(null),
+                EstimadorTamano::recurso, pesoMaximoRecursos, CacheLectura.PROPORCION_PROTEGIDA_DEFAULT,
+                refrescoDisponibilidad, ForkJoinPool.commonPool(), Recurso::copia);
+        this.usuarios = new CacheLectura<>("usuarios", id -> repositorioUsuarios.buscarPorId(id).orElse(null),
+                EstimadorTamano::usuario, pesoMaximoUsuarios, CacheLectura.PROPORCION_PROTEGIDA_DEFAULT,
+                null, ForkJoinPool.commonPool(), Usuario::copia);
+    }
+
+    // ===============================================================
+    // CONSULTA
+    // ===============================================================
+
+    public Optional<Recurso> buscarRecurso(String id) {
+        return Optional.ofNullable(recursos.obtener(id));
+    }
+
+    public Optional<Usuario> buscarUsuario(String id) {
+        return Optional.ofNullable(usuarios.obtener(id));
+    }
+
+    // ===============================================================
+    // INVALIDACIÓN
+    // ===============================================================
+
+    public void invalidarRecurso(String id) {
+        recursos.invalidar(id);
+    }
+
+    public void invalidarUsuario(String id) {
+        usuarios.invalidar(id);
+    }
+
+    @Override
+    public void alPrestar(Prestamo prestamo) {
+        recursos.poner(prestamo.getRecursoId(), prestamo.getRecurso());
+        usuarios.poner(prestamo.getUsuarioId(), prestamo.getUsuario());
+    }
+
+    @Override
+    public void alDevolver(Prestamo prestamo) {
+        alPrestar(prestamo);
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    public MetricasCache getMetricasRecursos() { return recursos.getMetricas(); }
+    public MetricasCache getMetricasUsuarios() { return usuarios.getMetricas(); }
+
+    @Override
+    public String toString() {
+        return String.format("CacheEntidades{%s, %s}", getMetricasRecursos(), getMetricasUsuarios());
+    }
+}
@@ -0,0 +1,453 @@
+package com.utp.biblioteca.persistencia;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CacheLectura - CACHÉ READ-THROUGH CON LRU SEGMENTADO (SLRU)
+ * Si la entidad no está en caché se carga con la función de carga (normalmente el repositorio)
+ * y se guarda. Cada entrada tiene un peso (tamaño estimado en bytes) y la caché respeta un
+ * peso máximo en lugar de un número de entradas.
+ *
+ * Desalojo SLRU: las entradas nuevas entran a un segmento de prueba y solo pasan al segmento
+ * protegido si se vuelven a pedir. Se desaloja primero desde el extremo menos reciente del
+ * segmento de prueba, así que un recorrido de muchas entidades frías (reportes, exportaciones)
+ * no expulsa a las que se consultan todo el tiempo.
+ *
+ * Refresco tras escritura: pasado ese tiempo desde que se cargó, una entrada se sigue sirviendo
+ * pero se recarga en segundo plano (útil para campos que cambian, como la disponibilidad).
+ *
+ * Cargas y escrituras simultáneas: una carga o un refresco que empezó antes de un poner() o
+ * invalidar() de la misma clave pudo leer la fila anterior, así que su resultado no se guarda.
+ * Con un copiador, la caché guarda su propia copia de lo que recibe y entrega copias.
+ *
+ * Para reducir la contención, las claves se reparten en segmentos con su propio cerrojo.
+ */
+public class CacheLectura<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheLectura.class);
+
+    public static final double PROPORCION_PROTEGIDA_DEFAULT = 0.8;
+    private static final int NUMERO_SEGMENTOS = 16;
+
+    private static final class Entrada<T> {
+        volatile T valor;
+        int peso;
+        volatile long cargaNanos;
+        boolean protegida;
+        boolean presente = true;
+        boolean refrescando;
+        long escrituras; // Cambia con cada valor guardado: descarta refrescos que empezaron antes
+
+        Entrada(T valor, int peso, long cargaNanos) {
+            this.valor = valor;
+            this.peso = peso;
+            this.cargaNanos = cargaNanos;
+        }
+    }
+
+    /**
+     * Carga en curso de una clave ausente; obsoleta si la clave se escribió o invalidó mientras tanto
+     */
+    private static final class Carga<T> {
+        final CompletableFuture<T> resultado = new CompletableFuture<>();
+        boolean obsoleta;
+    }
+
+    /**
+     * Porción de la caché con su propio SLRU; la cabeza de cada mapa es la entrada menos reciente
+     */
+    private final class Segmento {
+        final LinkedHashMap<String, Entrada<T>> prueba = new LinkedHashMap<>();
+        final LinkedHashMap<String, Entrada<T>> protegido = new LinkedHashMap<>(16, 0.75f, true);
+        final long pesoMaximo;
+        final long pesoMaximoProtegido;
+        long pesoPrueba;
+        long pesoProtegido;
+
+        Segmento(long pesoMaximo, double proporcionProtegida) {
+            this.pesoMaximo = pesoMaximo;
+            this.pesoMaximoProtegido = (long) (pesoMaximo * proporcionProtegida);
+        }
+
+        /**
+         * Devuelve la entrada actualizando su recencia (un acierto en prueba la promueve)
+         */
+        synchronized Entrada<T> obtener(String clave) {
+            Entrada<T> entrada = protegido.get(clave);
+            if (entrada != null) {
+                return entrada;
+            }
+            entrada = prueba.remove(clave);
+            if (entrada == null) {
+                return null;
+            }
+            pesoPrueba -= entrada.peso;
+            entrada.protegida = true;
+            protegido.put(clave, entrada);
+            pesoProtegido += entrada.peso;
+            degradarExcedente();
+            return entrada;
+        }
+
+        synchronized void poner(String clave, T valor, int peso, long ahora) {
+            Carga<T> carga = cargasEnCurso.get(clave);
+            if (carga != null) {
+                carga.obsoleta = true;
+            }
+            guardar(clave, valor, peso, ahora);
+        }
+
+        /**
+         * Resultado de una carga: se guarda solo si nadie escribió la clave mientras se leía
+         * @return el valor que se entrega a quien pidió la clave
+         */
+        synchronized T cargada(String clave, Carga<T> carga, T valor, int peso, long ahora) {
+            if (!carga.obsoleta) {
+                guardar(clave, valor, peso, ahora);
+                return valor;
+            }
+            Entrada<T> actual = prueba.containsKey(clave) ? prueba.get(clave) : protegido.get(clave);
+            return actual != null ? actual.valor : valor;
+        }
+
+        private void guardar(String clave, T valor, int peso, long ahora) {
+            Entrada<T> existente = prueba.containsKey(clave) ? prueba.get(clave) : protegido.get(clave);
+            if (peso > pesoMaximo) {
+                if (existente != null) {
+                    quitar(clave, existente);
+                }
+                return; // Nunca cabría: no se guarda
+            }
+            if (existente != null) {
+                ajustarPeso(existente, peso - existente.peso);
+                existente.valor = valor;
+                existente.cargaNanos = ahora;
+                existente.refrescando = false;
+                existente.escrituras++;
+            } else {
+                prueba.put(clave, new Entrada<>(valor, peso, ahora));
+                pesoPrueba += peso;
+            }
+            desalojarExcedente();
+        }
+
+        /**
+         * Resultado de un refresco: solo se aplica si la entrada sigue en la caché y no se
+         * escribió desde que empezó el refresco
+         */
+        synchronized void refrescada(String clave, Entrada<T> entrada, long escrituras, T valor, int peso, long ahora) {
+            if (!entrada.presente || entrada.escrituras != escrituras) {
+                return; // Si hubo escritura, guardar() ya liberó el refresco
+            }
+            entrada.refrescando = false;
+            if (valor == null || peso > pesoMaximo) {
+                quitar(clave, entrada);
+                return;
+            }
+            ajustarPeso(entrada, peso - entrada.peso);
+            entrada.valor = valor;
+            entrada.cargaNanos = ahora;
+            entrada.escrituras++;
+            desalojarExcedente();
+        }
+
+        /**
+         * @return las escrituras de la entrada al empezar el refresco, o -1 si no hay que refrescar
+         */
+        synchronized long iniciarRefresco(Entrada<T> entrada, long ahora) {
+            if (entrada.refrescando || !entrada.presente || ahora - entrada.cargaNanos < refrescarTrasNanos) {
+                return -1;
+            }
+            entrada.refrescando = true;
+            return entrada.escrituras;
+        }
+
+        synchronized void refrescoFallido(Entrada<T> entrada, long escrituras) {
+            if (entrada.escrituras == escrituras) {
+                entrada.refrescando = false;
+            }
+        }
+
+        synchronized void invalidar(String clave) {
+            Carga<T> carga = cargasEnCurso.get(clave);
+            if (carga != null) {
+                carga.obsoleta = true;
+            }
+            Entrada<T> entrada = prueba.containsKey(clave) ? prueba.get(clave) : protegido.get(clave);
+            if (entrada != null) {
+                quitar(clave, entrada);
+            }
+        }
+
+        synchronized void limpiar() {
+            cargasEnCurso.forEach((clave, carga) -> {
+                if (segmento(clave) == this) {
+                    carga.obsoleta = true;
+                }
+            });
+            prueba.values().forEach(e -> e.presente = false);
+            protegido.values().forEach(e -> e.presente = false);
+            prueba.clear();
+            protegido.clear();
+            pesoPrueba = 0;
+            pesoProtegido = 0;
+        }
+
+        synchronized int getEntradas() { return prueba.size() + protegido.size(); }
+        synchronized long getPeso() { return pesoPrueba + pesoProtegido; }
+
+        private void ajustarPeso(Entrada<T> entrada, int diferencia) {
+            entrada.peso += diferencia;
+            if (entrada.protegida) {
+                pesoProtegido += diferencia;
+            } else {
+                pesoPrueba += diferencia;
+            }
+        }
+
+        private void quitar(String clave, Entrada<T> entrada) {
+            if (entrada.protegida) {
+                protegido.remove(clave);
+                pesoProtegido -= entrada.peso;
+            } else {
+                prueba.remove(clave);
+                pesoPrueba -= entrada.peso;
+            }
+            entrada.presente = false;
+        }
+
+        /**
+         * Las entradas menos recientes del segmento protegido vuelven a prueba
+         */
+        private void degradarExcedente() {
+            Iterator<Map.Entry<String, Entrada<T>>> menosRecientes = protegido.entrySet().iterator();
+            while (pesoProtegido > pesoMaximoProtegido && menosRecientes.hasNext()) {
+                Map.Entry<String, Entrada<T>> degradada = menosRecientes.next();
+                menosRecientes.remove();
+                Entrada<T> entrada = degradada.getValue();
+                pesoProtegido -= entrada.peso;
+                entrada.protegida = false;
+                prueba.put(degradada.getKey(), entrada);
+                pesoPrueba += entrada.peso;
+            }
+        }
+
+        private void desalojarExcedente() {
+            degradarExcedente();
+            while (pesoPrueba + pesoProtegido > pesoMaximo) {
+                LinkedHashMap<String, Entrada<T>> origen = prueba.isEmpty() ? protegido : prueba;
+                Map.Entry<String, Entrada<T>> victima = origen.entrySet().iterator().next();
+                quitar(victima.getKey(), victima.getValue());
+                desalojos.increment();
+                pesoDesalojado.add(victima.getValue().peso);
+            }
+        }
+    }
+
+    private final String nombre;
+    private final Function<String, T> cargador;
+    private final ToIntFunction<? super T> pesador;
+    private final long pesoMaximo;
+    private final long refrescarTrasNanos;
+    private final Executor ejecutorRefresco;
+    private final UnaryOperator<T> copiador;
+    private final List<Segmento> segmentos;
+    private final ConcurrentHashMap<String, Carga<T>> cargasEnCurso = new ConcurrentHashMap<>();
+
+    // Métricas
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder cargas = new LongAdder();
+    private final LongAdder cargasFallidas = new LongAdder();
+    private final LongAdder nanosCarga = new LongAdder();
+    private final LongAdder refrescos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+    private final LongAdder pesoDesalojado = new LongAdder();
+
+    /**
+     * Caché sin refresco con la proporción protegida por defecto
+     * @param cargador devuelve la entidad o null si no existe (las ausencias no se guardan)
+     */
+    public CacheLectura(String nombre, Function<String, T> cargador, ToIntFunction<? super T> pesador, long pesoMaximo) {
+        this(nombre, cargador, pesador, pesoMaximo, PROPORCION_PROTEGIDA_DEFAULT, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Caché que entrega los valores guardados tal cual: quien los recibe no debe modificarlos
+     * @param proporcionProtegida fracción del peso reservada a entradas pedidas más de una vez (0 = LRU simple)
+     * @param refrescarTras tiempo tras la carga a partir del cual se recarga en segundo plano (null = nunca)
+     */
+    public CacheLectura(String nombre, Function<String, T> cargador, ToIntFunction<? super T> pesador,
+                        long pesoMaximo, double proporcionProtegida, Duration refrescarTras,
+                        Executor ejecutorRefresco) {
+        this(nombre, cargador, pesador, pesoMaximo, proporcionProtegida, refrescarTras, ejecutorRefresco, null);
+    }
+
+    /**
+     * @param copiador copia independiente de un valor (null = sin copias); se aplica a lo que llega
+     *                 por poner() y a cada valor entregado, así que nadie comparte la instancia guardada
+     */
+    public CacheLectura(String nombre, Function<String, T> cargador, ToIntFunction<? super T> pesador,
+                        long pesoMaximo, double proporcionProtegida, Duration refrescarTras,
+                        Executor ejecutorRefresco, UnaryOperator<T> copiador) {
+        if (pesoMaximo <= 0 || proporcionProtegida < 0 || proporcionProtegida >= 1) {
+            throw new IllegalArgumentException("Configuración de caché inválida");
+        }
+        this.nombre = nombre;
+        this.cargador = cargador;
+        this.pesador = pesador;
+        this.pesoMaximo = pesoMaximo;
+        this.refrescarTrasNanos = refrescarTras != null ? refrescarTras.toNanos() : Long.MAX_VALUE;
+        this.ejecutorRefresco = ejecutorRefresco;
+        this.copiador = copiador != null ? copiador : UnaryOperator.identity();
+        // Con cachés pequeñas un único segmento evita desalojos prematuros por reparto desigual
+        int numero = pesoMaximo >= NUMERO_SEGMENTOS * 64L * 1024 ? NUMERO_SEGMENTOS : 1;
+        this.segmentos = new ArrayList<>(numero);
+        for (int i = 0; i < numero; i++) {
+            segmentos.add(new Segmento(pesoMaximo / numero, proporcionProtegida));
+        }
+    }
+
+    // ===============================================================
+    // CONSULTA
+    // ===============================================================
+
+    /**
+     * Devuelve la entidad desde la caché o, si no está, desde la función de carga
+     * Si varios hilos piden a la vez la misma clave ausente, se carga una sola vez.
+     * @return la entidad, o null si no existe
+     */
+    public T obtener(String clave) {
+        Segmento segmento = segmento(clave);
+        Entrada<T> entrada = segmento.obtener(clave);
+        if (entrada != null) {
+            aciertos.increment();
+            T valor = entrada.valor;
+            if (refrescarTrasNanos != Long.MAX_VALUE) {
+                long ahora = System.nanoTime();
+                if (ahora - entrada.cargaNanos >= refrescarTrasNanos) {
+                    long escrituras = segmento.iniciarRefresco(entrada, ahora);
+                    if (escrituras >= 0) {
+                        refrescar(segmento, clave, entrada, escrituras);
+                    }
+                }
+            }
+            return copiador.apply(valor);
+        }
+        fallos.increment();
+        T valor = cargar(segmento, clave);
+        return valor != null ? copiador.apply(valor) : null;
+    }
+
+    private T cargar(Segmento segmento, String clave) {
+        Carga<T> propia = new Carga<>();
+        Carga<T> enCurso = cargasEnCurso.putIfAbsent(clave, propia);
+        if (enCurso != null) {
+            try {
+                return enCurso.resultado.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            long inicio = System.nanoTime();
+            T valor = cargador.apply(clave);
+            long fin = System.nanoTime();
+            cargas.increment();
+            nanosCarga.add(fin - inicio);
+            if (valor != null) {
+                valor = segmento.cargada(clave, propia, valor, pesador.applyAsInt(valor), fin);
+            }
+            propia.resultado.complete(valor);
+            return valor;
+        } catch (RuntimeException e) {
+            cargasFallidas.increment();
+            propia.resultado.completeExceptionally(e);
+            throw e;
+        } finally {
+            cargasEnCurso.remove(clave, propia);
+        }
+    }
+
+    private void refrescar(Segmento segmento, String clave, Entrada<T> entrada, long escrituras) {
+        ejecutorRefresco.execute(() -> {
+            try {
+                T valor = cargador.apply(clave);
+                refrescos.increment();
+                segmento.refrescada(clave, entrada, escrituras, valor, valor != null ? pesador.applyAsInt(valor) : 0,
+                        System.nanoTime());
+            } catch (RuntimeException e) {
+                // Se sigue sirviendo el valor anterior; el próximo acierto lo reintenta
+                cargasFallidas.increment();
+                segmento.refrescoFallido(entrada, escrituras);
+                logger.warn("No se pudo refrescar {} en la caché {}", clave, nombre, e);
+            }
+        });
+    }
+
+    // ===============================================================
+    // ESCRITURA E INVALIDACIÓN
+    // ===============================================================
+
+    /**
+     * Guarda (o reemplaza) la versión más reciente de una entidad, p. ej. tras modificarla
+     * Una carga de la misma clave que esté en curso ya no se guardará.
+     */
+    public void poner(String clave, T valor) {
+        T propio = copiador.apply(valor);
+        segmento(clave).poner(clave, propio, pesador.applyAsInt(propio), System.nanoTime());
+    }
+
+    public void invalidar(String clave) {
+        segmento(clave).invalidar(clave);
+    }
+
+    public void invalidarTodo() {
+        for (Segmento segmento : segmentos) {
+            segmento.limpiar();
+        }
+    }
+
+    private Segmento segmento(String clave) {
+        int h = clave.hashCode();
+        return segmentos.get(((h ^ (h >>> 16)) & 0x7fffffff) % segmentos.size());
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    public MetricasCache getMetricas() {
+        int entradas = 0;
+        long peso = 0;
+        for (Segmento segmento : segmentos) {
+            entradas += segmento.getEntradas();
+            peso += segmento.getPeso();
+        }
+        return new MetricasCache(nombre, aciertos.sum(), fallos.sum(), cargas.sum(), cargasFallidas.sum(),
+                nanosCarga.sum(), refrescos.sum(), desalojos.sum(), pesoDesalojado.sum(), entradas, peso, pesoMaximo);
+    }
+
+    public String getNombre() { return nombre; }
+
+    @Override
+    public String toString() {
+        return getMetricas().toString();
+    }
+}
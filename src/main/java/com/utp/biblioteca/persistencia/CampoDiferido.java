@@ -0,0 +1,173 @@
+package com.utp.biblioteca.persistencia;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Enumeración CampoDiferido
+ * Campos de alta rotación que EscrituraDiferida acumula en memoria y escribe por lotes.
+ * Cada campo sabe a qué tabla y columna pertenece y cómo se representa en el diario.
+ * Los valores son siempre el estado completo del campo (nunca incrementos), así que
+ * volver a aplicar un cambio ya escrito no altera el resultado.
+ * Si otra escritura cambió la fila entre medio, combinar() decide qué valor queda.
+ */
+public enum CampoDiferido {
+    // Al combinar solo cuenta como "no disponible" si lo respalda un préstamo confirmado
+    DISPONIBLE(Entidad.RECURSO, "disponible", Tipo.LOGICO,
+            "(disponible OR NOT EXISTS (SELECT 1 FROM prestamo p WHERE p.recurso_id = recurso.id"
+                    + " AND p.estado IN " + CampoDiferido.ESTADOS_EN_CURSO + "))"),
+    NUMERO_VECES_PRESTADO(Entidad.RECURSO, "numero_veces_prestado", Tipo.ENTERO),
+    FECHA_ULTIMO_PRESTAMO(Entidad.RECURSO, "fecha_ultimo_prestamo", Tipo.FECHA),
+    DESCARGAS_REALIZADAS(Entidad.RECURSO, "descargas_realizadas", Tipo.ENTERO),
+    PRESTAMOS_ACTIVOS(Entidad.USUARIO, null, Tipo.LISTA); // Tabla usuario_prestamo_activo
+
+    /**
+     * Tabla principal de la entidad a la que pertenece el campo
+     */
+    public enum Entidad {
+        RECURSO("recurso"),
+        USUARIO("usuario");
+
+        private final String tabla;
+
+        Entidad(String tabla) {
+            this.tabla = tabla;
+        }
+
+        public String getTabla() {
+            return tabla;
+        }
+    }
+
+    private enum Tipo {
+        LOGICO, ENTERO, FECHA, LISTA
+    }
+
+    private static final String SEPARADOR_LISTA = ",";
+
+    /**
+     * Estados (EstadoPrestamo) de un préstamo que aún tiene el recurso, como lista SQL
+     */
+    static final String ESTADOS_EN_CURSO = "('ACTIVO', 'VENCIDO', 'RENOVADO')";
+
+    private final Entidad entidad;
+    private final String columna;
+    private final Tipo tipo;
+    private final String lectura;
+
+    CampoDiferido(Entidad entidad, String columna, Tipo tipo) {
+        this(entidad, columna, tipo, columna);
+    }
+
+    CampoDiferido(Entidad entidad, String columna, Tipo tipo, String lectura) {
+        this.entidad = entidad;
+        this.columna = columna;
+        this.tipo = tipo;
+        this.lectura = lectura;
+    }
+
+    public Entidad getEntidad() { return entidad; }
+    public String getColumna() { return columna; }
+
+    /**
+     * Expresión SQL con la que se relee el valor actual antes de combinar (la columna, salvo DISPONIBLE)
+     */
+    String getLectura() { return lectura; }
+
+    /**
+     * Representación textual para el diario (cadena vacía = null o lista vacía)
+     */
+    String codificar(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (tipo == Tipo.LISTA) {
+            return String.join(SEPARADOR_LISTA, castLista(valor));
+        }
+        return valor.toString();
+    }
+
+    Object decodificar(String texto) {
+        switch (tipo) {
+            case LOGICO:
+                return Boolean.parseBoolean(texto);
+            case ENTERO:
+                return Integer.parseInt(texto);
+            case FECHA:
+                return texto.isEmpty() ? null : LocalDate.parse(texto);
+            default:
+                return texto.isEmpty() ? List.of() : List.of(texto.split(SEPARADOR_LISTA));
+        }
+    }
+
+    /**
+     * Asigna el valor a un parámetro de la sentencia UPDATE
+     */
+    void asignar(PreparedStatement sentencia, int indice, Object valor) throws SQLException {
+        switch (tipo) {
+            case LOGICO:
+                sentencia.setBoolean(indice, (Boolean) valor);
+                break;
+            case ENTERO:
+                sentencia.setInt(indice, (Integer) valor);
+                break;
+            case FECHA:
+                if (valor == null) {
+                    sentencia.setNull(indice, Types.DATE);
+                } else {
+                    sentencia.setObject(indice, valor);
+                }
+                break;
+            default:
+                throw new IllegalStateException(name() + " no es una columna de " + entidad.getTabla());
+        }
+    }
+
+    /**
+     * Lee la columna del campo de una fila de la tabla
+     */
+    Object leer(ResultSet fila, int indice) throws SQLException {
+        switch (tipo) {
+            case LOGICO:
+                return fila.getBoolean(indice);
+            case ENTERO:
+                return fila.getInt(indice);
+            case FECHA:
+                return fila.getObject(indice, LocalDate.class);
+            default:
+                throw new IllegalStateException(name() + " no es una columna de " + entidad.getTabla());
+        }
+    }
+
+    /**
+     * Valor que se escribe cuando la fila cambió desde la versión en que se calculó el pendiente
+     * Los contadores y la fecha del último préstamo nunca retroceden (gana el mayor). La
+     * disponibilidad es la del último préstamo o devolución visto aquí, salvo que otra instancia
+     * haya confirmado un préstamo en curso del recurso (actual = false, ver getLectura): una
+     * devolución local no puede marcar como disponible un libro que está prestado.
+     */
+    Object combinar(Object pendiente, Object actual) {
+        switch (tipo) {
+            case LOGICO:
+                return (Boolean) pendiente && (Boolean) actual;
+            case ENTERO:
+                return Math.max((Integer) pendiente, (Integer) actual);
+            case FECHA:
+                if (pendiente == null || actual == null) {
+                    return pendiente == null ? actual : pendiente;
+                }
+                return ((LocalDate) pendiente).isAfter((LocalDate) actual) ? pendiente : actual;
+            default:
+                return pendiente;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> castLista(Object valor) {
+        return (List<String>) valor;
+    }
+}
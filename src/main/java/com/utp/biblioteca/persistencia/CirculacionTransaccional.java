@@ -0,0 +1,263 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.eventos.EventoCirculacion;
+import com.utp.biblioteca.model.gestion.EstadoReserva;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.interfaces.Reservable;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.hibernate.StaleStateException;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CirculacionTransaccional - CIRCULACIÓN SEGURA ENTRE VARIAS INSTANCIAS
+ * Varios mostradores (instancias de la aplicación) comparten la base de datos. Cada operación
+ * lee el estado actual desde la base (sin caché L2), aplica las reglas de ServicioCirculacion
+ * y confirma; la columna version de Recurso, Usuario, Prestamo y Reserva hace que, si otra
+ * instancia modificó la misma fila entretanto, la confirmación falle en lugar de pisar su cambio.
+ * Ante ese conflicto la operación se reintenta desde cero (hasta maxIntentos, con espera
+ * aleatoria creciente), así que la segunda instancia ve el libro ya prestado.
+ *
+ * Cada préstamo y cada devolución incrementan también la versión del usuario: dos mostradores
+ * que prestan libros distintos al mismo usuario chocan, y el reintento vuelve a evaluar
+ * puedeTomarPrestamo() con los préstamos ya confirmados (el límite no se rebasa).
+ *
+ * Las reservas fuerzan el incremento de la versión del recurso: dos reservas simultáneas
+ * del mismo recurso también chocan, y la posición en la cola se calcula siempre sobre
+ * las reservas pendientes confirmadas.
+ *
+ * El cupo de licencia que reserva el servicio para un eBook se devuelve si la transacción
+ * no se confirma (conflicto o error), así que los reintentos no gastan la licencia.
+ *
+ * Las escuchas del servicio se notifican solo después de confirmar la transacción. Además,
+ * cada cambio inserta su EventoCirculacion en la misma transacción (bandeja de salida), que
+ * RelevoEventos publica de forma duradera aunque el proceso caiga justo tras confirmar.
+ */
+public class CirculacionTransaccional {
+
+    private static final Logger logger = LoggerFactory.getLogger(CirculacionTransaccional.class);
+
+    public static final int MAX_INTENTOS_DEFAULT = 5;
+    private static final long ESPERA_BASE_MS = 2;
+
+    private final GestorPersistencia gestor;
+    private final ServicioCirculacion servicio;
+    private final int maxIntentos;
+
+    // Métricas
+    private final LongAdder operaciones = new LongAdder();
+    private final LongAdder intentos = new LongAdder();
+    private final LongAdder conflictos = new LongAdder();
+    private final LongAdder reintentosAgotados = new LongAdder();
+
+    public CirculacionTransaccional(GestorPersistencia gestor, ServicioCirculacion servicio) {
+        this(gestor, servicio, MAX_INTENTOS_DEFAULT);
+    }
+
+    public CirculacionTransaccional(GestorPersistencia gestor, ServicioCirculacion servicio, int maxIntentos) {
+        if (maxIntentos < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un intento");
+        }
+        this.gestor = gestor;
+        this.servicio = servicio;
+        this.maxIntentos = maxIntentos;
+    }
+
+    // ===============================================================
+    // OPERACIONES
+    // ===============================================================
+
+    /**
+     * @return el préstamo confirmado, null si no existe el usuario o el recurso o las reglas no lo permiten
+     * @throws OptimisticLockException si se agotan los reintentos por conflictos
+     */
+    public Prestamo prestar(String usuarioId, String recursoId) {
+        Prestamo prestamo = conReintentos(recursoId, em -> {
+            Usuario usuario = em.find(Usuario.class, usuarioId);
+            Recurso recurso = em.find(Recurso.class, recursoId);
+            if (usuario == null || recurso == null) {
+                return null;
+            }
+            Prestamo nuevo = servicio.crearPrestamo(usuario, recurso,
+                    cupo -> alDeshacer(em, () -> servicio.anularCupo(cupo)));
+            if (nuevo != null) {
+                em.lock(usuario, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+                em.persist(nuevo);
+                em.persist(EventoCirculacion.prestamo(nuevo));
+            }
+            return nuevo;
+        });
+        if (prestamo != null) {
+            servicio.notificarPrestamo(prestamo);
+        }
+        return prestamo;
+    }
+
+    /**
+     * @return true si la devolución quedó confirmada
+     * @throws OptimisticLockException si se agotan los reintentos por conflictos
+     */
+    public boolean devolver(String prestamoId, String recursoId) {
+        Prestamo devuelto = conReintentos(recursoId, em -> {
+            Prestamo prestamo = em.find(Prestamo.class, prestamoId);
+            if (prestamo == null || !prestamo.procesarDevolucion()) {
+                return null;
+            }
+            if (prestamo.getUsuario() != null) {
+                em.lock(prestamo.getUsuario(), LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            }
+            em.persist(EventoCirculacion.devolucion(prestamo));
+            if (prestamo.getMulta() != null) {
+                em.persist(EventoCirculacion.multa(prestamo, prestamo.getMulta()));
+            }
+            return prestamo;
+        });
+        if (devuelto == null) {
+            return false;
+        }
+        servicio.liberarCupo(devuelto);
+        servicio.notificarDevolucion(devuelto);
+        return true;
+    }
+
+    /**
+     * @return la reserva confirmada, null si no existe el usuario o el recurso o no admite la reserva
+     * @throws OptimisticLockException si se agotan los reintentos por conflictos
+     */
+    public Reserva reservar(String usuarioId, String recursoId) {
+        Reserva reserva = conReintentos(recursoId, em -> {
+            Usuario usuario = em.find(Usuario.class, usuarioId);
+            Recurso recurso = em.find(Recurso.class, recursoId);
+            if (usuario == null || recurso == null) {
+                return null;
+            }
+            em.lock(recurso, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            reconstruirCola(em, recurso);
+            Reserva nueva = servicio.crearReserva(usuario, recurso);
+            if (nueva != null) {
+                em.persist(nueva);
+                em.persist(EventoCirculacion.reserva(nueva));
+            }
+            return nueva;
+        });
+        if (reserva != null) {
+            servicio.notificarReserva(reserva);
+        }
+        return reserva;
+    }
+
+    /**
+     * Ejecuta la acción cuando la transacción termina sin confirmarse (rollback)
+     */
+    private static void alDeshacer(EntityManager em, Runnable accion) {
+        em.unwrap(SessionImplementor.class).getActionQueue().registerProcess(
+                (AfterTransactionCompletionProcess) (exito, sesion) -> {
+                    if (!exito) {
+                        accion.run();
+                    }
+                });
+    }
+
+    /**
+     * La cola de reservas del recurso vive solo en memoria: se rehace con las reservas pendientes
+     */
+    private static void reconstruirCola(EntityManager em, Recurso recurso) {
+        if (!(recurso instanceof Reservable)) {
+            return;
+        }
+        em.createQuery("select r from Reserva r where r.recursoId = :recurso and r.estado = :estado"
+                        + " order by r.fechaReserva", Reserva.class)
+                .setParameter("recurso", recurso.getId())
+                .setParameter("estado", EstadoReserva.PENDIENTE)
+                .getResultStream()
+                .forEach(r -> ((Reservable) recurso).reservar(r.getUsuarioId(), r.getPrioridad()));
+    }
+
+    // ===============================================================
+    // REINTENTOS
+    // ===============================================================
+
+    private <R> R conReintentos(String recursoId, Function<EntityManager, R> trabajo) {
+        for (int intento = 1; ; intento++) {
+            intentos.increment();
+            try {
+                R resultado = gestor.enTransaccion(em -> {
+                    // La caché L2 es local a cada instancia: podría tener una versión ya superada
+                    em.setProperty("jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+                    return trabajo.apply(em);
+                });
+                operaciones.increment();
+                return resultado;
+            } catch (RuntimeException e) {
+                if (!esConflicto(e)) {
+                    throw e;
+                }
+                conflictos.increment();
+                gestor.getFabrica().getCache().evict(Recurso.class, recursoId);
+                if (intento >= maxIntentos) {
+                    reintentosAgotados.increment();
+                    logger.warn("Conflicto de concurrencia en el recurso {} tras {} intentos", recursoId, intento);
+                    throw e;
+                }
+                esperar(intento);
+            }
+        }
+    }
+
+    private static boolean esConflicto(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof OptimisticLockException || causa instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Espera aleatoria (jitter) que crece con cada intento para que los mostradores no vuelvan a chocar
+     */
+    private static void esperar(int intento) {
+        long maximo = ESPERA_BASE_MS << Math.min(intento, 6);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, maximo + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reintento interrumpido", e);
+        }
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    /**
+     * Fracción de transacciones que fallaron por conflicto (0.0 a 1.0)
+     */
+    public double getTasaConflictos() {
+        long total = intentos.sum();
+        return total == 0 ? 0.0 : (double) conflictos.sum() / total;
+    }
+
+    public long getOperaciones() { return operaciones.sum(); }
+    public long getIntentos() { return intentos.sum(); }
+    public long getConflictos() { return conflictos.sum(); }
+    public long getReintentosAgotados() { return reintentosAgotados.sum(); }
+
+    @Override
+    public String toString() {
+        return String.format("CirculacionTransaccional{operaciones=%d, intentos=%d, conflictos=%d (%.1f%%), agotados=%d}",
+                getOperaciones(), getIntentos(), getConflictos(), getTasaConflictos() * 100, getReintentosAgotados());
+    }
+}
@@ -0,0 +1,26 @@
+package com.utp.biblioteca.persistencia;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sentencia SQL parametrizada (marcadores ?) junto con sus parámetros en orden
+ */
+public final class ConsultaSql {
+
+    private final String sql;
+    private final List<Object> parametros;
+
+    public ConsultaSql(String sql, List<Object> parametros) {
+        this.sql = sql;
+        this.parametros = Collections.unmodifiableList(parametros);
+    }
+
+    public String getSql() { return sql; }
+    public List<Object> getParametros() { return parametros; }
+
+    @Override
+    public String toString() {
+        return String.format("ConsultaSql{sql='%s', parametros=%s}", sql, parametros);
+    }
+}
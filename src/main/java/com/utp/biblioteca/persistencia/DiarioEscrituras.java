@@ -0,0 +1,208 @@
+package com.utp.biblioteca.persistencia;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Diario local de EscrituraDiferida
+ * Cada cambio se anota (una línea "CAMPO\tid\tvalor") antes de quedar pendiente en memoria.
+ * El diario se divide en generaciones: al empezar un vaciado se cierra la generación actual
+ * y se abre otra, y cuando la base confirma el lote se borran las generaciones ya escritas.
+ * Una línea sin salto final es una escritura interrumpida por una caída y se descarta.
+ */
+final class DiarioEscrituras implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarioEscrituras.class);
+
+    private static final String PREFIJO = "diario-";
+    private static final String EXTENSION = ".log";
+
+    /**
+     * Cambio leído del diario
+     */
+    static final class Entrada {
+        final CampoDiferido campo;
+        final String id;
+        final Object valor;
+
+        Entrada(CampoDiferido campo, String id, Object valor) {
+            this.campo = campo;
+            this.id = id;
+            this.valor = valor;
+        }
+    }
+
+    private final Path directorio;
+    private FileChannel canal;
+    private long generacion;
+
+    DiarioEscrituras(Path directorio) {
+        this.directorio = directorio;
+        try {
+            Files.createDirectories(directorio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el directorio del diario " + directorio, e);
+        }
+        List<Long> existentes = generaciones(directorio);
+        this.generacion = existentes.isEmpty() ? 1 : existentes.get(existentes.size() - 1) + 1;
+        abrir();
+    }
+
+    // ===============================================================
+    // ESCRITURA
+    // ===============================================================
+
+    void registrar(CampoDiferido campo, String id, Object valor) {
+        String linea = campo.name() + '\t' + id + '\t' + campo.codificar(valor) + '\n';
+        ByteBuffer buffer = ByteBuffer.wrap(linea.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo anotar el cambio en el diario", e);
+        }
+    }
+
+    /**
+     * Fuerza a disco lo anotado hasta ahora
+     */
+    void sincronizar() {
+        try {
+            canal.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo sincronizar el diario", e);
+        }
+    }
+
+    /**
+     * Cierra la generación actual y abre la siguiente
+     * @return la generación cerrada
+     */
+    long rotar() {
+        sincronizar();
+        cerrarCanal();
+        long cerrada = generacion++;
+        abrir();
+        return cerrada;
+    }
+
+    /**
+     * Borra las generaciones cuyos cambios ya están en la base de datos
+     */
+    void descartarHasta(long ultimaGeneracion) {
+        for (long g : generaciones(directorio)) {
+            if (g <= ultimaGeneracion) {
+                try {
+                    Files.deleteIfExists(archivo(directorio, g));
+                } catch (IOException e) {
+                    // Se reintentará en el siguiente vaciado; reaplicar el diario es inocuo
+                    logger.warn("No se pudo borrar la generación {} del diario", g, e);
+                }
+            }
+        }
+    }
+
+    long getGeneracion() { return generacion; }
+
+    // ===============================================================
+    // RECUPERACIÓN
+    // ===============================================================
+
+    /**
+     * Cambios de todas las generaciones existentes, en el orden en que se anotaron
+     */
+    static List<Entrada> leer(Path directorio) {
+        List<Entrada> entradas = new ArrayList<>();
+        for (long g : generaciones(directorio)) {
+            Path archivo = archivo(directorio, g);
+            String contenido;
+            try {
+                contenido = Files.readString(archivo, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el diario " + archivo, e);
+            }
+            int inicio = 0;
+            int fin;
+            while ((fin = contenido.indexOf('\n', inicio)) >= 0) {
+                Entrada entrada = interpretar(contenido.substring(inicio, fin));
+                if (entrada != null) {
+                    entradas.add(entrada);
+                } else {
+                    logger.warn("Línea inválida descartada en {}", archivo);
+                }
+                inicio = fin + 1;
+            }
+            if (inicio < contenido.length()) {
+                logger.warn("Última línea incompleta descartada en {}", archivo);
+            }
+        }
+        return entradas;
+    }
+
+    private static Entrada interpretar(String linea) {
+        String[] partes = linea.split("\t", -1);
+        if (partes.length != 3) {
+            return null;
+        }
+        try {
+            CampoDiferido campo = CampoDiferido.valueOf(partes[0]);
+            return new Entrada(campo, partes[1], campo.decodificar(partes[2]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static List<Long> generaciones(Path directorio) {
+        if (!Files.isDirectory(directorio)) {
+            return List.of();
+        }
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIJO) && n.endsWith(EXTENSION))
+                    .map(n -> Long.parseLong(n.substring(PREFIJO.length(), n.length() - EXTENSION.length())))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo listar el diario en " + directorio, e);
+        }
+    }
+
+    private static Path archivo(Path directorio, long generacion) {
+        return directorio.resolve(String.format("%s%010d%s", PREFIJO, generacion, EXTENSION));
+    }
+
+    private void abrir() {
+        try {
+            canal = FileChannel.open(archivo(directorio, generacion), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario en " + directorio, e);
+        }
+    }
+
+    private void cerrarCanal() {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.warn("Error al cerrar el diario", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        sincronizar();
+        cerrarCanal();
+    }
+}
@@ -0,0 +1,677 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.servicio.EscuchaCirculacion;
+import jakarta.persistence.Cache;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * EscrituraDiferida - PERSISTENCIA WRITE-BEHIND DE CONTADORES
+ * Cada préstamo modifica disponible, numeroVecesPrestado y fechaUltimoPrestamo del recurso,
+ * las descargas de un EBook y los préstamos activos del usuario. En lugar de escribirlos
+ * uno a uno, se acumulan por entidad (el último valor de cada campo reemplaza al anterior)
+ * y se escriben con lotes JDBC cuando hay suficientes entidades pendientes o vence el intervalo.
+ *
+ * Orden por entidad: los vaciados nunca se solapan y un vaciado fallido devuelve sus cambios
+ * a la cola sin pisar los más recientes, así que la base nunca retrocede a un valor anterior.
+ *
+ * Seguridad ante caídas: cada cambio se anota en un DiarioEscrituras local antes de aceptarse.
+ * Si cae el proceso no se pierde nada (la escritura ya está en el sistema operativo); si cae
+ * la máquina se pierden como mucho los cambios desde el último vaciado, que sincroniza el diario.
+ * Al crearse, la instancia reaplica el diario pendiente; como los valores son absolutos,
+ * reaplicar cambios que ya llegaron a la base es inocuo.
+ *
+ * Varias instancias sobre la misma base: el UPDATE de cada recurso y de cada usuario exige la
+ * versión de la que partieron sus valores (la de la entidad registrada o la que dejó el último
+ * vaciado de esta instancia). Si la fila cambió, se relee y se combina campo a campo
+ * (CampoDiferido.combinar) antes de reescribirla, en lugar de pisar lo que escribió el otro.
+ * Los préstamos activos del usuario se combinan con la tabla prestamo: se conservan los que
+ * otra instancia confirmó y se quitan los que ya se devolvieron allí.
+ */
+public class EscrituraDiferida implements EscuchaCirculacion, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EscrituraDiferida.class);
+
+    public static final Duration INTERVALO_DEFAULT = Duration.ofSeconds(1);
+    public static final int MAX_PENDIENTES_DEFAULT = 1000;
+    private static final int INTENTOS_COMBINACION = 3;
+
+    /**
+     * Cambios acumulados desde el último vaciado
+     */
+    private static final class Generacion {
+        final Map<CampoDiferido.Entidad, Map<String, EnumMap<CampoDiferido, Object>>> porEntidad =
+                new EnumMap<>(CampoDiferido.Entidad.class);
+        // Versión de la entidad cuyos valores se anotaron (si se conoce), por entidad e id
+        final Map<CampoDiferido.Entidad, Map<String, Long>> versiones = new EnumMap<>(CampoDiferido.Entidad.class);
+        long primerCambioNanos;
+        int entidades;
+
+        Generacion() {
+            for (CampoDiferido.Entidad entidad : CampoDiferido.Entidad.values()) {
+                porEntidad.put(entidad, new LinkedHashMap<>());
+                versiones.put(entidad, new HashMap<>());
+            }
+        }
+
+        /**
+         * @return true si el campo ya estaba pendiente (cambio coalescido)
+         */
+        boolean anotar(CampoDiferido campo, String id, Object valor, boolean reemplazar) {
+            EnumMap<CampoDiferido, Object> campos = porEntidad.get(campo.getEntidad()).get(id);
+            if (campos == null) {
+                campos = new EnumMap<>(CampoDiferido.class);
+                porEntidad.get(campo.getEntidad()).put(id, campos);
+                entidades++;
+            }
+            boolean existia = campos.containsKey(campo);
+            if (!existia || reemplazar) {
+                campos.put(campo, valor);
+            }
+            return existia;
+        }
+
+        void anotarVersion(CampoDiferido.Entidad entidad, String id, long version) {
+            versiones.get(entidad).merge(id, version, Math::max);
+        }
+
+        boolean isVacia() { return entidades == 0; }
+    }
+
+    private final GestorPersistencia gestor;
+    private final DiarioEscrituras diario;
+    private final int maxPendientes;
+    private final ScheduledExecutorService programador;
+    private final Object cerrojoVaciado = new Object();
+    private final AtomicBoolean vaciadoSolicitado = new AtomicBoolean();
+    // Versión en que quedó cada fila tras el último vaciado, por entidad (solo bajo cerrojoVaciado)
+    private final Map<CampoDiferido.Entidad, Map<String, Long>> versionesEscritas =
+            new EnumMap<>(CampoDiferido.Entidad.class);
+
+    private Generacion pendiente = new Generacion();
+    private volatile long enVueloDesdeNanos;
+    private boolean cerrada;
+
+    // Métricas
+    private final AtomicLong cambiosRegistrados = new AtomicLong();
+    private final AtomicLong cambiosCoalescidos = new AtomicLong();
+    private final AtomicLong filasEscritas = new AtomicLong();
+    private final AtomicLong vaciados = new AtomicLong();
+    private final AtomicLong vaciadosFallidos = new AtomicLong();
+    private final AtomicLong conflictos = new AtomicLong();
+    private final AtomicLong retrasoMaximoNanos = new AtomicLong();
+    private volatile long ultimoRetrasoNanos;
+
+    public EscrituraDiferida(GestorPersistencia gestor, Path directorioDiario) {
+        this(gestor, directorioDiario, MAX_PENDIENTES_DEFAULT, INTERVALO_DEFAULT);
+    }
+
+    /**
+     * @param maxPendientes entidades pendientes que disparan un vaciado inmediato
+     * @param intervalo tiempo máximo entre vaciados
+     */
+    public EscrituraDiferida(GestorPersistencia gestor, Path directorioDiario, int maxPendientes, Duration intervalo) {
+        this.gestor = gestor;
+        this.maxPendientes = maxPendientes;
+        for (CampoDiferido.Entidad entidad : CampoDiferido.Entidad.values()) {
+            versionesEscritas.put(entidad, new HashMap<>());
+        }
+        List<DiarioEscrituras.Entrada> recuperadas = DiarioEscrituras.leer(directorioDiario);
+        this.diario = new DiarioEscrituras(directorioDiario);
+        this.programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "escritura-diferida");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        if (!recuperadas.isEmpty()) {
+            // Ya están en el diario: solo vuelven a la cola en memoria
+            for (DiarioEscrituras.Entrada entrada : recuperadas) {
+                anotarEnMemoria(entrada.campo, entrada.id, entrada.valor);
+            }
+            logger.info("Recuperados {} cambios del diario ({} entidades)", recuperadas.size(), pendiente.entidades);
+            vaciarRegistrando();
+        }
+        long periodo = intervalo.toMillis();
+        programador.scheduleWithFixedDelay(this::vaciarRegistrando, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    // ===============================================================
+    // REGISTRO DE CAMBIOS
+    // ===============================================================
+
+    /**
+     * Anota el valor actual de un campo; se escribirá en el próximo vaciado
+     */
+    public void registrar(CampoDiferido campo, String id, Object valor) {
+        boolean lleno;
+        synchronized (this) {
+            if (cerrada) {
+                throw new IllegalStateException("La escritura diferida está cerrada");
+            }
+            diario.registrar(campo, id, valor);
+            anotarEnMemoria(campo, id, valor);
+            lleno = pendiente.entidades >= maxPendientes;
+        }
+        if (lleno && vaciadoSolicitado.compareAndSet(false, true)) {
+            programador.execute(this::vaciarRegistrando);
+        }
+    }
+
+    /**
+     * Anota los contadores de circulación del recurso y la versión de la que parten
+     * Con registrar() a secas la versión no se conoce: el vaciado relee la fila y combina.
+     */
+    public void registrarRecurso(Recurso recurso) {
+        synchronized (this) {
+            pendiente.anotarVersion(CampoDiferido.Entidad.RECURSO, recurso.getId(), recurso.getVersion());
+        }
+        registrar(CampoDiferido.DISPONIBLE, recurso.getId(), recurso.isDisponible());
+        registrar(CampoDiferido.NUMERO_VECES_PRESTADO, recurso.getId(), recurso.getNumeroVecesPrestado());
+        registrar(CampoDiferido.FECHA_ULTIMO_PRESTAMO, recurso.getId(), recurso.getFechaUltimoPrestamo());
+        if (recurso instanceof EBook) {
+            registrar(CampoDiferido.DESCARGAS_REALIZADAS, recurso.getId(), ((EBook) recurso).getDescargasRealizadas());
+        }
+    }
+
+    /**
+     * Anota los préstamos activos del usuario y la versión de la que parten
+     */
+    public void registrarUsuario(Usuario usuario) {
+        synchronized (this) {
+            pendiente.anotarVersion(CampoDiferido.Entidad.USUARIO, usuario.getId(), usuario.getVersion());
+        }
+        registrar(CampoDiferido.PRESTAMOS_ACTIVOS, usuario.getId(), List.copyOf(usuario.getPrestamosActivos()));
+    }
+
+    @Override
+    public void alPrestar(Prestamo prestamo) {
+        registrarRecurso(prestamo.getRecurso());
+        registrarUsuario(prestamo.getUsuario());
+    }
+
+    @Override
+    public void alDevolver(Prestamo prestamo) {
+        registrarRecurso(prestamo.getRecurso());
+        registrarUsuario(prestamo.getUsuario());
+    }
+
+    private void anotarEnMemoria(CampoDiferido campo, String id, Object valor) {
+        if (pendiente.isVacia()) {
+            pendiente.primerCambioNanos = System.nanoTime();
+        }
+        if (pendiente.anotar(campo, id, valor, true)) {
+            cambiosCoalescidos.incrementAndGet();
+        }
+        cambiosRegistrados.incrementAndGet();
+    }
+
+    // ===============================================================
+    // VACIADO
+    // ===============================================================
+
+    /**
+     * Escribe ya todos los cambios pendientes (bloquea hasta confirmar la transacción)
+     * @throws RuntimeException si la base de datos rechaza el lote; los cambios siguen pendientes
+     */
+    public void vaciar() {
+        synchronized (cerrojoVaciado) {
+            vaciadoSolicitado.set(false);
+            Generacion lote;
+            long generacionCerrada;
+            synchronized (this) {
+                if (pendiente.isVacia()) {
+                    return;
+                }
+                lote = pendiente;
+                pendiente = new Generacion();
+                generacionCerrada = diario.rotar();
+                enVueloDesdeNanos = lote.primerCambioNanos;
+            }
+
+            try {
+                Map<CampoDiferido.Entidad, Map<String, Long>> nuevasVersiones = new EnumMap<>(CampoDiferido.Entidad.class);
+                for (CampoDiferido.Entidad entidad : CampoDiferido.Entidad.values()) {
+                    nuevasVersiones.put(entidad, new HashMap<>());
+                }
+                int filas = gestor.enTransaccion(em -> {
+                    int[] escritas = new int[1];
+                    em.unwrap(Session.class).doWork(conexion -> escritas[0] = escribir(conexion, lote, nuevasVersiones));
+                    return escritas[0];
+                });
+                // Una fila combinada ya no coincide con la entidad en memoria: el próximo vaciado vuelve a combinar
+                versionesEscritas.forEach((entidad, escritas) -> {
+                    escritas.keySet().removeAll(lote.porEntidad.get(entidad).keySet());
+                    escritas.putAll(nuevasVersiones.get(entidad));
+                });
+                diario.descartarHasta(generacionCerrada);
+                desalojarDeCache(lote);
+
+                long retraso = System.nanoTime() - lote.primerCambioNanos;
+                ultimoRetrasoNanos = retraso;
+                retrasoMaximoNanos.accumulateAndGet(retraso, Math::max);
+                filasEscritas.addAndGet(filas);
+                vaciados.incrementAndGet();
+                logger.debug("Vaciado: {} entidades, {} filas, retraso {} ms", lote.entidades, filas, retraso / 1_000_000);
+            } catch (RuntimeException e) {
+                vaciadosFallidos.incrementAndGet();
+                devolverACola(lote);
+                throw e;
+            } finally {
+                enVueloDesdeNanos = 0;
+            }
+        }
+    }
+
+    private void vaciarRegistrando() {
+        try {
+            vaciar();
+        } catch (RuntimeException e) {
+            logger.error("Error en el vaciado diferido; se reintentará", e);
+        }
+    }
+
+    /**
+     * Los cambios del lote fallido vuelven a la cola; si un campo cambió mientras tanto, gana el nuevo
+     */
+    private synchronized void devolverACola(Generacion lote) {
+        if (pendiente.isVacia() || lote.primerCambioNanos < pendiente.primerCambioNanos) {
+            pendiente.primerCambioNanos = lote.primerCambioNanos;
+        }
+        lote.porEntidad.forEach((entidad, porId) -> porId.forEach((id, campos) ->
+                campos.forEach((campo, valor) -> pendiente.anotar(campo, id, valor, false))));
+        lote.versiones.forEach((entidad, versiones) ->
+                versiones.forEach((id, version) -> pendiente.anotarVersion(entidad, id, version)));
+    }
+
+    private int escribir(Connection conexion, Generacion lote,
+                         Map<CampoDiferido.Entidad, Map<String, Long>> nuevasVersiones) throws SQLException {
+        int filas = escribirRecursos(conexion, lote, nuevasVersiones.get(CampoDiferido.Entidad.RECURSO));
+        filas += escribirUsuarios(conexion, lote, nuevasVersiones.get(CampoDiferido.Entidad.USUARIO));
+        return filas;
+    }
+
+    /**
+     * Versión que debe tener la fila para aplicar los valores pendientes sin pisar a nadie
+     * La entidad en memoria no ve los incrementos de versión de este SQL, así que cuenta
+     * también la versión que dejó el último vaciado. null si no se conoce ninguna.
+     */
+    private Long versionEsperada(Generacion lote, CampoDiferido.Entidad entidad, String id) {
+        Long registrada = lote.versiones.get(entidad).get(id);
+        Long escrita = versionesEscritas.get(entidad).get(id);
+        if (registrada == null || escrita == null) {
+            return registrada == null ? escrita : registrada;
+        }
+        return Math.max(registrada, escrita);
+    }
+
+    /**
+     * Un UPDATE condicionado a la versión por cada combinación distinta de campos modificados,
+     * en lotes JDBC; las filas que cambiaron por otro lado se combinan una a una
+     */
+    private int escribirRecursos(Connection conexion, Generacion lote, Map<String, Long> nuevasVersiones)
+            throws SQLException {
+        Map<String, EnumMap<CampoDiferido, Object>> recursos = lote.porEntidad.get(CampoDiferido.Entidad.RECURSO);
+        Map<EnumSet<CampoDiferido>, List<String>> idsPorCampos = new LinkedHashMap<>();
+        recursos.forEach((id, campos) -> idsPorCampos
+                .computeIfAbsent(EnumSet.copyOf(campos.keySet()), c -> new ArrayList<>()).add(id));
+
+        int filas = 0;
+        for (Map.Entry<EnumSet<CampoDiferido>, List<String>> grupo : idsPorCampos.entrySet()) {
+            StringBuilder sql = new StringBuilder("UPDATE recurso SET ");
+            for (CampoDiferido campo : grupo.getKey()) {
+                sql.append(campo.getColumna()).append(" = ?, ");
+            }
+            // Incrementar la versión para que las transacciones optimistas en curso detecten el cambio
+            sql.append("version = version + 1 WHERE id = ? AND version = ?");
+
+            try (PreparedStatement sentencia = conexion.prepareStatement(sql.toString())) {
+                List<String> enLote = new ArrayList<>();
+                List<String> aCombinar = new ArrayList<>();
+                for (String id : grupo.getValue()) {
+                    Long version = versionEsperada(lote, CampoDiferido.Entidad.RECURSO, id);
+                    if (version == null) {
+                        aCombinar.add(id);
+                        continue;
+                    }
+                    asignarUpdate(sentencia, recursos.get(id), id, version);
+                    sentencia.addBatch();
+                    enLote.add(id);
+                    if (enLote.size() == gestor.getTamanoLote()) {
+                        filas += ejecutarLote(sentencia, enLote, CampoDiferido.Entidad.RECURSO, lote, aCombinar,
+                                nuevasVersiones).size();
+                    }
+                }
+                filas += ejecutarLote(sentencia, enLote, CampoDiferido.Entidad.RECURSO, lote, aCombinar,
+                        nuevasVersiones).size();
+
+                for (String id : aCombinar) {
+                    filas += combinarRecurso(conexion, sentencia, grupo.getKey(), id, recursos.get(id));
+                }
+            }
+        }
+        return filas;
+    }
+
+    private static void asignarUpdate(PreparedStatement sentencia, EnumMap<CampoDiferido, Object> campos, String id,
+                                      long version) throws SQLException {
+        int indice = 1;
+        for (Map.Entry<CampoDiferido, Object> campo : campos.entrySet()) {
+            campo.getKey().asignar(sentencia, indice++, campo.getValue());
+        }
+        sentencia.setString(indice++, id);
+        sentencia.setLong(indice, version);
+    }
+
+    /**
+     * Ejecuta el lote acumulado; los ids cuya versión ya no coincidía pasan a combinarse
+     * @return los ids escritos
+     */
+    private List<String> ejecutarLote(PreparedStatement sentencia, List<String> enLote, CampoDiferido.Entidad entidad,
+                                      Generacion lote, List<String> aCombinar, Map<String, Long> nuevasVersiones)
+            throws SQLException {
+        if (enLote.isEmpty()) {
+            return List.of();
+        }
+        int[] resultados = sentencia.executeBatch();
+        List<String> escritos = new ArrayList<>();
+        for (int i = 0; i < enLote.size(); i++) {
+            String id = enLote.get(i);
+            if (resultados[i] == 0) {
+                aCombinar.add(id);
+            } else {
+                nuevasVersiones.put(id, versionEsperada(lote, entidad, id) + 1);
+                escritos.add(id);
+            }
+        }
+        enLote.clear();
+        return escritos;
+    }
+
+    /**
+     * Relee la fila, combina cada campo pendiente con el actual y reescribe con la versión leída
+     * @return 1 si se escribió, 0 si el recurso ya no existe
+     * @throws IllegalStateException si la fila sigue cambiando; el lote vuelve a la cola
+     */
+    private int combinarRecurso(Connection conexion, PreparedStatement actualizar, EnumSet<CampoDiferido> campos,
+                                String id, EnumMap<CampoDiferido, Object> pendientes) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (CampoDiferido campo : campos) {
+            sql.append(campo.getLectura()).append(", ");
+        }
+        sql.append("version FROM recurso WHERE id = ?");
+
+        conflictos.incrementAndGet();
+        try (PreparedStatement leer = conexion.prepareStatement(sql.toString())) {
+            leer.setString(1, id);
+            for (int intento = 0; intento < INTENTOS_COMBINACION; intento++) {
+                EnumMap<CampoDiferido, Object> combinados = new EnumMap<>(CampoDiferido.class);
+                long version;
+                try (ResultSet fila = leer.executeQuery()) {
+                    if (!fila.next()) {
+                        logger.warn("Recurso {} eliminado antes del vaciado; se descartan sus cambios", id);
+                        return 0;
+                    }
+                    int indice = 1;
+                    for (CampoDiferido campo : campos) {
+                        combinados.put(campo, campo.combinar(pendientes.get(campo), campo.leer(fila, indice++)));
+                    }
+                    version = fila.getLong(indice);
+                }
+                asignarUpdate(actualizar, combinados, id, version);
+                if (actualizar.executeUpdate() == 1) {
+                    return 1;
+                }
+            }
+        }
+        throw new IllegalStateException("El recurso " + id + " cambió en cada intento de combinación");
+    }
+
+    /**
+     * Sube la versión de cada usuario condicionada a la de partida (en lotes JDBC) y solo entonces
+     * reemplaza su colección; los usuarios que cambiaron por otro lado se combinan uno a uno
+     */
+    private int escribirUsuarios(Connection conexion, Generacion lote, Map<String, Long> nuevasVersiones)
+            throws SQLException {
+        Map<String, EnumMap<CampoDiferido, Object>> usuarios = lote.porEntidad.get(CampoDiferido.Entidad.USUARIO);
+        if (usuarios.isEmpty()) {
+            return 0;
+        }
+        Map<String, List<String>> listas = new LinkedHashMap<>();
+        try (PreparedStatement versionar = conexion.prepareStatement(
+                "UPDATE usuario SET version = version + 1 WHERE id = ? AND version = ?")) {
+            List<String> enLote = new ArrayList<>();
+            List<String> aCombinar = new ArrayList<>();
+            for (String id : usuarios.keySet()) {
+                Long version = versionEsperada(lote, CampoDiferido.Entidad.USUARIO, id);
+                if (version == null) {
+                    aCombinar.add(id);
+                    continue;
+                }
+                versionar.setString(1, id);
+                versionar.setLong(2, version);
+                versionar.addBatch();
+                enLote.add(id);
+                if (enLote.size() == gestor.getTamanoLote()) {
+                    ejecutarLote(versionar, enLote, CampoDiferido.Entidad.USUARIO, lote, aCombinar, nuevasVersiones)
+                            .forEach(escrito -> listas.put(escrito, prestamosActivos(usuarios.get(escrito))));
+                }
+            }
+            ejecutarLote(versionar, enLote, CampoDiferido.Entidad.USUARIO, lote, aCombinar, nuevasVersiones)
+                    .forEach(escrito -> listas.put(escrito, prestamosActivos(usuarios.get(escrito))));
+
+            for (String id : aCombinar) {
+                List<String> combinada = combinarUsuario(conexion, versionar, id, prestamosActivos(usuarios.get(id)));
+                if (combinada != null) {
+                    listas.put(id, combinada);
+                }
+            }
+        }
+        return escribirPrestamosActivos(conexion, listas);
+    }
+
+    private static List<String> prestamosActivos(EnumMap<CampoDiferido, Object> campos) {
+        List<String> prestamos = new ArrayList<>();
+        for (Object prestamoId : (List<?>) campos.get(CampoDiferido.PRESTAMOS_ACTIVOS)) {
+            prestamos.add(prestamoId.toString());
+        }
+        return prestamos;
+    }
+
+    /**
+     * Relee los préstamos activos del usuario y los combina con los pendientes según la tabla
+     * prestamo: un préstamo que allí está en curso se conserva, uno ya cerrado se quita, y uno
+     * que no está (préstamo solo en memoria) queda como lo dejó esta instancia.
+     * Después sube la versión leída; si vuelve a cambiar, se relee otra vez.
+     * @return la lista a escribir, null si el usuario ya no existe
+     * @throws IllegalStateException si la fila sigue cambiando; el lote vuelve a la cola
+     */
+    private List<String> combinarUsuario(Connection conexion, PreparedStatement versionar, String id,
+                                         List<String> pendientes) throws SQLException {
+        conflictos.incrementAndGet();
+        try (PreparedStatement leerVersion = conexion.prepareStatement("SELECT version FROM usuario WHERE id = ?");
+             PreparedStatement leerLista = conexion.prepareStatement(
+                     "SELECT prestamo_id FROM usuario_prestamo_activo WHERE usuario_id = ?");
+             PreparedStatement leerEstado = conexion.prepareStatement(
+                     "SELECT estado IN " + CampoDiferido.ESTADOS_EN_CURSO + " FROM prestamo WHERE id = ?")) {
+            leerVersion.setString(1, id);
+            leerLista.setString(1, id);
+            for (int intento = 0; intento < INTENTOS_COMBINACION; intento++) {
+                long version;
+                try (ResultSet fila = leerVersion.executeQuery()) {
+                    if (!fila.next()) {
+                        logger.warn("Usuario {} eliminado antes del vaciado; se descartan sus cambios", id);
+                        return null;
+                    }
+                    version = fila.getLong(1);
+                }
+                LinkedHashSet<String> candidatos = new LinkedHashSet<>(pendientes);
+                try (ResultSet filas = leerLista.executeQuery()) {
+                    while (filas.next()) {
+                        candidatos.add(filas.getString(1));
+                    }
+                }
+                List<String> combinada = new ArrayList<>();
+                for (String prestamoId : candidatos) {
+                    leerEstado.setString(1, prestamoId);
+                    try (ResultSet fila = leerEstado.executeQuery()) {
+                        boolean conservar = fila.next() ? fila.getBoolean(1) : pendientes.contains(prestamoId);
+                        if (conservar) {
+                            combinada.add(prestamoId);
+                        }
+                    }
+                }
+                versionar.setString(1, id);
+                versionar.setLong(2, version);
+                if (versionar.executeUpdate() == 1) {
+                    return combinada;
+                }
+            }
+        }
+        throw new IllegalStateException("El usuario " + id + " cambió en cada intento de combinación");
+    }
+
+    /**
+     * La colección se reemplaza completa: DELETE por usuario y un INSERT por préstamo, en lotes
+     * Solo para usuarios cuya versión ya se subió en esta transacción.
+     */
+    private int escribirPrestamosActivos(Connection conexion, Map<String, List<String>> usuarios)
+            throws SQLException {
+        if (usuarios.isEmpty()) {
+            return 0;
+        }
+        int filas = 0;
+        try (PreparedStatement borrar = conexion.prepareStatement(
+                     "DELETE FROM usuario_prestamo_activo WHERE usuario_id = ?");
+             PreparedStatement insertar = conexion.prepareStatement(
+                     "INSERT INTO usuario_prestamo_activo (usuario_id, prestamo_id) VALUES (?, ?)")) {
+            int enLote = 0;
+            for (String id : usuarios.keySet()) {
+                borrar.setString(1, id);
+                borrar.addBatch();
+                if (++enLote % gestor.getTamanoLote() == 0) {
+                    borrar.executeBatch();
+                }
+            }
+            borrar.executeBatch();
+
+            enLote = 0;
+            for (Map.Entry<String, List<String>> usuario : usuarios.entrySet()) {
+                for (String prestamoId : usuario.getValue()) {
+                    insertar.setString(1, usuario.getKey());
+                    insertar.setString(2, prestamoId);
+                    insertar.addBatch();
+                    filas++;
+                    if (++enLote % gestor.getTamanoLote() == 0) {
+                        insertar.executeBatch();
+                    }
+                }
+            }
+            insertar.executeBatch();
+        }
+        return filas + usuarios.size();
+    }
+
+    /**
+     * El SQL directo no pasa por Hibernate: la caché L2 conservaría los valores anteriores
+     */
+    private void desalojarDeCache(Generacion lote) {
+        Cache cache = gestor.getFabrica().getCache();
+        lote.porEntidad.get(CampoDiferido.Entidad.RECURSO).keySet().forEach(id -> cache.evict(Recurso.class, id));
+        lote.porEntidad.get(CampoDiferido.Entidad.USUARIO).keySet().forEach(id -> cache.evict(Usuario.class, id));
+    }
+
+    // ===============================================================
+    // MÉTRICAS
+    // ===============================================================
+
+    /**
+     * Entidades con cambios aún no escritos (sin contar el vaciado en curso)
+     */
+    public synchronized int getPendientes() { return pendiente.entidades; }
+
+    /**
+     * Antigüedad del cambio más viejo que aún no está en la base de datos
+     */
+    public Duration getRetrasoActual() {
+        long desde = enVueloDesdeNanos;
+        synchronized (this) {
+            if (desde == 0 && !pendiente.isVacia()) {
+                desde = pendiente.primerCambioNanos;
+            }
+        }
+        return desde == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - desde);
+    }
+
+    /**
+     * Tiempo entre el primer cambio y la confirmación del último vaciado
+     */
+    public Duration getUltimoRetraso() { return Duration.ofNanos(ultimoRetrasoNanos); }
+    public Duration getRetrasoMaximo() { return Duration.ofNanos(retrasoMaximoNanos.get()); }
+    public long getCambiosRegistrados() { return cambiosRegistrados.get(); }
+    public long getCambiosCoalescidos() { return cambiosCoalescidos.get(); }
+    public long getFilasEscritas() { return filasEscritas.get(); }
+    public long getVaciados() { return vaciados.get(); }
+    public long getVaciadosFallidos() { return vaciadosFallidos.get(); }
+    /**
+     * Filas de recurso o usuario que se releyeron y combinaron: otra escritura las había cambiado o
+     * sus valores llegaron sin versión (registrar() a secas o el diario al arrancar)
+     */
+    public long getConflictos() { return conflictos.get(); }
+
+    /**
+     * Detiene el vaciado periódico, escribe lo pendiente y cierra el diario
+     * Si el último vaciado falla, los cambios quedan en el diario para el próximo arranque.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+        }
+        programador.shutdown();
+        try {
+            programador.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            vaciar();
+        } finally {
+            diario.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EscrituraDiferida{pendientes=%d, cambios=%d, coalescidos=%d, filas=%d, vaciados=%d, retrasoMáx=%d ms}",
+                getPendientes(), getCambiosRegistrados(), getCambiosCoalescidos(), getFilasEscritas(),
+                getVaciados(), getRetrasoMaximo().toMillis());
+    }
+}
@@ -0,0 +1,83 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.util.List;
+
+/**
+ * Estimación del tamaño en heap de las entidades (peso de CacheLectura)
+ * No es exacta: suma cabeceras y referencias típicas de una JVM de 64 bits con
+ * referencias comprimidas y el contenido de cada cadena (1 byte por carácter en Latin-1).
+ * Las cadenas de CadenasCatalogo son compartidas y no se cuentan por recurso.
+ */
+public final class EstimadorTamano {
+
+    private static final int CABECERA_OBJETO = 16;
+    private static final int CADENA_VACIA = 40;     // String + byte[] vacío
+    private static final int FECHA = 24;            // LocalDate
+    private static final int LISTA_VACIA = 40;      // ArrayList + Object[]
+    private static final int REFERENCIA = 4;
+
+    private EstimadorTamano() {
+    }
+
+    public static int recurso(Recurso recurso) {
+        // Campos comunes: 11 referencias/primitivos + 2 fechas + texto de búsqueda (≈ suma de los textos)
+        int tamano = CABECERA_OBJETO + 48 + 2 * FECHA
+                + 2 * cadena(recurso.getTitulo()) + caracteres(recurso.getAutor()) + caracteres(recurso.getCategoria())
+                + cadena(recurso.getId()) + cadena(recurso.getDescripcion())
+                + lista(recurso.getPalabrasClave());
+        if (recurso instanceof LibroFisico) {
+            LibroFisico libro = (LibroFisico) recurso;
+            tamano += 32 + cadena(libro.getIsbn()) + cadena(libro.getUbicacion());
+        } else if (recurso instanceof EBook) {
+            EBook ebook = (EBook) recurso;
+            tamano += 32 + cadena(ebook.getUrlDescarga());
+        } else if (recurso instanceof AudioLibro) {
+            AudioLibro audio = (AudioLibro) recurso;
+            tamano += 32 + cadena(audio.getNarrador()) + cadena(audio.getUrlStreaming());
+        }
+        return tamano;
+    }
+
+    public static int usuario(Usuario usuario) {
+        int tamano = CABECERA_OBJETO + 40 + FECHA
+                + cadena(usuario.getId()) + cadena(usuario.getNombre()) + cadena(usuario.getEmail())
+                + lista(usuario.getPrestamosActivos()) + (int) usuario.getHistorial().getBytesEstimados();
+        if (usuario instanceof Estudiante) {
+            Estudiante estudiante = (Estudiante) usuario;
+            tamano += 16 + cadena(estudiante.getCarrera()) + cadena(estudiante.getCodigoEstudiante());
+        } else if (usuario instanceof Profesor) {
+            Profesor profesor = (Profesor) usuario;
+            tamano += 16 + cadena(profesor.getDepartamento()) + cadena(profesor.getGrado())
+                    + cadena(profesor.getAreaEspecializacion());
+        } else if (usuario instanceof Bibliotecario) {
+            Bibliotecario bibliotecario = (Bibliotecario) usuario;
+            tamano += 16 + cadena(bibliotecario.getArea()) + cadena(bibliotecario.getTurno())
+                    + lista(bibliotecario.getEspecialidades());
+        }
+        return tamano;
+    }
+
+    private static int cadena(String valor) {
+        return valor == null ? 0 : CADENA_VACIA + ((valor.length() + 7) & ~7);
+    }
+
+    private static int caracteres(String valor) {
+        return valor == null ? 0 : valor.length();
+    }
+
+    private static int lista(List<String> valores) {
+        int tamano = LISTA_VACIA;
+        for (String valor : valores) {
+            tamano += REFERENCIA + cadena(valor);
+        }
+        return tamano;
+    }
+}
@@ -0,0 +1,164 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.reporte.FuenteCirculacion;
+import com.utp.biblioteca.reporte.RegistroCirculacion;
+import com.utp.biblioteca.reporte.TipoReporte;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fuente de circulación sobre la base de datos
+ * Recorre el periodo con un cursor por clave (fecha, id): cada bloque es una consulta
+ * por proyección, sin cargar entidades, que continúa donde terminó la anterior. En memoria
+ * solo hay un bloque a la vez y la conexión se libera entre bloques, mientras el motor escribe.
+ * El conteo es un count(*) sobre el mismo rango (índices idx_prestamo_fecha / idx_reserva_fecha).
+ */
+public class FuenteCirculacionBaseDatos implements FuenteCirculacion {
+
+    private final GestorPersistencia gestor;
+
+    /**
+     * Consulta de un tipo de reporte: columnas 0 = id y 1 = fecha (la clave del cursor)
+     */
+    private static final class Consulta {
+        final String columnas;
+        final String origen;
+        final String id;
+        final String fecha;
+        final boolean fechaHora;
+
+        Consulta(String columnas, String origen, String id, String fecha, boolean fechaHora) {
+            this.columnas = columnas;
+            this.origen = origen;
+            this.id = id;
+            this.fecha = fecha;
+            this.fechaHora = fechaHora;
+        }
+
+        String rango() {
+            return " where " + fecha + " >= :inicio and " + fecha + " < :finExclusivo";
+        }
+
+        String bloque() {
+            return "select " + columnas + " from " + origen + rango()
+                    + " and (" + fecha + " > :fecha or (" + fecha + " = :fecha and " + id + " > :id))"
+                    + " order by " + fecha + ", " + id;
+        }
+
+        String conteo() {
+            return "select count(" + id + ") from " + origen + rango();
+        }
+
+        // Las reservas guardan fecha y hora: el periodo se expresa como [inicio 00:00, fin+1 00:00)
+        Object limite(LocalDate dia) {
+            return fechaHora ? dia.atStartOfDay() : dia;
+        }
+    }
+
+    public FuenteCirculacionBaseDatos(GestorPersistencia gestor) {
+        this.gestor = gestor;
+    }
+
+    // ===============================================================
+    // IMPLEMENTACIÓN DE FUENTE CIRCULACIÓN
+    // ===============================================================
+
+    @Override
+    public void recorrer(TipoReporte tipo, LocalDate inicio, LocalDate fin, int tamanoBloque,
+                         ConsumidorBloque consumidor) {
+        Consulta consulta = consultaPara(tipo);
+        Object desde = consulta.limite(inicio);
+        Object hasta = consulta.limite(fin.plusDays(1));
+        LocalDate hoy = LocalDate.now();
+
+        // Antes de la primera fila: fecha = inicio y un id menor que cualquiera
+        Object ultimaFecha = desde;
+        String ultimoId = "";
+        while (true) {
+            Object fecha = ultimaFecha;
+            String id = ultimoId;
+            List<Object[]> filas = gestor.enTransaccion(em -> {
+                TypedQuery<Object[]> query = em.createQuery(consulta.bloque(), Object[].class)
+                        .setParameter("inicio", desde)
+                        .setParameter("finExclusivo", hasta)
+                        .setParameter("fecha", fecha)
+                        .setParameter("id", id)
+                        .setMaxResults(tamanoBloque);
+                return query.getResultList();
+            });
+            if (filas.isEmpty()) {
+                return;
+            }
+            // La conversión y el consumidor (escritura del archivo) corren sin conexión abierta
+            List<RegistroCirculacion> bloque = new ArrayList<>(filas.size());
+            for (Object[] fila : filas) {
+                bloque.add(convertir(tipo, fila, hoy));
+            }
+            Object[] ultima = filas.get(filas.size() - 1);
+            ultimoId = (String) ultima[0];
+            ultimaFecha = ultima[1];
+            consumidor.aceptar(bloque);
+            if (filas.size() < tamanoBloque) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long contar(TipoReporte tipo, LocalDate inicio, LocalDate fin) {
+        Consulta consulta = consultaPara(tipo);
+        return gestor.enTransaccion(em -> em.createQuery(consulta.conteo(), Long.class)
+                .setParameter("inicio", consulta.limite(inicio))
+                .setParameter("finExclusivo", consulta.limite(fin.plusDays(1)))
+                .getSingleResult());
+    }
+
+    // ===============================================================
+    // CONSULTAS Y CONVERSIÓN POR TIPO
+    // ===============================================================
+
+    private static Consulta consultaPara(TipoReporte tipo) {
+        switch (tipo) {
+            case PRESTAMOS:
+                return new Consulta("p.id, p.fechaPrestamo, p.usuarioId, p.recursoId, p.estado, p.fechaVencimiento",
+                        "Prestamo p", "p.id", "p.fechaPrestamo", false);
+            case DEVOLUCIONES:
+                return new Consulta("p.id, p.fechaDevolucion, p.usuarioId, p.recursoId, p.estado, p.numeroRenovaciones",
+                        "Prestamo p", "p.id", "p.fechaDevolucion", false);
+            case MULTAS:
+                return new Consulta("m.id, m.fechaGeneracion, p.usuarioId, p.recursoId, m.pagada, m.monto, m.concepto",
+                        "Prestamo p join p.multa m", "m.id", "m.fechaGeneracion", false);
+            case RESERVAS:
+                return new Consulta("r.id, r.fechaReserva, r.usuarioId, r.recursoId, r.estado, r.prioridad",
+                        "Reserva r", "r.id", "r.fechaReserva", true);
+            default:
+                throw new IllegalArgumentException("Tipo de reporte no soportado: " + tipo);
+        }
+    }
+
+    private static RegistroCirculacion convertir(TipoReporte tipo, Object[] f, LocalDate hoy) {
+        String id = (String) f[0];
+        String usuarioId = (String) f[2];
+        String recursoId = (String) f[3];
+        switch (tipo) {
+            case PRESTAMOS:
+                return new RegistroCirculacion(tipo, id, usuarioId, recursoId, (LocalDate) f[1],
+                        ((Enum<?>) f[4]).name(), 0.0, "Vence " + f[5]);
+            case DEVOLUCIONES:
+                return new RegistroCirculacion(tipo, id, usuarioId, recursoId, (LocalDate) f[1],
+                        ((Enum<?>) f[4]).name(), 0.0, "Renovaciones: " + f[5]);
+            case MULTAS:
+                return new RegistroCirculacion(tipo, id, usuarioId, recursoId, (LocalDate) f[1],
+                        Multa.estadoTexto((Boolean) f[4], (LocalDate) f[1], hoy), (Double) f[5], (String) f[6]);
+            default:
+                return new RegistroCirculacion(tipo, id, usuarioId, recursoId, ((LocalDateTime) f[1]).toLocalDate(),
+                        ((Enum<?>) f[4]).name(), 0.0, "Prioridad " + f[5]);
+        }
+    }
+
+    public GestorPersistencia getGestor() { return gestor; }
+}
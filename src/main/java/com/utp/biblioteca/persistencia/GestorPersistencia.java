@@ -0,0 +1,132 @@
+package com.utp.biblioteca.persistencia;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Persistence;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * GestorPersistencia - PUNTO DE ENTRADA A LA BASE DE DATOS
+ * Crea la EntityManagerFactory de la unidad "biblioteca" (META-INF/persistence.xml)
+ * permitiendo sobrescribir la conexión y la configuración de Hibernate,
+ * y ejecuta unidades de trabajo dentro de una transacción.
+ */
+public class GestorPersistencia implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GestorPersistencia.class);
+
+    public static final String UNIDAD_PERSISTENCIA = "biblioteca";
+    public static final int TAMANO_LOTE_DEFAULT = 50;
+
+    private final EntityManagerFactory fabrica;
+    private final int tamanoLote;
+
+    /**
+     * Usa la configuración de persistence.xml sin cambios
+     */
+    public GestorPersistencia() {
+        this(Map.of());
+    }
+
+    /**
+     * @param propiedades propiedades JPA/Hibernate que sobrescriben las de persistence.xml
+     */
+    public GestorPersistencia(Map<String, ?> propiedades) {
+        Map<String, Object> configuracion = new HashMap<>(propiedades);
+        this.fabrica = Persistence.createEntityManagerFactory(UNIDAD_PERSISTENCIA, configuracion);
+        Object lote = fabrica.getProperties().get("hibernate.jdbc.batch_size");
+        this.tamanoLote = lote != null ? Integer.parseInt(lote.toString()) : TAMANO_LOTE_DEFAULT;
+        logger.info("Unidad de persistencia '{}' iniciada (lote JDBC={})", UNIDAD_PERSISTENCIA, tamanoLote);
+    }
+
+    /**
+     * Propiedades mínimas para conectar a una base de datos distinta de la configurada
+     */
+    public static Map<String, Object> propiedadesConexion(String url, String usuario, String password) {
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("jakarta.persistence.jdbc.url", url);
+        propiedades.put("jakarta.persistence.jdbc.user", usuario);
+        propiedades.put("jakarta.persistence.jdbc.password", password);
+        return propiedades;
+    }
+
+    // ===============================================================
+    // UNIDADES DE TRABAJO
+    // ===============================================================
+
+    /**
+     * EntityManager nuevo; quien lo solicita debe cerrarlo
+     */
+    public EntityManager crearEntityManager() {
+        return fabrica.createEntityManager();
+    }
+
+    /**
+     * Ejecuta el trabajo en una transacción: confirma si termina bien
+     * y revierte ante cualquier excepción (que se propaga)
+     */
+    public <R> R enTransaccion(Function<EntityManager, R> trabajo) {
+        EntityManager em = fabrica.createEntityManager();
+        EntityTransaction transaccion = em.getTransaction();
+        try {
+            transaccion.begin();
+            R resultado = trabajo.apply(em);
+            transaccion.commit();
+            return resultado;
+        } catch (RuntimeException e) {
+            if (transaccion.isActive()) {
+                transaccion.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Variante sin resultado de enTransaccion
+     */
+    public void ejecutar(Consumer<EntityManager> trabajo) {
+        enTransaccion(em -> {
+            trabajo.accept(em);
+            return null;
+        });
+    }
+
+    // ===============================================================
+    // CONFIGURACIÓN Y MÉTRICAS
+    // ===============================================================
+
+    public int getTamanoLote() { return tamanoLote; }
+
+    public EntityManagerFactory getFabrica() { return fabrica; }
+
+    /**
+     * Estadísticas de Hibernate (requiere hibernate.generate_statistics=true)
+     */
+    public Statistics getEstadisticas() {
+        return fabrica.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Vacía la caché de segundo nivel de todas las entidades
+     */
+    public void limpiarCache() {
+        fabrica.getCache().evictAll();
+    }
+
+    @Override
+    public void close() {
+        if (fabrica.isOpen()) {
+            fabrica.close();
+        }
+    }
+}
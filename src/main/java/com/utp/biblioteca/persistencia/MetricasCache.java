@@ -0,0 +1,72 @@
+package com.utp.biblioteca.persistencia;
+
+import java.time.Duration;
+
+/**
+ * Instantánea de las métricas de una CacheLectura
+ */
+public class MetricasCache {
+
+    private final String nombre;
+    private final long aciertos;
+    private final long fallos;
+    private final long cargas;
+    private final long cargasFallidas;
+    private final long nanosCarga;
+    private final long refrescos;
+    private final long desalojos;
+    private final long pesoDesalojado;
+    private final int entradas;
+    private final long peso;
+    private final long pesoMaximo;
+
+    MetricasCache(String nombre, long aciertos, long fallos, long cargas, long cargasFallidas, long nanosCarga,
+                  long refrescos, long desalojos, long pesoDesalojado, int entradas, long peso, long pesoMaximo) {
+        this.nombre = nombre;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.cargas = cargas;
+        this.cargasFallidas = cargasFallidas;
+        this.nanosCarga = nanosCarga;
+        this.refrescos = refrescos;
+        this.desalojos = desalojos;
+        this.pesoDesalojado = pesoDesalojado;
+        this.entradas = entradas;
+        this.peso = peso;
+        this.pesoMaximo = pesoMaximo;
+    }
+
+    /**
+     * Fracción de consultas servidas sin ir al almacenamiento (0.0 a 1.0)
+     */
+    public double getTasaAciertos() {
+        long consultas = aciertos + fallos;
+        return consultas == 0 ? 0.0 : (double) aciertos / consultas;
+    }
+
+    /**
+     * Tiempo medio de una carga desde el almacenamiento
+     */
+    public Duration getTiempoMedioCarga() {
+        return cargas == 0 ? Duration.ZERO : Duration.ofNanos(nanosCarga / cargas);
+    }
+
+    public String getNombre() { return nombre; }
+    public long getAciertos() { return aciertos; }
+    public long getFallos() { return fallos; }
+    public long getCargas() { return cargas; }
+    public long getCargasFallidas() { return cargasFallidas; }
+    public long getRefrescos() { return refrescos; }
+    public long getDesalojos() { return desalojos; }
+    public long getPesoDesalojado() { return pesoDesalojado; }
+    public int getEntradas() { return entradas; }
+    public long getPeso() { return peso; }
+    public long getPesoMaximo() { return pesoMaximo; }
+
+    @Override
+    public String toString() {
+        return String.format("MetricasCache{%s, aciertos=%.1f%%, entradas=%d, peso=%d/%d KB, desalojos=%d, refrescos=%d, cargaMedia=%d µs}",
+                nombre, getTasaAciertos() * 100, entradas, peso >> 10, pesoMaximo >> 10, desalojos, refrescos,
+                getTiempoMedioCarga().toNanos() / 1000);
+    }
+}
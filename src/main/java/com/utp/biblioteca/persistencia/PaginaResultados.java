@@ -0,0 +1,34 @@
+package com.utp.biblioteca.persistencia;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de resultados con paginación por clave (keyset)
+ * El cursor es el id del último elemento: la página siguiente se pide "después de" él,
+ * así el coste de cada página no depende de cuántas se hayan recorrido antes.
+ */
+public final class PaginaResultados<T> {
+
+    private final List<T> elementos;
+    private final String cursorSiguiente;
+
+    public PaginaResultados(List<T> elementos, String cursorSiguiente) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.cursorSiguiente = cursorSiguiente;
+    }
+
+    public List<T> getElementos() { return elementos; }
+
+    /**
+     * Id desde el que continuar, null si esta es la última página
+     */
+    public String getCursorSiguiente() { return cursorSiguiente; }
+
+    public boolean hayMas() { return cursorSiguiente != null; }
+
+    @Override
+    public String toString() {
+        return String.format("PaginaResultados{elementos=%d, cursorSiguiente='%s'}", elementos.size(), cursorSiguiente);
+    }
+}
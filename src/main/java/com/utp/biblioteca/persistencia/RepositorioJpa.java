@@ -0,0 +1,100 @@
+package com.utp.biblioteca.persistencia;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Optional;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+
+/**
+ * Repositorio genérico sobre JPA
+ * Cada operación se ejecuta en su propia transacción usando el GestorPersistencia.
+ * Las cargas masivas se hacen por lotes del mismo tamaño que el lote JDBC,
+ * vaciando el contexto de persistencia entre lotes para mantener la memoria acotada.
+ */
+public class RepositorioJpa<T> {
+
+    private static final String MODO_CACHE = "jakarta.persistence.cache.storeMode";
+
+    protected final GestorPersistencia gestor;
+    protected final Class<T> tipo;
+
+    public RepositorioJpa(GestorPersistencia gestor, Class<T> tipo) {
+        this.gestor = gestor;
+        this.tipo = tipo;
+    }
+
+    public Optional<T> buscarPorId(String id) {
+        return gestor.enTransaccion(em -> Optional.ofNullable(em.find(tipo, id)));
+    }
+
+    /**
+     * Inserta una entidad nueva
+     */
+    public void insertar(T entidad) {
+        gestor.ejecutar(em -> em.persist(entidad));
+    }
+
+    /**
+     * Guarda los cambios de una entidad ya existente
+     * @return la instancia administrada resultante
+     */
+    public T actualizar(T entidad) {
+        return gestor.enTransaccion(em -> em.merge(entidad));
+    }
+
+    /**
+     * Inserta muchas entidades en una sola transacción usando lotes JDBC
+     * @return número de entidades insertadas
+     */
+    public int insertarTodos(Collection<? extends T> entidades) {
+        return gestor.enTransaccion(em -> insertarPorLotes(em, entidades));
+    }
+
+    /**
+     * Inserta dentro de una transacción existente, vaciando el contexto cada lote
+     */
+    public int insertarPorLotes(EntityManager em, Collection<? extends T> entidades) {
+        // Una carga masiva no debe desplazar de la caché L2 las entidades que sí se consultan.
+        // El EntityManager es del llamador: su modo se devuelve al terminar la transacción, no antes,
+        // porque las inserciones consultan el modo otra vez al confirmar
+        Object modoAnterior = em.getProperties().get(MODO_CACHE);
+        em.setProperty(MODO_CACHE, CacheStoreMode.BYPASS);
+        try {
+            int tamanoLote = gestor.getTamanoLote();
+            int insertadas = 0;
+            for (T entidad : entidades) {
+                em.persist(entidad);
+                if (++insertadas % tamanoLote == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+            em.clear();
+            return insertadas;
+        } finally {
+            Object restaurar = modoAnterior != null ? modoAnterior : CacheStoreMode.USE;
+            em.unwrap(SessionImplementor.class).getActionQueue().registerProcess(
+                    (AfterTransactionCompletionProcess) (exito, sesion) -> em.setProperty(MODO_CACHE, restaurar));
+        }
+    }
+
+    public boolean eliminar(String id) {
+        return gestor.enTransaccion(em -> {
+            T entidad = em.find(tipo, id);
+            if (entidad == null) {
+                return false;
+            }
+            em.remove(entidad);
+            return true;
+        });
+    }
+
+    public long contar() {
+        return gestor.enTransaccion(em -> em
+                .createQuery("select count(e) from " + tipo.getSimpleName() + " e", Long.class)
+                .getSingleResult());
+    }
+}
@@ -0,0 +1,58 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repositorio de préstamos (con su multa por COMPOSICIÓN)
+ */
+public class RepositorioPrestamos extends RepositorioJpa<Prestamo> {
+
+    public RepositorioPrestamos(GestorPersistencia gestor) {
+        super(gestor, Prestamo.class);
+    }
+
+    public List<Prestamo> buscarPorUsuario(String usuarioId) {
+        return gestor.enTransaccion(em -> em
+                .createQuery("select p from Prestamo p where p.usuarioId = :usuarioId order by p.fechaPrestamo", Prestamo.class)
+                .setParameter("usuarioId", usuarioId)
+                .getResultList());
+    }
+
+    public List<Prestamo> buscarPorEstado(EstadoPrestamo estado) {
+        return gestor.enTransaccion(em -> em
+                .createQuery("select p from Prestamo p where p.estado = :estado", Prestamo.class)
+                .setParameter("estado", estado)
+                .getResultList());
+    }
+
+    /**
+     * Préstamo sin devolver ni vencer del recurso para el usuario (ver VerificadorPrestamos)
+     */
+    public boolean tieneVigente(String usuarioId, String recursoId) {
+        return contarVigentes(usuarioId, recursoId, false) > 0;
+    }
+
+    /**
+     * Como tieneVigente, pero solo cuentan los préstamos que reservaron su cupo de licencia
+     * (ServicioCirculacion con CuotaDescargas). Es el verificador del servidor de descargas
+     * cuando hay cuotas: un préstamo creado sin pasar por ellas no descarga.
+     */
+    public boolean tieneVigenteConCupo(String usuarioId, String recursoId) {
+        return contarVigentes(usuarioId, recursoId, true) > 0;
+    }
+
+    private long contarVigentes(String usuarioId, String recursoId, boolean conCupo) {
+        String consulta = "select count(p) from Prestamo p where p.usuarioId = :usuarioId"
+                + " and p.recursoId = :recursoId and p.estado in :estados and p.fechaVencimiento >= :hoy"
+                + (conCupo ? " and p.cupoLicencia = true" : "");
+        return gestor.enTransaccion(em -> em.createQuery(consulta, Long.class)
+                .setParameter("usuarioId", usuarioId)
+                .setParameter("recursoId", recursoId)
+                .setParameter("estados", List.of(EstadoPrestamo.ACTIVO, EstadoPrestamo.RENOVADO))
+                .setParameter("hoy", LocalDate.now())
+                .getSingleResult());
+    }
+}
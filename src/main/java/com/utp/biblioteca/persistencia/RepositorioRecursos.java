@@ -0,0 +1,78 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.model.recurso.CadenasCatalogo;
+import com.utp.biblioteca.model.recurso.Recurso;
+import jakarta.persistence.Query;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repositorio del catálogo de recursos (LibroFisico, EBook, AudioLibro)
+ * Las consultas cargan las subclases concretas gracias al discriminador "tipo".
+ */
+public class RepositorioRecursos extends RepositorioJpa<Recurso> {
+
+    private final TraductorConsultasRecursos traductor;
+
+    public RepositorioRecursos(GestorPersistencia gestor) {
+        this(gestor, new TraductorConsultasRecursos());
+    }
+
+    public RepositorioRecursos(GestorPersistencia gestor, TraductorConsultasRecursos traductor) {
+        super(gestor, Recurso.class);
+        this.traductor = traductor;
+    }
+
+    /**
+     * Búsqueda con la misma semántica que aplicarFiltros + buscarPorPalabrasClave,
+     * resuelta en la base de datos y paginada por id
+     * @param despuesDeId cursor de la página anterior (null para la primera)
+     */
+    @SuppressWarnings("unchecked")
+    public PaginaResultados<Recurso> buscar(Map<String, Object> filtros, List<String> palabrasClave,
+                                            String despuesDeId, int tamanoPagina) {
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo");
+        }
+        // Se pide una fila extra para saber si existe una página siguiente
+        ConsultaSql consulta = traductor.traducir(filtros, palabrasClave, despuesDeId, tamanoPagina + 1);
+        List<Recurso> filas = gestor.enTransaccion(em ->
+                enlazar(em.createNativeQuery(consulta.getSql(), Recurso.class), consulta).getResultList());
+        if (filas.size() <= tamanoPagina) {
+            return new PaginaResultados<>(filas, null);
+        }
+        List<Recurso> pagina = filas.subList(0, tamanoPagina);
+        return new PaginaResultados<>(pagina, pagina.get(tamanoPagina - 1).getId());
+    }
+
+    public long contar(Map<String, Object> filtros, List<String> palabrasClave) {
+        ConsultaSql consulta = traductor.traducirConteo(filtros, palabrasClave);
+        return gestor.enTransaccion(em -> ((Number) enlazar(em.createNativeQuery(consulta.getSql()), consulta)
+                .getSingleResult()).longValue());
+    }
+
+    private static Query enlazar(Query query, ConsultaSql consulta) {
+        List<Object> parametros = consulta.getParametros();
+        for (int i = 0; i < parametros.size(); i++) {
+            query.setParameter(i + 1, parametros.get(i));
+        }
+        return query;
+    }
+
+    public List<Recurso> buscarPorCategoria(String categoria) {
+        return gestor.enTransaccion(em -> em
+                .createQuery("select r from Recurso r where r.categoria = :categoria order by r.titulo", Recurso.class)
+                // La columna se convierte con CadenasCatalogo: se compara por código
+                .setParameter("categoria", CadenasCatalogo.CATEGORIAS.buscarCodigo(categoria))
+                .getResultList());
+    }
+
+    /**
+     * Recursos disponibles de un tipo concreto (p. ej. EBook.class)
+     */
+    public <R extends Recurso> List<R> buscarDisponibles(Class<R> tipoRecurso) {
+        return gestor.enTransaccion(em -> em
+                .createQuery("select r from " + tipoRecurso.getSimpleName() + " r where r.disponible = true", tipoRecurso)
+                .getResultList());
+    }
+}
@@ -0,0 +1,22 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.util.Optional;
+
+/**
+ * Repositorio de usuarios (Estudiante, Profesor, Bibliotecario)
+ */
+public class RepositorioUsuarios extends RepositorioJpa<Usuario> {
+
+    public RepositorioUsuarios(GestorPersistencia gestor) {
+        super(gestor, Usuario.class);
+    }
+
+    public Optional<Usuario> buscarPorEmail(String email) {
+        return gestor.enTransaccion(em -> em
+                .createQuery("select u from Usuario u where u.email = :email", Usuario.class)
+                .setParameter("email", email)
+                .getResultStream()
+                .findFirst());
+    }
+}
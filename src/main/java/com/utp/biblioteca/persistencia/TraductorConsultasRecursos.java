@@ -0,0 +1,256 @@
+package com.utp.biblioteca.persistencia;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.CadenasCatalogo;
+import com.utp.biblioteca.model.recurso.Dispositivo;
+import com.utp.biblioteca.model.recurso.EBook;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+
+/**
+ * TraductorConsultasRecursos - FILTROS DE BUSCABLE A SQL
+ * Traduce el mismo mapa de filtros de Recurso.aplicarFiltros (disponible, categoria,
+ * tipo, añoPublicacion, dispositivo) y la lista de Recurso.buscarPorPalabrasClave a SQL parametrizado,
+ * para que la base de datos filtre con sus índices en lugar de cargar todo el catálogo.
+ * 
+ * Categoría y tipo se comparan byte a byte, como en memoria: la colación por defecto de MySQL
+ * no distingue mayúsculas ni tildes. Un valor que no es texto no coincide con nada.
+ *
+ * Semántica de texto: igual que en memoria, basta que UNA palabra aparezca como subcadena
+ * de texto_busqueda (columna mantenida por Recurso). Una lista vacía o nula no filtra.
+ * Con el dialecto MYSQL las palabras se resuelven con el índice FULLTEXT (prefijos de
+ * palabra, ver DDL_INDICE_TEXTO_COMPLETO_MYSQL) y solo las muy cortas caen en LIKE.
+ */
+public class TraductorConsultasRecursos {
+
+    public enum Dialecto {
+        ESTANDAR, // LIKE sobre texto_busqueda (H2, PostgreSQL, MySQL sin índice FULLTEXT)
+        MYSQL     // MATCH ... AGAINST en modo booleano
+    }
+
+    /**
+     * Índice de texto completo para el dialecto MYSQL (JPA no puede declararlo)
+     */
+    public static final String DDL_INDICE_TEXTO_COMPLETO_MYSQL =
+            "CREATE FULLTEXT INDEX idx_recurso_texto ON recurso (texto_busqueda)";
+
+    // Longitud mínima indexada por InnoDB (innodb_ft_min_token_size)
+    private static final int LONGITUD_MINIMA_TEXTO_COMPLETO = 3;
+    private static final char ESCAPE = '!';
+    // Formatos que nombran las reglas de EBook/AudioLibro.dispositivosPara: siempre cuentan
+    // como conocidos aunque el diccionario todavía no los haya visto
+    private static final List<String> FORMATOS_CON_REGLA = List.of("PDF", "EPUB", "MOBI", "AZW", "MP3", "M4A");
+    private static final String FORMATO_DESCONOCIDO = "\u0000";
+    // Bytes que ocupan como mucho las columnas en utf8mb4 (4 por carácter), para CAST ... AS BINARY(n)
+    private static final int BYTES_CATEGORIA = 4 * 255;
+    private static final int BYTES_TIPO = 4 * 20;
+
+    private final Dialecto dialecto;
+
+    public TraductorConsultasRecursos() {
+        this(Dialecto.ESTANDAR);
+    }
+
+    public TraductorConsultasRecursos(Dialecto dialecto) {
+        this.dialecto = dialecto;
+    }
+
+    // ===============================================================
+    // TRADUCCIÓN
+    // ===============================================================
+
+    /**
+     * Página de recursos ordenada por id
+     * @param despuesDeId cursor de la página anterior (null para la primera)
+     * @param limite número máximo de filas a devolver
+     */
+    public ConsultaSql traducir(Map<String, Object> filtros, List<String> palabrasClave,
+                                String despuesDeId, int limite) {
+        List<Object> parametros = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT r.* FROM recurso r");
+        List<String> condiciones = condiciones(filtros, palabrasClave, parametros);
+        if (despuesDeId != null) {
+            condiciones.add("r.id > ?");
+            parametros.add(despuesDeId);
+        }
+        agregarWhere(sql, condiciones);
+        sql.append(" ORDER BY r.id LIMIT ?");
+        parametros.add(limite);
+        return new ConsultaSql(sql.toString(), parametros);
+    }
+
+    /**
+     * Total de recursos que cumplen los filtros
+     */
+    public ConsultaSql traducirConteo(Map<String, Object> filtros, List<String> palabrasClave) {
+        List<Object> parametros = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM recurso r");
+        agregarWhere(sql, condiciones(filtros, palabrasClave, parametros));
+        return new ConsultaSql(sql.toString(), parametros);
+    }
+
+    private List<String> condiciones(Map<String, Object> filtros, List<String> palabrasClave,
+                                     List<Object> parametros) {
+        List<String> condiciones = new ArrayList<>();
+        if (filtros != null) {
+            for (Map.Entry<String, Object> filtro : filtros.entrySet()) {
+                // Mismas claves y conversiones que Recurso.aplicarFiltros; el resto se ignora
+                switch (filtro.getKey()) {
+                    case "disponible":
+                        condiciones.add("r.disponible = ?");
+                        parametros.add((Boolean) filtro.getValue());
+                        break;
+                    case "categoria":
+                        condiciones.add(igualdadExacta("r.categoria", BYTES_CATEGORIA, filtro.getValue(), parametros));
+                        break;
+                    case "tipo":
+                        condiciones.add(igualdadExacta("r.tipo", BYTES_TIPO, filtro.getValue(), parametros));
+                        break;
+                    case "añoPublicacion":
+                        // Rango en vez de YEAR(...) para poder usar el índice de fecha
+                        int anio = (Integer) filtro.getValue();
+                        condiciones.add("r.fecha_publicacion >= ? AND r.fecha_publicacion < ?");
+                        parametros.add(LocalDate.of(anio, 1, 1));
+                        parametros.add(LocalDate.of(anio + 1, 1, 1));
+                        break;
+                    case "dispositivo":
+                        condiciones.add(condicionDispositivo(Dispositivo.desdeFiltro(filtro.getValue()), parametros));
+                        break;
+                }
+            }
+        }
+        if (palabrasClave != null && !palabrasClave.isEmpty()) {
+            condiciones.add(condicionTexto(palabrasClave, parametros));
+        }
+        return condiciones;
+    }
+
+    /**
+     * Igualdad de texto exacta: la primera comparación usa el índice de la columna y la segunda,
+     * sobre bytes (CAST ... AS BINARY(n) rellena con ceros en MySQL y en H2), descarta lo que la
+     * colación igualó sin serlo ("informática", "Informatica"). Un valor que no es String no
+     * coincide, igual que en Recurso.aplicarFiltros.
+     */
+    private static String igualdadExacta(String columna, int bytes, Object valor, List<Object> parametros) {
+        if (!(valor instanceof String)) {
+            return "1 = 0";
+        }
+        parametros.add(valor);
+        parametros.add(valor);
+        String binario = " AS BINARY(" + bytes + "))";
+        return "(" + columna + " = ? AND CAST(" + columna + binario + " = CAST(?" + binario + ")";
+    }
+
+    /**
+     * La compatibilidad depende del tipo y del formato: para cada tipo, los formatos conocidos
+     * que su regla admite y, si la regla admite también formatos desconocidos (Android), los
+     * que no están entre los conocidos
+     */
+    private static String condicionDispositivo(Dispositivo dispositivo, List<Object> parametros) {
+        Set<String> conocidos = new TreeSet<>(CadenasCatalogo.FORMATOS.getValores());
+        conocidos.addAll(FORMATOS_CON_REGLA);
+        List<String> alternativas = new ArrayList<>();
+        agregarTipoCompatible(alternativas, "EBook", "r.formato", EBook::dispositivosPara,
+                dispositivo, conocidos, parametros);
+        agregarTipoCompatible(alternativas, "AudioLibro", "r.formato_audio", AudioLibro::dispositivosPara,
+                dispositivo, conocidos, parametros);
+        return alternativas.isEmpty() ? "1 = 0" : "(" + String.join(" OR ", alternativas) + ")";
+    }
+
+    private static void agregarTipoCompatible(List<String> alternativas, String tipo, String columna,
+                                              ToIntFunction<String> regla, Dispositivo dispositivo,
+                                              Set<String> conocidos, List<Object> parametros) {
+        List<String> admitidos = new ArrayList<>();
+        for (String formato : conocidos) {
+            if (dispositivo.en(regla.applyAsInt(formato))) {
+                admitidos.add(formato);
+            }
+        }
+        boolean admiteDesconocidos = dispositivo.en(regla.applyAsInt(FORMATO_DESCONOCIDO));
+        List<String> formatos = new ArrayList<>();
+        if (!admitidos.isEmpty()) {
+            formatos.add(columna + " IN (" + marcadores(admitidos.size()) + ")");
+        }
+        if (admiteDesconocidos) {
+            formatos.add(columna + " NOT IN (" + marcadores(conocidos.size()) + ")");
+        }
+        if (formatos.isEmpty()) {
+            return;
+        }
+        alternativas.add("(r.tipo = ? AND (" + String.join(" OR ", formatos) + "))");
+        parametros.add(tipo);
+        parametros.addAll(admitidos);
+        if (admiteDesconocidos) {
+            parametros.addAll(conocidos);
+        }
+    }
+
+    private static String marcadores(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+
+    private String condicionTexto(List<String> palabrasClave, List<Object> parametros) {
+        StringBuilder terminosTextoCompleto = new StringBuilder();
+        List<String> palabrasLike = new ArrayList<>();
+        for (String palabra : palabrasClave) {
+            String normalizada = palabra.toLowerCase();
+            if (dialecto == Dialecto.MYSQL && admiteTextoCompleto(normalizada)) {
+                terminosTextoCompleto.append(normalizada).append("* ");
+            } else {
+                palabrasLike.add(normalizada);
+            }
+        }
+
+        List<String> alternativas = new ArrayList<>();
+        if (terminosTextoCompleto.length() > 0) {
+            alternativas.add("MATCH(r.texto_busqueda) AGAINST (? IN BOOLEAN MODE)");
+            parametros.add(terminosTextoCompleto.toString().trim());
+        }
+        for (String palabra : palabrasLike) {
+            alternativas.add("r.texto_busqueda LIKE ? ESCAPE '" + ESCAPE + "'");
+            parametros.add("%" + escaparLike(palabra) + "%");
+        }
+        return alternativas.size() == 1 ? alternativas.get(0) : "(" + String.join(" OR ", alternativas) + ")";
+    }
+
+    /**
+     * Solo palabras simples, sin operadores booleanos y de longitud indexable
+     */
+    private static boolean admiteTextoCompleto(String palabra) {
+        if (palabra.length() < LONGITUD_MINIMA_TEXTO_COMPLETO) {
+            return false;
+        }
+        for (int i = 0; i < palabra.length(); i++) {
+            if (!Character.isLetterOrDigit(palabra.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String escaparLike(String texto) {
+        StringBuilder escapado = new StringBuilder(texto.length() + 4);
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                escapado.append(ESCAPE);
+            }
+            escapado.append(c);
+        }
+        return escapado.toString();
+    }
+
+    private static void agregarWhere(StringBuilder sql, List<String> condiciones) {
+        if (!condiciones.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", condiciones));
+        }
+    }
+
+    public Dialecto getDialecto() { return dialecto; }
+}
@@ -0,0 +1,244 @@
+package com.utp.biblioteca.reporte;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Escritor incremental de reportes sobre un canal NIO
+ * Codifica el texto en un buffer directo reutilizable y lo vacía al canal
+ * cada vez que se llena, de modo que la memoria usada no depende del tamaño del reporte.
+ */
+public abstract class EscritorReporte {
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final JsonFactory FABRICA_JSON = new JsonFactory();
+
+    private final WritableByteChannel canal;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder codificador;
+    protected final StringBuilder linea;
+
+    protected EscritorReporte(WritableByteChannel canal) {
+        this.canal = canal;
+        this.buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        this.codificador = StandardCharsets.UTF_8.newEncoder();
+        this.linea = new StringBuilder(256);
+    }
+
+    /**
+     * Crea el escritor correspondiente al formato
+     */
+    public static EscritorReporte para(FormatoReporte formato, WritableByteChannel canal) {
+        switch (formato) {
+            case CSV:
+                return new EscritorCsv(canal);
+            case JSON:
+                return new EscritorJson(canal);
+            default:
+                throw new IllegalArgumentException("Formato no soportado: " + formato);
+        }
+    }
+
+    // ===============================================================
+    // CONTRATO DE FORMATO
+    // ===============================================================
+
+    public abstract void iniciar(TipoReporte tipo, LocalDate inicio, LocalDate fin) throws IOException;
+
+    public abstract void escribir(RegistroCirculacion registro) throws IOException;
+
+    public abstract void terminar(ResumenReporte resumen) throws IOException;
+
+    // ===============================================================
+    // SALIDA BUFFERIZADA
+    // ===============================================================
+
+    /**
+     * Codifica el texto en el buffer, vaciándolo al canal cuando se llena
+     */
+    protected void escribirTexto(CharSequence texto) throws IOException {
+        CharBuffer entrada = CharBuffer.wrap(texto);
+        while (true) {
+            CoderResult resultado = codificador.encode(entrada, buffer, false);
+            if (resultado.isOverflow()) {
+                vaciar();
+            } else if (resultado.isError()) {
+                resultado.throwException();
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Escribe la línea acumulada y la reinicia
+     */
+    protected void escribirLinea() throws IOException {
+        escribirTexto(linea);
+        linea.setLength(0);
+    }
+
+    /**
+     * Vacía el buffer pendiente al canal
+     */
+    public void vaciar() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Termina la codificación y vacía todo lo pendiente
+     */
+    public void cerrar() throws IOException {
+        while (codificador.encode(CharBuffer.allocate(0), buffer, true).isOverflow()) {
+            vaciar();
+        }
+        while (codificador.flush(buffer).isOverflow()) {
+            vaciar();
+        }
+        vaciar();
+    }
+
+    // ===============================================================
+    // FORMATOS
+    // ===============================================================
+
+    /**
+     * CSV con cabecera y comillas dobles según RFC 4180
+     */
+    private static final class EscritorCsv extends EscritorReporte {
+
+        EscritorCsv(WritableByteChannel canal) {
+            super(canal);
+        }
+
+        @Override
+        public void iniciar(TipoReporte tipo, LocalDate inicio, LocalDate fin) throws IOException {
+            escribirTexto("tipo,id,usuario_id,recurso_id,fecha,estado,monto,detalle\n");
+        }
+
+        @Override
+        public void escribir(RegistroCirculacion r) throws IOException {
+            linea.append(r.getTipo().name()).append(',');
+            campo(r.getId()).append(',');
+            campo(r.getUsuarioId()).append(',');
+            campo(r.getRecursoId()).append(',');
+            linea.append(r.getFecha()).append(',');
+            campo(r.getEstado()).append(',');
+            linea.append(String.format(Locale.ROOT, "%.2f", r.getMonto())).append(',');
+            campo(r.getDetalle()).append('\n');
+            escribirLinea();
+        }
+
+        @Override
+        public void terminar(ResumenReporte resumen) {
+            // El CSV solo contiene filas; el resumen se devuelve al llamador
+        }
+
+        private StringBuilder campo(String valor) {
+            if (valor == null) {
+                return linea;
+            }
+            boolean requiereComillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                    || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+            if (!requiereComillas) {
+                return linea.append(valor);
+            }
+            linea.append('"');
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                if (c == '"') {
+                    linea.append('"');
+                }
+                linea.append(c);
+            }
+            return linea.append('"');
+        }
+    }
+
+    /**
+     * JSON: objeto con cabecera, arreglo de registros y resumen al final
+     * Lo escribe el JsonGenerator de Jackson (escape y números), un registro por línea.
+     */
+    private static final class EscritorJson extends EscritorReporte {
+
+        private final JsonGenerator json;
+
+        EscritorJson(WritableByteChannel canal) {
+            super(canal);
+            try {
+                this.json = FABRICA_JSON.createGenerator(Channels.newOutputStream(canal), JsonEncoding.UTF8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void iniciar(TipoReporte tipo, LocalDate inicio, LocalDate fin) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("tipo", tipo.name());
+            json.writeStringField("desde", inicio.toString());
+            json.writeStringField("hasta", fin.toString());
+            json.writeArrayFieldStart("registros");
+        }
+
+        @Override
+        public void escribir(RegistroCirculacion r) throws IOException {
+            json.writeRaw('\n');
+            json.writeStartObject();
+            json.writeStringField("id", r.getId());
+            json.writeStringField("usuarioId", r.getUsuarioId());
+            json.writeStringField("recursoId", r.getRecursoId());
+            json.writeStringField("fecha", r.getFecha() != null ? r.getFecha().toString() : null);
+            json.writeStringField("estado", r.getEstado());
+            json.writeNumberField("monto", r.getMonto());
+            json.writeStringField("detalle", r.getDetalle());
+            json.writeEndObject();
+        }
+
+        @Override
+        public void terminar(ResumenReporte resumen) throws IOException {
+            json.writeRaw('\n');
+            json.writeEndArray();
+            json.writeObjectFieldStart("resumen");
+            json.writeNumberField("registros", resumen.getRegistros());
+            json.writeNumberField("montoTotal", resumen.getMontoTotal());
+            json.writeObjectFieldStart("porEstado");
+            for (Map.Entry<String, Long> entrada : resumen.getRegistrosPorEstado().entrySet()) {
+                json.writeNumberField(entrada.getKey(), entrada.getValue());
+            }
+            json.writeEndObject();
+            json.writeStringField("diaPico", resumen.getDiaPico() != null ? resumen.getDiaPico().toString() : null);
+            json.writeEndObject();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void vaciar() throws IOException {
+            json.flush();
+        }
+
+        @Override
+        public void cerrar() throws IOException {
+            json.close();
+        }
+    }
+}
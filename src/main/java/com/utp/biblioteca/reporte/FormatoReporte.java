@@ -0,0 +1,20 @@
+package com.utp.biblioteca.reporte;
+
+/**
+ * Enumeración FormatoReporte
+ * Formatos de salida soportados por el motor de reportes
+ */
+public enum FormatoReporte {
+    CSV("csv"),
+    JSON("json");
+    
+    private final String extension;
+    
+    FormatoReporte(String extension) {
+        this.extension = extension;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,34 @@
+package com.utp.biblioteca.reporte;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Interface FuenteCirculacion
+ * Almacén del que el motor de reportes lee préstamos, devoluciones, multas y reservas.
+ * Las implementaciones entregan los registros en bloques de tamaño acotado
+ * para que un reporte nunca cargue el periodo completo en memoria.
+ */
+public interface FuenteCirculacion {
+
+    /**
+     * Recibe cada bloque de registros leído de la fuente
+     */
+    @FunctionalInterface
+    interface ConsumidorBloque {
+        void aceptar(List<RegistroCirculacion> bloque);
+    }
+
+    /**
+     * Recorre los registros del tipo indicado cuya fecha está en [inicio, fin]
+     * @param tamanoBloque número máximo de registros por bloque
+     * @param consumidor recibe los bloques en orden; puede lanzar una excepción para detener el recorrido
+     */
+    void recorrer(TipoReporte tipo, LocalDate inicio, LocalDate fin, int tamanoBloque, ConsumidorBloque consumidor);
+
+    /**
+     * Cuenta los registros del periodo para informar el progreso
+     * @return número de registros, o -1 si la fuente no puede contarlos de forma económica
+     */
+    long contar(TipoReporte tipo, LocalDate inicio, LocalDate fin);
+}
@@ -0,0 +1,176 @@
+package com.utp.biblioteca.reporte;
+
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.servicio.EscuchaCirculacion;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fuente de circulación en memoria
+ * Acumula los préstamos y reservas notificados por ServicioCirculacion
+ * y los entrega al motor de reportes en bloques.
+ * Guarda toda la circulación de la instancia: sirve para pruebas y despliegues sin base de datos.
+ * Con persistencia, usar FuenteCirculacionBaseDatos, que lee el periodo por cursor.
+ */
+public class FuenteCirculacionMemoria implements FuenteCirculacion, EscuchaCirculacion {
+
+    private final List<Prestamo> prestamos;
+    private final List<Reserva> reservas;
+
+    public FuenteCirculacionMemoria() {
+        this.prestamos = new ArrayList<>();
+        this.reservas = new ArrayList<>();
+    }
+
+    // ===============================================================
+    // ESCUCHA DE CIRCULACIÓN
+    // ===============================================================
+
+    @Override
+    public void alPrestar(Prestamo prestamo) {
+        agregarPrestamo(prestamo);
+    }
+
+    @Override
+    public void alReservar(Reserva reserva) {
+        agregarReserva(reserva);
+    }
+
+    public synchronized void agregarPrestamo(Prestamo prestamo) {
+        prestamos.add(prestamo);
+    }
+
+    public synchronized void agregarReserva(Reserva reserva) {
+        reservas.add(reserva);
+    }
+
+    // ===============================================================
+    // IMPLEMENTACIÓN DE FUENTE CIRCULACIÓN
+    // ===============================================================
+
+    @Override
+    public void recorrer(TipoReporte tipo, LocalDate inicio, LocalDate fin, int tamanoBloque,
+                         ConsumidorBloque consumidor) {
+        List<RegistroCirculacion> bloque = new ArrayList<>(tamanoBloque);
+        int indice = 0;
+        while (true) {
+            // Copiar una porción bajo bloqueo y convertirla fuera de él
+            List<Object> porcion = siguientePorcion(tipo, indice, tamanoBloque);
+            if (porcion.isEmpty()) {
+                break;
+            }
+            indice += porcion.size();
+            for (Object elemento : porcion) {
+                RegistroCirculacion registro = convertir(tipo, elemento);
+                if (registro != null && enRango(registro.getFecha(), inicio, fin)) {
+                    bloque.add(registro);
+                    if (bloque.size() == tamanoBloque) {
+                        consumidor.aceptar(bloque);
+                        bloque = new ArrayList<>(tamanoBloque);
+                    }
+                }
+            }
+        }
+        if (!bloque.isEmpty()) {
+            consumidor.aceptar(bloque);
+        }
+    }
+
+    @Override
+    public long contar(TipoReporte tipo, LocalDate inicio, LocalDate fin) {
+        // Solo se mira la fecha de cada elemento: no se construyen registros
+        long total = 0;
+        int indice = 0;
+        while (true) {
+            List<Object> porcion = siguientePorcion(tipo, indice, 4096);
+            if (porcion.isEmpty()) {
+                return total;
+            }
+            indice += porcion.size();
+            for (Object elemento : porcion) {
+                if (enRango(fecha(tipo, elemento), inicio, fin)) {
+                    total++;
+                }
+            }
+        }
+    }
+
+    private synchronized List<Object> siguientePorcion(TipoReporte tipo, int desde, int tamano) {
+        List<?> origen = tipo == TipoReporte.RESERVAS ? reservas : prestamos;
+        int hasta = Math.min(origen.size(), desde + tamano);
+        return desde >= hasta ? List.of() : new ArrayList<>(origen.subList(desde, hasta));
+    }
+
+    private static boolean enRango(LocalDate fecha, LocalDate inicio, LocalDate fin) {
+        return fecha != null && !fecha.isBefore(inicio) && !fecha.isAfter(fin);
+    }
+
+    /**
+     * Fecha con la que el elemento entra en el reporte (la misma que usa convertir)
+     * @return null si el elemento no aporta una fila a ese reporte
+     */
+    private static LocalDate fecha(TipoReporte tipo, Object elemento) {
+        switch (tipo) {
+            case PRESTAMOS:
+                return ((Prestamo) elemento).getFechaPrestamo();
+            case DEVOLUCIONES:
+                return ((Prestamo) elemento).getFechaDevolucion();
+            case MULTAS: {
+                Multa m = ((Prestamo) elemento).getMulta();
+                return m != null ? m.getFechaGeneracion() : null;
+            }
+            case RESERVAS:
+                return ((Reserva) elemento).getFechaReserva().toLocalDate();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Convierte un préstamo o reserva en la fila correspondiente al tipo de reporte
+     * @return null si el elemento no aporta una fila a ese reporte
+     */
+    private static RegistroCirculacion convertir(TipoReporte tipo, Object elemento) {
+        switch (tipo) {
+            case PRESTAMOS: {
+                Prestamo p = (Prestamo) elemento;
+                return new RegistroCirculacion(tipo, p.getId(), p.getUsuarioId(), p.getRecursoId(),
+                        p.getFechaPrestamo(), p.getEstado().name(), 0.0,
+                        "Vence " + p.getFechaVencimiento());
+            }
+            case DEVOLUCIONES: {
+                Prestamo p = (Prestamo) elemento;
+                if (p.getFechaDevolucion() == null) {
+                    return null;
+                }
+                return new RegistroCirculacion(tipo, p.getId(), p.getUsuarioId(), p.getRecursoId(),
+                        p.getFechaDevolucion(), p.getEstado().name(), 0.0,
+                        "Renovaciones: " + p.getNumeroRenovaciones());
+            }
+            case MULTAS: {
+                Prestamo p = (Prestamo) elemento;
+                Multa m = p.getMulta();
+                if (m == null) {
+                    return null;
+                }
+                return new RegistroCirculacion(tipo, m.getId(), p.getUsuarioId(), p.getRecursoId(),
+                        m.getFechaGeneracion(), m.getEstadoTexto(), m.getMonto(), m.getConcepto());
+            }
+            case RESERVAS: {
+                Reserva r = (Reserva) elemento;
+                return new RegistroCirculacion(tipo, r.getId(), r.getUsuarioId(), r.getRecursoId(),
+                        r.getFechaReserva().toLocalDate(), r.getEstado().name(), 0.0,
+                        "Prioridad " + r.getPrioridad());
+            }
+            default:
+                return null;
+        }
+    }
+
+    public synchronized int getNumeroPrestamos() { return prestamos.size(); }
+
+    public synchronized int getNumeroReservas() { return reservas.size(); }
+}
@@ -0,0 +1,183 @@
+package com.utp.biblioteca.reporte;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Motor de reportes de circulación
+ * Lee los registros del periodo desde una FuenteCirculacion en bloques, acumula
+ * agregados de memoria acotada y escribe CSV/JSON incrementalmente en el archivo destino.
+ * El archivo se escribe primero como ".parcial" y se renombra al terminar,
+ * de modo que nunca queda un reporte incompleto con el nombre final.
+ */
+public class MotorReportes {
+
+    private static final Logger logger = LoggerFactory.getLogger(MotorReportes.class);
+
+    public static final int TAMANO_BLOQUE_DEFAULT = 1000;
+
+    private final FuenteCirculacion fuente;
+    private final Path directorioSalida;
+    private final Executor ejecutor;
+    private final int tamanoBloque;
+
+    public MotorReportes(FuenteCirculacion fuente, Path directorioSalida) {
+        this(fuente, directorioSalida, Executors.newSingleThreadExecutor(r -> {
+            Thread hilo = new Thread(r, "motor-reportes");
+            hilo.setDaemon(true);
+            return hilo;
+        }), TAMANO_BLOQUE_DEFAULT);
+    }
+
+    public MotorReportes(FuenteCirculacion fuente, Path directorioSalida, Executor ejecutor, int tamanoBloque) {
+        this.fuente = fuente;
+        this.directorioSalida = directorioSalida;
+        this.ejecutor = ejecutor;
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    // ===============================================================
+    // GENERACIÓN
+    // ===============================================================
+
+    /**
+     * Genera el reporte en segundo plano en el directorio de salida
+     */
+    public TareaReporte generar(TipoReporte tipo, LocalDate inicio, LocalDate fin, FormatoReporte formato,
+                                TareaReporte.EscuchaProgreso escucha) {
+        return generar(tipo, inicio, fin, formato, rutaPorDefecto(tipo, inicio, fin, formato), escucha);
+    }
+
+    /**
+     * Genera el reporte en segundo plano en el archivo indicado
+     */
+    public TareaReporte generar(TipoReporte tipo, LocalDate inicio, LocalDate fin, FormatoReporte formato,
+                                Path destino, TareaReporte.EscuchaProgreso escucha) {
+        validarPeriodo(inicio, fin);
+        TareaReporte tarea = new TareaReporte(tipo, destino);
+        ejecutor.execute(() -> ejecutar(tarea, inicio, fin, formato, escucha));
+        return tarea;
+    }
+
+    /**
+     * Genera el reporte en el hilo actual
+     */
+    public ResumenReporte generarSincrono(TipoReporte tipo, LocalDate inicio, LocalDate fin, FormatoReporte formato) {
+        validarPeriodo(inicio, fin);
+        TareaReporte tarea = new TareaReporte(tipo, rutaPorDefecto(tipo, inicio, fin, formato));
+        ejecutar(tarea, inicio, fin, formato, null);
+        try {
+            return tarea.esperar();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw new IllegalStateException("Error al generar el reporte " + tipo, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generación de reporte interrumpida", e);
+        }
+    }
+
+    /**
+     * Ruta estándar: reporte_<tipo>_<inicio>_<fin>.<extensión>
+     */
+    public Path rutaPorDefecto(TipoReporte tipo, LocalDate inicio, LocalDate fin, FormatoReporte formato) {
+        return directorioSalida.resolve(String.format("reporte_%s_%s_%s.%s",
+                tipo.name().toLowerCase(), inicio, fin, formato.getExtension()));
+    }
+
+    private static void validarPeriodo(LocalDate inicio, LocalDate fin) {
+        if (inicio == null || fin == null || fin.isBefore(inicio)) {
+            throw new IllegalArgumentException("Periodo de reporte inválido: " + inicio + " - " + fin);
+        }
+    }
+
+    private void ejecutar(TareaReporte tarea, LocalDate inicio, LocalDate fin, FormatoReporte formato,
+                          TareaReporte.EscuchaProgreso escucha) {
+        long comienzo = System.currentTimeMillis();
+        TipoReporte tipo = tarea.getTipo();
+        Path destino = tarea.getDestino();
+        Path parcial = destino.resolveSibling(destino.getFileName() + ".parcial");
+        ResumenReporte resumen = new ResumenReporte(tipo, inicio, fin);
+
+        try {
+            tarea.setTotal(fuente.contar(tipo, inicio, fin));
+            Files.createDirectories(destino.toAbsolutePath().getParent());
+
+            try (FileChannel canal = FileChannel.open(parcial, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                EscritorReporte escritor = EscritorReporte.para(formato, canal);
+                escritor.iniciar(tipo, inicio, fin);
+
+                fuente.recorrer(tipo, inicio, fin, tamanoBloque, bloque -> {
+                    if (tarea.isCancelada()) {
+                        throw new CancellationException("Reporte cancelado");
+                    }
+                    try {
+                        for (RegistroCirculacion registro : bloque) {
+                            escritor.escribir(registro);
+                            resumen.acumular(registro);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    tarea.avanzar(bloque.size());
+                    if (escucha != null) {
+                        escucha.alAvanzar(tarea.getProcesados(), tarea.getTotal());
+                    }
+                });
+
+                if (tarea.isCancelada()) {
+                    throw new CancellationException("Reporte cancelado");
+                }
+                escritor.terminar(resumen);
+                escritor.cerrar();
+                canal.force(false);
+            }
+
+            Files.move(parcial, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            resumen.finalizar(destino, System.currentTimeMillis() - comienzo);
+            logger.info("Reporte {} generado: {} registros en {} ms -> {}",
+                    tipo, resumen.getRegistros(), resumen.getDuracionMs(), destino);
+            tarea.getResultadoInterno().complete(resumen);
+
+        } catch (CancellationException e) {
+            eliminarParcial(parcial);
+            logger.info("Reporte {} cancelado tras {} registros", tipo, tarea.getProcesados());
+            tarea.getResultadoInterno().cancel(false);
+        } catch (IOException e) {
+            eliminarParcial(parcial);
+            logger.error("Error al generar el reporte {}", tipo, e);
+            tarea.getResultadoInterno().completeExceptionally(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            eliminarParcial(parcial);
+            logger.error("Error al generar el reporte {}", tipo, e);
+            tarea.getResultadoInterno().completeExceptionally(e);
+        }
+    }
+
+    private static void eliminarParcial(Path parcial) {
+        try {
+            Files.deleteIfExists(parcial);
+        } catch (IOException e) {
+            logger.warn("No se pudo eliminar el reporte parcial {}", parcial, e);
+        }
+    }
+
+    public FuenteCirculacion getFuente() { return fuente; }
+    public Path getDirectorioSalida() { return directorioSalida; }
+    public int getTamanoBloque() { return tamanoBloque; }
+}
@@ -0,0 +1,46 @@
+package com.utp.biblioteca.reporte;
+
+import java.time.LocalDate;
+
+/**
+ * Fila inmutable de un reporte de circulación
+ * Representa un préstamo, devolución, multa o reserva con los campos comunes a todos.
+ */
+public final class RegistroCirculacion {
+
+    private final TipoReporte tipo;
+    private final String id;
+    private final String usuarioId;
+    private final String recursoId;
+    private final LocalDate fecha;
+    private final String estado;
+    private final double monto;
+    private final String detalle;
+
+    public RegistroCirculacion(TipoReporte tipo, String id, String usuarioId, String recursoId,
+                               LocalDate fecha, String estado, double monto, String detalle) {
+        this.tipo = tipo;
+        this.id = id;
+        this.usuarioId = usuarioId;
+        this.recursoId = recursoId;
+        this.fecha = fecha;
+        this.estado = estado;
+        this.monto = monto;
+        this.detalle = detalle;
+    }
+
+    public TipoReporte getTipo() { return tipo; }
+    public String getId() { return id; }
+    public String getUsuarioId() { return usuarioId; }
+    public String getRecursoId() { return recursoId; }
+    public LocalDate getFecha() { return fecha; }
+    public String getEstado() { return estado; }
+    public double getMonto() { return monto; }
+    public String getDetalle() { return detalle; }
+
+    @Override
+    public String toString() {
+        return String.format("RegistroCirculacion{tipo=%s, id='%s', usuario='%s', recurso='%s', fecha=%s, estado=%s, monto=%.2f}",
+                tipo, id, usuarioId, recursoId, fecha, estado, monto);
+    }
+}
@@ -0,0 +1,84 @@
+package com.utp.biblioteca.reporte;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Agregados de un reporte calculados mientras se escriben las filas
+ * La memoria es acotada: un contador por estado y uno por día del periodo.
+ */
+public class ResumenReporte {
+
+    private final TipoReporte tipo;
+    private final LocalDate inicio;
+    private final LocalDate fin;
+    private final Map<String, Long> registrosPorEstado;
+    private final TreeMap<LocalDate, Long> registrosPorDia;
+    private long registros;
+    private double montoTotal;
+    private Path archivo;
+    private long duracionMs;
+
+    public ResumenReporte(TipoReporte tipo, LocalDate inicio, LocalDate fin) {
+        this.tipo = tipo;
+        this.inicio = inicio;
+        this.fin = fin;
+        this.registrosPorEstado = new LinkedHashMap<>();
+        this.registrosPorDia = new TreeMap<>();
+    }
+
+    /**
+     * Acumula una fila en los agregados
+     */
+    public void acumular(RegistroCirculacion registro) {
+        registros++;
+        montoTotal += registro.getMonto();
+        registrosPorEstado.merge(registro.getEstado(), 1L, Long::sum);
+        registrosPorDia.merge(registro.getFecha(), 1L, Long::sum);
+    }
+
+    void finalizar(Path archivo, long duracionMs) {
+        this.archivo = archivo;
+        this.duracionMs = duracionMs;
+    }
+
+    // ===============================================================
+    // GETTERS
+    // ===============================================================
+
+    public TipoReporte getTipo() { return tipo; }
+    public LocalDate getInicio() { return inicio; }
+    public LocalDate getFin() { return fin; }
+    public long getRegistros() { return registros; }
+    public double getMontoTotal() { return montoTotal; }
+    public Path getArchivo() { return archivo; }
+    public long getDuracionMs() { return duracionMs; }
+
+    public Map<String, Long> getRegistrosPorEstado() {
+        return Collections.unmodifiableMap(registrosPorEstado);
+    }
+
+    public Map<LocalDate, Long> getRegistrosPorDia() {
+        return Collections.unmodifiableMap(registrosPorDia);
+    }
+
+    /**
+     * Día con más registros del periodo, null si el reporte está vacío
+     */
+    public LocalDate getDiaPico() {
+        return registrosPorDia.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResumenReporte{tipo=%s, periodo=%s..%s, registros=%d, monto=S/ %.2f, estados=%s, archivo=%s}",
+                tipo, inicio, fin, registros, montoTotal, registrosPorEstado, archivo);
+    }
+}
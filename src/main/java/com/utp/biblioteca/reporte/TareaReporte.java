@@ -0,0 +1,105 @@
+package com.utp.biblioteca.reporte;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tarea de generación de un reporte
+ * Permite consultar el progreso, cancelar la generación y esperar el resumen final.
+ */
+public class TareaReporte {
+
+    /**
+     * Recibe el avance de la generación después de cada bloque escrito
+     */
+    @FunctionalInterface
+    public interface EscuchaProgreso {
+        /**
+         * @param procesados registros escritos hasta ahora
+         * @param total registros esperados, -1 si se desconoce
+         */
+        void alAvanzar(long procesados, long total);
+    }
+
+    private final TipoReporte tipo;
+    private final Path destino;
+    private final AtomicLong procesados;
+    private final CompletableFuture<ResumenReporte> resultado;
+    private volatile long total;
+    private volatile boolean cancelada;
+
+    TareaReporte(TipoReporte tipo, Path destino) {
+        this.tipo = tipo;
+        this.destino = destino;
+        this.procesados = new AtomicLong();
+        this.resultado = new CompletableFuture<>();
+        this.total = -1;
+    }
+
+    /**
+     * Solicita la cancelación; se atiende al terminar el bloque en curso
+     * y el archivo parcial se elimina
+     */
+    public void cancelar() {
+        cancelada = true;
+    }
+
+    /**
+     * Espera a que termine la generación
+     * @return el resumen del reporte
+     * @throws java.util.concurrent.CancellationException si la tarea fue cancelada
+     */
+    public ResumenReporte esperar() throws InterruptedException, ExecutionException {
+        return resultado.get();
+    }
+
+    /**
+     * Progreso entre 0.0 y 1.0 (0.0 mientras el total sea desconocido)
+     */
+    public double getProgreso() {
+        long esperado = total;
+        if (resultado.isDone() && !resultado.isCompletedExceptionally()) {
+            return 1.0;
+        }
+        if (esperado <= 0) {
+            return 0.0;
+        }
+        return Math.min((double) procesados.get() / esperado, 1.0);
+    }
+
+    void avanzar(long registros) {
+        procesados.addAndGet(registros);
+    }
+
+    void setTotal(long total) {
+        this.total = total;
+    }
+
+    CompletableFuture<ResumenReporte> getResultadoInterno() {
+        return resultado;
+    }
+
+    // ===============================================================
+    // GETTERS
+    // ===============================================================
+
+    public TipoReporte getTipo() { return tipo; }
+    public Path getDestino() { return destino; }
+    public long getProcesados() { return procesados.get(); }
+    public long getTotal() { return total; }
+    public boolean isCancelada() { return cancelada; }
+    public boolean isTerminada() { return resultado.isDone(); }
+
+    /** Resultado asíncrono para encadenar acciones al terminar */
+    public CompletableFuture<ResumenReporte> getResultado() {
+        return resultado.copy();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TareaReporte{tipo=%s, destino=%s, progreso=%.1f%%, cancelada=%s}",
+                tipo, destino, getProgreso() * 100, cancelada);
+    }
+}
@@ -0,0 +1,38 @@
+package com.utp.biblioteca.reporte;
+
+/**
+ * Enumeración TipoReporte
+ * Define los tipos de reporte de circulación que puede generar el motor de reportes
+ */
+public enum TipoReporte {
+    PRESTAMOS("Préstamos realizados en el periodo"),
+    DEVOLUCIONES("Devoluciones registradas en el periodo"),
+    MULTAS("Multas generadas en el periodo"),
+    RESERVAS("Reservas creadas en el periodo");
+    
+    private final String descripcion;
+    
+    TipoReporte(String descripcion) {
+        this.descripcion = descripcion;
+    }
+    
+    public String getDescripcion() {
+        return descripcion;
+    }
+    
+    /**
+     * Convierte el nombre usado en la interfaz (p. ej. "prestamos") al tipo de reporte
+     * @return el tipo correspondiente, null si no existe
+     */
+    public static TipoReporte desdeNombre(String nombre) {
+        if (nombre == null) {
+            return null;
+        }
+        for (TipoReporte tipo : values()) {
+            if (tipo.name().equalsIgnoreCase(nombre.trim())) {
+                return tipo;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+package com.utp.biblioteca.seguridad;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AnilloClaves - CLAVES DE FIRMA CON ROTACIÓN
+ * Una sola clave firma los tokens nuevos (la activa); las anteriores siguen validando los
+ * tokens que firmaron hasta que todos vencen, y entonces se retiran. Cada token lleva el id
+ * de su clave, así que validar no prueba claves a ciegas.
+ *
+ * Las lecturas (validar) no bloquean: el anillo es un arreglo inmutable que se reemplaza
+ * entero al cambiar. Para validar en varias instancias, todas cargan las mismas claves con
+ * agregar() y activan la misma.
+ */
+public final class AnilloClaves {
+
+    private static final int BYTES_CLAVE = 32;
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    private volatile ClaveFirma[] claves = new ClaveFirma[0];
+    private volatile ClaveFirma activa;
+
+    /**
+     * Anillo con una clave aleatoria activa (una sola instancia o pruebas)
+     */
+    public static AnilloClaves conClaveAleatoria() {
+        AnilloClaves anillo = new AnilloClaves();
+        anillo.rotar(Instant.now());
+        return anillo;
+    }
+
+    /**
+     * Agrega una clave compartida (p. ej. leída de la configuración); no la activa
+     */
+    public synchronized void agregar(int id, byte[] secreto) {
+        if (buscar(id) != null) {
+            throw new IllegalArgumentException("Ya existe la clave " + id);
+        }
+        ClaveFirma[] actuales = claves;
+        ClaveFirma[] nuevas = Arrays.copyOf(actuales, actuales.length + 1);
+        nuevas[actuales.length] = new ClaveFirma(id, secreto);
+        claves = nuevas;
+    }
+
+    /**
+     * La clave indicada pasa a firmar los tokens nuevos; la anterior queda solo para validar
+     */
+    public synchronized void activar(int id, Instant momento) {
+        ClaveFirma clave = buscar(id);
+        if (clave == null) {
+            throw new IllegalArgumentException("No existe la clave " + id);
+        }
+        if (activa != null && activa != clave) {
+            activa.desactivar(momento);
+        }
+        activa = clave;
+    }
+
+    /**
+     * Genera una clave aleatoria nueva y la activa
+     * @return id de la nueva clave
+     */
+    public synchronized int rotar(Instant momento) {
+        int id = 1;
+        for (ClaveFirma clave : claves) {
+            id = Math.max(id, clave.getId() + 1);
+        }
+        byte[] secreto = new byte[BYTES_CLAVE];
+        ALEATORIO.nextBytes(secreto);
+        agregar(id, secreto);
+        activar(id, momento);
+        return id;
+    }
+
+    /**
+     * Retira las claves desactivadas hace más de la vigencia máxima de un token:
+     * ningún token firmado con ellas puede seguir vigente
+     * @return claves retiradas
+     */
+    public synchronized int retirarVencidas(Instant ahora, Duration vigenciaMaxima) {
+        List<ClaveFirma> vigentes = new ArrayList<>();
+        for (ClaveFirma clave : claves) {
+            Instant desactivada = clave.getDesactivada();
+            if (clave == activa || desactivada == null || desactivada.plus(vigenciaMaxima).isAfter(ahora)) {
+                vigentes.add(clave);
+            }
+        }
+        int retiradas = claves.length - vigentes.size();
+        claves = vigentes.toArray(new ClaveFirma[0]);
+        return retiradas;
+    }
+
+    /**
+     * Clave con ese id, o null si no existe o ya se retiró
+     */
+    ClaveFirma buscar(int id) {
+        for (ClaveFirma clave : claves) { // unas pocas claves: recorrer gana a un mapa
+            if (clave.getId() == id) {
+                return clave;
+            }
+        }
+        return null;
+    }
+
+    ClaveFirma getActiva() {
+        ClaveFirma clave = activa;
+        if (clave == null) {
+            throw new IllegalStateException("El anillo no tiene una clave activa");
+        }
+        return clave;
+    }
+
+    public int getIdActiva() { return getActiva().getId(); }
+    public int getNumeroClaves() { return claves.length; }
+
+    @Override
+    public String toString() {
+        return String.format("AnilloClaves{claves=%d, activa=%s}", claves.length,
+                activa == null ? "ninguna" : activa.getId());
+    }
+}
@@ -0,0 +1,59 @@
+package com.utp.biblioteca.seguridad;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Una clave HMAC-SHA256 del anillo, con su Mac ya inicializado por hilo
+ * Mac.getInstance + init cuesta microsegundos (búsqueda del proveedor, expansión de la
+ * clave); reutilizar el Mac de cada hilo deja la firma en el costo del propio hash.
+ */
+final class ClaveFirma {
+
+    static final String ALGORITMO = "HmacSHA256";
+
+    private final int id;
+    private final SecretKeySpec secreto;
+    private final ThreadLocal<Mac> macPorHilo;
+    private volatile Instant desactivada; // null = todavía firma tokens nuevos
+
+    ClaveFirma(int id, byte[] secreto) {
+        if (secreto.length < 32) {
+            throw new IllegalArgumentException("La clave " + id + " debe tener al menos 32 bytes");
+        }
+        this.id = id;
+        this.secreto = new SecretKeySpec(secreto.clone(), ALGORITMO);
+        this.macPorHilo = ThreadLocal.withInitial(this::crearMac);
+    }
+
+    private Mac crearMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(secreto);
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("No se pudo inicializar " + ALGORITMO, e);
+        }
+    }
+
+    /**
+     * HMAC de datos[0, longitud) escrito en destino[posicion, posicion + 32)
+     */
+    void firmar(byte[] datos, int longitud, byte[] destino, int posicion) {
+        Mac mac = macPorHilo.get();
+        mac.update(datos, 0, longitud);
+        try {
+            mac.doFinal(destino, posicion); // también reinicia el Mac para la siguiente firma
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar con la clave " + id, e);
+        }
+    }
+
+    int getId() { return id; }
+    Instant getDesactivada() { return desactivada; }
+    void desactivar(Instant momento) { this.desactivada = momento; }
+}
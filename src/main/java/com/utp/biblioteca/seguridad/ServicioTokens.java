@@ -0,0 +1,252 @@
+package com.utp.biblioteca.seguridad;
+
+import com.utp.biblioteca.util.Identificadores;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ServicioTokens - TOKENS FIRMADOS PARA DESCARGAS Y STREAMING
+ * El token lleva todo lo que hace falta para autorizar la entrega (usuario, recurso,
+ * vencimiento, calidad y tipo de usuario, para el ritmo de LimitadorDescargas) firmado con
+ * HMAC-SHA256, así que se valida sin consultar la base de datos ni guardar estado. Formato
+ * (base64url, sin relleno):
+ *   versión(1) | id de clave(4) | vence, segundos epoch(8) | usuario | recurso | calidad | tipo | firma(16)
+ * Los ids UUID viajan en 16 bytes; los demás como texto con su longitud. Los tokens de la
+ * versión 1 (sin tipo) se siguen aceptando hasta que vencen.
+ *
+ * La firma se trunca a 128 bits (RFC 2104 admite truncar HMAC hasta la mitad del hash);
+ * se compara en tiempo constante.
+ */
+public class ServicioTokens {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServicioTokens.class);
+
+    public static final Duration VIGENCIA_MAXIMA_DEFAULT = Duration.ofHours(24);
+
+    private static final byte VERSION_FORMATO = 2;
+    private static final byte VERSION_SIN_TIPO = 1;
+    private static final byte ID_UUID = 0;
+    private static final byte ID_TEXTO = 1;
+    private static final int BYTES_FIRMA = 16;
+    private static final int BYTES_HMAC = 32;
+    private static final int MAXIMO_TEXTO = 255;
+
+    private static volatile ServicioTokens compartido;
+
+    private final AnilloClaves anillo;
+    private final Duration vigenciaMaxima;
+    private final Clock reloj;
+    private final ThreadLocal<byte[]> firmaPorHilo = ThreadLocal.withInitial(() -> new byte[BYTES_HMAC]);
+
+    public ServicioTokens(AnilloClaves anillo) {
+        this(anillo, VIGENCIA_MAXIMA_DEFAULT, Clock.systemUTC());
+    }
+
+    public ServicioTokens(AnilloClaves anillo, Duration vigenciaMaxima, Clock reloj) {
+        if (vigenciaMaxima.isNegative() || vigenciaMaxima.isZero()) {
+            throw new IllegalArgumentException("Vigencia máxima inválida: " + vigenciaMaxima);
+        }
+        this.anillo = anillo;
+        this.vigenciaMaxima = vigenciaMaxima;
+        this.reloj = reloj;
+    }
+
+    /**
+     * Servicio usado por EBook y AudioLibro para generar sus enlaces
+     * Por defecto tiene una clave aleatoria propia del proceso; con varias instancias hay que
+     * configurar uno con las claves compartidas (configurarCompartido).
+     */
+    public static ServicioTokens compartido() {
+        ServicioTokens servicio = compartido;
+        if (servicio == null) {
+            synchronized (ServicioTokens.class) {
+                if (compartido == null) {
+                    compartido = new ServicioTokens(AnilloClaves.conClaveAleatoria());
+                }
+                servicio = compartido;
+            }
+        }
+        return servicio;
+    }
+
+    public static void configurarCompartido(ServicioTokens servicio) {
+        compartido = servicio;
+    }
+
+    // ===============================================================
+    // EMISIÓN
+    // ===============================================================
+
+    /**
+     * Emite un token firmado con la clave activa
+     * @param calidad calidades de streaming permitidas separadas por coma (la primera es la
+     *                preferida), o null para descargas
+     */
+    public String emitir(String usuarioId, String recursoId, Duration vigencia, String calidad) {
+        return emitir(usuarioId, recursoId, vigencia, calidad, null);
+    }
+
+    /**
+     * Emite un token que además lleva el tipo del usuario (perfil de LimitadorDescargas)
+     * @param tipoUsuario tipo del usuario, o null si no se conoce
+     */
+    public String emitir(String usuarioId, String recursoId, Duration vigencia, String calidad, String tipoUsuario) {
+        if (vigencia.isNegative() || vigencia.isZero() || vigencia.compareTo(vigenciaMaxima) > 0) {
+            throw new IllegalArgumentException("Vigencia fuera de rango (máximo " + vigenciaMaxima + "): " + vigencia);
+        }
+        ClaveFirma clave = anillo.getActiva();
+        ByteBuffer datos = ByteBuffer.allocate(1 + 4 + 8 + 2 * (2 + MAXIMO_TEXTO) + 2 * (1 + MAXIMO_TEXTO) + BYTES_HMAC);
+        datos.put(VERSION_FORMATO);
+        datos.putInt(clave.getId());
+        datos.putLong(reloj.instant().plus(vigencia).getEpochSecond());
+        escribirId(datos, usuarioId);
+        escribirId(datos, recursoId);
+        escribirTexto(datos, calidad == null ? "" : calidad);
+        escribirTexto(datos, tipoUsuario == null ? "" : tipoUsuario);
+        int longitud = datos.position();
+        byte[] bytes = datos.array();
+        clave.firmar(bytes, longitud, bytes, longitud); // hay lugar para los 32 bytes del HMAC
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                Arrays.copyOf(bytes, longitud + BYTES_FIRMA));
+    }
+
+    private static void escribirId(ByteBuffer datos, String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Id requerido");
+        }
+        if (Identificadores.esValido(id) && id.equals(id.toLowerCase())) {
+            datos.put(ID_UUID);
+            datos.putLong(Identificadores.alto(id));
+            datos.putLong(Identificadores.bajo(id));
+        } else {
+            datos.put(ID_TEXTO);
+            escribirTexto(datos, id);
+        }
+    }
+
+    private static void escribirTexto(ByteBuffer datos, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAXIMO_TEXTO) {
+            throw new IllegalArgumentException("Texto demasiado largo para un token: " + texto);
+        }
+        datos.put((byte) bytes.length);
+        datos.put(bytes);
+    }
+
+    // ===============================================================
+    // VALIDACIÓN (sin estado)
+    // ===============================================================
+
+    /**
+     * Comprueba formato, clave, firma y vencimiento
+     * @return contenido del token, o vacío si no es válido por cualquier motivo
+     */
+    public Optional<TokenAcceso> validar(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        int longitud = bytes.length - BYTES_FIRMA;
+        if (longitud < 1 + 4 + 8 || (bytes[0] != VERSION_FORMATO && bytes[0] != VERSION_SIN_TIPO)) {
+            return Optional.empty();
+        }
+        boolean conTipo = bytes[0] == VERSION_FORMATO;
+        ByteBuffer datos = ByteBuffer.wrap(bytes, 0, longitud);
+        datos.get();
+        int idClave = datos.getInt();
+        ClaveFirma clave = anillo.buscar(idClave);
+        if (clave == null) {
+            logger.debug("Token con clave desconocida o retirada: {}", idClave);
+            return Optional.empty();
+        }
+        byte[] firma = firmaPorHilo.get();
+        clave.firmar(bytes, longitud, firma, 0);
+        int diferencia = 0;
+        for (int i = 0; i < BYTES_FIRMA; i++) { // tiempo constante: no revela dónde difiere
+            diferencia |= firma[i] ^ bytes[longitud + i];
+        }
+        if (diferencia != 0) {
+            return Optional.empty();
+        }
+        long vence = datos.getLong();
+        if (reloj.instant().getEpochSecond() >= vence) {
+            return Optional.empty();
+        }
+        try {
+            String usuarioId = leerId(datos);
+            String recursoId = leerId(datos);
+            String calidad = leerTexto(datos);
+            String tipoUsuario = conTipo ? leerTexto(datos) : "";
+            if (datos.hasRemaining()) {
+                return Optional.empty();
+            }
+            return Optional.of(new TokenAcceso(usuarioId, recursoId, Instant.ofEpochSecond(vence),
+                    calidad.isEmpty() ? null : calidad, tipoUsuario.isEmpty() ? null : tipoUsuario, idClave));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return Optional.empty(); // firmado pero mal formado: solo con una clave filtrada
+        }
+    }
+
+    /**
+     * Valida el token y que autorice este recurso (el camino de entrega conoce el recurso pedido)
+     */
+    public Optional<TokenAcceso> validarPara(String token, String recursoId) {
+        return validar(token).filter(acceso -> acceso.getRecursoId().equals(recursoId));
+    }
+
+    private static String leerId(ByteBuffer datos) {
+        byte tipo = datos.get();
+        if (tipo == ID_UUID) {
+            return Identificadores.aTexto(datos.getLong(), datos.getLong());
+        }
+        if (tipo != ID_TEXTO) {
+            throw new IllegalArgumentException("Tipo de id desconocido: " + tipo);
+        }
+        return leerTexto(datos);
+    }
+
+    private static String leerTexto(ByteBuffer datos) {
+        int longitud = datos.get() & 0xFF;
+        String texto = new String(datos.array(), datos.position(), longitud, StandardCharsets.UTF_8);
+        datos.position(datos.position() + longitud); // falla si la longitud pasa del final
+        return texto;
+    }
+
+    // ===============================================================
+    // ROTACIÓN
+    // ===============================================================
+
+    /**
+     * Activa una clave nueva y retira las que ya no pueden tener tokens vigentes
+     * @return id de la clave nueva
+     */
+    public int rotarClaves() {
+        Instant ahora = reloj.instant();
+        int id = anillo.rotar(ahora);
+        int retiradas = anillo.retirarVencidas(ahora, vigenciaMaxima);
+        logger.info("Clave de firma rotada: activa {}, {} retiradas", id, retiradas);
+        return id;
+    }
+
+    public AnilloClaves getAnillo() { return anillo; }
+    public Duration getVigenciaMaxima() { return vigenciaMaxima; }
+
+    @Override
+    public String toString() {
+        return String.format("ServicioTokens{%s, vigenciaMaxima=%s}", anillo, vigenciaMaxima);
+    }
+}
@@ -0,0 +1,50 @@
+package com.utp.biblioteca.seguridad;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Contenido de un token de descarga o streaming ya validado (firma correcta y vigente)
+ */
+public final class TokenAcceso {
+
+    private final String usuarioId;
+    private final String recursoId;
+    private final Instant expiracion;
+    private final List<String> calidades; // vacía = sin calidad (descargas, o cualquier variante)
+    private final String tipoUsuario; // null = desconocido (perfil por defecto del limitador)
+    private final int idClave;
+
+    TokenAcceso(String usuarioId, String recursoId, Instant expiracion, String calidad, String tipoUsuario,
+                int idClave) {
+        this.usuarioId = usuarioId;
+        this.recursoId = recursoId;
+        this.expiracion = expiracion;
+        this.calidades = calidad == null ? List.of() : List.of(calidad.toLowerCase(Locale.ROOT).split(","));
+        this.tipoUsuario = tipoUsuario;
+        this.idClave = idClave;
+    }
+
+    public String getUsuarioId() { return usuarioId; }
+    public String getRecursoId() { return recursoId; }
+    public Instant getExpiracion() { return expiracion; }
+    /** Calidad preferida: la primera firmada, o null si el token no lleva calidad */
+    public String getCalidad() { return calidades.isEmpty() ? null : calidades.get(0); }
+    public List<String> getCalidades() { return calidades; }
+
+    /**
+     * @return true si el token autoriza esa variante (uno sin calidad autoriza todas)
+     */
+    public boolean permiteCalidad(String calidad) {
+        return calidades.isEmpty() || calidades.contains(calidad.toLowerCase(Locale.ROOT));
+    }
+    public String getTipoUsuario() { return tipoUsuario; }
+    public int getIdClave() { return idClave; }
+
+    @Override
+    public String toString() {
+        return String.format("TokenAcceso{usuario='%s', tipo=%s, recurso='%s', expira=%s, calidad=%s, clave=%d}",
+                usuarioId, tipoUsuario, recursoId, expiracion, calidades, idClave);
+    }
+}
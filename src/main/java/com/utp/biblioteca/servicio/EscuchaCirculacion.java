@@ -0,0 +1,38 @@
+package com.utp.biblioteca.servicio;
+
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+
+/**
+ * Interface EscuchaCirculacion
+ * Observador de los eventos de circulación (préstamos, devoluciones, reservas y multas).
+ * Todos los métodos tienen implementación vacía para que cada escucha
+ * implemente solo los eventos que le interesan.
+ */
+public interface EscuchaCirculacion {
+
+    /**
+     * Se invoca después de registrar un préstamo
+     */
+    default void alPrestar(Prestamo prestamo) {
+    }
+
+    /**
+     * Se invoca después de procesar una devolución
+     */
+    default void alDevolver(Prestamo prestamo) {
+    }
+
+    /**
+     * Se invoca después de crear una reserva válida
+     */
+    default void alReservar(Reserva reserva) {
+    }
+
+    /**
+     * Se invoca cuando una devolución genera una multa
+     */
+    default void alGenerarMulta(Prestamo prestamo, Multa multa) {
+    }
+}
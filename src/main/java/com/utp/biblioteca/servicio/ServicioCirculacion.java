@@ -0,0 +1,216 @@
+package com.utp.biblioteca.servicio;
+
+import com.utp.biblioteca.cuotas.CuotaDescargas;
+import com.utp.biblioteca.cuotas.CupoReservado;
+import com.utp.biblioteca.model.gestion.EstadoReserva;
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.interfaces.Prestable;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Operacion;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Servicio de circulación
+ * Orquesta préstamos, devoluciones y reservas entre Usuario, Recurso y las clases de gestión,
+ * y notifica cada evento a las escuchas registradas (estadísticas, tendencias, reportes...).
+ * Con una CuotaDescargas, cada préstamo de un eBook reserva antes su cupo de licencia y queda
+ * marcado (Prestamo.tieneCupoLicencia): el servidor de descargas solo entrega con uno así.
+ */
+public class ServicioCirculacion {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServicioCirculacion.class);
+
+    private final List<EscuchaCirculacion> escuchas;
+    private final CuotaDescargas cuotas; // null = sin control de cupos de licencia
+
+    public ServicioCirculacion() {
+        this(null);
+    }
+
+    public ServicioCirculacion(CuotaDescargas cuotas) {
+        this.escuchas = new CopyOnWriteArrayList<>();
+        this.cuotas = cuotas;
+    }
+
+    // ===============================================================
+    // OPERACIONES DE CIRCULACIÓN
+    // ===============================================================
+
+    /**
+     * Presta un recurso a un usuario
+     * @return el préstamo creado, null si el usuario o el recurso no lo permiten
+     */
+    public Prestamo prestar(Usuario usuario, Recurso recurso) {
+        Prestamo prestamo = crearPrestamo(usuario, recurso);
+        if (prestamo != null) {
+            notificarPrestamo(prestamo);
+        }
+        return prestamo;
+    }
+
+    /**
+     * Procesa la devolución de un préstamo
+     * @return true si la devolución fue registrada
+     */
+    public boolean devolver(Prestamo prestamo) {
+        if (!prestamo.procesarDevolucion()) {
+            return false;
+        }
+        liberarCupo(prestamo);
+        notificarDevolucion(prestamo);
+        return true;
+    }
+
+    /**
+     * Reserva un recurso no disponible
+     * @return la reserva creada, null si el recurso no admite la reserva
+     */
+    public Reserva reservar(Usuario usuario, Recurso recurso) {
+        Reserva reserva = crearReserva(usuario, recurso);
+        if (reserva != null) {
+            notificarReserva(reserva);
+        }
+        return reserva;
+    }
+
+    // ===============================================================
+    // OPERACIONES EN DOS PASOS
+    // Para quien debe confirmar una transacción antes de avisar a las escuchas
+    // ===============================================================
+
+    /**
+     * Aplica las reglas del préstamo sin notificar
+     * @return el préstamo creado, null si el usuario o el recurso no lo permiten
+     */
+    public Prestamo crearPrestamo(Usuario usuario, Recurso recurso) {
+        return crearPrestamo(usuario, recurso, cupo -> { });
+    }
+
+    /**
+     * Aplica las reglas del préstamo sin notificar
+     * @param alReservar recibe el cupo de licencia reservado (solo eBooks con cuotas), para
+     *                   anularlo si la transacción del préstamo no se confirma
+     * @return el préstamo creado, null si el usuario o el recurso no lo permiten
+     */
+    public Prestamo crearPrestamo(Usuario usuario, Recurso recurso, Consumer<CupoReservado> alReservar) {
+        if (!usuario.tienePermiso(Operacion.PRESTAR_LIBRO) || !usuario.puedeTomarPrestamo()) {
+            return null;
+        }
+        if (!(recurso instanceof Prestable)) {
+            return null;
+        }
+        CupoReservado cupo = null;
+        if (cuotas != null && recurso instanceof EBook) {
+            EBook ebook = (EBook) recurso;
+            if (!ebook.validarCondicionPrestamo()) {
+                return null;
+            }
+            Instant vence = Instant.now().plus(Duration.ofDays(ebook.calcularDiasPrestamo()));
+            cupo = cuotas.reservarCupo(ebook.getId(), ebook.getLimiteDescargas(), ebook.getDescargasRealizadas(),
+                    vence);
+            if (cupo == null) {
+                return null;
+            }
+        }
+        if (!((Prestable) recurso).prestar()) {
+            if (cupo != null) {
+                cuotas.anular(cupo);
+            }
+            return null;
+        }
+        if (cupo != null) {
+            alReservar.accept(cupo);
+        }
+
+        Prestamo prestamo = new Prestamo(usuario, recurso);
+        if (cupo != null) {
+            prestamo.marcarCupoLicencia(); // lo exige RepositorioPrestamos.tieneVigenteConCupo
+        }
+        usuario.agregarPrestamo(prestamo.getId(), prestamo.getRecursoId());
+        return prestamo;
+    }
+
+    /**
+     * Aplica las reglas de la reserva sin notificar
+     * @return la reserva creada, null si el recurso no admite la reserva
+     */
+    public Reserva crearReserva(Usuario usuario, Recurso recurso) {
+        if (!usuario.tienePermiso(Operacion.RESERVAR_LIBRO)) {
+            return null;
+        }
+
+        Reserva reserva = new Reserva(usuario, recurso);
+        if (reserva.getEstado() == EstadoReserva.CANCELADA) {
+            return null;
+        }
+        return reserva;
+    }
+
+    /**
+     * Devuelve los cupos de un préstamo que no llegó a confirmarse
+     */
+    public void anularCupo(CupoReservado cupo) {
+        cuotas.anular(cupo);
+    }
+
+    /**
+     * Libera el cupo simultáneo de un eBook devuelto (tras confirmar la devolución)
+     */
+    public void liberarCupo(Prestamo prestamo) {
+        if (cuotas != null && prestamo.getRecurso() instanceof EBook) {
+            cuotas.liberar(prestamo.getRecursoId());
+        }
+    }
+
+    public void notificarPrestamo(Prestamo prestamo) {
+        notificar(escucha -> escucha.alPrestar(prestamo));
+    }
+
+    /**
+     * Avisa la devolución y, si la hubo, la multa generada
+     */
+    public void notificarDevolucion(Prestamo prestamo) {
+        notificar(escucha -> escucha.alDevolver(prestamo));
+        Multa multa = prestamo.getMulta();
+        if (multa != null) {
+            notificar(escucha -> escucha.alGenerarMulta(prestamo, multa));
+        }
+    }
+
+    public void notificarReserva(Reserva reserva) {
+        notificar(escucha -> escucha.alReservar(reserva));
+    }
+
+    // ===============================================================
+    // ESCUCHAS
+    // ===============================================================
+
+    public void agregarEscucha(EscuchaCirculacion escucha) {
+        escuchas.add(escucha);
+    }
+
+    public void removerEscucha(EscuchaCirculacion escucha) {
+        escuchas.remove(escucha);
+    }
+
+    private void notificar(Consumer<EscuchaCirculacion> evento) {
+        for (EscuchaCirculacion escucha : escuchas) {
+            try {
+                evento.accept(escucha);
+            } catch (RuntimeException e) {
+                // Una escucha defectuosa no debe revertir la operación de circulación
+                logger.error("Error en escucha de circulación {}", escucha.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.utp.biblioteca.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DiccionarioCadenas - CODIFICACIÓN POR DICCIONARIO
+ * Asigna un código entero pequeño y estable a cada cadena distinta.
+ * Pensado para campos de baja cardinalidad (categorías, formatos, tipos)
+ * que se repiten miles de veces en el catálogo o en el historial.
+ */
+public class DiccionarioCadenas {
+
+    /** Código reservado para valores nulos */
+    public static final int CODIGO_NULO = -1;
+
+    private final ConcurrentHashMap<String, Integer> codigos;
+    private volatile String[] valores;
+    private int tamano;
+
+    public DiccionarioCadenas() {
+        this.codigos = new ConcurrentHashMap<>();
+        this.valores = new String[16];
+        this.tamano = 0;
+    }
+
+    /**
+     * Crea un diccionario con valores ya conocidos (el índice es el código)
+     */
+    public DiccionarioCadenas(List<String> valoresIniciales) {
+        this();
+        for (String valor : valoresIniciales) {
+            codificar(valor);
+        }
+    }
+
+    // ===============================================================
+    // CODIFICACIÓN / DECODIFICACIÓN
+    // ===============================================================
+
+    /**
+     * Obtiene el código de una cadena, registrándola si es nueva
+     */
+    public int codificar(String valor) {
+        if (valor == null) {
+            return CODIGO_NULO;
+        }
+        Integer codigo = codigos.get(valor);
+        if (codigo != null) {
+            return codigo;
+        }
+        return registrar(valor);
+    }
+
+    /**
+     * Obtiene el código de una cadena sin registrarla
+     * @return código existente o CODIGO_NULO si la cadena no está en el diccionario
+     */
+    public int buscarCodigo(String valor) {
+        if (valor == null) {
+            return CODIGO_NULO;
+        }
+        Integer codigo = codigos.get(valor);
+        return codigo != null ? codigo : CODIGO_NULO;
+    }
+
+    /**
+     * Devuelve la cadena compartida asociada a un código
+     */
+    public String decodificar(int codigo) {
+        if (codigo == CODIGO_NULO) {
+            return null;
+        }
+        String[] actuales = valores;
+        if (codigo < 0 || codigo >= actuales.length || actuales[codigo] == null) {
+            throw new IllegalArgumentException("Código no registrado en el diccionario: " + codigo);
+        }
+        return actuales[codigo];
+    }
+
+    private synchronized int registrar(String valor) {
+        Integer existente = codigos.get(valor);
+        if (existente != null) {
+            return existente;
+        }
+        int codigo = tamano;
+        String[] nuevos = valores;
+        if (codigo == nuevos.length) {
+            nuevos = Arrays.copyOf(nuevos, nuevos.length * 2);
+        }
+        nuevos[codigo] = valor;
+        // Publicar el arreglo antes que el código para que decodificar nunca falle
+        valores = nuevos;
+        tamano++;
+        codigos.put(valor, codigo);
+        return codigo;
+    }
+
+    // ===============================================================
+    // CONSULTAS
+    // ===============================================================
+
+    public synchronized int getTamano() { return tamano; }
+
+    /**
+     * Obtiene todos los valores ordenados por código
+     */
+    public synchronized List<String> getValores() {
+        List<String> lista = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            lista.add(valores[i]);
+        }
+        return lista;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DiccionarioCadenas{valores=%d}", getTamano());
+    }
+}
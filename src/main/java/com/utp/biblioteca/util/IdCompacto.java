@@ -0,0 +1,116 @@
+package com.utp.biblioteca.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IdCompacto - IDENTIFICADOR COMO VALOR DE DOS LONG
+ * Para colecciones de ids que viven en las entidades (p. ej. préstamos activos del usuario):
+ * un UUID canónico ocupa dos long en lugar de un String de 36 caracteres, y equals/hashCode
+ * comparan los long sin recorrer texto. Los ids que no son UUID canónicos en minúsculas
+ * (importados, en mayúsculas) se conservan como texto para devolverlos idénticos.
+ *
+ * Inmutable; el texto se reconstruye solo en la frontera (toString, Convertidor).
+ */
+public final class IdCompacto {
+
+    private final long alto;
+    private final long bajo;
+    private final String texto; // null si el id cabe en los dos long
+
+    private IdCompacto(long alto, long bajo, String texto) {
+        this.alto = alto;
+        this.bajo = bajo;
+        this.texto = texto;
+    }
+
+    /**
+     * @return null si el texto es null
+     */
+    public static IdCompacto de(String id) {
+        if (id == null) {
+            return null;
+        }
+        if (!esCompactable(id)) {
+            return new IdCompacto(Identificadores.SIN_ID, Identificadores.SIN_ID, id);
+        }
+        return new IdCompacto(Identificadores.altoValidado(id), Identificadores.bajoValidado(id), null);
+    }
+
+    /**
+     * Texto de cada id, en el mismo orden (los null se conservan)
+     */
+    public static List<String> aTextos(List<IdCompacto> ids) {
+        List<String> textos = new ArrayList<>(ids.size());
+        for (IdCompacto id : ids) {
+            textos.add(id == null ? null : id.toString());
+        }
+        return textos;
+    }
+
+    // Solo minúsculas, para que toString devuelva el mismo texto; el UUID nulo coincide con SIN_ID
+    private static boolean esCompactable(String id) {
+        if (!Identificadores.esValido(id)) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) >= 'A' && id.charAt(i) <= 'F') {
+                return false;
+            }
+        }
+        return !Identificadores.esAusente(Identificadores.altoValidado(id), Identificadores.bajoValidado(id));
+    }
+
+    public boolean isCompacto() {
+        return texto == null;
+    }
+
+    public long getAlto() { return alto; }
+
+    public long getBajo() { return bajo; }
+
+    @Override
+    public boolean equals(Object otro) {
+        if (this == otro) {
+            return true;
+        }
+        if (!(otro instanceof IdCompacto)) {
+            return false;
+        }
+        IdCompacto id = (IdCompacto) otro;
+        return alto == id.alto && bajo == id.bajo && (texto == null ? id.texto == null : texto.equals(id.texto));
+    }
+
+    @Override
+    public int hashCode() {
+        if (texto != null) {
+            return texto.hashCode();
+        }
+        long mezcla = alto ^ bajo;
+        return (int) (mezcla ^ (mezcla >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return texto != null ? texto : Identificadores.aTexto(alto, bajo);
+    }
+
+    /**
+     * Columna de texto: la base de datos sigue guardando el id como VARCHAR
+     */
+    @Converter
+    public static class Convertidor implements AttributeConverter<IdCompacto, String> {
+
+        @Override
+        public String convertToDatabaseColumn(IdCompacto id) {
+            return id == null ? null : id.toString();
+        }
+
+        @Override
+        public IdCompacto convertToEntityAttribute(String texto) {
+            return de(texto);
+        }
+    }
+}
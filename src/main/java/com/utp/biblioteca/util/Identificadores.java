@@ -0,0 +1,135 @@
+package com.utp.biblioteca.util;
+
+import java.util.Arrays;
+
+/**
+ * Identificadores - IDENTIFICADORES COMPACTOS
+ * Las entidades usan UUID en texto (36 caracteres, unos 88 bytes por String en el heap).
+ * Las estructuras internas que guardan millones de ids (índices, columnas de historial)
+ * los convierten aquí en dos long (16 bytes, sin objetos) y vuelven al texto solo en la
+ * frontera con la interfaz, la exportación o la base de datos.
+ *
+ * El análisis no crea objetos: no usa UUID.fromString ni expresiones regulares.
+ */
+public final class Identificadores {
+
+    /** Par (0, 0): marca de identificador ausente o que no es un UUID */
+    public static final long SIN_ID = 0L;
+
+    private static final int LONGITUD_TEXTO = 36;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Valor de cada carácter ASCII como dígito hexadecimal (-1 si no lo es). Con dígitos
+    // aleatorios, comparar rangos ('0'-'9', 'a'-'f') falla la predicción de saltos en casi
+    // cada carácter; la tabla cuesta un acceso a memoria que siempre está en caché.
+    private static final byte[] VALOR_HEX = new byte[128];
+
+    static {
+        Arrays.fill(VALOR_HEX, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALOR_HEX['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALOR_HEX['a' + i] = (byte) (10 + i);
+            VALOR_HEX['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Identificadores() {
+    }
+
+    // ===============================================================
+    // TEXTO -> DOS LONG
+    // ===============================================================
+
+    /**
+     * Verifica el formato canónico 8-4-4-4-12 en hexadecimal
+     */
+    public static boolean esValido(String texto) {
+        if (texto == null || texto.length() != LONGITUD_TEXTO || texto.charAt(8) != '-'
+                || texto.charAt(13) != '-' || texto.charAt(18) != '-' || texto.charAt(23) != '-') {
+            return false;
+        }
+        // Un dígito inválido deja el segmento en negativo: un solo salto al final
+        return (hex(texto, 0, 8) | hex(texto, 9, 13) | hex(texto, 14, 18)
+                | hex(texto, 19, 23) | hex(texto, 24, 36)) >= 0;
+    }
+
+    /**
+     * 64 bits altos del UUID (mismo valor que UUID.getMostSignificantBits)
+     * @throws IllegalArgumentException si el texto no es un UUID canónico
+     */
+    public static long alto(String texto) {
+        validar(texto);
+        return altoValidado(texto);
+    }
+
+    /**
+     * 64 bits bajos del UUID (mismo valor que UUID.getLeastSignificantBits)
+     * @throws IllegalArgumentException si el texto no es un UUID canónico
+     */
+    public static long bajo(String texto) {
+        validar(texto);
+        return bajoValidado(texto);
+    }
+
+    // Variantes sin validar para quien ya llamó a esValido (un solo recorrido del texto)
+    static long altoValidado(String texto) {
+        return (hex(texto, 0, 8) << 32) | (hex(texto, 9, 13) << 16) | hex(texto, 14, 18);
+    }
+
+    static long bajoValidado(String texto) {
+        return (hex(texto, 19, 23) << 48) | hex(texto, 24, 36);
+    }
+
+    private static void validar(String texto) {
+        if (!esValido(texto)) {
+            throw new IllegalArgumentException("Identificador no es un UUID: " + texto);
+        }
+    }
+
+    // Segmentos de hasta 12 dígitos (48 bits): un dígito inválido (-1) vuelve negativo el resultado
+    private static long hex(String texto, int desde, int hasta) {
+        long valor = 0;
+        for (int i = desde; i < hasta; i++) {
+            valor = (valor << 4) | digito(texto.charAt(i));
+        }
+        return valor;
+    }
+
+    private static int digito(char c) {
+        return c < VALOR_HEX.length ? VALOR_HEX[c] : -1;
+    }
+
+    // ===============================================================
+    // DOS LONG -> TEXTO (solo en la frontera)
+    // ===============================================================
+
+    /**
+     * Texto canónico en minúsculas, igual a UUID.toString
+     */
+    public static String aTexto(long alto, long bajo) {
+        char[] texto = new char[LONGITUD_TEXTO];
+        escribir(texto, 0, alto >>> 32, 8);
+        texto[8] = '-';
+        escribir(texto, 9, alto >>> 16, 4);
+        texto[13] = '-';
+        escribir(texto, 14, alto, 4);
+        texto[18] = '-';
+        escribir(texto, 19, bajo >>> 48, 4);
+        texto[23] = '-';
+        escribir(texto, 24, bajo, 12);
+        return new String(texto);
+    }
+
+    private static void escribir(char[] destino, int desde, long valor, int digitos) {
+        for (int i = desde + digitos - 1; i >= desde; i--) {
+            destino[i] = HEX[(int) (valor & 0xF)];
+            valor >>>= 4;
+        }
+    }
+
+    public static boolean esAusente(long alto, long bajo) {
+        return alto == SIN_ID && bajo == SIN_ID;
+    }
+}
@@ -0,0 +1,250 @@
+package com.utp.biblioteca.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IndiceIdentificadores - MAPA DE CLAVES PRIMITIVAS
+ * Asocia identificadores UUID con un entero (posición en un arreglo, número de registro, fila).
+ * Las claves se guardan como dos long en arreglos paralelos con direccionamiento abierto:
+ * sin objetos por entrada (ni String, ni Integer, ni nodos), unos 20 bytes por entrada
+ * con la carga máxima frente a los ~140 de un HashMap&lt;String, Integer&gt;.
+ *
+ * Los ids que no son UUID canónicos (datos importados) van a un HashMap auxiliar, así que
+ * el índice acepta cualquier texto. No es seguro para hilos: se construye y después se
+ * publica (por ejemplo, a través de un campo volatile).
+ */
+public class IndiceIdentificadores {
+
+    /** Valor devuelto cuando el identificador no está en el índice */
+    public static final int NO_ENCONTRADO = -1;
+
+    private static final float CARGA_MAXIMA = 0.6f;
+    private static final int CAPACIDAD_MINIMA = 16;
+
+    private long[] altos;
+    private long[] bajos;
+    private int[] valores;
+    private int mascara;
+    private int tamano;
+    private int umbral;
+
+    // Ids que no son UUID (y el UUID nulo, que coincide con la marca de hueco vacío)
+    private Map<String, Integer> otros;
+
+    public IndiceIdentificadores() {
+        this(CAPACIDAD_MINIMA);
+    }
+
+    /**
+     * @param entradasEsperadas entradas que caben sin redimensionar
+     */
+    public IndiceIdentificadores(int entradasEsperadas) {
+        reservar(capacidadPara(entradasEsperadas));
+    }
+
+    private static int capacidadPara(int entradas) {
+        long necesaria = (long) Math.ceil(Math.max(entradas, 1) / (double) CARGA_MAXIMA);
+        if (necesaria > 1 << 30) {
+            throw new IllegalArgumentException("Demasiadas entradas para el índice: " + entradas);
+        }
+        return Math.max(CAPACIDAD_MINIMA, Integer.highestOneBit((int) necesaria - 1) << 1);
+    }
+
+    private void reservar(int capacidad) {
+        altos = new long[capacidad];
+        bajos = new long[capacidad];
+        valores = new int[capacidad];
+        mascara = capacidad - 1;
+        umbral = (int) (capacidad * CARGA_MAXIMA);
+    }
+
+    // ===============================================================
+    // CONSULTAS
+    // ===============================================================
+
+    /**
+     * @return el valor asociado o NO_ENCONTRADO
+     */
+    public int obtener(String id) {
+        if (!Identificadores.esValido(id)) {
+            return obtenerOtro(id);
+        }
+        return obtener(Identificadores.altoValidado(id), Identificadores.bajoValidado(id));
+    }
+
+    /**
+     * Búsqueda con el id ya convertido: no recorre texto ni crea objetos
+     */
+    public int obtener(long alto, long bajo) {
+        if (Identificadores.esAusente(alto, bajo)) {
+            return obtenerOtro(Identificadores.aTexto(alto, bajo));
+        }
+        for (int i = posicion(alto, bajo); ; i = (i + 1) & mascara) {
+            if (altos[i] == alto && bajos[i] == bajo) {
+                return valores[i];
+            }
+            if (libre(i)) {
+                return NO_ENCONTRADO;
+            }
+        }
+    }
+
+    public boolean contiene(String id) {
+        return obtener(id) != NO_ENCONTRADO;
+    }
+
+    public int getTamano() {
+        return tamano + (otros != null ? otros.size() : 0);
+    }
+
+    // ===============================================================
+    // MODIFICACIÓN
+    // ===============================================================
+
+    /**
+     * @param valor entero no negativo
+     * @return el valor anterior o NO_ENCONTRADO
+     */
+    public int poner(String id, int valor) {
+        if (!Identificadores.esValido(id)) {
+            return ponerOtro(id, valor);
+        }
+        return poner(Identificadores.altoValidado(id), Identificadores.bajoValidado(id), valor);
+    }
+
+    public int poner(long alto, long bajo, int valor) {
+        if (Identificadores.esAusente(alto, bajo)) {
+            return ponerOtro(Identificadores.aTexto(alto, bajo), valor);
+        }
+        comprobarValor(valor);
+        int i = posicion(alto, bajo);
+        for (; !libre(i); i = (i + 1) & mascara) {
+            if (altos[i] == alto && bajos[i] == bajo) {
+                int anterior = valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+        }
+        altos[i] = alto;
+        bajos[i] = bajo;
+        valores[i] = valor;
+        if (++tamano > umbral) {
+            redimensionar();
+        }
+        return NO_ENCONTRADO;
+    }
+
+    /**
+     * @return el valor eliminado o NO_ENCONTRADO
+     */
+    public int eliminar(String id) {
+        if (!Identificadores.esValido(id)) {
+            return eliminarOtro(id);
+        }
+        return eliminar(Identificadores.altoValidado(id), Identificadores.bajoValidado(id));
+    }
+
+    public int eliminar(long alto, long bajo) {
+        if (Identificadores.esAusente(alto, bajo)) {
+            return eliminarOtro(Identificadores.aTexto(alto, bajo));
+        }
+        for (int i = posicion(alto, bajo); !libre(i); i = (i + 1) & mascara) {
+            if (altos[i] == alto && bajos[i] == bajo) {
+                int anterior = valores[i];
+                desplazarHaciaAtras(i);
+                tamano--;
+                return anterior;
+            }
+        }
+        return NO_ENCONTRADO;
+    }
+
+    // Ids fuera de la tabla primitiva (no UUID o UUID nulo)
+    private int obtenerOtro(String id) {
+        Integer valor = otros != null ? otros.get(id) : null;
+        return valor != null ? valor : NO_ENCONTRADO;
+    }
+
+    private int ponerOtro(String id, int valor) {
+        comprobarValor(valor);
+        if (otros == null) {
+            otros = new HashMap<>();
+        }
+        Integer anterior = otros.put(id, valor);
+        return anterior != null ? anterior : NO_ENCONTRADO;
+    }
+
+    private int eliminarOtro(String id) {
+        Integer anterior = otros != null ? otros.remove(id) : null;
+        return anterior != null ? anterior : NO_ENCONTRADO;
+    }
+
+    /**
+     * Borrado sin lápidas: las entradas siguientes del mismo grupo retroceden al hueco
+     * si su posición ideal lo permite, para que ninguna búsqueda se corte antes de tiempo
+     */
+    private void desplazarHaciaAtras(int hueco) {
+        int i = hueco;
+        while (true) {
+            i = (i + 1) & mascara;
+            if (libre(i)) {
+                break;
+            }
+            int ideal = posicion(altos[i], bajos[i]);
+            // ¿La entrada i puede ocupar el hueco sin quedar antes de su posición ideal?
+            if (((i - ideal) & mascara) >= ((i - hueco) & mascara)) {
+                altos[hueco] = altos[i];
+                bajos[hueco] = bajos[i];
+                valores[hueco] = valores[i];
+                hueco = i;
+            }
+        }
+        altos[hueco] = Identificadores.SIN_ID;
+        bajos[hueco] = Identificadores.SIN_ID;
+    }
+
+    private void redimensionar() {
+        long[] altosViejos = altos;
+        long[] bajosViejos = bajos;
+        int[] valoresViejos = valores;
+        reservar(altosViejos.length << 1);
+        for (int j = 0; j < altosViejos.length; j++) {
+            if (altosViejos[j] != Identificadores.SIN_ID || bajosViejos[j] != Identificadores.SIN_ID) {
+                int i = posicion(altosViejos[j], bajosViejos[j]);
+                while (!libre(i)) {
+                    i = (i + 1) & mascara;
+                }
+                altos[i] = altosViejos[j];
+                bajos[i] = bajosViejos[j];
+                valores[i] = valoresViejos[j];
+            }
+        }
+    }
+
+    private static void comprobarValor(int valor) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("El índice solo guarda valores no negativos: " + valor);
+        }
+    }
+
+    private boolean libre(int i) {
+        return altos[i] == Identificadores.SIN_ID && bajos[i] == Identificadores.SIN_ID;
+    }
+
+    /**
+     * Mezcla los 128 bits: los UUID ordenados por tiempo no deben agruparse en la tabla
+     */
+    private int posicion(long alto, long bajo) {
+        long h = alto * 0x9E3779B97F4A7C15L ^ bajo;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h & mascara;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IndiceIdentificadores{entradas=%d, capacidad=%d}", getTamano(), altos.length);
+    }
+}
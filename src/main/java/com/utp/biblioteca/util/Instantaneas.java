@@ -0,0 +1,45 @@
+package com.utp.biblioteca.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instantaneas - VISTAS INMUTABLES COMPARTIDAS EN LUGAR DE COPIAS DEFENSIVAS
+ * Los getters de listas de las entidades devolvían una copia nueva en cada llamada, y se
+ * llaman dentro de bucles de búsqueda y al refrescar pantallas. Ahora cada entidad guarda una
+ * instantánea inmutable y la devuelve hasta que la lista cambia.
+ *
+ * El getter no recorre la lista: la entidad descarta la instantánea (la pone en null) en cada
+ * método que modifica la lista, en @PostLoad, porque Hibernate la reemplaza al cargar o
+ * refrescar, y en @PreUpdate/@PostUpdate, porque un merge la rellena en su sitio sin pasar
+ * por la entidad. Además se compara el tamaño, que también es O(1); es solo una red barata:
+ * un relleno con el mismo tamaño no se ve hasta que el merge se escribe (flush).
+ */
+public final class Instantaneas {
+
+    private Instantaneas() {
+    }
+
+    /**
+     * Devuelve la instantánea guardada, o una nueva si no la hay o si el tamaño ya no coincide
+     * Uso: {@code return vista = Instantaneas.vigente(vista, lista);} y {@code vista = null}
+     * en cada método que modifica la lista.
+     */
+    public static <E> List<E> vigente(List<E> instantanea, List<E> origen) {
+        if (instantanea != null && instantanea.size() == origen.size()) {
+            return instantanea;
+        }
+        return de(origen);
+    }
+
+    /**
+     * Copia inmutable; admite elementos null (List.copyOf no)
+     */
+    public static <E> List<E> de(List<E> origen) {
+        if (origen.isEmpty()) {
+            return List.of();
+        }
+        return origen.contains(null) ? Collections.unmodifiableList(new ArrayList<>(origen)) : List.copyOf(origen);
+    }
+}
@@ -0,0 +1,60 @@
+package com.utp.biblioteca.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * LiberadorMapeos - DESMAPEO EXPLÍCITO DE ARCHIVOS
+ * Un MappedByteBuffer solo se desmapea cuando el recolector lo descarta; mientras tanto, en
+ * Windows el archivo no se puede truncar, sobrescribir ni borrar. Este ayudante libera el mapeo
+ * en el momento con sun.misc.Unsafe.invokeCleaner (módulo jdk.unsupported), buscado por
+ * reflexión; si no está disponible se deja el mapeo al recolector, como antes.
+ */
+public final class LiberadorMapeos {
+
+    private static final Object UNSAFE;
+    private static final Method INVOCAR_LIMPIADOR;
+
+    static {
+        Object unsafe = null;
+        Method invocar = null;
+        try {
+            Class<?> clase = Class.forName("sun.misc.Unsafe");
+            Field instancia = clase.getDeclaredField("theUnsafe");
+            instancia.setAccessible(true);
+            unsafe = instancia.get(null);
+            invocar = clase.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invocar = null;
+        }
+        UNSAFE = unsafe;
+        INVOCAR_LIMPIADOR = invocar;
+    }
+
+    private LiberadorMapeos() {
+    }
+
+    /**
+     * Desmapea el buffer devuelto por FileChannel.map (no una vista ni un slice de él)
+     * Ninguna vista del buffer puede usarse después: su memoria deja de existir.
+     * @return false si el mapeo queda a cargo del recolector
+     */
+    public static boolean liberar(MappedByteBuffer mapa) {
+        if (INVOCAR_LIMPIADOR == null || mapa == null) {
+            return false;
+        }
+        try {
+            INVOCAR_LIMPIADOR.invoke(UNSAFE, mapa);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    public static boolean isDisponible() {
+        return INVOCAR_LIMPIADOR != null;
+    }
+}
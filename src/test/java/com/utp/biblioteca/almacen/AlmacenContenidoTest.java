@@ -0,0 +1,160 @@
+package com.utp.biblioteca.almacen;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.recurso.EBook;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Almacén direccionado por contenido: deduplicación, referencias y reapertura
+ */
+class AlmacenContenidoTest {
+
+    private static final int BLOQUE = 64 * 1024;
+
+    @TempDir
+    Path directorio;
+
+    private Path archivo(String nombre, byte[] contenido) throws Exception {
+        Path ruta = directorio.resolve(nombre);
+        Files.write(ruta, contenido);
+        return ruta;
+    }
+
+    private static byte[] aleatorio(int tamano, long semilla) {
+        byte[] bytes = new byte[tamano];
+        new Random(semilla).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void elMismoContenidoSeGuardaUnaVezYSeBorraConLaUltimaReferencia() throws Exception {
+        Path raiz = directorio.resolve("almacen");
+        byte[] pdf = aleatorio(5 * BLOQUE + 123, 1);
+        byte[] otro = aleatorio(3 * BLOQUE, 2);
+        // Mismo PDF con una página más: comparte los primeros bloques
+        byte[] ampliado = Arrays.copyOf(pdf, 7 * BLOQUE);
+        System.arraycopy(aleatorio(2 * BLOQUE - 123, 3), 0, ampliado, 5 * BLOQUE + 123, 2 * BLOQUE - 123);
+
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática", LocalDate.of(2008, 8, 1),
+                "PDF", 0.3, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        try (AlmacenContenido almacen = AlmacenContenido.abrir(raiz, BLOQUE, 3)) {
+            ManifiestoContenido primero = almacen.guardar(ebook, archivo("a.pdf", pdf));
+            ManifiestoContenido copia = almacen.guardar("sistemas-clean-code", archivo("b.pdf", pdf));
+            almacen.guardar("otro", archivo("c.pdf", otro));
+            almacen.guardar("ampliado", archivo("d.pdf", ampliado));
+            almacen.guardar("vacio", archivo("e.pdf", new byte[0]));
+
+            assertEquals(primero.getHuella(), copia.getHuella());
+            assertEquals(6, primero.getBloques().size());
+            assertEquals(2L * pdf.length + otro.length + ampliado.length, almacen.getBytesLogicos());
+            // pdf: 6 bloques; otro: 3; ampliado: 5 compartidos + 2 propios
+            assertEquals(6 + 3 + 2, almacen.getBloques());
+            assertEquals(pdf.length + otro.length + 2L * BLOQUE, almacen.getBytesFisicos());
+
+            try (InputStream entrada = almacen.abrirContenido("sistemas-clean-code")) {
+                assertArrayEquals(pdf, entrada.readAllBytes());
+            }
+            Path restaurado = directorio.resolve("restaurado.pdf");
+            assertEquals(ampliado.length, almacen.restaurar("ampliado", restaurado));
+            assertArrayEquals(ampliado, Files.readAllBytes(restaurado));
+            assertTrue(almacen.verificar(ebook.getId()));
+
+            InformeDuplicados informe = almacen.informeDuplicados();
+            assertEquals(1, informe.getGrupos().size());
+            assertEquals(List.of(ebook.getId(), "sistemas-clean-code").stream().sorted().toList(),
+                    informe.getGrupos().get(primero.getHuella()));
+            assertEquals(1, informe.getRecursosDuplicados());
+            assertEquals(almacen.getBytesLogicos() - almacen.getBytesFisicos(), informe.getBytesAhorrados());
+            assertTrue(informe.describir(id -> id.equals(ebook.getId()) ? ebook.getTitulo() : null).get(0)
+                    .endsWith("Clean Code | sistemas-clean-code"));
+
+            // Quitar una copia no borra bloques; quitar la última sí, salvo los compartidos
+            assertTrue(almacen.eliminar(ebook.getId()));
+            assertEquals(11, almacen.getBloques());
+            assertTrue(almacen.eliminar("sistemas-clean-code"));
+            assertEquals(3 + 7, almacen.getBloques());
+            assertFalse(almacen.eliminar("sistemas-clean-code"));
+            assertTrue(almacen.verificar("ampliado"));
+
+            // Reemplazar el archivo de un recurso libera los bloques del anterior
+            almacen.guardar("otro", archivo("f.pdf", aleatorio(BLOQUE, 4)));
+            assertEquals(1 + 7, almacen.getBloques());
+            assertThrows(IllegalArgumentException.class, () -> almacen.guardar("../fuera", directorio.resolve("a.pdf")));
+            assertThrows(IllegalArgumentException.class, () -> almacen.abrirContenido("no-existe"));
+        }
+
+        // Al reabrir, las referencias se reconstruyen desde los manifiestos
+        try (AlmacenContenido almacen = AlmacenContenido.abrir(raiz, BLOQUE, 2)) {
+            assertEquals(3, almacen.getArchivos());
+            assertEquals(1 + 7, almacen.getBloques());
+            assertEquals(0, almacen.recolectarHuerfanos());
+            assertTrue(almacen.eliminar("ampliado"));
+            assertEquals(1, almacen.getBloques());
+            try (InputStream entrada = almacen.abrirContenido("vacio")) {
+                assertEquals(0, entrada.readAllBytes().length);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> AlmacenContenido.abrir(raiz, 2 * BLOQUE, 1));
+    }
+
+    @Test
+    void guardarYEliminarConcurrentesNoPierdenBloques() throws Exception {
+        // Cuatro contenidos que comparten bloques, guardados y eliminados desde varios hilos
+        byte[] base = aleatorio(8 * BLOQUE, 5);
+        List<Path> archivos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            byte[] variante = base.clone();
+            variante[i * BLOQUE] ^= 1;
+            archivos.add(archivo("v" + i + ".pdf", variante));
+        }
+        try (AlmacenContenido almacen = AlmacenContenido.abrir(directorio.resolve("almacen"), BLOQUE, 4)) {
+            ExecutorService ejecutor = Executors.newFixedThreadPool(6);
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < 6; h++) {
+                int hilo = h;
+                tareas.add(ejecutor.submit(() -> {
+                    for (int i = 0; i < 40; i++) {
+                        String id = "r" + hilo + "-" + (i % 3);
+                        almacen.guardar(id, archivos.get((hilo + i) % 4));
+                        if (i % 5 == 4) {
+                            almacen.eliminar(id);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            ejecutor.shutdown();
+            for (int h = 0; h < 6; h++) {
+                for (int k = 0; k < 3; k++) {
+                    String id = "r" + h + "-" + k;
+                    if (almacen.contiene(id)) {
+                        assertTrue(almacen.verificar(id), id);
+                    }
+                }
+            }
+            assertEquals(0, almacen.recolectarHuerfanos());
+            assertNotEquals(0, almacen.getBloquesReutilizados());
+        }
+    }
+}
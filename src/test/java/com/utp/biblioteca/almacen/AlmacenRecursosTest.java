@@ -0,0 +1,183 @@
+package com.utp.biblioteca.almacen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas del almacén de recursos fuera del heap y sus vistas
+ */
+class AlmacenRecursosTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void materializarConservaTiposYEstado() {
+        LibroFisico libro = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        libro.setDescripcion("Novela clásica");
+        libro.agregarPalabraClave("novela");
+        libro.agregarPalabraClave("clásico");
+        libro.setEstado("Bueno");
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "EPUB", 3.2, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        ebook.setRequiereDRM(false);
+        ebook.restaurarDescargas(7);
+        AudioLibro audio = new AudioLibro("Sapiens", "Yuval Noah Harari", "Historia",
+                LocalDate.of(2014, 1, 1), 900, "M4A", "Derek Perkins", "Alta");
+        audio.setPermiteDescarga(true);
+        audio.setUrlStreaming("https://biblioteca.utp.edu.pe/audio/sapiens");
+        audio.restaurarEstado("AUD-001", false, 4, LocalDate.of(2024, 5, 2));
+
+        try (AlmacenRecursos almacen = AlmacenRecursos.enMemoria()) {
+            almacen.agregar(libro);
+            almacen.agregar(ebook);
+            almacen.agregar(audio);
+            assertEquals(3, almacen.getTamano());
+            assertThrows(IllegalArgumentException.class, () -> almacen.agregar(libro));
+
+            LibroFisico libroLeido = (LibroFisico) almacen.buscarRecurso(libro.getId());
+            assertEquals(libro.getId(), libroLeido.getId());
+            assertEquals(libro.getTitulo(), libroLeido.getTitulo());
+            assertEquals(libro.getFechaPublicacion(), libroLeido.getFechaPublicacion());
+            assertEquals(libro.getIsbn(), libroLeido.getIsbn());
+            assertEquals(863, libroLeido.getNumeroPaginas());
+            assertEquals("Cátedra", libroLeido.getEditorial());
+            assertEquals("A-12", libroLeido.getUbicacion());
+            assertEquals("Bueno", libroLeido.getEstado());
+            assertEquals("Novela clásica", libroLeido.getDescripcion());
+            assertEquals(List.of("novela", "clásico"), libroLeido.getPalabrasClave());
+
+            EBook ebookLeido = (EBook) almacen.buscarRecurso(ebook.getId());
+            assertEquals("EPUB", ebookLeido.getFormato());
+            assertEquals(3.2, ebookLeido.getTamanoMB());
+            assertEquals(ebook.getUrlDescarga(), ebookLeido.getUrlDescarga());
+            assertFalse(ebookLeido.isRequiereDRM());
+            assertEquals(7, ebookLeido.getDescargasRealizadas());
+            assertNull(ebookLeido.getDescripcion());
+
+            // Id que no es UUID: se guarda como cadena
+            AudioLibro audioLeido = (AudioLibro) almacen.buscarRecurso("AUD-001");
+            assertEquals("AUD-001", audioLeido.getId());
+            assertEquals(900, audioLeido.getDuracionMinutos());
+            assertEquals("Alta", audioLeido.getCalidad());
+            assertEquals(audio.getTamanoMB(), audioLeido.getTamanoMB());
+            assertEquals(audio.getUrlStreaming(), audioLeido.getUrlStreaming());
+            assertTrue(audioLeido.isPermiteDescarga());
+            assertFalse(audioLeido.isDisponible());
+            assertEquals(4, audioLeido.getNumeroVecesPrestado());
+            assertEquals(LocalDate.of(2024, 5, 2), audioLeido.getFechaUltimoPrestamo());
+
+            assertNull(almacen.buscarRecurso("no-existe"));
+        }
+    }
+
+    @Test
+    void laVistaBuscaConLasMismasReglasQueRecurso() {
+        List<Recurso> recursos = new ArrayList<>();
+        String[] titulos = { "Cien años de soledad", "CLEAN Architecture", "Ñandú y Kelvin", "El ÉXITO",
+                "clean code", "Álgebra Lineal" };
+        for (int i = 0; i < titulos.length; i++) {
+            Recurso recurso = i % 2 == 0
+                    ? new LibroFisico(titulos[i], "Autor " + (i % 3), "Literatura",
+                            LocalDate.of(1990 + i, 1, 1), "978-" + i, 100, "Editorial", "A-" + i)
+                    : new EBook(titulos[i], "Autor " + (i % 3), "Informática", LocalDate.of(1990 + i, 1, 1),
+                            "PDF", 1.5, "https://biblioteca.utp.edu.pe/e/" + i);
+            recurso.setDescripcion("Descripción " + i);
+            recurso.agregarPalabraClave("tema" + i);
+            recursos.add(recurso);
+        }
+        recursos.get(1).registrarPrestamo();
+
+        // Segmentos pequeños: las ranuras y las cadenas cruzan varios segmentos
+        try (AlmacenRecursos almacen = AlmacenRecursos.enMemoria(2, 64)) {
+            recursos.forEach(almacen::agregar);
+            List<String> terminos = List.of("clean", "ÑANDÚ", "éxito", "o", "álgebra", "zzz");
+            List<Map<String, Object>> filtros = List.of(Map.of("disponible", true),
+                    Map.of("categoria", "Informática", "tipo", "EBook"), Map.of("añoPublicacion", 1994),
+                    Map.of("categoria", "Inexistente"));
+
+            VistaRecurso vista = almacen.vista(0);
+            for (int i = 0; i < recursos.size(); i++) {
+                Recurso recurso = recursos.get(i);
+                vista.mover(i);
+                assertEquals(recurso.getResumenParaBusqueda(), vista.getResumenParaBusqueda());
+                assertEquals(recurso.getPalabrasClaveIndexables(), vista.getPalabrasClaveIndexables());
+                assertEquals(recurso.calcularRelevancia(terminos), vista.calcularRelevancia(terminos));
+                assertEquals(recurso.buscarPorPalabrasClave(List.of("tema3")), vista.buscarPorPalabrasClave(List.of("tema3")));
+                assertEquals(recurso.buscarPorAutor("autor 1"), vista.buscarPorAutor("autor 1"));
+                assertEquals(recurso.buscarPorCategoria("literatura"), vista.buscarPorCategoria("literatura"));
+                for (String termino : terminos) {
+                    assertEquals(recurso.buscarPorTitulo(termino), vista.buscarPorTitulo(termino), termino);
+                }
+                for (Map<String, Object> filtro : filtros) {
+                    assertEquals(recurso.aplicarFiltros(filtro), vista.aplicarFiltros(filtro), filtro.toString());
+                }
+            }
+
+            // Búsqueda por bytes (texto ASCII) y por cadenas (otros caracteres)
+            for (String termino : terminos) {
+                List<String> esperados = recursos.stream().filter(r -> r.buscarPorTitulo(termino))
+                        .map(Recurso::getId).collect(Collectors.toList());
+                List<String> encontrados = almacen.buscarPorTitulo(termino).stream()
+                        .map(Recurso::getId).collect(Collectors.toList());
+                assertEquals(esperados, encontrados, termino);
+            }
+            for (Map<String, Object> filtro : filtros) {
+                assertEquals(recursos.stream().filter(r -> r.aplicarFiltros(filtro)).count(),
+                        almacen.contar(v -> v.aplicarFiltros(filtro)), filtro.toString());
+            }
+        }
+    }
+
+    @Test
+    void actualizarYRegistrarPrestamoEnUnAlmacenMapeado() throws Exception {
+        LibroFisico libro = new LibroFisico("Rayuela", "Cortázar", "Literatura",
+                LocalDate.of(1963, 6, 28), "978-84-204-0640-6", 600, "Sudamericana", "C-01");
+        AlmacenRecursos almacen = AlmacenRecursos.enArchivo(directorio.resolve("almacen"));
+        int numero;
+        try {
+            assertTrue(almacen.isMapeado());
+            numero = almacen.agregar(libro);
+
+            almacen.registrarPrestamo(numero);
+            VistaRecurso vista = almacen.vista(numero);
+            assertFalse(vista.isDisponible());
+            assertEquals(1, vista.getNumeroVecesPrestado());
+            assertEquals(LocalDate.now(), vista.getFechaUltimoPrestamo());
+            almacen.registrarDevolucion(numero);
+            assertTrue(vista.isDisponible());
+
+            long ocupado = almacen.getBytesCadenas();
+            libro.setTitulo("Rayuela (edición conmemorativa)");
+            almacen.actualizar(numero, libro);
+            assertEquals("Rayuela (edición conmemorativa)", vista.getTitulo());
+            assertTrue(almacen.getBytesDescartados() > 0);
+            assertTrue(almacen.getBytesCadenas() > ocupado);
+            assertThrows(IllegalArgumentException.class, () -> almacen.actualizar(numero,
+                    new LibroFisico("Otro", "X", "Literatura", LocalDate.of(2000, 1, 1), "1", 1, "E", "U")));
+            assertThrows(IndexOutOfBoundsException.class, () -> almacen.vista(1));
+            assertTrue(Files.size(directorio.resolve("almacen").resolve("ranuras.dat")) > 0);
+        } finally {
+            almacen.close();
+        }
+        assertThrows(IllegalStateException.class, () -> almacen.vista(numero));
+    }
+}
@@ -0,0 +1,125 @@
+package com.utp.biblioteca.analitica;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.util.LiberadorMapeos;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas del historial columnar de préstamos
+ */
+class HistorialPrestamosColumnarTest {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 3, 1);
+
+    private HistorialPrestamosColumnar crearHistorial(int filas) {
+        HistorialPrestamosColumnar historial = new HistorialPrestamosColumnar();
+        for (int i = 0; i < filas; i++) {
+            LocalDate fecha = BASE.plusDays(i % 30);
+            boolean tarde = i % 4 == 0;
+            historial.agregar(fecha, fecha.plusDays(7), fecha.plusDays(tarde ? 9 : 5),
+                    i % 3 == 0 ? "Profesor" : "Estudiante", "LibroFisico",
+                    i % 2 == 0 ? "Informática" : "Historia",
+                    i % 10 == 0 ? EstadoPrestamo.CANCELADO : EstadoPrestamo.DEVUELTO,
+                    i % 3, tarde ? 200L : 0L, i % 8 == 0);
+        }
+        return historial;
+    }
+
+    @Test
+    void escaneosAtraviesanVariosBloques() {
+        int filas = HistorialPrestamosColumnar.FILAS_POR_BLOQUE * 2 + 123;
+        HistorialPrestamosColumnar historial = crearHistorial(filas);
+
+        long esperadasTarde = 0;
+        long esperadasProfesorInformatica = 0;
+        for (int i = 0; i < filas; i++) {
+            if (i % 4 == 0) esperadasTarde++;
+            if (i % 3 == 0 && i % 2 == 0) esperadasProfesorInformatica++;
+        }
+
+        assertEquals(filas, historial.contar(FiltroHistorial.todos()));
+        assertEquals(esperadasTarde, historial.contarDevueltosConRetraso(FiltroHistorial.todos()));
+        assertEquals(esperadasProfesorInformatica,
+                historial.contar(FiltroHistorial.todos().tipoUsuario("Profesor").categoria("Informática")));
+        assertEquals(0, historial.contar(FiltroHistorial.todos().categoria("Inexistente")));
+    }
+
+    @Test
+    void estadisticasEquivalentesAEstadisticasGestion() {
+        HistorialPrestamosColumnar historial = crearHistorial(1000);
+
+        Map<String, Object> porEstado = EstadisticasColumnares.generarEstadisticasPrestamos(historial);
+        assertEquals(100L, porEstado.get("CANCELADO"));
+        assertEquals(900L, porEstado.get("DEVUELTO"));
+
+        // Multas de S/ 2.00 en filas i%4==0, pagadas cuando i%8==0
+        assertEquals(125 * 2.0, EstadisticasColumnares.calcularMultasTotales(historial), 0.001);
+
+        FiltroHistorial primeraSemana = FiltroHistorial.todos().entre(BASE, BASE.plusDays(6));
+        long enRango = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (i % 30 <= 6) enRango++;
+        }
+        assertEquals(enRango, historial.contar(primeraSemana));
+    }
+
+    @Test
+    void agregarIgnoraPrestamosAbiertos() {
+        HistorialPrestamosColumnar historial = new HistorialPrestamosColumnar();
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U1");
+        LibroFisico libro = new LibroFisico("POO", "Autor", "Informática", BASE, "isbn", 100, "Ed", "A-1");
+        Prestamo prestamo = new Prestamo(estudiante, libro);
+
+        assertFalse(historial.agregar(prestamo));
+        prestamo.procesarDevolucion();
+        assertTrue(historial.agregar(prestamo));
+        assertEquals(1L, EstadisticasColumnares.contarPorCategoria(historial, FiltroHistorial.todos()).get("Informática"));
+    }
+
+    @Test
+    void guardarYCargarColumnas(@TempDir Path directorio) throws Exception {
+        HistorialPrestamosColumnar original = crearHistorial(HistorialPrestamosColumnar.FILAS_POR_BLOQUE + 50);
+        // Valor con salto de línea: el diccionario no puede depender de separadores
+        original.agregar(BASE, BASE.plusDays(7), BASE.plusDays(3), "Estudiante", "LibroFisico",
+                "Historia\nantigua", EstadoPrestamo.DEVUELTO, 0, 0L, true);
+        original.guardar(directorio);
+
+        HistorialPrestamosColumnar cargado = HistorialPrestamosColumnar.cargar(directorio);
+
+        assertEquals(original.getFilas(), cargado.getFilas());
+        FiltroHistorial filtro = FiltroHistorial.todos().tipoUsuario("Profesor").soloMultasPendientes();
+        assertEquals(original.sumarMultaCentimos(filtro), cargado.sumarMultaCentimos(filtro));
+        assertEquals(original.sumarRenovaciones(FiltroHistorial.todos()),
+                cargado.sumarRenovaciones(FiltroHistorial.todos()));
+        assertEquals(EstadisticasColumnares.contarPorCategoria(original, FiltroHistorial.todos()),
+                EstadisticasColumnares.contarPorCategoria(cargado, FiltroHistorial.todos()));
+        assertEquals(original.getCategorias().getValores(), cargado.getCategorias().getValores());
+        assertEquals(1, cargado.contar(FiltroHistorial.todos().categoria("Historia\nantigua")));
+
+        // Los bloques cargados siguen admitiendo filas
+        cargado.agregar(BASE, BASE.plusDays(7), null, "Profesor", "EBook", "Historia\nantigua",
+                EstadoPrestamo.CANCELADO, 0, 0L, true);
+        assertEquals(original.getFilas() + 1, cargado.getFilas());
+        assertEquals(2, cargado.contar(FiltroHistorial.todos().categoria("Historia\nantigua")));
+
+        // Los mapeos ya se liberaron: se puede guardar sobre los mismos archivos (en Windows, un
+        // archivo mapeado no se deja truncar) y volver a cargarlos
+        cargado.guardar(directorio);
+        HistorialPrestamosColumnar recargado = HistorialPrestamosColumnar.cargar(directorio);
+        assertEquals(cargado.getFilas(), recargado.getFilas());
+        assertEquals(cargado.contarDevueltosConRetraso(FiltroHistorial.todos()),
+                recargado.contarDevueltosConRetraso(FiltroHistorial.todos()));
+        assertTrue(LiberadorMapeos.isDisponible());
+    }
+}
@@ -0,0 +1,119 @@
+package com.utp.biblioteca.analitica;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de los bocetos de tendencias de préstamo
+ */
+class TendenciasPrestamosTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 5, 20);
+
+    @Test
+    void topSemanalIgnoraDiasFueraDeVentana() {
+        TendenciasPrestamos tendencias = new TendenciasPrestamos(28, 10, 1000);
+        // "viejo" fue muy popular hace dos semanas; "nuevo" es tendencia esta semana
+        for (int i = 0; i < 50; i++) {
+            tendencias.registrarPrestamo("viejo", "Historia", "u" + i, HOY.minusDays(14));
+        }
+        for (int i = 0; i < 20; i++) {
+            tendencias.registrarPrestamo("nuevo", "Informática", "u" + i, HOY.minusDays(i % 7));
+        }
+        tendencias.registrarPrestamo("otro", "Informática", "u1", HOY);
+
+        InstantaneaTendencias semana = tendencias.instantanea(HOY, 7);
+        assertEquals("nuevo", semana.getTop(1).get(0).getElemento());
+        assertEquals(20, semana.estimarPrestamos("nuevo"));
+        assertEquals(List.of("nuevo", "otro"),
+                semana.getTopPorCategoria("Informática", 5).stream()
+                        .map(TopKEspacioAhorro.ElementoFrecuente::getElemento).toList());
+
+        InstantaneaTendencias mes = tendencias.instantanea(HOY, 28);
+        assertEquals("viejo", mes.getTop(1).get(0).getElemento());
+    }
+
+    @Test
+    void espacioAhorroEncuentraElementosFrecuentesConMemoriaAcotada() {
+        TopKEspacioAhorro top = new TopKEspacioAhorro(20);
+        for (int i = 0; i < 10_000; i++) {
+            top.ofrecer("ruido-" + i);
+            if (i % 10 == 0) {
+                top.ofrecer("frecuente");
+            }
+        }
+        assertEquals(20, top.getMonitoreados());
+        TopKEspacioAhorro.ElementoFrecuente primero = top.getTop(1).get(0);
+        assertEquals("frecuente", primero.getElemento());
+        assertTrue(primero.getConteoGarantizado() <= 1000 && primero.getConteo() >= 1000);
+
+        // Invariantes de Space-Saving con desalojos frecuentes: cotas de cada contador y suma igual al total
+        TopKEspacioAhorro sesgado = new TopKEspacioAhorro(16);
+        Map<String, Long> reales = new HashMap<>();
+        Random aleatorio = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            String elemento = "r" + (int) Math.pow(aleatorio.nextInt(40_000), 0.5);
+            sesgado.ofrecer(elemento);
+            reales.merge(elemento, 1L, Long::sum);
+        }
+        long suma = 0;
+        for (TopKEspacioAhorro.ElementoFrecuente e : sesgado.getTop(16)) {
+            long real = reales.get(e.getElemento());
+            assertTrue(e.getConteoGarantizado() <= real && real <= e.getConteo(), e.toString());
+            suma += e.getConteo();
+        }
+        assertEquals(sesgado.getTotal(), suma);
+        assertThrows(IllegalArgumentException.class, () -> sesgado.combinar(sesgado));
+        sesgado.combinar(sesgado.copia());
+        assertEquals(100_000, sesgado.getTotal());
+    }
+
+    @Test
+    void hyperLogLogEstimaDistintosYSeCombina() {
+        HyperLogLog a = new HyperLogLog(12);
+        HyperLogLog b = new HyperLogLog(12);
+        for (int i = 0; i < 50_000; i++) {
+            a.agregar("usuario-" + i);
+            b.agregar("usuario-" + (i + 25_000));
+        }
+        assertEquals(50_000, a.estimar(), 50_000 * 0.05);
+        a.combinar(b);
+        assertEquals(75_000, a.estimar(), 75_000 * 0.05);
+    }
+
+    @Test
+    void instanciasSeCombinanYSeAlimentanDesdeElServicio() {
+        TendenciasPrestamos local = new TendenciasPrestamos();
+        ServicioCirculacion servicio = new ServicioCirculacion();
+        servicio.agregarEscucha(local);
+
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2019, 8, 20), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        for (int i = 0; i < 3; i++) {
+            Estudiante estudiante = new Estudiante("E" + i, "e" + i + "@utp.edu.pe", "x", "Sistemas", 1, "U" + i);
+            Prestamo prestamo = servicio.prestar(estudiante, ebook);
+            assertNotNull(prestamo);
+        }
+        assertEquals(3, local.estimarLectoresDistintos(ebook.getId()), 1);
+
+        TendenciasPrestamos remota = new TendenciasPrestamos();
+        remota.registrarPrestamo(ebook.getId(), "Informática", "remoto", LocalDate.now());
+        local.combinar(remota);
+
+        assertEquals(4, local.ultimaSemana().estimarPrestamos(ebook.getId()));
+        assertEquals(4, local.estimarLectoresDistintos(ebook.getId()), 1);
+    }
+}
@@ -0,0 +1,136 @@
+package com.utp.biblioteca.benchmark;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.utp.biblioteca.almacen.AlmacenRecursos;
+import com.utp.biblioteca.model.recurso.Recurso;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Benchmark: catálogo en el heap frente al almacén fuera del heap
+ *
+ * Uso: MAVEN_OPTS=-Xmx3g java ... AlmacenRecursosBenchmark [recursos] [rondas]
+ * Para cada modelo, con el catálogo completo cargado:
+ * - heap ocupado tras GC y duración de una recolección completa (System.gc)
+ * - recorridos de búsqueda: título que contiene un texto y filtro por categoría y
+ *   disponibilidad; tiempo por recorrido y pausas de GC durante los recorridos
+ *   (notificaciones de GarbageCollectorMXBean)
+ * Los recursos se generan igual que en HuellaCatalogoBenchmark.
+ */
+public class AlmacenRecursosBenchmark {
+
+    private static final Map<String, Object> FILTRO = Map.of("categoria", "Historia", "disponible", true);
+
+    /**
+     * Acumula las pausas notificadas por los recolectores
+     */
+    private static final class Pausas {
+        private final List<Long> duraciones = new ArrayList<>();
+        private final NotificationListener escucha = (notificacion, contexto) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notificacion.getType())) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                        .from((CompositeData) notificacion.getUserData());
+                registrar(info.getGcInfo().getDuration());
+            }
+        };
+
+        Pausas() {
+            for (GarbageCollectorMXBean recolector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) recolector).addNotificationListener(escucha, null, null);
+            }
+        }
+
+        synchronized void registrar(long milisegundos) { duraciones.add(milisegundos); }
+        synchronized void reiniciar() { duraciones.clear(); }
+
+        synchronized String resumen() {
+            long total = duraciones.stream().mapToLong(Long::longValue).sum();
+            long maxima = duraciones.stream().mapToLong(Long::longValue).max().orElse(0);
+            return String.format("%d pausas, total %,d ms, máxima %,d ms", duraciones.size(), total, maxima);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rondas = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Pausas pausas = new Pausas();
+        String[] titulos = { "libro 123", "ebook 99", "audio 4242", "inexistente" };
+
+        // 1) Catálogo en el heap
+        long antes = heapOcupado();
+        List<Recurso> catalogo = new ArrayList<>(total);
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        for (int i = 0; i < total; i++) {
+            catalogo.add(HuellaCatalogoBenchmark.generar(i, aleatorio));
+        }
+        medir("En el heap", total, antes, pausas, rondas, titulos,
+                titulo -> (int) catalogo.stream().filter(r -> r.buscarPorTitulo(titulo)).count(),
+                () -> (int) catalogo.stream().filter(r -> r.aplicarFiltros(FILTRO)).count());
+        catalogo.clear();
+
+        // 2) Almacén fuera del heap (los recursos se copian y se descartan al generarlos)
+        antes = heapOcupado();
+        try (AlmacenRecursos almacen = AlmacenRecursos.enMemoria()) {
+            SplittableRandom mismo = new SplittableRandom(7);
+            for (int i = 0; i < total; i++) {
+                almacen.agregar(HuellaCatalogoBenchmark.generar(i, mismo));
+            }
+            medir("Fuera del heap", total, antes, pausas, rondas, titulos,
+                    titulo -> almacen.buscarPorTitulo(titulo).size(),
+                    () -> almacen.contar(vista -> vista.aplicarFiltros(FILTRO)));
+            System.out.printf("Memoria fuera del heap: %,d MB reservados (%,d MB de cadenas)%n",
+                    almacen.getBytesReservados() >> 20, almacen.getBytesCadenas() >> 20);
+        }
+    }
+
+    private static void medir(String nombre, int total, long heapAntes, Pausas pausas, int rondas, String[] titulos,
+                              ToIntFunction<String> buscarTitulo, IntSupplier filtrar) {
+        long heap = heapOcupado() - heapAntes;
+        long inicio = System.nanoTime();
+        System.gc();
+        long recoleccion = (System.nanoTime() - inicio) / 1_000_000;
+
+        // Calentamiento y luego rondas medidas
+        buscarTitulo.applyAsInt(titulos[0]);
+        filtrar.getAsInt();
+        pausas.reiniciar();
+        long nanosTitulo = 0;
+        long nanosFiltro = 0;
+        int coincidencias = 0;
+        for (int r = 0; r < rondas; r++) {
+            for (String titulo : titulos) {
+                inicio = System.nanoTime();
+                coincidencias += buscarTitulo.applyAsInt(titulo);
+                nanosTitulo += System.nanoTime() - inicio;
+            }
+            inicio = System.nanoTime();
+            coincidencias += filtrar.getAsInt();
+            nanosFiltro += System.nanoTime() - inicio;
+        }
+        double recorridosTitulo = (double) rondas * titulos.length;
+        System.out.printf("%s: %,d recursos, heap tras GC %,d MB, GC completo %,d ms%n",
+                nombre, total, heap >> 20, recoleccion);
+        System.out.printf("  título: %,.0f ms/recorrido (%,.1f M recursos/s); filtro: %,.0f ms/recorrido;"
+                        + " coincidencias %,d%n",
+                nanosTitulo / 1e6 / recorridosTitulo, total * recorridosTitulo / (nanosTitulo / 1e3),
+                nanosFiltro / 1e6 / rondas, coincidencias);
+        System.out.printf("  GC durante los recorridos: %s%n", pausas.resumen());
+    }
+
+    private static long heapOcupado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
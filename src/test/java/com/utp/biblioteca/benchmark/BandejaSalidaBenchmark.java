@@ -0,0 +1,149 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.eventos.ConsumidorEventos;
+import com.utp.biblioteca.eventos.EventoCirculacion;
+import com.utp.biblioteca.eventos.RelevoEventos;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.persistencia.CirculacionTransaccional;
+import com.utp.biblioteca.persistencia.GestorPersistencia;
+import com.utp.biblioteca.persistencia.RepositorioRecursos;
+import com.utp.biblioteca.persistencia.RepositorioUsuarios;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark: bandeja de salida de circulación sobre H2 en memoria
+ *
+ * Uso: java ... BandejaSalidaBenchmark [ciclosPorHilo] [hilos]
+ * Cada ciclo es un préstamo y su devolución (dos eventos en la misma transacción que el cambio).
+ * 1) Rendimiento del relevo: con la bandeja llena, eventos publicados por segundo según el tamaño de lote.
+ * 2) Retraso de extremo a extremo: el relevo sondea mientras los mostradores siguen operando.
+ */
+public class BandejaSalidaBenchmark {
+
+    /**
+     * Consumidor mínimo: cuenta los eventos para medir solo el coste del relevo
+     */
+    private static final class ConsumidorContador implements ConsumidorEventos {
+        private final String nombre;
+        private final LongAdder eventos = new LongAdder();
+
+        ConsumidorContador(String nombre) {
+            this.nombre = nombre;
+        }
+
+        @Override
+        public String getNombre() { return nombre; }
+
+        @Override
+        public void procesar(EventoCirculacion evento, EntityManager em) {
+            eventos.increment();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int ciclos = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int hilos = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        Map<String, Object> propiedades = GestorPersistencia.propiedadesConexion(
+                "jdbc:h2:mem:bandejaBenchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        propiedades.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        propiedades.put("jakarta.persistence.schema-generation.database.action", "drop-and-create");
+
+        try (GestorPersistencia gestor = new GestorPersistencia(propiedades)) {
+            List<Usuario> usuarios = new ArrayList<>();
+            List<Recurso> libros = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                usuarios.add(new Estudiante("Estudiante " + i, "e" + i + "@utp.edu.pe", "x", "Sistemas", 1, "U" + i));
+                libros.add(new LibroFisico("Libro " + i, "Autor", "Literatura", LocalDate.of(2000, 1, 1),
+                        "978-" + i, 100, "Editorial", "A-" + i));
+            }
+            new RepositorioUsuarios(gestor).insertarTodos(usuarios);
+            new RepositorioRecursos(gestor).insertarTodos(libros);
+            CirculacionTransaccional mostrador = new CirculacionTransaccional(gestor, new ServicioCirculacion());
+
+            long nanos = circular(mostrador, usuarios, libros, ciclos, hilos);
+            long eventos = 2L * ciclos * hilos;
+            System.out.printf("Circulación: %,d eventos escritos en %,d ms (%,.0f operaciones/s con bandeja)%n",
+                    eventos, nanos / 1_000_000, eventos / (nanos / 1e9));
+
+            // 1) Rendimiento del relevo con la bandeja llena
+            for (int lote : new int[] { 50, 200, 1000 }) {
+                reiniciarBandeja(gestor);
+                List<ConsumidorEventos> consumidores = List.of(
+                        new ConsumidorContador("estadisticas"), new ConsumidorContador("avisos"));
+                try (RelevoEventos relevo = new RelevoEventos(gestor, consumidores, lote, Duration.ofHours(1))) {
+                    long inicio = System.nanoTime();
+                    int publicados = relevo.publicarPendientes();
+                    long duracion = System.nanoTime() - inicio;
+                    System.out.printf("Relevo lote %4d: %,d eventos en %,d ms (%,.0f eventos/s, 2 consumidores)%n",
+                            lote, publicados, duracion / 1_000_000, publicados / (duracion / 1e9));
+                }
+            }
+
+            // 2) Retraso de extremo a extremo con el relevo sondeando durante la carga
+            for (Duration intervalo : new Duration[] { Duration.ofMillis(10), Duration.ofMillis(100) }) {
+                try (RelevoEventos relevo = new RelevoEventos(gestor, List.of(new ConsumidorContador("vivo-" + intervalo.toMillis())),
+                        RelevoEventos.TAMANO_LOTE_DEFAULT, intervalo)) {
+                    circular(mostrador, usuarios, libros, ciclos / 2, hilos);
+                    relevo.publicarPendientes();
+                    System.out.printf("Sondeo cada %3d ms: %,d eventos, retraso medio %,d ms, máximo %,d ms%n",
+                            intervalo.toMillis(), relevo.getEventosPublicados(),
+                            relevo.getRetrasoMedio().toMillis(), relevo.getRetrasoMaximo().toMillis());
+                }
+            }
+        }
+    }
+
+    /**
+     * Cada hilo presta y devuelve su propio libro: sin conflictos, se mide solo la escritura
+     */
+    private static long circular(CirculacionTransaccional mostrador, List<Usuario> usuarios, List<Recurso> libros,
+                                 int ciclos, int hilos) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            long inicio = System.nanoTime();
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                String usuarioId = usuarios.get(h).getId();
+                String recursoId = libros.get(h).getId();
+                tareas.add(ejecutor.submit(() -> {
+                    for (int i = 0; i < ciclos; i++) {
+                        Prestamo prestamo = mostrador.prestar(usuarioId, recursoId);
+                        mostrador.devolver(prestamo.getId(), recursoId);
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            return System.nanoTime() - inicio;
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    /**
+     * Vuelve a dejar todos los eventos pendientes y olvida los consumos
+     */
+    private static void reiniciarBandeja(GestorPersistencia gestor) {
+        gestor.ejecutar(em -> {
+            em.createQuery("update EventoCirculacion e set e.publicado = false, e.fechaPublicacion = null")
+                    .executeUpdate();
+            em.createQuery("delete from ConsumoEvento").executeUpdate();
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.persistencia.CacheLectura;
+import com.utp.biblioteca.persistencia.EstimadorTamano;
+import com.utp.biblioteca.persistencia.MetricasCache;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Benchmark: caché read-through sobre una traza de consultas por id con distribución Zipf
+ *
+ * Uso: java ... CacheLecturaBenchmark [recursos] [consultas] [exponenteZipf] [hilos]
+ * La traza mezcla consultas Zipf (s=0.99 por defecto, típico de catálogos) con recorridos
+ * periódicos de recursos fríos (reportes, exportaciones). Se reproduce la misma traza con
+ * capacidades del 1%, 5% y 10% del catálogo, comparando SLRU con un LRU simple.
+ */
+public class CacheLecturaBenchmark {
+
+    private static final int CONSULTAS_ENTRE_RECORRIDOS = 200_000;
+    private static final int LONGITUD_RECORRIDO = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int totalRecursos = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int totalConsultas = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        double exponente = args.length > 2 ? Double.parseDouble(args[2]) : 0.99;
+        int hilos = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Map<String, Recurso> almacen = new HashMap<>();
+        String[] ids = new String[totalRecursos];
+        long pesoCatalogo = 0;
+        for (int i = 0; i < totalRecursos; i++) {
+            Recurso recurso = generar(i);
+            ids[i] = recurso.getId();
+            almacen.put(ids[i], recurso);
+            pesoCatalogo += EstimadorTamano.recurso(recurso);
+        }
+        int[] traza = generarTraza(totalRecursos, totalConsultas, exponente);
+        System.out.printf("Catálogo: %,d recursos (%,d MB estimados), traza de %,d consultas, Zipf s=%.2f, %d hilos%n",
+                totalRecursos, pesoCatalogo >> 20, traza.length, exponente, hilos);
+
+        for (double fraccion : new double[] { 0.01, 0.05, 0.10 }) {
+            long pesoMaximo = (long) (pesoCatalogo * fraccion);
+            for (double protegida : new double[] { 0.0, CacheLectura.PROPORCION_PROTEGIDA_DEFAULT }) {
+                CacheLectura<Recurso> cache = new CacheLectura<>(protegida == 0.0 ? "LRU" : "SLRU",
+                        almacen::get, EstimadorTamano::recurso, pesoMaximo, protegida, null, Runnable::run);
+                long nanos = reproducir(cache, ids, traza, hilos);
+                MetricasCache metricas = cache.getMetricas();
+                System.out.printf("Capacidad %4.1f%% %-4s: aciertos %5.1f%%, desalojos %,10d, %,6.0f ns/consulta, %,.0f consultas/s%n",
+                        fraccion * 100, metricas.getNombre(), metricas.getTasaAciertos() * 100,
+                        metricas.getDesalojos(), (double) nanos * hilos / traza.length, traza.length / (nanos / 1e9));
+            }
+        }
+    }
+
+    /**
+     * Reparte la traza en bloques contiguos entre los hilos y devuelve el tiempo total
+     */
+    private static long reproducir(CacheLectura<Recurso> cache, String[] ids, int[] traza, int hilos) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            int bloque = (traza.length + hilos - 1) / hilos;
+            long inicio = System.nanoTime();
+            Future<?>[] tareas = new Future<?>[hilos];
+            for (int h = 0; h < hilos; h++) {
+                int desde = h * bloque;
+                int hasta = Math.min(traza.length, desde + bloque);
+                tareas[h] = ejecutor.submit(() -> {
+                    for (int i = desde; i < hasta; i++) {
+                        cache.obtener(ids[traza[i]]);
+                    }
+                });
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            return System.nanoTime() - inicio;
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    /**
+     * Consultas Zipf (por inversión de la CDF) intercaladas con recorridos secuenciales
+     * de la cola fría del catálogo
+     */
+    private static int[] generarTraza(int totalRecursos, int totalConsultas, double exponente) {
+        double[] acumulada = new double[totalRecursos];
+        double suma = 0;
+        for (int i = 0; i < totalRecursos; i++) {
+            suma += 1.0 / Math.pow(i + 1, exponente);
+            acumulada[i] = suma;
+        }
+        // Los rangos de popularidad se asignan a ids al azar: los populares no son contiguos
+        int[] permutacion = new int[totalRecursos];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < totalRecursos; i++) {
+            int j = random.nextInt(i + 1);
+            permutacion[i] = permutacion[j];
+            permutacion[j] = i;
+        }
+
+        int[] traza = new int[totalConsultas];
+        int inicioRecorrido = totalRecursos / 2;
+        for (int i = 0; i < totalConsultas; i++) {
+            if (i % CONSULTAS_ENTRE_RECORRIDOS < LONGITUD_RECORRIDO) {
+                traza[i] = permutacion[(inicioRecorrido + i % CONSULTAS_ENTRE_RECORRIDOS) % totalRecursos];
+                continue;
+            }
+            int rango = Arrays.binarySearch(acumulada, random.nextDouble() * suma);
+            traza[i] = permutacion[rango >= 0 ? rango : Math.min(-rango - 1, totalRecursos - 1)];
+        }
+        return traza;
+    }
+
+    private static Recurso generar(int i) {
+        LocalDate fecha = LocalDate.of(1950 + i % 75, 1 + i % 12, 1 + i % 28);
+        Recurso recurso;
+        switch (i % 3) {
+            case 0:
+                recurso = new LibroFisico("Libro " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                        "ISBN-" + i, 100 + i % 900, "Editorial " + i % 200, "Estante " + i % 500);
+                break;
+            case 1:
+                recurso = new EBook("EBook " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                        "EPUB", 1.0 + i % 50, "https://biblioteca.utp.edu.pe/ebooks/" + i);
+                break;
+            default:
+                recurso = new AudioLibro("Audio " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                        60 + i % 900, "MP3", "Narrador " + i % 300, "Media");
+        }
+        recurso.setDescripcion("Descripción del recurso número " + i + " del catálogo de prueba");
+        return recurso;
+    }
+}
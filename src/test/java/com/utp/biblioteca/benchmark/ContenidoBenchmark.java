@@ -0,0 +1,135 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.almacen.AlmacenContenido;
+import com.utp.biblioteca.almacen.InformeDuplicados;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark: ingesta en el almacén direccionado por contenido y espacio ahorrado
+ *
+ * Uso: java ... ContenidoBenchmark [archivos] [hilos]
+ * Corpus: archivos de 0,5 a 6 MB; el 30% son copias exactas de otro (el mismo PDF subido
+ * por otro departamento) y el 10% son revisiones que comparten el principio con otro.
+ * 1) Referencias: copiar cada archivo y calcular su SHA-256 completo en un hilo
+ * 2) AlmacenContenido con 1 hilo de hash y con varios (almacén vacío en cada ronda)
+ */
+public class ContenidoBenchmark {
+
+    private static final long MB = 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int hilos = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        Path raiz = Files.createTempDirectory("contenido-bench");
+        try {
+            List<Path> archivos = generar(raiz.resolve("corpus"), cantidad);
+            long total = 0;
+            for (Path archivo : archivos) {
+                total += Files.size(archivo);
+            }
+            System.out.printf("Corpus: %d archivos, %,d MB%n", cantidad, total / MB);
+
+            // 1) Referencias
+            Path copias = Files.createDirectories(raiz.resolve("copias"));
+            long inicio = System.nanoTime();
+            for (int i = 0; i < archivos.size(); i++) {
+                Files.copy(archivos.get(i), copias.resolve("c" + i));
+            }
+            informar("Copia simple", total, System.nanoTime() - inicio);
+            borrar(copias);
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[1 << 16];
+            inicio = System.nanoTime();
+            for (Path archivo : archivos) {
+                try (InputStream entrada = Files.newInputStream(archivo)) {
+                    int leidos;
+                    while ((leidos = entrada.read(buffer)) > 0) {
+                        sha.update(buffer, 0, leidos);
+                    }
+                }
+                sha.digest();
+            }
+            informar("SHA-256 completo", total, System.nanoTime() - inicio);
+
+            // 2) Almacén
+            for (int numeroHilos : new int[] {1, hilos, 1, hilos}) {
+                Path directorio = raiz.resolve("almacen-" + System.nanoTime());
+                try (AlmacenContenido almacen = AlmacenContenido.abrir(directorio, AlmacenContenido.TAMANO_BLOQUE_DEFAULT,
+                        numeroHilos)) {
+                    inicio = System.nanoTime();
+                    for (int i = 0; i < archivos.size(); i++) {
+                        almacen.guardar("recurso-" + i, archivos.get(i));
+                    }
+                    informar("Almacén, " + numeroHilos + " hilos", total, System.nanoTime() - inicio);
+                    InformeDuplicados informe = almacen.informeDuplicados();
+                    System.out.printf("    %s%n    bloques escritos %,d, reutilizados %,d%n", informe,
+                            almacen.getBloquesEscritos(), almacen.getBloquesReutilizados());
+                }
+                borrar(directorio);
+            }
+        } finally {
+            borrar(raiz);
+        }
+    }
+
+    private static List<Path> generar(Path directorio, int cantidad) throws IOException {
+        Files.createDirectories(directorio);
+        SplittableRandom aleatorio = new SplittableRandom(9);
+        List<Path> archivos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Path archivo = directorio.resolve("archivo-" + i + ".pdf");
+            int tipo = aleatorio.nextInt(10);
+            if (i > 0 && tipo < 3) {
+                Files.copy(archivos.get(aleatorio.nextInt(i)), archivo);
+            } else if (i > 0 && tipo < 4) {
+                byte[] original = Files.readAllBytes(archivos.get(aleatorio.nextInt(i)));
+                byte[] anexo = new byte[(int) (MB / 2 + aleatorio.nextInt((int) MB))];
+                llenar(anexo, aleatorio);
+                byte[] revision = new byte[original.length + anexo.length];
+                System.arraycopy(original, 0, revision, 0, original.length);
+                System.arraycopy(anexo, 0, revision, original.length, anexo.length);
+                Files.write(archivo, revision);
+            } else {
+                byte[] contenido = new byte[(int) (MB / 2 + aleatorio.nextInt((int) (11 * MB / 2)))];
+                llenar(contenido, aleatorio);
+                Files.write(archivo, contenido);
+            }
+            archivos.add(archivo);
+        }
+        return archivos;
+    }
+
+    private static void llenar(byte[] bytes, SplittableRandom aleatorio) {
+        for (int i = 0; i < bytes.length; i += 8) {
+            long valor = aleatorio.nextLong();
+            for (int j = 0; j < 8 && i + j < bytes.length; j++) {
+                bytes[i + j] = (byte) (valor >>> (8 * j));
+            }
+        }
+    }
+
+    private static void informar(String nombre, long bytes, long nanos) {
+        System.out.printf("%-22s %,8.1f MB/s (%,d ms)%n", nombre, bytes / (double) MB / (nanos / 1e9),
+                nanos / 1_000_000);
+    }
+
+    private static void borrar(Path directorio) throws IOException {
+        if (!Files.exists(directorio)) {
+            return;
+        }
+        try (Stream<Path> rutas = Files.walk(directorio)) {
+            for (Path ruta : (Iterable<Path>) rutas.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(ruta);
+            }
+        }
+    }
+}
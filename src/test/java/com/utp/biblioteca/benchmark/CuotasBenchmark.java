@@ -0,0 +1,81 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.cuotas.CuotaDescargas;
+import com.utp.biblioteca.cuotas.ProveedorCupos;
+import com.utp.biblioteca.cuotas.ProveedorCuposBaseDatos;
+import com.utp.biblioteca.cuotas.ProveedorCuposMemoria;
+import com.utp.biblioteca.persistencia.GestorPersistencia;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Benchmark: reservas de cupos de licencia por segundo
+ *
+ * Uso: java ... CuotasBenchmark [reservas] [hilos]
+ * Cada reserva consume un cupo de uno de 64 recursos con límite amplio, desde varios hilos.
+ * 1) Proveedor en memoria, lote 1 (un compareAndSet en el proveedor por reserva) y lote 16
+ * 2) Proveedor en base de datos (H2), lote 1 (una transacción con bloqueo por reserva) y lote 16
+ */
+public class CuotasBenchmark {
+
+    private static final int RECURSOS = 64;
+
+    public static void main(String[] args) throws Exception {
+        int reservas = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int hilos = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        for (int lote : new int[] {1, 16}) {
+            medir("memoria", new ProveedorCuposMemoria(), lote, reservas * 10, hilos);
+        }
+
+        Map<String, Object> propiedades = GestorPersistencia.propiedadesConexion(
+                "jdbc:h2:mem:cuotasBenchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        propiedades.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        propiedades.put("jakarta.persistence.schema-generation.database.action", "drop-and-create");
+        try (GestorPersistencia gestor = new GestorPersistencia(propiedades)) {
+            ProveedorCuposBaseDatos proveedor = new ProveedorCuposBaseDatos(gestor);
+            medir("base de datos", proveedor, 1, reservas / 10, hilos);
+            medir("base de datos", proveedor, 16, reservas, hilos);
+        }
+    }
+
+    private static void medir(String nombre, ProveedorCupos proveedor, int lote, int reservas, int hilos)
+            throws Exception {
+        String[] recursos = new String[RECURSOS];
+        for (int i = 0; i < RECURSOS; i++) {
+            recursos[i] = nombre + "-" + lote + "-" + i;
+        }
+        try (CuotaDescargas cuota = new CuotaDescargas(proveedor, lote, 0, 0, null, Clock.systemUTC())) {
+            ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+            long inicio = System.nanoTime();
+            List<Future<Integer>> partes = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int desplazamiento = h;
+                partes.add(ejecutor.submit(() -> {
+                    int concedidas = 0;
+                    for (int i = 0; i < reservas / hilos; i++) {
+                        if (cuota.reservar(recursos[(i + desplazamiento) % RECURSOS], Integer.MAX_VALUE, 0,
+                                Instant.MAX)) {
+                            concedidas++;
+                        }
+                    }
+                    return concedidas;
+                }));
+            }
+            long concedidas = 0;
+            for (Future<Integer> parte : partes) {
+                concedidas += parte.get();
+            }
+            long nanos = System.nanoTime() - inicio;
+            ejecutor.shutdown();
+            System.out.printf("%-14s lote %2d: %,12.0f reservas/s (%,d concedidas)%n", nombre, lote,
+                    concedidas * 1e9 / nanos, concedidas);
+        }
+    }
+}
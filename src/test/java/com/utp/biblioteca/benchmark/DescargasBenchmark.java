@@ -0,0 +1,143 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.entrega.CatalogoArchivos;
+import com.utp.biblioteca.entrega.ServidorDescargas;
+import com.utp.biblioteca.entrega.VerificadorPrestamos;
+import com.utp.biblioteca.seguridad.AnilloClaves;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Benchmark: descargas concurrentes por el servidor embebido
+ *
+ * Uso: java ... DescargasBenchmark [MB por archivo] [clientes] [descargas por cliente]
+ * Cada cliente descarga el archivo varias veces por una conexión persistente y descarta los
+ * bytes. Se mide el caudal total y el tiempo de CPU de los hilos del servidor por GB servido:
+ * 1) transferTo (cero copia)
+ * 2) Referencia: copia con buffer en el heap
+ */
+public class DescargasBenchmark {
+
+    private static final int RONDAS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int megas = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int clientes = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int descargas = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        Path archivo = Files.createTempFile("descargas-benchmark", ".pdf");
+        byte[] bloque = new byte[1024 * 1024];
+        new Random(1).nextBytes(bloque);
+        for (int i = 0; i < megas; i++) {
+            Files.write(archivo, bloque, StandardOpenOption.APPEND);
+        }
+        ServicioTokens tokens = new ServicioTokens(AnilloClaves.conClaveAleatoria());
+        CatalogoArchivos catalogo = new CatalogoArchivos();
+        catalogo.registrar("EB-1", archivo, "PDF");
+        String token = tokens.emitir("u1", "EB-1", Duration.ofHours(1), null);
+
+        VerificadorPrestamos vigentes = (usuarioId, recursoId) -> true; // u1 tiene el préstamo de EB-1
+        // Sin limitador: se mide el servidor, no el ritmo de un usuario
+        try (ServidorDescargas servidor = new ServidorDescargas(catalogo, tokens, vigentes, null, clientes).iniciar(0)) {
+            for (boolean ceroCopia : new boolean[] {true, false, true, false}) {
+                servidor.setCeroCopia(ceroCopia);
+                medir(servidor, token, clientes, descargas, (long) megas * bloque.length, ceroCopia);
+            }
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    private static void medir(ServidorDescargas servidor, String token, int clientes, int descargas, long tamano,
+                              boolean ceroCopia) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(clientes);
+        double mejorCaudal = 0;
+        double mejorCpu = Double.MAX_VALUE;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long cpuInicial = cpuServidor();
+            long inicio = System.nanoTime();
+            List<Future<Long>> partes = new ArrayList<>();
+            for (int c = 0; c < clientes; c++) {
+                partes.add(ejecutor.submit(() -> descargar(servidor.getPuerto(), token, descargas, tamano)));
+            }
+            long bytes = 0;
+            for (Future<Long> parte : partes) {
+                bytes += parte.get();
+            }
+            long nanos = System.nanoTime() - inicio;
+            double gigas = bytes / 1e9;
+            mejorCaudal = Math.max(mejorCaudal, gigas / (nanos / 1e9));
+            mejorCpu = Math.min(mejorCpu, (cpuServidor() - cpuInicial) / 1e6 / gigas);
+        }
+        ejecutor.shutdown();
+        System.out.printf("%-18s %d clientes: %6.2f GB/s, %7.1f ms de CPU del servidor por GB%n",
+                ceroCopia ? "transferTo" : "copia con buffer", clientes, mejorCaudal, mejorCpu);
+    }
+
+    private static long descargar(int puerto, String token, int descargas, long tamano) throws IOException {
+        byte[] solicitud = ("GET " + ServidorDescargas.PREFIJO + "EB-1?token=" + token + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+        long recibidos = 0;
+        try (SocketChannel canal = SocketChannel.open(new InetSocketAddress("localhost", puerto))) {
+            for (int d = 0; d < descargas; d++) {
+                canal.write(ByteBuffer.wrap(solicitud));
+                // Cabeceras: hasta la línea vacía; el resto del buffer ya es cuerpo
+                buffer.clear();
+                int finCabeceras = -1;
+                while (finCabeceras < 0) {
+                    if (canal.read(buffer) < 0) {
+                        throw new IOException("Conexión cerrada");
+                    }
+                    for (int i = 3; i < buffer.position(); i++) {
+                        if (buffer.get(i - 3) == '\r' && buffer.get(i - 2) == '\n'
+                                && buffer.get(i - 1) == '\r' && buffer.get(i) == '\n') {
+                            finCabeceras = i + 1;
+                            break;
+                        }
+                    }
+                }
+                long cuerpo = buffer.position() - finCabeceras;
+                while (cuerpo < tamano) {
+                    buffer.clear();
+                    int n = canal.read(buffer);
+                    if (n < 0) {
+                        throw new IOException("Conexión cerrada");
+                    }
+                    cuerpo += n;
+                }
+                recibidos += cuerpo;
+            }
+        }
+        return recibidos;
+    }
+
+    /** Tiempo de CPU acumulado por los hilos del servidor */
+    private static long cpuServidor() {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (ThreadInfo info : hilos.getThreadInfo(hilos.getAllThreadIds())) {
+            if (info != null && info.getThreadName().startsWith("descargas-")) {
+                total += Math.max(0, hilos.getThreadCpuTime(info.getThreadId()));
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,95 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.almacen.AlmacenRecursos;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.Dispositivo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.Recurso;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+/**
+ * Benchmark: filtro "compatible con mi dispositivo" sobre el catálogo
+ *
+ * Uso: MAVEN_OPTS=-Xmx3g java ... DispositivosBenchmark [recursos] [rondas]
+ * 1) Reglas por cadena en cada llamada (el switch de esCompatibleCon antes de las máscaras)
+ * 2) Máscara precalculada de cada recurso (Recurso.aplicarFiltros con "dispositivo")
+ * 3) Almacén fuera del heap: filtro sobre VistaRecurso y mapa de bits por dispositivo
+ * Los recursos se generan igual que en HuellaCatalogoBenchmark.
+ */
+public class DispositivosBenchmark {
+
+    private static final String[] DISPOSITIVOS = {"kindle", "ipad", "android", "web"};
+
+    public static void main(String[] args) {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rondas = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<Recurso> catalogo = new ArrayList<>(total);
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        for (int i = 0; i < total; i++) {
+            catalogo.add(HuellaCatalogoBenchmark.generar(i, aleatorio));
+        }
+        for (String dispositivo : DISPOSITIVOS) {
+            Map<String, Object> filtro = Map.of("dispositivo", dispositivo);
+            medir("Reglas por cadena    " + dispositivo, rondas, () -> {
+                int cuenta = 0;
+                for (Recurso recurso : catalogo) {
+                    if (reglaOriginal(recurso, dispositivo)) cuenta++;
+                }
+                return cuenta;
+            });
+            medir("Máscara del recurso  " + dispositivo, rondas,
+                    () -> (int) catalogo.stream().filter(r -> r.aplicarFiltros(filtro)).count());
+        }
+
+        try (AlmacenRecursos almacen = AlmacenRecursos.enMemoria()) {
+            catalogo.forEach(almacen::agregar);
+            catalogo.clear();
+            for (String dispositivo : DISPOSITIVOS) {
+                Map<String, Object> filtro = Map.of("dispositivo", dispositivo);
+                Dispositivo buscado = Dispositivo.desde(dispositivo);
+                medir("Vista del almacén    " + dispositivo, rondas,
+                        () -> almacen.contar(vista -> vista.aplicarFiltros(filtro)));
+                medir("Mapa de bits         " + dispositivo, rondas, () -> almacen.contarCompatibles(buscado));
+            }
+        }
+    }
+
+    /** Lo que hacía esCompatibleCon(String) en cada llamada */
+    private static boolean reglaOriginal(Recurso recurso, String dispositivo) {
+        if (recurso instanceof EBook) {
+            String formato = ((EBook) recurso).getFormato();
+            switch (dispositivo.toLowerCase()) {
+                case "kindle": return formato.equals("MOBI") || formato.equals("AZW");
+                case "ipad":
+                case "iphone": return formato.equals("EPUB") || formato.equals("PDF");
+                case "android": return !formato.equals("AZW");
+                default: return formato.equals("PDF");
+            }
+        }
+        if (recurso instanceof AudioLibro) {
+            String formato = ((AudioLibro) recurso).getFormatoAudio();
+            switch (dispositivo.toLowerCase()) {
+                case "ios": return formato.equals("M4A") || formato.equals("MP3");
+                case "android": return !formato.equals("M4A");
+                default: return formato.equals("MP3");
+            }
+        }
+        return false;
+    }
+
+    private static void medir(String nombre, int rondas, IntSupplier consulta) {
+        long mejor = Long.MAX_VALUE;
+        int resultado = 0;
+        for (int ronda = 0; ronda < rondas; ronda++) {
+            long inicio = System.nanoTime();
+            resultado = consulta.getAsInt();
+            mejor = Math.min(mejor, System.nanoTime() - inicio);
+        }
+        System.out.printf("%s: %,10d compatibles, %,8.2f ms por recorrido%n", nombre, resultado, mejor / 1e6);
+    }
+}
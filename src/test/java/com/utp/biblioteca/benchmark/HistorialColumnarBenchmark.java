@@ -0,0 +1,114 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.analitica.EstadisticasColumnares;
+import com.utp.biblioteca.analitica.FiltroHistorial;
+import com.utp.biblioteca.analitica.HistorialPrestamosColumnar;
+import com.utp.biblioteca.model.gestion.EstadisticasGestion;
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark: estadísticas sobre el historial columnar vs. STREAM API sobre objetos Prestamo
+ *
+ * Uso: java -Xmx12g ... HistorialColumnarBenchmark [filasColumnar] [filasStream]
+ * Por defecto 50M filas columnares; la versión con objetos usa 5M filas porque
+ * 50M objetos Prestamo requieren decenas de GB de heap. Se reporta ns/fila para comparar.
+ */
+public class HistorialColumnarBenchmark {
+
+    private static final String[] CATEGORIAS = {
+        "Informática", "Matemáticas", "Literatura", "Historia", "Física", "Derecho", "Medicina", "Arte"
+    };
+    private static final String[] TIPOS_USUARIO = { "Estudiante", "Profesor", "Bibliotecario" };
+    private static final String[] TIPOS_RECURSO = { "LibroFisico", "EBook", "AudioLibro" };
+
+    public static void main(String[] args) {
+        long filasColumnar = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        int filasStream = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        System.out.printf("Cargando %,d filas columnares...%n", filasColumnar);
+        HistorialPrestamosColumnar historial = new HistorialPrestamosColumnar();
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate inicio = LocalDate.of(2015, 1, 1);
+        long t0 = System.nanoTime();
+        for (long i = 0; i < filasColumnar; i++) {
+            LocalDate fecha = inicio.plusDays(random.nextInt(3650));
+            LocalDate vencimiento = fecha.plusDays(7);
+            LocalDate devolucion = fecha.plusDays(random.nextInt(12));
+            boolean conMulta = devolucion.isAfter(vencimiento);
+            historial.agregar(fecha, vencimiento, devolucion,
+                    TIPOS_USUARIO[random.nextInt(TIPOS_USUARIO.length)],
+                    TIPOS_RECURSO[random.nextInt(TIPOS_RECURSO.length)],
+                    CATEGORIAS[random.nextInt(CATEGORIAS.length)],
+                    random.nextInt(20) == 0 ? EstadoPrestamo.CANCELADO : EstadoPrestamo.DEVUELTO,
+                    random.nextInt(3), conMulta ? 100L * (devolucion.toEpochDay() - vencimiento.toEpochDay()) : 0L,
+                    random.nextBoolean());
+        }
+        System.out.printf("Carga: %.1f s%n", (System.nanoTime() - t0) / 1e9);
+
+        FiltroHistorial anio = FiltroHistorial.todos().entre(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31))
+                .tipoUsuario("Estudiante");
+        for (int ronda = 0; ronda < 5; ronda++) {
+            long inicioRonda = System.nanoTime();
+            Object porEstado = EstadisticasColumnares.generarEstadisticasPrestamos(historial);
+            long tEstado = System.nanoTime();
+            double multas = EstadisticasColumnares.calcularMultasTotales(historial);
+            long tMultas = System.nanoTime();
+            long retrasos = EstadisticasColumnares.contarDevolucionesConRetraso(historial, anio);
+            long tFiltro = System.nanoTime();
+            System.out.printf("[columnar] ronda %d: porEstado %.2f ns/fila, multas %.2f ns/fila, filtro 2020+Estudiante %.2f ns/fila (%s, S/ %.2f, %d)%n",
+                    ronda,
+                    (tEstado - inicioRonda) / (double) filasColumnar,
+                    (tMultas - tEstado) / (double) filasColumnar,
+                    (tFiltro - tMultas) / (double) filasColumnar,
+                    porEstado, multas, retrasos);
+        }
+        historial = null;
+
+        System.out.printf("Creando %,d objetos Prestamo...%n", filasStream);
+        List<Prestamo> prestamos = new ArrayList<>(filasStream);
+        List<Multa> multas = new ArrayList<>();
+        Usuario[] usuarios = {
+            new Estudiante("Estudiante", "e@utp.edu.pe", "x", "Sistemas", 1, "U1"),
+            new Profesor("Profesor", "p@utp.edu.pe", "x", "Informática", "Dr.", "IA")
+        };
+        Recurso[] recursos = new Recurso[CATEGORIAS.length * 2];
+        for (int i = 0; i < CATEGORIAS.length; i++) {
+            recursos[2 * i] = new LibroFisico("Libro " + i, "Autor", CATEGORIAS[i], inicio, "isbn", 100, "Ed", "A-1");
+            recursos[2 * i + 1] = new EBook("EBook " + i, "Autor", CATEGORIAS[i], inicio, "PDF", 1.0, "url");
+        }
+        for (int i = 0; i < filasStream; i++) {
+            Prestamo prestamo = new Prestamo(usuarios[random.nextInt(usuarios.length)],
+                    recursos[random.nextInt(recursos.length)]);
+            prestamo.procesarDevolucion();
+            prestamos.add(prestamo);
+            if (random.nextInt(10) == 0) {
+                multas.add(new Multa(prestamo.getId(), 1.0 + random.nextInt(10), "Retraso"));
+            }
+        }
+
+        for (int ronda = 0; ronda < 5; ronda++) {
+            long inicioRonda = System.nanoTime();
+            Object porEstado = EstadisticasGestion.generarEstadisticasPrestamos(prestamos);
+            long tEstado = System.nanoTime();
+            double total = EstadisticasGestion.calcularMultasTotales(multas);
+            long tMultas = System.nanoTime();
+            System.out.printf("[stream]   ronda %d: porEstado %.2f ns/fila, multas %.2f ns/multa (%s, S/ %.2f)%n",
+                    ronda,
+                    (tEstado - inicioRonda) / (double) filasStream,
+                    (tMultas - tEstado) / (double) Math.max(1, multas.size()),
+                    porEstado, total);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.model.usuario.HistorialPrestamos;
+import com.utp.biblioteca.model.usuario.Profesor;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Benchmark: historial de préstamos de un usuario como lista frente a HistorialPrestamos
+ *
+ * Uso: java ... HistorialUsuarioBenchmark [prestamos] [vistas]
+ * 1) Huella (JOL) del historial de un profesor con muchos préstamos
+ * 2) Bytes asignados por cada vista del perfil (los 20 préstamos más recientes), medidos
+ *    con los contadores de asignación del hilo:
+ *    - antes: copia defensiva de toda la lista y luego los 20 últimos
+ *    - ahora: pagina(0, 20) y una página profunda, sin copiar el historial
+ * 3) "¿Ya tuvo este préstamo?" con un id ausente: recorrido de la lista frente a contiene()
+ */
+public class HistorialUsuarioBenchmark {
+
+    private static final int TAMANO_VISTA = 20;
+
+    public static void main(String[] args) {
+        int prestamos = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int vistas = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        List<String> ids = new ArrayList<>(prestamos);
+        for (int i = 0; i < prestamos; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        Profesor profesor = new Profesor("Rosa", "rosa@utp.edu.pe", "x", "Ingeniería", "Doctora", "Redes");
+        profesor.restaurarEstado(profesor.getId(), LocalDate.of(2010, 3, 1), true, List.of(), ids, 0.0);
+        HistorialPrestamos historial = profesor.getHistorial();
+
+        // 1) Huella
+        long huellaLista = GraphLayout.parseInstance(ids).totalSize();
+        long huellaHistorial = GraphLayout.parseInstance(historial).totalSize();
+        System.out.printf("Historial de %,d préstamos: lista %,d KB, paginado %,d KB (%.1fx menos)%n",
+                prestamos, huellaLista >> 10, huellaHistorial >> 10, (double) huellaLista / huellaHistorial);
+
+        // 2) Asignación por vista del perfil
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long sumidero = 0;
+        for (int ronda = 0; ronda < 2; ronda++) { // la primera ronda calienta el JIT
+            long antes = hilos.getCurrentThreadAllocatedBytes();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < vistas; i++) {
+                sumidero += vistaConCopia(new ArrayList<>(ids)).size(); // getter anterior
+            }
+            long nanosCopia = System.nanoTime() - inicio;
+            long bytesCopia = hilos.getCurrentThreadAllocatedBytes() - antes;
+
+            antes = hilos.getCurrentThreadAllocatedBytes();
+            inicio = System.nanoTime();
+            for (int i = 0; i < vistas; i++) {
+                sumidero += historial.pagina(0, TAMANO_VISTA).size();
+            }
+            long nanosPagina = System.nanoTime() - inicio;
+            long bytesPagina = hilos.getCurrentThreadAllocatedBytes() - antes;
+
+            int profunda = prestamos / TAMANO_VISTA / 2;
+            antes = hilos.getCurrentThreadAllocatedBytes();
+            inicio = System.nanoTime();
+            for (int i = 0; i < vistas; i++) {
+                sumidero += historial.pagina(profunda, TAMANO_VISTA).size();
+            }
+            long nanosProfunda = System.nanoTime() - inicio;
+            long bytesProfunda = hilos.getCurrentThreadAllocatedBytes() - antes;
+
+            if (ronda == 1) {
+                System.out.printf("Vista del perfil (%d más recientes), por vista:%n", TAMANO_VISTA);
+                System.out.printf("  copia de la lista:    %,9d B asignados, %,8.0f ns%n",
+                        bytesCopia / vistas, (double) nanosCopia / vistas);
+                System.out.printf("  pagina(0, %d):        %,9d B asignados, %,8.0f ns%n", TAMANO_VISTA,
+                        bytesPagina / vistas, (double) nanosPagina / vistas);
+                System.out.printf("  pagina(%d, %d):      %,9d B asignados, %,8.0f ns%n", profunda, TAMANO_VISTA,
+                        bytesProfunda / vistas, (double) nanosProfunda / vistas);
+            }
+        }
+
+        // 3) Consulta de un préstamo ausente
+        String ausente = UUID.randomUUID().toString();
+        int consultas = vistas * 5;
+        for (int ronda = 0; ronda < 2; ronda++) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < consultas / 50; i++) {
+                sumidero += ids.contains(ausente) ? 1 : 0;
+            }
+            long nanosLista = System.nanoTime() - inicio;
+            inicio = System.nanoTime();
+            for (int i = 0; i < consultas; i++) {
+                sumidero += historial.contiene(ausente) ? 1 : 0;
+            }
+            long nanosFiltro = System.nanoTime() - inicio;
+            if (ronda == 1) {
+                System.out.printf("Préstamo ausente: lista %,.0f ns, contiene() %,.0f ns%n",
+                        (double) nanosLista / (consultas / 50), (double) nanosFiltro / consultas);
+            }
+        }
+        System.out.println("(control: " + sumidero + ")");
+    }
+
+    /**
+     * Lo que hacía la vista del perfil con el getter anterior: copia completa y los últimos
+     */
+    private static List<String> vistaConCopia(List<String> copia) {
+        List<String> vista = new ArrayList<>(TAMANO_VISTA);
+        for (int i = copia.size() - 1; i >= 0 && vista.size() < TAMANO_VISTA; i--) {
+            vista.add(copia.get(i));
+        }
+        return vista;
+    }
+}
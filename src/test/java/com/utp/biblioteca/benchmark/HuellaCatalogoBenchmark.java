@@ -0,0 +1,135 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.CadenasCatalogo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Benchmark: huella en heap del catálogo con y sin codificación por diccionario
+ *
+ * Uso: java ... HuellaCatalogoBenchmark [recursos] [muestra]
+ * Los recursos se crean con cadenas nuevas en cada campo, como las que produce cada fila leída
+ * de la base o del JSON. JOL mide el grafo real de una muestra (recorrerlo entero con un millón
+ * de recursos necesitaría varios GB) y el resultado se extrapola al total:
+ * - "con diccionario": el grafo de los recursos tal como quedan (códigos + cadenas compartidas)
+ * - "sin diccionario": lo anterior más una cadena propia por recurso en cada campo codificado,
+ *   que es lo que retenía cada instancia cuando los campos eran String
+ * Al final se comprueba con el heap ocupado tras un GC al cargar todos los recursos.
+ */
+public class HuellaCatalogoBenchmark {
+
+    private static final String[] CATEGORIAS = { "Literatura", "Informática", "Historia", "Ciencias",
+            "Matemáticas", "Filosofía", "Arte", "Economía", "Derecho", "Medicina", "Ingeniería", "Psicología" };
+    private static final String[] FORMATOS_EBOOK = { "PDF", "EPUB", "MOBI", "AZW" };
+    private static final String[] FORMATOS_AUDIO = { "MP3", "M4A", "WAV" };
+    private static final String[] CALIDADES = { "Alta", "Media", "Baja" };
+    private static final String[] ESTADOS = { "Excelente", "Bueno", "Regular", "Dañado" };
+    private static final int AUTORES = 50_000;
+    private static final int EDITORIALES = 800;
+
+    public static void main(String[] args) {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int tamanoMuestra = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        SplittableRandom aleatorio = new SplittableRandom(42);
+
+        List<Recurso> muestra = new ArrayList<>(tamanoMuestra);
+        List<String> copias = new ArrayList<>(tamanoMuestra * 4);
+        for (int i = 0; i < tamanoMuestra; i++) {
+            Recurso recurso = generar(i, aleatorio);
+            muestra.add(recurso);
+            copiasPropias(recurso, copias);
+        }
+
+        long conDiccionario = GraphLayout.parseInstance(muestra).totalSize();
+        long duplicados = GraphLayout.parseInstance(copias).totalSize()
+                - GraphLayout.parseInstance(new ArrayList<>(copias.size())).totalSize() - 4L * copias.size();
+        long diccionarios = GraphLayout.parseInstance(CadenasCatalogo.CATEGORIAS,
+                CadenasCatalogo.EDITORIALES, CadenasCatalogo.FORMATOS, CadenasCatalogo.CALIDADES,
+                CadenasCatalogo.ESTADOS).totalSize();
+
+        double porRecursoCon = (double) conDiccionario / tamanoMuestra;
+        double porRecursoSin = porRecursoCon + (double) duplicados / tamanoMuestra;
+        System.out.printf("Muestra JOL de %,d recursos: %.0f B/recurso sin diccionario, %.0f B/recurso con diccionario%n",
+                tamanoMuestra, porRecursoSin, porRecursoCon);
+        System.out.printf("Extrapolado a %,d recursos: sin diccionario %,d MB, con diccionario %,d MB"
+                        + " (+%,d KB de diccionarios), ahorro %.1f%%%n",
+                total, (long) (porRecursoSin * total) >> 20, (long) (porRecursoCon * total) >> 20,
+                diccionarios >> 10, 100.0 * (porRecursoSin - porRecursoCon) / porRecursoSin);
+
+        // Comprobación con el heap real: todos los recursos cargados a la vez
+        muestra = null;
+        copias = null;
+        long antes = heapOcupado();
+        List<Recurso> catalogo = new ArrayList<>(total);
+        SplittableRandom completo = new SplittableRandom(7);
+        for (int i = 0; i < total; i++) {
+            catalogo.add(generar(i, completo));
+        }
+        long despues = heapOcupado();
+        System.out.printf("Heap tras GC con %,d recursos cargados (con diccionario): %,d MB (%.0f B/recurso)%n",
+                catalogo.size(), (despues - antes) >> 20, (double) (despues - antes) / catalogo.size());
+    }
+
+    /**
+     * Cadenas nuevas en todos los campos, como al leer cada fila
+     */
+    static Recurso generar(int i, SplittableRandom aleatorio) {
+        String autor = new String("Autor " + aleatorio.nextInt(AUTORES));
+        String categoria = new String(CATEGORIAS[aleatorio.nextInt(CATEGORIAS.length)]);
+        LocalDate fecha = LocalDate.of(1950 + aleatorio.nextInt(75), 1 + aleatorio.nextInt(12), 1);
+        Recurso recurso;
+        switch (i % 3) {
+            case 0:
+                LibroFisico libro = new LibroFisico("Libro " + i, autor, categoria, fecha, "978-" + i,
+                        100 + aleatorio.nextInt(900), new String("Editorial " + aleatorio.nextInt(EDITORIALES)),
+                        "E-" + aleatorio.nextInt(500));
+                libro.setEstado(new String(ESTADOS[aleatorio.nextInt(ESTADOS.length)]));
+                recurso = libro;
+                break;
+            case 1:
+                recurso = new EBook("EBook " + i, autor, categoria, fecha,
+                        new String(FORMATOS_EBOOK[aleatorio.nextInt(FORMATOS_EBOOK.length)]),
+                        1 + aleatorio.nextInt(50), "https://biblioteca.utp.edu.pe/e/" + i);
+                break;
+            default:
+                recurso = new AudioLibro("Audio " + i, autor, categoria, fecha, 60 + aleatorio.nextInt(900),
+                        new String(FORMATOS_AUDIO[aleatorio.nextInt(FORMATOS_AUDIO.length)]), "Narrador " + i,
+                        new String(CALIDADES[aleatorio.nextInt(CALIDADES.length)]));
+                break;
+        }
+        recurso.setDescripcion("Descripción del recurso " + i);
+        return recurso;
+    }
+
+    /**
+     * Una copia propia de cada campo codificado: lo que el recurso retenía sin diccionario
+     */
+    private static void copiasPropias(Recurso recurso, List<String> copias) {
+        copias.add(new String(recurso.getAutor()));
+        copias.add(new String(recurso.getCategoria()));
+        if (recurso instanceof LibroFisico) {
+            copias.add(new String(((LibroFisico) recurso).getEditorial()));
+            copias.add(new String(((LibroFisico) recurso).getEstado()));
+        } else if (recurso instanceof EBook) {
+            copias.add(new String(((EBook) recurso).getFormato()));
+        } else if (recurso instanceof AudioLibro) {
+            copias.add(new String(((AudioLibro) recurso).getFormatoAudio()));
+            copias.add(new String(((AudioLibro) recurso).getCalidad()));
+        }
+    }
+
+    private static long heapOcupado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
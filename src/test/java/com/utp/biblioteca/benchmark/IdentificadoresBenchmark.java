@@ -0,0 +1,154 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.util.Identificadores;
+import com.utp.biblioteca.util.IndiceIdentificadores;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Benchmark: identificadores UUID en texto frente a dos long
+ *
+ * Uso: MAVEN_OPTS=-Xmx3g java ... IdentificadoresBenchmark [prestamos] [consultas]
+ * 1) Huella de los tres ids de cada préstamo (id, usuarioId, recursoId): JOL mide una muestra
+ *    de cadenas nuevas, como las que deja cada fila leída, y se extrapola al total.
+ * 2) Índice id -> posición con todos los préstamos: heap ocupado tras GC de un
+ *    HashMap&lt;String, Integer&gt; y de un IndiceIdentificadores.
+ * 3) Búsquedas por segundo con ids en texto recién creados (como llegan de la interfaz)
+ *    y con los ids ya convertidos a long.
+ */
+public class IdentificadoresBenchmark {
+
+    private static final int MUESTRA = 100_000;
+    private static final int RONDAS = 5;
+
+    public static void main(String[] args) {
+        int prestamos = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int consultas = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        // 1) Huella por id
+        List<String> muestra = new ArrayList<>(MUESTRA);
+        for (int i = 0; i < MUESTRA; i++) {
+            muestra.add(UUID.randomUUID().toString());
+        }
+        double porTexto = (double) (GraphLayout.parseInstance(muestra).totalSize()
+                - GraphLayout.parseInstance(new ArrayList<>(MUESTRA)).totalSize()) / MUESTRA;
+        long tresTexto = (long) (3 * porTexto * prestamos);
+        long tresLong = 3L * 16 * prestamos;
+        System.out.printf("Id en texto: %.0f B (referencia incluida); en dos long: 16 B%n", porTexto);
+        System.out.printf("Tres ids por préstamo, %,d préstamos: texto %,d MB, dos long %,d MB (%.1fx menos)%n",
+                prestamos, tresTexto >> 20, tresLong >> 20, (double) tresTexto / tresLong);
+        muestra = null;
+
+        // Ids de los préstamos (dos long) y consultas: 90 % existentes, 10 % ausentes
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        long[] altos = new long[prestamos];
+        long[] bajos = new long[prestamos];
+        for (int i = 0; i < prestamos; i++) {
+            altos[i] = aleatorio.nextLong() & ~0xF000L | 0x4000L;
+            bajos[i] = aleatorio.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        }
+        long[] consultaAltos = new long[consultas];
+        long[] consultaBajos = new long[consultas];
+        String[] consultaTexto = new String[consultas];
+        for (int i = 0; i < consultas; i++) {
+            if (aleatorio.nextInt(10) == 0) {
+                consultaAltos[i] = aleatorio.nextLong();
+                consultaBajos[i] = aleatorio.nextLong();
+            } else {
+                int j = aleatorio.nextInt(prestamos);
+                consultaAltos[i] = altos[j];
+                consultaBajos[i] = bajos[j];
+            }
+            consultaTexto[i] = Identificadores.aTexto(consultaAltos[i], consultaBajos[i]);
+        }
+
+        // 2) y 3) HashMap<String, Integer>
+        long antes = heapOcupado();
+        Map<String, Integer> mapa = new HashMap<>(prestamos * 4 / 3 + 1);
+        for (int i = 0; i < prestamos; i++) {
+            mapa.put(Identificadores.aTexto(altos[i], bajos[i]), i);
+        }
+        long huellaMapa = heapOcupado() - antes;
+        long nanosMapa = Long.MAX_VALUE;
+        long encontradosMapa = 0;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            String[] textos = copiasNuevas(consultaTexto);
+            long inicio = System.nanoTime();
+            encontradosMapa = 0;
+            for (int i = 0; i < consultas; i++) {
+                if (mapa.get(textos[i]) != null) {
+                    encontradosMapa++;
+                }
+            }
+            nanosMapa = Math.min(nanosMapa, System.nanoTime() - inicio);
+        }
+        mapa = null;
+
+        antes = heapOcupado();
+        IndiceIdentificadores indice = new IndiceIdentificadores(prestamos);
+        for (int i = 0; i < prestamos; i++) {
+            indice.poner(altos[i], bajos[i], i);
+        }
+        long huellaIndice = heapOcupado() - antes;
+        long nanosTexto = Long.MAX_VALUE;
+        long nanosLong = Long.MAX_VALUE;
+        long encontradosTexto = 0;
+        long encontradosLong = 0;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            String[] textos = copiasNuevas(consultaTexto);
+            long inicio = System.nanoTime();
+            encontradosTexto = 0;
+            for (int i = 0; i < consultas; i++) {
+                if (indice.obtener(textos[i]) != IndiceIdentificadores.NO_ENCONTRADO) {
+                    encontradosTexto++;
+                }
+            }
+            nanosTexto = Math.min(nanosTexto, System.nanoTime() - inicio);
+            inicio = System.nanoTime();
+            encontradosLong = 0;
+            for (int i = 0; i < consultas; i++) {
+                if (indice.obtener(consultaAltos[i], consultaBajos[i]) != IndiceIdentificadores.NO_ENCONTRADO) {
+                    encontradosLong++;
+                }
+            }
+            nanosLong = Math.min(nanosLong, System.nanoTime() - inicio);
+        }
+        if (encontradosMapa != encontradosTexto || encontradosTexto != encontradosLong) {
+            throw new IllegalStateException("Los índices no coinciden: " + encontradosMapa + " / "
+                    + encontradosTexto + " / " + encontradosLong);
+        }
+
+        System.out.printf("Índice de %,d préstamos: HashMap<String, Integer> %,d MB (%.0f B/entrada),"
+                        + " IndiceIdentificadores %,d MB (%.0f B/entrada)%n",
+                prestamos, huellaMapa >> 20, (double) huellaMapa / prestamos,
+                huellaIndice >> 20, (double) huellaIndice / prestamos);
+        System.out.printf("Búsquedas (%,d, %,d encontradas): HashMap texto %,.1f M/s,"
+                        + " índice desde texto %,.1f M/s, índice desde long %,.1f M/s%n",
+                consultas, encontradosLong, consultas / (nanosMapa / 1e3), consultas / (nanosTexto / 1e3),
+                consultas / (nanosLong / 1e3));
+    }
+
+    /**
+     * Cadenas nuevas en cada ronda: como las que llegan de la interfaz, sin hash calculado
+     */
+    private static String[] copiasNuevas(String[] textos) {
+        String[] copias = new String[textos.length];
+        for (int i = 0; i < textos.length; i++) {
+            copias[i] = new String(textos[i]);
+        }
+        return copias;
+    }
+
+    private static long heapOcupado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
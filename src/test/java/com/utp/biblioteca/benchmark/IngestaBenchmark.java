@@ -0,0 +1,71 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.ingesta.CorpusEBooks;
+import com.utp.biblioteca.ingesta.IngestaEBooks;
+import com.utp.biblioteca.ingesta.ResumenIngesta;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark: archivos por segundo de la ingesta de eBooks
+ *
+ * Uso: java ... IngestaBenchmark [archivos] [directorio]
+ * Genera un corpus de EPUB, PDF y MOBI (CorpusEBooks) y lo ingiere con distintas
+ * combinaciones de hilos de lectura y de análisis. La primera pasada calienta la caché
+ * de páginas y la JIT; el corpus se borra al final si se generó en un directorio temporal.
+ */
+public class IngestaBenchmark {
+
+    private static final int RONDAS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int archivos = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        boolean temporal = args.length < 2;
+        Path directorio = temporal ? Files.createTempDirectory("corpus-ebooks") : Path.of(args[1]);
+
+        long inicio = System.nanoTime();
+        CorpusEBooks.generar(directorio, archivos, 42);
+        System.out.printf("Corpus: %,d archivos en %,d ms%n", archivos, (System.nanoTime() - inicio) / 1_000_000);
+
+        try {
+            int procesadores = Runtime.getRuntime().availableProcessors();
+            int[][] configuraciones = {{1, 1}, {2, 1}, {4, 2}, {Math.max(2, procesadores) * 2, procesadores}};
+            medir(new IngestaEBooks(1, 1, 256, IngestaEBooks.URL_BASE_DEFAULT), directorio); // calentamiento
+            for (int[] hilos : configuraciones) {
+                medir(new IngestaEBooks(hilos[0], hilos[1], 256, IngestaEBooks.URL_BASE_DEFAULT), directorio);
+            }
+        } finally {
+            if (temporal) {
+                borrar(directorio);
+            }
+        }
+    }
+
+    private static void medir(IngestaEBooks ingesta, Path directorio) {
+        ResumenIngesta mejor = null;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            LongAdder palabras = new LongAdder();
+            ResumenIngesta resumen = ingesta.ingerir(directorio,
+                    (ebook, ruta) -> palabras.add(ebook.getPalabrasClave().size()));
+            if (mejor == null || resumen.getDuracion().compareTo(mejor.getDuracion()) < 0) {
+                mejor = resumen;
+            }
+        }
+        System.out.printf("%2d lectura + %d análisis: %,8.0f archivos/s, %,7.1f MB/s (%,d eBooks, %,d descartados, "
+                        + "%,d errores)%n", ingesta.getHilosLectura(), ingesta.getHilosAnalisis(),
+                mejor.getArchivosPorSegundo(), mejor.getBytes() / 1048576.0 / (mejor.getDuracion().toNanos() / 1e9),
+                mejor.getEBooks(), mejor.getDescartados(), mejor.getErrores());
+    }
+
+    private static void borrar(Path directorio) throws IOException {
+        try (Stream<Path> rutas = Files.walk(directorio)) {
+            for (Path ruta : (Iterable<Path>) rutas.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(ruta);
+            }
+        }
+    }
+}
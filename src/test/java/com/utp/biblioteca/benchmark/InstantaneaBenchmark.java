@@ -0,0 +1,95 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.intercambio.DestinoEnMemoria;
+import com.utp.biblioteca.intercambio.EscritorInstantanea;
+import com.utp.biblioteca.intercambio.InstantaneaCatalogo;
+import com.utp.biblioteca.intercambio.ResumenIntercambio;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark: arranque en frío desde la instantánea binaria
+ *
+ * Uso: java ... InstantaneaBenchmark [recursos] [usuarios]
+ * Mide cuánto tarda la aplicación en poder responder una búsqueda por título
+ * (mapear + primera búsqueda) frente a materializar el catálogo completo.
+ * Objetivo: menos de 2 s hasta la primera búsqueda con 1M de recursos.
+ */
+public class InstantaneaBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int totalRecursos = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int totalUsuarios = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        List<Recurso> recursos = new ArrayList<>(totalRecursos);
+        for (int i = 0; i < totalRecursos; i++) {
+            recursos.add(generar(i));
+        }
+        List<Usuario> usuarios = new ArrayList<>(totalUsuarios);
+        for (int i = 0; i < totalUsuarios; i++) {
+            usuarios.add(new Estudiante("Estudiante " + i, "e" + i + "@utp.edu.pe", "x",
+                    "Carrera " + i % 30, 1 + i % 10, "U" + i));
+        }
+
+        Path archivo = Files.createTempFile("catalogo", ".bin");
+        try {
+            ResumenIntercambio escrito = new EscritorInstantanea().escribir(archivo, recursos, usuarios,
+                    List.<Prestamo>of(), List.<Reserva>of());
+            System.out.printf("Escritura: %,d registros, %,d MB en %d ms%n", escrito.getTotalRegistros(),
+                    Files.size(archivo) >> 20, escrito.getDuracion().toMillis());
+            recursos = null;
+            usuarios = null;
+            System.gc();
+
+            long inicio = System.nanoTime();
+            try (InstantaneaCatalogo instantanea = InstantaneaCatalogo.abrir(archivo)) {
+                long abierta = System.nanoTime();
+                int encontrados = instantanea.buscarPorTitulo("libro 99999").size();
+                long primeraBusqueda = System.nanoTime();
+                System.out.printf("Apertura: %.1f ms%n", (abierta - inicio) / 1e6);
+                System.out.printf("Primera búsqueda por título: %.1f ms (%d resultados, %d objetos materializados)%n",
+                        (primeraBusqueda - abierta) / 1e6, encontrados, instantanea.getMaterializados());
+                System.out.printf("Listo para buscar tras %.1f ms%n", (primeraBusqueda - inicio) / 1e6);
+
+                ResumenIntercambio cargado = instantanea.cargarEn(new DestinoEnMemoria());
+                System.out.printf("Materialización completa: %,d registros en %d ms (%.0f registros/s)%n",
+                        cargado.getTotalRegistros(), cargado.getDuracion().toMillis(),
+                        cargado.getRegistrosPorSegundo());
+            }
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    private static Recurso generar(int i) {
+        LocalDate fecha = LocalDate.of(1950 + i % 75, 1 + i % 12, 1 + i % 28);
+        Recurso recurso;
+        switch (i % 3) {
+            case 0:
+                recurso = new LibroFisico("Libro " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                        "ISBN-" + i, 100 + i % 900, "Editorial " + i % 200, "Estante " + i % 500);
+                break;
+            case 1:
+                recurso = new EBook("EBook " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                        "EPUB", 1.0 + i % 50, "https://biblioteca.utp.edu.pe/ebooks/" + i);
+                break;
+            default:
+                recurso = new AudioLibro("Audio " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                        60 + i % 900, "MP3", "Narrador " + i % 300, "Media");
+        }
+        recurso.setDescripcion("Descripción del recurso número " + i + " del catálogo de prueba");
+        recurso.agregarPalabraClave("prueba");
+        return recurso;
+    }
+}
@@ -0,0 +1,122 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.intercambio.DestinoImportacion;
+import com.utp.biblioteca.intercambio.ExportadorJson;
+import com.utp.biblioteca.intercambio.ImportadorJson;
+import com.utp.biblioteca.intercambio.ResumenIntercambio;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark: exportación e importación JSON en streaming
+ *
+ * Uso: java ... IntercambioJsonBenchmark [recursos] [hilos...]
+ * Los recursos se generan al vuelo y el destino solo cuenta, así que el heap usado
+ * debe mantenerse estable aunque el volcado ocupe varios GB (por defecto 5M recursos).
+ */
+public class IntercambioJsonBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int[] hilos = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 1, 2, 4, Runtime.getRuntime().availableProcessors() };
+
+        Path archivo = Files.createTempFile("catalogo", ".json");
+        try {
+            ResumenIntercambio exportado = new ExportadorJson().exportar(archivo, () -> generar(total),
+                    List.<Usuario>of(), List.<Prestamo>of(), List.<Reserva>of());
+            System.out.printf("Exportación: %,d registros, %,d MB, %.0f registros/s, heap usado %,d MB%n",
+                    exportado.getTotalRegistros(), Files.size(archivo) >> 20,
+                    exportado.getRegistrosPorSegundo(), heapUsadoMB());
+
+            for (int n : hilos) {
+                DestinoContador destino = new DestinoContador();
+                ResumenIntercambio importado = new ImportadorJson(n, ImportadorJson.TAMANO_LOTE_DEFAULT)
+                        .importar(archivo, destino);
+                System.out.printf("Importación con %2d hilos: %,d registros en %d ms, %.0f registros/s, heap usado %,d MB%n",
+                        n, destino.recursos.sum(), importado.getDuracion().toMillis(),
+                        importado.getRegistrosPorSegundo(), heapUsadoMB());
+            }
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    private static Iterator<Recurso> generar(int total) {
+        return new Iterator<>() {
+            int n = 0;
+
+            @Override
+            public boolean hasNext() {
+                return n < total;
+            }
+
+            @Override
+            public Recurso next() {
+                int i = n++;
+                LocalDate fecha = LocalDate.of(1950 + i % 75, 1 + i % 12, 1 + i % 28);
+                Recurso recurso;
+                switch (i % 3) {
+                    case 0:
+                        recurso = new LibroFisico("Libro " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                                "ISBN-" + i, 100 + i % 900, "Editorial " + i % 200, "Estante " + i % 500);
+                        break;
+                    case 1:
+                        recurso = new EBook("EBook " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                                "EPUB", 1.0 + i % 50, "https://biblioteca.utp.edu.pe/ebooks/" + i);
+                        break;
+                    default:
+                        recurso = new AudioLibro("Audio " + i, "Autor " + i % 5000, "Categoría " + i % 40, fecha,
+                                60 + i % 900, "MP3", "Narrador " + i % 300, "Media");
+                }
+                recurso.setDescripcion("Descripción del recurso número " + i + " del catálogo de prueba");
+                recurso.agregarPalabraClave("prueba");
+                return recurso;
+            }
+        };
+    }
+
+    private static long heapUsadoMB() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+    }
+
+    /**
+     * Destino que solo cuenta: mide el coste de leer y reconstruir, no el de almacenar
+     */
+    private static class DestinoContador implements DestinoImportacion {
+        final LongAdder recursos = new LongAdder();
+
+        @Override
+        public void alRecurso(Recurso recurso) { recursos.increment(); }
+
+        @Override
+        public void alUsuario(Usuario usuario) { }
+
+        @Override
+        public void alPrestamo(Prestamo prestamo) { }
+
+        @Override
+        public void alReserva(Reserva reserva) { }
+
+        @Override
+        public Usuario buscarUsuario(String id) { return null; }
+
+        @Override
+        public Recurso buscarRecurso(String id) { return null; }
+    }
+}
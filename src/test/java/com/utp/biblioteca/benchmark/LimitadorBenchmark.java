@@ -0,0 +1,125 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.cuotas.LimitadorDescargas;
+import com.utp.biblioteca.cuotas.PerfilLimites;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Benchmark: coste por solicitud del límite de ritmo con muchos hilos
+ *
+ * Uso: java ... LimitadorBenchmark [usuarios] [solicitudes] [hilos]
+ * 1) LimitadorDescargas.permitir (cubos sin cerrojos) en un hilo y en varios
+ * 2) Referencia: cubo clásico (fichas + última reposición) con synchronized
+ * 3) Barrido de un millón de cubos inactivos
+ * El perfil es amplio para que casi todas las solicitudes pasen y se mida el camino completo.
+ */
+public class LimitadorBenchmark {
+
+    private static final int RONDAS = 3;
+    private static final PerfilLimites PERFIL = new PerfilLimites(1_000_000, 1_000_000, 1L << 40, 1L << 40);
+
+    /** Cubo de fichas clásico protegido con synchronized */
+    private static final class CuboSincronizado {
+        private final double porNano;
+        private final double capacidad;
+        private double fichas;
+        private long ultima = System.nanoTime();
+
+        CuboSincronizado(double porSegundo, double capacidad) {
+            this.porNano = porSegundo / 1e9;
+            this.capacidad = capacidad;
+            this.fichas = capacidad;
+        }
+
+        synchronized boolean tomar(double costo) {
+            long ahora = System.nanoTime();
+            fichas = Math.min(capacidad, fichas + (ahora - ultima) * porNano);
+            ultima = ahora;
+            if (fichas < costo) {
+                return false;
+            }
+            fichas -= costo;
+            return true;
+        }
+    }
+
+    private interface Solicitud {
+        boolean permitir(String usuarioId, long bytes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int usuarios = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int solicitudes = args.length > 1 ? Integer.parseInt(args[1]) : 4_000_000;
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        String[] ids = new String[usuarios];
+        for (int i = 0; i < usuarios; i++) {
+            ids[i] = "U-" + i;
+        }
+
+        LimitadorDescargas limitador = new LimitadorDescargas(Map.of(), PERFIL, null, Clock.systemUTC());
+        medir("Sin cerrojos", (id, bytes) -> limitador.permitir(id, null, bytes), ids, solicitudes, 1);
+        medir("Sin cerrojos", (id, bytes) -> limitador.permitir(id, null, bytes), ids, solicitudes, hilos);
+        // Todos los hilos sobre el mismo usuario: máxima contención en un cubo
+        medir("Sin cerrojos, 1 usuario", (id, bytes) -> limitador.permitir("U-0", null, bytes), ids, solicitudes,
+                hilos);
+
+        Map<String, CuboSincronizado[]> sincronizados = new ConcurrentHashMap<>();
+        Solicitud clasica = (id, bytes) -> {
+            CuboSincronizado[] cubos = sincronizados.computeIfAbsent(id, k -> new CuboSincronizado[] {
+                    new CuboSincronizado(1_000_000 / 60.0, 1_000_000), new CuboSincronizado(1L << 40, 1L << 40)});
+            return cubos[0].tomar(1) && cubos[1].tomar(bytes);
+        };
+        medir("synchronized", clasica, ids, solicitudes, 1);
+        medir("synchronized", clasica, ids, solicitudes, hilos);
+        medir("synchronized, 1 usuario", (id, bytes) -> clasica.permitir("U-0", bytes), ids, solicitudes, hilos);
+
+        // 3) Barrido
+        LimitadorDescargas inactivos = new LimitadorDescargas(Map.of(), PERFIL, null, Clock.systemUTC());
+        for (int i = 0; i < 1_000_000; i++) {
+            inactivos.permitir("I-" + i, null, 1);
+        }
+        Thread.sleep(10);
+        long inicio = System.nanoTime();
+        int retirados = inactivos.barrer();
+        System.out.printf("Barrido: %,d cubos retirados en %,.1f ms%n", retirados, (System.nanoTime() - inicio) / 1e6);
+    }
+
+    private static void medir(String nombre, Solicitud solicitud, String[] ids, int solicitudes, int hilos)
+            throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        int porHilo = solicitudes / hilos;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long inicio = System.nanoTime();
+            List<Future<Integer>> partes = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int desplazamiento = h * 7919;
+                partes.add(ejecutor.submit(() -> {
+                    int admitidas = 0;
+                    for (int i = 0; i < porHilo; i++) {
+                        if (solicitud.permitir(ids[(i + desplazamiento) % ids.length], 4096)) {
+                            admitidas++;
+                        }
+                    }
+                    return admitidas;
+                }));
+            }
+            long admitidas = 0;
+            for (Future<Integer> parte : partes) {
+                admitidas += parte.get();
+            }
+            long nanos = System.nanoTime() - inicio;
+            if (ronda == RONDAS - 1) {
+                System.out.printf("%-26s %d hilos: %,7.1f ns por solicitud (%,d admitidas)%n", nombre, hilos,
+                        (double) nanos / (porHilo * hilos), admitidas);
+            }
+        }
+        ejecutor.shutdown();
+    }
+}
@@ -0,0 +1,158 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Operacion;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+/**
+ * Benchmark: comprobación de permisos en un bucle cerrado
+ *
+ * Uso: java ... PermisosBenchmark [comprobaciones] [rondas]
+ * 1) Switch por cadena en cada llamada (tienePermiso antes de las máscaras)
+ * 2) tienePermiso(String): nombre -> Operacion y bit de la máscara
+ * 3) tienePermiso(Operacion): un AND sobre la máscara precalculada
+ * 4) Autorización en bloque: las tres operaciones de una renovación con una sola comparación
+ * Usuarios y operaciones se eligen al azar antes de medir (mezcla de tipos y de indicadores).
+ */
+public class PermisosBenchmark {
+
+    private static final int USUARIOS = 1024;
+    // Patrón de consultas que cabe en caché: se mide la comprobación, no los fallos de memoria
+    private static final int PATRON = 1 << 16;
+
+    public static void main(String[] args) {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int rondas = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        Usuario[] usuarios = new Usuario[USUARIOS];
+        for (int i = 0; i < USUARIOS; i++) {
+            usuarios[i] = generar(i, aleatorio);
+        }
+        Operacion[] todas = Operacion.values();
+        int[] quien = new int[PATRON];
+        Operacion[] operaciones = new Operacion[PATRON];
+        String[] nombres = new String[PATRON];
+        for (int i = 0; i < PATRON; i++) {
+            quien[i] = aleatorio.nextInt(USUARIOS);
+            operaciones[i] = todas[aleatorio.nextInt(todas.length)];
+            nombres[i] = operaciones[i].name();
+        }
+        long renovacion = Operacion.mascara(Operacion.VER_CATALOGO, Operacion.PRESTAR_LIBRO,
+                Operacion.RENOVAR_PRESTAMO);
+
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            medir("Switch por cadena        ", total, rondas, () -> {
+                int permitidas = 0;
+                for (int i = 0; i < total; i++) {
+                    int j = i & (PATRON - 1);
+                    if (reglaOriginal(usuarios[quien[j]], nombres[j])) permitidas++;
+                }
+                return permitidas;
+            });
+            medir("tienePermiso(String)     ", total, rondas, () -> {
+                int permitidas = 0;
+                for (int i = 0; i < total; i++) {
+                    int j = i & (PATRON - 1);
+                    if (usuarios[quien[j]].tienePermiso(nombres[j])) permitidas++;
+                }
+                return permitidas;
+            });
+            medir("tienePermiso(Operacion)  ", total, rondas, () -> {
+                int permitidas = 0;
+                for (int i = 0; i < total; i++) {
+                    int j = i & (PATRON - 1);
+                    if (usuarios[quien[j]].tienePermiso(operaciones[j])) permitidas++;
+                }
+                return permitidas;
+            });
+            medir("Renovación, 3 por switch ", total, rondas, () -> {
+                int permitidas = 0;
+                for (int i = 0; i < total; i++) {
+                    int j = i & (PATRON - 1);
+                    Usuario usuario = usuarios[quien[j]];
+                    if (reglaOriginal(usuario, "VER_CATALOGO") && reglaOriginal(usuario, "PRESTAR_LIBRO")
+                            && reglaOriginal(usuario, "RENOVAR_PRESTAMO")) permitidas++;
+                }
+                return permitidas;
+            });
+            medir("Renovación, tieneTodos   ", total, rondas, () -> {
+                int permitidas = 0;
+                for (int i = 0; i < total; i++) {
+                    int j = i & (PATRON - 1);
+                    if (usuarios[quien[j]].tieneTodos(renovacion)) permitidas++;
+                }
+                return permitidas;
+            });
+        }
+    }
+
+    private static Usuario generar(int i, SplittableRandom aleatorio) {
+        String email = "usuario" + i + "@utp.edu.pe";
+        switch (aleatorio.nextInt(3)) {
+            case 0:
+                return new Estudiante("Estudiante " + i, email, "clave", "Sistemas", 1 + i % 10, "U" + i);
+            case 1:
+                Profesor profesor = new Profesor("Profesor " + i, email, "clave", "Sistemas", "Mg.", "Redes");
+                profesor.setCoordinador(aleatorio.nextInt(4) == 0);
+                return profesor;
+            default:
+                Bibliotecario bibliotecario = new Bibliotecario("Bibliotecario " + i, email, "clave",
+                        "Servicios", "Mañana");
+                bibliotecario.setEsAdministrador(aleatorio.nextBoolean());
+                return bibliotecario;
+        }
+    }
+
+    /** Lo que hacía tienePermiso(String) de cada tipo en cada llamada */
+    private static boolean reglaOriginal(Usuario usuario, String operacion) {
+        if (usuario instanceof Bibliotecario) {
+            return true;
+        }
+        if (usuario instanceof Profesor) {
+            switch (operacion) {
+                case "PRESTAR_LIBRO":
+                case "RENOVAR_PRESTAMO":
+                case "RESERVAR_LIBRO":
+                case "VER_CATALOGO":
+                case "BUSCAR_RECURSOS":
+                case "ACCESO_RECURSOS_ESPECIALIZADOS":
+                case "SOLICITAR_ADQUISICIONES":
+                case "GENERAR_BIBLIOGRAFIA":
+                case "GENERAR_REPORTES":
+                    return true;
+                case "ADMINISTRAR_USUARIOS":
+                case "ADMINISTRAR_CATALOGO":
+                    return ((Profesor) usuario).isCoordinador();
+                default:
+                    return false;
+            }
+        }
+        switch (operacion) {
+            case "PRESTAR_LIBRO":
+            case "RENOVAR_PRESTAMO":
+            case "RESERVAR_LIBRO":
+            case "VER_CATALOGO":
+            case "BUSCAR_RECURSOS":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void medir(String nombre, int total, int rondas, IntSupplier consulta) {
+        long mejor = Long.MAX_VALUE;
+        int resultado = 0;
+        for (int ronda = 0; ronda < rondas; ronda++) {
+            long inicio = System.nanoTime();
+            resultado = consulta.getAsInt();
+            mejor = Math.min(mejor, System.nanoTime() - inicio);
+        }
+        System.out.printf("%s: %,10d permitidas, %6.2f ns por comprobación%n", nombre, resultado,
+                (double) mejor / total);
+    }
+}
@@ -0,0 +1,218 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.entrega.CatalogoAudio;
+import com.utp.biblioteca.entrega.IndiceSegmentos;
+import com.utp.biblioteca.entrega.ServidorStreaming;
+import com.utp.biblioteca.seguridad.AnilloClaves;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Prueba de carga: miles de oyentes conectados a la vez al servidor de streaming
+ *
+ * Uso: java ... StreamingBenchmark [oyentes] [minutos de audio]
+ * Todos los oyentes se conectan y arrancan a la vez. Cada uno pide los segmentos 0, 1 y 2 en
+ * calidad alta, salta a un minuto al azar, y sigue con el segmento siguiente en calidad baja.
+ * Se mide el tiempo hasta el primer byte del primer segmento y la latencia de la búsqueda
+ * (hasta el primer byte), con el servidor en un único hilo.
+ */
+public class StreamingBenchmark {
+
+    private static final int PASOS = 5;
+
+    /** Un oyente: conexión no bloqueante y la respuesta que está leyendo */
+    private static final class Oyente {
+        final int numero;
+        final SocketChannel canal;
+        final ByteBuffer cabeceras = ByteBuffer.allocate(1024);
+        int paso;
+        int segmento;
+        long enviada;
+        long restantes = -1; // -1: leyendo cabeceras
+        boolean primerByte;
+
+        Oyente(int numero, SocketChannel canal) {
+            this.numero = numero;
+            this.canal = canal;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int oyentes = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int minutos = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+
+        Path alta = crearAudio(minutos * 60L * 16_000); // 128 kbit/s
+        Path baja = crearAudio(minutos * 60L * 4_000);  // 32 kbit/s
+        CatalogoAudio catalogo = new CatalogoAudio();
+        catalogo.registrar("AUD-1", "alta", alta, IndiceSegmentos.constante(Files.size(alta), minutos * 60, 10),
+                "audio/mpeg");
+        catalogo.registrar("AUD-1", "baja", baja, IndiceSegmentos.constante(Files.size(baja), minutos * 60, 10),
+                "audio/mpeg");
+        ServicioTokens tokens = new ServicioTokens(AnilloClaves.conClaveAleatoria());
+        // Mismas calidades que firma AudioLibro.generarUrlStreaming para un audiolibro de calidad alta
+        String token = tokens.emitir("u1", "AUD-1", Duration.ofHours(2), "alta,media,baja");
+
+        // Sin limitador: se mide el servidor, no el ritmo de un usuario
+        try (ServidorStreaming servidor = new ServidorStreaming(catalogo, tokens, null,
+                ServidorStreaming.ESPERA_INACTIVA_DEFAULT_MS).iniciar(0)) {
+            for (int ronda = 0; ronda < 2; ronda++) {
+                ejecutar(servidor.getPuerto(), token, oyentes, minutos, ronda == 1);
+            }
+            System.out.println(servidor);
+        } finally {
+            Files.deleteIfExists(alta);
+            Files.deleteIfExists(baja);
+        }
+    }
+
+    private static void ejecutar(int puerto, String token, int numeroOyentes, int minutos, boolean imprimir)
+            throws IOException {
+        Random aleatorio = new Random(11);
+        Selector selector = Selector.open();
+        Oyente[] oyentes = new Oyente[numeroOyentes];
+        for (int i = 0; i < numeroOyentes; i++) {
+            SocketChannel canal = SocketChannel.open(new InetSocketAddress("localhost", puerto));
+            canal.configureBlocking(false);
+            oyentes[i] = new Oyente(i, canal);
+            canal.register(selector, SelectionKey.OP_READ, oyentes[i]);
+        }
+        long[] primerByte = new long[numeroOyentes];
+        long[] busqueda = new long[numeroOyentes];
+        int terminados = 0;
+        long segmentos = 0;
+        long bytes = 0;
+        ByteBuffer descarte = ByteBuffer.allocateDirect(256 * 1024);
+        long inicio = System.nanoTime();
+        for (Oyente oyente : oyentes) {
+            pedir(oyente, token, "alta", "segmento=0");
+        }
+        while (terminados < numeroOyentes) {
+            selector.select();
+            Iterator<SelectionKey> listas = selector.selectedKeys().iterator();
+            while (listas.hasNext()) {
+                SelectionKey clave = listas.next();
+                listas.remove();
+                Oyente oyente = (Oyente) clave.attachment();
+                while (true) {
+                    if (oyente.restantes < 0) {
+                        int n = oyente.canal.read(oyente.cabeceras);
+                        if (n <= 0) {
+                            break;
+                        }
+                        if (!oyente.primerByte) {
+                            oyente.primerByte = true;
+                            long latencia = System.nanoTime() - oyente.enviada;
+                            if (oyente.paso == 0) {
+                                primerByte[oyente.numero] = latencia;
+                            } else if (oyente.paso == 3) {
+                                busqueda[oyente.numero] = latencia;
+                            }
+                        }
+                        int fin = finCabeceras(oyente.cabeceras);
+                        if (fin < 0) {
+                            continue;
+                        }
+                        String texto = new String(oyente.cabeceras.array(), 0, fin, StandardCharsets.ISO_8859_1);
+                        long longitud = Long.parseLong(valor(texto, "Content-Length"));
+                        oyente.segmento = Integer.parseInt(valor(texto, "X-Segmento"));
+                        oyente.restantes = longitud - (oyente.cabeceras.position() - fin);
+                        oyente.cabeceras.clear();
+                    } else if (oyente.restantes > 0) {
+                        descarte.clear();
+                        descarte.limit((int) Math.min(descarte.capacity(), oyente.restantes));
+                        int n = oyente.canal.read(descarte);
+                        if (n <= 0) {
+                            break;
+                        }
+                        oyente.restantes -= n;
+                        bytes += n;
+                    }
+                    if (oyente.restantes == 0) {
+                        segmentos++;
+                        oyente.paso++;
+                        oyente.restantes = -1;
+                        oyente.primerByte = false;
+                        if (oyente.paso == PASOS) {
+                            terminados++;
+                            clave.cancel();
+                            oyente.canal.close();
+                            break;
+                        }
+                        if (oyente.paso == 3) {
+                            pedir(oyente, token, "alta", "minuto=" + aleatorio.nextInt(minutos));
+                        } else if (oyente.paso == 4) {
+                            pedir(oyente, token, "baja", "segmento=" + (oyente.segmento + 1) % (minutos * 6));
+                        } else {
+                            pedir(oyente, token, "alta", "segmento=" + oyente.paso);
+                        }
+                    }
+                }
+            }
+        }
+        long nanos = System.nanoTime() - inicio;
+        selector.close();
+        if (imprimir) {
+            System.out.printf("%,d oyentes simultáneos, %,d segmentos (%,.0f MB) en %.2f s: %,.0f segmentos/s%n",
+                    numeroOyentes, segmentos, bytes / 1e6, nanos / 1e9, segmentos * 1e9 / nanos);
+            imprimirPercentiles("Primer byte del primer segmento", primerByte);
+            imprimirPercentiles("Búsqueda por minuto (primer byte)", busqueda);
+        }
+    }
+
+    private static void pedir(Oyente oyente, String token, String calidad, String segmento) throws IOException {
+        String solicitud = "GET " + ServidorStreaming.PREFIJO + "AUD-1?token=" + token + "&quality=" + calidad
+                + "&" + segmento + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        oyente.enviada = System.nanoTime();
+        ByteBuffer bytes = ByteBuffer.wrap(solicitud.getBytes(StandardCharsets.ISO_8859_1));
+        while (bytes.hasRemaining()) {
+            oyente.canal.write(bytes);
+        }
+    }
+
+    private static int finCabeceras(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        for (int i = 3; i < buffer.position(); i++) {
+            if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static String valor(String cabeceras, String nombre) {
+        int inicio = cabeceras.indexOf(nombre + ": ") + nombre.length() + 2;
+        return cabeceras.substring(inicio, cabeceras.indexOf("\r\n", inicio));
+    }
+
+    private static void imprimirPercentiles(String nombre, long[] latencias) {
+        long[] ordenadas = latencias.clone();
+        Arrays.sort(ordenadas);
+        System.out.printf("%-34s p50 %7.2f ms  p99 %7.2f ms  máx %7.2f ms%n", nombre,
+                ordenadas[ordenadas.length / 2] / 1e6, ordenadas[(int) (ordenadas.length * 0.99)] / 1e6,
+                ordenadas[ordenadas.length - 1] / 1e6);
+    }
+
+    private static Path crearAudio(long tamano) throws IOException {
+        Path archivo = Files.createTempFile("streaming-benchmark", ".mp3");
+        byte[] bloque = new byte[1024 * 1024];
+        new Random(5).nextBytes(bloque);
+        for (long escritos = 0; escritos < tamano; escritos += bloque.length) {
+            Files.write(archivo, Arrays.copyOf(bloque, (int) Math.min(bloque.length, tamano - escritos)),
+                    StandardOpenOption.APPEND);
+        }
+        return archivo;
+    }
+}
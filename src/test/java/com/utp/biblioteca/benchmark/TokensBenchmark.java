@@ -0,0 +1,111 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.seguridad.AnilloClaves;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Benchmark: validaciones por segundo de tokens firmados
+ *
+ * Uso: java ... TokensBenchmark [tokens] [validaciones]
+ * 1) ServicioTokens.validarPara en un hilo y en tantos hilos como procesadores
+ * 2) Referencia: el mismo HMAC creando e inicializando el Mac en cada validación
+ *    (lo que cuesta no reutilizar las claves ya inicializadas)
+ */
+public class TokensBenchmark {
+
+    private static final int RONDAS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int numeroTokens = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int validaciones = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        ServicioTokens servicio = new ServicioTokens(AnilloClaves.conClaveAleatoria());
+        servicio.rotarClaves(); // dos claves en el anillo, como durante una rotación
+        String[] tokens = new String[numeroTokens];
+        String[] recursos = new String[numeroTokens];
+        for (int i = 0; i < numeroTokens; i++) {
+            recursos[i] = UUID.randomUUID().toString();
+            tokens[i] = servicio.emitir(UUID.randomUUID().toString(), recursos[i], Duration.ofHours(1),
+                    i % 2 == 0 ? "alta" : null);
+        }
+        System.out.printf("Token típico: %d caracteres%n", tokens[0].length());
+
+        // 1) Un hilo
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long inicio = System.nanoTime();
+            long validos = validar(servicio, tokens, recursos, 0, validaciones);
+            long nanos = System.nanoTime() - inicio;
+            if (ronda == RONDAS - 1) {
+                System.out.printf("1 hilo:   %,12.0f validaciones/s (%,d válidas)%n",
+                        validaciones * 1e9 / nanos, validos);
+            }
+        }
+
+        // 1) Varios hilos
+        int hilos = Runtime.getRuntime().availableProcessors();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long inicio = System.nanoTime();
+            List<Future<Long>> partes = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int desplazamiento = h * 7919;
+                partes.add(ejecutor.submit(() -> validar(servicio, tokens, recursos, desplazamiento, validaciones / hilos)));
+            }
+            long validos = 0;
+            for (Future<Long> parte : partes) {
+                validos += parte.get();
+            }
+            long nanos = System.nanoTime() - inicio;
+            if (ronda == RONDAS - 1) {
+                System.out.printf("%d hilos: %,12.0f validaciones/s (%,d válidas)%n", hilos,
+                        (validaciones / hilos * hilos) * 1e9 / nanos, validos);
+            }
+        }
+        ejecutor.shutdown();
+
+        // 2) Mac nuevo en cada validación
+        byte[] secreto = new byte[32];
+        new SecureRandom().nextBytes(secreto);
+        SecretKeySpec clave = new SecretKeySpec(secreto, "HmacSHA256");
+        int sinCache = validaciones / 10;
+        long sumidero = 0;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < sinCache; i++) {
+                byte[] bytes = Base64.getUrlDecoder().decode(tokens[i % numeroTokens]);
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(clave);
+                mac.update(bytes, 0, bytes.length - 16);
+                sumidero += mac.doFinal()[0];
+            }
+            long nanos = System.nanoTime() - inicio;
+            if (ronda == RONDAS - 1) {
+                System.out.printf("Mac sin reutilizar: %,12.0f validaciones/s%n", sinCache * 1e9 / nanos);
+            }
+        }
+        System.out.println("(control: " + sumidero + ")");
+    }
+
+    private static long validar(ServicioTokens servicio, String[] tokens, String[] recursos, int desplazamiento,
+                                int cantidad) {
+        long validos = 0;
+        for (int i = 0; i < cantidad; i++) {
+            int j = (i + desplazamiento) % tokens.length;
+            if (servicio.validarPara(tokens[j], recursos[j]).isPresent()) {
+                validos++;
+            }
+        }
+        return validos;
+    }
+}
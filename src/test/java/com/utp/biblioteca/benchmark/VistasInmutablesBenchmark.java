@@ -0,0 +1,127 @@
+package com.utp.biblioteca.benchmark;
+
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Usuario;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Benchmark: copias defensivas frente a vistas inmutables compartidas en los getters
+ *
+ * Uso: java ... VistasInmutablesBenchmark [recursos] [usuarios]
+ * Bytes asignados (contadores del hilo) y tiempo de:
+ * 1) Una búsqueda en el catálogo que lee palabras clave e indexables de cada recurso
+ * 2) Un refresco del panel de usuarios: préstamos activos e historial de cada uno
+ * "copia" reproduce lo que hacían los getters antes (new ArrayList en cada llamada).
+ */
+public class VistasInmutablesBenchmark {
+
+    private static final int RONDAS = 5;
+
+    public static void main(String[] args) {
+        int numeroRecursos = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int numeroUsuarios = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        List<Recurso> catalogo = new ArrayList<>(numeroRecursos);
+        for (int i = 0; i < numeroRecursos; i++) {
+            Recurso recurso = HuellaCatalogoBenchmark.generar(i, aleatorio);
+            for (int k = 0; k < 4; k++) {
+                recurso.agregarPalabraClave("tema" + aleatorio.nextInt(200));
+            }
+            catalogo.add(recurso);
+        }
+        List<Usuario> usuarios = new ArrayList<>(numeroUsuarios);
+        List<List<String>> historialesComoLista = new ArrayList<>(numeroUsuarios); // el campo anterior
+        for (int i = 0; i < numeroUsuarios; i++) {
+            Estudiante estudiante = new Estudiante("Estudiante " + i, "e" + i + "@utp.edu.pe", "x", "Sistemas", 3, "U" + i);
+            List<String> historial = new ArrayList<>();
+            for (int k = 0; k < 100 + aleatorio.nextInt(200); k++) {
+                historial.add(UUID.randomUUID().toString());
+            }
+            estudiante.restaurarEstado(estudiante.getId(), LocalDate.of(2022, 3, 1), true,
+                    historial.subList(historial.size() - 3, historial.size()), historial, 0.0);
+            usuarios.add(estudiante);
+            historialesComoLista.add(historial);
+        }
+
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long sumidero = 0;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            boolean imprimir = ronda == RONDAS - 1; // las primeras calientan el JIT
+            String termino = "tema" + ronda;
+
+            // 1) Búsqueda en el catálogo
+            long antes = hilos.getCurrentThreadAllocatedBytes();
+            long inicio = System.nanoTime();
+            for (Recurso recurso : catalogo) {
+                sumidero += coincide(new ArrayList<>(recurso.getPalabrasClave()), termino)
+                        + coincide(indexablesComoAntes(recurso), termino);
+            }
+            imprimir(imprimir, "Búsqueda, copia", hilos.getCurrentThreadAllocatedBytes() - antes,
+                    System.nanoTime() - inicio, numeroRecursos, "recurso");
+
+            antes = hilos.getCurrentThreadAllocatedBytes();
+            inicio = System.nanoTime();
+            for (Recurso recurso : catalogo) {
+                sumidero += coincide(recurso.getPalabrasClave(), termino)
+                        + coincide(recurso.getPalabrasClaveIndexables(), termino);
+            }
+            imprimir(imprimir, "Búsqueda, vista", hilos.getCurrentThreadAllocatedBytes() - antes,
+                    System.nanoTime() - inicio, numeroRecursos, "recurso");
+
+            // 2) Panel de usuarios: préstamos activos y los 5 últimos del historial
+            antes = hilos.getCurrentThreadAllocatedBytes();
+            inicio = System.nanoTime();
+            for (int i = 0; i < numeroUsuarios; i++) {
+                List<String> activos = new ArrayList<>(usuarios.get(i).getPrestamosActivos());
+                List<String> historial = new ArrayList<>(historialesComoLista.get(i));
+                sumidero += activos.size() + historial.subList(historial.size() - 5, historial.size()).size();
+            }
+            imprimir(imprimir, "Panel, copia", hilos.getCurrentThreadAllocatedBytes() - antes,
+                    System.nanoTime() - inicio, numeroUsuarios, "usuario");
+
+            antes = hilos.getCurrentThreadAllocatedBytes();
+            inicio = System.nanoTime();
+            for (Usuario usuario : usuarios) {
+                sumidero += usuario.getPrestamosActivos().size() + usuario.getHistorial().pagina(0, 5).size();
+            }
+            imprimir(imprimir, "Panel, vista", hilos.getCurrentThreadAllocatedBytes() - antes,
+                    System.nanoTime() - inicio, numeroUsuarios, "usuario");
+        }
+        System.out.println("(control: " + sumidero + ")");
+    }
+
+    private static int coincide(List<String> palabras, String termino) {
+        for (String palabra : palabras) {
+            if (palabra.contains(termino)) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * getPalabrasClaveIndexables tal como era: lista nueva y tres toLowerCase por llamada
+     */
+    private static List<String> indexablesComoAntes(Recurso recurso) {
+        List<String> palabras = new ArrayList<>();
+        palabras.add(recurso.getTitulo().toLowerCase());
+        palabras.add(recurso.getAutor().toLowerCase());
+        palabras.add(recurso.getCategoria().toLowerCase());
+        palabras.addAll(recurso.getPalabrasClave());
+        return palabras;
+    }
+
+    private static void imprimir(boolean imprimir, String caso, long bytes, long nanos, int elementos, String unidad) {
+        if (imprimir) {
+            System.out.printf("%-16s %,8d B/%s %,8.0f ns/%s%n", caso, bytes / elementos, unidad,
+                    (double) nanos / elementos, unidad);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.utp.biblioteca.cuotas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cuotas de descarga: el límite es exacto con muchos hilos y varias instancias
+ */
+class CuotaDescargasTest {
+
+    /** Reloj que la prueba adelanta a mano */
+    private static final class RelojAjustable extends Clock {
+        private volatile Instant ahora = Instant.parse("2025-03-01T10:00:00Z");
+
+        void avanzar(Duration duracion) { ahora = ahora.plus(duracion); }
+
+        @Override public Instant instant() { return ahora; }
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zona) { return this; }
+    }
+
+    @Test
+    void muchosHilosEnDosInstanciasNuncaPasanDelLimite() throws Exception {
+        ProveedorCuposMemoria proveedor = new ProveedorCuposMemoria();
+        CuotaDescargas[] instancias = {new CuotaDescargas(proveedor), new CuotaDescargas(proveedor)};
+        int limite = 500;
+        int hilos = 8;
+        int intentosPorHilo = 200;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Integer>> partes = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            CuotaDescargas cuota = instancias[h % 2];
+            partes.add(ejecutor.submit(() -> {
+                salida.await();
+                int concedidas = 0;
+                for (int i = 0; i < intentosPorHilo; i++) {
+                    if (cuota.reservar("R-1", limite, 20, Instant.MAX)) {
+                        concedidas++;
+                    }
+                }
+                return concedidas;
+            }));
+        }
+        salida.countDown();
+        int concedidas = 0;
+        for (Future<Integer> parte : partes) {
+            concedidas += parte.get();
+        }
+        ejecutor.shutdown();
+
+        assertEquals(limite - 20, concedidas); // las 20 ya registradas cuentan
+        assertEquals(limite, proveedor.getArrendados("R-1|total"));
+        assertEquals(hilos * intentosPorHilo - concedidas,
+                instancias[0].getRechazos() + instancias[1].getRechazos());
+        assertFalse(instancias[0].reservar("R-1", limite, 20, Instant.MAX));
+    }
+
+    @Test
+    void losPrestamosSimultaneosNuncaSuperanLasLicenciasYVuelvenAlVencer() throws Exception {
+        RelojAjustable reloj = new RelojAjustable();
+        ProveedorCuposMemoria proveedor = new ProveedorCuposMemoria();
+        CuotaDescargas cuota = new CuotaDescargas(proveedor, 4, 3, 0, null, reloj);
+
+        AtomicInteger vigentes = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(6);
+        for (int h = 0; h < 6; h++) {
+            ejecutor.submit(() -> {
+                for (int i = 0; i < 300; i++) {
+                    if (cuota.reservar("R-2", Integer.MAX_VALUE, 0, Instant.MAX)) {
+                        maximo.accumulateAndGet(vigentes.incrementAndGet(), Math::max);
+                        vigentes.decrementAndGet();
+                        cuota.liberar("R-2");
+                    }
+                }
+            });
+        }
+        ejecutor.shutdown();
+        assertTrue(ejecutor.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(maximo.get() <= 3, "simultáneos: " + maximo.get());
+        assertEquals(0, cuota.getPrestamosVigentes("R-2"));
+
+        // Préstamos que no se devuelven: sus cupos vuelven al vencer
+        Instant vence = reloj.instant().plus(Duration.ofDays(14));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cuota.reservar("R-3", 100, 0, vence));
+        }
+        assertFalse(cuota.reservar("R-3", 100, 0, vence));
+        reloj.avanzar(Duration.ofDays(14));
+        assertEquals(3, cuota.liberarVencidas());
+        assertTrue(cuota.reservar("R-3", 100, 0, vence.plus(Duration.ofDays(14))));
+        assertEquals(3, cuota.getVencidas());
+    }
+
+    @Test
+    void elLimitePorPeriodoSeReiniciaYUnRechazoNoConsumeOtrosCupos() {
+        RelojAjustable reloj = new RelojAjustable();
+        ProveedorCuposMemoria proveedor = new ProveedorCuposMemoria();
+        CuotaDescargas cuota = new CuotaDescargas(proveedor, 16, 0, 2, Duration.ofDays(30), reloj);
+
+        assertTrue(cuota.reservar("R-4", 10, 0, Instant.MAX));
+        assertTrue(cuota.reservar("R-4", 10, 0, Instant.MAX));
+        assertFalse(cuota.reservar("R-4", 10, 0, Instant.MAX)); // agotado el periodo
+        cuota.devolverSobrantes();
+        assertEquals(2, proveedor.getArrendados("R-4|total")); // el rechazo no gastó cupo total
+
+        reloj.avanzar(Duration.ofDays(30));
+        assertTrue(cuota.reservar("R-4", 10, 0, Instant.MAX));
+        cuota.close();
+        assertEquals(3, proveedor.getArrendados("R-4|total"));
+    }
+
+    @Test
+    void alCambiarDePeriodoSePurganLosCuposDeLosPeriodosTerminados() {
+        RelojAjustable reloj = new RelojAjustable();
+        ProveedorCuposMemoria proveedor = new ProveedorCuposMemoria();
+        Duration periodo = Duration.ofDays(30);
+        CuotaDescargas cuota = new CuotaDescargas(proveedor, 16, 0, 5, periodo, reloj);
+        long primero = reloj.millis() / periodo.toMillis();
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(cuota.reservar("R-6", 100, 0, Instant.MAX));
+            assertTrue(cuota.reservar("R-7", 100, 0, Instant.MAX));
+            reloj.avanzar(periodo);
+        }
+        // Periodos primero..primero+3 usados; al empezar primero+3 se purgaron los anteriores a primero+2
+        assertEquals(4, cuota.getPeriodosPurgados());
+        assertEquals(0, proveedor.getArrendados("R-6|periodo-" + (primero + 1)));
+        assertTrue(proveedor.getArrendados("R-6|periodo-" + (primero + 2)) > 0);
+        assertTrue(proveedor.getArrendados("R-7|periodo-" + (primero + 3)) > 0);
+        assertTrue(proveedor.getArrendados("R-6|total") > 0); // los demás cupos no se tocan
+
+        // Como tarea de mantenimiento: ya en primero+4, sin reservas en este periodo
+        assertEquals(2, cuota.purgarPeriodosTerminados());
+        assertEquals(0, proveedor.getArrendados("R-7|periodo-" + (primero + 2)));
+        assertEquals(0, cuota.purgarPeriodosTerminados());
+        assertEquals(0, new CuotaDescargas(proveedor).purgarPeriodosTerminados()); // sin límite por periodo
+    }
+
+        @Test
+    void anularDevuelveLosCuposYElLimiteGuardadoManda() {
+        ProveedorCuposMemoria proveedor = new ProveedorCuposMemoria();
+        RelojAjustable reloj = new RelojAjustable();
+        CuotaDescargas cuota = new CuotaDescargas(proveedor, 1, 1, 5, Duration.ofDays(30), reloj);
+        CupoReservado cupo = cuota.reservarCupo("R-5", 2, 0, Instant.MAX);
+        assertFalse(cuota.reservar("R-5", 2, 0, Instant.MAX)); // ocupada la licencia simultánea
+        cuota.anular(cupo);
+        assertEquals(0, cuota.getPrestamosVigentes("R-5"));
+        assertEquals(1, cuota.getAnuladas());
+
+        // El límite que llega después no pisa el guardado: solo actualizarLimite lo cambia
+        assertTrue(cuota.reservar("R-5", 2, 0, Instant.MAX));
+        assertTrue(cuota.liberar("R-5"));
+        assertTrue(cuota.reservar("R-5", 2, 0, Instant.MAX));
+        assertTrue(cuota.liberar("R-5"));
+        assertFalse(cuota.reservar("R-5", 50, 0, Instant.MAX));
+        cuota.actualizarLimite("R-5", 3);
+        assertTrue(cuota.reservar("R-5", 50, 0, Instant.MAX));
+        cuota.close();
+        assertEquals(3, proveedor.getArrendados("R-5|total"));
+    }
+
+    @Test
+    void ebookRespetaSuLimiteDeDescargasConVariosHilos() throws Exception {
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        ebook.setLimiteDescargas(40);
+        ServicioCirculacion servicio = new ServicioCirculacion(new CuotaDescargas(new ProveedorCuposMemoria()));
+        ExecutorService ejecutor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> partes = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            Estudiante lector = new Estudiante("Lector " + h, "l" + h + "@utp.edu.pe", "x", "Sistemas", 1, "U" + h);
+            partes.add(ejecutor.submit(() -> {
+                int concedidos = 0;
+                for (int i = 0; i < 25; i++) {
+                    Prestamo prestamo = servicio.prestar(lector, ebook);
+                    if (prestamo != null) {
+                        concedidos++;
+                        servicio.devolver(prestamo);
+                    }
+                }
+                return concedidos;
+            }));
+        }
+        int concedidos = 0;
+        for (Future<Integer> parte : partes) {
+            concedidos += parte.get();
+        }
+        ejecutor.shutdown();
+        assertEquals(40, concedidos);
+        assertEquals(40, ebook.getDescargasRealizadas());
+        assertNull(servicio.prestar(new Estudiante("Otro", "o@utp.edu.pe", "x", "Sistemas", 1, "U9"), ebook));
+    }
+}
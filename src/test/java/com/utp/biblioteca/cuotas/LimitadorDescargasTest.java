@@ -0,0 +1,180 @@
+package com.utp.biblioteca.cuotas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.seguridad.AnilloClaves;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Límites de ritmo por usuario: ráfaga, reposición, bytes y barrido de cubos inactivos
+ */
+class LimitadorDescargasTest {
+
+    /** Reloj que la prueba adelanta a mano */
+    private static final class RelojAjustable extends Clock {
+        private volatile Instant ahora = Instant.parse("2025-03-01T10:00:00Z");
+
+        void avanzar(Duration duracion) { ahora = ahora.plus(duracion); }
+
+        @Override public Instant instant() { return ahora; }
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zona) { return this; }
+    }
+
+    private static final long MB = 1024L * 1024;
+
+    private final RelojAjustable reloj = new RelojAjustable();
+    // 6 solicitudes por minuto (una cada 10 s), ráfaga de 3; 1 MB/s con ráfaga de 4 MB
+    private final PerfilLimites perfil = new PerfilLimites(6, 3, MB, 4 * MB);
+    private final LimitadorDescargas limitador = new LimitadorDescargas(
+            Map.of("Profesor", new PerfilLimites(60, 10, 10 * MB, 100 * MB)), perfil, null, reloj);
+
+    @Test
+    void laRafagaSeAgotaYSeReponeConElTiempo() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limitador.permitir("u1", null, 0));
+        }
+        assertFalse(limitador.permitir("u1", null, 0));
+        assertTrue(limitador.permitir("u2", null, 0)); // cada usuario tiene su cubo
+        assertEquals(Duration.ofSeconds(10), limitador.esperaPara("u1", 0));
+
+        reloj.avanzar(Duration.ofSeconds(10));
+        assertTrue(limitador.permitir("u1", null, 0));
+        assertFalse(limitador.permitir("u1", null, 0));
+
+        // Bytes: se cobran al enviarlos; pasada la ráfaga de 4 MB el servidor espera 1 s por MB
+        reloj.avanzar(Duration.ofMinutes(1));
+        assertEquals(0, limitador.cobrarEnviados("u3", null, 4 * MB));
+        assertEquals(Duration.ofSeconds(1).toNanos(), limitador.cobrarEnviados("u3", null, MB));
+        assertEquals(Duration.ofSeconds(2).toNanos(), limitador.cobrarEnviados("u3", null, MB));
+        assertEquals(2, limitador.getEsperasEntrega());
+        assertEquals(6 * MB, limitador.getBytesCobrados());
+
+        // Con deuda no se emiten enlaces, y el rechazo por bytes no gasta la solicitud
+        for (int i = 0; i < 5; i++) {
+            assertFalse(limitador.permitir("u3", null, MB));
+        }
+        assertEquals(5, limitador.getRechazadasPorBytes());
+        assertEquals(Duration.ofSeconds(3), limitador.esperaPara("u3", MB)); // 6 s de deuda - 4 s de ráfaga + 1 s
+        reloj.avanzar(Duration.ofSeconds(3));
+        assertTrue(limitador.permitir("u3", null, MB));
+        assertTrue(limitador.permitir("u3", null, 0));
+        assertTrue(limitador.permitir("u3", null, 0));
+        assertFalse(limitador.permitir("u3", null, 0));
+    }
+
+    @Test
+    void elPerfilDependeDelTipoDeUsuario() {
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "clave", "Sistemas", 3, "U2024001");
+        Profesor profesor = new Profesor("Luis", "luis@utp.edu.pe", "clave", "Computación", "Doctor", "P-01");
+        int estudianteAdmitidas = 0;
+        int profesorAdmitidas = 0;
+        for (int i = 0; i < 20; i++) {
+            if (limitador.permitir(estudiante, 0)) estudianteAdmitidas++;
+            if (limitador.permitir(profesor, 0)) profesorAdmitidas++;
+        }
+        assertEquals(3, estudianteAdmitidas);
+        assertEquals(10, profesorAdmitidas);
+
+        // En los eBooks: el enlace no se emite cuando el usuario supera su ritmo
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática", LocalDate.of(2008, 8, 1),
+                "PDF", 3.0, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        ServicioTokens tokens = new ServicioTokens(AnilloClaves.conClaveAleatoria());
+        assertNotNull(ebook.generarEnlaceDescarga("u9", null, tokens, limitador));
+        // El servidor cobra lo que envía: dos descargas de 3 MB dejan al usuario 2 s en deuda
+        assertEquals(0, limitador.cobrarEnviados("u9", null, 3 * MB));
+        assertEquals(Duration.ofSeconds(2).toNanos(), limitador.cobrarEnviados("u9", null, 3 * MB));
+        assertNull(ebook.generarEnlaceDescarga("u9", null, tokens, limitador));
+
+        // Con el usuario, el enlace toma el perfil de su tipo (no el por defecto)
+        LimitadorDescargas.configurarCompartido(limitador);
+        try {
+            Profesor luis = new Profesor("Luis", "luis2@utp.edu.pe", "clave", "Computación", "Doctor", "P-09");
+            for (int i = 0; i < 5; i++) {
+                assertNotNull(ebook.generarEnlaceDescarga(luis, tokens)); // 15 MB, dentro de su ráfaga
+            }
+        } finally {
+            LimitadorDescargas.configurarCompartido(null);
+        }
+    }
+
+    @Test
+    void elBarridoRetiraSoloLosCubosLlenos() {
+        for (int i = 0; i < 100; i++) {
+            limitador.permitir("u" + i, null, 0);
+            if (i % 2 == 1) {
+                limitador.cobrarEnviados("u" + i, null, 6 * MB);
+            }
+        }
+        assertEquals(100, limitador.getCubosActivos());
+        assertEquals(0, limitador.barrer());
+
+        // A los 10 s se repusieron la solicitud y los 6 MB
+        reloj.avanzar(Duration.ofSeconds(10));
+        assertEquals(100, limitador.barrer());
+        assertEquals(0, limitador.getCubosActivos());
+
+        // Un cubo retirado se comporta como uno nuevo
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limitador.permitir("u1", null, 0));
+        }
+        assertFalse(limitador.permitir("u1", null, 0));
+        reloj.avanzar(Duration.ofSeconds(15));
+        assertEquals(0, limitador.barrer()); // aún le faltan 15 s para llenarse
+        assertEquals(1, limitador.getCubosActivos());
+    }
+
+    @Test
+    void conMuchosHilosSeAdmiteExactamenteLaRafaga() throws Exception {
+        int hilos = 8;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Integer>> partes = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            int hilo = h;
+            partes.add(ejecutor.submit(() -> {
+                salida.await();
+                int admitidas = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    if (limitador.permitir("u" + (i % 50), null, MB)) {
+                        admitidas++;
+                    }
+                    if (hilo == 0 && i % 100 == 0) {
+                        limitador.barrer(); // el barrido concurre con las solicitudes
+                    }
+                }
+                return admitidas;
+            }));
+        }
+        salida.countDown();
+        int admitidas = 0;
+        for (Future<Integer> parte : partes) {
+            admitidas += parte.get();
+        }
+        ejecutor.shutdown();
+        // Reloj parado: 50 usuarios con ráfaga de 3 solicitudes (al emitir no se cobran bytes)
+        assertEquals(150, admitidas);
+        assertEquals(150, limitador.getPermitidas());
+    }
+}
@@ -0,0 +1,188 @@
+package com.utp.biblioteca.entrega;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.cuotas.LimitadorDescargas;
+import com.utp.biblioteca.cuotas.PerfilLimites;
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.seguridad.AnilloClaves;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Servidor de descargas: cuerpo completo, rangos, ETag, tokens, préstamo vigente y ritmo
+ */
+class ServidorDescargasTest {
+
+    private static final long MB = 1024L * 1024;
+
+    @TempDir
+    Path directorio;
+
+    private final ServicioTokens tokens = new ServicioTokens(AnilloClaves.conClaveAleatoria());
+    private final Estudiante lector = new Estudiante("Ana", "ana@utp.edu.pe", "clave", "Sistemas", 3, "U2024001");
+    private final HttpClient cliente = HttpClient.newHttpClient();
+    private ServidorDescargas servidor;
+    private EBook ebook;
+    private Prestamo prestamo;
+    private final List<Prestamo> prestamos = new ArrayList<>();
+    // Préstamos vigentes en memoria, en lugar de RepositorioPrestamos::tieneVigente
+    private final VerificadorPrestamos vigentes = (usuarioId, recursoId) -> prestamos.stream()
+            .anyMatch(p -> p.getEstado() == EstadoPrestamo.ACTIVO && p.getUsuarioId().equals(usuarioId)
+                    && p.getRecursoId().equals(recursoId));
+    private CatalogoArchivos catalogo;
+    private byte[] contenido;
+    private String base;
+
+    @BeforeEach
+    void iniciar() throws Exception {
+        contenido = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(contenido);
+        Path archivo = Files.write(directorio.resolve("clean-code.pdf"), contenido);
+        ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 3.0, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        catalogo = new CatalogoArchivos();
+        catalogo.registrar(ebook, archivo);
+        prestamo = new ServicioCirculacion().prestar(lector, ebook);
+        prestamos.add(prestamo);
+        servidor = new ServidorDescargas(catalogo, tokens, vigentes, 2).iniciar(0);
+        base = "http://localhost:" + servidor.getPuerto() + ServidorDescargas.PREFIJO + ebook.getId();
+    }
+
+    @AfterEach
+    void cerrar() {
+        servidor.close();
+    }
+
+    private HttpResponse<byte[]> pedir(String url, String... cabeceras) throws Exception {
+        HttpRequest.Builder solicitud = HttpRequest.newBuilder(URI.create(url));
+        if (cabeceras.length > 0) {
+            solicitud.headers(cabeceras);
+        }
+        return cliente.send(solicitud.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    void sirveElArchivoCompletoYReanudaPorRangos() throws Exception {
+        String enlace = ebook.generarEnlaceDescarga(lector, tokens);
+        String url = base + enlace.substring(enlace.indexOf('?'));
+
+        HttpResponse<byte[]> completa = pedir(url);
+        assertEquals(200, completa.statusCode());
+        assertArrayEquals(contenido, completa.body());
+        assertEquals("application/pdf", completa.headers().firstValue("Content-Type").orElseThrow());
+        String etag = completa.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<byte[]> parcial = pedir(url, "Range", "bytes=1000000-", "If-Range", etag);
+        assertEquals(206, parcial.statusCode());
+        assertEquals("bytes 1000000-" + (contenido.length - 1) + "/" + contenido.length,
+                parcial.headers().firstValue("Content-Range").orElseThrow());
+        assertArrayEquals(Arrays.copyOfRange(contenido, 1_000_000, contenido.length), parcial.body());
+
+        assertArrayEquals(Arrays.copyOfRange(contenido, contenido.length - 10, contenido.length),
+                pedir(url, "Range", "bytes=-10").body());
+        assertArrayEquals(Arrays.copyOfRange(contenido, 5, 8), pedir(url, "Range", "bytes=5-7").body());
+        assertEquals(416, pedir(url, "Range", "bytes=" + contenido.length + "-").statusCode());
+        // If-Range con otro ETag: el archivo cambió, va completo
+        assertEquals(200, pedir(url, "Range", "bytes=5-7", "If-Range", "\"otro\"").statusCode());
+
+        assertEquals(2, servidor.getDescargasCompletas());
+        assertEquals(3, servidor.getDescargasParciales());
+    }
+
+    @Test
+    void respondeNoModificadoConElMismoEtagYRechazaTokensAjenos() throws Exception {
+        String token = tokens.emitir(lector.getId(), ebook.getId(), Duration.ofMinutes(5), null);
+        String url = base + "?token=" + token;
+        String etag = pedir(url).headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<byte[]> noModificada = pedir(url, "If-None-Match", etag);
+        assertEquals(304, noModificada.statusCode());
+        assertEquals(0, noModificada.body().length);
+
+        String otroRecurso = tokens.emitir("u1", "otro-recurso", Duration.ofMinutes(5), null);
+        assertEquals(403, pedir(base + "?token=" + otroRecurso).statusCode());
+        assertEquals(403, pedir(base).statusCode());
+        String ajeno = new ServicioTokens(AnilloClaves.conClaveAleatoria())
+                .emitir("u1", ebook.getId(), Duration.ofMinutes(5), null);
+        assertEquals(403, pedir(base + "?token=" + ajeno).statusCode());
+        // El token se comprueba antes que el catálogo: sin token válido no se distingue un eBook inexistente
+        assertEquals(403, pedir(base + "x?token=" + token).statusCode());
+        assertEquals(403, pedir(base + "x").statusCode());
+        // Con token y préstamo válidos, un eBook sin archivo en el catálogo sí es 404
+        EBook sinArchivo = new EBook("Refactoring", "Martin Fowler", "Informática",
+                LocalDate.of(1999, 7, 8), "PDF", 4.0, "https://biblioteca.utp.edu.pe/ebooks/refactoring");
+        prestamos.add(new ServicioCirculacion().prestar(lector, sinArchivo));
+        String inexistente = tokens.emitir(lector.getId(), sinArchivo.getId(), Duration.ofMinutes(5), null);
+        assertEquals(404, pedir(base.replace(ebook.getId(), sinArchivo.getId()) + "?token=" + inexistente)
+                .statusCode());
+
+        HttpResponse<byte[]> cabeza = cliente.send(HttpRequest.newBuilder(URI.create(url))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, cabeza.statusCode());
+        assertEquals(String.valueOf(contenido.length), cabeza.headers().firstValue("Content-Length").orElseThrow());
+        assertTrue(servidor.getRechazadas() >= 5);
+        assertEquals(contenido.length, servidor.getBytesEnviados());
+    }
+
+    @Test
+    void sinPrestamoVigenteElEnlaceNoDescarga() throws Exception {
+        // El enlace se emite, pero quien no tiene el préstamo del eBook no recibe el archivo
+        Estudiante sinPrestamo = new Estudiante("Luis", "luis@utp.edu.pe", "clave", "Sistemas", 3, "U2024002");
+        String enlace = ebook.generarEnlaceDescarga(sinPrestamo, tokens);
+        assertEquals(403, pedir(base + enlace.substring(enlace.indexOf('?'))).statusCode());
+
+        String propio = ebook.generarEnlaceDescarga(lector, tokens);
+        String url = base + propio.substring(propio.indexOf('?'));
+        assertEquals(206, pedir(url, "Range", "bytes=0-9").statusCode());
+        // Tras la devolución el mismo enlace deja de servir, aunque el token no haya vencido
+        assertTrue(new ServicioCirculacion().devolver(prestamo));
+        assertEquals(403, pedir(url, "Range", "bytes=10-").statusCode());
+        assertEquals(2, servidor.getRechazadas());
+        assertEquals(10, servidor.getBytesEnviados());
+    }
+
+    @Test
+    void elCuerpoSaleAlRitmoDeLosBytesDelUsuario() throws Exception {
+        // Estudiantes a 1 MB/s con ráfaga de 1 MB: los 3 MB del archivo tardan unos 2 s
+        PerfilLimites lento = new PerfilLimites(60, 10, MB, MB);
+        try (LimitadorDescargas limitador = new LimitadorDescargas(Map.of("Estudiante", lento),
+                PerfilLimites.BIBLIOTECARIO, null, Clock.systemUTC());
+             ServidorDescargas conRitmo = new ServidorDescargas(catalogo, tokens, vigentes, limitador, 1).iniciar(0)) {
+            String enlace = ebook.generarEnlaceDescarga(lector, tokens); // el token lleva el tipo Estudiante
+            String url = "http://localhost:" + conRitmo.getPuerto() + ServidorDescargas.PREFIJO + ebook.getId()
+                    + enlace.substring(enlace.indexOf('?'));
+            long inicio = System.nanoTime();
+            HttpResponse<byte[]> respuesta = pedir(url);
+            long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+
+            assertArrayEquals(contenido, respuesta.body());
+            assertTrue(milisegundos >= 1_500, "tardó " + milisegundos + " ms");
+            assertTrue(conRitmo.getEsperasRitmo() > 0);
+            assertEquals(contenido.length, limitador.getBytesCobrados());
+        }
+    }
+}
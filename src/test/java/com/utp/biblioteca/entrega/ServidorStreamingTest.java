@@ -0,0 +1,202 @@
+package com.utp.biblioteca.entrega;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.cuotas.LimitadorDescargas;
+import com.utp.biblioteca.cuotas.PerfilLimites;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.seguridad.AnilloClaves;
+import com.utp.biblioteca.seguridad.ServicioTokens;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Streaming por segmentos: búsqueda por minuto, cambio de calidad entre segmentos y ritmo
+ */
+class ServidorStreamingTest {
+
+    @TempDir
+    Path directorio;
+
+    private final ServicioTokens tokens = new ServicioTokens(AnilloClaves.conClaveAleatoria());
+    private final Estudiante oyente = new Estudiante("Ana", "ana@utp.edu.pe", "clave", "Sistemas", 3, "U2024001");
+    private final HttpClient cliente = HttpClient.newHttpClient();
+    private CatalogoAudio catalogo;
+    private ServidorStreaming servidor;
+    private AudioLibro audio;
+    private byte[] alta;
+    private byte[] baja;
+
+    @BeforeEach
+    void iniciar() throws Exception {
+        audio = new AudioLibro("Sapiens", "Yuval Noah Harari", "Historia",
+                LocalDate.of(2014, 1, 1), 5, "MP3", "Derek Perkins", "Alta"); // 5 minutos: 30 segmentos
+        alta = new byte[5 * 60 * 16_000]; // 128 kbit/s
+        baja = new byte[5 * 60 * 4_000];  // 32 kbit/s
+        Random aleatorio = new Random(3);
+        aleatorio.nextBytes(alta);
+        aleatorio.nextBytes(baja);
+        catalogo = new CatalogoAudio();
+        catalogo.registrar(audio, "Alta", Files.write(directorio.resolve("alta.mp3"), alta));
+        catalogo.registrar(audio, "Baja", Files.write(directorio.resolve("baja.mp3"), baja));
+        servidor = new ServidorStreaming(catalogo, tokens).iniciar(0);
+        audio.setUrlStreaming("http://localhost:" + servidor.getPuerto() + ServidorStreaming.PREFIJO + audio.getId());
+    }
+
+    @AfterEach
+    void cerrar() {
+        servidor.close();
+    }
+
+    private HttpResponse<byte[]> pedir(String url) throws Exception {
+        return cliente.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    void sirveSegmentosBuscaPorMinutoYCambiaDeCalidad() throws Exception {
+        String url = audio.generarUrlStreaming(oyente, tokens); // ...?token=...&quality=alta
+
+        HttpResponse<byte[]> primero = pedir(url);
+        assertEquals(200, primero.statusCode());
+        assertEquals("audio/mpeg", primero.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals("30", primero.headers().firstValue("X-Segmentos").orElseThrow());
+        assertArrayEquals(Arrays.copyOfRange(alta, 0, 160_000), primero.body()); // 10 s a 16 KB/s
+
+        HttpResponse<byte[]> minuto = pedir(url + "&minuto=3");
+        assertEquals("18", minuto.headers().firstValue("X-Segmento").orElseThrow());
+        assertEquals("180", minuto.headers().firstValue("X-Inicio-Segundos").orElseThrow());
+        assertArrayEquals(Arrays.copyOfRange(alta, 18 * 160_000, 19 * 160_000), minuto.body());
+
+        // Con la misma URL, el segmento siguiente en calidad baja continúa en el mismo instante
+        HttpResponse<byte[]> siguiente = pedir(url.replace("quality=alta", "quality=baja") + "&segmento=19");
+        assertEquals(200, siguiente.statusCode());
+        assertArrayEquals(Arrays.copyOfRange(baja, 19 * 40_000, 20 * 40_000), siguiente.body());
+        assertEquals(1, servidor.getCambiosCalidad());
+        assertEquals(1, servidor.getBusquedas());
+
+        // El último minuto pedido de más se ajusta al último segmento
+        assertEquals("29", pedir(url + "&minuto=90").headers().firstValue("X-Segmento").orElseThrow());
+        assertEquals(404, pedir(url + "&segmento=30").statusCode());
+        assertEquals(404, pedir(url.replace("quality=alta", "quality=media")).statusCode()); // autorizada, no guardada
+        // Un token firmado solo para baja no sirve la calidad alta
+        String soloBaja = audio.getUrlStreaming() + "?token="
+                + tokens.emitir(oyente.getId(), audio.getId(), Duration.ofMinutes(5), "baja");
+        assertEquals(200, pedir(soloBaja + "&quality=baja").statusCode());
+        assertEquals(403, pedir(soloBaja + "&quality=alta").statusCode());
+        // Sin quality= se sirve la calidad firmada
+        assertArrayEquals(Arrays.copyOfRange(alta, 0, 160_000),
+                pedir(url.replace("&quality=alta", "")).body());
+        assertEquals(400, pedir(url + "&segmento=x").statusCode());
+        String otro = tokens.emitir("u1", "otro", Duration.ofMinutes(5), null);
+        assertEquals(403, pedir(audio.getUrlStreaming() + "?token=" + otro).statusCode());
+        assertEquals(403, pedir(audio.getUrlStreaming() + "x?token=" + otro).statusCode());
+        assertEquals(3, servidor.getRechazadas());
+    }
+
+    @Test
+    void unErrorInesperadoCierraSoloEsaConexion() throws Exception {
+        CatalogoAudio fallido = new CatalogoAudio() {
+            @Override
+            Audio buscar(String recursoId) {
+                throw new IllegalStateException("Catálogo dañado");
+            }
+        };
+        try (ServidorStreaming fragil = new ServidorStreaming(fallido, tokens).iniciar(0);
+             Socket primera = new Socket("localhost", fragil.getPuerto());
+             Socket segunda = new Socket("localhost", fragil.getPuerto())) {
+            String token = tokens.emitir(oyente.getId(), "x", Duration.ofMinutes(5), null);
+            primera.setSoTimeout(5_000);
+            segunda.setSoTimeout(5_000);
+            primera.getOutputStream().write(("GET /audio/x?token=" + token + " HTTP/1.1\r\nHost: a\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            assertEquals(-1, primera.getInputStream().read());
+
+            // El bucle sigue atendiendo: la otra conexión recibe su respuesta
+            segunda.getOutputStream().write("GET /otra HTTP/1.1\r\nHost: a\r\n\r\n"
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            byte[] linea = new byte[12];
+            assertEquals(12, segunda.getInputStream().readNBytes(linea, 0, 12));
+            assertEquals("HTTP/1.1 404", new String(linea, StandardCharsets.ISO_8859_1));
+            assertEquals(1, fragil.getConexionesAbiertas());
+        }
+    }
+
+    @Test
+    void cierraLasConexionesInactivas() throws Exception {
+        try (ServidorStreaming breve = new ServidorStreaming(new CatalogoAudio(), tokens, 200).iniciar(0);
+             Socket mudo = new Socket("localhost", breve.getPuerto())) {
+            // Solicitud a medias: el servidor espera el resto de las cabeceras
+            mudo.getOutputStream().write("GET /audio/x HTTP/1.1\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            mudo.setSoTimeout(5_000);
+            assertEquals(-1, mudo.getInputStream().read());
+            assertEquals(1, breve.getInactivasCerradas());
+            assertEquals(0, breve.getConexionesAbiertas());
+        }
+    }
+
+    @Test
+    void unOyenteSinRafagaSePausaSinDetenerALosDemas() throws Exception {
+        // Estudiantes a un segmento de calidad alta por segundo, con ráfaga de un segmento
+        PerfilLimites lento = new PerfilLimites(600, 100, 160_000, 160_000);
+        try (LimitadorDescargas limitador = new LimitadorDescargas(Map.of("Estudiante", lento),
+                PerfilLimites.BIBLIOTECARIO, null, Clock.systemUTC());
+             ServidorStreaming conRitmo = new ServidorStreaming(catalogo, tokens, limitador,
+                     ServidorStreaming.ESPERA_INACTIVA_DEFAULT_MS).iniciar(0)) {
+            String base = "http://localhost:" + conRitmo.getPuerto() + ServidorStreaming.PREFIJO + audio.getId();
+            String lenta = base + "?token=" + tokens.emitir(oyente.getId(), audio.getId(), Duration.ofMinutes(5),
+                    "alta", "Estudiante") + "&segmento=";
+            long inicio = System.nanoTime();
+            for (int segmento = 0; segmento < 3; segmento++) {
+                assertArrayEquals(Arrays.copyOfRange(alta, segmento * 160_000, (segmento + 1) * 160_000),
+                        pedir(lenta + segmento).body());
+            }
+            long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+            assertTrue(milisegundos >= 800, "tardó " + milisegundos + " ms");
+            assertTrue(conRitmo.getPausasRitmo() > 0);
+
+            // Mientras esa conexión espera, otro usuario (otro cliente, otra conexión) recibe su segmento
+            String rapida = base + "?token=" + tokens.emitir("u2", audio.getId(), Duration.ofMinutes(5), "alta",
+                    "Bibliotecario");
+            inicio = System.nanoTime();
+            HttpResponse<byte[]> otra = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(rapida))
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, otra.statusCode());
+            milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+            assertTrue(milisegundos < 900, "tardó " + milisegundos + " ms");
+        }
+    }
+
+    @Test
+    void elIndiceDeTasaConstanteCubreElArchivoSinHuecos() {
+        IndiceSegmentos indice = IndiceSegmentos.constante(1_000_003, 95, 10);
+        assertEquals(10, indice.getNumeroSegmentos());
+        long total = 0;
+        for (int i = 0; i < indice.getNumeroSegmentos(); i++) {
+            assertEquals(total, indice.inicio(i));
+            total += indice.longitud(i);
+        }
+        assertEquals(1_000_003, total);
+        assertEquals(6, indice.segmentoDelMinuto(1));
+        assertThrows(IllegalArgumentException.class, () -> IndiceSegmentos.desde(new long[] {0, 10, 10}, 10));
+    }
+}
@@ -0,0 +1,172 @@
+package com.utp.biblioteca.ingesta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Genera archivos EPUB, PDF y MOBI mínimos pero bien formados, para pruebas y benchmarks
+ */
+public final class CorpusEBooks {
+
+    private static final String[] MATERIAS = {"Informática", "Historia", "Matemática", "Literatura", "Física",
+            "Economía", "Derecho", "Medicina"};
+
+    private CorpusEBooks() {
+    }
+
+    public static void escribirEpub(Path ruta, String titulo, String autor, List<String> materias, String fecha,
+                                    int relleno) throws IOException {
+        StringBuilder opf = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\" unique-identifier=\"id\">\n")
+                .append("<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n")
+                .append("<dc:identifier id=\"id\">urn:uuid:").append(Math.abs(titulo.hashCode())).append("</dc:identifier>\n")
+                .append("<dc:title>").append(xml(titulo)).append("</dc:title>\n")
+                .append("<dc:creator>").append(xml(autor)).append("</dc:creator>\n");
+        for (String materia : materias) {
+            opf.append("<dc:subject>").append(xml(materia)).append("</dc:subject>\n");
+        }
+        if (fecha != null) {
+            opf.append("<dc:date>").append(fecha).append("</dc:date>\n");
+        }
+        opf.append("<dc:language>es</dc:language>\n</metadata>\n")
+                .append("<manifest><item id=\"c1\" href=\"c1.xhtml\" media-type=\"application/xhtml+xml\"/></manifest>\n")
+                .append("<spine><itemref idref=\"c1\"/></spine>\n</package>\n");
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(ruta))) {
+            // "mimetype" primero y sin comprimir, como exige OCF
+            byte[] mimetype = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+            ZipEntry entrada = new ZipEntry("mimetype");
+            entrada.setMethod(ZipEntry.STORED);
+            entrada.setSize(mimetype.length);
+            CRC32 crc = new CRC32();
+            crc.update(mimetype);
+            entrada.setCrc(crc.getValue());
+            zip.putNextEntry(entrada);
+            zip.write(mimetype);
+            zip.closeEntry();
+            escribirEntrada(zip, "META-INF/container.xml", "<?xml version=\"1.0\"?>\n"
+                    + "<container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\">\n"
+                    + "<rootfiles><rootfile full-path=\"OEBPS/content.opf\" media-type=\"application/oebps-package+xml\"/>"
+                    + "</rootfiles>\n</container>\n");
+            escribirEntrada(zip, "OEBPS/content.opf", opf.toString());
+            escribirEntrada(zip, "OEBPS/c1.xhtml", "<html><body><p>" + "Texto del capítulo. ".repeat(relleno)
+                    + "</p></body></html>");
+        }
+    }
+
+    private static void escribirEntrada(ZipOutputStream zip, String nombre, String contenido) throws IOException {
+        zip.putNextEntry(new ZipEntry(nombre));
+        zip.write(contenido.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /**
+     * PDF con un diccionario /Info al final; el título va en UTF-16BE si no es Latin-1 puro
+     */
+    public static void escribirPdf(Path ruta, String titulo, String autor, String palabrasClave, String fecha,
+                                   int relleno) throws IOException {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        List<Integer> posiciones = new ArrayList<>();
+        escribir(pdf, "%PDF-1.4\n%âãÏÓ\n");
+        posiciones.add(pdf.size());
+        escribir(pdf, "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+        posiciones.add(pdf.size());
+        escribir(pdf, "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n");
+        posiciones.add(pdf.size());
+        escribir(pdf, "3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Contents 4 0 R >>\nendobj\n");
+        String contenido = "BT /F1 12 Tf 72 712 Td (Texto) Tj ET\n".repeat(relleno);
+        posiciones.add(pdf.size());
+        escribir(pdf, "4 0 obj\n<< /Length " + contenido.length() + " >>\nstream\n" + contenido + "endstream\nendobj\n");
+        posiciones.add(pdf.size());
+        StringBuilder info = new StringBuilder("5 0 obj\n<< /Title ").append(cadenaPdf(titulo))
+                .append(" /Author ").append(cadenaPdf(autor));
+        if (palabrasClave != null) {
+            info.append(" /Keywords ").append(cadenaPdf(palabrasClave));
+        }
+        if (fecha != null) {
+            info.append(" /CreationDate (D:").append(fecha).append(")");
+        }
+        escribir(pdf, info.append(" /Producer (UTP) >>\nendobj\n").toString());
+        int xref = pdf.size();
+        StringBuilder tabla = new StringBuilder("xref\n0 6\n0000000000 65535 f \n");
+        for (int posicion : posiciones) {
+            tabla.append(String.format("%010d 00000 n \n", posicion));
+        }
+        tabla.append("trailer\n<< /Size 6 /Root 1 0 R /Info 5 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        escribir(pdf, tabla.toString());
+        Files.write(ruta, pdf.toByteArray());
+    }
+
+    private static String cadenaPdf(String texto) {
+        boolean latin1 = texto.chars().allMatch(c -> c < 256);
+        if (latin1) {
+            return "(" + texto.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)") + ")";
+        }
+        StringBuilder hex = new StringBuilder("<FEFF");
+        for (byte b : texto.getBytes(StandardCharsets.UTF_16BE)) {
+            hex.append(String.format("%02X", b & 0xFF));
+        }
+        return hex.append(">").toString();
+    }
+
+    /**
+     * Cabecera PDB de un MOBI: nombre de la base y la firma BOOKMOBI
+     */
+    public static void escribirMobi(Path ruta, String nombre, int relleno) throws IOException {
+        byte[] cabecera = new byte[78 + relleno];
+        byte[] bytesNombre = nombre.replace(' ', '_').getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(bytesNombre, 0, cabecera, 0, Math.min(31, bytesNombre.length));
+        System.arraycopy("BOOKMOBI".getBytes(StandardCharsets.US_ASCII), 0, cabecera, 60, 8);
+        Files.write(ruta, cabecera);
+    }
+
+    /**
+     * Corpus variado en subdirectorios: 45% EPUB, 45% PDF, 5% MOBI y 5% archivos que no son eBooks
+     * @return archivos generados
+     */
+    public static int generar(Path directorio, int cantidad, long semilla) throws IOException {
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        for (int i = 0; i < cantidad; i++) {
+            Path carpeta = directorio.resolve("lote-" + (i / 1000));
+            Files.createDirectories(carpeta);
+            String titulo = "Libro " + i;
+            String autor = "Autor " + aleatorio.nextInt(500);
+            String materia = MATERIAS[aleatorio.nextInt(MATERIAS.length)];
+            String fecha = String.valueOf(1950 + aleatorio.nextInt(75));
+            int relleno = 50 + aleatorio.nextInt(2000);
+            int tipo = aleatorio.nextInt(20);
+            if (tipo < 9) {
+                escribirEpub(carpeta.resolve("libro-" + i + ".epub"), titulo, autor,
+                        Arrays.asList(materia, "tema " + aleatorio.nextInt(50)), fecha, relleno);
+            } else if (tipo < 18) {
+                escribirPdf(carpeta.resolve("libro-" + i + ".pdf"), titulo, autor, materia + ", tema "
+                        + aleatorio.nextInt(50), fecha + "0101000000Z", relleno);
+            } else if (tipo < 19) {
+                escribirMobi(carpeta.resolve("libro-" + i + ".mobi"), titulo, relleno * 20);
+            } else {
+                Files.writeString(carpeta.resolve("notas-" + i + ".txt"), "No es un libro " + i);
+            }
+        }
+        return cantidad;
+    }
+
+    private static void escribir(OutputStream salida, String texto) throws IOException {
+        salida.write(texto.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static String xml(String texto) {
+        return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
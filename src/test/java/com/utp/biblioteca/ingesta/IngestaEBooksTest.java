@@ -0,0 +1,134 @@
+package com.utp.biblioteca.ingesta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import com.utp.biblioteca.model.recurso.EBook;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Ingesta de eBooks: metadatos de EPUB, PDF y MOBI, y el pipeline con colas acotadas
+ */
+class IngestaEBooksTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void extraeLosMetadatosDeCadaFormato() throws Exception {
+        CorpusEBooks.escribirEpub(directorio.resolve("quijote.epub"), "Don Quijote & la Mancha", "Miguel de Cervantes",
+                List.of("Literatura", "Novela española"), "1605-01-16", 10);
+        CorpusEBooks.escribirPdf(directorio.resolve("sicp.pdf"), "Structure (and Interpretation)", "Абельсон",
+                "Informática; Lisp, programación", "19850101000000Z", 5);
+        // Un PDF grande: el diccionario /Info queda en la cola leída, no en la cabeza
+        CorpusEBooks.escribirPdf(directorio.resolve("grande.pdf"), "Grande", "Autora", null, null, 10_000);
+        CorpusEBooks.escribirMobi(directorio.resolve("sapiens.mobi"), "Sapiens De animales a dioses", 100);
+        CorpusEBooks.escribirMobi(directorio.resolve("kindle.azw3"), "Kindle", 100);
+        Files.writeString(directorio.resolve("notas.txt"), "No es un libro");
+        Files.write(directorio.resolve("roto.epub"), "PK\u0003\u0004basura".getBytes(StandardCharsets.ISO_8859_1));
+
+        Map<String, EBook> ebooks = new ConcurrentHashMap<>();
+        ResumenIngesta resumen = new IngestaEBooks(2, 2, 4, "https://utp.edu.pe/ebooks/")
+                .ingerir(directorio, (ebook, ruta) -> ebooks.put(ruta.getFileName().toString(), ebook));
+
+        assertEquals(7, resumen.getArchivos());
+        assertEquals(5, resumen.getEBooks());
+        assertEquals(1, resumen.getDescartados());
+        assertEquals(1, resumen.getErrores());
+
+        EBook quijote = ebooks.get("quijote.epub");
+        assertEquals("Don Quijote & la Mancha", quijote.getTitulo());
+        assertEquals("Miguel de Cervantes", quijote.getAutor());
+        assertEquals("Literatura", quijote.getCategoria());
+        assertEquals(LocalDate.of(1605, 1, 1), quijote.getFechaPublicacion());
+        assertEquals(List.of("literatura", "novela española"), quijote.getPalabrasClave());
+        assertEquals("EPUB", quijote.getFormato());
+        assertEquals(Files.size(directorio.resolve("quijote.epub")) / (1024.0 * 1024.0), quijote.getTamanoMB(), 1e-12);
+        assertEquals("https://utp.edu.pe/ebooks/" + quijote.getId(), quijote.getUrlDescarga());
+
+        EBook sicp = ebooks.get("sicp.pdf");
+        assertEquals("Structure (and Interpretation)", sicp.getTitulo());
+        assertEquals("Абельсон", sicp.getAutor());
+        assertEquals("Informática", sicp.getCategoria());
+        assertEquals(List.of("informática", "lisp", "programación"), sicp.getPalabrasClave());
+        assertEquals(1985, sicp.getFechaPublicacion().getYear());
+        assertEquals("PDF", sicp.getFormato());
+
+        EBook grande = ebooks.get("grande.pdf");
+        assertTrue(Files.size(directorio.resolve("grande.pdf")) > LectorPdf.CABEZA + LectorPdf.COLA);
+        assertEquals("Grande", grande.getTitulo());
+        assertEquals(IngestaEBooks.CATEGORIA_DEFAULT, grande.getCategoria());
+
+        assertEquals("Sapiens De animales a dioses", ebooks.get("sapiens.mobi").getTitulo());
+        assertEquals("MOBI", ebooks.get("sapiens.mobi").getFormato());
+        assertEquals(IngestaEBooks.AUTOR_DESCONOCIDO, ebooks.get("sapiens.mobi").getAutor());
+        assertEquals("AZW", ebooks.get("kindle.azw3").getFormato());
+    }
+
+    @Test
+    void elPipelineConColasPequenasProcesaTodoElCorpus() throws Exception {
+        int archivos = CorpusEBooks.generar(directorio, 600, 11);
+        Map<String, EBook> ebooks = new ConcurrentHashMap<>();
+        ResumenIngesta resumen = new IngestaEBooks(3, 2, 2, IngestaEBooks.URL_BASE_DEFAULT)
+                .ingerir(directorio, (ebook, ruta) -> ebooks.put(ruta.getFileName().toString(), ebook));
+        assertEquals(archivos, resumen.getArchivos());
+        assertEquals(0, resumen.getErrores());
+        assertEquals(archivos, resumen.getEBooks() + resumen.getDescartados());
+        assertEquals(resumen.getEBooks(), ebooks.size());
+        ebooks.forEach((nombre, ebook) -> assertEquals(nombre.replaceAll("libro-(\\d+)\\..*", "Libro $1"),
+                ebook.getTitulo()));
+
+        // Si el destino falla, la ingesta termina igual y lo informa
+        assertThrows(IllegalStateException.class, () -> new IngestaEBooks(2, 2, 2, IngestaEBooks.URL_BASE_DEFAULT)
+                .ingerir(directorio, (ebook, ruta) -> {
+                    throw new IllegalArgumentException("destino lleno");
+                }));
+        assertThrows(IllegalArgumentException.class,
+                () -> new IngestaEBooks().ingerir(directorio.resolve("no-existe"), (ebook, ruta) -> { }));
+    }
+
+    @Test
+    void unSubdirectorioIlegibleSeCuentaComoErrorYLaIngestaSigue() throws Exception {
+        CorpusEBooks.escribirMobi(directorio.resolve("sapiens.mobi"), "Sapiens", 100);
+        Path cerrado = Files.createDirectory(directorio.resolve("cerrado"));
+        CorpusEBooks.escribirMobi(cerrado.resolve("oculto.mobi"), "Oculto", 100);
+        Files.setPosixFilePermissions(cerrado, PosixFilePermissions.fromString("---------"));
+        try {
+            assumeFalse(Files.isReadable(cerrado), "los permisos no aplican a este usuario (root)");
+            ResumenIngesta resumen = new IngestaEBooks(1, 1, 2, IngestaEBooks.URL_BASE_DEFAULT)
+                    .ingerir(directorio, (ebook, ruta) -> { });
+            assertEquals(1, resumen.getArchivos());
+            assertEquals(1, resumen.getEBooks());
+            assertEquals(1, resumen.getErrores());
+        } finally {
+            Files.setPosixFilePermissions(cerrado, PosixFilePermissions.fromString("rwx------"));
+        }
+    }
+
+    @Test
+    void interpretaLasCadenasPdf() {
+        assertEquals("a(b)c", LectorPdf.cadena("/Title (a\\(b\\)c)", "/Title"));
+        assertEquals("uno (dos) tres", LectorPdf.cadena("/Title (uno (dos) tres) /Author (x)", "/Title"));
+        assertEquals("x", LectorPdf.cadena("/TitleX (no) /Title (x)", "/Title"));
+        assertEquals("ñ\n", LectorPdf.cadena("/Title (\\361\\n)", "/Title"));
+        assertEquals("AB", LectorPdf.cadena("/Title <41 42>", "/Title"));
+        assertEquals("P", LectorPdf.cadena("/Title <5>", "/Title"));
+        assertNull(LectorPdf.cadena("/Title 7 0 R", "/Title"));
+        assertNull(LectorPdf.cadena("/Author (x)", "/Title"));
+        assertEquals(2008, MetadatosEBook.anioDe("D:20080801120000Z"));
+        assertNull(MetadatosEBook.anioDe("agosto"));
+        assertNull(IngestaEBooks.detectarFormato(new byte[0], 0, "vacio.pdf"));
+    }
+}
@@ -0,0 +1,147 @@
+package com.utp.biblioteca.intercambio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de la instantánea binaria mapeada en memoria
+ */
+class InstantaneaBinariaTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void idaYVueltaConservaTiposEstadoYReferencias() {
+        LibroFisico libro = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        libro.setDescripcion("Novela clásica");
+        libro.agregarPalabraClave("novela");
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "EPUB", 3.2, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        AudioLibro audio = new AudioLibro("Sapiens", "Yuval Noah Harari", "Historia",
+                LocalDate.of(2014, 1, 1), 900, "M4A", "Derek Perkins", "Alta");
+        audio.setPermiteDescarga(true);
+        LibroFisico manual = new LibroFisico("Manual de C", "Kernighan", "Informática",
+                LocalDate.of(1978, 2, 22), "978-0-13-110362-7", 272, "Prentice Hall", "B-03");
+
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        Profesor profesor = new Profesor("Luis", "luis@utp.edu.pe", "x", "Ingeniería", "Dr.", "IA");
+        profesor.setCoordinador(true);
+        Bibliotecario bibliotecario = new Bibliotecario("Eva", "eva@utp.edu.pe", "x", "Servicios", "Mañana");
+        bibliotecario.agregarEspecialidad("Catalogación");
+
+        ServicioCirculacion servicio = new ServicioCirculacion();
+        Prestamo prestamo = servicio.prestar(estudiante, libro);
+        Reserva reserva = servicio.reservar(profesor, libro);
+        assertNotNull(reserva);
+        // Préstamo vencido que genera multa al devolverse
+        Prestamo vencido = Prestamo.restaurar("p-vencido", profesor, manual, LocalDate.now().minusDays(30),
+                LocalDate.now().minusDays(10), null, EstadoPrestamo.ACTIVO, 0, 2, null);
+        assertTrue(servicio.devolver(vencido));
+        assertNotNull(vencido.getMulta());
+
+        Path archivo = directorio.resolve("catalogo.bin");
+        ResumenIntercambio escrito = new EscritorInstantanea().escribir(archivo, List.of(libro, ebook, audio, manual),
+                List.of(estudiante, profesor, bibliotecario), List.of(prestamo, vencido), List.of(reserva));
+        assertEquals(10, escrito.getTotalRegistros());
+
+        try (InstantaneaCatalogo instantanea = InstantaneaCatalogo.abrir(archivo)) {
+            assertEquals(0, instantanea.getMaterializados());
+
+            LibroFisico libroLeido = (LibroFisico) instantanea.buscarRecurso(libro.getId());
+            assertEquals(libro.getTitulo(), libroLeido.getTitulo());
+            assertEquals(libro.getFechaPublicacion(), libroLeido.getFechaPublicacion());
+            assertEquals(libro.getIsbn(), libroLeido.getIsbn());
+            assertEquals("Novela clásica", libroLeido.getDescripcion());
+            assertEquals(List.of("novela"), libroLeido.getPalabrasClave());
+            assertFalse(libroLeido.isDisponible());
+            assertEquals(1, libroLeido.getNumeroVecesPrestado());
+            assertEquals(3.2, ((EBook) instantanea.buscarRecurso(ebook.getId())).getTamanoMB());
+            assertTrue(((AudioLibro) instantanea.buscarRecurso(audio.getId())).isPermiteDescarga());
+
+            assertTrue(((Profesor) instantanea.buscarUsuario(profesor.getId())).isCoordinador());
+            assertEquals(List.of("Catalogación"),
+                    ((Bibliotecario) instantanea.buscarUsuario(bibliotecario.getId())).getEspecialidades());
+            assertEquals(List.of(prestamo.getId()), instantanea.buscarUsuario(estudiante.getId()).getPrestamosActivos());
+            assertEquals(estudiante.getFechaRegistro(), instantanea.buscarUsuario(estudiante.getId()).getFechaRegistro());
+
+            Prestamo prestamoLeido = instantanea.getPrestamo(0);
+            assertEquals(prestamo.getFechaVencimiento(), prestamoLeido.getFechaVencimiento());
+            assertSame(libroLeido, prestamoLeido.getRecurso());
+            assertSame(instantanea.buscarUsuario(estudiante.getId()), prestamoLeido.getUsuario());
+
+            Prestamo vencidoLeido = instantanea.getPrestamo(1);
+            assertEquals(EstadoPrestamo.DEVUELTO, vencidoLeido.getEstado());
+            assertEquals(vencido.getMulta().getMonto(), vencidoLeido.getMulta().getMonto());
+            assertEquals(vencido.getMulta().getConcepto(), vencidoLeido.getMulta().getConcepto());
+
+            Reserva reservaLeida = instantanea.getReserva(0);
+            assertEquals(reserva.getFechaReserva(), reservaLeida.getFechaReserva());
+            assertEquals(reserva.getFechaExpiracion(), reservaLeida.getFechaExpiracion());
+            assertEquals(reserva.getPosicionCola(), reservaLeida.getPosicionCola());
+
+            DestinoEnMemoria destino = new DestinoEnMemoria();
+            assertEquals(escrito.getRegistrosPorSeccion(), instantanea.cargarEn(destino).getRegistrosPorSeccion());
+            assertSame(libroLeido, destino.getRecursos().get(libro.getId()));
+        }
+    }
+
+    @Test
+    void busquedaPorTituloSoloMaterializaCoincidencias() {
+        List<Recurso> recursos = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            recursos.add(new EBook((i % 100 == 0 ? "Algoritmos " : "Novela ") + i, "Autor " + i % 20,
+                    "Categoría " + i % 7, LocalDate.of(2000 + i % 25, 1, 1), "PDF", 1.0,
+                    "https://biblioteca.utp.edu.pe/e/" + i));
+        }
+        Path archivo = directorio.resolve("catalogo.bin");
+        new EscritorInstantanea().escribir(archivo, recursos, List.of(), List.of(), List.of());
+
+        try (InstantaneaCatalogo instantanea = InstantaneaCatalogo.abrir(archivo)) {
+            List<Recurso> encontrados = instantanea.buscarPorTitulo("ALGORITMOS");
+            assertEquals(20, encontrados.size());
+            assertEquals(20, instantanea.getMaterializados());
+            assertSame(encontrados.get(0), instantanea.getRecurso(0));
+            assertNull(instantanea.buscarRecurso("inexistente"));
+        }
+    }
+
+    @Test
+    void rechazaArchivosQueNoSonInstantaneas() throws Exception {
+        Path archivo = directorio.resolve("otro.bin");
+        Files.write(archivo, "esto no es una instantánea de la biblioteca digital".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> InstantaneaCatalogo.abrir(archivo));
+
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        Reserva huerfana = new Reserva(estudiante, new EBook("X", "Y", "Z", LocalDate.of(2020, 1, 1),
+                "PDF", 1.0, "https://biblioteca.utp.edu.pe/e/x"));
+        assertThrows(IllegalArgumentException.class, () -> new EscritorInstantanea()
+                .escribir(directorio.resolve("huerfana.bin"), List.of(), List.of(estudiante), List.of(), List.of(huerfana)));
+    }
+}
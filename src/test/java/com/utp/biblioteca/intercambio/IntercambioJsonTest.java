@@ -0,0 +1,128 @@
+package com.utp.biblioteca.intercambio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Profesor;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de exportación/importación JSON en streaming
+ */
+class IntercambioJsonTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void idaYVueltaConservaTiposYEstado() {
+        LibroFisico libro = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        libro.setDescripcion("Novela \"clásica\"\ncon saltos de línea");
+        libro.agregarPalabraClave("novela");
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "EPUB", 3.2, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        AudioLibro audio = new AudioLibro("Sapiens", "Yuval Noah Harari", "Historia",
+                LocalDate.of(2014, 1, 1), 900, "M4A", "Derek Perkins", "Alta");
+        audio.setPermiteDescarga(true);
+
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        Profesor profesor = new Profesor("Luis", "luis@utp.edu.pe", "x", "Ingeniería", "Dr.", "IA");
+        profesor.setCoordinador(true);
+        Bibliotecario bibliotecario = new Bibliotecario("Eva", "eva@utp.edu.pe", "x", "Servicios", "Mañana");
+        bibliotecario.agregarEspecialidad("Catalogación");
+
+        ServicioCirculacion servicio = new ServicioCirculacion();
+        Prestamo prestamo = servicio.prestar(estudiante, libro);
+        Prestamo prestamoEbook = servicio.prestar(profesor, ebook);
+        Reserva reserva = servicio.reservar(profesor, libro);
+        assertNotNull(prestamo);
+        assertNotNull(reserva);
+
+        Path archivo = directorio.resolve("volcado.json");
+        ResumenIntercambio exportado = new ExportadorJson().exportar(archivo, List.of(libro, ebook, audio),
+                List.of(estudiante, profesor, bibliotecario), List.of(prestamo, prestamoEbook), List.of(reserva));
+        assertEquals(9, exportado.getTotalRegistros());
+
+        DestinoEnMemoria destino = new DestinoEnMemoria();
+        ResumenIntercambio importado = new ImportadorJson(4, 2).importar(archivo, destino);
+        assertEquals(exportado.getRegistrosPorSeccion(), importado.getRegistrosPorSeccion());
+
+        LibroFisico libroLeido = (LibroFisico) destino.getRecursos().get(libro.getId());
+        assertEquals(libro.getDescripcion(), libroLeido.getDescripcion());
+        assertEquals(List.of("novela"), libroLeido.getPalabrasClave());
+        assertFalse(libroLeido.isDisponible());
+        assertEquals(1, libroLeido.getNumeroVecesPrestado());
+        assertEquals(1, ((EBook) destino.getRecursos().get(ebook.getId())).getDescargasRealizadas());
+        assertTrue(((AudioLibro) destino.getRecursos().get(audio.getId())).isPermiteDescarga());
+
+        assertTrue(((Profesor) destino.getUsuarios().get(profesor.getId())).isCoordinador());
+        assertEquals(List.of("Catalogación"),
+                ((Bibliotecario) destino.getUsuarios().get(bibliotecario.getId())).getEspecialidades());
+        Usuario estudianteLeido = destino.getUsuarios().get(estudiante.getId());
+        assertInstanceOf(Estudiante.class, estudianteLeido);
+        assertEquals(List.of(prestamo.getId()), estudianteLeido.getPrestamosActivos());
+        assertFalse(estudianteLeido.verificarPassword("x")); // La contraseña no se exporta
+
+        Prestamo prestamoLeido = destino.getPrestamos().get(prestamo.getId());
+        assertEquals(EstadoPrestamo.ACTIVO, prestamoLeido.getEstado());
+        assertEquals(prestamo.getFechaVencimiento(), prestamoLeido.getFechaVencimiento());
+        assertTrue(prestamoLeido.getUsuario() == estudianteLeido && prestamoLeido.getRecurso() == libroLeido);
+        Reserva reservaLeida = destino.getReservas().get(reserva.getId());
+        assertEquals(reserva.getFechaExpiracion(), reservaLeida.getFechaExpiracion());
+        assertEquals(reserva.getPrioridad(), reservaLeida.getPrioridad());
+    }
+
+    @Test
+    void importaMilesDeRecursosEnParalelo() {
+        List<Recurso> recursos = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            recursos.add(new EBook("EBook " + i, "Autor " + i % 50, "Categoría " + i % 7,
+                    LocalDate.of(2000 + i % 25, 1, 1), "PDF", 1.0, "https://biblioteca.utp.edu.pe/e/" + i));
+        }
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        new ExportadorJson().exportar(salida, recursos, List.of(), List.of(), List.of());
+
+        DestinoEnMemoria destino = new DestinoEnMemoria();
+        ResumenIntercambio resumen = new ImportadorJson(4, 100)
+                .importar(new ByteArrayInputStream(salida.toByteArray()), destino);
+        assertEquals(5_000, resumen.getRegistros("recursos"));
+        assertEquals(5_000, destino.getRecursos().size());
+        assertTrue(resumen.getRegistrosPorSegundo() > 0);
+    }
+
+    @Test
+    void rechazaReferenciasYTiposDesconocidos() {
+        String tipoInvalido = "{\"version\":1,\"recursos\":[{\"tipo\":\"Revista\",\"id\":\"r1\"}]}";
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> new ImportadorJson()
+                .importar(new ByteArrayInputStream(tipoInvalido.getBytes(StandardCharsets.UTF_8)), new DestinoEnMemoria()));
+        assertTrue(error.getMessage().contains("Revista"));
+
+        String sinUsuario = "{\"version\":1,\"prestamos\":[{\"id\":\"p1\",\"usuarioId\":\"u\",\"recursoId\":\"r\",\"estado\":\"ACTIVO\"}]}";
+        assertThrows(IllegalArgumentException.class, () -> new ImportadorJson()
+                .importar(new ByteArrayInputStream(sinUsuario.getBytes(StandardCharsets.UTF_8)), new DestinoEnMemoria()));
+    }
+}
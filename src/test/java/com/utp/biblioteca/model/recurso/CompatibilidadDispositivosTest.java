@@ -0,0 +1,121 @@
+package com.utp.biblioteca.model.recurso;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.utp.biblioteca.almacen.AlmacenRecursos;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las máscaras de compatibilidad deben dar lo mismo que las reglas originales de esCompatibleCon
+ */
+class CompatibilidadDispositivosTest {
+
+    private static final String[] FORMATOS = {"PDF", "EPUB", "MOBI", "AZW", "MP3", "M4A", "WAV", "FLAC", "pdf", "DJVU"};
+    private static final String[] NOMBRES = {"kindle", "KINDLE", "ipad", "iPhone", "ios", "IOS", "android", "web",
+            "Web", "smart-tv", "otro", ""};
+
+    /** Regla original de EBook.esCompatibleCon */
+    private static boolean ebookOriginal(String formato, String dispositivo) {
+        switch (dispositivo.toLowerCase()) {
+            case "kindle":
+                return formato.equals("MOBI") || formato.equals("AZW");
+            case "ipad":
+            case "iphone":
+                return formato.equals("EPUB") || formato.equals("PDF");
+            case "android":
+                return !formato.equals("AZW");
+            default:
+                return formato.equals("PDF");
+        }
+    }
+
+    /** Regla original de AudioLibro.esCompatibleCon */
+    private static boolean audioOriginal(String formato, String dispositivo) {
+        switch (dispositivo.toLowerCase()) {
+            case "ios":
+                return formato.equals("M4A") || formato.equals("MP3");
+            case "android":
+                return !formato.equals("M4A");
+            case "web":
+                return formato.equals("MP3");
+            default:
+                return formato.equals("MP3");
+        }
+    }
+
+    private static EBook ebook(String formato) {
+        return new EBook("Clean Code", "Robert C. Martin", "Informática", LocalDate.of(2008, 8, 1),
+                formato, 2.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+    }
+
+    private static AudioLibro audio(String formato) {
+        return new AudioLibro("Sapiens", "Yuval Noah Harari", "Historia", LocalDate.of(2014, 1, 1),
+                900, formato, "Derek Perkins", "Alta");
+    }
+
+    @Test
+    void coincidenConLasReglasOriginalesParaTodoFormatoYDispositivo() {
+        for (String formato : FORMATOS) {
+            EBook ebook = ebook(formato);
+            AudioLibro audio = audio(formato);
+            for (String nombre : NOMBRES) {
+                assertEquals(ebookOriginal(formato, nombre), ebook.esCompatibleCon(nombre), formato + "/" + nombre);
+                assertEquals(audioOriginal(formato, nombre), audio.esCompatibleCon(nombre), formato + "/" + nombre);
+                assertEquals(ebookOriginal(formato, nombre),
+                        ebook.aplicarFiltros(Map.of("dispositivo", nombre)), formato + "/" + nombre);
+            }
+        }
+        // La máscara sigue al formato
+        EBook ebook = ebook("PDF");
+        assertFalse(ebook.esCompatibleCon("kindle"));
+        ebook.setFormato("MOBI");
+        assertEquals(ebookOriginal("MOBI", "kindle"), ebook.esCompatibleCon(Dispositivo.KINDLE));
+        assertEquals(0, new LibroFisico("El Quijote", "Cervantes", "Literatura", LocalDate.of(1605, 1, 16),
+                "978-84-376-0494-7", 863, "Cátedra", "A-12").getDispositivosCompatibles());
+    }
+
+    @Test
+    void elMapaDeBitsDelAlmacenDaLosMismosRecursosQueElFiltro() {
+        List<Recurso> catalogo = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String formato = FORMATOS[i % FORMATOS.length];
+            catalogo.add(i % 3 == 0 ? ebook(formato) : i % 3 == 1 ? audio(formato)
+                    : new LibroFisico("Libro " + i, "Autor", "Literatura", LocalDate.of(2000, 1, 1),
+                    "ISBN-" + i, 100, "UTP", "A-" + i));
+        }
+        try (AlmacenRecursos almacen = AlmacenRecursos.enMemoria()) {
+            catalogo.forEach(almacen::agregar);
+            for (Dispositivo dispositivo : Dispositivo.values()) {
+                BitSet esperados = new BitSet();
+                for (int i = 0; i < catalogo.size(); i++) {
+                    if (catalogo.get(i).aplicarFiltros(Map.of("dispositivo", dispositivo))) {
+                        esperados.set(i);
+                    }
+                }
+                assertEquals(esperados, almacen.compatiblesCon(dispositivo), dispositivo.name());
+                assertEquals(esperados.cardinality(),
+                        almacen.contar(vista -> vista.aplicarFiltros(Map.of("dispositivo", dispositivo.getNombre()))));
+                assertEquals(esperados.cardinality(), almacen.buscarCompatibles(dispositivo, vista -> true).size());
+            }
+            // Intersección: compatibles con iPad y con Android a la vez
+            BitSet ambos = almacen.compatiblesCon(Dispositivo.IPAD, Dispositivo.ANDROID);
+            for (int i = 0; i < catalogo.size(); i++) {
+                Recurso recurso = catalogo.get(i);
+                assertEquals(recurso.esCompatibleCon(Dispositivo.IPAD) && recurso.esCompatibleCon(Dispositivo.ANDROID),
+                        ambos.get(i));
+            }
+
+            // Al cambiar el formato se actualiza el mapa
+            EBook primero = (EBook) catalogo.get(0);
+            primero.setFormato("AZW");
+            almacen.actualizar(0, primero);
+            assertFalse(almacen.compatiblesCon(Dispositivo.ANDROID).get(0));
+        }
+    }
+}
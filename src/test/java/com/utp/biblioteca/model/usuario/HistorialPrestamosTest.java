@@ -0,0 +1,223 @@
+package com.utp.biblioteca.model.usuario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas del historial paginado: se compara siempre contra una lista simple
+ */
+class HistorialPrestamosTest {
+
+    private static List<String> idsMezclados(int cantidad, long semilla) {
+        Random aleatorio = new Random(semilla);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            switch (aleatorio.nextInt(4)) {
+                case 0:
+                    ids.add(String.format("P-%06d", i));          // importados, secuenciales
+                    break;
+                case 1:
+                    ids.add(UUID.randomUUID().toString().toUpperCase()); // no canónico: va como texto
+                    break;
+                case 2:
+                    ids.add("préstamo-ñ-" + aleatorio.nextInt(50));
+                    break;
+                default:
+                    ids.add(UUID.randomUUID().toString());
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    void recorreYPaginaIgualQueUnaLista() {
+        List<String> esperados = idsMezclados(HistorialPrestamos.TAMANO_PAGINA * 5 + 17, 40);
+        HistorialPrestamos historial = new HistorialPrestamos();
+        for (int i = 0; i < esperados.size(); i++) {
+            historial.agregar(esperados.get(i));
+            assertEquals(i + 1, historial.getTamano());
+        }
+        assertEquals(esperados, historial.aLista());
+
+        // La vista no copia y queda fijada aunque el historial siga creciendo
+        List<String> vista = historial.comoLista();
+        for (int i = 0; i < esperados.size(); i += 13) {
+            assertEquals(esperados.get(i), vista.get(i));
+        }
+        for (int i = 0; i < HistorialPrestamos.TAMANO_PAGINA; i++) {
+            historial.agregar("P-nuevo-" + i);
+        }
+        assertEquals(esperados, vista);
+        assertThrows(UnsupportedOperationException.class, () -> vista.add("P-x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> vista.get(esperados.size()));
+        esperados.addAll(historial.aLista().subList(esperados.size(), historial.getTamano()));
+        assertEquals(esperados, historial.comoLista());
+
+        List<String> recientesPrimero = new ArrayList<>(esperados);
+        Collections.reverse(recientesPrimero);
+        List<String> recorridos = new ArrayList<>();
+        historial.forEach(recorridos::add);
+        assertEquals(recientesPrimero, recorridos);
+
+        // Tamaños de página que cortan las páginas internas en cualquier punto
+        for (int tamanoPagina : new int[] { 1, 7, 20, HistorialPrestamos.TAMANO_PAGINA, 100 }) {
+            for (int numero = 0; (long) numero * tamanoPagina <= esperados.size(); numero++) {
+                int desde = numero * tamanoPagina;
+                int hasta = Math.min(desde + tamanoPagina, esperados.size());
+                assertEquals(recientesPrimero.subList(desde, hasta), historial.pagina(numero, tamanoPagina),
+                        numero + "x" + tamanoPagina);
+            }
+        }
+        assertTrue(historial.pagina(1000, 20).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> historial.pagina(-1, 20));
+        assertThrows(IllegalArgumentException.class, () -> historial.pagina(0, 0));
+    }
+
+    @Test
+    void contieneEsExactoAunqueElFiltroCrezca() {
+        List<String> ids = idsMezclados(1000, 41);
+        HistorialPrestamos historial = new HistorialPrestamos();
+        ids.forEach(historial::agregar);
+        for (String id : ids) {
+            assertTrue(historial.contiene(id), id);
+        }
+        int falsos = 0;
+        for (int i = 0; i < 2000; i++) {
+            String ausente = i % 2 == 0 ? UUID.randomUUID().toString() : String.format("P-%06d", 5000 + i);
+            if (historial.contiene(ausente)) {
+                falsos++;
+            }
+        }
+        assertEquals(0, falsos);
+        assertFalse(historial.contiene(null));
+        assertFalse(new HistorialPrestamos().contiene("P-000001"));
+        // Mismo UUID en mayúsculas: es otro id de texto
+        String canonico = ids.stream().filter(id -> id.length() == 36 && id.equals(id.toLowerCase()))
+                .findFirst().orElseThrow();
+        assertFalse(historial.contiene(canonico.toUpperCase()));
+    }
+
+    @Test
+    void codificarYDecodificarConservaElHistorial() {
+        List<String> ids = idsMezclados(HistorialPrestamos.TAMANO_PAGINA * 3 + 5, 42);
+        HistorialPrestamos original = HistorialPrestamos.desde(ids);
+        HistorialPrestamos leido = HistorialPrestamos.decodificar(original.codificar());
+        assertEquals(ids, leido.aLista());
+        assertEquals(original, leido);
+        assertEquals(original.hashCode(), leido.hashCode());
+        assertTrue(leido.contiene(ids.get(3)));
+        assertEquals(0, HistorialPrestamos.decodificar(new HistorialPrestamos().codificar()).getTamano());
+        assertThrows(IllegalArgumentException.class, () -> HistorialPrestamos.decodificar(new byte[] { 9 }));
+
+        // La copia comparte páginas pero no cambia con el original
+        HistorialPrestamos copia = original.copia();
+        original.agregar("P-999999");
+        assertNotEquals(original, copia);
+        assertEquals(ids, copia.aLista());
+        assertFalse(copia.contiene("P-999999"));
+
+        // Los ids secuenciales importados ocupan mucho menos que su texto
+        List<String> secuenciales = new ArrayList<>();
+        for (int i = 0; i < 640; i++) {
+            secuenciales.add(String.format("PRESTAMO-IMPORTADO-%08d", i));
+        }
+        int bytesTexto = secuenciales.stream().mapToInt(String::length).sum();
+        assertTrue(HistorialPrestamos.desde(secuenciales).codificar().length < bytesTexto / 3);
+    }
+
+    @Test
+    void haPrestadoRecuerdaLosRecursosAunqueElFiltroSeEncadene() {
+        HistorialPrestamos historial = new HistorialPrestamos();
+        List<String> recursos = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String recurso = UUID.randomUUID().toString();
+            recursos.add(recurso);
+            // Cada recurso se presta varias veces: las repeticiones no ocupan capacidad
+            for (int vez = 0; vez < 3; vez++) {
+                historial.agregar(UUID.randomUUID().toString(), recurso);
+            }
+        }
+        for (String recurso : recursos) {
+            assertTrue(historial.haPrestado(recurso), recurso);
+        }
+        int falsos = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (historial.haPrestado(UUID.randomUUID().toString())) {
+                falsos++;
+            }
+        }
+        assertTrue(falsos < 100, falsos + " falsos positivos");
+        assertFalse(historial.haPrestado(null));
+        assertFalse(new HistorialPrestamos().haPrestado(recursos.get(0)));
+
+        // El filtro viaja con la columna y con la copia
+        HistorialPrestamos leido = HistorialPrestamos.decodificar(historial.codificar());
+        HistorialPrestamos copia = historial.copia();
+        assertEquals(historial, leido);
+        assertEquals(historial, copia);
+        historial.agregar("P-000001", "R-nuevo");
+        for (String recurso : recursos) {
+            assertTrue(leido.haPrestado(recurso));
+            assertTrue(copia.haPrestado(recurso));
+        }
+        assertTrue(historial.haPrestado("R-nuevo"));
+        assertFalse(copia.haPrestado("R-nuevo"));
+
+        // Los mismos préstamos con otros recursos no son el mismo historial (Hibernate debe escribirlo)
+        HistorialPrestamos conRecurso = HistorialPrestamos.desde(List.of("P-000001"));
+        HistorialPrestamos sinRecurso = HistorialPrestamos.desde(List.of("P-000001"));
+        conRecurso.agregar("P-000002", "R-1");
+        sinRecurso.agregar("P-000002");
+        assertNotEquals(conRecurso, sinRecurso);
+        assertEquals(conRecurso.hashCode(), sinRecurso.hashCode());
+    }
+
+    @Test
+    void leeLaColumnaAnteriorSinFiltroDeRecursos() {
+        HistorialPrestamos original = HistorialPrestamos.desde(List.of("P-000001", "P-000002"));
+        byte[] actual = original.codificar();
+        // Versión 1: sin la cantidad de filtros de recursos ni su ocupación (dos varint 0)
+        int inicioRecursos = 3 + 8 * (HistorialPrestamos.TAMANO_PAGINA * 10 / 64);
+        assertEquals(0, actual[inicioRecursos]);
+        assertEquals(0, actual[inicioRecursos + 1]);
+        byte[] anterior = new byte[actual.length - 2];
+        System.arraycopy(actual, 0, anterior, 0, inicioRecursos);
+        System.arraycopy(actual, inicioRecursos + 2, anterior, inicioRecursos, actual.length - inicioRecursos - 2);
+        anterior[0] = 1;
+
+        HistorialPrestamos leido = HistorialPrestamos.decodificar(anterior);
+        assertEquals(List.of("P-000001", "P-000002"), leido.aLista());
+        assertTrue(leido.contiene("P-000002"));
+        assertFalse(leido.haPrestado("R-1"));
+        assertFalse(Arrays.equals(anterior, leido.codificar()));
+    }
+
+    @Test
+    void elServicioMarcaElRecursoPrestadoEnElHistorialDelUsuario() {
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        LibroFisico prestado = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        LibroFisico otro = new LibroFisico("La Celestina", "Fernando de Rojas", "Literatura",
+                LocalDate.of(1499, 1, 1), "978-84-376-0100-7", 352, "Cátedra", "A-13");
+        ServicioCirculacion servicio = new ServicioCirculacion();
+        assertTrue(servicio.devolver(servicio.prestar(estudiante, prestado)));
+
+        assertTrue(estudiante.haPrestado(prestado.getId()));
+        assertFalse(estudiante.haPrestado(otro.getId()));
+        assertTrue(estudiante.copia().haPrestado(prestado.getId()));
+    }
+}
@@ -0,0 +1,105 @@
+package com.utp.biblioteca.model.usuario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Permisos por máscara: se comparan contra los switch por cadena que había en cada tipo
+ */
+class PermisosUsuarioTest {
+
+    private static final List<String> NOMBRES = new ArrayList<>();
+
+    static {
+        for (Operacion operacion : Operacion.values()) {
+            NOMBRES.add(operacion.name());
+        }
+        NOMBRES.addAll(List.of("prestar_libro", "BORRAR_TODO", ""));
+    }
+
+    /** tienePermiso(String) de cada tipo antes de las máscaras */
+    private static boolean reglaOriginal(Usuario usuario, String operacion) {
+        if (usuario instanceof Bibliotecario) {
+            return true;
+        }
+        boolean coordinador = usuario instanceof Profesor && ((Profesor) usuario).isCoordinador();
+        switch (operacion) {
+            case "PRESTAR_LIBRO":
+            case "RENOVAR_PRESTAMO":
+            case "RESERVAR_LIBRO":
+            case "VER_CATALOGO":
+            case "BUSCAR_RECURSOS":
+                return true;
+            case "ACCESO_RECURSOS_ESPECIALIZADOS":
+            case "SOLICITAR_ADQUISICIONES":
+            case "GENERAR_BIBLIOGRAFIA":
+            case "GENERAR_REPORTES":
+                return usuario instanceof Profesor;
+            case "ADMINISTRAR_USUARIOS":
+            case "ADMINISTRAR_CATALOGO":
+                return coordinador;
+            default:
+                return false;
+        }
+    }
+
+    private static List<Usuario> usuarios() {
+        Profesor coordinador = new Profesor("Rosa Díaz", "rdiaz@utp.edu.pe", "clave", "Sistemas", "Dr.", "Redes");
+        coordinador.setCoordinador(true);
+        Bibliotecario administrador = new Bibliotecario("Luis Soto", "lsoto@utp.edu.pe", "clave", "Sistemas", "Mañana");
+        administrador.setEsAdministrador(true);
+        return List.of(
+                new Estudiante("Ana Ruiz", "aruiz@utp.edu.pe", "clave", "Ingeniería de Sistemas", 5, "U20201234"),
+                new Profesor("Juan Pérez", "jperez@utp.edu.pe", "clave", "Sistemas", "Mg.", "Bases de datos"),
+                coordinador,
+                new Bibliotecario("Eva Lima", "elima@utp.edu.pe", "clave", "Servicios", "Tarde"),
+                administrador);
+    }
+
+    @Test
+    void lasMascarasDanLoMismoQueLosSwitchPorCadena() {
+        for (Usuario usuario : usuarios()) {
+            for (String nombre : NOMBRES) {
+                assertEquals(reglaOriginal(usuario, nombre), usuario.tienePermiso(nombre),
+                        usuario.getClass().getSimpleName() + " " + nombre);
+                Operacion operacion = Operacion.desde(nombre);
+                if (operacion != null) {
+                    assertEquals(usuario.tienePermiso(nombre), usuario.tienePermiso(operacion));
+                }
+            }
+        }
+        List<Usuario> usuarios = usuarios();
+        assertTrue(usuarios.get(3).tienePermiso(Operacion.ADMINISTRAR_SISTEMA)); // con o sin indicador
+        assertTrue(usuarios.get(4).tienePermiso(Operacion.ADMINISTRAR_SISTEMA));
+        assertFalse(usuarios.get(0).tienePermiso((String) null));
+        assertNull(Operacion.desde("prestar_libro"));
+    }
+
+    @Test
+    void laMascaraSigueAlIndicadorYAutorizaEnBloque() {
+        Profesor profesor = (Profesor) usuarios().get(1);
+        long administrar = Operacion.mascara(Operacion.ADMINISTRAR_USUARIOS, Operacion.ADMINISTRAR_CATALOGO);
+        assertFalse(profesor.tieneTodos(administrar));
+        profesor.setCoordinador(true);
+        assertTrue(profesor.tieneTodos(administrar));
+        profesor.setCoordinador(false);
+        assertFalse(profesor.tienePermiso("ADMINISTRAR_CATALOGO"));
+
+        Usuario estudiante = usuarios().get(0);
+        assertTrue(estudiante.tieneTodos(Operacion.PRESTAR_LIBRO, Operacion.RENOVAR_PRESTAMO));
+        assertTrue(estudiante.tieneTodos(0L));
+        Set<Operacion> faltan = estudiante.sinPermiso(List.of(Operacion.PRESTAR_LIBRO,
+                Operacion.GENERAR_REPORTES, Operacion.ADMINISTRAR_USUARIOS));
+        assertEquals(EnumSet.of(Operacion.GENERAR_REPORTES, Operacion.ADMINISTRAR_USUARIOS), faltan);
+        assertEquals(EnumSet.allOf(Operacion.class), Operacion.de(Operacion.TODAS));
+        assertEquals(Operacion.de(estudiante.getPermisos()).size(), Long.bitCount(estudiante.getPermisos()));
+    }
+}
@@ -0,0 +1,175 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.eventos.ConsumidorEventos;
+import com.utp.biblioteca.eventos.EventoCirculacion;
+import com.utp.biblioteca.eventos.RelevoEventos;
+import com.utp.biblioteca.eventos.TipoEvento;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Bandeja de salida: eventos escritos con la operación y publicados por RelevoEventos
+ */
+class BandejaSalidaTest {
+
+    /**
+     * Anota los eventos recibidos; puede fallar las primeras entregas o siempre con un tipo
+     */
+    private static class ConsumidorPrueba implements ConsumidorEventos {
+        final String nombre;
+        final List<String> recibidos = new ArrayList<>();
+        int fallosRestantes;
+        TipoEvento envenenado;
+
+        ConsumidorPrueba(String nombre, int fallos) {
+            this.nombre = nombre;
+            this.fallosRestantes = fallos;
+        }
+
+        @Override
+        public String getNombre() { return nombre; }
+
+        @Override
+        public void procesar(EventoCirculacion evento, EntityManager em) {
+            if (fallosRestantes > 0) {
+                fallosRestantes--;
+                throw new IllegalStateException("Fallo simulado");
+            }
+            if (evento.getTipo() == envenenado) {
+                throw new IllegalStateException("Evento que este consumidor no sabe procesar");
+            }
+            recibidos.add(evento.getClave());
+        }
+    }
+
+    private GestorPersistencia gestor;
+    private CirculacionTransaccional mostrador;
+    private Estudiante ana;
+    private Estudiante luis;
+    private LibroFisico libro;
+
+    @BeforeEach
+    void iniciar() {
+        gestor = BaseDatosPrueba.crear("bandejaSalida");
+        mostrador = new CirculacionTransaccional(gestor, new ServicioCirculacion());
+        ana = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        luis = new Estudiante("Luis", "luis@utp.edu.pe", "x", "Sistemas", 3, "U002");
+        new RepositorioUsuarios(gestor).insertarTodos(List.of(ana, luis));
+        libro = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        new RepositorioRecursos(gestor).insertar(libro);
+    }
+
+    @AfterEach
+    void cerrar() {
+        gestor.close();
+    }
+
+    @Test
+    void cadaOperacionConfirmadaDejaUnEventoQueSePublicaUnaVez() {
+        Prestamo prestamo = mostrador.prestar(ana.getId(), libro.getId());
+        assertNotNull(prestamo);
+        assertNull(mostrador.prestar(luis.getId(), libro.getId())); // rechazado: sin evento
+        assertNotNull(mostrador.reservar(luis.getId(), libro.getId()));
+        assertTrue(mostrador.devolver(prestamo.getId(), libro.getId()));
+
+        ConsumidorPrueba consumidor = new ConsumidorPrueba("estadisticas", 0);
+        try (RelevoEventos relevo = new RelevoEventos(gestor, List.<ConsumidorEventos>of(consumidor),
+                2, Duration.ofHours(1))) {
+            assertEquals(3, relevo.getPendientes());
+            assertEquals(3, relevo.publicarPendientes());
+            assertEquals(0, relevo.publicarPendientes());
+            assertEquals(0, relevo.getPendientes());
+            assertEquals(2, relevo.getLotes());
+        }
+        assertEquals(List.of(TipoEvento.PRESTAMO + ":" + prestamo.getId(),
+                        consumidor.recibidos.get(1),
+                        TipoEvento.DEVOLUCION + ":" + prestamo.getId()),
+                consumidor.recibidos);
+        assertTrue(consumidor.recibidos.get(1).startsWith(TipoEvento.RESERVA + ":"));
+    }
+
+    @Test
+    void unConsumidorQueFallaRecibeDeNuevoSinRepetirALosDemas() {
+        Prestamo prestamo = mostrador.prestar(ana.getId(), libro.getId());
+        mostrador.devolver(prestamo.getId(), libro.getId());
+
+        ConsumidorPrueba estable = new ConsumidorPrueba("indice", 0);
+        // Falla con el lote y luego con cada evento: los dos quedan apartados
+        ConsumidorPrueba inestable = new ConsumidorPrueba("avisos", 3);
+        try (RelevoEventos relevo = new RelevoEventos(gestor, List.of(estable, inestable),
+                50, Duration.ofHours(1), 5, Duration.ofMillis(50))) {
+            assertEquals(0, relevo.publicarPendientes());
+            assertEquals(2, relevo.getEntregasFallidas());
+            assertEquals(2, relevo.getPendientes()); // nada se pierde
+            assertEquals(0, relevo.publicarPendientes()); // aún en espera
+
+            esperar(relevo, 2);
+            assertEquals(2, relevo.getEntregasOmitidas()); // el consumidor estable no repite
+        }
+        assertEquals(2, estable.recibidos.size());
+        assertEquals(estable.recibidos, inestable.recibidos);
+    }
+
+    @Test
+    void unEventoEnvenenadoSeDescartaSinFrenarALosSiguientes() {
+        Prestamo prestamo = mostrador.prestar(ana.getId(), libro.getId());
+        mostrador.devolver(prestamo.getId(), libro.getId());
+        Prestamo otro = mostrador.prestar(luis.getId(), libro.getId());
+
+        ConsumidorPrueba consumidor = new ConsumidorPrueba("avisos", 0);
+        consumidor.envenenado = TipoEvento.DEVOLUCION;
+        try (RelevoEventos relevo = new RelevoEventos(gestor, List.<ConsumidorEventos>of(consumidor),
+                50, Duration.ofHours(1), 3, Duration.ofMillis(1))) {
+            assertEquals(2, relevo.publicarPendientes()); // la devolución no frena al préstamo siguiente
+            // Al aislar el fallo se repite en memoria la entrega revertida (al menos una vez)
+            assertEquals(List.of(TipoEvento.PRESTAMO + ":" + prestamo.getId(), TipoEvento.PRESTAMO + ":" + otro.getId()),
+                    consumidor.recibidos.stream().distinct().collect(Collectors.toList()));
+
+            long limite = System.currentTimeMillis() + 5_000;
+            while (relevo.getDescartados() == 0 && System.currentTimeMillis() < limite) {
+                relevo.publicarPendientes();
+            }
+            assertEquals(1, relevo.getDescartados());
+            assertEquals(3, relevo.getEntregasFallidas());
+            assertEquals(0, relevo.getPendientes());
+            EventoCirculacion descartado = gestor.enTransaccion(em -> em.createQuery(
+                    "select e from EventoCirculacion e where e.descartado = true", EventoCirculacion.class)
+                    .getSingleResult());
+            assertEquals(TipoEvento.DEVOLUCION, descartado.getTipo());
+            assertTrue(descartado.getUltimoError().contains("no sabe procesar"));
+
+            // Corregido el consumidor, el evento vuelve a la bandeja
+            consumidor.envenenado = null;
+            assertEquals(1, relevo.reactivarDescartados());
+            assertEquals(1, relevo.publicarPendientes());
+            assertEquals(0, relevo.getDescartados());
+        }
+        assertEquals(3, consumidor.recibidos.stream().distinct().count());
+    }
+
+    private static void esperar(RelevoEventos relevo, int eventos) {
+        long limite = System.currentTimeMillis() + 5_000;
+        int publicados = 0;
+        while (publicados < eventos && System.currentTimeMillis() < limite) {
+            publicados += relevo.publicarPendientes();
+        }
+        assertEquals(eventos, publicados);
+    }
+}
@@ -0,0 +1,37 @@
+package com.utp.biblioteca.persistencia;
+
+import java.util.Map;
+
+/**
+ * Configuración de la unidad de persistencia sobre H2 en memoria para las pruebas
+ */
+final class BaseDatosPrueba {
+
+    private BaseDatosPrueba() {
+    }
+
+    /**
+     * Propiedades para una base H2 en memoria con el esquema generado desde las entidades
+     */
+    static Map<String, Object> propiedades(String nombreBase) {
+        Map<String, Object> propiedades = GestorPersistencia.propiedadesConexion(
+                "jdbc:h2:mem:" + nombreBase + ";DB_CLOSE_DELAY=-1", "sa", "");
+        propiedades.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        propiedades.put("jakarta.persistence.schema-generation.database.action", "drop-and-create");
+        propiedades.put("hibernate.generate_statistics", "true");
+        return propiedades;
+    }
+
+    static GestorPersistencia crear(String nombreBase) {
+        return new GestorPersistencia(propiedades(nombreBase));
+    }
+
+    /**
+     * Otra instancia de la aplicación sobre una base ya creada (no toca el esquema)
+     */
+    static GestorPersistencia conectar(String nombreBase) {
+        Map<String, Object> propiedades = propiedades(nombreBase);
+        propiedades.put("jakarta.persistence.schema-generation.database.action", "none");
+        return new GestorPersistencia(propiedades);
+    }
+}
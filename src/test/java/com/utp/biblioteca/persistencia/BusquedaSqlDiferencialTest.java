@@ -0,0 +1,191 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Prueba diferencial: la búsqueda traducida a SQL (H2) debe devolver exactamente
+ * los mismos recursos que aplicarFiltros + buscarPorPalabrasClave en memoria
+ */
+class BusquedaSqlDiferencialTest {
+
+    private static final String[] CATEGORIAS = {"Informática", "Historia", "Literatura", "Ciencia"};
+    private static final String[] TIPOS = {"LibroFisico", "EBook", "AudioLibro"};
+    private static final String[] FORMATOS_EBOOK = {"PDF", "EPUB", "MOBI", "AZW", "DJVU"};
+    private static final String[] FORMATOS_AUDIO = {"MP3", "M4A", "WAV"};
+    private static final String[] DISPOSITIVOS = {"kindle", "ipad", "ios", "android", "web", "smart-tv"};
+    private static final String[] PALABRAS = {"java", "guerra", "ia", "null", "100%", "base_datos", "ÁLGEBRA", "zzz"};
+
+    private static GestorPersistencia gestor;
+    private static RepositorioRecursos repositorio;
+    private static List<Recurso> catalogo;
+
+    @BeforeAll
+    static void poblar() {
+        gestor = BaseDatosPrueba.crear("busquedaDiferencial");
+        repositorio = new RepositorioRecursos(gestor);
+        catalogo = new ArrayList<>();
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < 400; i++) {
+            catalogo.add(crearRecurso(i, aleatorio));
+        }
+        repositorio.insertarTodos(catalogo);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        gestor.close();
+    }
+
+    @Test
+    void coincideConLaSemanticaEnMemoria() {
+        Random aleatorio = new Random(7);
+        for (int caso = 0; caso < 150; caso++) {
+            Map<String, Object> filtros = filtrosAleatorios(aleatorio);
+            List<String> palabras = palabrasAleatorias(aleatorio);
+
+            TreeSet<String> esperados = new TreeSet<>();
+            for (Recurso recurso : catalogo) {
+                if (recurso.aplicarFiltros(filtros)
+                        && (palabras.isEmpty() || recurso.buscarPorPalabrasClave(palabras))) {
+                    esperados.add(recurso.getId());
+                }
+            }
+
+            assertEquals(new ArrayList<>(esperados), recorrerPaginas(filtros, palabras, 17),
+                    "filtros=" + filtros + " palabras=" + palabras);
+            assertEquals(esperados.size(), repositorio.contar(filtros, palabras));
+        }
+    }
+
+    @Test
+    void categoriaYTipoSeComparanExactosYSoloComoTexto() {
+        List<Map<String, Object>> casos = new ArrayList<>();
+        casos.add(Map.of("categoria", "informática"));
+        casos.add(Map.of("categoria", "Informatica"));
+        casos.add(Map.of("tipo", "ebook"));
+        casos.add(Map.of("categoria", 42));
+        casos.add(Map.of("tipo", Boolean.TRUE, "disponible", true));
+        Map<String, Object> nulo = new HashMap<>();
+        nulo.put("categoria", null);
+        casos.add(nulo);
+        for (Map<String, Object> filtros : casos) {
+            long enMemoria = catalogo.stream().filter(r -> r.aplicarFiltros(filtros)).count();
+            assertEquals(0, enMemoria, "filtros=" + filtros);
+            assertEquals(List.of(), recorrerPaginas(filtros, List.of(), 50), "filtros=" + filtros);
+            assertEquals(0, repositorio.contar(filtros, List.of()));
+        }
+        // Con el valor exacto sí coincide
+        Map<String, Object> exacto = Map.of("categoria", "Informática", "tipo", "EBook");
+        long exactos = catalogo.stream().filter(r -> r.aplicarFiltros(exacto)).count();
+        assertTrue(exactos > 0);
+        assertEquals(exactos, repositorio.contar(exacto, List.of()));
+
+        // Con una colación que ignora mayúsculas (como la de MySQL) la comparación sobre bytes sigue siendo exacta
+        GestorPersistencia sinMayusculas = BaseDatosPrueba.crear("busquedaSinMayusculas;IGNORECASE=TRUE");
+        try {
+            RepositorioRecursos otro = new RepositorioRecursos(sinMayusculas);
+            List<Recurso> pocos = new ArrayList<>();
+            Random aleatorio = new Random(5);
+            for (int i = 0; i < 30; i++) {
+                pocos.add(crearRecurso(i, aleatorio));
+            }
+            otro.insertarTodos(pocos);
+            long informatica = pocos.stream().filter(r -> r.aplicarFiltros(Map.of("categoria", "Informática"))).count();
+            assertTrue(informatica > 0);
+            assertEquals(informatica, otro.contar(Map.of("categoria", "Informática"), List.of()));
+            assertEquals(0, otro.contar(Map.of("categoria", "INFORMÁTICA"), List.of()));
+            assertEquals(0, otro.contar(Map.of("tipo", "ebook"), List.of()));
+        } finally {
+            sinMayusculas.close();
+        }
+    }
+
+    @Test
+    void paginacionPorClaveNoRepiteNiOmiteRecursos() {
+        List<String> ids = recorrerPaginas(Map.of(), List.of(), 50);
+        assertEquals(catalogo.size(), ids.size());
+        assertEquals(new TreeSet<>(ids).size(), ids.size());
+    }
+
+    @Test
+    void dialectoMysqlUsaTextoCompletoSoloParaPalabrasIndexables() {
+        TraductorConsultasRecursos mysql = new TraductorConsultasRecursos(TraductorConsultasRecursos.Dialecto.MYSQL);
+        ConsultaSql consulta = mysql.traducir(Map.of("añoPublicacion", 2020), List.of("Java", "ia", "100%"), null, 20);
+        assertTrue(consulta.getSql().contains("MATCH(r.texto_busqueda) AGAINST (? IN BOOLEAN MODE)"));
+        assertEquals(List.of(LocalDate.of(2020, 1, 1), LocalDate.of(2021, 1, 1), "java*", "%ia%", "%100!%%", 20),
+                consulta.getParametros());
+    }
+
+    private static List<String> recorrerPaginas(Map<String, Object> filtros, List<String> palabras, int tamano) {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaResultados<Recurso> pagina = repositorio.buscar(filtros, palabras, cursor, tamano);
+            pagina.getElementos().forEach(r -> ids.add(r.getId()));
+            cursor = pagina.getCursorSiguiente();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static Map<String, Object> filtrosAleatorios(Random aleatorio) {
+        Map<String, Object> filtros = new HashMap<>();
+        if (aleatorio.nextBoolean()) filtros.put("disponible", aleatorio.nextBoolean());
+        if (aleatorio.nextInt(3) == 0) filtros.put("categoria", CATEGORIAS[aleatorio.nextInt(CATEGORIAS.length)]);
+        if (aleatorio.nextInt(3) == 0) filtros.put("tipo", TIPOS[aleatorio.nextInt(TIPOS.length)]);
+        if (aleatorio.nextInt(4) == 0) filtros.put("añoPublicacion", 2015 + aleatorio.nextInt(10));
+        if (aleatorio.nextInt(5) == 0) filtros.put("claveDesconocida", "ignorada");
+        if (aleatorio.nextInt(3) == 0) filtros.put("dispositivo", DISPOSITIVOS[aleatorio.nextInt(DISPOSITIVOS.length)]);
+        return filtros;
+    }
+
+    private static List<String> palabrasAleatorias(Random aleatorio) {
+        List<String> palabras = new ArrayList<>();
+        int cantidad = aleatorio.nextInt(3);
+        for (int i = 0; i < cantidad; i++) {
+            palabras.add(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+        }
+        return palabras;
+    }
+
+    private static Recurso crearRecurso(int n, Random aleatorio) {
+        String categoria = CATEGORIAS[aleatorio.nextInt(CATEGORIAS.length)];
+        LocalDate fecha = LocalDate.of(2015 + aleatorio.nextInt(10), 1 + aleatorio.nextInt(12), 1 + aleatorio.nextInt(28));
+        String titulo = (aleatorio.nextBoolean() ? "Java " : "Historia de la guerra ") + n;
+        Recurso recurso;
+        switch (n % 3) {
+            case 0:
+                recurso = new LibroFisico(titulo, "Autor " + n % 7, categoria, fecha, "ISBN-" + n, 300, "UTP", "A-" + n);
+                break;
+            case 1:
+                recurso = new EBook(titulo, "Autora " + n % 5, categoria, fecha, FORMATOS_EBOOK[n % FORMATOS_EBOOK.length], 2.0, "https://utp.edu.pe/e/" + n);
+                break;
+            default:
+                recurso = new AudioLibro(titulo, "Autor " + n % 3, categoria, fecha, 300, FORMATOS_AUDIO[n % FORMATOS_AUDIO.length], "Narrador", "Alta");
+        }
+        // Descripción nula en parte del catálogo: en memoria se busca sobre el texto "null"
+        if (aleatorio.nextBoolean()) {
+            recurso.setDescripcion(aleatorio.nextBoolean() ? "Introducción al Álgebra con IA" : "Descuento 100% en base_datos");
+        }
+        if (aleatorio.nextInt(4) == 0) {
+            recurso.agregarPalabraClave("Programación");
+        }
+        recurso.setDisponible(aleatorio.nextInt(3) != 0);
+        return recurso;
+    }
+}
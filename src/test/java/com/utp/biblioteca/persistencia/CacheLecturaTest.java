@@ -0,0 +1,180 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de la caché read-through con SLRU y peso máximo
+ */
+class CacheLecturaTest {
+
+    private final Map<String, String> almacen = new ConcurrentHashMap<>();
+    private final AtomicInteger lecturas = new AtomicInteger();
+
+    private String leer(String id) {
+        lecturas.incrementAndGet();
+        return almacen.get(id);
+    }
+
+    @Test
+    void cargaUnaVezYCuentaAciertos() {
+        almacen.put("r1", "El Quijote");
+        CacheLectura<String> cache = new CacheLectura<>("prueba", this::leer, String::length, 1000);
+
+        assertEquals("El Quijote", cache.obtener("r1"));
+        assertEquals("El Quijote", cache.obtener("r1"));
+        assertNull(cache.obtener("inexistente"));
+        assertNull(cache.obtener("inexistente")); // Las ausencias no se guardan
+        assertEquals(3, lecturas.get());
+
+        MetricasCache metricas = cache.getMetricas();
+        assertEquals(1, metricas.getAciertos());
+        assertEquals(3, metricas.getFallos());
+        assertEquals(0.25, metricas.getTasaAciertos());
+        assertEquals(10, metricas.getPeso());
+
+        cache.invalidar("r1");
+        cache.obtener("r1");
+        assertEquals(4, lecturas.get());
+    }
+
+    @Test
+    void respetaElPesoMaximoYResisteRecorridos() {
+        for (int i = 0; i < 1000; i++) {
+            almacen.put("r" + i, "x".repeat(10));
+        }
+        CacheLectura<String> cache = new CacheLectura<>("prueba", this::leer, String::length, 200);
+        // r0..r4 son populares: se piden dos veces y pasan al segmento protegido
+        for (int i = 0; i < 5; i++) {
+            cache.obtener("r" + i);
+            cache.obtener("r" + i);
+        }
+        // Un recorrido de entidades frías que no caben en la caché
+        for (int i = 100; i < 1000; i++) {
+            cache.obtener("r" + i);
+        }
+        int antes = lecturas.get();
+        for (int i = 0; i < 5; i++) {
+            cache.obtener("r" + i);
+        }
+        assertEquals(antes, lecturas.get());
+
+        MetricasCache metricas = cache.getMetricas();
+        assertTrue(metricas.getPeso() <= 200);
+        assertEquals(20, metricas.getEntradas());
+        assertEquals(885, metricas.getDesalojos());
+    }
+
+    @Test
+    void refrescaEnSegundoPlanoTrasLaEscritura() throws Exception {
+        almacen.put("r1", "disponible");
+        CacheLectura<String> cache = new CacheLectura<>("prueba", this::leer, String::length, 1000,
+                CacheLectura.PROPORCION_PROTEGIDA_DEFAULT, Duration.ofMillis(50), Runnable::run);
+        cache.obtener("r1");
+        almacen.put("r1", "prestado");
+
+        assertEquals("disponible", cache.obtener("r1")); // Aún no toca refrescar
+        Thread.sleep(80);
+        assertEquals("disponible", cache.obtener("r1")); // Sirve el valor viejo y dispara el refresco
+        assertEquals("prestado", cache.obtener("r1"));
+        assertEquals(1, cache.getMetricas().getRefrescos());
+        assertEquals(1, cache.getMetricas().getCargas());
+    }
+
+    @Test
+    void consultasSimultaneasDeUnaClaveAusenteCarganUnaVez() throws Exception {
+        CountDownLatch bloqueo = new CountDownLatch(1);
+        CacheLectura<String> cache = new CacheLectura<>("prueba", id -> {
+            lecturas.incrementAndGet();
+            try {
+                bloqueo.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "valor";
+        }, String::length, 1000);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            hilos.execute(() -> assertEquals("valor", cache.obtener("r1")));
+        }
+        Thread.sleep(100);
+        bloqueo.countDown();
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, lecturas.get());
+    }
+
+    @Test
+    void unaCargaQueSolapaUnaEscrituraNoPisaElValorNuevo() throws Exception {
+        almacen.put("r1", "disponible");
+        CountDownLatch leida = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        CacheLectura<String> cache = new CacheLectura<>("prueba", id -> {
+            String valor = leer(id); // La fila se lee antes de la escritura...
+            leida.countDown();
+            try {
+                continuar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return valor;
+        }, String::length, 1000);
+
+        ExecutorService hilo = Executors.newSingleThreadExecutor();
+        Future<String> consulta = hilo.submit(() -> cache.obtener("r1"));
+        assertTrue(leida.await(5, TimeUnit.SECONDS));
+        almacen.put("r1", "prestado");
+        cache.poner("r1", "prestado"); // ...y la escritura llega mientras la carga sigue en curso
+        continuar.countDown();
+
+        assertEquals("prestado", consulta.get(5, TimeUnit.SECONDS));
+        assertEquals("prestado", cache.obtener("r1"));
+        hilo.shutdown();
+    }
+
+    @Test
+    void unRefrescoQueSolapaUnaEscrituraSeDescarta() throws Exception {
+        almacen.put("r1", "disponible");
+        List<Runnable> refrescos = new ArrayList<>();
+        CacheLectura<String> cache = new CacheLectura<>("prueba", this::leer, String::length, 1000,
+                CacheLectura.PROPORCION_PROTEGIDA_DEFAULT, Duration.ofMillis(20), refrescos::add);
+        cache.obtener("r1");
+        Thread.sleep(40);
+        cache.obtener("r1"); // Programa el refresco, que aún no corre
+        assertEquals(1, refrescos.size());
+
+        cache.poner("r1", "prestado");
+        refrescos.get(0).run(); // Lee "disponible" del almacén, anterior a la escritura
+        assertEquals("prestado", cache.obtener("r1"));
+    }
+
+    @Test
+    void conCopiadorNadieCompartePorLaInstanciaGuardada() {
+        CacheLectura<StringBuilder> cache = new CacheLectura<>("prueba", id -> new StringBuilder("leído"),
+                StringBuilder::length, 1000, CacheLectura.PROPORCION_PROTEGIDA_DEFAULT, null, Runnable::run,
+                StringBuilder::new);
+        StringBuilder escrito = new StringBuilder("escrito");
+        cache.poner("r1", escrito);
+        escrito.append(" y cambiado");
+        cache.obtener("r1").append(" por un lector");
+
+        assertEquals("escrito", cache.obtener("r1").toString());
+        assertNotSame(cache.obtener("r1"), cache.obtener("r1"));
+    }
+}
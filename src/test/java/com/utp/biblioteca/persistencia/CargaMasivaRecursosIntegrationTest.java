@@ -0,0 +1,71 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rendimiento de inserción masiva: 1M de recursos sobre H2 con lotes JDBC
+ * Excluida de la fase de test por defecto (ver surefire); ejecutar con:
+ * mvn test -Dtest=CargaMasivaRecursosIntegrationTest
+ */
+class CargaMasivaRecursosIntegrationTest {
+
+    private static final int TOTAL_RECURSOS = 1_000_000;
+    private static final int RECURSOS_POR_TRANSACCION = 10_000;
+
+    private GestorPersistencia gestor;
+
+    @BeforeEach
+    void iniciar() {
+        gestor = BaseDatosPrueba.crear("cargaMasiva");
+    }
+
+    @AfterEach
+    void cerrar() {
+        gestor.close();
+    }
+
+    @Test
+    void insertaUnMillonDeRecursos() {
+        RepositorioRecursos recursos = new RepositorioRecursos(gestor);
+        long inicio = System.nanoTime();
+        int insertados = 0;
+        while (insertados < TOTAL_RECURSOS) {
+            List<Recurso> bloque = new ArrayList<>(RECURSOS_POR_TRANSACCION);
+            for (int i = 0; i < RECURSOS_POR_TRANSACCION; i++) {
+                bloque.add(crearRecurso(insertados + i));
+            }
+            insertados += recursos.insertarTodos(bloque);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.out.printf("Insertados %,d recursos en %.1f s (%,.0f recursos/s, lote JDBC=%d)%n",
+                insertados, segundos, insertados / segundos, gestor.getTamanoLote());
+        assertEquals(TOTAL_RECURSOS, recursos.contar());
+    }
+
+    private static Recurso crearRecurso(int n) {
+        LocalDate fecha = LocalDate.of(1950 + n % 75, 1 + n % 12, 1 + n % 28);
+        switch (n % 3) {
+            case 0:
+                return new LibroFisico("Libro " + n, "Autor " + n % 5000, "Categoría " + n % 40, fecha,
+                        "ISBN-" + n, 100 + n % 900, "Editorial " + n % 200, "Estante " + n % 500);
+            case 1:
+                return new EBook("EBook " + n, "Autor " + n % 5000, "Categoría " + n % 40, fecha,
+                        "EPUB", 1.0 + n % 50, "https://biblioteca.utp.edu.pe/ebooks/" + n);
+            default:
+                return new AudioLibro("Audio " + n, "Autor " + n % 5000, "Categoría " + n % 40, fecha,
+                        60 + n % 900, "MP3", "Narrador " + n % 300, "Media");
+        }
+    }
+}
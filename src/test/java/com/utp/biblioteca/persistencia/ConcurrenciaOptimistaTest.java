@@ -0,0 +1,234 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.cuotas.CuotaDescargas;
+import com.utp.biblioteca.cuotas.ProveedorCuposBaseDatos;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import jakarta.persistence.OptimisticLockException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Varias instancias de la aplicación (cada una con su EntityManagerFactory y su caché L2)
+ * prestando y reservando sobre la misma base H2
+ */
+class ConcurrenciaOptimistaTest {
+
+    private static final int INSTANCIAS = 4;
+    private static final int HILOS_POR_INSTANCIA = 4;
+
+    private final List<GestorPersistencia> gestores = new ArrayList<>();
+    private final List<CirculacionTransaccional> mostradores = new ArrayList<>();
+    private final List<Usuario> usuarios = new ArrayList<>();
+    private ExecutorService hilos;
+
+    @BeforeEach
+    void iniciar() {
+        gestores.add(BaseDatosPrueba.crear("multiInstancia"));
+        for (int i = 1; i < INSTANCIAS; i++) {
+            gestores.add(BaseDatosPrueba.conectar("multiInstancia"));
+        }
+        for (GestorPersistencia gestor : gestores) {
+            mostradores.add(new CirculacionTransaccional(gestor, new ServicioCirculacion(), 20));
+        }
+        for (int i = 0; i < INSTANCIAS * HILOS_POR_INSTANCIA; i++) {
+            usuarios.add(new Estudiante("Estudiante " + i, "e" + i + "@utp.edu.pe", "x", "Sistemas", 1, "U" + i));
+        }
+        new RepositorioUsuarios(gestores.get(0)).insertarTodos(usuarios);
+        hilos = Executors.newFixedThreadPool(INSTANCIAS * HILOS_POR_INSTANCIA);
+    }
+
+    @AfterEach
+    void cerrar() {
+        hilos.shutdownNow();
+        gestores.forEach(GestorPersistencia::close);
+    }
+
+    @Test
+    void dosMostradoresNoPrestanLaMismaCopia() throws Exception {
+        LibroFisico libro = libro(0);
+        new RepositorioRecursos(gestores.get(0)).insertar(libro);
+        // Todas las instancias leen el libro (queda en su caché L2 como disponible)
+        gestores.forEach(g -> new RepositorioRecursos(g).buscarPorId(libro.getId()));
+
+        List<Prestamo> prestamos = enParalelo(n -> mostradores.get(n % INSTANCIAS)
+                .prestar(usuarios.get(n).getId(), libro.getId()));
+        List<Prestamo> exitosos = prestamos.stream().filter(p -> p != null).toList();
+        assertEquals(1, exitosos.size());
+
+        Recurso leido = new RepositorioRecursos(gestores.get(1)).buscarPorId(libro.getId()).orElseThrow();
+        assertFalse(leido.isDisponible());
+        assertEquals(1, leido.getNumeroVecesPrestado());
+        assertEquals(1, new RepositorioPrestamos(gestores.get(2)).contar());
+
+        // Los demás reservan a la vez desde todas las instancias: posiciones de cola únicas
+        String prestatario = exitosos.get(0).getUsuarioId();
+        List<Reserva> reservas = enParalelo(n -> usuarios.get(n).getId().equals(prestatario) ? null
+                : mostradores.get(n % INSTANCIAS).reservar(usuarios.get(n).getId(), libro.getId()));
+        Set<Integer> posiciones = new HashSet<>();
+        reservas.stream().filter(r -> r != null).forEach(r -> posiciones.add(r.getPosicionCola()));
+        assertEquals(10, posiciones.size()); // Cola limitada a 10 reservas por LibroFisico
+        assertEquals(Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), posiciones);
+    }
+
+    @Test
+    void cargaConcurrenteNoPierdeActualizaciones() throws Exception {
+        List<Recurso> libros = List.of(libro(0), libro(1), libro(2));
+        new RepositorioRecursos(gestores.get(0)).insertarTodos(libros);
+        AtomicIntegerArray prestamosPorLibro = new AtomicIntegerArray(libros.size());
+
+        enParalelo(n -> {
+            CirculacionTransaccional mostrador = mostradores.get(n % INSTANCIAS);
+            SplittableRandom random = new SplittableRandom(n);
+            for (int i = 0; i < 10; i++) {
+                int elegido = random.nextInt(libros.size());
+                Prestamo prestamo = mostrador.prestar(usuarios.get(n).getId(), libros.get(elegido).getId());
+                if (prestamo != null) {
+                    prestamosPorLibro.incrementAndGet(elegido);
+                    assertTrue(mostrador.devolver(prestamo.getId(), prestamo.getRecursoId()));
+                }
+            }
+            return null;
+        });
+
+        RepositorioRecursos recursos = new RepositorioRecursos(gestores.get(0));
+        long conflictos = 0;
+        for (int i = 0; i < libros.size(); i++) {
+            Recurso leido = recursos.buscarPorId(libros.get(i).getId()).orElseThrow();
+            assertEquals(prestamosPorLibro.get(i), leido.getNumeroVecesPrestado());
+            assertTrue(leido.isDisponible());
+        }
+        for (CirculacionTransaccional mostrador : mostradores) {
+            assertEquals(0, mostrador.getReintentosAgotados());
+            conflictos += mostrador.getConflictos();
+        }
+        assertTrue(conflictos > 0, "Se esperaban conflictos con " + INSTANCIAS * HILOS_POR_INSTANCIA + " hilos");
+        assertTrue(mostradores.get(0).getTasaConflictos() < 1.0);
+    }
+
+    @Test
+    void variosMostradoresRespetanElLimiteDelMismoUsuario() throws Exception {
+        List<Recurso> libros = new ArrayList<>();
+        for (int i = 0; i < INSTANCIAS * HILOS_POR_INSTANCIA; i++) {
+            libros.add(libro(i));
+        }
+        new RepositorioRecursos(gestores.get(0)).insertarTodos(libros);
+        Usuario usuario = usuarios.get(0);
+
+        // Cada mostrador presta un libro distinto al mismo estudiante (límite de 3)
+        List<Prestamo> prestamos = enParalelo(n -> mostradores.get(n % INSTANCIAS)
+                .prestar(usuario.getId(), libros.get(n).getId()));
+        List<Prestamo> exitosos = prestamos.stream().filter(p -> p != null).toList();
+        assertEquals(usuario.getLimitePrestamos(), exitosos.size());
+
+        Usuario leido = new RepositorioUsuarios(gestores.get(1)).buscarPorId(usuario.getId()).orElseThrow();
+        assertEquals(exitosos.stream().map(Prestamo::getId).collect(Collectors.toSet()),
+                new HashSet<>(leido.getPrestamosActivos()));
+        assertEquals(exitosos.size(), leido.getHistorialPrestamos().size());
+        assertEquals(exitosos.size(), new RepositorioPrestamos(gestores.get(2)).contar());
+
+        // Las devoluciones simultáneas desde varias instancias tampoco se pisan
+        enParalelo(n -> n < exitosos.size()
+                ? mostradores.get(n % INSTANCIAS).devolver(exitosos.get(n).getId(), exitosos.get(n).getRecursoId())
+                : null);
+        leido = new RepositorioUsuarios(gestores.get(3)).buscarPorId(usuario.getId()).orElseThrow();
+        assertTrue(leido.getPrestamosActivos().isEmpty());
+        assertEquals(exitosos.size(), leido.getHistorialPrestamos().size());
+        assertTrue(leido.puedeTomarPrestamo());
+        for (CirculacionTransaccional mostrador : mostradores) {
+            assertEquals(0, mostrador.getReintentosAgotados());
+        }
+    }
+
+    @Test
+    void losConflictosNoGastanCuposDeLicencia() throws Exception {
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática", LocalDate.of(2008, 8, 1),
+                "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        ebook.setLimiteDescargas(1000);
+        new RepositorioRecursos(gestores.get(0)).insertar(ebook);
+        List<CuotaDescargas> cuotas = new ArrayList<>();
+        List<CirculacionTransaccional> conCuotas = new ArrayList<>();
+        for (GestorPersistencia gestor : gestores) {
+            CuotaDescargas cuota = new CuotaDescargas(new ProveedorCuposBaseDatos(gestor), 1, 0, 0, null,
+                    Clock.systemUTC());
+            cuotas.add(cuota);
+            conCuotas.add(new CirculacionTransaccional(gestor, new ServicioCirculacion(cuota), 20));
+        }
+
+        // Cada préstamo incrementa las descargas del eBook: los préstamos simultáneos chocan y se reintentan
+        List<Prestamo> prestamos = enParalelo(n -> {
+            try {
+                return conCuotas.get(n % INSTANCIAS).prestar(usuarios.get(n).getId(), ebook.getId());
+            } catch (OptimisticLockException e) {
+                return null;
+            }
+        });
+        long exitosos = prestamos.stream().filter(p -> p != null).count();
+        cuotas.forEach(CuotaDescargas::close);
+
+        long conflictos = conCuotas.stream().mapToLong(CirculacionTransaccional::getConflictos).sum();
+        assertTrue(conflictos > 0);
+        assertEquals(conflictos, cuotas.stream().mapToLong(CuotaDescargas::getAnuladas).sum());
+        gestores.get(0).limpiarCache();
+        EBook leido = (EBook) new RepositorioRecursos(gestores.get(0)).buscarPorId(ebook.getId()).orElseThrow();
+        assertEquals(exitosos, leido.getDescargasRealizadas());
+        assertEquals(exitosos, new ProveedorCuposBaseDatos(gestores.get(0)).getArrendados(ebook.getId() + "|total"));
+    }
+
+    /**
+     * Ejecuta la tarea n = 0..hilos-1 en paralelo, soltándolas a la vez
+     */
+    private <R> List<R> enParalelo(TareaNumerada<R> tarea) throws Exception {
+        int total = INSTANCIAS * HILOS_POR_INSTANCIA;
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<R>> futuros = new ArrayList<>();
+        for (int n = 0; n < total; n++) {
+            int numero = n;
+            Callable<R> llamada = () -> {
+                salida.await();
+                return tarea.ejecutar(numero);
+            };
+            futuros.add(hilos.submit(llamada));
+        }
+        salida.countDown();
+        List<R> resultados = new ArrayList<>();
+        for (Future<R> futuro : futuros) {
+            resultados.add(futuro.get());
+        }
+        return resultados;
+    }
+
+    private interface TareaNumerada<R> {
+        R ejecutar(int numero) throws Exception;
+    }
+
+    private static LibroFisico libro(int i) {
+        return new LibroFisico("Libro " + i, "Autor", "Historia", LocalDate.of(2000, 1, 1),
+                "ISBN-" + i, 100, "Editorial", "A-" + i);
+    }
+}
@@ -0,0 +1,151 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.cuotas.CuotaDescargas;
+import com.utp.biblioteca.cuotas.ProveedorCuposBaseDatos;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cupos de licencia compartidos en la base: dos instancias de la aplicación no pasan del límite
+ */
+class CuposBaseDatosTest {
+
+    private GestorPersistencia primera;
+    private GestorPersistencia segunda;
+
+    @BeforeEach
+    void iniciar() {
+        primera = BaseDatosPrueba.crear("cuposLicencia");
+        segunda = BaseDatosPrueba.conectar("cuposLicencia");
+    }
+
+    @AfterEach
+    void cerrar() {
+        segunda.close();
+        primera.close();
+    }
+
+    @Test
+    void dosInstanciasConcurrentesConsumenExactamenteElLimite() throws Exception {
+        ProveedorCuposBaseDatos proveedorA = new ProveedorCuposBaseDatos(primera);
+        ProveedorCuposBaseDatos proveedorB = new ProveedorCuposBaseDatos(segunda);
+        CuotaDescargas[] instancias = {
+                new CuotaDescargas(proveedorA, 16, 0, 0, null, Clock.systemUTC()),
+                new CuotaDescargas(proveedorB, 16, 0, 0, null, Clock.systemUTC())};
+        int limite = 300;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(6);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Integer>> partes = new ArrayList<>();
+        for (int h = 0; h < 6; h++) {
+            CuotaDescargas cuota = instancias[h % 2];
+            partes.add(ejecutor.submit(() -> {
+                salida.await();
+                int concedidas = 0;
+                for (int i = 0; i < 100; i++) {
+                    if (cuota.reservar("EB-1", limite, 0, Instant.MAX)) {
+                        concedidas++;
+                    }
+                }
+                return concedidas;
+            }));
+        }
+        salida.countDown();
+        int concedidas = 0;
+        for (Future<Integer> parte : partes) {
+            concedidas += parte.get();
+        }
+        ejecutor.shutdown();
+
+        assertEquals(limite, concedidas);
+        assertEquals(limite, proveedorB.getArrendados("EB-1|total"));
+        assertFalse(instancias[1].reservar("EB-1", limite, 0, Instant.MAX));
+    }
+
+    @Test
+    void losCuposSinUsarVuelvenALaBaseAlCerrar() {
+        ProveedorCuposBaseDatos proveedor = new ProveedorCuposBaseDatos(primera);
+        try (CuotaDescargas cuota = new CuotaDescargas(proveedor, 16, 0, 0, null, Clock.systemUTC())) {
+            cuota.reservar("EB-2", 1000, 10, Instant.MAX);
+            assertEquals(10 + 16, proveedor.getArrendados("EB-2|total")); // un lote arrendado
+        }
+        assertEquals(11, proveedor.getArrendados("EB-2|total"));
+    }
+
+    @Test
+    void losCuposDePeriodosTerminadosNoQuedanEnLaTabla() {
+        ProveedorCuposBaseDatos proveedor = new ProveedorCuposBaseDatos(primera);
+        Duration periodo = Duration.ofDays(1);
+        Instant inicio = Instant.parse("2025-03-01T10:00:00Z");
+        // Un arranque por día, cada uno con su reloj
+        for (int dia = 0; dia < 5; dia++) {
+            Clock reloj = Clock.fixed(inicio.plus(periodo.multipliedBy(dia)), ZoneOffset.UTC);
+            try (CuotaDescargas cuota = new CuotaDescargas(proveedor, 4, 0, 10, periodo, reloj)) {
+                cuota.reservar("EB-3", 1000, 0, Instant.MAX);
+                cuota.reservar("EB-4", 1000, 0, Instant.MAX);
+            }
+        }
+        // Quedan el periodo actual y el anterior de cada recurso, más los cupos totales
+        assertEquals(4, contar("%|periodo-%"));
+        assertEquals(2, contar("%|total"));
+        long ultimo = inicio.plus(periodo.multipliedBy(4)).toEpochMilli() / periodo.toMillis();
+        assertEquals(1, proveedor.getArrendados("EB-3|periodo-" + ultimo));
+        assertEquals(0, proveedor.getArrendados("EB-3|periodo-" + (ultimo - 2)));
+    }
+
+    private long contar(String patron) {
+        return primera.enTransaccion(em -> em
+                .createQuery("select count(c) from CupoLicencia c where c.clave like :patron", Long.class)
+                .setParameter("patron", patron)
+                .getSingleResult());
+    }
+
+    @Test
+    void soloDescarganLosPrestamosQueTomaronSuCupo() {
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        EBook conCuota = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        EBook sinCuota = new EBook("Refactoring", "Martin Fowler", "Informática",
+                LocalDate.of(1999, 7, 8), "PDF", 4.0, "https://biblioteca.utp.edu.pe/ebooks/refactoring");
+        Prestamo reservado;
+        Prestamo directo;
+        try (CuotaDescargas cuota = new CuotaDescargas(new ProveedorCuposBaseDatos(primera))) {
+            reservado = new ServicioCirculacion(cuota).prestar(estudiante, conCuota);
+            directo = new ServicioCirculacion().prestar(estudiante, sinCuota); // sin pasar por la cuota
+        }
+        assertTrue(reservado.tieneCupoLicencia());
+        assertFalse(directo.tieneCupoLicencia());
+        primera.ejecutar(em -> {
+            em.persist(estudiante);
+            em.persist(conCuota);
+            em.persist(sinCuota);
+            em.persist(reservado);
+            em.persist(directo);
+        });
+
+        // Lo que consulta ServidorDescargas con RepositorioPrestamos::tieneVigenteConCupo
+        RepositorioPrestamos prestamos = new RepositorioPrestamos(segunda);
+        assertTrue(prestamos.tieneVigenteConCupo(estudiante.getId(), conCuota.getId()));
+        assertFalse(prestamos.tieneVigenteConCupo(estudiante.getId(), sinCuota.getId()));
+        assertTrue(prestamos.tieneVigente(estudiante.getId(), sinCuota.getId()));
+    }
+}
@@ -0,0 +1,222 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de la escritura diferida (write-behind) sobre H2
+ */
+class EscrituraDiferidaTest {
+
+    private static final Duration SIN_VACIADO_PERIODICO = Duration.ofHours(1);
+
+    @TempDir
+    Path directorioDiario;
+
+    private GestorPersistencia gestor;
+    private RepositorioRecursos recursos;
+    private RepositorioUsuarios usuarios;
+
+    @BeforeEach
+    void iniciar() {
+        gestor = BaseDatosPrueba.crear("escrituraDiferida");
+        recursos = new RepositorioRecursos(gestor);
+        usuarios = new RepositorioUsuarios(gestor);
+    }
+
+    @AfterEach
+    void cerrar() {
+        gestor.close();
+    }
+
+    @Test
+    void coalesceLosCambiosDeCadaEntidadYLosEscribeEnLote() {
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        usuarios.insertar(estudiante);
+        recursos.insertar(ebook);
+        recursos.buscarPorId(ebook.getId()); // Queda en la caché L2
+
+        try (EscrituraDiferida escritura = new EscrituraDiferida(gestor, directorioDiario, 1000, SIN_VACIADO_PERIODICO)) {
+            ServicioCirculacion servicio = new ServicioCirculacion();
+            servicio.agregarEscucha(escritura);
+            Prestamo ultimo = null;
+            for (int i = 0; i < 3; i++) {
+                ultimo = servicio.prestar(estudiante, ebook);
+                assertNotNull(ultimo);
+            }
+            servicio.devolver(ultimo);
+
+            assertEquals(2, escritura.getPendientes());
+            assertTrue(escritura.getCambiosCoalescidos() > 0);
+            assertEquals(0, recursos.buscarPorId(ebook.getId()).orElseThrow().getNumeroVecesPrestado());
+
+            escritura.vaciar();
+            assertEquals(0, escritura.getPendientes());
+            assertEquals(1, escritura.getVaciados());
+            assertEquals(0, escritura.getConflictos());
+            assertTrue(escritura.getUltimoRetraso().toNanos() > 0);
+        }
+
+        EBook leido = (EBook) recursos.buscarPorId(ebook.getId()).orElseThrow();
+        assertEquals(3, leido.getNumeroVecesPrestado());
+        assertEquals(3, leido.getDescargasRealizadas());
+        assertEquals(LocalDate.now(), leido.getFechaUltimoPrestamo());
+        assertEquals(estudiante.getPrestamosActivos(),
+                usuarios.buscarPorId(estudiante.getId()).orElseThrow().getPrestamosActivos());
+        assertEquals(2, estudiante.getPrestamosActivos().size());
+    }
+
+    @Test
+    void vaciaAlAlcanzarElMaximoDePendientes() throws Exception {
+        List<Recurso> catalogo = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            catalogo.add(new LibroFisico("Libro " + i, "Autor", "Historia", LocalDate.of(2000, 1, 1),
+                    "ISBN-" + i, 100, "Editorial", "A-" + i));
+        }
+        recursos.insertarTodos(catalogo);
+
+        try (EscrituraDiferida escritura = new EscrituraDiferida(gestor, directorioDiario, 100, SIN_VACIADO_PERIODICO)) {
+            for (Recurso recurso : catalogo) {
+                escritura.registrar(CampoDiferido.NUMERO_VECES_PRESTADO, recurso.getId(), 7);
+            }
+            long limite = System.currentTimeMillis() + 10_000;
+            while (escritura.getVaciados() == 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, escritura.getVaciados());
+            assertTrue(escritura.getFilasEscritas() >= 100);
+        }
+        assertEquals(7, recursos.buscarPorId(catalogo.get(119).getId()).orElseThrow().getNumeroVecesPrestado());
+    }
+
+    @Test
+    void combinaLoQueOtraInstanciaEscribioEntreVaciados() {
+        LibroFisico libro = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        recursos.insertar(libro);
+        usuarios.insertar(estudiante);
+
+        try (EscrituraDiferida escritura = new EscrituraDiferida(gestor, directorioDiario, 1000, SIN_VACIADO_PERIODICO)) {
+            ServicioCirculacion servicio = new ServicioCirculacion();
+            servicio.agregarEscucha(escritura);
+            Prestamo prestamo = servicio.prestar(estudiante, libro);
+            escritura.vaciar();
+            assertEquals(0, escritura.getConflictos());
+
+            // Otra instancia registra préstamos del mismo libro entre los dos vaciados
+            LocalDate antes = LocalDate.now().minusDays(3);
+            gestor.ejecutar(em -> em.createNativeQuery("UPDATE recurso SET numero_veces_prestado = 9, "
+                            + "fecha_ultimo_prestamo = ?, version = version + 1 WHERE id = ?")
+                    .setParameter(1, antes)
+                    .setParameter(2, libro.getId())
+                    .executeUpdate());
+            gestor.limpiarCache();
+
+            servicio.devolver(prestamo);
+            escritura.vaciar();
+            assertEquals(1, escritura.getConflictos());
+        }
+
+        Recurso leido = recursos.buscarPorId(libro.getId()).orElseThrow();
+        assertEquals(9, leido.getNumeroVecesPrestado());
+        assertTrue(leido.isDisponible());
+        assertEquals(LocalDate.now(), leido.getFechaUltimoPrestamo());
+        assertEquals(3, leido.getVersion());
+    }
+
+    @Test
+    void noPisaLosPrestamosQueOtraInstanciaConfirmo() {
+        LibroFisico libro = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        LibroFisico otroLibro = new LibroFisico("La Celestina", "Fernando de Rojas", "Literatura",
+                LocalDate.of(1499, 1, 1), "978-84-376-0100-7", 352, "Cátedra", "A-13");
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        Estudiante otro = new Estudiante("Luis", "luis@utp.edu.pe", "x", "Sistemas", 3, "U002");
+        recursos.insertarTodos(List.of(libro, otroLibro));
+        usuarios.insertarTodos(List.of(estudiante, otro));
+
+        try (EscrituraDiferida escritura = new EscrituraDiferida(gestor, directorioDiario, 1000, SIN_VACIADO_PERIODICO);
+             GestorPersistencia otraInstancia = BaseDatosPrueba.conectar("escrituraDiferida")) {
+            // Préstamo y devolución locales, aún sin vaciar
+            ServicioCirculacion servicio = new ServicioCirculacion();
+            servicio.agregarEscucha(escritura);
+            servicio.devolver(servicio.prestar(estudiante, libro));
+
+            // Entretanto otra instancia presta el mismo libro a otro usuario y otro libro a la misma usuaria
+            CirculacionTransaccional mostrador = new CirculacionTransaccional(otraInstancia, new ServicioCirculacion());
+            assertNotNull(mostrador.prestar(otro.getId(), libro.getId()));
+            Prestamo confirmado = mostrador.prestar(estudiante.getId(), otroLibro.getId());
+            assertNotNull(confirmado);
+
+            escritura.vaciar();
+            assertEquals(2, escritura.getConflictos());
+
+            assertFalse(recursos.buscarPorId(libro.getId()).orElseThrow().isDisponible());
+            assertEquals(List.of(confirmado.getId()),
+                    usuarios.buscarPorId(estudiante.getId()).orElseThrow().getPrestamosActivos());
+            // La versión subió: una transacción que partió de la fila anterior chocaría
+            assertTrue(mostrador.devolver(confirmado.getId(), otroLibro.getId()));
+        }
+        assertTrue(usuarios.buscarPorId(estudiante.getId()).orElseThrow().getPrestamosActivos().isEmpty());
+    }
+
+    @Test
+    void reaplicaElDiarioTrasUnaCaida() throws Exception {
+        LibroFisico libro = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        recursos.insertar(libro);
+        usuarios.insertar(estudiante);
+
+        // Cambios aceptados que nunca llegaron a la base (el proceso cayó antes del vaciado)
+        try (DiarioEscrituras diario = new DiarioEscrituras(directorioDiario)) {
+            diario.registrar(CampoDiferido.NUMERO_VECES_PRESTADO, libro.getId(), 4);
+            diario.registrar(CampoDiferido.DISPONIBLE, libro.getId(), false);
+            diario.registrar(CampoDiferido.NUMERO_VECES_PRESTADO, libro.getId(), 5);
+            diario.registrar(CampoDiferido.FECHA_ULTIMO_PRESTAMO, libro.getId(), LocalDate.of(2025, 5, 20));
+            diario.registrar(CampoDiferido.PRESTAMOS_ACTIVOS, estudiante.getId(), List.of("p1", "p2"));
+        }
+        // Escritura interrumpida a mitad de línea
+        try (var archivos = Files.list(directorioDiario)) {
+            Path archivo = archivos.findFirst().orElseThrow();
+            Files.write(archivo, "NUMERO_VECES_PRESTADO\t".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        }
+
+        try (EscrituraDiferida escritura = new EscrituraDiferida(gestor, directorioDiario, 1000, SIN_VACIADO_PERIODICO)) {
+            assertEquals(1, escritura.getVaciados());
+        }
+        try (var archivos = Files.list(directorioDiario)) {
+            assertEquals(0, archivos.filter(p -> Files.isRegularFile(p)).mapToLong(p -> p.toFile().length()).sum());
+        }
+
+        Recurso leido = recursos.buscarPorId(libro.getId()).orElseThrow();
+        assertEquals(5, leido.getNumeroVecesPrestado());
+        assertFalse(leido.isDisponible());
+        assertEquals(LocalDate.of(2025, 5, 20), leido.getFechaUltimoPrestamo());
+        assertEquals(List.of("p1", "p2"), usuarios.buscarPorId(estudiante.getId()).orElseThrow().getPrestamosActivos());
+    }
+}
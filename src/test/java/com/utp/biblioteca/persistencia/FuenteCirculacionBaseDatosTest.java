@@ -0,0 +1,117 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.EstadoReserva;
+import com.utp.biblioteca.model.gestion.Multa;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.gestion.Reserva;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.reporte.FormatoReporte;
+import com.utp.biblioteca.reporte.FuenteCirculacion;
+import com.utp.biblioteca.reporte.FuenteCirculacionMemoria;
+import com.utp.biblioteca.reporte.MotorReportes;
+import com.utp.biblioteca.reporte.RegistroCirculacion;
+import com.utp.biblioteca.reporte.ResumenReporte;
+import com.utp.biblioteca.reporte.TipoReporte;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Fuente de reportes sobre la base: se compara con la fuente en memoria alimentada con lo mismo
+ */
+class FuenteCirculacionBaseDatosTest {
+
+    private static final LocalDate BASE = LocalDate.of(2025, 3, 1);
+
+    private GestorPersistencia gestor;
+    private FuenteCirculacionMemoria memoria;
+
+    @BeforeEach
+    void iniciar() {
+        gestor = BaseDatosPrueba.crear("fuente_circulacion");
+        memoria = new FuenteCirculacionMemoria();
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        LibroFisico libro = new LibroFisico("POO", "Autor", "Informática", BASE, "isbn", 100, "Ed", "A-1");
+        List<Object> entidades = new ArrayList<>(List.of(estudiante, libro));
+        // Varias filas por día para que el cursor tenga que desempatar por id entre bloques
+        for (int i = 0; i < 120; i++) {
+            LocalDate fecha = BASE.plusDays(i % 9);
+            String id = UUID.randomUUID().toString();
+            Multa multa = i % 4 == 0 ? Multa.restaurar(UUID.randomUUID().toString(), id, 1.5 * i,
+                    "Retraso \"" + i + "\"\n", fecha.plusDays(8), null, i % 8 == 0, null, null) : null;
+            boolean devuelto = i % 3 != 0;
+            Prestamo prestamo = Prestamo.restaurar(id, estudiante, libro, fecha, fecha.plusDays(7),
+                    devuelto ? fecha.plusDays(i % 11) : null, devuelto ? EstadoPrestamo.DEVUELTO : EstadoPrestamo.ACTIVO,
+                    i % 3, 2, multa);
+            Reserva reserva = Reserva.restaurar(UUID.randomUUID().toString(), estudiante, libro,
+                    fecha.atTime(i % 24, i % 60), fecha.plusDays(2).atStartOfDay(), EstadoReserva.PENDIENTE, 1, 0);
+            entidades.add(prestamo);
+            entidades.add(reserva);
+            memoria.agregarPrestamo(prestamo);
+            memoria.agregarReserva(reserva);
+        }
+        gestor.ejecutar(em -> entidades.forEach(em::persist));
+    }
+
+    @AfterEach
+    void cerrar() {
+        gestor.close();
+    }
+
+    private static List<String> leer(FuenteCirculacion fuente, TipoReporte tipo, LocalDate inicio, LocalDate fin,
+                                     int tamanoBloque) {
+        List<String> filas = new ArrayList<>();
+        fuente.recorrer(tipo, inicio, fin, tamanoBloque, bloque -> {
+            assertTrue(bloque.size() <= tamanoBloque);
+            for (RegistroCirculacion r : bloque) {
+                filas.add(r.getId() + "|" + r.getUsuarioId() + "|" + r.getRecursoId() + "|" + r.getFecha() + "|"
+                        + r.getEstado() + "|" + r.getMonto() + "|" + r.getDetalle());
+            }
+        });
+        filas.sort(null);
+        return filas;
+    }
+
+    @Test
+    void recorreYCuentaLoMismoQueLaFuenteEnMemoria() {
+        FuenteCirculacionBaseDatos baseDatos = new FuenteCirculacionBaseDatos(gestor);
+        LocalDate inicio = BASE.plusDays(2);
+        LocalDate fin = BASE.plusDays(12);
+        for (TipoReporte tipo : TipoReporte.values()) {
+            List<String> esperadas = leer(memoria, tipo, inicio, fin, 1000);
+            assertTrue(esperadas.size() > 7, tipo.name());
+            assertEquals(esperadas, leer(baseDatos, tipo, inicio, fin, 7), tipo.name());
+            assertEquals(esperadas.size(), baseDatos.contar(tipo, inicio, fin), tipo.name());
+            assertEquals(esperadas.size(), memoria.contar(tipo, inicio, fin), tipo.name());
+        }
+        assertEquals(0, baseDatos.contar(TipoReporte.PRESTAMOS, BASE.minusDays(5), BASE.minusDays(1)));
+    }
+
+    @Test
+    void elMotorEscribeJsonValidoDesdeLaBase(@TempDir Path directorio) throws Exception {
+        MotorReportes motor = new MotorReportes(new FuenteCirculacionBaseDatos(gestor), directorio);
+
+        ResumenReporte resumen = motor.generarSincrono(TipoReporte.MULTAS, BASE, BASE.plusDays(30),
+                FormatoReporte.JSON);
+
+        JsonNode raiz = new ObjectMapper().readTree(resumen.getArchivo().toFile());
+        assertEquals("MULTAS", raiz.get("tipo").asText());
+        assertEquals(30, raiz.get("registros").size());
+        assertEquals(30, raiz.get("resumen").get("registros").asLong());
+        // El concepto lleva comillas y salto de línea: deben volver intactos
+        assertTrue(raiz.get("registros").get(0).get("detalle").asText().matches("Retraso \"\\d+\"\n"));
+    }
+}
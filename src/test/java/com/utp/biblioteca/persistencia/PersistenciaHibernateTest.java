@@ -0,0 +1,286 @@
+package com.utp.biblioteca.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.gestion.EstadoPrestamo;
+import com.utp.biblioteca.model.gestion.Prestamo;
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.Dispositivo;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.recurso.Recurso;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.model.usuario.Usuario;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas del mapeo JPA sobre H2: jerarquías, lotes JDBC y caché de segundo nivel
+ */
+class PersistenciaHibernateTest {
+
+    private GestorPersistencia gestor;
+    private RepositorioRecursos recursos;
+    private RepositorioUsuarios usuarios;
+    private RepositorioPrestamos prestamos;
+
+    @BeforeEach
+    void iniciar() {
+        gestor = BaseDatosPrueba.crear("persistencia");
+        recursos = new RepositorioRecursos(gestor);
+        usuarios = new RepositorioUsuarios(gestor);
+        prestamos = new RepositorioPrestamos(gestor);
+    }
+
+    @AfterEach
+    void cerrar() {
+        gestor.close();
+    }
+
+    @Test
+    void guardaYRecuperaLasJerarquiasPolimorficamente() {
+        LibroFisico libro = new LibroFisico("El Quijote", "Cervantes", "Literatura",
+                LocalDate.of(1605, 1, 16), "978-84-376-0494-7", 863, "Cátedra", "A-12");
+        libro.agregarPalabraClave("Novela");
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        AudioLibro audio = new AudioLibro("Sapiens", "Yuval Noah Harari", "Historia",
+                LocalDate.of(2014, 1, 1), 900, "MP3", "Derek Perkins", "Alta");
+        recursos.insertarTodos(List.of(libro, ebook, audio));
+
+        Recurso leido = recursos.buscarPorId(libro.getId()).orElseThrow();
+        assertInstanceOf(LibroFisico.class, leido);
+        assertEquals(List.of("novela"), leido.getPalabrasClave());
+        assertEquals("978-84-376-0494-7", ((LibroFisico) leido).getIsbn());
+        assertInstanceOf(AudioLibro.class, recursos.buscarPorId(audio.getId()).orElseThrow());
+        assertEquals(1, recursos.buscarDisponibles(EBook.class).size());
+        assertEquals(3, recursos.contar());
+    }
+
+    @Test
+    void refrescarDescartaLasInstantaneasDeLasColecciones() {
+        Bibliotecario bibliotecario = new Bibliotecario("Luz", "luz@utp.edu.pe", "x", "Catalogación", "Mañana");
+        bibliotecario.agregarEspecialidad("Archivo");
+        usuarios.insertar(bibliotecario);
+
+        List<String> especialidades = gestor.enTransaccion(em -> {
+            Bibliotecario leido = em.find(Bibliotecario.class, bibliotecario.getId());
+            assertEquals(List.of("Archivo"), leido.getEspecialidades());
+            // Mismo tamaño, otro contenido: solo @PostLoad puede invalidar la instantánea
+            em.createNativeQuery("UPDATE bibliotecario_especialidad SET especialidad = 'Referencia'")
+                    .executeUpdate();
+            em.refresh(leido);
+            return leido.getEspecialidades();
+        });
+        assertEquals(List.of("Referencia"), especialidades);
+    }
+
+    @Test
+    void fusionarConElMismoTamanoDescartaLasInstantaneas() {
+        Bibliotecario bibliotecario = new Bibliotecario("Luz", "luz@utp.edu.pe", "x", "Catalogación", "Mañana");
+        bibliotecario.agregarPrestamo("p1");
+        usuarios.insertar(bibliotecario);
+
+        gestor.ejecutar(em -> {
+            Bibliotecario leido = em.find(Bibliotecario.class, bibliotecario.getId());
+            assertEquals(List.of("p1"), leido.getPrestamosActivos());
+
+            // Un préstamo devuelto y otro tomado: el merge rellena la lista con el mismo tamaño
+            Bibliotecario separado = leido.copia();
+            separado.removerPrestamo("p1");
+            separado.agregarPrestamo("p2");
+            em.merge(separado);
+            em.flush();
+            assertEquals(List.of("p2"), leido.getPrestamosActivos());
+        });
+    }
+
+    @Test
+    void laMascaraDeDispositivosSigueAlFormatoAlRefrescarYAlFusionar() {
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        recursos.insertar(ebook);
+
+        gestor.ejecutar(em -> {
+            EBook leido = em.find(EBook.class, ebook.getId());
+            assertTrue(leido.esCompatibleCon(Dispositivo.IPAD));
+            // El refresh escribe el campo directamente, sin pasar por setFormato
+            em.createNativeQuery("UPDATE recurso SET formato = 'AZW' WHERE id = :id")
+                    .setParameter("id", ebook.getId())
+                    .executeUpdate();
+            em.refresh(leido);
+            assertEquals(EBook.dispositivosPara("AZW"), leido.getDispositivosCompatibles());
+
+            // El merge copia el formato de la copia separada a la instancia gestionada
+            EBook separado = (EBook) leido.copia();
+            separado.setFormato("EPUB");
+            em.merge(separado);
+            em.flush();
+            assertEquals("EPUB", leido.getFormato());
+            assertEquals(EBook.dispositivosPara("EPUB"), leido.getDispositivosCompatibles());
+        });
+    }
+
+    @Test
+    void persistePrestamoConSuUsuarioYRecurso() {
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        Prestamo prestamo = new ServicioCirculacion().prestar(estudiante, ebook);
+        assertNotNull(prestamo);
+
+        gestor.ejecutar(em -> {
+            em.persist(estudiante);
+            em.persist(ebook);
+            em.persist(prestamo);
+        });
+
+        List<Prestamo> delUsuario = prestamos.buscarPorUsuario(estudiante.getId());
+        assertEquals(1, delUsuario.size());
+        Prestamo leido = delUsuario.get(0);
+        assertEquals(EstadoPrestamo.ACTIVO, leido.getEstado());
+        assertInstanceOf(EBook.class, leido.getRecurso());
+        assertEquals(1, leido.getRecurso().getNumeroVecesPrestado());
+
+        Usuario usuario = usuarios.buscarPorEmail("ana@utp.edu.pe").orElseThrow();
+        assertEquals(List.of(prestamo.getId()), usuario.getPrestamosActivos());
+
+        // Lo que consulta el servidor de descargas antes de entregar el archivo
+        assertTrue(prestamos.tieneVigente(estudiante.getId(), ebook.getId()));
+        assertFalse(prestamos.tieneVigente(UUID.randomUUID().toString(), ebook.getId()));
+        assertTrue(prestamo.procesarDevolucion());
+        gestor.ejecutar(em -> em.merge(prestamo));
+        assertFalse(prestamos.tieneVigente(estudiante.getId(), ebook.getId()));
+    }
+
+    @Test
+    void losIdsDelPrestamoVuelvenComoTextoSeanUuidOImportados() {
+        Estudiante importado = new Estudiante("Eva", "eva@utp.edu.pe", "x", "Sistemas", 2, "U003");
+        importado.restaurarEstado("IMP-7", LocalDate.of(2019, 3, 1), true, List.of(), List.of(), 0.0);
+        LibroFisico libro = new LibroFisico("POO", "Autor", "Informática", LocalDate.of(2015, 1, 1),
+                "isbn", 100, "Ed", "A-1");
+        Prestamo prestamo = Prestamo.restaurar(UUID.randomUUID().toString(), importado, libro,
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 15), null, EstadoPrestamo.ACTIVO, 0, 2, null);
+        assertEquals("IMP-7", prestamo.getUsuarioId());
+        assertEquals(libro.getId(), prestamo.getRecursoId());
+
+        gestor.ejecutar(em -> {
+            em.persist(importado);
+            em.persist(libro);
+            em.persist(prestamo);
+        });
+
+        Prestamo leido = prestamos.buscarPorUsuario("IMP-7").get(0);
+        assertEquals("IMP-7", leido.getUsuarioId());
+        assertEquals(libro.getId(), leido.getRecursoId());
+    }
+
+    @Test
+    void insertaPorLotesYSirveElCatalogoDesdeLaCache() {
+        List<Recurso> catalogo = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            catalogo.add(new EBook("Libro " + i, "Autor " + (i % 20), "Categoría " + (i % 5),
+                    LocalDate.of(2000 + i % 20, 1, 1), "EPUB", 1.5, "https://biblioteca.utp.edu.pe/e/" + i));
+        }
+        Statistics estadisticas = gestor.getEstadisticas();
+        estadisticas.clear();
+        assertEquals(500, recursos.insertarTodos(catalogo));
+        // 500 filas en lotes de 50: muchas menos sentencias preparadas que filas
+        assertTrue(estadisticas.getPrepareStatementCount() <= 500 / gestor.getTamanoLote() + 5,
+                "Sentencias preparadas: " + estadisticas.getPrepareStatementCount());
+
+        String id = catalogo.get(7).getId();
+        recursos.buscarPorId(id);
+        estadisticas.clear();
+        recursos.buscarPorId(id);
+        assertTrue(estadisticas.getSecondLevelCacheHitCount() >= 1); // entidad + palabras clave
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void laCargaMasivaDevuelveElModoDeCache() {
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "secreta", "Sistemas", 3, "U001");
+        EntityManager em = gestor.crearEntityManager();
+        try {
+            em.getTransaction().begin();
+            usuarios.insertarPorLotes(em, List.of(estudiante));
+            em.getTransaction().commit();
+            assertEquals(CacheStoreMode.USE, em.getProperties().get("jakarta.persistence.cache.storeMode"));
+        } finally {
+            em.close();
+        }
+        assertTrue(usuarios.buscarPorEmail("ana@utp.edu.pe").orElseThrow().verificarPassword("secreta"));
+    }
+
+    @Test
+    void lasCadenasDelCatalogoSeCompartenYSeGuardanComoTexto() {
+        // Cadenas distintas con el mismo contenido, como las que crea cada fila leída
+        EBook primero = new EBook("Clean Code", new String("Robert C. Martin"), new String("Informática"),
+                LocalDate.of(2008, 8, 1), new String("PDF"), 25.5, "https://biblioteca.utp.edu.pe/e/1");
+        EBook segundo = new EBook("Clean Architecture", new String("Robert C. Martin"), new String("Informática"),
+                LocalDate.of(2017, 9, 1), new String("PDF"), 12.0, "https://biblioteca.utp.edu.pe/e/2");
+        recursos.insertarTodos(List.of(primero, segundo));
+        gestor.limpiarCache();
+
+        EBook leido = (EBook) recursos.buscarPorId(primero.getId()).orElseThrow();
+        assertSame(segundo.getCategoria(), leido.getCategoria());
+        assertEquals(segundo.getAutor(), leido.getAutor());
+        assertSame(segundo.getFormato(), leido.getFormato());
+        assertEquals(2, recursos.buscarPorCategoria("Informática").size());
+        assertTrue(recursos.buscarPorCategoria("Categoría inexistente").isEmpty());
+        // Un valor que no es texto o que no está en el diccionario simplemente no coincide
+        assertTrue(leido.aplicarFiltros(Map.of("categoria", "Informática")));
+        assertFalse(leido.aplicarFiltros(Map.of("categoria", 5)));
+        assertFalse(leido.aplicarFiltros(Map.of("categoria", "Categoría inexistente")));
+
+        Object[] columnas = gestor.enTransaccion(em -> (Object[]) em
+                .createNativeQuery("SELECT categoria, autor, formato FROM recurso WHERE id = ?")
+                .setParameter(1, primero.getId())
+                .getSingleResult());
+        assertEquals(List.of("Informática", "Robert C. Martin", "PDF"), List.of(columnas));
+    }
+
+    @Test
+    void elHistorialDePrestamosSeGuardaEnUnaColumnaYDetectaCambios() {
+        List<String> historial = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            historial.add(i % 10 == 0 ? "IMP-" + i : UUID.randomUUID().toString());
+        }
+        Estudiante estudiante = new Estudiante("Luis", "luis@utp.edu.pe", "x", "Sistemas", 5, "U002");
+        estudiante.restaurarEstado(estudiante.getId(), LocalDate.of(2020, 3, 1), true,
+                List.of(), historial, 0.0);
+        usuarios.insertar(estudiante);
+        gestor.limpiarCache();
+
+        Usuario leido = usuarios.buscarPorId(estudiante.getId()).orElseThrow();
+        assertEquals(historial, leido.getHistorialPrestamos());
+        assertEquals(historial.get(199), leido.getHistorial().pagina(0, 1).get(0));
+
+        // Un préstamo nuevo sobre la entidad administrada basta para que se actualice la columna
+        String nuevo = UUID.randomUUID().toString();
+        gestor.ejecutar(em -> em.find(Usuario.class, estudiante.getId()).agregarPrestamo(nuevo));
+        gestor.limpiarCache();
+
+        Usuario actualizado = usuarios.buscarPorId(estudiante.getId()).orElseThrow();
+        assertEquals(201, actualizado.getHistorial().getTamano());
+        assertEquals(nuevo, actualizado.getHistorial().pagina(0, 1).get(0));
+        assertTrue(actualizado.getHistorial().contiene(historial.get(10)));
+        assertFalse(actualizado.getHistorial().contiene(UUID.randomUUID().toString()));
+    }
+}
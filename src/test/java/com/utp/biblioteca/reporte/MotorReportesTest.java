@@ -0,0 +1,96 @@
+package com.utp.biblioteca.reporte;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.recurso.LibroFisico;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import com.utp.biblioteca.servicio.ServicioCirculacion;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas del motor de reportes de circulación
+ */
+class MotorReportesTest {
+
+    private static final LocalDate HOY = LocalDate.now();
+
+    private FuenteCirculacionMemoria crearFuente(int prestamos) {
+        FuenteCirculacionMemoria fuente = new FuenteCirculacionMemoria();
+        ServicioCirculacion servicio = new ServicioCirculacion();
+        servicio.agregarEscucha(fuente);
+        for (int i = 0; i < prestamos; i++) {
+            Estudiante estudiante = new Estudiante("E" + i, "e" + i + "@utp.edu.pe", "x", "Sistemas", 1, "U" + i);
+            LibroFisico libro = new LibroFisico("Libro, \"edición\" " + i, "Autor", "Informática",
+                    LocalDate.of(2020, 1, 1), "isbn", 100, "Ed", "A-1");
+            servicio.prestar(estudiante, libro);
+        }
+        return fuente;
+    }
+
+    @Test
+    void bibliotecarioGeneraCsvRealConElMotor(@TempDir Path directorio) throws Exception {
+        Bibliotecario bibliotecario = new Bibliotecario("Ana López", "ana@utp.edu.pe", "x", "Catalogación", "Mañana");
+        bibliotecario.setMotorReportes(new MotorReportes(crearFuente(2500), directorio));
+
+        String resultado = bibliotecario.generarReporte("prestamos", HOY.minusDays(1), HOY);
+
+        Path archivo = directorio.resolve("reporte_prestamos_" + HOY.minusDays(1) + "_" + HOY + ".csv");
+        assertTrue(resultado.contains("2500 registros"));
+        List<String> lineas = Files.readAllLines(archivo);
+        assertEquals(2501, lineas.size());
+        assertTrue(lineas.get(0).startsWith("tipo,id,usuario_id"));
+        assertFalse(Files.exists(directorio.resolve(archivo.getFileName() + ".parcial")));
+    }
+
+    @Test
+    void jsonIncluyeResumenAlFinal(@TempDir Path directorio) throws Exception {
+        MotorReportes motor = new MotorReportes(crearFuente(10), directorio);
+
+        ResumenReporte resumen = motor.generarSincrono(TipoReporte.PRESTAMOS, HOY, HOY, FormatoReporte.JSON);
+
+        String json = Files.readString(resumen.getArchivo());
+        assertEquals(10, resumen.getRegistros());
+        assertEquals(10L, resumen.getRegistrosPorEstado().get("ACTIVO"));
+        assertTrue(json.startsWith("{\"tipo\":\"PRESTAMOS\""));
+        assertTrue(json.trim().endsWith("\"diaPico\":\"" + HOY + "\"}}"));
+    }
+
+    @Test
+    void cancelarEliminaElArchivoParcial(@TempDir Path directorio) throws Exception {
+        CountDownLatch primerBloque = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        MotorReportes motor = new MotorReportes(crearFuente(5000), directorio,
+                Executors.newSingleThreadExecutor(), 100);
+
+        TareaReporte tarea = motor.generar(TipoReporte.PRESTAMOS, HOY, HOY, FormatoReporte.CSV,
+                (procesados, total) -> {
+                    primerBloque.countDown();
+                    try {
+                        continuar.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        primerBloque.await();
+        assertEquals(0.02, tarea.getProgreso(), 1e-9);
+        tarea.cancelar();
+        continuar.countDown();
+
+        assertThrows(CancellationException.class, tarea::esperar);
+        try (var archivos = Files.list(directorio)) {
+            assertEquals(0, archivos.count());
+        }
+    }
+}
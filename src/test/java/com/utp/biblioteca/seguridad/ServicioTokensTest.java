@@ -0,0 +1,145 @@
+package com.utp.biblioteca.seguridad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.recurso.AudioLibro;
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de los tokens firmados: validación sin estado, vencimiento y rotación de claves
+ */
+class ServicioTokensTest {
+
+    /** Reloj que la prueba adelanta a mano */
+    private static final class RelojAjustable extends Clock {
+        private Instant ahora = Instant.parse("2025-03-01T10:00:00Z");
+
+        void avanzar(Duration duracion) { ahora = ahora.plus(duracion); }
+
+        @Override public Instant instant() { return ahora; }
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zona) { return this; }
+    }
+
+    private final RelojAjustable reloj = new RelojAjustable();
+    private final ServicioTokens servicio = new ServicioTokens(AnilloClaves.conClaveAleatoria(),
+            Duration.ofHours(6), reloj);
+
+    @Test
+    void validaElContenidoYRechazaTokensAlterados() {
+        String usuario = UUID.randomUUID().toString();
+        String recurso = UUID.randomUUID().toString();
+        String token = servicio.emitir(usuario, recurso, Duration.ofMinutes(30), "alta");
+
+        TokenAcceso acceso = servicio.validar(token).orElseThrow();
+        assertEquals(usuario, acceso.getUsuarioId());
+        assertEquals(recurso, acceso.getRecursoId());
+        assertEquals("alta", acceso.getCalidad());
+        assertNull(acceso.getTipoUsuario());
+        assertEquals(reloj.instant().plus(Duration.ofMinutes(30)), acceso.getExpiracion());
+        assertTrue(servicio.validarPara(token, recurso).isPresent());
+        assertFalse(servicio.validarPara(token, UUID.randomUUID().toString()).isPresent());
+
+        // Ids que no son UUID y sin calidad
+        TokenAcceso importado = servicio.validar(servicio.emitir("U-ñandú", "AUD-001", Duration.ofMinutes(1), null))
+                .orElseThrow();
+        assertEquals("U-ñandú", importado.getUsuarioId());
+        assertEquals("AUD-001", importado.getRecursoId());
+        assertNull(importado.getCalidad());
+
+        // Con el tipo de usuario, para el ritmo de entrega
+        TokenAcceso conTipo = servicio.validar(servicio.emitir(usuario, recurso, Duration.ofMinutes(1), null,
+                "Profesor")).orElseThrow();
+        assertEquals("Profesor", conTipo.getTipoUsuario());
+        assertEquals(usuario, conTipo.getUsuarioId());
+
+        // Cualquier bit cambiado invalida el token
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] alterado = bytes.clone();
+            alterado[i] ^= 1;
+            assertFalse(servicio.validar(Base64.getUrlEncoder().withoutPadding().encodeToString(alterado)).isPresent(),
+                    "byte " + i);
+        }
+        assertFalse(servicio.validar("no-es-un-token!").isPresent());
+        assertFalse(servicio.validar("").isPresent());
+        assertFalse(servicio.validar(null).isPresent());
+        assertFalse(new ServicioTokens(AnilloClaves.conClaveAleatoria()).validar(token).isPresent());
+        assertThrows(IllegalArgumentException.class, () -> servicio.emitir(usuario, recurso, Duration.ofHours(7), null));
+    }
+
+    @Test
+    void losTokensVencenYLasClavesRotadasSeRetiranCuandoNadaLasUsa() {
+        String antiguo = servicio.emitir("u1", "r1", Duration.ofHours(6), null);
+        int primera = servicio.getAnillo().getIdActiva();
+
+        reloj.avanzar(Duration.ofHours(1));
+        int segunda = servicio.rotarClaves();
+        assertTrue(segunda != primera);
+        String nuevo = servicio.emitir("u1", "r1", Duration.ofMinutes(10), null);
+        assertTrue(servicio.validar(antiguo).isPresent()); // la clave anterior sigue validando
+        assertEquals(segunda, servicio.validar(nuevo).orElseThrow().getIdClave());
+
+        reloj.avanzar(Duration.ofMinutes(10));
+        assertFalse(servicio.validar(nuevo).isPresent()); // vencido
+
+        // Pasada la vigencia máxima desde que dejó de firmar, la primera clave se retira
+        reloj.avanzar(Duration.ofHours(6));
+        servicio.rotarClaves();
+        assertEquals(2, servicio.getAnillo().getNumeroClaves());
+        assertFalse(servicio.validar(antiguo).isPresent());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void ebookYAudioLibroGeneranEnlacesConTokensFirmados() {
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        Estudiante ana = new Estudiante("Ana", "ana@utp.edu.pe", "clave", "Sistemas", 3, "U2024001");
+        String enlace = ebook.generarEnlaceDescarga(ana, servicio);
+        assertTrue(enlace.startsWith("https://biblioteca.utp.edu.pe/ebooks/clean-code?token="));
+        String token = enlace.substring(enlace.indexOf("token=") + 6, enlace.indexOf("&user="));
+        assertEquals(ana.getId(), servicio.validarPara(token, ebook.getId()).orElseThrow().getUsuarioId());
+        assertEquals("Estudiante", servicio.validar(token).orElseThrow().getTipoUsuario());
+
+        AudioLibro audio = new AudioLibro("Sapiens", "Yuval Noah Harari", "Historia",
+                LocalDate.of(2014, 1, 1), 900, "MP3", "Derek Perkins", "Alta");
+        audio.setUrlStreaming("https://biblioteca.utp.edu.pe/audio/sapiens");
+        String url = audio.generarUrlStreaming(ana, servicio);
+        assertTrue(url.endsWith("&quality=alta"));
+        TokenAcceso acceso = servicio.validarPara(url.substring(url.indexOf("token=") + 6, url.indexOf("&quality=")),
+                audio.getId()).orElseThrow();
+        assertEquals("alta", acceso.getCalidad());
+        assertEquals(List.of("alta", "media", "baja"), acceso.getCalidades());
+        assertEquals("Estudiante", acceso.getTipoUsuario());
+        assertTrue(acceso.permiteCalidad("Baja"));
+        audio.setCalidad("Media");
+        assertEquals(List.of("media", "baja"), audio.calidadesStreaming());
+        // 900 minutos superan la vigencia máxima del servicio (6 h): se recorta
+        assertEquals(reloj.instant().plus(Duration.ofHours(6)), acceso.getExpiracion());
+
+        assertTrue(ServicioTokens.compartido().validarPara(ebook.generarEnlaceDescarga(ana).split("token=|&")[1],
+                ebook.getId()).isPresent());
+
+        // Las firmas con solo el id siguen funcionando, sin tipo (perfil por defecto)
+        TokenAcceso antiguo = ServicioTokens.compartido().validarPara(
+                ebook.generarEnlaceDescarga(ana.getId()).split("token=|&")[1], ebook.getId()).orElseThrow();
+        assertNull(antiguo.getTipoUsuario());
+        assertTrue(audio.generarUrlStreaming(ana.getId()).endsWith("&quality=media"));
+    }
+}
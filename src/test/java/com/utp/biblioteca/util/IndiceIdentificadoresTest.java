@@ -0,0 +1,110 @@
+package com.utp.biblioteca.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Identificadores compactos: conversión de UUID y mapa de claves primitivas
+ */
+class IndiceIdentificadoresTest {
+
+    @Test
+    void convierteComoJavaUtilUuid() {
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            String texto = uuid.toString();
+            assertEquals(uuid.getMostSignificantBits(), Identificadores.alto(texto));
+            assertEquals(uuid.getLeastSignificantBits(), Identificadores.bajo(texto));
+            assertEquals(texto, Identificadores.aTexto(Identificadores.alto(texto), Identificadores.bajo(texto)));
+        }
+        assertEquals(Identificadores.alto("6F9619FF-8B86-D011-B42D-00C04FC964FF"),
+                UUID.fromString("6f9619ff-8b86-d011-b42d-00c04fc964ff").getMostSignificantBits());
+        assertFalse(Identificadores.esValido("U001"));
+        assertFalse(Identificadores.esValido("6f9619ff-8b86-d011-b42d-00c04fc964fg"));
+        assertThrows(IllegalArgumentException.class, () -> Identificadores.alto("U001"));
+    }
+
+    @Test
+    void secuenciaAleatoriaCoincideConHashMap() {
+        SplittableRandom aleatorio = new SplittableRandom(3);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        IndiceIdentificadores indice = new IndiceIdentificadores();
+        Map<String, Integer> esperado = new HashMap<>();
+        for (int paso = 0; paso < 100_000; paso++) {
+            String id = ids.get(aleatorio.nextInt(ids.size()));
+            int operacion = aleatorio.nextInt(3);
+            if (operacion == 0) {
+                Integer anterior = esperado.put(id, paso);
+                assertEquals(anterior != null ? anterior : IndiceIdentificadores.NO_ENCONTRADO, indice.poner(id, paso));
+            } else if (operacion == 1) {
+                Integer anterior = esperado.remove(id);
+                assertEquals(anterior != null ? anterior : IndiceIdentificadores.NO_ENCONTRADO, indice.eliminar(id));
+            } else {
+                Integer valor = esperado.get(id);
+                assertEquals(valor != null ? valor : IndiceIdentificadores.NO_ENCONTRADO, indice.obtener(id));
+            }
+        }
+        assertEquals(esperado.size(), indice.getTamano());
+        for (String id : ids) {
+            assertEquals(esperado.getOrDefault(id, IndiceIdentificadores.NO_ENCONTRADO), indice.obtener(id));
+        }
+    }
+
+    @Test
+    void aceptaIdsQueNoSonUuid() {
+        IndiceIdentificadores indice = new IndiceIdentificadores();
+        String nulo = new UUID(0, 0).toString();
+        indice.poner("U001", 1);
+        indice.poner(nulo, 2);
+        indice.poner(UUID.randomUUID().toString(), 3);
+        assertEquals(1, indice.obtener("U001"));
+        assertEquals(2, indice.obtener(0L, 0L));
+        assertEquals(3, indice.getTamano());
+        assertEquals(2, indice.eliminar(nulo));
+        assertTrue(indice.contiene("U001"));
+        assertFalse(indice.contiene(nulo));
+        assertThrows(IllegalArgumentException.class, () -> indice.poner("U002", -5));
+    }
+
+    @Test
+    void idCompactoDevuelveElMismoTextoYComparaPorValor() {
+        String uuid = UUID.randomUUID().toString();
+        IdCompacto compacto = IdCompacto.de(uuid);
+        assertTrue(compacto.isCompacto());
+        assertEquals(UUID.fromString(uuid).getMostSignificantBits(), compacto.getAlto());
+        assertEquals(UUID.fromString(uuid).getLeastSignificantBits(), compacto.getBajo());
+        assertEquals(uuid, compacto.toString());
+        assertEquals(compacto, IdCompacto.de(uuid));
+        assertEquals(compacto.hashCode(), IdCompacto.de(uuid).hashCode());
+
+        // Lo que no es un UUID canónico en minúsculas se guarda como texto y vuelve idéntico
+        for (String texto : new String[] { "P-000001", uuid.toUpperCase(), new UUID(0, 0).toString() }) {
+            IdCompacto id = IdCompacto.de(texto);
+            assertFalse(id.isCompacto(), texto);
+            assertEquals(texto, id.toString());
+            assertEquals(id, IdCompacto.de(texto));
+        }
+        assertNotEquals(compacto, IdCompacto.de(uuid.toUpperCase()));
+        assertNull(IdCompacto.de(null));
+
+        IdCompacto.Convertidor convertidor = new IdCompacto.Convertidor();
+        assertEquals(uuid, convertidor.convertToDatabaseColumn(convertidor.convertToEntityAttribute(uuid)));
+        assertNull(convertidor.convertToEntityAttribute(null));
+        assertEquals(List.of(uuid, "P-000001"), IdCompacto.aTextos(List.of(compacto, IdCompacto.de("P-000001"))));
+    }
+}
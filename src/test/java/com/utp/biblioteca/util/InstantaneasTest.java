@@ -0,0 +1,84 @@
+package com.utp.biblioteca.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.utp.biblioteca.model.recurso.EBook;
+import com.utp.biblioteca.model.usuario.Bibliotecario;
+import com.utp.biblioteca.model.usuario.Estudiante;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de las vistas inmutables que devuelven los getters de las entidades
+ */
+class InstantaneasTest {
+
+    @Test
+    void laInstantaneaSeRehaceAlDescartarlaOSiCambiaElTamano() {
+        List<String> origen = new ArrayList<>(List.of("a", "b"));
+        List<String> vista = Instantaneas.vigente(null, origen);
+        assertSame(vista, Instantaneas.vigente(vista, origen));
+        assertThrows(UnsupportedOperationException.class, () -> vista.add("c"));
+
+        // Cambio de tamaño por fuera de la entidad, como el merge de Hibernate
+        origen.add("z");
+        List<String> nueva = Instantaneas.vigente(vista, origen);
+        assertNotSame(vista, nueva);
+        assertEquals(List.of("a", "b"), vista);
+        assertEquals(List.of("a", "b", "z"), nueva);
+
+        // Mismo tamaño: la entidad debe descartar la instantánea al modificar la lista
+        origen.set(2, "y");
+        assertSame(nueva, Instantaneas.vigente(nueva, origen));
+        assertEquals(List.of("a", "b", "y"), Instantaneas.vigente(null, origen));
+
+        List<String> conNulos = Arrays.asList("x", null);
+        assertEquals(conNulos, Instantaneas.vigente(null, conNulos));
+        assertTrue(Instantaneas.vigente(null, new ArrayList<String>()).isEmpty());
+    }
+
+    @Test
+    void losGettersDeLasEntidadesCompartenLaVistaHastaQueHayEscrituras() {
+        EBook ebook = new EBook("Clean Code", "Robert C. Martin", "Informática",
+                LocalDate.of(2008, 8, 1), "PDF", 25.5, "https://biblioteca.utp.edu.pe/ebooks/clean-code");
+        ebook.agregarPalabraClave("Software");
+        List<String> palabras = ebook.getPalabrasClave();
+        List<String> indexables = ebook.getPalabrasClaveIndexables();
+        assertSame(palabras, ebook.getPalabrasClave());
+        assertSame(indexables, ebook.getPalabrasClaveIndexables());
+        assertThrows(UnsupportedOperationException.class, () -> palabras.add("x"));
+
+        ebook.agregarPalabraClave("Buenas prácticas");
+        assertEquals(List.of("software"), palabras);
+        assertEquals(List.of("software", "buenas prácticas"), ebook.getPalabrasClave());
+        ebook.setTitulo("Clean Architecture");
+        assertEquals(List.of("clean architecture", "robert c. martin", "informática", "software",
+                "buenas prácticas"), ebook.getPalabrasClaveIndexables());
+
+        Estudiante estudiante = new Estudiante("Ana", "ana@utp.edu.pe", "x", "Sistemas", 3, "U001");
+        estudiante.agregarPrestamo("p1");
+        List<String> activos = estudiante.getPrestamosActivos();
+        List<String> historial = estudiante.getHistorialPrestamos();
+        assertSame(activos, estudiante.getPrestamosActivos());
+        estudiante.agregarPrestamo("p2");
+        assertEquals(List.of("p1"), activos);
+        assertEquals(List.of("p1"), historial);
+        assertEquals(List.of("p1", "p2"), estudiante.getPrestamosActivos());
+        assertEquals(List.of("p1", "p2"), estudiante.getHistorialPrestamos());
+        estudiante.setNombre("Ana María");
+        assertEquals("ana maría", estudiante.getPalabrasClaveIndexables().get(0));
+
+        Bibliotecario bibliotecario = new Bibliotecario("Luz", "luz@utp.edu.pe", "x", "Catalogación", "Mañana");
+        bibliotecario.agregarEspecialidad("Archivo");
+        assertSame(bibliotecario.getEspecialidades(), bibliotecario.getEspecialidades());
+        bibliotecario.agregarEspecialidad("Referencia");
+        assertEquals(List.of("Archivo", "Referencia"), bibliotecario.getEspecialidades());
+    }
+}